@@ -174,6 +174,26 @@ public interface JobScheduler extends Lifecycle
          */
         public static Group transactionTimeoutMonitor = new Group( "TransactionTimeoutMonitor" );
 
+        /**
+         * Background page cache warmup and profiling.
+         */
+        public static Group pageCacheIOHelper = new Group( "PageCacheIOHelper" );
+
+        /**
+         * Dedicated transaction log writer for group commit.
+         */
+        public static Group transactionLogWriter = new Group( "TransactionLogWriter" );
+
+        /**
+         * Parallel application of store records of transactions from other instances or from recovery.
+         */
+        public static Group transactionApply = new Group( "TransactionApply" );
+
+        /**
+         * Incremental flushing of dirty pages in between check points.
+         */
+        public static Group checkPointFlush = new Group( "CheckPointFlush" );
+
         private Groups()
         {
         }
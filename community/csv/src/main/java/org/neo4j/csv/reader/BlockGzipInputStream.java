@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a block gzip file, i.e. a series of gzip members which all carry their own compressed size in a
+ * {@code BC} extra field, as specified by the BGZF format and written by f.ex. {@code bgzip}. Knowing where
+ * every member ends without inflating it means that the members can be read by one thread and inflated by others,
+ * while still being returned from this stream in order.
+ */
+class BlockGzipInputStream extends InputStream
+{
+    private static final int ID1 = 0x1f;
+    private static final int ID2 = 0x8b;
+    private static final int CM_DEFLATE = 8;
+    private static final int FLG_FEXTRA = 4;
+    // ID1, ID2, CM, FLG, MTIME (4 bytes), XFL, OS, XLEN (2 bytes)
+    private static final int HEADER_SIZE = 12;
+    // CRC32, ISIZE
+    private static final int TRAILER_SIZE = 8;
+    // Blocks are at most 64kB, inflate a bunch of them per task to keep the overhead of handing them over low
+    private static final int COMPRESSED_BYTES_PER_TASK = 1024 * 1024;
+
+    private final InputStream in;
+    private final String sourceDescription;
+    private final ExecutorService inflaters;
+    private final int maxInflatingTasks;
+    private final Deque<Future<byte[]>> inflating = new ArrayDeque<>();
+    private long compressedPosition;
+    private boolean compressedEof;
+    private byte[] current = new byte[0];
+    private int currentPosition;
+
+    BlockGzipInputStream( File file, int parallelism ) throws IOException
+    {
+        this.in = new BufferedInputStream( new FileInputStream( file ), COMPRESSED_BYTES_PER_TASK );
+        this.sourceDescription = file.getPath();
+        this.inflaters = Executors.newFixedThreadPool( parallelism, runnable ->
+        {
+            Thread thread = new Thread( runnable, getClass().getSimpleName() + " inflater for " + sourceDescription );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        this.maxInflatingTasks = parallelism * 2;
+    }
+
+    /**
+     * @param file {@link File} to check.
+     * @return whether or not the first member of the given gzip file carries its compressed size, which is taken
+     * as a sign of all its members doing so.
+     * @throws IOException on error reading the file.
+     */
+    static boolean isBlockGzip( File file ) throws IOException
+    {
+        try ( InputStream in = new BufferedInputStream( new FileInputStream( file ) ) )
+        {
+            byte[] header = new byte[HEADER_SIZE];
+            if ( readFully( in, header, 0, header.length ) < header.length || !hasExtraField( header ) )
+            {
+                return false;
+            }
+            byte[] extra = new byte[unsignedShort( header, 10 )];
+            return readFully( in, extra, 0, extra.length ) == extra.length && blockSize( extra ) != -1;
+        }
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        byte[] single = new byte[1];
+        return read( single, 0, 1 ) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read( byte[] into, int offset, int length ) throws IOException
+    {
+        while ( currentPosition == current.length )
+        {
+            if ( !nextInflated() )
+            {
+                return -1;
+            }
+        }
+        int read = Math.min( length, current.length - currentPosition );
+        System.arraycopy( current, currentPosition, into, offset, read );
+        currentPosition += read;
+        return read;
+    }
+
+    private boolean nextInflated() throws IOException
+    {
+        // Keep the inflaters busy with the blocks ahead of the one we're about to return
+        while ( !compressedEof && inflating.size() < maxInflatingTasks )
+        {
+            List<byte[]> blocks = readBlocks();
+            if ( !blocks.isEmpty() )
+            {
+                inflating.add( inflaters.submit( () -> inflate( blocks ) ) );
+            }
+        }
+
+        Future<byte[]> next = inflating.poll();
+        if ( next == null )
+        {
+            // Everything has been inflated, let the inflater threads end even if this stream is left open
+            inflaters.shutdown();
+            return false;
+        }
+        try
+        {
+            current = next.get();
+            currentPosition = 0;
+            return true;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException( e.getCause() );
+        }
+    }
+
+    private List<byte[]> readBlocks() throws IOException
+    {
+        List<byte[]> blocks = new ArrayList<>();
+        int compressedBytes = 0;
+        while ( compressedBytes < COMPRESSED_BYTES_PER_TASK )
+        {
+            byte[] block = readBlock();
+            if ( block == null )
+            {
+                compressedEof = true;
+                break;
+            }
+            blocks.add( block );
+            compressedBytes += block.length;
+        }
+        return blocks;
+    }
+
+    private byte[] readBlock() throws IOException
+    {
+        byte[] header = new byte[HEADER_SIZE];
+        int read = readFully( in, header, 0, header.length );
+        if ( read == 0 )
+        {
+            return null;
+        }
+        if ( read < header.length || !hasExtraField( header ) )
+        {
+            throw new IOException( "Gzip member at " + sourceDescription + ":" + compressedPosition +
+                    " has no extra field, which is required for block gzip files" );
+        }
+        byte[] extra = new byte[unsignedShort( header, 10 )];
+        if ( readFully( in, extra, 0, extra.length ) < extra.length )
+        {
+            throw new EOFException( "Unexpected end of " + sourceDescription + " in gzip member header" );
+        }
+        int blockSize = blockSize( extra );
+        if ( blockSize < HEADER_SIZE + extra.length + TRAILER_SIZE )
+        {
+            throw new IOException( "Gzip member at " + sourceDescription + ":" + compressedPosition +
+                    " doesn't specify a valid block size, which is required for block gzip files" );
+        }
+
+        byte[] block = new byte[blockSize];
+        System.arraycopy( header, 0, block, 0, header.length );
+        System.arraycopy( extra, 0, block, header.length, extra.length );
+        int dataOffset = header.length + extra.length;
+        if ( readFully( in, block, dataOffset, blockSize - dataOffset ) < blockSize - dataOffset )
+        {
+            throw new EOFException( "Unexpected end of " + sourceDescription + " in gzip member data" );
+        }
+        compressedPosition += blockSize;
+        return block;
+    }
+
+    private byte[] inflate( List<byte[]> blocks ) throws IOException
+    {
+        int inflatedSize = 0;
+        for ( byte[] block : blocks )
+        {
+            inflatedSize += intLittleEndian( block, block.length - 4 );
+        }
+
+        byte[] inflated = new byte[inflatedSize];
+        int offset = 0;
+        Inflater inflater = new Inflater( true );
+        CRC32 crc = new CRC32();
+        try
+        {
+            for ( byte[] block : blocks )
+            {
+                int dataOffset = HEADER_SIZE + unsignedShort( block, 10 );
+                int size = intLittleEndian( block, block.length - 4 );
+                inflater.reset();
+                inflater.setInput( block, dataOffset, block.length - dataOffset - TRAILER_SIZE );
+                int inflatedBytes = 0;
+                while ( inflatedBytes < size && !inflater.finished() )
+                {
+                    int count = inflater.inflate( inflated, offset + inflatedBytes, size - inflatedBytes );
+                    if ( count == 0 && (inflater.needsInput() || inflater.needsDictionary()) )
+                    {
+                        break;
+                    }
+                    inflatedBytes += count;
+                }
+
+                crc.reset();
+                crc.update( inflated, offset, inflatedBytes );
+                if ( inflatedBytes != size || (int) crc.getValue() != intLittleEndian( block, block.length - 8 ) )
+                {
+                    throw new IOException( "Corrupt gzip member in " + sourceDescription );
+                }
+                offset += size;
+            }
+            return inflated;
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Corrupt gzip member in " + sourceDescription, e );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        inflaters.shutdownNow();
+        in.close();
+    }
+
+    private static boolean hasExtraField( byte[] header )
+    {
+        return (header[0] & 0xFF) == ID1 && (header[1] & 0xFF) == ID2 && header[2] == CM_DEFLATE &&
+               (header[3] & FLG_FEXTRA) != 0;
+    }
+
+    /**
+     * @return total size of the gzip member, as specified in the {@code BC} subfield of its extra field,
+     * or {@code -1} if there's no such subfield.
+     */
+    private static int blockSize( byte[] extra )
+    {
+        int offset = 0;
+        while ( offset + 4 <= extra.length )
+        {
+            int subfieldLength = unsignedShort( extra, offset + 2 );
+            if ( extra[offset] == 'B' && extra[offset + 1] == 'C' && subfieldLength == 2 &&
+                 offset + 6 <= extra.length )
+            {
+                return unsignedShort( extra, offset + 4 ) + 1;
+            }
+            offset += 4 + subfieldLength;
+        }
+        return -1;
+    }
+
+    private static int unsignedShort( byte[] bytes, int offset )
+    {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int intLittleEndian( byte[] bytes, int offset )
+    {
+        return unsignedShort( bytes, offset ) | unsignedShort( bytes, offset + 2 ) << 16;
+    }
+
+    private static int readFully( InputStream in, byte[] into, int offset, int length ) throws IOException
+    {
+        int total = 0;
+        while ( total < length )
+        {
+            int read = in.read( into, offset + total, length - total );
+            if ( read == -1 )
+            {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
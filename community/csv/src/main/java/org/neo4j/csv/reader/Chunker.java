@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Splits data into chunks of whole lines, each of which can be read by its own {@link BufferedCharSeeker},
+ * typically in a thread of its own.
+ */
+public interface Chunker extends Closeable
+{
+    /**
+     * Must be called by a single thread, the same thread every time. Any expensive work of getting the characters
+     * of the chunk, like reading or decoding them, may be left to {@link Source#nextChunk(int)} of the returned
+     * {@link Source}, i.e. to the thread reading the chunk.
+     *
+     * @return a {@link Source} with the next chunk of data, or {@code null} if there are no more chunks.
+     * @throws IOException on reading error.
+     */
+    Source next() throws IOException;
+
+    /**
+     * @return how far into the data this chunker has come, in characters or bytes depending on what it splits.
+     */
+    long position();
+}
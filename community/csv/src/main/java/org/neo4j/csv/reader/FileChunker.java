@@ -0,0 +1,727 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipFile;
+
+import org.neo4j.csv.reader.Source.Chunk;
+
+import static java.nio.charset.CodingErrorAction.REPLACE;
+
+/**
+ * {@link Chunker} splitting files into chunks of whole lines without decoding them. The bytes of a chunk are
+ * decoded into characters by the thread reading the chunk, so that decoding scales with the number of threads
+ * reading chunks. Every chunk contains data from one file only.
+ * <p>
+ * How a file is split depends on what it contains:
+ * <ul>
+ * <li>Uncompressed files without {@link Configuration#multilineFields() multi-line fields} are split without
+ * being read: a split point is picked every {@link Configuration#bufferSize()} bytes and moved forward to the next
+ * newline. The bytes of each chunk are read by the thread reading the chunk.</li>
+ * <li>Other files are read sequentially, but only as bytes, and split at the last newline of every
+ * {@link Configuration#bufferSize()} bytes. If fields can span multiple lines, quotes are tracked the same way
+ * {@link BufferedCharSeeker} interprets them so that only newlines ending rows are picked.</li>
+ * <li>GZIP files are decompressed in parallel if they are block gzip files, see {@link BlockGzipInputStream}.
+ * Other GZIP files, and ZIP files, are decompressed by the splitting thread.</li>
+ * </ul>
+ * Splitting bytes requires newlines, quotes and delimiters to be encoded as single bytes which never occur inside
+ * other characters. {@link #canChunk(Charset, Configuration, char, File...)} tells whether or not that's the case.
+ * <p>
+ * A file is closed as soon as nothing more will be read from it: a sequentially read file when the end of it has
+ * been reached and a file read by the chunks themselves when the last of its chunks has been read. Whatever is
+ * still open when this chunker is {@link #close() closed} is closed then.
+ */
+public class FileChunker implements Chunker
+{
+    private static final byte EOL = '\n';
+    private static final byte EOL_2 = '\r';
+    private static final byte BACK_SLASH = '\\';
+    private static final int SEEK_WINDOW_SIZE = 4096;
+
+    private final File[] files;
+    private final Charset charset;
+    private final int chunkSize;
+    private final boolean multilineFields;
+    private final boolean legacyStyleQuoting;
+    private final byte quote;
+    private final byte delimiter;
+    private final int parallelism;
+    private final Set<Closeable> opened = ConcurrentHashMap.newKeySet();
+    private final Queue<byte[]> byteBuffers = new ConcurrentLinkedQueue<>();
+    private final Queue<char[]> charBuffers = new ConcurrentLinkedQueue<>();
+    private int fileCursor;
+    private Splitter current;
+    private volatile long position;
+
+    /**
+     * @param charset {@link Charset} of the files, unless overridden by a byte order mark.
+     * @param config {@link Configuration} for how to split the files.
+     * @param delimiter delimiter between fields, needed to recognize quoted fields.
+     * @param parallelism number of threads which may read chunks, also the number of threads
+     * decompressing block gzip files.
+     * @param files files to split, in order.
+     */
+    public FileChunker( Charset charset, Configuration config, char delimiter, int parallelism, File... files )
+    {
+        this.files = files;
+        this.charset = charset;
+        this.chunkSize = config.bufferSize();
+        this.multilineFields = config.multilineFields();
+        this.legacyStyleQuoting = config.legacyStyleQuoting();
+        this.quote = (byte) config.quotationCharacter();
+        this.delimiter = (byte) delimiter;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return whether or not the given files can be split by a {@link FileChunker} with the given settings.
+     * If not they have to be read as a stream of characters, f.ex. using {@link Readables#files(Charset, File...)}.
+     * @throws IOException on error reading the files.
+     */
+    public static boolean canChunk( Charset charset, Configuration config, char delimiter, File... files )
+            throws IOException
+    {
+        if ( !isAsciiCompatible( charset ) || config.quotationCharacter() >= 0x80 || delimiter >= 0x80 )
+        {
+            return false;
+        }
+        for ( File file : files )
+        {
+            Magic magic = Magic.of( file );
+            if ( magic.impliesEncoding() && magic != Magic.BOM_UTF_8 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiCompatible( Charset charset )
+    {
+        if ( charset.equals( StandardCharsets.UTF_8 ) )
+        {
+            return true;
+        }
+        if ( !charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1 )
+        {
+            return false;
+        }
+        byte[] ascii = new byte[0x80];
+        for ( int i = 0; i < ascii.length; i++ )
+        {
+            ascii[i] = (byte) i;
+        }
+        return Arrays.equals( new String( ascii, StandardCharsets.US_ASCII ).getBytes( charset ), ascii );
+    }
+
+    @Override
+    public Source next() throws IOException
+    {
+        while ( true )
+        {
+            if ( current == null )
+            {
+                if ( fileCursor == files.length )
+                {
+                    return null;
+                }
+                current = open( files[fileCursor++] );
+            }
+
+            Source next = current.next();
+            if ( next != null )
+            {
+                return next;
+            }
+            current = null;
+        }
+    }
+
+    private Splitter open( File file ) throws IOException
+    {
+        Magic magic = Magic.of( file );
+        String sourceDescription = file.getPath();
+        if ( magic == Magic.ZIP )
+        {
+            ZipFile zipFile = opened( new ZipFile( file ) );
+            InputStream in = zipFile.getInputStream( Readables.FromFile.getSingleSuitableEntry( zipFile ) );
+            return new StreamSplitter( in, zipFile, sourceDescription, charset );
+        }
+        if ( magic == Magic.GZIP )
+        {
+            InputStream in = BlockGzipInputStream.isBlockGzip( file )
+                    ? new BlockGzipInputStream( file, parallelism )
+                    : new GZIPInputStream( new FileInputStream( file ), SEEK_WINDOW_SIZE * 16 );
+            return new StreamSplitter( opened( in ), in, sourceDescription, charset );
+        }
+
+        // Uncompressed, possibly with a byte order mark, which canChunk only accepts if it's UTF-8
+        Charset usedCharset = magic.impliesEncoding() ? magic.encoding() : charset;
+        if ( multilineFields )
+        {
+            InputStream in = opened( new FileInputStream( file ) );
+            skipFully( in, magic.length() );
+            return new StreamSplitter( in, in, sourceDescription, usedCharset );
+        }
+        FileChannel fileChannel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+        SharedChannel channel = opened( new SharedChannel( fileChannel ) );
+        return new SeekingSplitter( channel, magic.length(), sourceDescription, usedCharset );
+    }
+
+    private <T extends Closeable> T opened( T closeable )
+    {
+        opened.add( closeable );
+        return closeable;
+    }
+
+    private void closeOpened( Closeable closeable ) throws IOException
+    {
+        if ( opened.remove( closeable ) )
+        {
+            closeable.close();
+        }
+    }
+
+    private static void skipFully( InputStream in, long bytes ) throws IOException
+    {
+        long left = bytes;
+        while ( left > 0 )
+        {
+            long skipped = in.skip( left );
+            if ( skipped <= 0 )
+            {
+                throw new EOFException();
+            }
+            left -= skipped;
+        }
+    }
+
+    @Override
+    public long position()
+    {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        // Whatever is still open, f.ex. files with chunks which haven't been read
+        IOException exception = null;
+        for ( Closeable closeable : opened )
+        {
+            try
+            {
+                closeable.close();
+            }
+            catch ( IOException e )
+            {
+                if ( exception == null )
+                {
+                    exception = e;
+                }
+                else
+                {
+                    exception.addSuppressed( e );
+                }
+            }
+        }
+        opened.clear();
+        if ( exception != null )
+        {
+            throw exception;
+        }
+    }
+
+    private byte[] byteBuffer( int size )
+    {
+        byte[] buffer = byteBuffers.poll();
+        return buffer != null && buffer.length >= size ? buffer : new byte[Math.max( size, chunkSize )];
+    }
+
+    private char[] charBuffer( int size )
+    {
+        char[] buffer = charBuffers.poll();
+        return buffer != null && buffer.length >= size ? buffer : new char[Math.max( size, chunkSize )];
+    }
+
+    private interface Splitter
+    {
+        /**
+         * @return {@link Source} of the next chunk of this file, or {@code null} if at the end of it.
+         */
+        Source next() throws IOException;
+    }
+
+    /**
+     * Picks split points by looking at the bytes around them only, reading nothing else.
+     */
+    private class SeekingSplitter implements Splitter
+    {
+        private final SharedChannel channel;
+        private final String sourceDescription;
+        private final Charset charset;
+        private final long size;
+        private final ByteBuffer window = ByteBuffer.allocate( SEEK_WINDOW_SIZE );
+        private long start;
+
+        SeekingSplitter( SharedChannel channel, long start, String sourceDescription, Charset charset )
+                throws IOException
+        {
+            this.channel = channel;
+            this.start = start;
+            this.sourceDescription = sourceDescription;
+            this.charset = charset;
+            this.size = channel.channel.size();
+        }
+
+        @Override
+        public Source next() throws IOException
+        {
+            if ( start >= size )
+            {
+                // The chunks of this file that haven't been read yet keep the channel open
+                channel.release();
+                return null;
+            }
+
+            long chunkStart = start;
+            long end = Math.min( chunkStart + chunkSize, size );
+            if ( end < size )
+            {
+                end = offsetOfNextNewline( end - 1 ) + 1;
+            }
+            int length = Math.toIntExact( end - chunkStart );
+            start = end;
+            position += length;
+            channel.retain();
+            return new DecodingSource( sourceDescription, charset )
+            {
+                @Override
+                protected ByteBuffer bytes() throws IOException
+                {
+                    ByteBuffer bytes = ByteBuffer.wrap( byteBuffer( length ), 0, length );
+                    while ( bytes.hasRemaining() )
+                    {
+                        if ( channel.channel.read( bytes, chunkStart + bytes.position() ) == -1 )
+                        {
+                            throw new EOFException( "Unexpected end of " + sourceDescription );
+                        }
+                    }
+                    bytes.flip();
+                    return bytes;
+                }
+
+                @Override
+                protected void release() throws IOException
+                {
+                    channel.release();
+                }
+            };
+        }
+
+        private long offsetOfNextNewline( long from ) throws IOException
+        {
+            long offset = from;
+            while ( offset < size )
+            {
+                window.clear();
+                int read = channel.channel.read( window, offset );
+                if ( read == -1 )
+                {
+                    break;
+                }
+                for ( int i = 0; i < read; i++ )
+                {
+                    if ( window.get( i ) == EOL )
+                    {
+                        return offset + i;
+                    }
+                }
+                offset += read;
+            }
+            // There's no newline after this point, so the rest of the file is one line
+            return size - 1;
+        }
+    }
+
+    /**
+     * Reads bytes sequentially and picks split points among them. Chunks get copies of their bytes, so the stream
+     * is closed as soon as the end of it has been reached.
+     */
+    private class StreamSplitter implements Splitter
+    {
+        private final InputStream in;
+        private final Closeable resource;
+        private final String sourceDescription;
+        private final Charset charset;
+        private final RowBoundaryScanner scanner = multilineFields ? new RowBoundaryScanner() : null;
+        private byte[] backBuffer = new byte[0];
+        private int backBufferLength;
+        private boolean eof;
+
+        /**
+         * @param in stream to read bytes from.
+         * @param resource what to close when the end of {@code in} has been reached, e.g. {@code in} itself.
+         * @param sourceDescription description of the source of the bytes.
+         * @param charset {@link Charset} to decode the bytes with.
+         */
+        StreamSplitter( InputStream in, Closeable resource, String sourceDescription, Charset charset )
+        {
+            this.in = in;
+            this.resource = resource;
+            this.sourceDescription = sourceDescription;
+            this.charset = charset;
+        }
+
+        @Override
+        public Source next() throws IOException
+        {
+            if ( eof && backBufferLength == 0 )
+            {
+                return null;
+            }
+
+            byte[] bytes = byteBuffer( chunkSize );
+            System.arraycopy( backBuffer, 0, bytes, 0, backBufferLength );
+            int length = backBufferLength;
+            while ( length < chunkSize && !eof )
+            {
+                int read = in.read( bytes, length, chunkSize - length );
+                if ( read == -1 )
+                {
+                    eof = true;
+                    closeOpened( resource );
+                }
+                else
+                {
+                    length += read;
+                }
+            }
+
+            int end = length;
+            if ( !eof )
+            {
+                end = scanner != null ? scanner.scan( bytes, backBufferLength, length )
+                                      : offsetOfLastNewline( bytes, backBufferLength, length ) + 1;
+                if ( end <= 0 )
+                {
+                    throw new IllegalStateException( "Weird input data, no " +
+                            (scanner != null ? "end of row" : "newline character") + " in the whole buffer " +
+                            chunkSize + " in " + sourceDescription + ", not supported a.t.m." );
+                }
+            }
+
+            // Keep what's after the split point for the next chunk
+            backBufferLength = length - end;
+            if ( backBufferLength > backBuffer.length )
+            {
+                backBuffer = new byte[Math.max( backBufferLength, backBuffer.length * 2 )];
+            }
+            System.arraycopy( bytes, end, backBuffer, 0, backBufferLength );
+
+            if ( end == 0 )
+            {
+                byteBuffers.offer( bytes );
+                return null;
+            }
+            position += end;
+            int chunkLength = end;
+            return new DecodingSource( sourceDescription, charset )
+            {
+                @Override
+                protected ByteBuffer bytes()
+                {
+                    return ByteBuffer.wrap( bytes, 0, chunkLength );
+                }
+            };
+        }
+
+        private int offsetOfLastNewline( byte[] bytes, int from, int to )
+        {
+            for ( int i = to - 1; i >= from; i-- )
+            {
+                if ( bytes[i] == EOL )
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Keeps track of whether or not bytes are inside a quoted field, interpreting quotes like
+     * {@link BufferedCharSeeker} does, to find the newlines which end rows. Scanning continues where the previous
+     * {@link #scan(byte[], int, int) scan} ended.
+     */
+    private class RowBoundaryScanner
+    {
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        private static final int QUOTE_IN_QUOTED = 3;
+        private static final int ESCAPE_IN_QUOTED = 4;
+
+        private int state = FIELD_START;
+
+        /**
+         * @return offset right after the last newline ending a row among the scanned bytes, or {@code -1} if none.
+         */
+        int scan( byte[] bytes, int from, int to )
+        {
+            int boundary = -1;
+            for ( int i = from; i < to; i++ )
+            {
+                byte b = bytes[i];
+                if ( state == QUOTE_IN_QUOTED )
+                {
+                    if ( b == quote )
+                    {   // A double quote, i.e. an escaped quote inside the quoted field
+                        state = QUOTED;
+                        continue;
+                    }
+                    // The previous quote ended the quoted field, see what comes after it below
+                    state = UNQUOTED;
+                }
+                else if ( state == ESCAPE_IN_QUOTED )
+                {   // Whatever was escaped, the field is still quoted
+                    state = QUOTED;
+                    continue;
+                }
+
+                if ( state == QUOTED )
+                {
+                    if ( b == quote )
+                    {
+                        state = QUOTE_IN_QUOTED;
+                    }
+                    else if ( b == BACK_SLASH && legacyStyleQuoting )
+                    {
+                        state = ESCAPE_IN_QUOTED;
+                    }
+                }
+                else if ( b == EOL )
+                {
+                    state = FIELD_START;
+                    boundary = i + 1;
+                }
+                else if ( b == EOL_2 || b == delimiter )
+                {
+                    state = FIELD_START;
+                }
+                else if ( b == quote && state == FIELD_START )
+                {
+                    state = QUOTED;
+                }
+                else
+                {
+                    state = UNQUOTED;
+                }
+            }
+            return boundary;
+        }
+    }
+
+    /**
+     * {@link Source} of a single chunk, decoding its bytes in {@link #nextChunk(int)}, i.e. in the thread
+     * reading the chunk.
+     */
+    private abstract class DecodingSource implements Source
+    {
+        private final String sourceDescription;
+        private final Charset charset;
+        private boolean returned;
+        private boolean released;
+
+        DecodingSource( String sourceDescription, Charset charset )
+        {
+            this.sourceDescription = sourceDescription;
+            this.charset = charset;
+        }
+
+        protected abstract ByteBuffer bytes() throws IOException;
+
+        /**
+         * Called once, when {@link #bytes()} are no longer needed, i.e. after they have been read or when this
+         * source is closed without having been read.
+         */
+        protected void release() throws IOException
+        {   // Nothing to release by default
+        }
+
+        private void releaseOnce() throws IOException
+        {
+            if ( !released )
+            {
+                released = true;
+                release();
+            }
+        }
+
+        @Override
+        public Chunk nextChunk( int seekStartPos ) throws IOException
+        {
+            if ( returned )
+            {
+                return EMPTY_CHUNK;
+            }
+            returned = true;
+
+            ByteBuffer bytes;
+            try
+            {
+                bytes = bytes();
+            }
+            finally
+            {
+                releaseOnce();
+            }
+            // Charsets accepted by canChunk never decode into more characters than there are bytes
+            char[] data = charBuffer( bytes.remaining() );
+            CharBuffer chars = CharBuffer.wrap( data );
+            CharsetDecoder decoder = charset.newDecoder().onMalformedInput( REPLACE ).onUnmappableCharacter( REPLACE );
+            CoderResult result = decoder.decode( bytes, chars, true );
+            if ( !result.isUnderflow() || !decoder.flush( chars ).isUnderflow() )
+            {
+                throw new IOException( "Couldn't decode chunk of " + sourceDescription + " using " + charset );
+            }
+            byteBuffers.offer( bytes.array() );
+            return new DecodedChunk( data, chars.position(), sourceDescription );
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            releaseOnce();
+        }
+    }
+
+    /**
+     * {@link FileChannel} shared by the chunks of a file, closed when the last of them has been read.
+     * The {@link SeekingSplitter} holds a reference of its own until it has split the whole file.
+     */
+    private class SharedChannel implements Closeable
+    {
+        private final FileChannel channel;
+        private final AtomicInteger references = new AtomicInteger( 1 );
+
+        SharedChannel( FileChannel channel )
+        {
+            this.channel = channel;
+        }
+
+        void retain()
+        {
+            references.incrementAndGet();
+        }
+
+        void release() throws IOException
+        {
+            if ( references.decrementAndGet() == 0 )
+            {
+                closeOpened( this );
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    private class DecodedChunk implements Chunk
+    {
+        private final char[] data;
+        private final int length;
+        private final String sourceDescription;
+
+        DecodedChunk( char[] data, int length, String sourceDescription )
+        {
+            this.data = data;
+            this.length = length;
+            this.sourceDescription = sourceDescription;
+        }
+
+        @Override
+        public char[] data()
+        {
+            return data;
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public int maxFieldSize()
+        {
+            return data.length;
+        }
+
+        @Override
+        public String sourceDescription()
+        {
+            return sourceDescription;
+        }
+
+        @Override
+        public int startPosition()
+        {
+            return 0;
+        }
+
+        @Override
+        public int backPosition()
+        {
+            return 0;
+        }
+
+        @Override
+        public void close()
+        {
+            // Give the buffer back so that it can be reused for decoding another chunk
+            charBuffers.offer( data );
+        }
+    }
+}
@@ -19,20 +19,21 @@
  */
 package org.neo4j.csv.reader;
 
-import java.io.Closeable;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.neo4j.csv.reader.Source.Chunk;
 
+import static org.neo4j.csv.reader.Source.singleChunk;
+
 /**
  * In a scenario where there's one reader reading chunks of data, handing those chunks to one or
  * more processors (parsers) of that data, this class comes in handy. This pattern allows for
  * multiple {@link BufferedCharSeeker seeker instances}, each operating over one chunk, not transitioning itself
  * into the next.
  */
-public class ProcessingSource implements Closeable
+public class ProcessingSource implements Chunker
 {
     // Marker for a buffer slot being unallocated
     private static final char[] UNALLOCATED = new char[0];
@@ -111,6 +112,13 @@ public class ProcessingSource implements Closeable
         return new ProcessingChunk( buffer, offset, reader.sourceDescription() );
     }
 
+    @Override
+    public Source next() throws IOException
+    {
+        Chunk chunk = nextChunk();
+        return chunk.length() > 0 ? singleChunk( chunk ) : null;
+    }
+
     private char[] backBuffer( int length )
     {
         if ( length > backBuffer.length )
@@ -145,6 +153,7 @@ public class ProcessingSource implements Closeable
         reader.close();
     }
 
+    @Override
     public long position()
     {
         return position;
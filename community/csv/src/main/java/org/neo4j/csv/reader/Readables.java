@@ -170,7 +170,7 @@ public class Readables
         };
     }
 
-    private static class FromFile implements IOFunction<File, Reader>
+    static class FromFile implements IOFunction<File, Reader>
     {
         private final Charset charset;
 
@@ -233,7 +233,7 @@ public class Readables
             }
         }
 
-        private ZipEntry getSingleSuitableEntry( ZipFile zipFile ) throws IOException
+        static ZipEntry getSingleSuitableEntry( ZipFile zipFile ) throws IOException
         {
             List<String> unsuitableEntries = new ArrayList<>();
             Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.neo4j.csv.reader.Source.Chunk;
+import org.neo4j.test.rule.TestDirectory;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileChunkerTest
+{
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory();
+
+    @Test
+    public void shouldSplitUncompressedFileAtNewlines() throws Exception
+    {
+        // GIVEN
+        String text = "1,abc\n2,defghijklmnopqrstuvwxyz\n3,a\n4,abcdefg\n5,ab\n6";
+        File file = write( "data.csv", text.getBytes( UTF_8 ) );
+
+        // WHEN
+        List<String> chunks = chunks( config( 10, false, false ), file );
+
+        // THEN
+        assertEquals( text, String.join( "", chunks ) );
+        assertTrue( chunks.size() > 1 );
+        for ( int i = 0; i < chunks.size() - 1; i++ )
+        {
+            assertTrue( chunks.get( i ).endsWith( "\n" ) );
+        }
+    }
+
+    @Test
+    public void shouldNotMixFilesInChunks() throws Exception
+    {
+        // GIVEN
+        File header = write( "header.csv", "id,name\n".getBytes( UTF_8 ) );
+        File data = write( "data.csv", "1,abc\n2,def\n3,ghi\n".getBytes( UTF_8 ) );
+
+        // WHEN
+        try ( FileChunker chunker = new FileChunker( UTF_8, config( 1024, false, false ), ',', 2, header, data ) )
+        {
+            // THEN
+            Chunk first = chunker.next().nextChunk( -1 );
+            assertEquals( "id,name\n", string( first ) );
+            assertEquals( header.getPath(), first.sourceDescription() );
+            Chunk second = chunker.next().nextChunk( -1 );
+            assertEquals( "1,abc\n2,def\n3,ghi\n", string( second ) );
+            assertEquals( data.getPath(), second.sourceDescription() );
+            assertNull( chunker.next() );
+        }
+    }
+
+    @Test
+    public void shouldReadChunksOfFilesAfterAllFilesHaveBeenSplit() throws Exception
+    {
+        // GIVEN
+        String firstText = rows( 10 );
+        String secondText = rows( 20 );
+        File first = write( "first.csv", firstText.getBytes( UTF_8 ) );
+        File second = write( "second.csv", secondText.getBytes( UTF_8 ) );
+
+        try ( FileChunker chunker = new FileChunker( UTF_8, config( 40, false, false ), ',', 2, first, second ) )
+        {
+            List<Source> sources = new ArrayList<>();
+            Source source;
+            while ( (source = chunker.next()) != null )
+            {
+                sources.add( source );
+            }
+
+            // WHEN reading the chunks backwards, i.e. the ones of the first file last
+            StringBuilder text = new StringBuilder();
+            for ( int i = sources.size() - 1; i >= 0; i-- )
+            {
+                Chunk chunk = sources.get( i ).nextChunk( -1 );
+                text.insert( 0, string( chunk ) );
+                chunk.close();
+                sources.get( i ).close();
+            }
+
+            // THEN
+            assertTrue( sources.size() > 2 );
+            assertEquals( firstText + secondText, text.toString() );
+        }
+    }
+
+    @Test
+    public void shouldNotSplitInsideQuotedMultilineFields() throws Exception
+    {
+        // GIVEN
+        StringBuilder text = new StringBuilder();
+        Set<Integer> rowEnds = new HashSet<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            text.append( i ).append( ",\"multi\nline, with \"\"quotes\"\"\n\",x\n" );
+            rowEnds.add( text.length() );
+        }
+        File file = write( "data.csv", text.toString().getBytes( UTF_8 ) );
+
+        // WHEN
+        List<String> chunks = chunks( config( 100, true, false ), file );
+
+        // THEN
+        assertEquals( text.toString(), String.join( "", chunks ) );
+        assertTrue( chunks.size() > 1 );
+        int end = 0;
+        for ( String chunk : chunks )
+        {
+            end += chunk.length();
+            assertTrue( "Chunk ending at " + end + " splits a row", rowEnds.contains( end ) );
+        }
+    }
+
+    @Test
+    public void shouldRecognizeLegacyEscapedQuotesInMultilineFields() throws Exception
+    {
+        // GIVEN
+        StringBuilder text = new StringBuilder();
+        Set<Integer> rowEnds = new HashSet<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            text.append( i ).append( ",\"escaped \\\"\nquote\\\\\",x\n" );
+            rowEnds.add( text.length() );
+        }
+        File file = write( "data.csv", text.toString().getBytes( UTF_8 ) );
+
+        // WHEN
+        List<String> chunks = chunks( config( 64, true, true ), file );
+
+        // THEN
+        assertEquals( text.toString(), String.join( "", chunks ) );
+        int end = 0;
+        for ( String chunk : chunks )
+        {
+            end += chunk.length();
+            assertTrue( "Chunk ending at " + end + " splits a row", rowEnds.contains( end ) );
+        }
+    }
+
+    @Test
+    public void shouldReadGzipFile() throws Exception
+    {
+        // GIVEN
+        String text = rows( 10_000 );
+        File file = directory.file( "data.csv.gz" );
+        try ( OutputStream out = new GZIPOutputStream( new FileOutputStream( file ) ) )
+        {
+            out.write( text.getBytes( UTF_8 ) );
+        }
+
+        // WHEN
+        List<String> chunks = chunks( config( 4096, false, false ), file );
+
+        // THEN
+        assertEquals( text, String.join( "", chunks ) );
+    }
+
+    @Test
+    public void shouldInflateBlockGzipFile() throws Exception
+    {
+        // GIVEN a file big enough to be inflated by multiple tasks
+        String text = rows( 200_000 );
+        File file = writeBlockGzip( text.getBytes( UTF_8 ), 60_000 );
+        assertTrue( BlockGzipInputStream.isBlockGzip( file ) );
+
+        // WHEN
+        List<String> chunks = chunks( config( 100_000, false, false ), file );
+
+        // THEN
+        assertEquals( text, String.join( "", chunks ) );
+    }
+
+    @Test
+    public void shouldSkipUtf8ByteOrderMark() throws Exception
+    {
+        // GIVEN
+        File file = write( "data.csv", bytes( Magic.BOM_UTF_8.bytes(), "1,åäö\n2,abc\n".getBytes( UTF_8 ) ) );
+
+        // WHEN
+        List<String> chunks = chunks( config( 1024, false, false ), file );
+
+        // THEN
+        assertEquals( "1,åäö\n2,abc\n", String.join( "", chunks ) );
+    }
+
+    @Test
+    public void shouldNotChunkCharsetsWithMultiByteNewlines() throws Exception
+    {
+        // GIVEN
+        File utf8 = write( "utf8.csv", "1,abc\n".getBytes( UTF_8 ) );
+        File utf16 = write( "utf16.csv", "1,abc\n".getBytes( UTF_16 ) );
+        Configuration config = config( 1024, false, false );
+
+        // WHEN/THEN
+        assertTrue( FileChunker.canChunk( UTF_8, config, ',', utf8 ) );
+        assertTrue( FileChunker.canChunk( Charset.forName( "ISO-8859-1" ), config, ',', utf8 ) );
+        assertFalse( FileChunker.canChunk( UTF_16, config, ',', utf8 ) );
+        assertFalse( FileChunker.canChunk( UTF_8, config, ',', utf8, utf16 ) );
+    }
+
+    private List<String> chunks( Configuration config, File... files ) throws IOException
+    {
+        List<String> chunks = new ArrayList<>();
+        try ( FileChunker chunker = new FileChunker( UTF_8, config, ',', 4, files ) )
+        {
+            Source source;
+            while ( (source = chunker.next()) != null )
+            {
+                Chunk chunk = source.nextChunk( -1 );
+                chunks.add( string( chunk ) );
+                chunk.close();
+            }
+        }
+        return chunks;
+    }
+
+    private static String string( Chunk chunk )
+    {
+        return new String( chunk.data(), chunk.startPosition(), chunk.length() );
+    }
+
+    private static String rows( int count )
+    {
+        Random random = new Random( count );
+        StringBuilder text = new StringBuilder();
+        for ( int i = 0; i < count; i++ )
+        {
+            text.append( i ).append( ',' );
+            for ( int j = 0; j < 10; j++ )
+            {
+                text.append( (char) ('a' + random.nextInt( 26 )) );
+            }
+            text.append( '\n' );
+        }
+        return text.toString();
+    }
+
+    private static byte[] bytes( byte[] first, byte[] second )
+    {
+        byte[] bytes = new byte[first.length + second.length];
+        System.arraycopy( first, 0, bytes, 0, first.length );
+        System.arraycopy( second, 0, bytes, first.length, second.length );
+        return bytes;
+    }
+
+    private File write( String name, byte[] data ) throws IOException
+    {
+        File file = directory.file( name );
+        try ( OutputStream out = new FileOutputStream( file ) )
+        {
+            out.write( data );
+        }
+        return file;
+    }
+
+    private File writeBlockGzip( byte[] data, int bytesPerBlock ) throws IOException
+    {
+        File file = directory.file( "data.csv.bgz" );
+        try ( OutputStream out = new FileOutputStream( file ) )
+        {
+            for ( int offset = 0; offset < data.length; offset += bytesPerBlock )
+            {
+                writeBlock( out, data, offset, Math.min( bytesPerBlock, data.length - offset ) );
+            }
+            // Block gzip files end with an empty block
+            writeBlock( out, data, 0, 0 );
+        }
+        return file;
+    }
+
+    private static void writeBlock( OutputStream out, byte[] data, int offset, int length ) throws IOException
+    {
+        Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+        deflater.setInput( data, offset, length );
+        deflater.finish();
+        byte[] compressed = new byte[length + 1024];
+        int compressedLength = deflater.deflate( compressed );
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update( data, offset, length );
+
+        ByteBuffer block = ByteBuffer.allocate( 18 + compressedLength + 8 ).order( LITTLE_ENDIAN );
+        block.put( (byte) 0x1f ).put( (byte) 0x8b ).put( (byte) 8 ).put( (byte) 4 ); // magic, deflate, FEXTRA
+        block.putInt( 0 ).put( (byte) 0 ).put( (byte) 0xff );                         // MTIME, XFL, OS
+        block.putShort( (short) 6 ).put( (byte) 'B' ).put( (byte) 'C' ).putShort( (short) 2 );
+        block.putShort( (short) (block.capacity() - 1) );                               // block size - 1
+        block.put( compressed, 0, compressedLength );
+        block.putInt( (int) crc.getValue() ).putInt( length );
+        out.write( block.array() );
+    }
+
+    private static Configuration config( int bufferSize, boolean multilineFields, boolean legacyStyleQuoting )
+    {
+        return new Configuration.Overridden( Configuration.DEFAULT )
+        {
+            @Override
+            public int bufferSize()
+            {
+                return bufferSize;
+            }
+
+            @Override
+            public boolean multilineFields()
+            {
+                return multilineFields;
+            }
+
+            @Override
+            public boolean legacyStyleQuoting()
+            {
+                return legacyStyleQuoting;
+            }
+        };
+    }
+}
@@ -69,6 +69,7 @@ class CsvImporter implements Importer
     private final boolean ignoreBadRelationships;
     private final boolean ignoreDuplicateNodes;
     private final boolean ignoreExtraColumns;
+    private final boolean resume;
 
     CsvImporter( Args args, Config databaseConfig, OutsideWorld outsideWorld ) throws IncorrectUsage
     {
@@ -81,6 +82,7 @@ class CsvImporter implements Importer
         ignoreExtraColumns = args.getBoolean( "ignore-extra-columns", false );
         ignoreDuplicateNodes = args.getBoolean( "ignore-duplicate-nodes", false );
         ignoreBadRelationships = args.getBoolean( "ignore-missing-nodes", false );
+        resume = args.getBoolean( "resume", false );
         try
         {
             validateInputFiles( nodesFiles, relationshipsFiles );
@@ -104,12 +106,13 @@ class CsvImporter implements Importer
         File logsDir = databaseConfig.get( GraphDatabaseSettings.logs_directory );
         File reportFile = new File( reportFileName );
 
-        OutputStream badOutput = new BufferedOutputStream( fs.openAsOutputStream( reportFile, false ) );
+        OutputStream badOutput = new BufferedOutputStream( fs.openAsOutputStream( reportFile, resume ) );
         Collector badCollector = badCollector( badOutput, isIgnoringSomething() ? BadCollector.UNLIMITED_TOLERANCE : 0,
                 collect( ignoreBadRelationships, ignoreDuplicateNodes, ignoreExtraColumns ) );
 
         Configuration configuration = new WrappedBatchImporterConfigurationForNeo4jAdmin( importConfiguration(
-                null, false, databaseConfig, storeDir ) );
+                null, false, databaseConfig, null, storeDir, Configuration.DEFAULT.allowCacheAllocationOnHeap(), null,
+                false, false, resume ) );
         CsvInput input = new CsvInput(
                 nodeData( inputEncoding, nodesFiles ), defaultFormatNodeFileHeader(),
                 relationshipData( inputEncoding, relationshipsFiles ), defaultFormatRelationshipFileHeader(),
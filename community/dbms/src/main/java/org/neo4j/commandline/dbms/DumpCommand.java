@@ -36,6 +36,7 @@ import org.neo4j.dbms.DatabaseManagementSystemSettings;
 import org.neo4j.dbms.archive.Dumper;
 import org.neo4j.kernel.StoreLockException;
 import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.pagecache.PageCacheWarmer;
 import org.neo4j.kernel.impl.util.Validators;
 import org.neo4j.kernel.internal.locker.StoreLocker;
 
@@ -115,7 +116,8 @@ public class DumpCommand implements AdminCommand
     {
         try
         {
-            dumper.dump( databaseDirectory, archive, this::isStoreLock );
+            dumper.dump( databaseDirectory, archive,
+                    path -> isStoreLock( path ) || isPageCacheProfiles( databaseDirectory, path ) );
         }
         catch ( FileAlreadyExistsException e )
         {
@@ -140,6 +142,11 @@ public class DumpCommand implements AdminCommand
         return Objects.equals( path.getFileName().toString(), StoreLocker.STORE_LOCK_FILENAME );
     }
 
+    private boolean isPageCacheProfiles( Path databaseDirectory, Path path )
+    {
+        return path.equals( databaseDirectory.resolve( PageCacheWarmer.PROFILES_DIRECTORY ) );
+    }
+
     private void wrapIOException( IOException e ) throws CommandFailed
     {
         throw new CommandFailed(
@@ -86,10 +86,11 @@ public class ImportCommand implements AdminCommand
                             "line must contain the header. Multiple data sources like these can be " +
                             "specified in one import, where each data source has its own header. " +
                             "Note that file groups must be enclosed in quotation marks." ) )
-            .withArgument( new OptionalNamedArg( "id-type", new String[]{"STRING", "INTEGER", "ACTUAL"},
+            .withArgument( new OptionalNamedArg( "id-type", new String[]{"STRING", "HASHED_STRING", "INTEGER", "ACTUAL"},
                     "STRING", "Each node must provide a unique id. This is used to find the correct " +
                     "nodes when creating relationships. Possible values are\n" +
                     "  STRING: arbitrary strings for identifying nodes,\n" +
+                    "  HASHED_STRING: like STRING, faster but using more memory,\n" +
                     "  INTEGER: arbitrary integer values for identifying nodes,\n" +
                     "  ACTUAL: (advanced) actual node ids.\n" +
                     "For more information on id handling, please see the Neo4j Manual: " +
@@ -126,7 +127,10 @@ public class ImportCommand implements AdminCommand
                     "Maximum memory that neo4j-admin can use for various data structures and caching " +
                             "to improve performance. " +
                             "Values can be plain numbers, like 10000000 or e.g. 20G for 20 gigabyte, or even e.g. 70%" +
-                            "." ) );
+                            "." ) )
+            .withArgument( new OptionalBooleanArg( "resume", false,
+                    "If a failed import into the same database should be resumed from where it had gotten. " +
+                            "The same input and options as for the failed import must be given." ) );
 
     private static final Arguments allArguments = new Arguments()
             .withDatabase()
@@ -154,10 +158,11 @@ public class ImportCommand implements AdminCommand
                             "line must contain the header. Multiple data sources like these can be " +
                             "specified in one import, where each data source has its own header. " +
                             "Note that file groups must be enclosed in quotation marks." ) )
-            .withArgument( new OptionalNamedArg( "id-type", new String[]{"STRING", "INTEGER", "ACTUAL"},
+            .withArgument( new OptionalNamedArg( "id-type", new String[]{"STRING", "HASHED_STRING", "INTEGER", "ACTUAL"},
                     "STRING", "Each node must provide a unique id. This is used to find the correct " +
                     "nodes when creating relationships. Possible values are:\n" +
                     "  STRING: arbitrary strings for identifying nodes,\n" +
+                    "  HASHED_STRING: like STRING, faster but using more memory,\n" +
                     "  INTEGER: arbitrary integer values for identifying nodes,\n" +
                     "  ACTUAL: (advanced) actual node ids.\n" +
                     "For more information on id handling, please see the Neo4j Manual: " +
@@ -193,7 +198,10 @@ public class ImportCommand implements AdminCommand
                     "Maximum memory that neo4j-admin can use for various data structures and caching " +
                             "to improve performance. " +
                             "Values can be plain numbers, like 10000000 or e.g. 20G for 20 gigabyte, or even e.g. 70%" +
-                            "." ) );
+                            "." ) )
+            .withArgument( new OptionalBooleanArg( "resume", false,
+                    "If a failed import into the same database should be resumed from where it had gotten. " +
+                            "The same input and options as for the failed import must be given." ) );
     public static Arguments databaseArguments()
     {
         return databaseArguments;
@@ -233,11 +241,13 @@ public class ImportCommand implements AdminCommand
         String mode;
         Optional<Path> additionalConfigFile;
         String database;
+        boolean resume;
 
         try
         {
             mode = allArguments.parse( args ).get("mode" );
             database = allArguments.get( "database" );
+            resume = allArguments.getBoolean( "resume" );
             additionalConfigFile = allArguments.getOptionalPath( "additional-config" );
         }
         catch ( IllegalArgumentException e )
@@ -249,8 +259,11 @@ public class ImportCommand implements AdminCommand
         {
             Config config =
                     loadNeo4jConfig( homeDir, configDir, database, loadAdditionalConfig( additionalConfigFile ) );
-            Validators.CONTAINS_NO_EXISTING_DATABASE
-                    .validate( config.get( DatabaseManagementSystemSettings.database_path ) );
+            if ( !resume )
+            {
+                Validators.CONTAINS_NO_EXISTING_DATABASE
+                        .validate( config.get( DatabaseManagementSystemSettings.database_path ) );
+            }
 
             Importer importer = importerFactory.getImporterForMode( mode, Args.parse( args ), config, outsideWorld );
             importer.doImport();
@@ -74,4 +74,10 @@ public class WrappedBatchImporterConfigurationForNeo4jAdmin implements Configura
     {
         return defaults.sequentialBackgroundFlushing();
     }
+
+    @Override
+    public boolean resumeImport()
+    {
+        return defaults.resumeImport();
+    }
 }
@@ -203,7 +203,7 @@ public class ImportCommandTest
                             "                          [--report-file=<filename>]%n" +
                             "                          [--nodes[:Label1:Label2]=<\"file1,file2,...\">]%n" +
                             "                          [--relationships[:RELATIONSHIP_TYPE]=<\"file1,file2,...\">]%n" +
-                            "                          [--id-type=<STRING|INTEGER|ACTUAL>]%n" +
+                            "                          [--id-type=<STRING|HASHED_STRING|INTEGER|ACTUAL>]%n" +
                             "                          [--input-encoding=<character-set>]%n" +
                             "                          [--ignore-extra-columns[=<true|false>]]%n" +
                             "                          [--ignore-duplicate-nodes[=<true|false>]]%n" +
@@ -213,6 +213,7 @@ public class ImportCommandTest
                             "                          [--array-delimiter=<array-delimiter-character>]%n" +
                             "                          [--quote=<quotation-character>]%n" +
                             "                          [--max-memory=<max-memory-that-importer-can-use>]%n" +
+                            "                          [--resume[=<true|false>]]%n" +
                             "usage: neo4j-admin import --mode=database [--database=<name>]%n" +
                             "                          [--additional-config=<config-file-path>]%n" +
                             "                          [--from=<source-directory>]%n" +
@@ -252,10 +253,11 @@ public class ImportCommandTest
                             "      contain the header. Multiple data sources like these can be specified in%n" +
                             "      one import, where each data source has its own header. Note that file%n" +
                             "      groups must be enclosed in quotation marks. [default:]%n" +
-                            "  --id-type=<STRING|INTEGER|ACTUAL>%n" +
+                            "  --id-type=<STRING|HASHED_STRING|INTEGER|ACTUAL>%n" +
                             "      Each node must provide a unique id. This is used to find the correct nodes%n" +
                             "      when creating relationships. Possible values are:%n" +
                             "        STRING: arbitrary strings for identifying nodes,%n" +
+                            "        HASHED_STRING: like STRING, faster but using more memory,%n" +
                             "        INTEGER: arbitrary integer values for identifying nodes,%n" +
                             "        ACTUAL: (advanced) actual node ids.%n" +
                             "      For more information on id handling, please see the Neo4j Manual:%n" +
@@ -286,7 +288,11 @@ public class ImportCommandTest
                             "  --max-memory=<max-memory-that-importer-can-use>%n" +
                             "      Maximum memory that neo4j-admin can use for various data structures and%n" +
                             "      caching to improve performance. Values can be plain numbers, like 10000000%n" +
-                            "      or e.g. 20G for 20 gigabyte, or even e.g. 70%%. [default:90%%]%n"),
+                            "      or e.g. 20G for 20 gigabyte, or even e.g. 70%%. [default:90%%]%n" +
+                            "  --resume=<true|false>%n" +
+                            "      If a failed import into the same database should be resumed from where it%n" +
+                            "      had gotten. The same input and options as for the failed import must be%n" +
+                            "      given. [default:false]%n"),
                     baos.toString() );
         }
     }
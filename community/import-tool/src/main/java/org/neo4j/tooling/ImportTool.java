@@ -25,8 +25,10 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.function.Function;
 
@@ -63,6 +65,8 @@ import org.neo4j.unsafe.impl.batchimport.input.InputException;
 import org.neo4j.unsafe.impl.batchimport.input.InputNode;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 import org.neo4j.unsafe.impl.batchimport.input.MissingRelationshipDataException;
+import org.neo4j.unsafe.impl.batchimport.input.binary.BinaryData;
+import org.neo4j.unsafe.impl.batchimport.input.binary.BinaryInput;
 import org.neo4j.unsafe.impl.batchimport.input.csv.Configuration;
 import org.neo4j.unsafe.impl.batchimport.input.csv.CsvInput;
 import org.neo4j.unsafe.impl.batchimport.input.csv.DataFactory;
@@ -117,7 +121,8 @@ public class ImportTool
     {
         STORE_DIR( "into", null,
                 "<store-dir>",
-                "Database directory to import into. " + "Must not contain existing database." ),
+                "Database directory to import into. " + "Must not contain existing database, unless " +
+                "importing incrementally, see --incremental, or resuming a failed import, see --resume." ),
         DB_NAME( "database", null,
                 "<database-name>",
                 "Database name to import into. " + "Must not contain existing database.", true ),
@@ -168,9 +173,17 @@ public class ImportTool
                         + " and specifies how ids in node/relationship "
                         + "input files are treated.\n"
                         + IdType.STRING + ": arbitrary strings for identifying nodes.\n"
+                        + IdType.HASHED_STRING + ": same as " + IdType.STRING + ", but faster at the expense of "
+                        + "using more memory.\n"
                         + IdType.INTEGER + ": arbitrary integer values for identifying nodes.\n"
                         + IdType.ACTUAL + ": (advanced) actual node ids. The default option is `" + IdType.STRING  +
                         "`.", true ),
+        INPUT_FORMAT( "input-format", "csv",
+                "<csv/binary>",
+                "Format of the node and relationship input files. csv: text files with a header, as described " +
+                "for --nodes and --relationships. binary: typed, columnar, binary files as written by " +
+                "BinaryInputWriter, each declaring its own columns. CSV specific options don't apply to " +
+                "binary files." ),
         PROCESSORS( "processors", null,
                 "<max processor count>",
                 "(advanced) Max number of processors used by the importer. Defaults to the number of "
@@ -244,7 +257,20 @@ public class ImportTool
                 "over the heap memory" ),
         HIGH_IO( "high-io", null, "Assume a high-throughput storage subsystem",
                 "(advanced) Ignore environment-based heuristics, and assume that the target storage subsystem can " +
-                "support parallel IO with high throughput." );
+                "support parallel IO with high throughput." ),
+        INCREMENTAL( "incremental", Boolean.FALSE, "<true/false>",
+                "(advanced) Whether or not to import into an existing database, adding the imported nodes and " +
+                "relationships to the ones already there. Relationships can refer to nodes of earlier imports " +
+                "only if those were imported with --keep-id-mapping. The database must not be running and must " +
+                "have been shut down cleanly. Schema indexes are rebuilt when the database is started next time." ),
+        KEEP_ID_MAPPING( "keep-id-mapping", Boolean.FALSE, "<true/false>",
+                "(advanced) Whether or not to keep the mapping from input ids to node ids in the database " +
+                "directory after the import, so that relationships of later incremental imports can refer to " +
+                "the imported nodes by their input ids." ),
+        RESUME( "resume", Boolean.FALSE, "<true/false>",
+                "Whether or not to resume a failed import into the same database directory, from where it had " +
+                "gotten at the time of failure. The same input and options as for the failed import must be " +
+                "given. Cannot be combined with --incremental." );
 
         private final String key;
         private final Object defaultValue;
@@ -401,12 +427,28 @@ public class ImportTool
         File badFile = null;
         Long maxMemory;
         Boolean defaultHighIO;
+        boolean incremental;
+        boolean keepIdMapping;
+        boolean resume;
 
         boolean success = false;
         try ( FileSystemAbstraction fs = new DefaultFileSystemAbstraction() )
         {
-            storeDir = args.interpretOption( Options.STORE_DIR.key(), Converters.mandatory(),
-                    Converters.toFile(), Validators.DIRECTORY_IS_WRITABLE, Validators.CONTAINS_NO_EXISTING_DATABASE );
+            incremental = args.getBoolean( Options.INCREMENTAL.key(),
+                    (Boolean) Options.INCREMENTAL.defaultValue(), true );
+            keepIdMapping = args.getBoolean( Options.KEEP_ID_MAPPING.key(),
+                    (Boolean) Options.KEEP_ID_MAPPING.defaultValue(), true );
+            resume = args.getBoolean( Options.RESUME.key(), (Boolean) Options.RESUME.defaultValue(), true );
+            if ( resume && incremental )
+            {
+                throw new IllegalArgumentException( "A failed incremental import cannot be resumed" );
+            }
+            storeDir = incremental || resume
+                    ? args.interpretOption( Options.STORE_DIR.key(), Converters.mandatory(),
+                            Converters.toFile(), Validators.DIRECTORY_IS_WRITABLE )
+                    : args.interpretOption( Options.STORE_DIR.key(), Converters.mandatory(),
+                            Converters.toFile(), Validators.DIRECTORY_IS_WRITABLE,
+                            Validators.CONTAINS_NO_EXISTING_DATABASE );
             Config config = Config.defaults( GraphDatabaseSettings.neo4j_home, storeDir.getAbsolutePath() );
             logsDir = config.get( GraphDatabaseSettings.logs_directory );
             fs.mkdirs( logsDir );
@@ -416,7 +458,7 @@ public class ImportTool
             if ( !skipBadEntriesLogging )
             {
                 badFile = new File( storeDir, BAD_FILE_NAME );
-                badOutput = new BufferedOutputStream( fs.openAsOutputStream( badFile, false ) );
+                badOutput = new BufferedOutputStream( fs.openAsOutputStream( badFile, resume ) );
             }
             nodesFiles = extractInputFiles( args, Options.NODE_DATA.key(), err );
             relationshipsFiles = extractInputFiles( args, Options.RELATIONSHIP_DATA.key(), err );
@@ -451,11 +493,24 @@ public class ImportTool
                     (Boolean) Options.CACHE_ON_HEAP.defaultValue() );
             configuration = importConfiguration(
                     processors, defaultSettingsSuitableForTests, dbConfig, maxMemory, storeDir,
-                    allowCacheOnHeap, defaultHighIO );
-            input = new CsvInput( nodeData( inputEncoding, nodesFiles ), defaultFormatNodeFileHeader(),
-                    relationshipData( inputEncoding, relationshipsFiles ), defaultFormatRelationshipFileHeader(),
-                    idType, csvConfiguration( args, defaultSettingsSuitableForTests ), badCollector,
-                    configuration.maxNumberOfProcessors(), !skipBadRelationships );
+                    allowCacheOnHeap, defaultHighIO, incremental, keepIdMapping, resume );
+            String inputFormat = args.get( Options.INPUT_FORMAT.key(), (String) Options.INPUT_FORMAT.defaultValue() );
+            if ( inputFormat.equalsIgnoreCase( "binary" ) )
+            {
+                input = new BinaryInput( binaryNodeData( nodesFiles ), binaryRelationshipData( relationshipsFiles ),
+                        idType, badCollector );
+            }
+            else if ( inputFormat.equalsIgnoreCase( "csv" ) )
+            {
+                input = new CsvInput( nodeData( inputEncoding, nodesFiles ), defaultFormatNodeFileHeader(),
+                        relationshipData( inputEncoding, relationshipsFiles ), defaultFormatRelationshipFileHeader(),
+                        idType, csvConfiguration( args, defaultSettingsSuitableForTests ), badCollector,
+                        configuration.maxNumberOfProcessors(), !skipBadRelationships );
+            }
+            else
+            {
+                throw new IllegalArgumentException( "Unknown input format '" + inputFormat + "'" );
+            }
 
             doImport( out, err, storeDir, logsDir, badFile, fs, nodesFiles, relationshipsFiles,
                     enableStacktrace, input, dbConfig, badOutput, configuration );
@@ -678,6 +733,15 @@ public class ImportTool
     public static org.neo4j.unsafe.impl.batchimport.Configuration importConfiguration(
             Number processors, boolean defaultSettingsSuitableForTests, Config dbConfig, Long maxMemory, File storeDir,
             boolean allowCacheOnHeap, Boolean defaultHighIO )
+    {
+        return importConfiguration( processors, defaultSettingsSuitableForTests, dbConfig, maxMemory, storeDir,
+                allowCacheOnHeap, defaultHighIO, false, false, false );
+    }
+
+    public static org.neo4j.unsafe.impl.batchimport.Configuration importConfiguration(
+            Number processors, boolean defaultSettingsSuitableForTests, Config dbConfig, Long maxMemory, File storeDir,
+            boolean allowCacheOnHeap, Boolean defaultHighIO, boolean incremental, boolean keepIdMapping,
+            boolean resume )
     {
         return new org.neo4j.unsafe.impl.batchimport.Configuration()
         {
@@ -716,6 +780,24 @@ public class ImportTool
             {
                 return allowCacheOnHeap;
             }
+
+            @Override
+            public boolean incrementalImport()
+            {
+                return incremental;
+            }
+
+            @Override
+            public boolean keepIdMapping()
+            {
+                return keepIdMapping;
+            }
+
+            @Override
+            public boolean resumeImport()
+            {
+                return resume;
+            }
         };
     }
 
@@ -809,6 +891,30 @@ public class ImportTool
         };
     }
 
+    private static Iterable<BinaryData<InputNode>> binaryNodeData( Collection<Option<File[]>> nodesFiles )
+    {
+        List<BinaryData<InputNode>> data = new ArrayList<>();
+        for ( Option<File[]> input : nodesFiles )
+        {
+            Decorator<InputNode> decorator = input.metadata() != null
+                    ? additiveLabels( input.metadata().split( ":" ) )
+                    : NO_NODE_DECORATOR;
+            data.addAll( BinaryData.data( decorator, input.value() ) );
+        }
+        return data;
+    }
+
+    private static Iterable<BinaryData<InputRelationship>> binaryRelationshipData(
+            Collection<Option<File[]>> relationshipsFiles )
+    {
+        List<BinaryData<InputRelationship>> data = new ArrayList<>();
+        for ( Option<File[]> input : relationshipsFiles )
+        {
+            data.addAll( BinaryData.data( defaultRelationshipType( input.metadata() ), input.value() ) );
+        }
+        return data;
+    }
+
     public static Iterable<DataFactory<InputNode>> nodeData( final Charset encoding,
             Collection<Option<File[]>> nodesFiles )
     {
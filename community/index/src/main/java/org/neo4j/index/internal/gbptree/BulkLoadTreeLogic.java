@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+
+import static java.lang.String.format;
+
+import static org.neo4j.index.internal.gbptree.PageCursorUtil.checkOutOfBounds;
+
+/**
+ * Builds a tree bottom-up from entries that are added in strictly ascending key order, as opposed to
+ * {@link InternalTreeLogic} which descends from the root for every insert.
+ * <p>
+ * There's one open node per level of the tree, with a {@link PageCursor} of its own. Entries are appended to the
+ * open leaf until it holds the fill count of keys, at which point a new leaf is started and linked as right sibling.
+ * The first key of the new leaf is then appended, as separator, together with the new leaf to the open node on
+ * the level above, which may in turn fill up and propagate further up the tree, or create a new level on top.
+ * <p>
+ * An internal node which is full when another child is to be appended will hand over its last key and child to
+ * the new internal node, such that every internal node ends up with at least one key.
+ * <p>
+ * All nodes are created in the unstable generation and none of them are reachable from the current root,
+ * so concurrent readers will not see any of the changes until the {@link #finish() finished} tree is made root.
+ * The generations are those given at construction, even if the tree has been checkpointed since, such that
+ * the whole built tree is of one generation. The cursors can be {@link #suspend() suspended} between
+ * batches of entries, so that no pages are kept pinned while the writer lock is released.
+ *
+ * @param <KEY> type of key
+ * @param <VALUE> type of value
+ */
+class BulkLoadTreeLogic<KEY,VALUE>
+{
+    private final PagedFile pagedFile;
+    private final TreeNode<KEY,VALUE> bTreeNode;
+    private final Layout<KEY,VALUE> layout;
+    private final IdProvider idProvider;
+    private final long stableGeneration;
+    private final long unstableGeneration;
+    private final int leafFillCount;
+    private final int internalFillCount;
+
+    /**
+     * The open node on each level, where the leaf level is at index 0 and the root at the last index.
+     */
+    private final List<Level> levels = new ArrayList<>();
+    private final KEY previousKey;
+    private boolean hasPreviousKey;
+
+    BulkLoadTreeLogic( PagedFile pagedFile, TreeNode<KEY,VALUE> bTreeNode, Layout<KEY,VALUE> layout,
+            IdProvider idProvider, long stableGeneration, long unstableGeneration, double fillFactor )
+    {
+        if ( !(fillFactor > 0 && fillFactor <= 1) )
+        {
+            throw new IllegalArgumentException( "Fill factor must be greater than 0 and at most 1, but was " +
+                    fillFactor );
+        }
+        this.pagedFile = pagedFile;
+        this.bTreeNode = bTreeNode;
+        this.layout = layout;
+        this.idProvider = idProvider;
+        this.stableGeneration = stableGeneration;
+        this.unstableGeneration = unstableGeneration;
+        this.leafFillCount = Math.max( 1, (int) (bTreeNode.leafMaxKeyCount() * fillFactor) );
+        this.internalFillCount = Math.max( 2, (int) (bTreeNode.internalMaxKeyCount() * fillFactor) );
+        this.previousKey = layout.newKey();
+    }
+
+    /**
+     * Appends the given key and value to the right-most leaf of the tree being built.
+     *
+     * @param key key to add, must be greater than the previously added key.
+     * @param value value to associate with key.
+     * @throws IOException on {@link PageCursor} error.
+     */
+    void add( KEY key, VALUE value ) throws IOException
+    {
+        if ( hasPreviousKey && layout.compare( previousKey, key ) >= 0 )
+        {
+            throw new IllegalArgumentException( format( "Keys must be added in strictly ascending order, " +
+                    "but %s was added after %s", key, previousKey ) );
+        }
+
+        Level leaves = leafLevel();
+        if ( leaves.keyCount == leafFillCount || bTreeNode.leafOverflow( leaves.cursor, leaves.keyCount, key ) )
+        {
+            long leftLeaf = leaves.nodeId;
+            startNewNode( leaves, true );
+            appendToInternal( 1, key, leftLeaf, leaves.nodeId );
+        }
+        PageCursor cursor = leaves.cursor;
+        bTreeNode.insertKeyValueAt( cursor, key, value, leaves.keyCount, leaves.keyCount );
+        leaves.keyCount++;
+        TreeNode.setKeyCount( cursor, leaves.keyCount );
+
+        layout.copyKey( key, previousKey );
+        hasPreviousKey = true;
+    }
+
+    /**
+     * Appends {@code separator} and {@code rightChild} to the open internal node on the given level, creating
+     * the level, with {@code leftChild} as its first child, if it doesn't exist yet.
+     */
+    private void appendToInternal( int height, KEY separator, long leftChild, long rightChild ) throws IOException
+    {
+        if ( height == levels.size() )
+        {
+            // New top level, where the first child is the only other node that the level below has ever had
+            Level level = newLevel( false );
+            bTreeNode.setChildAt( level.cursor, leftChild, 0, stableGeneration, unstableGeneration );
+            appendKeyAndChild( level, separator, rightChild );
+            return;
+        }
+
+        Level level = levels.get( height );
+        if ( level.keyCount == internalFillCount )
+        {
+            // Hand over the last key and child to the new node, so that it won't be left without keys.
+            // The handed over key will separate the two nodes on the level above.
+            PageCursor cursor = level.cursor;
+            level.keyCount--;
+            bTreeNode.keyAt( cursor, level.separatorKey, level.keyCount );
+            TreeNode.setKeyCount( cursor, level.keyCount );
+            long handedOverChild = level.lastChildId;
+
+            long leftNode = level.nodeId;
+            startNewNode( level, false );
+            bTreeNode.setChildAt( level.cursor, handedOverChild, 0, stableGeneration, unstableGeneration );
+            appendKeyAndChild( level, separator, rightChild );
+            appendToInternal( height + 1, level.separatorKey, leftNode, level.nodeId );
+        }
+        else
+        {
+            appendKeyAndChild( level, separator, rightChild );
+        }
+    }
+
+    private void appendKeyAndChild( Level level, KEY key, long child )
+    {
+        PageCursor cursor = level.cursor;
+        bTreeNode.setKeyAt( cursor, key, level.keyCount );
+        bTreeNode.setChildAt( cursor, child, level.keyCount + 1, stableGeneration, unstableGeneration );
+        level.keyCount++;
+        level.lastChildId = child;
+        TreeNode.setKeyCount( cursor, level.keyCount );
+    }
+
+    /**
+     * Moves the open node of the given level to a new node, which becomes right sibling of the previous one.
+     */
+    private void startNewNode( Level level, boolean leaf ) throws IOException
+    {
+        PageCursor cursor = level.cursor;
+        long leftNode = level.nodeId;
+        long newNode = idProvider.acquireNewId( stableGeneration, unstableGeneration );
+        TreeNode.setRightSibling( cursor, newNode, stableGeneration, unstableGeneration );
+        checkOutOfBounds( cursor );
+
+        initializeNode( cursor, newNode, leaf );
+        TreeNode.setLeftSibling( cursor, leftNode, stableGeneration, unstableGeneration );
+        level.nodeId = newNode;
+        level.keyCount = 0;
+    }
+
+    private Level leafLevel() throws IOException
+    {
+        return levels.isEmpty() ? newLevel( true ) : levels.get( 0 );
+    }
+
+    private Level newLevel( boolean leaf ) throws IOException
+    {
+        long nodeId = idProvider.acquireNewId( stableGeneration, unstableGeneration );
+        Level level = new Level( nodeId, layout.newKey() );
+        levels.add( level );
+        level.cursor = openCursor( nodeId );
+        initializeNode( level.cursor, nodeId, leaf );
+        return level;
+    }
+
+    private PageCursor openCursor( long nodeId ) throws IOException
+    {
+        return pagedFile.io( nodeId, PagedFile.PF_SHARED_WRITE_LOCK );
+    }
+
+    /**
+     * Closes the cursors of the open nodes, keeping track of which nodes they are, so that no pages are pinned
+     * until {@link #resume() resumed}. No entries can be added while suspended.
+     */
+    void suspend()
+    {
+        closeCursors();
+    }
+
+    /**
+     * Opens the cursors of the open nodes again, after having been {@link #suspend() suspended}.
+     *
+     * @throws IOException on {@link PageCursor} error.
+     */
+    void resume() throws IOException
+    {
+        for ( Level level : levels )
+        {
+            if ( level.cursor == null )
+            {
+                level.cursor = openCursor( level.nodeId );
+                PageCursorUtil.goTo( level.cursor, "open node in bulk load", level.nodeId );
+            }
+        }
+    }
+
+    private void initializeNode( PageCursor cursor, long nodeId, boolean leaf ) throws IOException
+    {
+        PageCursorUtil.goTo( cursor, "new node in bulk load", nodeId );
+        if ( leaf )
+        {
+            TreeNode.initializeLeaf( cursor, stableGeneration, unstableGeneration );
+        }
+        else
+        {
+            TreeNode.initializeInternal( cursor, stableGeneration, unstableGeneration );
+        }
+    }
+
+    /**
+     * Completes the tree that has been built. No more entries can be added after this call.
+     *
+     * @return id of the root of the built tree, which is an empty leaf if no entries were added.
+     * @throws IOException on {@link PageCursor} error.
+     */
+    long finish() throws IOException
+    {
+        leafLevel();
+        try
+        {
+            for ( Level level : levels )
+            {
+                checkOutOfBounds( level.cursor );
+            }
+            return levels.get( levels.size() - 1 ).nodeId;
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    /**
+     * Closes the cursors of this bulk load, whether or not it was {@link #finish() finished}.
+     */
+    void close()
+    {
+        closeCursors();
+        levels.clear();
+    }
+
+    private void closeCursors()
+    {
+        for ( Level level : levels )
+        {
+            if ( level.cursor != null )
+            {
+                level.cursor.close();
+                level.cursor = null;
+            }
+        }
+    }
+
+    private class Level
+    {
+        private final KEY separatorKey;
+        private PageCursor cursor;
+        private long nodeId;
+        private int keyCount;
+        private long lastChildId;
+
+        Level( long nodeId, KEY separatorKey )
+        {
+            this.nodeId = nodeId;
+            this.separatorKey = separatorKey;
+        }
+    }
+}
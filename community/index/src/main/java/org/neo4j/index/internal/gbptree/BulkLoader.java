@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Able to {@link #add(Object, Object) add} key/value pairs, in strictly ascending key order, into an empty
+ * {@link GBPTree}. The tree is built bottom-up, one level at a time, without ever descending from the root.
+ * Entries that have been added becomes visible to readers once the bulk loader is {@link #close() closed},
+ * typically using try-with-resource clause.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+public interface BulkLoader<KEY,VALUE> extends Closeable
+{
+    /**
+     * Adds the given {@code key} and associates it with the given {@code value}.
+     * The {@code key} must be greater than any previously added key.
+     *
+     * @param key key to add, must be greater than previously added key.
+     * @param value value to associate with key.
+     * @throws IOException on index access error.
+     * @throws IllegalArgumentException if {@code key} isn't greater than the previously added key.
+     * The tree is left untouched by such a call.
+     */
+    void add( KEY key, VALUE value ) throws IOException;
+}
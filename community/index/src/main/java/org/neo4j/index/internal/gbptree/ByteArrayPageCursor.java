@@ -31,11 +31,10 @@ import org.neo4j.io.pagecache.PageCursor;
 /**
  * Wraps a byte array and present it as a PageCursor.
  * <p>
- * This class is bridging something which would otherwise make {@link InternalTreeLogic} code slightly more
- * complicated. Currently when splitting nodes keys/values/children are read into temporary arrays
- * and manipulating that data by standard means (which are designed to work on {@link PageCursor}
- * can stay the same if wrapping the byte array as such. If splitting code later changes to not
- * do this temporary copy then this class won't be needed anymore.
+ * This class is bridging something which would otherwise make {@link PrefixCompressedTreeNode} code slightly more
+ * complicated. Keys in compressed leaves are stored as bytes which are split between a shared prefix and
+ * a suffix per entry. Those bytes are gathered into temporary arrays and then read or written by the
+ * {@link Layout}, which is designed to work on {@link PageCursor}, by wrapping the byte array as such.
  * <p>
  * All the accessor methods (getXXX, putXXX) are implemented and delegates calls to its internal {@link ByteBuffer}.
  * {@link #setOffset(int)}, {@link #getOffset()} and {@link #rewind()} positions the internal {@link ByteBuffer}.
@@ -27,6 +27,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.LongSupplier;
@@ -136,6 +138,12 @@ public class GBPTree<KEY,VALUE> implements Closeable
      */
     static final int FORMAT_VERSION = 2;
 
+    /**
+     * Number of entries a {@link BulkLoader} adds while holding the writer lock, before releasing it to let
+     * checkpoints through.
+     */
+    static final int BULK_LOAD_BATCH_SIZE = 10_000;
+
     /**
      * For monitoring {@link GBPTree}.
      */
@@ -395,7 +403,8 @@ public class GBPTree<KEY,VALUE> implements Closeable
             this.pagedFile = openOrCreate( pageCache, indexFile, tentativePageSize, layout );
             this.pageSize = pagedFile.pageSize();
             closed = false;
-            this.bTreeNode = new TreeNode<>( pageSize, layout );
+            this.bTreeNode = layout.compressLeafKeys() ? new PrefixCompressedTreeNode<>( pageSize, layout )
+                                                       : new TreeNode<>( pageSize, layout );
             this.freeList = new FreeListIdProvider( pagedFile, pageSize, rootId, FreeListIdProvider.NO_MONITOR );
             this.writer = new SingleWriter( new InternalTreeLogic<>( freeList, bTreeNode, layout ) );
 
@@ -795,6 +804,181 @@ public class GBPTree<KEY,VALUE> implements Closeable
                 exceptionDecorator );
     }
 
+    /**
+     * Partitions the key range {@code fromInclusive} to {@code toExclusive} into sub-ranges holding roughly the same
+     * number of entries and returns one seeker per sub-range. The seekers are independent of each other and
+     * can be used from different threads, typically to scan a large range using multiple cores. Together the seekers
+     * cover exactly the given range, in ascending order, without any overlap.
+     * <p>
+     * Sub-ranges are split on keys in internal nodes. The partitioning descends the tree only until there are enough
+     * keys in the range to choose from, so partitions are balanced as well as the tree is. Fewer partitions than
+     * desired are returned for small trees, where there aren't enough internal keys in the range,
+     * and a tree which consists of only a root leaf gets a single partition.
+     *
+     * @param fromInclusive lower bound of the range to seek (inclusive).
+     * @param toExclusive higher bound of the range to seek (exclusive), must not be lower than {@code fromInclusive}.
+     * @param desiredNumberOfPartitions number of partitions to split the range into, if possible.
+     * @return seekers, one per partition, in the order of their sub-ranges. All seekers must be closed.
+     * @throws IOException on error reading from index.
+     * @throws IllegalArgumentException if the range is descending or number of partitions is less than one.
+     */
+    public List<RawCursor<Hit<KEY,VALUE>,IOException>> partitionedSeek( KEY fromInclusive, KEY toExclusive,
+            int desiredNumberOfPartitions ) throws IOException
+    {
+        if ( desiredNumberOfPartitions < 1 )
+        {
+            throw new IllegalArgumentException( "Number of partitions must be at least one, but was " +
+                    desiredNumberOfPartitions );
+        }
+        if ( layout.compare( fromInclusive, toExclusive ) > 0 )
+        {
+            throw new IllegalArgumentException( "Partitioned seek only supports ascending ranges, but got " +
+                    fromInclusive + " to " + toExclusive );
+        }
+
+        List<KEY> splitKeys = partitionSplitKeys( fromInclusive, toExclusive, desiredNumberOfPartitions );
+        List<RawCursor<Hit<KEY,VALUE>,IOException>> seekers = new ArrayList<>( splitKeys.size() + 1 );
+        boolean success = false;
+        try
+        {
+            KEY from = fromInclusive;
+            for ( KEY splitKey : splitKeys )
+            {
+                seekers.add( seek( from, splitKey ) );
+                from = splitKey;
+            }
+            seekers.add( seek( from, toExclusive ) );
+            success = true;
+            return seekers;
+        }
+        finally
+        {
+            if ( !success )
+            {
+                for ( RawCursor<Hit<KEY,VALUE>,IOException> seeker : seekers )
+                {
+                    seeker.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads internal keys within the range, level by level from the root, until a level has enough keys to split
+     * the range into the desired number of partitions, or there are no more internal levels. Reads are not
+     * synchronized with the writer, which may change the tree meanwhile, but that only affects how even
+     * the partitions are. Split keys are always strictly ordered and within the range.
+     *
+     * @return keys to split the range on, at most {@code desiredNumberOfPartitions - 1} of them, in ascending order.
+     */
+    private List<KEY> partitionSplitKeys( KEY fromInclusive, KEY toExclusive, int desiredNumberOfPartitions )
+            throws IOException
+    {
+        long generation = this.generation;
+        long stableGeneration = stableGeneration( generation );
+        long unstableGeneration = unstableGeneration( generation );
+
+        List<KEY> candidates = new ArrayList<>();
+        try ( PageCursor cursor = pagedFile.io( 0L /*ignored*/, PagedFile.PF_SHARED_READ_LOCK ) )
+        {
+            List<Long> levelNodes = new ArrayList<>();
+            levelNodes.add( root.id() );
+            while ( candidates.size() < desiredNumberOfPartitions - 1 && !levelNodes.isEmpty() )
+            {
+                List<KEY> levelKeys = new ArrayList<>();
+                List<Long> children = new ArrayList<>();
+                for ( long node : levelNodes )
+                {
+                    readKeysAndChildrenInRange( cursor, node, fromInclusive, toExclusive,
+                            stableGeneration, unstableGeneration, levelKeys, children );
+                }
+                if ( levelKeys.size() > candidates.size() )
+                {
+                    candidates = levelKeys;
+                }
+                levelNodes = children;
+            }
+        }
+
+        // Keys are read from nodes in order, but a concurrent writer may have moved keys between the reads
+        candidates.sort( layout );
+        List<KEY> distinctCandidates = new ArrayList<>( candidates.size() );
+        for ( KEY candidate : candidates )
+        {
+            if ( distinctCandidates.isEmpty() ||
+                 layout.compare( distinctCandidates.get( distinctCandidates.size() - 1 ), candidate ) < 0 )
+            {
+                distinctCandidates.add( candidate );
+            }
+        }
+
+        // Pick evenly spread split keys among the candidates
+        int numberOfPartitions = Math.min( desiredNumberOfPartitions, distinctCandidates.size() + 1 );
+        List<KEY> splitKeys = new ArrayList<>( numberOfPartitions - 1 );
+        for ( int i = 1; i < numberOfPartitions; i++ )
+        {
+            splitKeys.add( distinctCandidates.get(
+                    (int) ((long) i * (distinctCandidates.size() + 1) / numberOfPartitions) - 1 ) );
+        }
+        return splitKeys;
+    }
+
+    /**
+     * Adds keys of the given node that are strictly within the range to {@code keys} and children of the given node
+     * whose key ranges overlap the range to {@code children}. Nothing is added if the node isn't an internal node.
+     */
+    private void readKeysAndChildrenInRange( PageCursor cursor, long nodeId, KEY fromInclusive, KEY toExclusive,
+            long stableGeneration, long unstableGeneration, List<KEY> keys, List<Long> children ) throws IOException
+    {
+        PageCursorUtil.goTo( cursor, "partition node", nodeId );
+        int keysBefore = keys.size();
+        int childrenBefore = children.size();
+        do
+        {
+            keys.subList( keysBefore, keys.size() ).clear();
+            children.subList( childrenBefore, children.size() ).clear();
+            if ( TreeNode.nodeType( cursor ) != TreeNode.NODE_TYPE_TREE_NODE || !TreeNode.isInternal( cursor ) )
+            {
+                continue;
+            }
+
+            int keyCount = Math.max( 0, Math.min( TreeNode.keyCount( cursor ), bTreeNode.internalMaxKeyCount() ) );
+            boolean previousKeyBeforeTo = true;
+            for ( int pos = 0; pos < keyCount && previousKeyBeforeTo; pos++ )
+            {
+                KEY key = bTreeNode.keyAt( cursor, layout.newKey(), pos );
+                boolean afterFrom = layout.compare( key, fromInclusive ) > 0;
+                boolean beforeTo = layout.compare( key, toExclusive ) < 0;
+                if ( afterFrom )
+                {
+                    // Child to the left of this key has keys that are higher than or equal to the previous key
+                    addChild( cursor, pos, stableGeneration, unstableGeneration, children );
+                    if ( beforeTo )
+                    {
+                        keys.add( key );
+                    }
+                }
+                previousKeyBeforeTo = beforeTo;
+            }
+            if ( previousKeyBeforeTo )
+            {
+                addChild( cursor, keyCount, stableGeneration, unstableGeneration, children );
+            }
+        }
+        while ( cursor.shouldRetry() );
+        checkOutOfBounds( cursor );
+    }
+
+    private void addChild( PageCursor cursor, int pos, long stableGeneration, long unstableGeneration,
+            List<Long> children )
+    {
+        long child = bTreeNode.childAt( cursor, pos, stableGeneration, unstableGeneration );
+        if ( GenerationSafePointerPair.isSuccess( child ) && TreeNode.isNode( child ) )
+        {
+            children.add( GenerationSafePointerPair.pointer( child ) );
+        }
+    }
+
     /**
      * Checkpoints and flushes any pending changes to storage. After a successful call to this method
      * the data is durable and safe. {@link #writer() Changes} made after this call and until crashing or
@@ -948,6 +1132,43 @@ public class GBPTree<KEY,VALUE> implements Closeable
         return writer;
     }
 
+    /**
+     * Returns a {@link BulkLoader} able to fill an empty index with entries given in strictly ascending key order.
+     * The tree is built bottom-up, without searching from the root for every entry, which is much faster than
+     * inserting the same entries through a {@link Writer}. No {@link Writer} can be acquired for as long as the
+     * bulk loader is open, but the writer lock is only held while adding a batch of entries, such that
+     * {@link #checkpoint(IOLimiter) checkpoints} can happen in between. The bulk loader must be closed,
+     * typically by using try-with-resource clause.
+     *
+     * @param fillFactor how full, between {@code 0} exclusive and {@code 1} inclusive, to make the built tree nodes.
+     * A fill factor of {@code 1} gives the most compact tree, which is best for an index that will mostly be read.
+     * Leaving room in the nodes will avoid splits for an index which will see random inserts after bulk load.
+     * @return a {@link BulkLoader} for this index.
+     * @throws IOException on error accessing the index.
+     * @throws IllegalArgumentException if fill factor is out of range.
+     * @throws IllegalStateException if the index isn't empty or the writer is already acquired.
+     */
+    public BulkLoader<KEY,VALUE> bulkLoader( double fillFactor ) throws IOException
+    {
+        assertRecoveryCleanSuccessful();
+        writer.take();
+        boolean success = false;
+        try
+        {
+            SingleBulkLoader bulkLoader = new SingleBulkLoader( fillFactor );
+            changesSinceLastCheckpoint = true;
+            success = true;
+            return bulkLoader;
+        }
+        finally
+        {
+            if ( !success )
+            {
+                writer.release();
+            }
+        }
+    }
+
     private void setRoot( long rootId, long rootGeneration )
     {
         this.root = new Root( rootId, rootGeneration );
@@ -1106,12 +1327,7 @@ public class GBPTree<KEY,VALUE> implements Closeable
          */
         void initialize() throws IOException
         {
-            if ( !writerTaken.compareAndSet( false, true ) )
-            {
-                throw new IllegalStateException( "Writer in " + this + " is already acquired by someone else. " +
-                        "Only a single writer is allowed. The writer will become available as soon as " +
-                        "acquired writer is closed" );
-            }
+            take();
 
             boolean success = false;
             try
@@ -1216,14 +1432,33 @@ public class GBPTree<KEY,VALUE> implements Closeable
 
         @Override
         public void close() throws IOException
+        {
+            release();
+            closeCursor();
+            lock.writerUnlock();
+        }
+
+        /**
+         * Takes this writer, without locking or initializing it, such that no other caller can acquire it.
+         * Used by {@link SingleBulkLoader} which locks for one batch of entries at a time.
+         */
+        void take()
+        {
+            if ( !writerTaken.compareAndSet( false, true ) )
+            {
+                throw new IllegalStateException( "Writer in " + this + " is already acquired by someone else. " +
+                        "Only a single writer is allowed. The writer will become available as soon as " +
+                        "acquired writer is closed" );
+            }
+        }
+
+        void release()
         {
             if ( !writerTaken.compareAndSet( true, false ) )
             {
                 throw new IllegalStateException( "Tried to close writer of " + GBPTree.this +
                         ", but writer is already closed." );
             }
-            closeCursor();
-            lock.writerUnlock();
         }
 
         private void closeCursor()
@@ -1235,4 +1470,155 @@ public class GBPTree<KEY,VALUE> implements Closeable
             }
         }
     }
+
+    /**
+     * Builds a new tree next to the current empty root using {@link BulkLoadTreeLogic} while having the
+     * {@link SingleWriter} taken. The writer lock is held for batches of {@link #BULK_LOAD_BATCH_SIZE} entries
+     * at a time and released in between, with all cursors of the bulk load closed, so that checkpoints,
+     * or closing this tree, aren't blocked for the duration of the whole bulk load.
+     * <p>
+     * The built tree replaces the empty root when closed, with the empty root released to the free list.
+     * All built nodes are in the generation which was unstable when the bulk load started, so a crash before next
+     * checkpoint leaves the index empty. Pages of a bulk load which is interrupted by a crash or by closing
+     * this tree are not released to the free list.
+     */
+    private class SingleBulkLoader implements BulkLoader<KEY,VALUE>, IdProvider
+    {
+        private final BulkLoadTreeLogic<KEY,VALUE> bulkLoadLogic;
+        private final long stableGeneration;
+        private final long unstableGeneration;
+        private boolean locked;
+        private int batchSize;
+        private boolean closed;
+
+        SingleBulkLoader( double fillFactor ) throws IOException
+        {
+            lockAndAssertOpen();
+            try
+            {
+                try ( PageCursor cursor = openRootCursor( PagedFile.PF_SHARED_READ_LOCK ) )
+                {
+                    boolean empty;
+                    do
+                    {
+                        empty = TreeNode.isLeaf( cursor ) && TreeNode.keyCount( cursor ) == 0;
+                    }
+                    while ( cursor.shouldRetry() );
+                    checkOutOfBounds( cursor );
+                    if ( !empty )
+                    {
+                        throw new IllegalStateException( "Bulk load is only supported on an empty index, " +
+                                "but " + GBPTree.this + " has entries" );
+                    }
+                }
+                stableGeneration = stableGeneration( generation );
+                unstableGeneration = unstableGeneration( generation );
+                bulkLoadLogic = new BulkLoadTreeLogic<>( pagedFile, bTreeNode, layout, this,
+                        stableGeneration, unstableGeneration, fillFactor );
+            }
+            finally
+            {
+                unlock();
+            }
+        }
+
+        @Override
+        public void add( KEY key, VALUE value ) throws IOException
+        {
+            if ( closed )
+            {
+                throw new IllegalStateException( "Tried to add to bulk loader of " + GBPTree.this +
+                        ", but bulk loader is already closed." );
+            }
+            if ( !locked )
+            {
+                lockAndAssertOpen();
+                bulkLoadLogic.resume();
+            }
+            try
+            {
+                bulkLoadLogic.add( key, value );
+            }
+            catch ( Throwable e )
+            {
+                appendTreeInformation( e );
+                throw e;
+            }
+            if ( ++batchSize == BULK_LOAD_BATCH_SIZE )
+            {
+                bulkLoadLogic.suspend();
+                unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if ( closed )
+            {
+                throw new IllegalStateException( "Tried to close bulk loader of " + GBPTree.this +
+                        ", but bulk loader is already closed." );
+            }
+            closed = true;
+            try
+            {
+                if ( !locked )
+                {
+                    lockAndAssertOpen();
+                    bulkLoadLogic.resume();
+                }
+                long oldRootId = root.id();
+                long newRootId = bulkLoadLogic.finish();
+                setRoot( newRootId, unstableGeneration );
+                releaseId( stableGeneration, unstableGeneration, oldRootId );
+            }
+            finally
+            {
+                bulkLoadLogic.close();
+                if ( locked )
+                {
+                    unlock();
+                }
+                writer.release();
+            }
+        }
+
+        /**
+         * Node ids are handed out by the free list in its current generation, which may have moved on
+         * since the bulk load started, whereas the nodes themselves are written in the starting generation.
+         */
+        @Override
+        public long acquireNewId( long stableGeneration, long unstableGeneration ) throws IOException
+        {
+            long currentGeneration = generation;
+            return freeList.acquireNewId( stableGeneration( currentGeneration ),
+                    unstableGeneration( currentGeneration ) );
+        }
+
+        @Override
+        public void releaseId( long stableGeneration, long unstableGeneration, long id ) throws IOException
+        {
+            long currentGeneration = generation;
+            freeList.releaseId( stableGeneration( currentGeneration ), unstableGeneration( currentGeneration ), id );
+        }
+
+        private void lockAndAssertOpen()
+        {
+            lock.writerLock();
+            locked = true;
+            batchSize = 0;
+            if ( GBPTree.this.closed )
+            {
+                unlock();
+                throw new IllegalStateException( "Tried to bulk load into " + GBPTree.this +
+                        ", but index has been closed." );
+            }
+        }
+
+        private void unlock()
+        {
+            locked = false;
+            lock.writerUnlock();
+        }
+    }
 }
@@ -626,11 +626,10 @@ class InternalTreeLogic<KEY,VALUE>
         createSuccessorIfNeeded( cursor, structurePropagation, UPDATE_MID_CHILD,
                 stableGeneration, unstableGeneration );
 
-        if ( keyCount < bTreeNode.leafMaxKeyCount() )
+        if ( !bTreeNode.leafOverflow( cursor, keyCount, key ) )
         {
             // No overflow, insert key and value
-            bTreeNode.insertKeyAt( cursor, key, pos, keyCount );
-            bTreeNode.insertValueAt( cursor, value, pos, keyCount );
+            bTreeNode.insertKeyValueAt( cursor, key, value, pos, keyCount );
             TreeNode.setKeyCount( cursor, keyCount + 1 );
 
             return; // No split has occurred
@@ -747,36 +746,8 @@ class InternalTreeLogic<KEY,VALUE>
             TreeNode.setLeftSibling( rightCursor, current, stableGeneration, unstableGeneration );
             int rightKeyCount = keyCountAfterInsert - middlePos;
 
-            if ( pos < middlePos )
-            {
-                //                  v-------v       copy
-                // before _,_,_,_,_,_,_,_,_,_
-                // insert _,_,_,X,_,_,_,_,_,_,_
-                // middle           ^
-                copyKeysAndValues( cursor, middlePos - 1, rightCursor, 0, rightKeyCount );
-            }
-            else
-            {
-                //                  v---v           first copy
-                //                        v-v       second copy
-                // before _,_,_,_,_,_,_,_,_,_
-                // insert _,_,_,_,_,_,_,_,X,_,_
-                // middle           ^
-                int countBeforePos = pos - middlePos;
-                if ( countBeforePos > 0 )
-                {
-                    // first copy
-                    copyKeysAndValues( cursor, middlePos, rightCursor, 0, countBeforePos );
-                }
-                bTreeNode.insertKeyAt( rightCursor, newKey, countBeforePos, countBeforePos );
-                bTreeNode.insertValueAt( rightCursor, newValue, countBeforePos, countBeforePos );
-                int countAfterPos = keyCount - pos;
-                if ( countAfterPos > 0 )
-                {
-                    // second copy
-                    copyKeysAndValues( cursor, pos, rightCursor, countBeforePos + 1, countAfterPos );
-                }
-            }
+            // Writes right-hand entries to new right and, if pos < middle, shifted entries to left
+            bTreeNode.doSplitLeaf( cursor, keyCount, rightCursor, pos, newKey, newValue, middlePos );
             TreeNode.setKeyCount( rightCursor, rightKeyCount );
         }
 
@@ -791,24 +762,10 @@ class InternalTreeLogic<KEY,VALUE>
         }
 
         // Update left child
-        // If pos < middle. Write shifted values to left node. Else, don't write anything.
-        if ( pos < middlePos )
-        {
-            bTreeNode.insertKeyAt( cursor, newKey, pos, middlePos - 1 );
-            bTreeNode.insertValueAt( cursor, newValue, pos, middlePos - 1 );
-        }
         TreeNode.setKeyCount( cursor, middlePos );
         TreeNode.setRightSibling( cursor, newRight, stableGeneration, unstableGeneration );
     }
 
-    private void copyKeysAndValues( PageCursor fromCursor, int fromPos, PageCursor toCursor, int toPos, int count )
-    {
-        fromCursor.copyTo( bTreeNode.keyOffset( fromPos ), toCursor, bTreeNode.keyOffset( toPos ),
-                count * bTreeNode.keySize() );
-        fromCursor.copyTo( bTreeNode.valueOffset( fromPos ), toCursor, bTreeNode.valueOffset( toPos ),
-                count * bTreeNode.valueSize() );
-    }
-
     /**
      * Remove given {@code key} and associated value from tree if it exists. The removed value will be stored in
      * provided {@code into} which will be returned for convenience.
@@ -1142,7 +1099,7 @@ class InternalTreeLogic<KEY,VALUE>
                 stableGeneration, unstableGeneration );
         keyCount = simplyRemoveFromLeaf( cursor, into, keyCount, pos );
 
-        if ( keyCount < (bTreeNode.leafMaxKeyCount() + 1) / 2 )
+        if ( keyCount < (bTreeNode.guaranteedLeafMaxKeyCount() + 1) / 2 )
         {
             // Underflow
             underflowInLeaf( cursor, structurePropagation, keyCount, stableGeneration, unstableGeneration );
@@ -1167,7 +1124,8 @@ class InternalTreeLogic<KEY,VALUE>
                 leftSiblingCursor.next();
                 int leftSiblingKeyCount = TreeNode.keyCount( leftSiblingCursor );
 
-                if ( keyCount + leftSiblingKeyCount >= bTreeNode.leafMaxKeyCount() )
+                if ( keyCount + leftSiblingKeyCount >= bTreeNode.leafMaxKeyCount() ||
+                     !bTreeNode.canMergeLeaves( leftSiblingCursor, leftSiblingKeyCount, cursor, keyCount ) )
                 {
                     createSuccessorIfNeeded( leftSiblingCursor, structurePropagation,
                             StructurePropagation.UPDATE_LEFT_CHILD, stableGeneration, unstableGeneration );
@@ -1190,7 +1148,7 @@ class InternalTreeLogic<KEY,VALUE>
                 rightSiblingCursor.next();
                 int rightSiblingKeyCount = TreeNode.keyCount( rightSiblingCursor );
 
-                if ( keyCount + rightSiblingKeyCount <= bTreeNode.leafMaxKeyCount() )
+                if ( bTreeNode.canMergeLeaves( cursor, keyCount, rightSiblingCursor, rightSiblingKeyCount ) )
                 {
                     createSuccessorIfNeeded( rightSiblingCursor, structurePropagation, UPDATE_RIGHT_CHILD,
                             stableGeneration, unstableGeneration );
@@ -1259,12 +1217,9 @@ class InternalTreeLogic<KEY,VALUE>
     private void merge( PageCursor leftSiblingCursor, int leftSiblingKeyCount, PageCursor rightSiblingCursor,
             int rightSiblingKeyCount, long stableGeneration, long unstableGeneration ) throws IOException
     {
-        // Push keys in right sibling to the right
-        bTreeNode.insertKeySlotsAt( rightSiblingCursor, 0, leftSiblingKeyCount, rightSiblingKeyCount );
-        bTreeNode.insertValueSlotsAt( rightSiblingCursor, 0, leftSiblingKeyCount, rightSiblingKeyCount );
-
         // Move keys and values from left sibling to right sibling
-        copyKeysAndValues( leftSiblingCursor, 0, rightSiblingCursor, 0, leftSiblingKeyCount );
+        bTreeNode.moveKeyValuesFromLeftToRight( leftSiblingCursor, leftSiblingKeyCount, rightSiblingCursor,
+                rightSiblingKeyCount, leftSiblingKeyCount );
         TreeNode.setKeyCount( rightSiblingCursor, rightSiblingKeyCount + leftSiblingKeyCount );
 
         // Update successor of left sibling to be right sibling
@@ -1281,14 +1236,13 @@ class InternalTreeLogic<KEY,VALUE>
     {
         int totalKeyCount = keyCount + leftSiblingKeyCount;
         int keyCountInLeftSiblingAfterRebalance = totalKeyCount / 2;
-        int numberOfKeysToMove = leftSiblingKeyCount - keyCountInLeftSiblingAfterRebalance;
-
-        // Push keys in right sibling to the right
-        bTreeNode.insertKeySlotsAt( cursor, 0, numberOfKeysToMove, keyCount );
-        bTreeNode.insertValueSlotsAt( cursor, 0, numberOfKeysToMove, keyCount );
+        // Never move more than this leaf is guaranteed to fit, which may be less than half for compressed leaves
+        int numberOfKeysToMove = Math.min( leftSiblingKeyCount - keyCountInLeftSiblingAfterRebalance,
+                bTreeNode.guaranteedLeafMaxKeyCount() - keyCount );
 
         // Move keys and values from left sibling to right sibling
-        copyKeysAndValues( leftSiblingCursor, keyCountInLeftSiblingAfterRebalance, cursor, 0, numberOfKeysToMove );
+        bTreeNode.moveKeyValuesFromLeftToRight( leftSiblingCursor, leftSiblingKeyCount, cursor, keyCount,
+                numberOfKeysToMove );
         TreeNode.setKeyCount( cursor, keyCount + numberOfKeysToMove );
         TreeNode.setKeyCount( leftSiblingCursor, leftSiblingKeyCount - numberOfKeysToMove );
 
@@ -1311,9 +1265,8 @@ class InternalTreeLogic<KEY,VALUE>
     private int simplyRemoveFromLeaf( PageCursor cursor, VALUE into, int keyCount, int pos )
     {
         // Remove key/value
-        bTreeNode.removeKeyAt( cursor, pos, keyCount );
         bTreeNode.valueAt( cursor, into, pos );
-        bTreeNode.removeValueAt( cursor, pos, keyCount );
+        bTreeNode.removeKeyValueAt( cursor, pos, keyCount );
 
         // Decrease key count
         int newKeyCount = keyCount - 1;
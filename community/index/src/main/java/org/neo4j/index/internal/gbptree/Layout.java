@@ -141,6 +141,23 @@ public interface Layout<KEY, VALUE> extends Comparator<KEY>
     {   // no meta-data by default
     }
 
+    /**
+     * Whether or not keys in leaves should be prefix compressed. Leaves of a compressed tree store the bytes
+     * that all its keys have in common once and only the remaining suffix of each key, which lets leaves fit
+     * many more entries when neighbouring keys share leading bytes. Keys are still read one at a time,
+     * by combining prefix and suffix, so a compressed leaf can be binary searched like any other.
+     * <p>
+     * Compression works on the bytes written by {@link #writeKey(PageCursor, Object)}, so layouts writing
+     * the most significant parts of a key first will benefit the most. Whether or not leaves are compressed is
+     * part of the index format, which means that changing this requires a change of {@link #majorVersion()}.
+     *
+     * @return {@code true} if keys in leaves should be prefix compressed, otherwise {@code false}.
+     */
+    default boolean compressLeafKeys()
+    {
+        return false;
+    }
+
     /**
      * Utility method for generating an {@link #identifier()}. Generates an 8-byte identifier from a short name
      * plus a 4-byte identifier.
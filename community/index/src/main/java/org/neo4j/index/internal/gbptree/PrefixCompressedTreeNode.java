@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static java.lang.Math.min;
+
+/**
+ * {@link TreeNode} which stores keys in leaves prefix compressed. Internal nodes look exactly like those of
+ * {@link TreeNode}, it's only the body of leaves that differs.
+ * <p>
+ * DESIGN
+ * <p>
+ * Leaf nodes look like
+ * <pre>
+ * # = empty space
+ *
+ * [HEADER   82B]|[PREFIXLENGTH]|[PREFIX]|[[SUFFIX][VALUE]][[SUFFIX][VALUE]]...##]
+ *  0             82             84       84 + SIZE_KEY
+ * </pre>
+ * The prefix holds the leading key bytes, as written by {@link Layout#writeKey(PageCursor, Object)}, that all keys
+ * in the leaf have in common. Each entry holds the remaining suffix of its key, followed by its value.
+ * Room for a prefix as long as a whole key is always reserved, so that entries start at a fixed offset.
+ * Entries within a leaf are of equal size, which varies between leaves with the length of the prefix.
+ * <p>
+ * Calc offset for entry i (starting from 0)
+ * HEADER_LENGTH + SIZE_PREFIXLENGTH + SIZE_KEY + i * (SIZE_KEY - PREFIXLENGTH + SIZE_VALUE)
+ * <p>
+ * A key is read by combining prefix and its suffix, one key at a time, which means that a leaf is binary searched
+ * without decompressing any other keys than those compared. Inserting a key which doesn't share the whole prefix
+ * makes the prefix shorter and rewrites all entries with longer suffixes, which may make the leaf overflow
+ * at a lower key count than before. Splits, merges and rebalancing rewrite the affected leaves with the longest
+ * prefix their entries have in common, so that a prefix can grow again.
+ * <p>
+ * A leaf never holds more than {@code 2 * G - 1} keys, where {@code G} is the {@link #guaranteedLeafMaxKeyCount()
+ * number of keys a leaf can hold without any common prefix}. This way each half of a split leaf is guaranteed to fit
+ * in a leaf of its own, regardless of how few bytes its keys have in common.
+ *
+ * @param <KEY> type of key
+ * @param <VALUE> type of value
+ */
+class PrefixCompressedTreeNode<KEY,VALUE> extends TreeNode<KEY,VALUE>
+{
+    static final int BYTE_POS_PREFIX_LENGTH = HEADER_LENGTH;
+    static final int BYTE_POS_PREFIX = BYTE_POS_PREFIX_LENGTH + Short.BYTES;
+
+    private final Layout<KEY,VALUE> layout;
+    private final int pageSize;
+    private final int keySize;
+    private final int valueSize;
+    private final int entriesOffset;
+    private final int guaranteedLeafMaxKeyCount;
+    private final int leafMaxKeyCount;
+
+    // A tree node is shared between the writer and all readers of a tree, so buffers for assembling keys are per thread.
+    // Reading and writing keys have separate buffers since an inserted key is kept while reading other keys.
+    private final ThreadLocal<KeyBuffer> readKeyBuffers;
+    private final ThreadLocal<KeyBuffer> writeKeyBuffers;
+
+    PrefixCompressedTreeNode( int pageSize, Layout<KEY,VALUE> layout )
+    {
+        super( pageSize, layout );
+        this.layout = layout;
+        this.pageSize = pageSize;
+        this.keySize = layout.keySize();
+        this.valueSize = layout.valueSize();
+        this.entriesOffset = BYTE_POS_PREFIX + keySize;
+        this.guaranteedLeafMaxKeyCount = Math.floorDiv( pageSize - entriesOffset, keySize + valueSize );
+        this.leafMaxKeyCount = 2 * guaranteedLeafMaxKeyCount - 1;
+
+        if ( guaranteedLeafMaxKeyCount < 2 )
+        {
+            throw new MetadataMismatchException(
+                    "For layout %s a page size of %d would only fit %d compressed leaf keys, minimum is 2",
+                    layout, pageSize, guaranteedLeafMaxKeyCount );
+        }
+        this.readKeyBuffers = ThreadLocal.withInitial( () -> new KeyBuffer( keySize ) );
+        this.writeKeyBuffers = ThreadLocal.withInitial( () -> new KeyBuffer( keySize ) );
+    }
+
+    @Override
+    KEY keyAt( PageCursor cursor, KEY into, int pos )
+    {
+        if ( !isLeaf( cursor ) )
+        {
+            return super.keyAt( cursor, into, pos );
+        }
+
+        int prefixLength = prefixLength( cursor );
+        KeyBuffer buffer = readKeyBuffers.get();
+        cursor.setOffset( BYTE_POS_PREFIX );
+        cursor.getBytes( buffer.bytes, 0, prefixLength );
+        cursor.setOffset( entryOffset( pos, prefixLength ) );
+        cursor.getBytes( buffer.bytes, prefixLength, keySize - prefixLength );
+        buffer.cursor.setOffset( 0 );
+        layout.readKey( buffer.cursor, into );
+        return into;
+    }
+
+    @Override
+    VALUE valueAt( PageCursor cursor, VALUE value, int pos )
+    {
+        int prefixLength = prefixLength( cursor );
+        cursor.setOffset( entryOffset( pos, prefixLength ) + keySize - prefixLength );
+        layout.readValue( cursor, value );
+        return value;
+    }
+
+    @Override
+    void setValueAt( PageCursor cursor, VALUE value, int pos )
+    {
+        int prefixLength = prefixLength( cursor );
+        cursor.setOffset( entryOffset( pos, prefixLength ) + keySize - prefixLength );
+        layout.writeValue( cursor, value );
+    }
+
+    @Override
+    void insertKeyValueAt( PageCursor cursor, KEY key, VALUE value, int pos, int keyCount )
+    {
+        byte[] keyBytes = keyBytes( key );
+        if ( keyCount == 0 )
+        {
+            // The only key in the leaf, so all of it is prefix
+            writePrefix( cursor, keyBytes, 0, keySize );
+            writeEntry( cursor, keySize, pos, keyBytes, value );
+            return;
+        }
+
+        int prefixLength = prefixLength( cursor );
+        int sharedPrefixLength = sharedPrefixLength( cursor, prefixLength, keyBytes );
+        if ( sharedPrefixLength < prefixLength )
+        {
+            // Prefix gets shorter, rewrite all entries with longer suffixes
+            byte[] entries = readEntriesWithInsert( cursor, keyCount, pos, key, value );
+            writeEntries( cursor, entries, 0, keyCount + 1, sharedPrefixLength );
+            return;
+        }
+
+        int entrySize = entrySize( prefixLength );
+        for ( int posToMoveRight = keyCount - 1, offset = entryOffset( posToMoveRight, prefixLength );
+              posToMoveRight >= pos; posToMoveRight--, offset -= entrySize )
+        {
+            cursor.copyTo( offset, cursor, offset + entrySize, entrySize );
+        }
+        writeEntry( cursor, prefixLength, pos, keyBytes, value );
+    }
+
+    @Override
+    void removeKeyValueAt( PageCursor cursor, int pos, int keyCount )
+    {
+        // Prefix is left as is since it's still common to all remaining keys
+        int prefixLength = prefixLength( cursor );
+        int entrySize = entrySize( prefixLength );
+        for ( int posToMoveLeft = pos + 1, offset = entryOffset( posToMoveLeft, prefixLength );
+              posToMoveLeft < keyCount; posToMoveLeft++, offset += entrySize )
+        {
+            cursor.copyTo( offset, cursor, offset - entrySize, entrySize );
+        }
+    }
+
+    @Override
+    boolean leafOverflow( PageCursor cursor, int keyCount, KEY newKey )
+    {
+        if ( keyCount >= leafMaxKeyCount )
+        {
+            return true;
+        }
+        if ( keyCount == 0 )
+        {
+            return false;
+        }
+        int sharedPrefixLength = sharedPrefixLength( cursor, prefixLength( cursor ), keyBytes( newKey ) );
+        return keyCount + 1 > leafCapacity( sharedPrefixLength );
+    }
+
+    @Override
+    boolean canMergeLeaves( PageCursor leftCursor, int leftKeyCount, PageCursor rightCursor, int rightKeyCount )
+    {
+        int totalKeyCount = leftKeyCount + rightKeyCount;
+        if ( totalKeyCount > leafMaxKeyCount )
+        {
+            return false;
+        }
+        if ( leftKeyCount == 0 || rightKeyCount == 0 )
+        {
+            return true;
+        }
+
+        // The prefix that both prefixes have in common is common to all keys, merge may find an even longer one
+        int leftPrefixLength = prefixLength( leftCursor );
+        int rightPrefixLength = prefixLength( rightCursor );
+        int sharedPrefixLength = 0;
+        int maxSharedPrefixLength = min( leftPrefixLength, rightPrefixLength );
+        while ( sharedPrefixLength < maxSharedPrefixLength &&
+                leftCursor.getByte( BYTE_POS_PREFIX + sharedPrefixLength ) ==
+                rightCursor.getByte( BYTE_POS_PREFIX + sharedPrefixLength ) )
+        {
+            sharedPrefixLength++;
+        }
+        return totalKeyCount <= leafCapacity( sharedPrefixLength );
+    }
+
+    @Override
+    void moveKeyValuesFromLeftToRight( PageCursor leftCursor, int leftKeyCount, PageCursor rightCursor,
+            int rightKeyCount, int count )
+    {
+        // Prefix of left is still common to the keys that are left there
+        int totalKeyCount = count + rightKeyCount;
+        byte[] entries = new byte[totalKeyCount * fullEntrySize()];
+        readEntries( leftCursor, leftKeyCount - count, count, entries, 0 );
+        readEntries( rightCursor, 0, rightKeyCount, entries, count );
+        writeEntries( rightCursor, entries, 0, totalKeyCount, commonPrefixLength( entries, 0, totalKeyCount ) );
+    }
+
+    @Override
+    void doSplitLeaf( PageCursor leftCursor, int leftKeyCount, PageCursor rightCursor, int pos,
+            KEY newKey, VALUE newValue, int middlePos )
+    {
+        int keyCountAfterInsert = leftKeyCount + 1;
+        int rightKeyCount = keyCountAfterInsert - middlePos;
+        byte[] entries = readEntriesWithInsert( leftCursor, leftKeyCount, pos, newKey, newValue );
+        writeEntries( rightCursor, entries, middlePos, rightKeyCount,
+                commonPrefixLength( entries, middlePos, rightKeyCount ) );
+        writeEntries( leftCursor, entries, 0, middlePos, commonPrefixLength( entries, 0, middlePos ) );
+    }
+
+    @Override
+    int leafMaxKeyCount()
+    {
+        return leafMaxKeyCount;
+    }
+
+    @Override
+    int guaranteedLeafMaxKeyCount()
+    {
+        return guaranteedLeafMaxKeyCount;
+    }
+
+    // HELPERS
+
+    private int prefixLength( PageCursor cursor )
+    {
+        int prefixLength = cursor.getShort( BYTE_POS_PREFIX_LENGTH );
+        if ( prefixLength < 0 || prefixLength > keySize )
+        {
+            cursor.setCursorException( "Unexpected prefix length " + prefixLength );
+            return 0;
+        }
+        return prefixLength;
+    }
+
+    private int entrySize( int prefixLength )
+    {
+        return keySize - prefixLength + valueSize;
+    }
+
+    private int fullEntrySize()
+    {
+        return keySize + valueSize;
+    }
+
+    private int entryOffset( int pos, int prefixLength )
+    {
+        return entriesOffset + pos * entrySize( prefixLength );
+    }
+
+    private int leafCapacity( int prefixLength )
+    {
+        int entrySize = entrySize( prefixLength );
+        return entrySize == 0 ? leafMaxKeyCount : min( leafMaxKeyCount, (pageSize - entriesOffset) / entrySize );
+    }
+
+    /**
+     * @return bytes of {@code key} in a buffer which is reused by the next call from the same thread.
+     */
+    private byte[] keyBytes( KEY key )
+    {
+        KeyBuffer buffer = writeKeyBuffers.get();
+        buffer.cursor.setOffset( 0 );
+        layout.writeKey( buffer.cursor, key );
+        return buffer.bytes;
+    }
+
+    private int sharedPrefixLength( PageCursor cursor, int prefixLength, byte[] keyBytes )
+    {
+        for ( int i = 0; i < prefixLength; i++ )
+        {
+            if ( cursor.getByte( BYTE_POS_PREFIX + i ) != keyBytes[i] )
+            {
+                return i;
+            }
+        }
+        return prefixLength;
+    }
+
+    private void writePrefix( PageCursor cursor, byte[] bytes, int offset, int prefixLength )
+    {
+        cursor.putShort( BYTE_POS_PREFIX_LENGTH, (short) prefixLength );
+        cursor.setOffset( BYTE_POS_PREFIX );
+        cursor.putBytes( bytes, offset, prefixLength );
+    }
+
+    private void writeEntry( PageCursor cursor, int prefixLength, int pos, byte[] keyBytes, VALUE value )
+    {
+        cursor.setOffset( entryOffset( pos, prefixLength ) );
+        cursor.putBytes( keyBytes, prefixLength, keySize - prefixLength );
+        layout.writeValue( cursor, value );
+    }
+
+    /**
+     * Reads all entries of leaf, with the given key and value inserted at {@code pos}, as whole keys and values.
+     */
+    private byte[] readEntriesWithInsert( PageCursor cursor, int keyCount, int pos, KEY key, VALUE value )
+    {
+        byte[] entries = new byte[(keyCount + 1) * fullEntrySize()];
+        readEntries( cursor, 0, pos, entries, 0 );
+        PageCursor entriesCursor = ByteArrayPageCursor.wrap( entries );
+        entriesCursor.setOffset( pos * fullEntrySize() );
+        layout.writeKey( entriesCursor, key );
+        layout.writeValue( entriesCursor, value );
+        readEntries( cursor, pos, keyCount - pos, entries, pos + 1 );
+        return entries;
+    }
+
+    /**
+     * Reads {@code count} entries from {@code pos} in leaf, as whole keys followed by values, into {@code into}
+     * starting at entry {@code intoPos}.
+     */
+    private void readEntries( PageCursor cursor, int pos, int count, byte[] into, int intoPos )
+    {
+        if ( count == 0 )
+        {
+            return;
+        }
+
+        int prefixLength = prefixLength( cursor );
+        int entrySize = entrySize( prefixLength );
+        for ( int i = 0, intoOffset = intoPos * fullEntrySize(); i < count; i++, intoOffset += fullEntrySize() )
+        {
+            cursor.setOffset( BYTE_POS_PREFIX );
+            cursor.getBytes( into, intoOffset, prefixLength );
+            cursor.setOffset( entryOffset( pos + i, prefixLength ) );
+            cursor.getBytes( into, intoOffset + prefixLength, entrySize );
+        }
+    }
+
+    /**
+     * Overwrites leaf with {@code count} whole entries from {@code entries}, starting at entry {@code from},
+     * compressed with the given prefix length.
+     */
+    private void writeEntries( PageCursor cursor, byte[] entries, int from, int count, int prefixLength )
+    {
+        int fromOffset = from * fullEntrySize();
+        writePrefix( cursor, entries, fromOffset, prefixLength );
+        int entrySize = entrySize( prefixLength );
+        cursor.setOffset( entriesOffset );
+        for ( int i = 0, offset = fromOffset; i < count; i++, offset += fullEntrySize() )
+        {
+            cursor.putBytes( entries, offset + prefixLength, entrySize );
+        }
+    }
+
+    /**
+     * @return length of the prefix that the keys of the {@code count} whole entries from entry {@code from}
+     * have in common.
+     */
+    private int commonPrefixLength( byte[] entries, int from, int count )
+    {
+        int prefixLength = keySize;
+        int firstOffset = from * fullEntrySize();
+        for ( int i = 1, offset = firstOffset + fullEntrySize(); i < count && prefixLength > 0;
+              i++, offset += fullEntrySize() )
+        {
+            int shared = 0;
+            while ( shared < prefixLength && entries[firstOffset + shared] == entries[offset + shared] )
+            {
+                shared++;
+            }
+            prefixLength = shared;
+        }
+        return prefixLength;
+    }
+
+    private static class KeyBuffer
+    {
+        private final byte[] bytes;
+        private final PageCursor cursor;
+
+        KeyBuffer( int keySize )
+        {
+            this.bytes = new byte[keySize];
+            this.cursor = ByteArrayPageCursor.wrap( bytes );
+        }
+    }
+}
@@ -288,6 +288,107 @@ class TreeNode<KEY,VALUE>
         layout.writeValue( cursor, value );
     }
 
+    // LEAF ENTRY METHODS
+
+    /**
+     * Inserts key and value at {@code pos} in leaf, which must have room for it as told by
+     * {@link #leafOverflow(PageCursor, int, Object)}. Key count is left for the caller to set.
+     */
+    void insertKeyValueAt( PageCursor cursor, KEY key, VALUE value, int pos, int keyCount )
+    {
+        insertKeyAt( cursor, key, pos, keyCount );
+        insertValueAt( cursor, value, pos, keyCount );
+    }
+
+    /**
+     * Removes key and value at {@code pos} in leaf. Key count is left for the caller to set.
+     */
+    void removeKeyValueAt( PageCursor cursor, int pos, int keyCount )
+    {
+        removeKeyAt( cursor, pos, keyCount );
+        removeValueAt( cursor, pos, keyCount );
+    }
+
+    /**
+     * @return whether or not inserting {@code newKey} into leaf with {@code keyCount} keys would overflow it.
+     */
+    boolean leafOverflow( PageCursor cursor, int keyCount, KEY newKey )
+    {
+        return keyCount >= leafMaxKeyCount;
+    }
+
+    /**
+     * @return whether or not all entries of the two sibling leaves fits in a single leaf.
+     */
+    boolean canMergeLeaves( PageCursor leftCursor, int leftKeyCount, PageCursor rightCursor, int rightKeyCount )
+    {
+        return leftKeyCount + rightKeyCount <= leafMaxKeyCount;
+    }
+
+    /**
+     * Moves the last {@code count} entries of left leaf to the beginning of right sibling leaf, which must have room
+     * for them. Key counts are left for the caller to set.
+     */
+    void moveKeyValuesFromLeftToRight( PageCursor leftCursor, int leftKeyCount, PageCursor rightCursor,
+            int rightKeyCount, int count )
+    {
+        insertKeySlotsAt( rightCursor, 0, count, rightKeyCount );
+        insertValueSlotsAt( rightCursor, 0, count, rightKeyCount );
+        copyKeysAndValues( leftCursor, leftKeyCount - count, rightCursor, 0, count );
+    }
+
+    /**
+     * Splits a full leaf as if {@code newKey} and {@code newValue} were inserted at {@code pos}, where
+     * entries from {@code middlePos} and up are written to the new right leaf and the rest stays in the left leaf.
+     * Key counts are left for the caller to set.
+     */
+    void doSplitLeaf( PageCursor leftCursor, int leftKeyCount, PageCursor rightCursor, int pos,
+            KEY newKey, VALUE newValue, int middlePos )
+    {
+        int rightKeyCount = leftKeyCount + 1 - middlePos;
+        if ( pos < middlePos )
+        {
+            //                  v-------v       copy
+            // before _,_,_,_,_,_,_,_,_,_
+            // insert _,_,_,X,_,_,_,_,_,_,_
+            // middle           ^
+            copyKeysAndValues( leftCursor, middlePos - 1, rightCursor, 0, rightKeyCount );
+        }
+        else
+        {
+            //                  v---v           first copy
+            //                        v-v       second copy
+            // before _,_,_,_,_,_,_,_,_,_
+            // insert _,_,_,_,_,_,_,_,X,_,_
+            // middle           ^
+            int countBeforePos = pos - middlePos;
+            if ( countBeforePos > 0 )
+            {
+                // first copy
+                copyKeysAndValues( leftCursor, middlePos, rightCursor, 0, countBeforePos );
+            }
+            insertKeyValueAt( rightCursor, newKey, newValue, countBeforePos, countBeforePos );
+            int countAfterPos = leftKeyCount - pos;
+            if ( countAfterPos > 0 )
+            {
+                // second copy
+                copyKeysAndValues( leftCursor, pos, rightCursor, countBeforePos + 1, countAfterPos );
+            }
+        }
+
+        // If pos < middle. Write shifted values to left node. Else, don't write anything.
+        if ( pos < middlePos )
+        {
+            insertKeyValueAt( leftCursor, newKey, newValue, pos, middlePos - 1 );
+        }
+    }
+
+    private void copyKeysAndValues( PageCursor fromCursor, int fromPos, PageCursor toCursor, int toPos, int count )
+    {
+        fromCursor.copyTo( keyOffset( fromPos ), toCursor, keyOffset( toPos ), count * keySize );
+        fromCursor.copyTo( valueOffset( fromPos ), toCursor, valueOffset( toPos ), count * valueSize );
+    }
+
     long childAt( PageCursor cursor, int pos, long stableGeneration, long unstableGeneration )
     {
         cursor.setOffset( childOffset( pos ) );
@@ -357,6 +458,15 @@ class TreeNode<KEY,VALUE>
         return leafMaxKeyCount;
     }
 
+    /**
+     * @return number of keys which a leaf can hold regardless of which keys they are. Same as
+     * {@link #leafMaxKeyCount()} for leaves where every key takes the same space.
+     */
+    int guaranteedLeafMaxKeyCount()
+    {
+        return leafMaxKeyCount;
+    }
+
     // HELPERS
 
     int keyOffset( int pos )
@@ -35,7 +35,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -1141,6 +1143,112 @@ public class GBPTreeTest
         }
     }
 
+    /* Partitioned seek tests */
+
+    @Test
+    public void shouldPartitionSeekIntoSubRangesCoveringWholeRange() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            int count = 10_000;
+            insertSequential( index, count );
+
+            // WHEN
+            List<RawCursor<Hit<MutableLong,MutableLong>,IOException>> seekers =
+                    index.partitionedSeek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ), 8 );
+
+            // THEN
+            assertEquals( 8, seekers.size() );
+            assertSeekersHitSequentialKeys( seekers, 0, count );
+        }
+    }
+
+    @Test
+    public void shouldPartitionSeekOfSubRange() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            insertSequential( index, 10_000 );
+
+            // WHEN
+            int from = random.nextInt( 5_000 );
+            int to = from + random.nextInt( 5_000 );
+            List<RawCursor<Hit<MutableLong,MutableLong>,IOException>> seekers =
+                    index.partitionedSeek( new MutableLong( from ), new MutableLong( to ), random.nextInt( 1, 20 ) );
+
+            // THEN
+            assertSeekersHitSequentialKeys( seekers, from, to );
+        }
+    }
+
+    @Test
+    public void shouldPartitionSeekIntoSingleSubRangeIfRootIsLeaf() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            insertSequential( index, 3 );
+
+            // WHEN
+            List<RawCursor<Hit<MutableLong,MutableLong>,IOException>> seekers =
+                    index.partitionedSeek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ), 4 );
+
+            // THEN
+            assertEquals( 1, seekers.size() );
+            assertSeekersHitSequentialKeys( seekers, 0, 3 );
+        }
+    }
+
+    @Test
+    public void shouldFailPartitionedSeekOfDescendingRange() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            // WHEN
+            try
+            {
+                index.partitionedSeek( new MutableLong( 10 ), new MutableLong( 0 ), 2 );
+                fail( "Should have failed" );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // THEN good
+            }
+        }
+    }
+
+    private static void insertSequential( GBPTree<MutableLong,MutableLong> index, int count ) throws IOException
+    {
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                writer.put( new MutableLong( i ), new MutableLong( i ) );
+            }
+        }
+    }
+
+    private static void assertSeekersHitSequentialKeys(
+            List<RawCursor<Hit<MutableLong,MutableLong>,IOException>> seekers, long fromInclusive, long toExclusive )
+            throws IOException
+    {
+        long expected = fromInclusive;
+        for ( RawCursor<Hit<MutableLong,MutableLong>,IOException> seeker : seekers )
+        {
+            try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor = seeker )
+            {
+                while ( cursor.next() )
+                {
+                    assertEquals( expected++, cursor.get().key().longValue() );
+                }
+            }
+        }
+        assertEquals( toExclusive, expected );
+    }
+
     /* Randomized tests */
 
     @Test
@@ -1192,6 +1300,343 @@ public class GBPTreeTest
         }
     }
 
+    @Test
+    public void shouldStayCorrectWithCompressedLeafKeys() throws Exception
+    {
+        // GIVEN
+        Layout<MutableLong,MutableLong> compressingLayout = new SimpleLongLayout()
+        {
+            @Override
+            public boolean compressLeafKeys()
+            {
+                return true;
+            }
+        };
+        Map<Long,Long> expected = new TreeMap<>();
+        PageCache pageCache = createPageCache( DEFAULT_PAGE_SIZE );
+        try ( GBPTree<MutableLong,MutableLong> index =
+                      new GBPTreeBuilder<>( pageCache, indexFile, compressingLayout ).build() )
+        {
+            for ( int round = 0; round < 10; round++ )
+            {
+                // WHEN
+                try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+                {
+                    for ( int i = 0; i < 1_000; i++ )
+                    {
+                        // Mostly keys with many leading bytes in common, some which shorten prefixes
+                        long key = random.nextInt( 100 ) == 0 ? random.nextLong() : random.nextInt( 10_000 );
+                        if ( random.nextInt( 3 ) == 0 )
+                        {
+                            MutableLong removed = writer.remove( new MutableLong( key ) );
+                            Long expectedRemoved = expected.remove( key );
+                            assertEquals( expectedRemoved, removed == null ? null : removed.toLong() );
+                        }
+                        else
+                        {
+                            long value = random.nextLong();
+                            writer.put( new MutableLong( key ), new MutableLong( value ) );
+                            expected.put( key, value );
+                        }
+                    }
+                }
+
+                // THEN
+                assertTrue( index.consistencyCheck() );
+                try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                              index.seek( new MutableLong( Long.MIN_VALUE ), new MutableLong( Long.MAX_VALUE ) ) )
+                {
+                    for ( Map.Entry<Long,Long> entry : expected.entrySet() )
+                    {
+                        assertTrue( cursor.next() );
+                        assertEquals( entry.getKey().longValue(), cursor.get().key().longValue() );
+                        assertEquals( entry.getValue().longValue(), cursor.get().value().longValue() );
+                    }
+                    assertFalse( cursor.next() );
+                }
+            }
+        }
+    }
+
+    /* Bulk load tests */
+
+    @Test
+    public void shouldSeeBulkLoadedEntries() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            // WHEN
+            int count = 10_000;
+            bulkLoad( index, count, random.nextDouble() * 0.9 + 0.1 );
+
+            // THEN
+            assertTrue( index.consistencyCheck() );
+            assertSeeBulkLoaded( index, count );
+        }
+    }
+
+    @Test
+    public void shouldBulkLoadNothing() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            // WHEN
+            bulkLoad( index, 0, 1.0 );
+
+            // THEN
+            assertTrue( index.consistencyCheck() );
+            assertSeeBulkLoaded( index, 0 );
+        }
+    }
+
+    @Test
+    public void shouldFailBulkLoadOfKeysNotInAscendingOrder() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            try ( BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader( 1.0 ) )
+            {
+                bulkLoader.add( new MutableLong( 10 ), new MutableLong( 10 ) );
+
+                // WHEN
+                bulkLoader.add( new MutableLong( 10 ), new MutableLong( 10 ) );
+                fail( "Should have failed" );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // THEN good
+            }
+
+            // and writer should be released
+            try ( Writer<MutableLong,MutableLong> ignored = index.writer() )
+            {
+            }
+        }
+    }
+
+    @Test
+    public void shouldFailBulkLoadIntoNonEmptyIndex() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            insert( index, 0, 1 );
+
+            // WHEN
+            try
+            {
+                index.bulkLoader( 1.0 );
+                fail( "Should have failed" );
+            }
+            catch ( IllegalStateException e )
+            {
+                // THEN good
+            }
+
+            // and writer should be released
+            try ( Writer<MutableLong,MutableLong> ignored = index.writer() )
+            {
+            }
+        }
+    }
+
+    @Test
+    public void shouldWriteToBulkLoadedIndex() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            int count = 5_000;
+            bulkLoad( index, count, 1.0 );
+
+            // WHEN
+            try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+            {
+                for ( int i = 0; i < count; i++ )
+                {
+                    writer.remove( new MutableLong( i * 2 ) );
+                    writer.put( new MutableLong( i * 2 + 1 ), new MutableLong( i * 2 + 1 ) );
+                }
+            }
+
+            // THEN
+            assertTrue( index.consistencyCheck() );
+            try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                          index.seek( new MutableLong( 0 ), new MutableLong( Long.MAX_VALUE ) ) )
+            {
+                for ( int i = 0; i < count; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    assertEquals( i * 2 + 1, cursor.get().key().longValue() );
+                }
+                assertFalse( cursor.next() );
+            }
+        }
+    }
+
+    @Test
+    public void shouldSeeBulkLoadedEntriesAfterCheckpointAndReopen() throws Exception
+    {
+        // GIVEN
+        int count = 5_000;
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            bulkLoad( index, count, 0.5 );
+
+            // WHEN
+            index.checkpoint( unlimited() );
+        }
+
+        // THEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            assertTrue( index.consistencyCheck() );
+            assertSeeBulkLoaded( index, count );
+        }
+    }
+
+    @Test
+    public void mustNotSeeBulkLoadedEntriesThatWasNotCheckpointed() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            bulkLoad( index, 5_000, 1.0 );
+
+            // WHEN
+            // No checkpoint before close
+        }
+
+        // THEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            assertSeeBulkLoaded( index, 0 );
+        }
+    }
+
+    @Test
+    public void shouldCheckpointBetweenBulkLoadBatches() throws Exception
+    {
+        // GIVEN
+        int count = GBPTree.BULK_LOAD_BATCH_SIZE * 3;
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            try ( BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader( 1.0 ) )
+            {
+                for ( int i = 0; i < count; i++ )
+                {
+                    bulkLoader.add( new MutableLong( i * 2 ), new MutableLong( i ) );
+                    if ( (i + 1) % GBPTree.BULK_LOAD_BATCH_SIZE == 0 )
+                    {
+                        // WHEN
+                        Future<?> checkpoint = executor.submit( throwing( () -> index.checkpoint( unlimited() ) ) );
+                        checkpoint.get( 10, TimeUnit.SECONDS );
+                    }
+                }
+            }
+            index.checkpoint( unlimited() );
+        }
+
+        // THEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            assertTrue( index.consistencyCheck() );
+            assertSeeBulkLoaded( index, count );
+        }
+    }
+
+    @Test
+    public void shouldNotAcquireWriterWhileBulkLoading() throws Exception
+    {
+        // GIVEN
+        try ( GBPTree<MutableLong,MutableLong> index = index().build() )
+        {
+            try ( BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader( 1.0 ) )
+            {
+                for ( int i = 0; i < GBPTree.BULK_LOAD_BATCH_SIZE; i++ )
+                {
+                    bulkLoader.add( new MutableLong( i ), new MutableLong( i ) );
+                }
+
+                // WHEN
+                try
+                {
+                    index.writer();
+                    fail( "Should have failed" );
+                }
+                catch ( IllegalStateException e )
+                {
+                    // THEN good
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldFailBulkLoadIntoClosedIndex() throws Exception
+    {
+        // GIVEN
+        GBPTree<MutableLong,MutableLong> index = index().build();
+        BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader( 1.0 );
+        for ( int i = 0; i < GBPTree.BULK_LOAD_BATCH_SIZE; i++ )
+        {
+            bulkLoader.add( new MutableLong( i ), new MutableLong( i ) );
+        }
+
+        // WHEN
+        executor.submit( throwing( index::close ) ).get( 10, TimeUnit.SECONDS );
+
+        // THEN
+        try
+        {
+            bulkLoader.add( new MutableLong( GBPTree.BULK_LOAD_BATCH_SIZE ), new MutableLong( 0 ) );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // good
+        }
+        try
+        {
+            bulkLoader.close();
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // good
+        }
+    }
+
+    private static void bulkLoad( GBPTree<MutableLong,MutableLong> index, int count, double fillFactor )
+            throws IOException
+    {
+        try ( BulkLoader<MutableLong,MutableLong> bulkLoader = index.bulkLoader( fillFactor ) )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                bulkLoader.add( new MutableLong( i * 2 ), new MutableLong( i ) );
+            }
+        }
+    }
+
+    private static void assertSeeBulkLoaded( GBPTree<MutableLong,MutableLong> index, int count ) throws IOException
+    {
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                      index.seek( new MutableLong( Long.MIN_VALUE ), new MutableLong( Long.MAX_VALUE ) ) )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                assertTrue( cursor.next() );
+                assertEquals( i * 2, cursor.get().key().longValue() );
+                assertEquals( i, cursor.get().value().longValue() );
+            }
+            assertFalse( cursor.next() );
+        }
+    }
+
     /* Checkpoint tests */
 
     @Test
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrefixCompressedTreeNodeTest
+{
+    private static final int STABLE_GENERATION = 1;
+    private static final int UNSTABLE_GENERATION = 3;
+
+    private static final int PAGE_SIZE = 512;
+    private final PageCursor cursor = new PageAwareByteArrayCursor( PAGE_SIZE );
+    private final Layout<MutableLong,MutableLong> layout = new SimpleLongLayout();
+    private final PrefixCompressedTreeNode<MutableLong,MutableLong> node =
+            new PrefixCompressedTreeNode<>( PAGE_SIZE, layout );
+
+    @Before
+    public void prepareCursor() throws IOException
+    {
+        cursor.next();
+        TreeNode.initializeLeaf( cursor, STABLE_GENERATION, UNSTABLE_GENERATION );
+    }
+
+    @Test
+    public void shouldFitMoreKeysWithCommonPrefixThanUncompressedLeaf() throws Exception
+    {
+        // WHEN
+        int keyCount = fill( cursor, 0 );
+
+        // THEN
+        assertTrue( keyCount > new TreeNode<>( PAGE_SIZE, layout ).leafMaxKeyCount() );
+        assertKeysAndValues( cursor, 0, keyCount );
+    }
+
+    @Test
+    public void shouldShortenPrefixWhenInsertingKeyNotSharingIt() throws Exception
+    {
+        // GIVEN
+        int keyCount = 0;
+        for ( ; keyCount < node.guaranteedLeafMaxKeyCount() - 1; keyCount++ )
+        {
+            insert( cursor, keyCount, keyCount );
+        }
+
+        // WHEN
+        assertFalse( node.leafOverflow( cursor, keyCount, new MutableLong( -1 ) ) );
+        node.insertKeyValueAt( cursor, new MutableLong( Long.MAX_VALUE ), new MutableLong( -1 ), keyCount, keyCount );
+        keyCount++;
+        TreeNode.setKeyCount( cursor, keyCount );
+
+        // THEN
+        assertKeysAndValues( cursor, 0, keyCount - 1 );
+        assertEquals( Long.MAX_VALUE, node.keyAt( cursor, new MutableLong(), keyCount - 1 ).longValue() );
+        assertEquals( -1, node.valueAt( cursor, new MutableLong(), keyCount - 1 ).longValue() );
+    }
+
+    @Test
+    public void shouldOverflowBeforeMaxKeyCountIfPrefixWouldGetShorter() throws Exception
+    {
+        // GIVEN
+        int keyCount = node.guaranteedLeafMaxKeyCount() + 1;
+        for ( int i = 0; i < keyCount; i++ )
+        {
+            insert( cursor, i, i );
+        }
+
+        // WHEN/THEN
+        assertFalse( node.leafOverflow( cursor, keyCount, new MutableLong( keyCount ) ) );
+        assertTrue( node.leafOverflow( cursor, keyCount, new MutableLong( Long.MAX_VALUE ) ) );
+    }
+
+    @Test
+    public void shouldRemoveKeyValue() throws Exception
+    {
+        // GIVEN
+        int keyCount = fill( cursor, 0 );
+
+        // WHEN
+        node.removeKeyValueAt( cursor, 0, keyCount );
+        keyCount--;
+        TreeNode.setKeyCount( cursor, keyCount );
+
+        // THEN
+        assertKeysAndValues( cursor, 1, keyCount );
+    }
+
+    @Test
+    public void shouldSplitFullLeafIntoHalvesThatFitWithoutCommonPrefix() throws Exception
+    {
+        // GIVEN
+        int keyCount = fill( cursor, 0 );
+        PageCursor rightCursor = new PageAwareByteArrayCursor( PAGE_SIZE );
+        rightCursor.next();
+        TreeNode.initializeLeaf( rightCursor, STABLE_GENERATION, UNSTABLE_GENERATION );
+
+        // WHEN
+        int keyCountAfterInsert = keyCount + 1;
+        int middlePos = keyCountAfterInsert / 2;
+        node.doSplitLeaf( cursor, keyCount, rightCursor, keyCount, new MutableLong( Long.MAX_VALUE ),
+                new MutableLong( 1 ), middlePos );
+        TreeNode.setKeyCount( cursor, middlePos );
+        TreeNode.setKeyCount( rightCursor, keyCountAfterInsert - middlePos );
+
+        // THEN
+        assertKeysAndValues( cursor, 0, middlePos );
+        int rightKeyCount = keyCountAfterInsert - middlePos;
+        assertKeysAndValues( rightCursor, middlePos, rightKeyCount - 1 );
+        assertEquals( Long.MAX_VALUE, node.keyAt( rightCursor, new MutableLong(), rightKeyCount - 1 ).longValue() );
+    }
+
+    @Test
+    public void shouldMoveKeyValuesFromLeftToRight() throws Exception
+    {
+        // GIVEN
+        int leftKeyCount = node.guaranteedLeafMaxKeyCount();
+        for ( int i = 0; i < leftKeyCount; i++ )
+        {
+            insert( cursor, i, i );
+        }
+        PageCursor rightCursor = new PageAwareByteArrayCursor( PAGE_SIZE );
+        rightCursor.next();
+        TreeNode.initializeLeaf( rightCursor, STABLE_GENERATION, UNSTABLE_GENERATION );
+        int rightKeyCount = 2;
+        for ( int i = 0; i < rightKeyCount; i++ )
+        {
+            insert( rightCursor, leftKeyCount + i, leftKeyCount + i );
+        }
+
+        // WHEN
+        assertTrue( node.canMergeLeaves( cursor, leftKeyCount, rightCursor, rightKeyCount ) );
+        int count = leftKeyCount / 2;
+        node.moveKeyValuesFromLeftToRight( cursor, leftKeyCount, rightCursor, rightKeyCount, count );
+        TreeNode.setKeyCount( cursor, leftKeyCount - count );
+        TreeNode.setKeyCount( rightCursor, rightKeyCount + count );
+
+        // THEN
+        assertKeysAndValues( cursor, 0, leftKeyCount - count );
+        assertKeysAndValues( rightCursor, leftKeyCount - count, rightKeyCount + count );
+    }
+
+    private int fill( PageCursor cursor, long firstKey )
+    {
+        int keyCount = 0;
+        MutableLong key = new MutableLong( firstKey );
+        while ( !node.leafOverflow( cursor, keyCount, key ) )
+        {
+            node.insertKeyValueAt( cursor, key, key, keyCount, keyCount );
+            keyCount++;
+            TreeNode.setKeyCount( cursor, keyCount );
+            key.increment();
+        }
+        return keyCount;
+    }
+
+    private void insert( PageCursor cursor, long key, long value )
+    {
+        int keyCount = TreeNode.keyCount( cursor );
+        node.insertKeyValueAt( cursor, new MutableLong( key ), new MutableLong( value ), keyCount, keyCount );
+        TreeNode.setKeyCount( cursor, keyCount + 1 );
+    }
+
+    private void assertKeysAndValues( PageCursor cursor, long firstKey, int count )
+    {
+        MutableLong readKey = new MutableLong();
+        MutableLong readValue = new MutableLong();
+        for ( int pos = 0; pos < count; pos++ )
+        {
+            assertEquals( firstKey + pos, node.keyAt( cursor, readKey, pos ).longValue() );
+            assertEquals( firstKey + pos, node.valueAt( cursor, readValue, pos ).longValue() );
+        }
+    }
+}
@@ -103,12 +103,45 @@ public interface IOLimiter
         // Same as for disableLimit().
     }
 
+    /**
+     * Tell whether or not this IOLimiter is currently restricting the rate of IO.
+     * <p>
+     * Flushes that are rate limited will try to coalesce their writes into fewer and larger IOs, even if that means
+     * writing a few clean pages along with the dirty ones. This is a good trade when the number of IOs is what is
+     * being rationed, but a waste of bandwidth when flushing at full speed.
+     *
+     * @return {@code true} if IO is currently being limited, otherwise {@code false}.
+     */
+    default boolean isLimited()
+    {
+        // By default, we assume that implementations limit IO.
+        return true;
+    }
+
     /**
      * An IOPSLimiter implementation that does not restrict the rate of IO. Use this implementation if you want the
      * flush to go as fast as possible.
      */
+    IOLimiter UNLIMITED = new IOLimiter()
+    {
+        @Override
+        public long maybeLimitIO( long previousStamp, int recentlyCompletedIOs, Flushable flushable )
+        {
+            return previousStamp;
+        }
+
+        @Override
+        public boolean isLimited()
+        {
+            return false;
+        }
+    };
+
+    /**
+     * @return the {@link #UNLIMITED} IOPSLimiter, which does not restrict the rate of IO.
+     */
     static IOLimiter unlimited()
     {
-        return ( previousStamp, recentlyCompletedIOs, flushable ) -> previousStamp;
+        return UNLIMITED;
     }
 }
@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Optional;
 
 import org.neo4j.io.fs.FileSystemAbstraction;
@@ -78,6 +79,19 @@ public interface PageCache extends AutoCloseable
      */
     Optional<PagedFile> getExistingMapping( File file ) throws IOException;
 
+    /**
+     * List a snapshot of the current file mappings.
+     * <p>
+     * The mappings can change as soon as this method returns.
+     * <p>
+     * NOTE! The reference counts of the returned {@link PagedFile}s are <em>not</em> incremented, so the caller must
+     * not close them, and must be prepared for them to be unmapped elsewhere at any time.
+     *
+     * @return the list of {@link PagedFile}s that are currently mapped by this page cache.
+     * @throws IOException if page cache has been closed or page eviction problems occur.
+     */
+    List<PagedFile> listExistingMappings() throws IOException;
+
     /** Flush all dirty pages */
     void flushAndForce() throws IOException;
 
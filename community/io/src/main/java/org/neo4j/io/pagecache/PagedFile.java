@@ -63,13 +63,22 @@ public interface PagedFile extends AutoCloseable
     int PF_NO_GROW = 1 << 2;
     /**
      * Read-ahead hint for sequential forward scanning.
+     * <p>
+     * Read cursors will ask the page cache to asynchronously fault in the pages following the ones they visit, with
+     * large vectored reads, from their very first {@link PageCursor#next()} call. Without this flag, read cursors
+     * only start reading ahead once they have observed a sequential access pattern.
      */
-    int PF_READ_AHEAD = 1 << 3; // TBD
+    int PF_READ_AHEAD = 1 << 3;
     /**
-     * Do not load in the page if it is not loaded already. Only useful with
-     * exclusive locking when you want to overwrite the whole page anyway.
+     * Do not load in the page if it is not loaded already.
+     * <p>
+     * Only supported by read cursors. The {@link PageCursor#next()} and {@link PageCursor#next(long)} methods will
+     * still return {@code true} for pages that are within the range of the file, but
+     * {@link PageCursor#getCurrentPageId()} will return {@link PageCursor#UNBOUND_PAGE_ID} for pages that are not in
+     * memory. Visiting a page with this flag does not count as an access to the page, as far as eviction is concerned.
+     * This is useful for finding out which pages of a file are in memory.
      */
-    int PF_NO_FAULT = 1 << 4; // TBD
+    int PF_NO_FAULT = 1 << 4;
     /**
      * Do not update page access statistics.
      */
@@ -139,6 +148,11 @@ public interface PagedFile extends AutoCloseable
      */
     int pageSize();
 
+    /**
+     * Get the file that this paged file is a mapping of.
+     */
+    File file();
+
     /**
      * Size of file, in bytes.
      */
@@ -158,6 +172,21 @@ public interface PagedFile extends AutoCloseable
      */
     void flushAndForce( IOLimiter limiter ) throws IOException;
 
+    /**
+     * Flush the dirty pages among the given range of file pages into the file channel, and force the file channel to
+     * disk, limiting the rate of IO as advised by the given IOPSLimiter.
+     * <p>
+     * This allows dirty pages to be written out a little at a time, ahead of a full {@link #flushAndForce(IOLimiter)}.
+     * Pages outside the range, and pages dirtied again after they have been flushed, are left dirty. So are pages in
+     * the range that are locked when the flush gets to them, since they are skipped rather than waited for.
+     *
+     * @param startFilePageId the file page id of the first page in the range, inclusive.
+     * @param endFilePageId the file page id of the last page in the range, exclusive.
+     * @param limiter The {@link IOLimiter} that determines if pauses or sleeps should be injected into the flushing
+     * process to keep the IO rate down.
+     */
+    void flushAndForceRange( long startFilePageId, long endFilePageId, IOLimiter limiter ) throws IOException;
+
     /**
      * Get the file-page-id of the last page in the file.
      * <p>
@@ -44,6 +44,7 @@ import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
 import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
 
 import static java.lang.String.format;
+import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
 
 /**
  * A simple PageSwapper implementation that directs all page swapping to a
@@ -79,7 +80,13 @@ public class SingleFilePageSwapper implements PageSwapper
     private static final long fileSizeOffset =
             UnsafeUtil.getFieldOffset( SingleFilePageSwapper.class, "fileSize" );
 
+    // The size in bytes of the buffer that vectored writes are gathered into, when the channel does not support
+    // gathering writes at a given position. Vectors larger than this are written in multiple gathered chunks.
+    private static final int gatherBufferSize = getInteger(
+            SingleFilePageSwapper.class, "gatherBufferSize", 1024 * 1024 );
+
     private static final ThreadLocal<ByteBuffer> proxyCache = new ThreadLocal<>();
+    private static final ThreadLocal<ByteBuffer> gatherBufferCache = new ThreadLocal<>();
     private static final MethodHandle positionLockGetter = getPositionLockGetter();
 
     private static MethodHandle getPositionLockGetter()
@@ -276,6 +283,13 @@ public class SingleFilePageSwapper implements PageSwapper
         return filePageSize;
     }
 
+    private int swapOut( ByteBuffer buffer, long fileOffset, StoreChannel channel ) throws IOException
+    {
+        int bytes = buffer.remaining();
+        channel.writeAll( buffer, fileOffset );
+        return bytes;
+    }
+
     private void clear( long bufferAddress, int bufferSize )
     {
         UnsafeUtil.setMemory( bufferAddress, bufferSize, MuninnPageCache.ZERO_BYTE );
@@ -546,18 +560,76 @@ public class SingleFilePageSwapper implements PageSwapper
         }
     }
 
-    private int writePositionVectoredFallback( long startFilePageId, long[] bufferAddresses, int arrayOffset, int length )
-            throws IOException
+    private long writePositionVectoredFallback( long startFilePageId, long[] bufferAddresses, int arrayOffset,
+            int length ) throws IOException
     {
-        int bytes = 0;
-        for ( int i = 0; i < length; i++ )
+        int pagesPerGather = gatherBufferSize / filePageSize;
+        if ( pagesPerGather < 2 || length < 2 )
         {
-            long address = bufferAddresses[arrayOffset + i];
-            bytes += write( startFilePageId + i, address );
+            long bytes = 0;
+            for ( int i = 0; i < length; i++ )
+            {
+                long address = bufferAddresses[arrayOffset + i];
+                bytes += write( startFilePageId + i, address );
+            }
+            return bytes;
+        }
+
+        // Copy the pages into a gather buffer, so we can write many pages with a single positioned write, instead of
+        // doing one write per page.
+        increaseFileSizeTo( pageIdToPosition( startFilePageId ) + (((long) filePageSize) * length) );
+        ByteBuffer gatherBuffer = gatherBuffer( pagesPerGather * filePageSize );
+        long bytes = 0;
+        for ( int i = 0; i < length; i += pagesPerGather )
+        {
+            int pages = Math.min( pagesPerGather, length - i );
+            gatherBuffer.clear();
+            for ( int j = 0; j < pages; j++ )
+            {
+                gatherBuffer.put( proxy( bufferAddresses[arrayOffset + i + j], filePageSize ) );
+            }
+            gatherBuffer.flip();
+            bytes += writeGathered( startFilePageId + i, gatherBuffer );
         }
         return bytes;
     }
 
+    private static ByteBuffer gatherBuffer( int size )
+    {
+        ByteBuffer buf = gatherBufferCache.get();
+        if ( buf == null || buf.capacity() < size )
+        {
+            buf = ByteBuffer.allocateDirect( size );
+            gatherBufferCache.set( buf );
+        }
+        return buf;
+    }
+
+    private long writeGathered( long filePageId, ByteBuffer gatherBuffer ) throws IOException
+    {
+        long fileOffset = pageIdToPosition( filePageId );
+        try
+        {
+            return swapOut( gatherBuffer, fileOffset, channel( filePageId ) );
+        }
+        catch ( ClosedChannelException e )
+        {
+            // AsynchronousCloseException is a subclass of
+            // ClosedChannelException, and ClosedByInterruptException is in
+            // turn a subclass of AsynchronousCloseException.
+            tryReopen( filePageId, e );
+            boolean interrupted = Thread.interrupted();
+            // Recurse because this is hopefully a very rare occurrence.
+            gatherBuffer.rewind();
+            long bytesWritten = writeGathered( filePageId, gatherBuffer );
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return bytesWritten;
+        }
+    }
+
     @Override
     public void evicted( long filePageId )
     {
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+/**
+ * The eviction policy decides how the usage stamps of the pages in the {@link PageList} are maintained, and thereby
+ * which pages the clock sweeps of the {@link MuninnPageCache} will pick as victims for eviction.
+ * <p>
+ * The policies operate directly on the one byte usage stamp that every page has in the page list meta-data, so they
+ * add no memory overhead, and all updates are left benignly racy, just like the usage stamp always has been.
+ * <p>
+ * Policies that segment the pages report the pages they move between segments as
+ * {@link org.neo4j.io.pagecache.monitoring.PageCacheCounters#promotions() promotions} and
+ * {@link org.neo4j.io.pagecache.monitoring.PageCacheCounters#demotions() demotions} to the page cache tracer. Together
+ * with the hits and evictions, these show how much of the cache the policy manages to keep for the working set.
+ */
+public enum EvictionPolicy
+{
+    /**
+     * The classic clock, or second-chance, algorithm. Every access increments the usage stamp to at most 4, and every
+     * pass of the clock arm decrements it. A page is evicted once its usage stamp reaches zero.
+     * <p>
+     * This policy treats all accesses the same, which means that a large scan, which pins every page many times in
+     * rapid succession, will look just as hot as the real working set, and will be able to push it out of the cache.
+     */
+    CLOCK
+            {
+                @Override
+                void pageFaulted( PageList pages, long pageRef )
+                {
+                }
+
+                @Override
+                void pageAccessed( PageList pages, long pageRef )
+                {
+                    byte usage = pages.getUsageCounter( pageRef );
+                    if ( usage < MAX_USAGE_COUNT ) // avoid cache sloshing by not doing a write if counter is maxed out
+                    {
+                        usage++;
+                        pages.setUsageCounter( pageRef, usage );
+                    }
+                }
+
+                @Override
+                boolean pageSwept( PageList pages, long pageRef )
+                {
+                    byte usage = pages.getUsageCounter( pageRef );
+                    if ( usage > 0 )
+                    {
+                        usage--;
+                        pages.setUsageCounter( pageRef, usage );
+                    }
+                    return usage == 0;
+                }
+            },
+
+    /**
+     * A scan resistant variant of the clock algorithm, in the spirit of 2Q and CLOCK-Pro.
+     * <p>
+     * Newly faulted pages start out in a <em>probationary</em> segment. While on probation, any number of accesses
+     * only count as a single reference, so the burst of pins that a scan does on every page cannot make it look hot.
+     * The first pass of the clock arm over a probationary page clears its reference and marks it as <em>aged</em>,
+     * and the next pass evicts it. Only a page that is accessed again after it has aged, that is, a page that is
+     * re-referenced after at least one full revolution of the clock, is promoted to the <em>protected</em> segment.
+     * Protected pages count their accesses like the regular clock does, and when their usage stamp runs out, they are
+     * demoted back to probation, rather than evicted outright. This gives the working set a margin of at least one
+     * clock revolution over the pages that are only touched by a scan.
+     */
+    PROBATIONARY_CLOCK
+            {
+                @Override
+                void pageFaulted( PageList pages, long pageRef )
+                {
+                    // The usage stamp can have been left at any value by the page that was previously bound to this
+                    // memory page, so we have to reset it to be a fresh and not yet referenced probationary page.
+                    pages.setUsageCounter( pageRef, (byte) 0 );
+                }
+
+                @Override
+                void pageAccessed( PageList pages, long pageRef )
+                {
+                    byte usage = pages.getUsageCounter( pageRef );
+                    byte count = (byte) (usage & COUNT_MASK);
+                    byte update;
+                    if ( (usage & PROTECTED) != 0 )
+                    {
+                        update = count < MAX_USAGE_COUNT ? (byte) (usage + 1) : usage;
+                    }
+                    else if ( (usage & AGED) != 0 )
+                    {
+                        // Re-referenced after surviving a clock revolution; promote to the protected segment.
+                        update = PROTECTED | 1;
+                        pages.getPageCacheTracer().promotions( 1 );
+                    }
+                    else
+                    {
+                        // Still on its first probationary period; repeated accesses count as one.
+                        update = 1;
+                    }
+                    if ( update != usage ) // avoid cache sloshing by only writing when the stamp actually changes
+                    {
+                        pages.setUsageCounter( pageRef, update );
+                    }
+                }
+
+                @Override
+                boolean pageSwept( PageList pages, long pageRef )
+                {
+                    byte usage = pages.getUsageCounter( pageRef );
+                    byte count = (byte) (usage & COUNT_MASK);
+                    if ( (usage & PROTECTED) != 0 )
+                    {
+                        // Demote the page to an aged probationary page when it runs out of usage. This way, it will
+                        // be evicted on the next pass, unless it is accessed again in the mean time.
+                        if ( count > 1 )
+                        {
+                            pages.setUsageCounter( pageRef, (byte) (usage - 1) );
+                        }
+                        else
+                        {
+                            pages.setUsageCounter( pageRef, AGED );
+                            pages.getPageCacheTracer().demotions( 1 );
+                        }
+                        return false;
+                    }
+                    if ( (usage & AGED) == 0 )
+                    {
+                        pages.setUsageCounter( pageRef, AGED );
+                        return false;
+                    }
+                    return true;
+                }
+            };
+
+    private static final byte MAX_USAGE_COUNT = 4;
+    private static final byte COUNT_MASK = 0x07;
+    private static final byte PROTECTED = 0x08;
+    private static final byte AGED = 0x10;
+
+    /**
+     * Called when the given page has been bound to a new file page through a page fault.
+     * The page is exclusively locked at this point.
+     */
+    abstract void pageFaulted( PageList pages, long pageRef );
+
+    /**
+     * Called every time a cursor pins the given page.
+     */
+    abstract void pageAccessed( PageList pages, long pageRef );
+
+    /**
+     * Called when the clock arm of an eviction sweep passes over the given loaded page.
+     * @return {@code true} if the page should be evicted, {@code false} if it should be given another chance.
+     */
+    abstract boolean pageSwept( PageList pages, long pageRef );
+}
@@ -24,12 +24,16 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
 
@@ -45,8 +49,10 @@ import org.neo4j.io.pagecache.tracing.FlushEventOpportunity;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.io.pagecache.tracing.PageFaultEvent;
+import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracer;
 import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
 import org.neo4j.unsafe.impl.internal.dragons.MemoryManager;
+import org.neo4j.unsafe.impl.internal.dragons.MemorySource;
 import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
 
 import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.flag;
@@ -117,6 +123,23 @@ public class MuninnPageCache implements PageCache
     private static final int cooperativeEvictionLiveLockThreshold = getInteger(
             MuninnPageCache.class, "cooperativeEvictionLiveLockThreshold", 100 );
 
+    // The number of pages that are read ahead at a time, for cursors that access their pages sequentially. The
+    // read-ahead is further limited to a small fraction of the cache, so that it never starves the page faults that are
+    // actually blocking someone. Zero disables read-ahead entirely.
+    private static final int maxReadAheadPages = getInteger( MuninnPageCache.class, "readAheadPages", 32 );
+
+    // This is how many read-ahead requests from sequentially reading cursors we allow to be queued up for the read-ahead
+    // thread. Read-ahead is only a hint, so requests are dropped if the queue is full.
+    private static final int readAheadQueueCapacity = getInteger(
+            MuninnPageCache.class, "readAheadQueueCapacity", 64 );
+
+    // When the eviction thread is about to evict a dirty page, it will first flush all of the dirty pages in the aligned
+    // window of this many file pages, that the page belongs to. Adjacent dirty pages are thereby written together in
+    // vectored writes, and are clean by the time the eviction thread gets to them. The window is further limited to a
+    // small fraction of the cache, since the flushed pages cannot be evicted by anyone else while they are being
+    // written. One or less disables this.
+    private static final int maxEvictionFlushWindow = getInteger( MuninnPageCache.class, "evictionFlushWindow", 16 );
+
     // This is a pre-allocated constant, so we can throw it without allocating any objects:
     @SuppressWarnings( "ThrowableInstanceNeverThrown" )
     private static final IOException oomException = new IOException(
@@ -153,6 +176,10 @@ public class MuninnPageCache implements PageCache
     private final PageCacheTracer pageCacheTracer;
     private final PageCursorTracerSupplier pageCursorTracerSupplier;
     final PageList pages;
+    // The effective number of pages that sequentially reading cursors will read ahead at a time.
+    final int readAheadPages;
+    // The effective number of file pages around a dirty victim page, that the eviction thread flushes together.
+    private final int evictionFlushWindow;
     // All PageCursors are initialised with their pointers pointing to the victim page. This way, we don't have to throw
     // exceptions on bounds checking failures; we can instead return the victim page pointer, and permit the page
     // accesses to take place without fear of segfaulting newly allocated cursors.
@@ -181,6 +208,16 @@ public class MuninnPageCache implements PageCache
     private volatile boolean evictorParked;
     private volatile IOException evictorException;
 
+    // The read-ahead requests from the page cursors, and the thread that services them. The thread is started on demand,
+    // the first time a read-ahead is requested, since many page caches never see any sequential access. The requests are
+    // recycled through the pool, which also bounds how many can be queued up at a time.
+    private final BlockingQueue<ReadAheadRequest> readAheadRequests;
+    private final BlockingQueue<ReadAheadRequest> readAheadRequestPool;
+    private final AtomicBoolean readAheadThreadStarted;
+    private volatile Thread readAheadThread;
+    // The number of references to mapped files that are currently held by the eviction and read-ahead threads.
+    private final AtomicInteger backgroundFilePins = new AtomicInteger();
+
     // Flag for when page cache is closed - writes guarded by synchronized(this), reads can be unsynchronized
     private volatile boolean closed;
 
@@ -205,6 +242,52 @@ public class MuninnPageCache implements PageCache
             int cachePageSize,
             PageCacheTracer pageCacheTracer,
             PageCursorTracerSupplier pageCursorTracerSupplier )
+    {
+        this( swapperFactory, maxPages, cachePageSize, pageCacheTracer, pageCursorTracerSupplier,
+                EvictionPolicy.CLOCK );
+    }
+
+    /**
+     * Create page cache
+     * @param swapperFactory page cache swapper factory
+     * @param maxPages maximum number of pages
+     * @param cachePageSize page cache size
+     * @param pageCacheTracer global page cache tracer
+     * @param pageCursorTracerSupplier supplier of thread local (transaction local) page cursor tracer that will provide
+     * thread local page cache statistics
+     * @param evictionPolicy the policy that decides which pages the eviction sweeps will evict
+     */
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheTracer pageCacheTracer,
+            PageCursorTracerSupplier pageCursorTracerSupplier,
+            EvictionPolicy evictionPolicy )
+    {
+        this( swapperFactory, maxPages, cachePageSize, pageCacheTracer, pageCursorTracerSupplier, evictionPolicy,
+                MemorySource.ALLOCATE );
+    }
+
+    /**
+     * Create page cache
+     * @param swapperFactory page cache swapper factory
+     * @param maxPages maximum number of pages
+     * @param cachePageSize page cache size
+     * @param pageCacheTracer global page cache tracer
+     * @param pageCursorTracerSupplier supplier of thread local (transaction local) page cursor tracer that will provide
+     * thread local page cache statistics
+     * @param evictionPolicy the policy that decides which pages the eviction sweeps will evict
+     * @param memorySource the source of the memory for the pages and their meta-data, e.g. huge pages
+     */
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheTracer pageCacheTracer,
+            PageCursorTracerSupplier pageCursorTracerSupplier,
+            EvictionPolicy evictionPolicy,
+            MemorySource memorySource )
     {
         verifyHacks();
         verifyCachePageSizeIsPowerOfTwo( cachePageSize );
@@ -217,13 +300,25 @@ public class MuninnPageCache implements PageCache
         this.pageCacheTracer = pageCacheTracer;
         this.pageCursorTracerSupplier = pageCursorTracerSupplier;
         this.printExceptionsOnClose = true;
+        int readAheadLimit = maxPages / 64;
+        this.readAheadPages = readAheadLimit < 2 ? 0 : Math.min( maxReadAheadPages, readAheadLimit );
+        this.evictionFlushWindow = Math.min( maxEvictionFlushWindow, maxPages / 64 );
+        this.readAheadRequests = new ArrayBlockingQueue<>( readAheadQueueCapacity );
+        this.readAheadRequestPool = new ArrayBlockingQueue<>( readAheadQueueCapacity );
+        for ( int i = 0; readAheadPages > 0 && i < readAheadQueueCapacity; i++ )
+        {
+            readAheadRequestPool.offer( new ReadAheadRequest() );
+        }
+        this.readAheadThreadStarted = new AtomicBoolean();
 
         long alignment = swapperFactory.getRequiredBufferAlignment();
         long expectedMaxMemory = ((long) maxPages) * cachePageSize; // cast to long prevents overflow
-        MemoryManager memoryManager = new MemoryManager( expectedMaxMemory, alignment );
+        MemoryManager memoryManager = new MemoryManager( expectedMaxMemory, alignment, memorySource );
         this.victimPage = VictimPageReference.getVictimPage( cachePageSize );
 
-        this.pages = new PageList( maxPages, cachePageSize, memoryManager, new SwapperSet(), victimPage );
+        this.pages = new PageList(
+                maxPages, cachePageSize, memoryManager, new SwapperSet(), victimPage, evictionPolicy,
+                pageCacheTracer );
 
         setFreelistHead( new AtomicInteger() );
     }
@@ -365,6 +460,21 @@ public class MuninnPageCache implements PageCache
         return Optional.empty();
     }
 
+    @Override
+    public synchronized List<PagedFile> listExistingMappings() throws IOException
+    {
+        assertNotClosed();
+
+        List<PagedFile> list = new ArrayList<>();
+        FileMapping current = mappedFiles;
+        while ( current != null )
+        {
+            list.add( current.pagedFile );
+            current = current.next;
+        }
+        return list;
+    }
+
     private MuninnPagedFile tryGetMappingOrNull( File file ) throws IOException
     {
         FileMapping current = mappedFiles;
@@ -528,6 +638,21 @@ public class MuninnPageCache implements PageCache
     @Override
     public synchronized void close()
     {
+        // The background threads can hold references to files that have otherwise been unmapped. Wait for them to let
+        // go of those files, or it would look like the files are still mapped.
+        while ( backgroundFilePins.get() > 0 )
+        {
+            try
+            {
+                wait( 10 );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
         if ( closed )
         {
             return;
@@ -554,6 +679,8 @@ public class MuninnPageCache implements PageCache
 
         interrupt( evictionThread );
         evictionThread = null;
+        interrupt( readAheadThread );
+        readAheadThread = null;
 
         // Close the page swapper factory last. If this fails then we will still consider ourselves closed.
         swapperFactory.close();
@@ -767,7 +894,7 @@ public class MuninnPageCache implements PageCache
 
     /**
      * Scan through all the pages, one by one, and decrement their usage stamps.
-     * If a usage reaches zero, we try-write-locking it, and if we get that lock,
+     * If the {@link EvictionPolicy} decides that a page should go, we try-write-locking it, and if we get that lock,
      * we evict the page. If we don't, we move on to the next page.
      * Once we have enough free pages, we park our thread. Page-faulting will
      * unpark our thread as needed.
@@ -850,6 +977,10 @@ public class MuninnPageCache implements PageCache
             {
                 try
                 {
+                    if ( evictionFlushWindow > 1 && pages.isModified( pageRef ) )
+                    {
+                        flushEvictionWindow( pageRef );
+                    }
                     if ( pages.tryEvict( pageRef, evictionRunEvent ) )
                     {
                         clearEvictorException();
@@ -878,6 +1009,42 @@ public class MuninnPageCache implements PageCache
         return clockArm;
     }
 
+    private void flushEvictionWindow( long pageRef )
+    {
+        int swapperId = pages.getSwapperId( pageRef );
+        long filePageId = pages.getFilePageId( pageRef );
+        if ( swapperId == 0 || filePageId < 0 )
+        {
+            return;
+        }
+        FileMapping fileMapping = mappedFiles;
+        while ( fileMapping != null )
+        {
+            MuninnPagedFile pagedFile = fileMapping.pagedFile;
+            if ( pagedFile.swapperId == swapperId )
+            {
+                // We walk the mappings without the mapping lock, so the file might be unmapped under our feet.
+                if ( pinForBackgroundWork( pagedFile ) )
+                {
+                    try ( MajorFlushEvent flushEvent = pageCacheTracer.beginFileFlush( pagedFile.swapper ) )
+                    {
+                        pagedFile.flushWindow( filePageId, evictionFlushWindow, flushEvent.flushEventOpportunity() );
+                    }
+                    catch ( IOException ignore )
+                    {
+                        // The eviction will flush the page on its own, and report the problem if it persists.
+                    }
+                    finally
+                    {
+                        unpinAfterBackgroundWork( pagedFile );
+                    }
+                }
+                return;
+            }
+            fileMapping = fileMapping.next;
+        }
+    }
+
     private void addFreePageToFreelist( long pageRef )
     {
         Object current;
@@ -894,6 +1061,117 @@ public class MuninnPageCache implements PageCache
         while ( !compareAndSetFreelistHead( current, freePage ) );
     }
 
+    /**
+     * Ask the read-ahead thread to fault in the given range of pages of the given file, if they are not already in
+     * memory. This does not block. If too many requests are already queued up, then this request is dropped.
+     */
+    void requestReadAhead( MuninnPagedFile pagedFile, long startFilePageId, int pageCount )
+    {
+        if ( closed )
+        {
+            return;
+        }
+        if ( !readAheadThreadStarted.get() && readAheadThreadStarted.compareAndSet( false, true ) )
+        {
+            backgroundThreadExecutor.execute( new ReadAheadTask( this ) );
+        }
+        ReadAheadRequest request = readAheadRequestPool.poll();
+        if ( request != null )
+        {
+            request.set( pagedFile, startFilePageId, pageCount );
+            readAheadRequests.offer( request );
+        }
+    }
+
+    /**
+     * Service the read-ahead requests from the page cursors, until the page cache is closed. The thread blocks on the
+     * queue while there are no requests, and is interrupted when the page cache is closed.
+     */
+    void continuouslyReadAhead()
+    {
+        readAheadThread = Thread.currentThread();
+        PageCursorTracer tracer = pageCursorTracerSupplier.get();
+        tracer.init( pageCacheTracer );
+        try
+        {
+            // Close interrupts the read-ahead thread after setting the flag, so if close did not see our thread, then
+            // we will see the flag here, and not block on the queue.
+            while ( !closed )
+            {
+                ReadAheadRequest request = readAheadRequests.take();
+                MuninnPagedFile pagedFile = request.pagedFile;
+                long startFilePageId = request.startFilePageId;
+                int pageCount = request.pageCount;
+                request.clear();
+                readAheadRequestPool.offer( request );
+
+                if ( pinForBackgroundWork( pagedFile ) )
+                {
+                    try
+                    {
+                        pagedFile.readAhead( startFilePageId, pageCount, tracer );
+                    }
+                    catch ( IOException | IllegalStateException ignore )
+                    {
+                        // Read-ahead is only a hint. If the read-ahead failed, for instance because of an IO error,
+                        // then the cursor will do the page fault itself, and observe the problem when it does.
+                    }
+                    finally
+                    {
+                        unpinAfterBackgroundWork( pagedFile );
+                    }
+                    tracer.reportEvents();
+                }
+            }
+        }
+        catch ( InterruptedException ignore )
+        {
+            // We've been interrupted, which means the page cache has been closed.
+        }
+        finally
+        {
+            readAheadRequests.clear();
+        }
+    }
+
+    /**
+     * Take a reference to a file on behalf of the eviction or read-ahead thread, so it cannot be unmapped and closed
+     * while they are flushing or faulting its pages. These threads find their files without a reference, in the
+     * read-ahead queue or the list of mappings, so if the file has been unmapped in the mean time, the pin fails and
+     * the work should be dropped.
+     * <p>
+     * This does not take the mapping lock, since that is also held for the duration of
+     * {@link #flushAndForce(IOLimiter)}, and the eviction thread in particular cannot wait that long.
+     *
+     * @return {@code true} if the file was pinned and the work can proceed, {@code false} if it should be dropped.
+     */
+    private boolean pinForBackgroundWork( MuninnPagedFile pagedFile )
+    {
+        backgroundFilePins.incrementAndGet();
+        if ( !closed && pagedFile.tryIncrementRefCount() )
+        {
+            return true;
+        }
+        backgroundFilePins.decrementAndGet();
+        return false;
+    }
+
+    private void unpinAfterBackgroundWork( MuninnPagedFile pagedFile )
+    {
+        try
+        {
+            if ( !pagedFile.tryDecrementRefCountUnlessLast() )
+            {
+                // The file was unmapped by everyone else while we worked on it, so we get to unmap and close it.
+                unmap( pagedFile );
+            }
+        }
+        finally
+        {
+            backgroundFilePins.decrementAndGet();
+        }
+    }
+
     void clearEvictorException()
     {
         if ( evictorException != null )
@@ -32,9 +32,12 @@ import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracer;
 import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
 
 import static org.neo4j.io.pagecache.PagedFile.PF_EAGER_FLUSH;
+import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
 import static org.neo4j.io.pagecache.impl.muninn.MuninnPagedFile.UNMAPPED_TTE;
 import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.flag;
+import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
 
 abstract class MuninnPageCursor extends PageCursor
 {
@@ -43,6 +46,11 @@ abstract class MuninnPageCursor extends PageCursor
 
     private static final boolean boundsCheck = flag( MuninnPageCursor.class, "boundsCheck", true );
 
+    // The number of consecutive forward page moves that a cursor must make, before it is considered to be sequential,
+    // and read-ahead kicks in. Zero or less means that only cursors opened with PF_READ_AHEAD will read ahead.
+    private static final int sequentialAccessThreshold =
+            getInteger( MuninnPageCursor.class, "sequentialAccessThreshold", 4 );
+
     // Size of the respective primitive types in bytes.
     private static final int SIZE_OF_BYTE = Byte.BYTES;
     private static final int SIZE_OF_SHORT = Short.BYTES;
@@ -59,9 +67,14 @@ abstract class MuninnPageCursor extends PageCursor
     protected long pageId;
     protected int pf_flags;
     protected boolean eagerFlush;
+    protected boolean noFault;
     protected long currentPageId;
     protected long nextPageId;
     protected MuninnPageCursor linkedCursor;
+    private boolean readAhead;
+    private long lastNextPageId;
+    private int sequentialNextCount;
+    private long readAheadHorizon;
     private long pointer;
     private int pageSize;
     private int filePageSize;
@@ -93,6 +106,11 @@ abstract class MuninnPageCursor extends PageCursor
         this.pageId = pageId;
         this.pf_flags = pf_flags;
         this.eagerFlush = (pf_flags & PF_EAGER_FLUSH) == PF_EAGER_FLUSH;
+        this.noFault = (pf_flags & PF_NO_FAULT) == PF_NO_FAULT;
+        this.readAhead = (pf_flags & PF_READ_AHEAD) == PF_READ_AHEAD;
+        this.lastNextPageId = UNBOUND_PAGE_ID;
+        this.sequentialNextCount = 0;
+        this.readAheadHorizon = 0;
     }
 
     @Override
@@ -122,6 +140,38 @@ abstract class MuninnPageCursor extends PageCursor
         return next();
     }
 
+    /**
+     * Called when the cursor moves to the given page, to detect sequential access and, if so, make sure that the pages
+     * ahead of it are being read ahead. A new read-ahead window is requested once the cursor is half way through the
+     * previous one, so that the read-ahead thread can stay ahead of the cursor.
+     */
+    protected final void considerReadAhead( long filePageId, long lastPageId )
+    {
+        if ( filePageId == lastNextPageId + 1 )
+        {
+            sequentialNextCount++;
+        }
+        else
+        {
+            sequentialNextCount = 0;
+            readAheadHorizon = 0;
+        }
+        lastNextPageId = filePageId;
+
+        boolean sequential = readAhead ||
+                             (sequentialAccessThreshold > 0 && sequentialNextCount >= sequentialAccessThreshold);
+        int readAheadPages = pagedFile.pageCache.readAheadPages;
+        if ( sequential && readAheadPages > 0 && filePageId + (readAheadPages >> 1) >= readAheadHorizon )
+        {
+            long start = Math.max( filePageId + 1, readAheadHorizon );
+            if ( start <= lastPageId )
+            {
+                pagedFile.pageCache.requestReadAhead( pagedFile, start, readAheadPages );
+            }
+            readAheadHorizon = start + readAheadPages;
+        }
+    }
+
     @Override
     public final void close()
     {
@@ -257,6 +307,12 @@ abstract class MuninnPageCursor extends PageCursor
                     unlockPage( pageRef );
                 }
             }
+            else if ( noFault )
+            {
+                // The page is not in memory, and we are not allowed to fault it in, so the cursor is left unbound.
+                pinEvent.done();
+                return;
+            }
             else
             {
                 if ( uncommonPin( filePageId, chunkOffset, chunk ) )
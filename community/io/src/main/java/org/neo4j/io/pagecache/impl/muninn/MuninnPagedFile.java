@@ -39,9 +39,13 @@ import org.neo4j.io.pagecache.tracing.FlushEventOpportunity;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.io.pagecache.tracing.PageFaultEvent;
+import org.neo4j.io.pagecache.tracing.PinEvent;
+import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracer;
 import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
 import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
 
+import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
+
 final class MuninnPagedFile extends PageList implements PagedFile, Flushable
 {
     static final int UNMAPPED_TTE = -1;
@@ -52,6 +56,10 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
     private static final int translationTableChunkArrayBase = UnsafeUtil.arrayBaseOffset( int[].class );
     private static final int translationTableChunkArrayScale = UnsafeUtil.arrayIndexScale( int[].class );
 
+    // The number of consecutive clean pages that a rate limited flush will write, in order to join the dirty pages on
+    // either side of them into a single vectored write. Zero means that only dirty pages are ever written.
+    private static final int maxCleanPagesToBridge = getInteger( MuninnPagedFile.class, "maxCleanPagesToBridge", 4 );
+
     private static final long headerStateOffset =
             UnsafeUtil.getFieldOffset( MuninnPagedFile.class, "headerState" );
     private static final int headerStateRefCountShift = 48;
@@ -181,6 +189,10 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
             throw new IllegalArgumentException(
                     "Cannot specify both PF_SHARED_WRITE_LOCK and PF_SHARED_READ_LOCK" );
         }
+        if ( (pf_flags & (PF_SHARED_WRITE_LOCK | PF_NO_FAULT)) == (PF_SHARED_WRITE_LOCK | PF_NO_FAULT) )
+        {
+            throw new IllegalArgumentException( "Cannot specify PF_NO_FAULT with PF_SHARED_WRITE_LOCK" );
+        }
         MuninnPageCursor cursor;
         if ( (pf_flags & PF_SHARED_READ_LOCK) == 0 )
         {
@@ -212,7 +224,8 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         return (lastPageId + 1) * pageSize();
     }
 
-    File file()
+    @Override
+    public File file()
     {
         return swapper.file();
     }
@@ -277,6 +290,24 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         pageCache.clearEvictorException();
     }
 
+    @Override
+    public void flushAndForceRange( long startFilePageId, long endFilePageId, IOLimiter limiter ) throws IOException
+    {
+        if ( limiter == null )
+        {
+            throw new IllegalArgumentException( "IOPSLimiter cannot be null" );
+        }
+        try ( MajorFlushEvent flushEvent = pageCacheTracer.beginFileFlush( swapper ) )
+        {
+            int cleanPagesToBridge = limiter.isLimited() ? maxCleanPagesToBridge : 0;
+            // Pages that are locked are skipped rather than waited for, they will be flushed by a later full flush
+            flushRange( Math.max( 0, startFilePageId ), endFilePageId, cleanPagesToBridge,
+                    flushEvent.flushEventOpportunity(), false, true, limiter );
+            swapper.force();
+        }
+        pageCache.clearEvictorException();
+    }
+
     void flushAndForceForClose() throws IOException
     {
         if ( deleteOnClose )
@@ -346,83 +377,155 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
             throws IOException
     {
         // TODO it'd be awesome if, on Linux, we'd call sync_file_range(2) instead of fsync
-        long[] pages = new long[translationTableChunkSize];
-        long[] flushStamps = forClosing ? null : new long[translationTableChunkSize];
-        long[] bufferAddresses = new long[translationTableChunkSize];
-        long filePageId = -1; // Start at -1 because we increment at the *start* of the chunk-loop iteration.
-        long limiterStamp = IOLimiter.INITIAL_STAMP;
+        // When the flush is rate limited, we tolerate flushing a few clean pages, if it means that we can join up the
+        // vectors on either side of them, and thus get by with fewer and larger IOs.
+        int cleanPagesToBridge = limiter.isLimited() ? maxCleanPagesToBridge : 0;
+        flushRange( 0, Long.MAX_VALUE, cleanPagesToBridge, flushOpportunity, forClosing, false, limiter );
+        swapper.force();
+    }
+
+    /**
+     * Flush all the dirty pages in the aligned window of {@code windowSize} file pages, that contains the given file
+     * page id. This is used by the eviction thread to write out the neighbours of a dirty page in the same vectored
+     * writes as the page itself, instead of flushing them one by one as they get evicted.
+     * <p>
+     * Pages that cannot be flush locked right away are skipped, rather than waited for. The window is only an
+     * opportunistic head start on the eviction, and the pages that are skipped will be flushed by whoever gets to them.
+     */
+    void flushWindow( long filePageId, int windowSize, FlushEventOpportunity flushOpportunity ) throws IOException
+    {
+        long startFilePageId = filePageId - (filePageId % windowSize);
+        flushRange( startFilePageId, startFilePageId + windowSize, 0, flushOpportunity, false, true,
+                IOLimiter.unlimited() );
+    }
+
+    private void flushRange( long startFilePageId, long endFilePageId, int cleanPagesToBridge,
+            FlushEventOpportunity flushOpportunity, boolean forClosing, boolean skipLockedPages, IOLimiter limiter )
+            throws IOException
+    {
         int[][] tt = this.translationTable;
-        for ( int[] chunk : tt )
+        endFilePageId = Math.min( endFilePageId, ((long) tt.length) << translationTableChunkSizePower );
+        int vectorCapacity = (int) Math.min( translationTableChunkSize, endFilePageId - startFilePageId );
+        if ( vectorCapacity <= 0 )
         {
-            // TODO Look into if we can tolerate flushing a few clean pages if it means we can use larger vectors.
-            // TODO The clean pages in question must still be loaded, though. Otherwise we'll end up writing
-            // TODO garbage to the file.
-            int pagesGrabbed = 0;
-            chunkLoop:
-            for ( int i = 0; i < chunk.length; i++ )
-            {
-                filePageId++;
-                long offset = computeChunkOffset( filePageId );
+            return;
+        }
+        long[] pages = new long[vectorCapacity];
+        long[] flushStamps = forClosing ? null : new long[vectorCapacity];
+        long[] bufferAddresses = new long[vectorCapacity];
+        long limiterStamp = IOLimiter.INITIAL_STAMP;
+        int pagesGrabbed = 0;
+        int cleanPagesGrabbed = 0;
+        int trailingCleanPages = 0;
+        for ( long filePageId = startFilePageId; filePageId < endFilePageId; filePageId++ )
+        {
+            int[] chunk = tt[computeChunkId( filePageId )];
+            long offset = computeChunkOffset( filePageId );
+            boolean grabbed = false;
 
-                // We might race with eviction, but we also mustn't miss a dirty page, so we loop until we succeed
-                // in getting a lock on all available pages.
-                for (;;)
+            // We might race with eviction, but we also mustn't miss a dirty page, so we loop until we succeed
+            // in getting a lock on all available pages. Unless we've been asked to skip the pages we can't lock.
+            for (;;)
+            {
+                int pageId = UnsafeUtil.getIntVolatile( chunk, offset );
+                if ( pageId != UNMAPPED_TTE )
                 {
-                    int pageId = UnsafeUtil.getIntVolatile( chunk, offset );
-                    if ( pageId != UNMAPPED_TTE )
+                    long pageRef = deref( pageId );
+                    // A clean page can only bridge the gap between dirty pages if it is loaded and bound to this file,
+                    // which we check once we have it locked. Otherwise we'll end up writing garbage to the file.
+                    boolean bridging = pagesGrabbed > 0 && trailingCleanPages < cleanPagesToBridge;
+                    long stamp = tryOptimisticReadLock( pageRef );
+                    if ( !bridging && (!isModified( pageRef )) && validateReadLock( pageRef, stamp ) )
                     {
-                        long pageRef = deref( pageId );
-                        long stamp = tryOptimisticReadLock( pageRef );
-                        if ( (!isModified( pageRef )) && validateReadLock( pageRef, stamp ) )
+                        break;
+                    }
+
+                    long flushStamp = 0;
+                    if ( !(forClosing ? tryExclusiveLock( pageRef ) : ((flushStamp = tryFlushLock( pageRef )) != 0)) )
+                    {
+                        if ( skipLockedPages || (bridging && !isModified( pageRef )) )
                         {
+                            // No point in waiting for a clean page, or for a page we are allowed to miss.
                             break;
                         }
-
-                        long flushStamp = 0;
-                        if ( !(forClosing ? tryExclusiveLock( pageRef ) : ((flushStamp = tryFlushLock( pageRef )) != 0)) )
+                        continue;
+                    }
+                    boolean modified = isModified( pageRef );
+                    if ( isBoundTo( pageRef, swapperId, filePageId ) && (modified || bridging) )
+                    {
+                        // The page is still bound to the expected file and file page id after we locked it,
+                        // so we didn't race with eviction and faulting, and the page is either dirty or can bridge
+                        // a gap between dirty pages. So we add it to our IO vector.
+                        pages[pagesGrabbed] = pageRef;
+                        if ( !forClosing )
                         {
-                            continue;
+                            flushStamps[pagesGrabbed] = flushStamp;
                         }
-                        if ( isBoundTo( pageRef, swapperId, filePageId ) && isModified( pageRef ) )
+                        bufferAddresses[pagesGrabbed] = getAddress( pageRef );
+                        pagesGrabbed++;
+                        if ( modified )
                         {
-                            // The page is still bound to the expected file and file page id after we locked it,
-                            // so we didn't race with eviction and faulting, and the page is dirty.
-                            // So we add it to our IO vector.
-                            pages[pagesGrabbed] = pageRef;
-                            if ( !forClosing )
-                            {
-                                flushStamps[pagesGrabbed] = flushStamp;
-                            }
-                            bufferAddresses[pagesGrabbed] = getAddress( pageRef );
-                            pagesGrabbed++;
-                            continue chunkLoop;
-                        }
-                        else if ( forClosing )
-                        {
-                            unlockExclusive( pageRef );
+                            trailingCleanPages = 0;
                         }
                         else
                         {
-                            unlockFlush( pageRef, flushStamp, false );
+                            cleanPagesGrabbed++;
+                            trailingCleanPages++;
                         }
+                        grabbed = true;
+                    }
+                    else if ( forClosing )
+                    {
+                        unlockExclusive( pageRef );
+                    }
+                    else
+                    {
+                        unlockFlush( pageRef, flushStamp, false );
                     }
-                    break;
-                }
-                if ( pagesGrabbed > 0 )
-                {
-                    vectoredFlush( pages, bufferAddresses, flushStamps, pagesGrabbed, flushOpportunity, forClosing );
-                    limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
-                    pagesGrabbed = 0;
                 }
+                break;
             }
-            if ( pagesGrabbed > 0 )
+            if ( pagesGrabbed > 0 && (!grabbed || pagesGrabbed == vectorCapacity) )
             {
-                vectoredFlush( pages, bufferAddresses, flushStamps, pagesGrabbed, flushOpportunity, forClosing );
-                limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
+                int pagesFlushed = flushGrabbedPages(
+                        pages, bufferAddresses, flushStamps, pagesGrabbed, trailingCleanPages,
+                        flushOpportunity, forClosing );
+                limiterStamp = limiter.maybeLimitIO(
+                        limiterStamp, pagesFlushed - (cleanPagesGrabbed - trailingCleanPages), this );
+                pagesGrabbed = 0;
+                cleanPagesGrabbed = 0;
+                trailingCleanPages = 0;
             }
         }
+        if ( pagesGrabbed > 0 )
+        {
+            int pagesFlushed = flushGrabbedPages(
+                    pages, bufferAddresses, flushStamps, pagesGrabbed, trailingCleanPages, flushOpportunity, forClosing );
+            limiter.maybeLimitIO( limiterStamp, pagesFlushed - (cleanPagesGrabbed - trailingCleanPages), this );
+        }
+    }
 
-        swapper.force();
+    /**
+     * Flush the grabbed pages, except for any clean pages at the end of the vector, since they no longer bridge any
+     * gaps. Those pages are just unlocked. Returns the number of pages that were flushed.
+     */
+    private int flushGrabbedPages( long[] pages, long[] bufferAddresses, long[] flushStamps, int pagesGrabbed,
+            int trailingCleanPages, FlushEventOpportunity flushOpportunity, boolean forClosing ) throws IOException
+    {
+        int pagesToFlush = pagesGrabbed - trailingCleanPages;
+        for ( int i = pagesToFlush; i < pagesGrabbed; i++ )
+        {
+            if ( forClosing )
+            {
+                unlockExclusive( pages[i] );
+            }
+            else
+            {
+                unlockFlush( pages[i], flushStamps[i], false );
+            }
+        }
+        vectoredFlush( pages, bufferAddresses, flushStamps, pagesToFlush, flushOpportunity, forClosing );
+        return pagesToFlush;
     }
 
     private void vectoredFlush(
@@ -619,6 +722,55 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         return count == 0;
     }
 
+    /**
+     * Atomically increment the reference count, but only if this file is still mapped. That is, only if the reference
+     * count has not already dropped to zero. This allows background threads to take a reference to a file they found
+     * in the list of mappings, without holding the mapping lock.
+     *
+     * @return {@code true} if the reference was taken, otherwise {@code false}.
+     */
+    boolean tryIncrementRefCount()
+    {
+        long current;
+        long update;
+        do
+        {
+            current = getHeaderState();
+            long count = refCountOf( current );
+            if ( count == 0 || count == headerStateRefCountMax )
+            {
+                return false;
+            }
+            update = (current & headerStateLastPageIdMask) + ((count + 1) << headerStateRefCountShift);
+        }
+        while ( !UnsafeUtil.compareAndSwapLong( this, headerStateOffset, current, update ) );
+        return true;
+    }
+
+    /**
+     * Atomically decrement the reference count, unless this is the last reference. The last reference must be released
+     * through {@link MuninnPageCache#unmap(MuninnPagedFile)}, so the file is unmapped and closed.
+     *
+     * @return {@code true} if the reference was released, or {@code false} if it was the last reference.
+     */
+    boolean tryDecrementRefCountUnlessLast()
+    {
+        long current;
+        long update;
+        do
+        {
+            current = getHeaderState();
+            long count = refCountOf( current );
+            if ( count <= 1 )
+            {
+                return false;
+            }
+            update = (current & headerStateLastPageIdMask) + ((count - 1) << headerStateRefCountShift);
+        }
+        while ( !UnsafeUtil.compareAndSwapLong( this, headerStateOffset, current, update ) );
+        return true;
+    }
+
     /**
      * Get the current ref-count. Useful for checking if this PagedFile should
      * be considered unmapped.
@@ -643,6 +795,143 @@ final class MuninnPagedFile extends PageList implements PagedFile, Flushable
         return pageCache.grabFreeAndExclusivelyLockedPage( faultEvent );
     }
 
+    /**
+     * Fault in the pages in the given range that are not already in memory, using one vectored read for every run of
+     * consecutive absent pages. Read-ahead is only a hint, so pages that are in memory, or are concurrently being
+     * faulted in by other threads, are simply skipped, and the range is truncated to the end of the file.
+     * <p>
+     * This is called by the read-ahead thread of the page cache, on behalf of sequentially reading page cursors.
+     *
+     * @param startFilePageId the first file page to read ahead.
+     * @param pageCount the number of pages to read ahead.
+     * @param tracer the tracer for the page faults done by the read-ahead.
+     * @return the number of pages that were faulted in.
+     */
+    int readAhead( long startFilePageId, int pageCount, PageCursorTracer tracer ) throws IOException
+    {
+        long endFilePageId = Math.min( startFilePageId + pageCount, getLastPageId() + 1 );
+        int capacity = (int) Math.max( 0, endFilePageId - startFilePageId );
+        long[] pageRefs = new long[capacity];
+        long[] bufferAddresses = new long[capacity];
+        LatchMap.Latch[] latches = new LatchMap.Latch[capacity];
+        PinEvent[] pinEvents = new PinEvent[capacity];
+        PageFaultEvent[] faultEvents = new PageFaultEvent[capacity];
+        int pagesFaulted = 0;
+        int runLength = 0;
+        long runStart = startFilePageId;
+        for ( long filePageId = startFilePageId; filePageId < endFilePageId; filePageId++ )
+        {
+            LatchMap.Latch latch = tryLatchUnmappedPage( filePageId );
+            if ( latch == null )
+            {
+                // The page is already in memory, or on its way in; end the current run here.
+                pagesFaulted += faultReadAheadRun(
+                        runStart, runLength, pageRefs, bufferAddresses, latches, pinEvents, faultEvents );
+                runLength = 0;
+                runStart = filePageId + 1;
+                continue;
+            }
+            PinEvent pinEvent = tracer.beginPin( false, filePageId, swapper );
+            PageFaultEvent faultEvent = pinEvent.beginPageFault();
+            try
+            {
+                pageRefs[runLength] = grabFreeAndExclusivelyLockedPage( faultEvent );
+            }
+            catch ( Throwable throwable )
+            {
+                latch.release();
+                faultEvent.done( throwable );
+                pinEvent.done();
+                abortReadAheadRun( throwable, runLength, pageRefs, latches, pinEvents, faultEvents );
+                throw throwable;
+            }
+            latches[runLength] = latch;
+            pinEvents[runLength] = pinEvent;
+            faultEvents[runLength] = faultEvent;
+            runLength++;
+        }
+        pagesFaulted += faultReadAheadRun(
+                runStart, runLength, pageRefs, bufferAddresses, latches, pinEvents, faultEvents );
+        return pagesFaulted;
+    }
+
+    private LatchMap.Latch tryLatchUnmappedPage( long filePageId )
+    {
+        int chunkId = computeChunkId( filePageId );
+        int[][] tt = translationTable;
+        if ( tt.length <= chunkId )
+        {
+            tt = expandCapacity( chunkId );
+        }
+        int[] chunk = tt[chunkId];
+        long chunkOffset = computeChunkOffset( filePageId );
+        if ( UnsafeUtil.getIntVolatile( chunk, chunkOffset ) != UNMAPPED_TTE )
+        {
+            return null;
+        }
+        LatchMap.Latch latch = pageFaultLatches.tryTakeLatch( filePageId );
+        if ( latch != null && UnsafeUtil.getIntVolatile( chunk, chunkOffset ) != UNMAPPED_TTE )
+        {
+            // We raced with a page fault that completed before we got our latch.
+            latch.release();
+            return null;
+        }
+        return latch;
+    }
+
+    private int faultReadAheadRun( long startFilePageId, int length, long[] pageRefs, long[] bufferAddresses,
+            LatchMap.Latch[] latches, PinEvent[] pinEvents, PageFaultEvent[] faultEvents ) throws IOException
+    {
+        if ( length == 0 )
+        {
+            return 0;
+        }
+        long bytesRead;
+        try
+        {
+            // Check if we're racing with unmapping, just like the page cursors do when they page fault.
+            getLastPageId();
+            for ( int i = 0; i < length; i++ )
+            {
+                initBuffer( pageRefs[i] );
+            }
+            bytesRead = faultRun( pageRefs, bufferAddresses, length, swapper, swapperId, startFilePageId );
+        }
+        catch ( Throwable throwable )
+        {
+            abortReadAheadRun( throwable, length, pageRefs, latches, pinEvents, faultEvents );
+            throw throwable;
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            long filePageId = startFilePageId + i;
+            long pageRef = pageRefs[i];
+            int[] chunk = translationTable[computeChunkId( filePageId )];
+            UnsafeUtil.putIntVolatile( chunk, computeChunkOffset( filePageId ), toId( pageRef ) );
+            unlockExclusive( pageRef );
+            latches[i].release();
+            PageFaultEvent faultEvent = faultEvents[i];
+            faultEvent.addBytesRead( Math.max( 0, Math.min( filePageSize, bytesRead - ((long) i) * filePageSize ) ) );
+            faultEvent.setCachePageId( toId( pageRef ) );
+            faultEvent.done();
+            pinEvents[i].done();
+        }
+        return length;
+    }
+
+    private void abortReadAheadRun( Throwable throwable, int length, long[] pageRefs, LatchMap.Latch[] latches,
+            PinEvent[] pinEvents, PageFaultEvent[] faultEvents )
+    {
+        for ( int i = 0; i < length; i++ )
+        {
+            // Make sure to unlock the pages, so the eviction thread can pick up our trash.
+            unlockExclusive( pageRefs[i] );
+            latches[i].release();
+            faultEvents[i].done( throwable );
+            pinEvents[i].done();
+        }
+    }
+
     /**
      * Remove the mapping of the given filePageId from the translation table, and return the evicted page object.
      * @param filePageId The id of the file page to evict.
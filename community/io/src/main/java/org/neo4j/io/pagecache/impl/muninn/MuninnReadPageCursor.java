@@ -56,8 +56,15 @@ final class MuninnReadPageCursor extends MuninnPageCursor
         {
             return false;
         }
+        if ( !noFault )
+        {
+            considerReadAhead( nextPageId, lastPageId );
+        }
         pin( nextPageId, false );
-        currentPageId = nextPageId;
+        if ( pinnedPageRef != 0 )
+        {
+            currentPageId = nextPageId;
+        }
         nextPageId++;
         return true;
     }
@@ -78,7 +85,10 @@ final class MuninnReadPageCursor extends MuninnPageCursor
     protected void pinCursorToPage( long pageRef, long filePageId, PageSwapper swapper )
     {
         reset( pageRef );
-        pagedFile.incrementUsage( pageRef );
+        if ( !noFault )
+        {
+            pagedFile.incrementUsage( pageRef );
+        }
     }
 
     @Override
@@ -26,6 +26,7 @@ import org.neo4j.io.pagecache.PageSwapper;
 import org.neo4j.io.pagecache.tracing.EvictionEvent;
 import org.neo4j.io.pagecache.tracing.EvictionEventOpportunity;
 import org.neo4j.io.pagecache.tracing.FlushEvent;
+import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.io.pagecache.tracing.PageFaultEvent;
 import org.neo4j.unsafe.impl.internal.dragons.MemoryManager;
 import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
@@ -43,7 +44,7 @@ import static java.lang.String.format;
  *     <tr><td>8</td><td>Pointer to the memory page.</td></tr>
  *     <tr><td>8</td><td>File page id.</td></tr>
  *     <tr><td>4</td><td>Page swapper id.</td></tr>
- *     <tr><td>1</td><td>Usage stamp. Optimistically incremented; truncated to a max of 4.</td></tr>
+ *     <tr><td>1</td><td>Usage stamp. Maintained by the {@link EvictionPolicy}.</td></tr>
  *     <tr><td>3</td><td>Padding.</td></tr>
  * </table>
  */
@@ -92,14 +93,25 @@ class PageList
     private final SwapperSet swappers;
     private final long victimPageAddress;
     private final long baseAddress;
+    private final EvictionPolicy evictionPolicy;
+    private final PageCacheTracer pageCacheTracer;
 
     PageList( int pageCount, int cachePageSize, MemoryManager memoryManager, SwapperSet swappers, long victimPageAddress )
+    {
+        this( pageCount, cachePageSize, memoryManager, swappers, victimPageAddress, EvictionPolicy.CLOCK,
+                PageCacheTracer.NULL );
+    }
+
+    PageList( int pageCount, int cachePageSize, MemoryManager memoryManager, SwapperSet swappers,
+            long victimPageAddress, EvictionPolicy evictionPolicy, PageCacheTracer pageCacheTracer )
     {
         this.pageCount = pageCount;
         this.cachePageSize = cachePageSize;
         this.memoryManager = memoryManager;
         this.swappers = swappers;
         this.victimPageAddress = victimPageAddress;
+        this.evictionPolicy = evictionPolicy;
+        this.pageCacheTracer = pageCacheTracer;
         long bytes = pageCount * META_DATA_BYTES_PER_PAGE;
         this.baseAddress = memoryManager.allocateAligned( bytes );
         clearMemory( baseAddress, pageCount );
@@ -120,6 +132,8 @@ class PageList
         this.swappers = pageList.swappers;
         this.victimPageAddress = pageList.victimPageAddress;
         this.baseAddress = pageList.baseAddress;
+        this.evictionPolicy = pageList.evictionPolicy;
+        this.pageCacheTracer = pageList.pageCacheTracer;
     }
 
     private void clearMemory( long baseAddress, long pageCount )
@@ -143,6 +157,19 @@ class PageList
         return pageCount;
     }
 
+    public EvictionPolicy getEvictionPolicy()
+    {
+        return evictionPolicy;
+    }
+
+    /**
+     * @return The tracer that the eviction policy reports its promotions and demotions to.
+     */
+    PageCacheTracer getPageCacheTracer()
+    {
+        return pageCacheTracer;
+    }
+
     public SwapperSet getSwappers()
     {
         return swappers;
@@ -277,43 +304,32 @@ class PageList
         }
     }
 
-    private byte getUsageCounter( long pageRef )
+    byte getUsageCounter( long pageRef )
     {
         return UnsafeUtil.getByteVolatile( offUsage( pageRef ) );
     }
 
-    private void setUsageCounter( long pageRef, byte count )
+    void setUsageCounter( long pageRef, byte count )
     {
         UnsafeUtil.putByteVolatile( offUsage( pageRef ), count );
     }
 
     /**
-     * Increment the usage stamp to at most 4.
+     * Record an access to the page in its usage stamp, as dictated by the {@link EvictionPolicy}.
      **/
     public void incrementUsage( long pageRef )
     {
         // This is intentionally left benignly racy for performance.
-        byte usage = getUsageCounter( pageRef );
-        if ( usage < 4 ) // avoid cache sloshing by not doing a write if counter is already maxed out
-        {
-            usage++;
-            setUsageCounter( pageRef, usage );
-        }
+        evictionPolicy.pageAccessed( this, pageRef );
     }
 
     /**
-     * Decrement the usage stamp. Returns true if it reaches 0.
+     * Age the usage stamp, as dictated by the {@link EvictionPolicy}. Returns true if the page should be evicted.
      **/
     public boolean decrementUsage( long pageRef )
     {
         // This is intentionally left benignly racy for performance.
-        byte usage = getUsageCounter( pageRef );
-        if ( usage > 0 )
-        {
-            usage--;
-            setUsageCounter( pageRef, usage );
-        }
-        return usage == 0;
+        return evictionPolicy.pageSwept( this, pageRef );
     }
 
     public long getFilePageId( long pageRef )
@@ -368,12 +384,55 @@ class PageList
         // the file page, so any subsequent thread that finds the page in their
         // translation table will re-do the page fault.
         setFilePageId( pageRef, filePageId ); // Page now considered isLoaded()
+        evictionPolicy.pageFaulted( this, pageRef );
         long bytesRead = swapper.read( filePageId, getAddress( pageRef ), cachePageSize );
         event.addBytesRead( bytesRead );
         event.setCachePageId( toId( pageRef ) );
         setSwapperId( pageRef, swapperId ); // Page now considered isBoundTo( swapper, filePageId )
     }
 
+    /**
+     * Fault a run of consecutive file pages, starting with the given {@code startFilePageId}, into the given pages,
+     * with a single vectored read. All the pages must be exclusively locked, and unbound, just like for
+     * {@link #fault(long, PageSwapper, int, long, PageFaultEvent)}.
+     *
+     * @return the total number of bytes read for the run.
+     */
+    public long faultRun( long[] pageRefs, long[] bufferAddresses, int length, PageSwapper swapper, int swapperId,
+            long startFilePageId ) throws IOException
+    {
+        if ( swapper == null )
+        {
+            throw swapperCannotBeNull();
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            long pageRef = pageRefs[i];
+            long filePageId = startFilePageId + i;
+            int currentSwapper = getSwapperId( pageRef );
+            long currentFilePageId = getFilePageId( pageRef );
+            if ( !isExclusivelyLocked( pageRef ) || currentSwapper != 0 ||
+                 currentFilePageId != PageCursor.UNBOUND_PAGE_ID )
+            {
+                throw cannotFaultException(
+                        pageRef, swapper, swapperId, filePageId, currentSwapper, currentFilePageId );
+            }
+        }
+        // See the comment in the fault method above, on why we assign the file page ids before swapping in.
+        for ( int i = 0; i < length; i++ )
+        {
+            setFilePageId( pageRefs[i], startFilePageId + i ); // Page now considered isLoaded()
+            evictionPolicy.pageFaulted( this, pageRefs[i] );
+            bufferAddresses[i] = getAddress( pageRefs[i] );
+        }
+        long bytesRead = swapper.read( startFilePageId, bufferAddresses, cachePageSize, 0, length );
+        for ( int i = 0; i < length; i++ )
+        {
+            setSwapperId( pageRefs[i], swapperId ); // Page now considered isBoundTo( swapper, filePageId )
+        }
+        return bytesRead;
+    }
+
     private static IllegalArgumentException swapperCannotBeNull()
     {
         return new IllegalArgumentException( "swapper cannot be null" );
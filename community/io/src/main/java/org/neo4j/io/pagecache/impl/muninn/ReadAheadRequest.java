@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+/**
+ * A request, from a page cursor, to read ahead a range of pages in a paged file.
+ * <p>
+ * The request does not hold a reference to the paged file while it is queued up. The read-ahead thread takes one
+ * when it gets to the request, or drops the request if the file has been unmapped in the mean time.
+ * <p>
+ * The page cache allocates a fixed number of requests up front, and recycles them, so cursors do not allocate when
+ * they ask for read-ahead. The fields are published to the read-ahead thread by the queue that the request is put on.
+ *
+ * @see MuninnPagedFile#readAhead(long, int, org.neo4j.io.pagecache.tracing.cursor.PageCursorTracer)
+ */
+final class ReadAheadRequest
+{
+    MuninnPagedFile pagedFile;
+    long startFilePageId;
+    int pageCount;
+
+    void set( MuninnPagedFile pagedFile, long startFilePageId, int pageCount )
+    {
+        this.pagedFile = pagedFile;
+        this.startFilePageId = startFilePageId;
+        this.pageCount = pageCount;
+    }
+
+    void clear()
+    {
+        set( null, 0, 0 );
+    }
+}
@@ -65,6 +65,12 @@ public interface PageCacheCounters
      */
     long bytesWritten();
 
+    /**
+     * @return The average number of bytes written per flush thus far. Since adjacent dirty pages are flushed together
+     * with a single vectored write, this is a measure of how well the page cache manages to coalesce its writes.
+     */
+    double averageFlushSize();
+
     /**
      * @return The number of file mappings observed thus far.
      */
@@ -80,6 +86,21 @@ public interface PageCacheCounters
      */
     long evictionExceptions();
 
+    /**
+     * @return The number of pages that the eviction policy has promoted to its protected segment thus far, because
+     * they were accessed again after having survived a full revolution of the eviction clock. These are the cache hits
+     * that the policy considers to be on the working set, as opposed to hits on pages that are only touched by scans.
+     * Eviction policies that do not segment the pages never report any promotions.
+     */
+    long promotions();
+
+    /**
+     * @return The number of pages that the eviction policy has demoted from its protected segment thus far, because
+     * they were not accessed again before their usage ran out. A demoted page is evicted on a later sweep, unless it
+     * is promoted again first.
+     */
+    long demotions();
+
     /**
      * @return The cache hit ratio observed thus far.
      */
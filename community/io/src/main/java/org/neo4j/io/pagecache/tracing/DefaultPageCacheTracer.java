@@ -42,6 +42,8 @@ public class DefaultPageCacheTracer implements PageCacheTracer
     protected final LongAdder filesMapped = new LongAdder();
     protected final LongAdder filesUnmapped = new LongAdder();
     protected final LongAdder evictionExceptions = new LongAdder();
+    protected final LongAdder promotions = new LongAdder();
+    protected final LongAdder demotions = new LongAdder();
 
     private final FlushEvent flushEvent = new FlushEvent()
     {
@@ -213,6 +215,13 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         return bytesWritten.sum();
     }
 
+    @Override
+    public double averageFlushSize()
+    {
+        long flushes = flushes();
+        return flushes == 0 ? 0d : bytesWritten() / (double) flushes;
+    }
+
     @Override
     public long filesMapped()
     {
@@ -231,6 +240,18 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         return evictionExceptions.sum();
     }
 
+    @Override
+    public long promotions()
+    {
+        return promotions.sum();
+    }
+
+    @Override
+    public long demotions()
+    {
+        return demotions.sum();
+    }
+
     @Override
     public double hitRatio()
     {
@@ -290,4 +311,16 @@ public class DefaultPageCacheTracer implements PageCacheTracer
     {
         this.flushes.add( flushes );
     }
+
+    @Override
+    public void promotions( long promotions )
+    {
+        this.promotions.add( promotions );
+    }
+
+    @Override
+    public void demotions( long demotions )
+    {
+        this.demotions.add( demotions );
+    }
 }
@@ -112,6 +112,12 @@ public interface PageCacheTracer extends PageCacheCounters
             return 0;
         }
 
+        @Override
+        public double averageFlushSize()
+        {
+            return 0d;
+        }
+
         @Override
         public long filesMapped()
         {
@@ -130,6 +136,18 @@ public interface PageCacheTracer extends PageCacheCounters
             return 0;
         }
 
+        @Override
+        public long promotions()
+        {
+            return 0;
+        }
+
+        @Override
+        public long demotions()
+        {
+            return 0;
+        }
+
         @Override
         public double hitRatio()
         {
@@ -181,6 +199,16 @@ public interface PageCacheTracer extends PageCacheCounters
         {
         }
 
+        @Override
+        public void promotions( long promotions )
+        {
+        }
+
+        @Override
+        public void demotions( long demotions )
+        {
+        }
+
         @Override
         public String toString()
         {
@@ -270,4 +298,16 @@ public interface PageCacheTracer extends PageCacheCounters
      * @param flushes number of flushes
      */
     void flushes( long flushes );
+
+    /**
+     * Report number of pages promoted to the protected segment by the eviction policy
+     * @param promotions number of promoted pages
+     */
+    void promotions( long promotions );
+
+    /**
+     * Report number of pages demoted from the protected segment by the eviction policy
+     * @param demotions number of demoted pages
+     */
+    void demotions( long demotions );
 }
@@ -19,6 +19,7 @@
  */
 package org.neo4j.adversaries.pagecache;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
@@ -69,6 +70,12 @@ public class AdversarialPagedFile implements PagedFile
         return delegate.pageSize();
     }
 
+    @Override
+    public File file()
+    {
+        return delegate.file();
+    }
+
     @Override
     public long fileSize() throws IOException
     {
@@ -90,6 +97,13 @@ public class AdversarialPagedFile implements PagedFile
         delegate.flushAndForce( limiter );
     }
 
+    @Override
+    public void flushAndForceRange( long startFilePageId, long endFilePageId, IOLimiter limiter ) throws IOException
+    {
+        adversary.injectFailure( FileNotFoundException.class, IOException.class, SecurityException.class );
+        delegate.flushAndForceRange( startFilePageId, endFilePageId, limiter );
+    }
+
     @Override
     public long getLastPageId() throws IOException
     {
@@ -19,6 +19,7 @@
  */
 package org.neo4j.io.pagecache;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -52,6 +53,12 @@ public class DelegatingPagedFile implements PagedFile
         return delegate.pageSize();
     }
 
+    @Override
+    public File file()
+    {
+        return delegate.file();
+    }
+
     @Override
     public long fileSize() throws IOException
     {
@@ -79,4 +86,9 @@ public class DelegatingPagedFile implements PagedFile
     {
         delegate.flushAndForce( limiter );
     }
+
+    public void flushAndForceRange( long startFilePageId, long endFilePageId, IOLimiter limiter ) throws IOException
+    {
+        delegate.flushAndForceRange( startFilePageId, endFilePageId, limiter );
+    }
 }
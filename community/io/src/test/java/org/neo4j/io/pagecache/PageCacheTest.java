@@ -76,6 +76,7 @@ import static java.lang.Long.toHexString;
 import static java.lang.System.currentTimeMillis;
 import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
 import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
@@ -550,7 +551,8 @@ public abstract class PageCacheTest<T extends PageCache> extends PageCacheTestSu
                     @Override
                     public void writeAll( ByteBuffer src, long position ) throws IOException
                     {
-                        writeCounter.getAndIncrement();
+                        // Count pages rather than calls, since adjacent pages may be written together.
+                        writeCounter.getAndAdd( src.remaining() / filePageSize );
                         super.writeAll( src, position );
                     }
 
@@ -1161,6 +1163,68 @@ public abstract class PageCacheTest<T extends PageCache> extends PageCacheTestSu
         assertFalse( dont_exist.isPresent() );
     }
 
+    @Test
+    public void mustListExistingMappings() throws Exception
+    {
+        configureStandardPageCache();
+        File f1 = existingFile( "1" );
+        File f2 = existingFile( "2" );
+        File f3 = existingFile( "3" ); // Not mapped at the time of calling listExistingMappings.
+        existingFile( "4" ); // Never mapped.
+        try ( PagedFile pf1 = pageCache.map( f1, filePageSize );
+              PagedFile pf2 = pageCache.map( f2, filePageSize ) )
+        {
+            pageCache.map( f3, filePageSize ).close();
+            List<PagedFile> existingMappings = pageCache.listExistingMappings();
+            assertThat( existingMappings.size(), is( 2 ) );
+            assertThat( existingMappings, containsInAnyOrder( pf1, pf2 ) );
+        }
+    }
+
+    @Test
+    public void readCursorWithNoFaultFlagMustNotFaultInPagesThatAreNotInMemory() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordsPerFilePage * 3, recordSize );
+        configureStandardPageCache();
+
+        try ( PagedFile pf = pageCache.map( file( "a" ), filePageSize ) )
+        {
+            try ( PageCursor cursor = pf.io( 1, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+            }
+
+            try ( PageCursor cursor = pf.io( 0, PF_SHARED_READ_LOCK | PF_NO_FAULT ) )
+            {
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( PageCursor.UNBOUND_PAGE_ID ) );
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( 1L ) );
+                verifyRecordsMatchExpected( cursor );
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( PageCursor.UNBOUND_PAGE_ID ) );
+                assertFalse( cursor.next() );
+            }
+
+            // The pages we visited with PF_NO_FAULT must still not be in memory.
+            try ( PageCursor cursor = pf.io( 0, PF_SHARED_READ_LOCK | PF_NO_FAULT ) )
+            {
+                assertTrue( cursor.next( 2 ) );
+                assertThat( cursor.getCurrentPageId(), is( PageCursor.UNBOUND_PAGE_ID ) );
+            }
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void writeCursorWithNoFaultFlagMustThrow() throws Exception
+    {
+        configureStandardPageCache();
+        try ( PagedFile pf = pageCache.map( file( "a" ), filePageSize ) )
+        {
+            pf.io( 0, PF_SHARED_WRITE_LOCK | PF_NO_FAULT );
+        }
+    }
+
     private void verifyOnReadCursor(
             ThrowingConsumer<PageCursorAction,IOException> testTemplate ) throws IOException
     {
@@ -2246,7 +2310,8 @@ public abstract class PageCacheTest<T extends PageCache> extends PageCacheTestSu
         // dirty again.
         // We also subtract 'maxPages' from the expected flush count, because
         // vectored IO may coalesce all the flushes we do as part of unmapping
-        // the file, into a single flush.
+        // the file, into a single flush. The eviction flush window does not
+        // coalesce any flushes here, since it is disabled for caches this small.
         long flushes = tracer.flushes();
         long bytesWritten = tracer.bytesWritten();
         assertThat( "wrong count of flushes",
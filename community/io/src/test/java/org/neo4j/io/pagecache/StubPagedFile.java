@@ -19,6 +19,7 @@
  */
 package org.neo4j.io.pagecache;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -53,6 +54,12 @@ public class StubPagedFile implements PagedFile
         return exposedPageSize;
     }
 
+    @Override
+    public File file()
+    {
+        return new File( "stub" );
+    }
+
     @Override
     public long fileSize() throws IOException
     {
@@ -74,6 +81,11 @@ public class StubPagedFile implements PagedFile
     {
     }
 
+    @Override
+    public void flushAndForceRange( long startFilePageId, long endFilePageId, IOLimiter limiter ) throws IOException
+    {
+    }
+
     @Override
     public long getLastPageId() throws IOException
     {
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.neo4j.io.ByteUnit;
+import org.neo4j.io.pagecache.tracing.DefaultPageCacheTracer;
+import org.neo4j.unsafe.impl.internal.dragons.MemoryManager;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EvictionPolicyTest
+{
+    private static final int PAGE_COUNT = 4;
+
+    private static MemoryManager mman;
+
+    @BeforeClass
+    public static void setUpStatics()
+    {
+        mman = new MemoryManager( ByteUnit.mebiBytes( 1 ), 8 );
+    }
+
+    @AfterClass
+    public static void tearDownStatics()
+    {
+        mman = null;
+    }
+
+    private DefaultPageCacheTracer tracer;
+    private PageList pageList;
+    private long pageRef;
+
+    @Before
+    public void setUp()
+    {
+        int pageSize = UnsafeUtil.pageSize();
+        tracer = new DefaultPageCacheTracer();
+        pageList = new PageList( PAGE_COUNT, pageSize, mman, new SwapperSet(),
+                VictimPageReference.getVictimPage( pageSize ), EvictionPolicy.PROBATIONARY_CLOCK, tracer );
+        pageRef = pageList.deref( 1 );
+        EvictionPolicy.PROBATIONARY_CLOCK.pageFaulted( pageList, pageRef );
+    }
+
+    @Test
+    public void mustDefaultToClockPolicy() throws Exception
+    {
+        int pageSize = UnsafeUtil.pageSize();
+        PageList pages = new PageList( PAGE_COUNT, pageSize, mman, new SwapperSet(),
+                VictimPageReference.getVictimPage( pageSize ) );
+        assertSame( EvictionPolicy.CLOCK, pages.getEvictionPolicy() );
+    }
+
+    @Test
+    public void unreferencedProbationaryPageMustBeEvictedOnSecondSweep() throws Exception
+    {
+        assertFalse( pageList.decrementUsage( pageRef ) );
+        assertTrue( pageList.decrementUsage( pageRef ) );
+    }
+
+    @Test
+    public void repeatedAccessesDuringProbationMustCountAsOne() throws Exception
+    {
+        // This is what a scan looks like: a burst of pins, and then nothing.
+        for ( int i = 0; i < 100; i++ )
+        {
+            pageList.incrementUsage( pageRef );
+        }
+        assertFalse( pageList.decrementUsage( pageRef ) );
+        assertTrue( pageList.decrementUsage( pageRef ) );
+    }
+
+    @Test
+    public void pageReferencedAfterAgingMustBePromoted() throws Exception
+    {
+        pageList.incrementUsage( pageRef );
+        assertFalse( pageList.decrementUsage( pageRef ) ); // aged
+        pageList.incrementUsage( pageRef ); // promoted
+        pageList.incrementUsage( pageRef );
+        assertFalse( pageList.decrementUsage( pageRef ) );
+        assertFalse( pageList.decrementUsage( pageRef ) ); // demoted to aged probation
+        assertTrue( pageList.decrementUsage( pageRef ) );
+    }
+
+    @Test
+    public void promotionsAndDemotionsMustBeReportedToTracer() throws Exception
+    {
+        // GIVEN
+        for ( int i = 0; i < 10; i++ )
+        {
+            pageList.incrementUsage( pageRef );
+        }
+        assertFalse( pageList.decrementUsage( pageRef ) ); // aged
+        assertEquals( 0, tracer.promotions() );
+
+        // WHEN
+        pageList.incrementUsage( pageRef ); // promoted
+        pageList.incrementUsage( pageRef );
+        assertFalse( pageList.decrementUsage( pageRef ) );
+        assertFalse( pageList.decrementUsage( pageRef ) ); // demoted
+
+        // THEN
+        assertEquals( 1, tracer.promotions() );
+        assertEquals( 1, tracer.demotions() );
+    }
+
+    @Test
+    public void protectedPageUsageMustTruncateAtFour() throws Exception
+    {
+        assertFalse( pageList.decrementUsage( pageRef ) );
+        for ( int i = 0; i < 10; i++ )
+        {
+            pageList.incrementUsage( pageRef );
+        }
+        for ( int i = 0; i < 4; i++ )
+        {
+            assertFalse( pageList.decrementUsage( pageRef ) );
+        }
+        assertTrue( pageList.decrementUsage( pageRef ) );
+    }
+
+    @Test
+    public void faultMustResetUsageOfPreviouslyProtectedPage() throws Exception
+    {
+        assertFalse( pageList.decrementUsage( pageRef ) );
+        pageList.incrementUsage( pageRef );
+        pageList.incrementUsage( pageRef );
+
+        EvictionPolicy.PROBATIONARY_CLOCK.pageFaulted( pageList, pageRef );
+        assertFalse( pageList.decrementUsage( pageRef ) );
+        assertTrue( pageList.decrementUsage( pageRef ) );
+    }
+
+    @Test
+    public void policyMustNotInterfereWithAdjacentUsageCounters() throws Exception
+    {
+        long prevPageRef = pageList.deref( 0 );
+        long nextPageRef = pageList.deref( 2 );
+        EvictionPolicy.PROBATIONARY_CLOCK.pageFaulted( pageList, prevPageRef );
+        EvictionPolicy.PROBATIONARY_CLOCK.pageFaulted( pageList, nextPageRef );
+        assertFalse( pageList.decrementUsage( pageRef ) );
+        pageList.incrementUsage( pageRef );
+        pageList.incrementUsage( pageRef );
+
+        assertFalse( pageList.decrementUsage( prevPageRef ) );
+        assertTrue( pageList.decrementUsage( prevPageRef ) );
+        assertFalse( pageList.decrementUsage( nextPageRef ) );
+        assertTrue( pageList.decrementUsage( nextPageRef ) );
+    }
+}
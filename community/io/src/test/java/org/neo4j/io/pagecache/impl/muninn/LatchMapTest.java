@@ -70,6 +70,18 @@ public class LatchMapTest
         assertThat( future.get( 1, TimeUnit.SECONDS ), is( nullValue() ) );
     }
 
+    @Test
+    public void tryTakeLatchMustReturnNullWithoutWaitingIfLatchIsTaken() throws Exception
+    {
+        BinaryLatch latch = latches.takeOrAwaitLatch( 42 );
+        assertThat( latch, is( notNullValue() ) );
+        assertThat( latches.tryTakeLatch( 42 ), is( nullValue() ) );
+        latch.release();
+        BinaryLatch second = latches.tryTakeLatch( 42 );
+        assertThat( second, is( notNullValue() ) );
+        second.release();
+    }
+
     @Test
     public void takeOrAwaitLatchMustNotLetUnrelatedLatchesConflictTooMuch() throws Exception
     {
@@ -25,6 +25,8 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 
@@ -32,19 +34,23 @@ import org.neo4j.graphdb.mockfs.DelegatingFileSystemAbstraction;
 import org.neo4j.graphdb.mockfs.DelegatingStoreChannel;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCacheTest;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.tracing.ConfigurablePageCursorTracerSupplier;
+import org.neo4j.io.pagecache.tracing.DefaultPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.DelegatingPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.EvictionRunEvent;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.io.pagecache.tracing.cursor.DefaultPageCursorTracerSupplier;
+import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
 import org.neo4j.io.pagecache.tracing.recording.RecordingPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.recording.RecordingPageCursorTracer;
 import org.neo4j.io.pagecache.tracing.recording.RecordingPageCursorTracer.Fault;
 
+import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -53,6 +59,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
 import static org.neo4j.io.pagecache.tracing.recording.RecordingPageCacheTracer.Evict;
@@ -342,6 +349,228 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         }
     }
 
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void cursorWithReadAheadFlagMustHaveFollowingPagesFaultedInAsynchronously() throws Exception
+    {
+        int pageCount = 100;
+        File file = file( "a" );
+        try ( StoreChannel channel = fs.create( file ) )
+        {
+            ByteBuffer buf = ByteBuffer.allocate( 8 * pageCount );
+            for ( int i = 0; i < pageCount; i++ )
+            {
+                buf.putLong( i );
+            }
+            buf.flip();
+            channel.writeAll( buf );
+        }
+
+        DefaultPageCursorTracerSupplier.INSTANCE.get().reportEvents(); // Get rid of any stale events from other tests.
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, 8, tracer,
+                DefaultPageCursorTracerSupplier.INSTANCE );
+              PagedFile pagedFile = pageCache.map( file, 8 ) )
+        {
+            int readAheadPages = pageCache.readAheadPages;
+            assertTrue( readAheadPages > 1 );
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+            {
+                assertTrue( cursor.next() );
+                // The faults of the read-ahead thread are reported independently of our own cursor.
+                while ( tracer.faults() < readAheadPages )
+                {
+                    Thread.sleep( 1 );
+                }
+                for ( long pageId = 0; pageId < pageCount; pageId++ )
+                {
+                    assertTrue( pageId == 0 || cursor.next() );
+                    long value;
+                    do
+                    {
+                        value = cursor.getLong();
+                    }
+                    while ( cursor.shouldRetry() );
+                    assertEquals( pageId, value );
+                }
+                assertFalse( cursor.next() );
+            }
+            DefaultPageCursorTracerSupplier.INSTANCE.get().reportEvents();
+
+            // Every page must be faulted in exactly once, whether by the cursor or by the read-ahead. The read-ahead
+            // thread reports its faults at its own pace, so we might have to wait a little for the last of them.
+            while ( tracer.faults() < pageCount )
+            {
+                Thread.sleep( 1 );
+            }
+            assertEquals( pageCount, tracer.faults() );
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void queuedReadAheadRequestsMustNotPreventUnmappingAndClosing() throws Exception
+    {
+        // GIVEN
+        int pageCount = 100;
+        File file = file( "a" );
+        try ( StoreChannel channel = fs.create( file ) )
+        {
+            channel.writeAll( ByteBuffer.allocate( 8 * pageCount ) );
+        }
+        MuninnPageCache pageCache = createPageCache( fs, 1024, 8, PageCacheTracer.NULL,
+                DefaultPageCursorTracerSupplier.INSTANCE );
+        MuninnPagedFile pagedFile = (MuninnPagedFile) pageCache.map( file, 8 );
+
+        // WHEN
+        for ( int i = 0; i < pageCount; i += 10 )
+        {
+            pageCache.requestReadAhead( pagedFile, i, 10 );
+        }
+        pagedFile.close();
+
+        // THEN
+        pageCache.close();
+        assertEquals( 0, pagedFile.getRefCount() );
+    }
+
+    @Test
+    public void flushingWindowAroundPageMustWriteAdjacentDirtyPagesInOneVectoredWrite() throws Exception
+    {
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, 8, tracer, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = pageCache.map( file( "a" ), 8 ) )
+        {
+            writePages( pagedFile, 0, 1, 2, 3, 4, 5, 6, 7, 9 );
+
+            MuninnPagedFile muninnPagedFile = (MuninnPagedFile) pagedFile;
+            try ( MajorFlushEvent flushEvent = tracer.beginFileFlush( muninnPagedFile.swapper ) )
+            {
+                muninnPagedFile.flushWindow( 5, 8, flushEvent.flushEventOpportunity() );
+            }
+
+            // Only the window of pages 0 to 7 is flushed, and all of those pages are written together.
+            assertEquals( 1, tracer.flushes() );
+            assertEquals( 8 * 8, tracer.bytesWritten() );
+            assertEquals( 8 * 8, tracer.averageFlushSize(), 0.0 );
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void flushingWindowMustSkipPagesThatCannotBeLockedRightAway() throws Exception
+    {
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, 8, tracer, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = pageCache.map( file( "a" ), 8 ) )
+        {
+            writePages( pagedFile, 0, 1, 2, 3, 4, 5, 6, 7 );
+
+            MuninnPagedFile muninnPagedFile = (MuninnPagedFile) pagedFile;
+            long lockedPageRef = findPageRef( pageCache, muninnPagedFile, 3 );
+            assertTrue( pageCache.pages.tryExclusiveLock( lockedPageRef ) );
+            try ( MajorFlushEvent flushEvent = tracer.beginFileFlush( muninnPagedFile.swapper ) )
+            {
+                muninnPagedFile.flushWindow( 5, 8, flushEvent.flushEventOpportunity() );
+            }
+            finally
+            {
+                pageCache.pages.unlockExclusive( lockedPageRef );
+            }
+
+            // The locked page is skipped rather than waited for, so it splits the window in two, and is left dirty.
+            assertEquals( 2, tracer.flushes() );
+            assertEquals( 7 * 8, tracer.bytesWritten() );
+            assertTrue( pageCache.pages.isModified( lockedPageRef ) );
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void flushingRangeMustSkipPagesThatCannotBeLockedRightAway() throws Exception
+    {
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, 8, tracer, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = pageCache.map( file( "a" ), 8 ) )
+        {
+            writePages( pagedFile, 0, 1, 2, 3, 4, 5, 6, 7 );
+
+            MuninnPagedFile muninnPagedFile = (MuninnPagedFile) pagedFile;
+            long lockedPageRef = findPageRef( pageCache, muninnPagedFile, 3 );
+            assertTrue( pageCache.pages.tryExclusiveLock( lockedPageRef ) );
+            try
+            {
+                pagedFile.flushAndForceRange( 2, 6, IOLimiter.unlimited() );
+            }
+            finally
+            {
+                pageCache.pages.unlockExclusive( lockedPageRef );
+            }
+
+            // The locked page is skipped rather than waited for, so it splits the range in two, and is left dirty.
+            assertEquals( 2, tracer.flushes() );
+            assertEquals( 3 * 8, tracer.bytesWritten() );
+            assertTrue( pageCache.pages.isModified( lockedPageRef ) );
+        }
+    }
+
+    @Test
+    public void rateLimitedFlushMustBridgeCleanPagesBetweenDirtyPages() throws Exception
+    {
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        try ( MuninnPageCache pageCache = createPageCache( fs, 1024, 8, tracer, PageCursorTracerSupplier.NULL );
+              PagedFile pagedFile = pageCache.map( file( "a" ), 8 ) )
+        {
+            writePages( pagedFile, 0, 1, 2, 3, 4 );
+            pagedFile.flushAndForce();
+
+            // Without any rate limiting, we only write the dirty pages, so the clean page 2 splits the vector in two.
+            writePages( pagedFile, 0, 1, 3, 4 );
+            long flushes = tracer.flushes();
+            long bytesWritten = tracer.bytesWritten();
+            pagedFile.flushAndForce( IOLimiter.unlimited() );
+            assertEquals( 2, tracer.flushes() - flushes );
+            assertEquals( 4 * 8, tracer.bytesWritten() - bytesWritten );
+
+            // With rate limiting, we would rather write the clean page as well, and get by with a single IO.
+            writePages( pagedFile, 0, 1, 3, 4 );
+            flushes = tracer.flushes();
+            bytesWritten = tracer.bytesWritten();
+            List<Integer> limitedIOs = new ArrayList<>();
+            pagedFile.flushAndForce( ( previousStamp, recentlyCompletedIOs, flushable ) ->
+            {
+                limitedIOs.add( recentlyCompletedIOs );
+                return previousStamp;
+            } );
+            assertEquals( 1, tracer.flushes() - flushes );
+            assertEquals( 5 * 8, tracer.bytesWritten() - bytesWritten );
+            // The clean page is not counted against the limit.
+            assertEquals( singletonList( 4 ), limitedIOs );
+        }
+    }
+
+    private long findPageRef( MuninnPageCache pageCache, MuninnPagedFile pagedFile, long filePageId )
+    {
+        PageList pages = pageCache.pages;
+        for ( int pageId = 0; pageId < pages.getPageCount(); pageId++ )
+        {
+            long pageRef = pages.deref( pageId );
+            if ( pages.isBoundTo( pageRef, pagedFile.swapperId, filePageId ) )
+            {
+                return pageRef;
+            }
+        }
+        throw new AssertionError( "File page " + filePageId + " is not in memory" );
+    }
+
+    private void writePages( PagedFile pagedFile, long... pageIds ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( long pageId : pageIds )
+            {
+                assertTrue( cursor.next( pageId ) );
+                cursor.putLong( pageId );
+            }
+        }
+    }
+
     private void writeInitialDataTo( File file ) throws IOException
     {
         try ( StoreChannel channel = fs.create( file ) )
@@ -109,6 +109,18 @@ public class DelegatingPageCacheTracer implements PageCacheTracer
         return delegate.evictionExceptions();
     }
 
+    @Override
+    public long promotions()
+    {
+        return delegate.promotions();
+    }
+
+    @Override
+    public long demotions()
+    {
+        return delegate.demotions();
+    }
+
     @Override
     public double hitRatio()
     {
@@ -169,6 +181,24 @@ public class DelegatingPageCacheTracer implements PageCacheTracer
         delegate.flushes( flushes );
     }
 
+    @Override
+    public void promotions( long promotions )
+    {
+        delegate.promotions( promotions );
+    }
+
+    @Override
+    public void demotions( long demotions )
+    {
+        delegate.demotions( demotions );
+    }
+
+    @Override
+    public double averageFlushSize()
+    {
+        return delegate.averageFlushSize();
+    }
+
     @Override
     public long filesMapped()
     {
@@ -126,6 +126,12 @@ public final class LinearHistoryPageCacheTracer implements PageCacheTracer
         return 0;
     }
 
+    @Override
+    public double averageFlushSize()
+    {
+        return 0d;
+    }
+
     @Override
     public long filesMapped()
     {
@@ -144,6 +150,18 @@ public final class LinearHistoryPageCacheTracer implements PageCacheTracer
         return 0;
     }
 
+    @Override
+    public long promotions()
+    {
+        return 0;
+    }
+
+    @Override
+    public long demotions()
+    {
+        return 0;
+    }
+
     @Override
     public double hitRatio()
     {
@@ -194,4 +212,14 @@ public final class LinearHistoryPageCacheTracer implements PageCacheTracer
     public void flushes( long flushes )
     {
     }
+
+    @Override
+    public void promotions( long promotions )
+    {
+    }
+
+    @Override
+    public void demotions( long demotions )
+    {
+    }
 }
@@ -131,6 +131,12 @@ public class RecordingPageCacheTracer extends RecordingTracer implements PageCac
         return 0;
     }
 
+    @Override
+    public double averageFlushSize()
+    {
+        return 0d;
+    }
+
     @Override
     public long filesMapped()
     {
@@ -149,6 +155,18 @@ public class RecordingPageCacheTracer extends RecordingTracer implements PageCac
         return 0;
     }
 
+    @Override
+    public long promotions()
+    {
+        return 0;
+    }
+
+    @Override
+    public long demotions()
+    {
+        return 0;
+    }
+
     @Override
     public double hitRatio()
     {
@@ -203,6 +221,16 @@ public class RecordingPageCacheTracer extends RecordingTracer implements PageCac
     {
     }
 
+    @Override
+    public void promotions( long promotions )
+    {
+    }
+
+    @Override
+    public void demotions( long demotions )
+    {
+    }
+
     private void evicted( long filePageId, PageSwapper swapper )
     {
         record( new Evict( swapper, filePageId ) );
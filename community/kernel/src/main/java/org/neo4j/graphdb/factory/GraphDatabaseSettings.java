@@ -273,6 +273,16 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static final Setting<Duration> lock_acquisition_timeout = setting( "dbms.lock.acquisition.timeout", DURATION,
             String.valueOf( UNSPECIFIED_TIMEOUT ) );
 
+    @Description( "Record every n:th lock wait, on average, in the lock contention profiler, which keeps track of " +
+            "the resources transactions wait the most for locks on. See dbms.listLockContention(). " +
+            "0 disables the lock contention profiler." )
+    public static final Setting<Integer> lock_contention_sample_interval =
+            buildSetting( "dbms.lock.contention.sample_interval", INTEGER, "1" ).constraint( min( 0 ) ).build();
+
+    @Description( "Number of most contended resources the lock contention profiler keeps track of." )
+    public static final Setting<Integer> lock_contention_max_resources =
+            buildSetting( "dbms.lock.contention.max_resources", INTEGER, "1000" ).constraint( min( 1 ) ).build();
+
     @Description( "Configures the time interval between transaction monitor checks. Determines how often " +
             "monitor thread will check transaction for timeout." )
     public static final Setting<Duration> transaction_monitor_check_interval =
@@ -349,6 +359,19 @@ public class GraphDatabaseSettings implements LoadableConfig
                   "Set this to -1 to disable the IOPS limit." )
     public static final Setting<Integer> check_point_iops_limit = setting( "dbms.checkpoint.iops.limit", INTEGER, "300" );
 
+    @Description( "Continuously flush dirty pages to disk in the background, at a pace that follows the volume of " +
+                  "transaction log written since the last check-point. Check-points then only have to flush the " +
+                  "pages that were changed since the background flush last wrote them, instead of every page " +
+                  "changed since the previous check-point, which spreads the check-point I/O out over time. " +
+                  "The background flush is subject to the same IOPS limit as check-points." )
+    public static final Setting<Boolean> check_point_incremental_flush_enabled =
+            setting( "dbms.checkpoint.incremental_flush.enabled", BOOLEAN, FALSE );
+
+    @Description( "How often the incremental check-point flush writes out the next part of the dirty pages." )
+    @Internal
+    public static final Setting<Duration> check_point_incremental_flush_interval =
+            setting( "unsupported.dbms.checkpoint.incremental_flush.interval", DURATION, "1s" );
+
     // Auto Indexing
     @Description( "Controls the auto indexing feature for nodes. Setting it to `false` shuts it down, " +
             "while `true` enables it by default for properties listed in the dbms.auto_index.nodes.keys setting." )
@@ -416,6 +439,10 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static final Setting<Boolean> enable_native_schema_index =
             setting( "unsupported.dbms.enable_native_schema_index", BOOLEAN, TRUE );
 
+    @Internal
+    public static final Setting<Boolean> enable_native_string_schema_index =
+            setting( "unsupported.dbms.enable_native_string_schema_index", BOOLEAN, FALSE );
+
     // Store settings
     @Description( "Make Neo4j keep the logical transaction logs for being able to backup the database. " +
             "Can be used for specifying the threshold to prune logical logs after. For example \"10 days\" will " +
@@ -431,12 +458,64 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static final Setting<Long> logical_log_rotation_threshold =
             buildSetting( "dbms.tx_log.rotation.size", BYTES, "250M" ).constraint( min( ByteUnit.mebiBytes( 1 ) ) ).build();
 
+    @Description( "Write the commands of transactions to the transaction log in LZ4 compressed blocks. Takes effect " +
+            "from the next log file created, the format of each log file is recorded in its header and logs of " +
+            "either format can be read regardless of this setting. Logs written with compression can not be read " +
+            "by earlier versions of Neo4j." )
+    public static final Setting<Boolean> logical_log_compression_enabled =
+            setting( "dbms.tx_log.compression.enabled", BOOLEAN, FALSE );
+
+    @Description( "Let a dedicated thread append committing transactions to the transaction log in groups, with a " +
+            "single force of the log per group. This reduces contention on the log under many small concurrent " +
+            "write transactions." )
+    @Internal
+    public static final Setting<Boolean> group_commit_enabled =
+            setting( "unsupported.dbms.tx_log.group_commit.enabled", BOOLEAN, FALSE );
+
+    @Description( "The longest time the transaction log writer may wait for more transactions to arrive, before it " +
+            "appends and forces a group of transactions, when group commit is enabled." )
+    @Internal
+    public static final Setting<Duration> group_commit_max_wait =
+            setting( "unsupported.dbms.tx_log.group_commit.max_wait", DURATION, "1ms" );
+
+    @Description( "Number of threads applying the store records of a single transaction in parallel, for " +
+            "transactions applied on followers, read replicas and during recovery. Commands are grouped by record " +
+            "id so that each group is applied in order by one thread. Values below 2 apply all records on the " +
+            "applying thread." )
+    @Internal
+    public static final Setting<Integer> parallel_apply_workers =
+            buildSetting( "unsupported.dbms.tx_apply.parallel_workers", INTEGER, "0" ).constraint( min( 0 ) ).build();
+
+    @Description( "Number of transactions recovery reads and decodes from the transaction log ahead of applying " +
+            "them, in a separate thread. 0 means that transactions are read by the thread applying them." )
+    @Internal
+    public static final Setting<Integer> recovery_prefetch_transactions =
+            buildSetting( "unsupported.dbms.recovery.prefetch_transactions", INTEGER, "0" ).constraint( min( 0 ) )
+                    .build();
+
+    @Description( "Number of transactions recovery applies to the store, and to indexes, as one batch." )
+    @Internal
+    public static final Setting<Integer> recovery_batch_size =
+            buildSetting( "unsupported.dbms.recovery.batch_size", INTEGER, "100" ).constraint( min( 1 ) ).build();
+
+    @Description( "How often recovery reports its progress, with throughput and estimated time remaining, to the log." )
+    @Internal
+    public static final Setting<Duration> recovery_progress_interval =
+            setting( "unsupported.dbms.recovery.progress_interval", DURATION, "10s" );
+
     @Description( "Use a quick approach for rebuilding the ID generators. This give quicker recovery time, " +
             "but will limit the ability to reuse the space of deleted entities." )
     @Internal
     public static final Setting<Boolean> rebuild_idgenerators_fast =
             setting( "unsupported.dbms.id_generator_fast_rebuild_enabled", BOOLEAN, TRUE );
 
+    @Description( "Keep the free ids of the record stores in off-heap bitmaps, which are written to disk on every " +
+            "check point. Ids are then allocated and reused without locking, and the id files don't have to be " +
+            "rebuilt after an unclean shutdown." )
+    @Internal
+    public static final Setting<Boolean> id_generator_free_id_bitmap =
+            setting( "unsupported.dbms.id_generator_free_id_bitmap_enabled", BOOLEAN, FALSE );
+
     // Store memory settings
     @Description( "Target size for pages of mapped memory. If set to 0, then a reasonable default is chosen, " +
                  "depending on the storage device used." )
@@ -461,6 +540,45 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static final Setting<String> pagecache_swapper =
             setting( "dbms.memory.pagecache.swapper", STRING, null );
 
+    @Description( "The policy the page cache uses for choosing which pages to evict. 'CLOCK' is the classic " +
+                  "second-chance algorithm. 'PROBATIONARY_CLOCK' is a scan resistant variant, that keeps newly " +
+                  "faulted pages on probation until they are referenced again, so that large scans, like label " +
+                  "scans or consistency checks, cannot push the working set out of the page cache." )
+    @Internal
+    public static final Setting<String> pagecache_eviction_policy =
+            setting( "unsupported.dbms.memory.pagecache.eviction_policy", options( "CLOCK", "PROBATIONARY_CLOCK" ),
+                    "CLOCK" );
+
+    @Description( "Page cache can be configured to periodically record which pages are in memory, and then load " +
+                  "those pages back in, in the background, when the database is started. This shortens the time it " +
+                  "takes for the database to get back up to speed after a restart." )
+    public static final Setting<Boolean> pagecache_warmup_enabled =
+            setting( "dbms.memory.pagecache.warmup.enable", BOOLEAN, TRUE );
+
+    @Description( "The interval at which the profile of the pages in the page cache is recorded, for the page cache " +
+                  "warmup to load back in when the database is started." )
+    @Internal
+    public static final Setting<Duration> pagecache_warmup_profiling_interval =
+            setting( "unsupported.dbms.memory.pagecache.warmup.profiling_interval", DURATION, "1m" );
+
+    @Description( "Specify if the page cache memory should be backed by huge pages, which reduces the number of TLB " +
+                  "misses when pinning pages in large page caches. With 'off', the page cache uses regular memory. " +
+                  "With 'transparent', the memory is allocated in large regions that are aligned to the huge page " +
+                  "size, which the operating system can back with transparent huge pages, if these are enabled for " +
+                  "all memory. With 'hugetlbfs', the memory is mapped from files in the " +
+                  "`unsupported.dbms.memory.pagecache.huge_pages.directory`, which must be in a hugetlbfs mount " +
+                  "with enough huge pages reserved. Regular memory is used if the huge pages run out." )
+    @Internal
+    public static final Setting<String> pagecache_huge_pages =
+            setting( "unsupported.dbms.memory.pagecache.huge_pages", options( "off", "transparent", "hugetlbfs" ),
+                    "off" );
+
+    @Description( "The directory, in a hugetlbfs mount, that the page cache memory is mapped from when " +
+                  "`unsupported.dbms.memory.pagecache.huge_pages` is set to 'hugetlbfs'." )
+    @Internal
+    public static final Setting<File> pagecache_huge_pages_directory =
+            pathSetting( "unsupported.dbms.memory.pagecache.huge_pages.directory", "/dev/hugepages" );
+
     /**
      * Block size properties values depends from selected record format.
      * We can't figured out record format until it will be selected by corresponding edition.
@@ -564,6 +682,12 @@ public class GraphDatabaseSettings implements LoadableConfig
     public static final Setting<Boolean> log_queries_page_detail_logging_enabled =
             setting( "dbms.logs.query.page_logging_enabled", BOOLEAN, FALSE );
 
+    @Description( "Log the time spent in each stage of committing write transactions, i.e. prepare, log append, " +
+                  "log force, store apply and close, for transactions taking longer than the query log threshold " +
+                  "to commit." )
+    public static final Setting<Boolean> log_queries_commit_stage_logging_enabled =
+            setting( "dbms.logs.query.commit_stage_logging_enabled", BOOLEAN, FALSE );
+
     @Description( "If the execution of query takes more time than this threshold, the query is logged - " +
                  "provided query logging is enabled. Defaults to 0 seconds, that is all queries are logged." )
     @Dynamic
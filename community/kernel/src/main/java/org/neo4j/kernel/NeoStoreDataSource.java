@@ -84,6 +84,7 @@ import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.locking.ReentrantLockService;
 import org.neo4j.kernel.impl.locking.StatementLocksFactory;
 import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.pagecache.PageCacheWarmer;
 import org.neo4j.kernel.impl.proc.Procedures;
 import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
 import org.neo4j.kernel.impl.storageengine.impl.recordstorage.id.IdController;
@@ -99,6 +100,7 @@ import org.neo4j.kernel.impl.storemigration.participant.StoreMigrator;
 import org.neo4j.kernel.impl.transaction.TransactionHeaderInformationFactory;
 import org.neo4j.kernel.impl.transaction.TransactionMonitor;
 import org.neo4j.kernel.impl.transaction.log.BatchingTransactionAppender;
+import org.neo4j.kernel.impl.transaction.log.GroupCommitTransactionAppender;
 import org.neo4j.kernel.impl.transaction.log.LogFileInformation;
 import org.neo4j.kernel.impl.transaction.log.LogHeaderCache;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
@@ -120,6 +122,7 @@ import org.neo4j.kernel.impl.transaction.log.checkpoint.CheckPointScheduler;
 import org.neo4j.kernel.impl.transaction.log.checkpoint.CheckPointThreshold;
 import org.neo4j.kernel.impl.transaction.log.checkpoint.CheckPointThresholds;
 import org.neo4j.kernel.impl.transaction.log.checkpoint.CheckPointerImpl;
+import org.neo4j.kernel.impl.transaction.log.checkpoint.IncrementalCheckPointFlusher;
 import org.neo4j.kernel.impl.transaction.log.checkpoint.CountCommittedTransactionThreshold;
 import org.neo4j.kernel.impl.transaction.log.checkpoint.SimpleTriggerInfo;
 import org.neo4j.kernel.impl.transaction.log.checkpoint.StoreCopyCheckPointMutex;
@@ -128,6 +131,7 @@ import org.neo4j.kernel.impl.transaction.log.entry.LogEntry;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart;
 import org.neo4j.kernel.impl.transaction.log.entry.LogHeader;
+import org.neo4j.kernel.impl.transaction.log.entry.LogVersions;
 import org.neo4j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
 import org.neo4j.kernel.impl.transaction.log.pruning.LogPruneStrategy;
 import org.neo4j.kernel.impl.transaction.log.pruning.LogPruning;
@@ -515,6 +519,14 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
             throw Exceptions.launderedException( e );
         }
 
+        if ( config.get( GraphDatabaseSettings.pagecache_warmup_enabled ) && !readOnly )
+        {
+            long profilingIntervalMillis =
+                    config.get( GraphDatabaseSettings.pagecache_warmup_profiling_interval ).toMillis();
+            life.add( new PageCacheWarmer( fs, pageCache, scheduler, storeDir, profilingIntervalMillis,
+                    logService.getInternalLog( PageCacheWarmer.class ) ) );
+        }
+
         // NOTE: please make sure this is performed after having added everything to the life, in fact we would like
         // to perform the checkpointing as first step when the life is shutdown.
         life.add( lifecycleToTriggerCheckPointOnShutdown() );
@@ -611,7 +623,8 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         final PhysicalLogFile logFile = life.add( new PhysicalLogFile( fileSystemAbstraction, logFiles,
                 config.get( GraphDatabaseSettings.logical_log_rotation_threshold ),
                 transactionIdStore::getLastCommittedTransactionId, logVersionRepository, physicalLogMonitor,
-                logHeaderCache ) );
+                logHeaderCache, config.get( GraphDatabaseSettings.logical_log_compression_enabled )
+                                ? LogVersions.COMPRESSED_LOG_VERSION : LogVersions.CURRENT_LOG_VERSION ) );
 
         final PhysicalLogFileInformation.LogVersionToTimestamp logInformation = version ->
         {
@@ -646,9 +659,20 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         final LogRotation logRotation =
                 new LogRotationImpl( monitors.newMonitor( LogRotation.Monitor.class ), logFile, databaseHealth );
 
-        final TransactionAppender appender = life.add( new BatchingTransactionAppender(
-                logFile, logRotation, transactionMetadataCache, transactionIdStore, explicitIndexTransactionOrdering,
-                databaseHealth ) );
+        final TransactionAppender appender;
+        if ( config.get( GraphDatabaseSettings.group_commit_enabled ) )
+        {
+            appender = life.add( new GroupCommitTransactionAppender(
+                    logFile, logRotation, transactionMetadataCache, transactionIdStore, explicitIndexTransactionOrdering,
+                    databaseHealth, scheduler, config.get( GraphDatabaseSettings.group_commit_max_wait ).toNanos(),
+                    monitors.newMonitor( GroupCommitTransactionAppender.Monitor.class ) ) );
+        }
+        else
+        {
+            appender = life.add( new BatchingTransactionAppender(
+                    logFile, logRotation, transactionMetadataCache, transactionIdStore, explicitIndexTransactionOrdering,
+                    databaseHealth ) );
+        }
         final LogicalTransactionStore logicalTransactionStore =
                 new PhysicalLogicalTransactionStore( logFile, transactionMetadataCache, logEntryReader );
 
@@ -673,6 +697,14 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         life.add( checkPointer );
         life.add( checkPointScheduler );
 
+        if ( config.get( GraphDatabaseSettings.check_point_incremental_flush_enabled ) )
+        {
+            life.add( new IncrementalCheckPointFlusher( pageCache, transactionIdStore, checkPointer, ioLimiter,
+                    scheduler, config.get( GraphDatabaseSettings.check_point_incremental_flush_interval ).toMillis(),
+                    config.get( GraphDatabaseSettings.logical_log_rotation_threshold ),
+                    logProvider.getLog( IncrementalCheckPointFlusher.class ) ) );
+        }
+
         return new NeoStoreTransactionLogModule( logicalTransactionStore, logFileInformation, logFiles, logFile,
                 logRotation, checkPointer, appender, explicitIndexTransactionOrdering );
     }
@@ -690,8 +722,10 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
     {
         Recovery.SPI spi =
                 new DefaultRecoverySPI( storageEngine, logFiles, fileSystemAbstraction, tailScanner, transactionIdStore,
-                        logicalTransactionStore, positionMonitor );
-        Recovery recovery = new Recovery( spi, recoveryMonitor );
+                        logicalTransactionStore, positionMonitor, config.get( GraphDatabaseSettings.recovery_batch_size ),
+                        config.get( GraphDatabaseSettings.recovery_prefetch_transactions ) );
+        Recovery recovery = new Recovery( spi, recoveryMonitor, clock,
+                config.get( GraphDatabaseSettings.recovery_progress_interval ).toMillis() );
         monitors.addMonitorListener( new Recovery.Monitor()
         {
             @Override
@@ -92,4 +92,12 @@ public interface TransactionState extends ReadableTransactionState
     boolean constraintDoUnRemove( ConstraintDescriptor constraint );
 
     void indexDoUpdateEntry( LabelSchemaDescriptor descriptor, long nodeId, ValueTuple before, ValueTuple after );
+
+    // MEMORY
+
+    /**
+     * @return rough estimate of the number of bytes of heap used for tracking the changes of this transaction,
+     * growing with every change made.
+     */
+    long estimatedHeapUsage();
 }
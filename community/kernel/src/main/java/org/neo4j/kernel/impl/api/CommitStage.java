@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+/**
+ * The stages a committing transaction goes through, in order, as timed by {@link DefaultTransactionTracer}.
+ */
+public enum CommitStage
+{
+    /** Running transaction hooks and turning the transaction state into commands. */
+    PREPARE,
+    /** Serializing the commands and writing them to the transaction log, not including waiting for a force. */
+    LOG_APPEND,
+    /** Waiting for the transaction log to be forced to disk, possibly together with other transactions. */
+    LOG_FORCE,
+    /** Applying the commands to the stores and indexes. */
+    STORE_APPLY,
+    /** Marking the transaction as closed and releasing its resources. */
+    CLOSE
+}
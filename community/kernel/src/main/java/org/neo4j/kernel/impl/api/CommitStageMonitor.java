@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+public interface CommitStageMonitor
+{
+    /**
+     * @return number of recently committed transactions that have had their {@link CommitStage commit stages} timed.
+     * How far back recently goes is up to the implementation, the default one covers the last minute or two.
+     */
+    long numberOfTimedCommits();
+
+    /**
+     * @param stage the commit stage to get the latency of.
+     * @param quantile a quantile between {@code 0} and {@code 1}, e.g. {@code 0.99} for the 99th percentile.
+     * @return the time spent in the given commit stage at the given quantile, over recently timed commits, in
+     * nanoseconds.
+     */
+    long commitStageLatencyNanos( CommitStage stage, double quantile );
+
+    CommitStageMonitor NULL = new CommitStageMonitor()
+    {
+        @Override
+        public long numberOfTimedCommits()
+        {
+            return 0;
+        }
+
+        @Override
+        public long commitStageLatencyNanos( CommitStage stage, double quantile )
+        {
+            return 0;
+        }
+    };
+}
@@ -21,6 +21,7 @@ package org.neo4j.kernel.impl.api;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
 import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
@@ -35,16 +36,37 @@ import org.neo4j.scheduler.JobScheduler;
 import org.neo4j.time.Clocks;
 import org.neo4j.time.SystemNanoClock;
 
-public class DefaultTransactionTracer implements TransactionTracer, LogRotationMonitor
+/**
+ * The default {@link TransactionTracer}. Keeps track of log rotations, and times the {@link CommitStage stages}
+ * of every committed transaction into one {@link LatencyHistogram} per stage, covering the last one to two
+ * {@link #COMMIT_STAGE_LATENCY_WINDOW_NANOS windows} of commits.
+ */
+public class DefaultTransactionTracer implements TransactionTracer, LogRotationMonitor, CommitStageMonitor
 {
+    static final long COMMIT_STAGE_LATENCY_WINDOW_NANOS = TimeUnit.MINUTES.toNanos( 1 );
+
     public interface Monitor
     {
         void lastLogRotationEventDuration( long millis );
     }
 
+    /**
+     * Notified of the time spent in each commit stage of every committed transaction, on the committing thread.
+     */
+    public interface CommitMonitor
+    {
+        void transactionCommitted( long transactionId, long prepareNanos, long logAppendNanos, long logForceNanos,
+                long storeApplyNanos, long closeNanos );
+    }
+
     private final SystemNanoClock clock;
     private final Monitor monitor;
+    private final CommitMonitor commitMonitor;
+    private final BooleanSupplier commitMonitored;
     private final JobScheduler jobScheduler;
+    private final LatencyHistogram[] commitStageLatencies = new LatencyHistogram[CommitStage.values().length];
+    private final ThreadLocal<StageTimingCommitEvent> commitEvents =
+            ThreadLocal.withInitial( StageTimingCommitEvent::new );
 
     private final AtomicLong counter = new AtomicLong();
     private final AtomicLong accumulatedTotalTimeNanos = new AtomicLong();
@@ -53,65 +75,6 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
 
     private final LogRotateEvent logRotateEvent = this::updateCountersAndNotifyListeners;
 
-    private final LogAppendEvent logAppendEvent = new LogAppendEvent()
-    {
-        @Override
-        public void close()
-        {
-        }
-
-        @Override
-        public void setLogRotated( boolean logRotated )
-        {
-
-        }
-
-        @Override
-        public LogRotateEvent beginLogRotate()
-        {
-            startTimeNanos = clock.nanos();
-            return logRotateEvent;
-        }
-
-        @Override
-        public SerializeTransactionEvent beginSerializeTransaction()
-        {
-            return SerializeTransactionEvent.NULL;
-        }
-
-        @Override
-        public LogForceWaitEvent beginLogForceWait()
-        {
-            return LogForceWaitEvent.NULL;
-        }
-
-        @Override
-        public LogForceEvent beginLogForce()
-        {
-            return LogForceEvent.NULL;
-        }
-    };
-
-    private final CommitEvent commitEvent = new CommitEvent()
-    {
-        @Override
-        public void close()
-        {
-        }
-
-        @Override
-        public LogAppendEvent beginLogAppend()
-        {
-            return logAppendEvent;
-        }
-
-        @Override
-        public StoreApplyEvent beginStoreApply()
-        {
-            return StoreApplyEvent.NULL;
-        }
-    };
-
     private final TransactionEvent transactionEvent = new TransactionEvent()
     {
 
@@ -128,7 +91,13 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         @Override
         public CommitEvent beginCommitEvent()
         {
-            return commitEvent;
+            StageTimingCommitEvent event = commitEvents.get();
+            if ( event.inUse )
+            {
+                // A commit nested inside of another commit on the same thread, rare enough to not bother reusing
+                event = new StageTimingCommitEvent();
+            }
+            return event.begin( clock.nanos() );
         }
 
         @Override
@@ -153,10 +122,26 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
     }
 
     public DefaultTransactionTracer( SystemNanoClock clock, Monitor monitor, JobScheduler jobScheduler )
+    {
+        this( clock, monitor, null, () -> false, jobScheduler );
+    }
+
+    /**
+     * @param commitMonitor notified of the commit stage times of every committed transaction, but only while
+     * {@code commitMonitored} says so, so that no time is spent notifying when no one is listening.
+     */
+    public DefaultTransactionTracer( SystemNanoClock clock, Monitor monitor, CommitMonitor commitMonitor,
+            BooleanSupplier commitMonitored, JobScheduler jobScheduler )
     {
         this.clock = clock;
         this.monitor = monitor;
+        this.commitMonitor = commitMonitor;
+        this.commitMonitored = commitMonitored;
         this.jobScheduler = jobScheduler;
+        for ( int i = 0; i < commitStageLatencies.length; i++ )
+        {
+            commitStageLatencies[i] = new LatencyHistogram( COMMIT_STAGE_LATENCY_WINDOW_NANOS, clock.nanos() );
+        }
     }
 
     @Override
@@ -177,6 +162,34 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
         return TimeUnit.NANOSECONDS.toMillis( accumulatedTotalTimeNanos.get() );
     }
 
+    @Override
+    public long numberOfTimedCommits()
+    {
+        // Every timed commit is recorded in all stages, so any stage will do
+        return commitStageLatencies[CommitStage.PREPARE.ordinal()].count( clock.nanos() );
+    }
+
+    @Override
+    public long commitStageLatencyNanos( CommitStage stage, double quantile )
+    {
+        return commitStageLatencies[stage.ordinal()].valueAtQuantile( clock.nanos(), quantile );
+    }
+
+    private void committed( long nowNanos, long transactionId, long prepareNanos, long logAppendNanos,
+            long logForceNanos, long storeApplyNanos, long closeNanos )
+    {
+        commitStageLatencies[CommitStage.PREPARE.ordinal()].record( nowNanos, prepareNanos );
+        commitStageLatencies[CommitStage.LOG_APPEND.ordinal()].record( nowNanos, logAppendNanos );
+        commitStageLatencies[CommitStage.LOG_FORCE.ordinal()].record( nowNanos, logForceNanos );
+        commitStageLatencies[CommitStage.STORE_APPLY.ordinal()].record( nowNanos, storeApplyNanos );
+        commitStageLatencies[CommitStage.CLOSE.ordinal()].record( nowNanos, closeNanos );
+        if ( commitMonitored.getAsBoolean() )
+        {
+            commitMonitor.transactionCommitted( transactionId, prepareNanos, logAppendNanos, logForceNanos,
+                    storeApplyNanos, closeNanos );
+        }
+    }
+
     private void updateCountersAndNotifyListeners()
     {
         counter.incrementAndGet();
@@ -188,4 +201,124 @@ public class DefaultTransactionTracer implements TransactionTracer, LogRotationM
             monitor.lastLogRotationEventDuration( millis );
         } );
     }
+
+    /**
+     * Times the stages of a single commit. Commits happen on a single thread, from beginning to end, so no
+     * synchronization is needed. Only commits that make it all the way through applying to the store are recorded,
+     * read only transactions never append to the log and so are not recorded either.
+     * <p>
+     * One instance is kept per thread and reused for every commit on that thread, together with its nested events,
+     * so that timing commits doesn't allocate.
+     */
+    private class StageTimingCommitEvent implements CommitEvent
+    {
+        private boolean inUse;
+        private long startNanos;
+        private long transactionId;
+        private boolean appended;
+        private long logAppendStartNanos;
+        private long logAppendEndNanos;
+        private long logForceStartNanos;
+        private long logForceNanos;
+        private boolean applied;
+        private long storeApplyStartNanos;
+        private long storeApplyEndNanos;
+
+        private final LogForceWaitEvent logForceWaitEvent = () -> logForceNanos += clock.nanos() - logForceStartNanos;
+
+        private final StoreApplyEvent storeApplyEvent = () ->
+        {
+            storeApplyEndNanos = clock.nanos();
+            applied = true;
+        };
+
+        private final LogAppendEvent logAppendEvent = new LogAppendEvent()
+        {
+            @Override
+            public void close()
+            {
+                logAppendEndNanos = clock.nanos();
+                appended = true;
+            }
+
+            @Override
+            public void setLogRotated( boolean logRotated )
+            {
+            }
+
+            @Override
+            public LogRotateEvent beginLogRotate()
+            {
+                startTimeNanos = clock.nanos();
+                return logRotateEvent;
+            }
+
+            @Override
+            public SerializeTransactionEvent beginSerializeTransaction()
+            {
+                return SerializeTransactionEvent.NULL;
+            }
+
+            @Override
+            public LogForceWaitEvent beginLogForceWait()
+            {
+                logForceStartNanos = clock.nanos();
+                return logForceWaitEvent;
+            }
+
+            @Override
+            public LogForceEvent beginLogForce()
+            {
+                return LogForceEvent.NULL;
+            }
+        };
+
+        StageTimingCommitEvent begin( long startNanos )
+        {
+            this.inUse = true;
+            this.startNanos = startNanos;
+            this.transactionId = -1;
+            this.appended = false;
+            this.logForceNanos = 0;
+            this.applied = false;
+            return this;
+        }
+
+        @Override
+        public LogAppendEvent beginLogAppend()
+        {
+            logAppendStartNanos = clock.nanos();
+            return logAppendEvent;
+        }
+
+        @Override
+        public StoreApplyEvent beginStoreApply()
+        {
+            storeApplyStartNanos = clock.nanos();
+            return storeApplyEvent;
+        }
+
+        @Override
+        public void setTransactionId( long transactionId )
+        {
+            this.transactionId = transactionId;
+        }
+
+        @Override
+        public void close()
+        {
+            inUse = false;
+            if ( !appended || !applied )
+            {
+                return;
+            }
+            long nowNanos = clock.nanos();
+            committed( nowNanos, transactionId,
+                    logAppendStartNanos - startNanos,
+                    logAppendEndNanos - logAppendStartNanos - logForceNanos,
+                    logForceNanos,
+                    storeApplyEndNanos - storeApplyStartNanos,
+                    nowNanos - storeApplyEndNanos );
+        }
+    }
 }
@@ -595,6 +595,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
                     success = true;
                     TransactionToApply batch = new TransactionToApply( transactionRepresentation );
                     txId = transactionId = commitProcess.commit( batch, commitEvent, INTERNAL );
+                    commitEvent.setTransactionId( txId );
                     commitTime = timeCommitted;
                 }
             }
@@ -679,7 +680,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         }
         finally
         {
-            transactionMonitor.transactionFinished( true, hasTxStateWithChanges() );
+            transactionFinished( true );
         }
     }
 
@@ -695,10 +696,19 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         }
         finally
         {
-            transactionMonitor.transactionFinished( false, hasTxStateWithChanges() );
+            transactionFinished( false );
         }
     }
 
+    private void transactionFinished( boolean committed )
+    {
+        if ( txState != null )
+        {
+            transactionMonitor.transactionStateHeapUsage( txState.estimatedHeapUsage() );
+        }
+        transactionMonitor.transactionFinished( committed, hasTxStateWithChanges() );
+    }
+
     /**
      * Release resources held up by this transaction & return it to the transaction pool.
      * This method is guarded by {@link #terminationReleaseLock} to coordinate concurrent
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, in nanoseconds, cheap enough to record every commit into.
+ * <p>
+ * Buckets are logarithmic, with {@code 2^SUB_BUCKET_BITS} linear sub buckets for every power of two, so values
+ * reported by {@link #valueAtQuantile(long, double)} are never more than {@code 1 / 2^SUB_BUCKET_BITS} off. Recording
+ * a value is a single increment of its bucket, there is no total count kept that all recorders would compete for.
+ * <p>
+ * Values are recorded into a window of buckets, which is swapped for an empty one once it is {@code windowNanos} old.
+ * Counts and quantiles cover the current and the previous window, so they reflect the last one to two windows of
+ * latencies rather than everything since startup, and a latency spike will show and then wear off.
+ */
+class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long windowNanos;
+    private volatile Windows windows;
+
+    /**
+     * @param windowNanos how long values are recorded into a window before it is swapped for an empty one.
+     * @param nowNanos the current time, in nanoseconds, of the clock that will be passed in when recording and reading.
+     */
+    LatencyHistogram( long windowNanos, long nowNanos )
+    {
+        this.windowNanos = windowNanos;
+        this.windows = new Windows( new Window( nowNanos ), new Window( nowNanos - windowNanos ) );
+    }
+
+    /**
+     * @param nowNanos current time, used to decide whether or not to move on to a new window.
+     * @param nanos the latency to record.
+     */
+    void record( long nowNanos, long nanos )
+    {
+        windows( nowNanos ).current.buckets.incrementAndGet( bucket( Math.max( 0, nanos ) ) );
+    }
+
+    /**
+     * @param nowNanos current time, used to decide whether or not to move on to a new window.
+     * @return number of values recorded in the current and previous window.
+     */
+    long count( long nowNanos )
+    {
+        Windows windows = windows( nowNanos );
+        long count = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            count += windows.count( i );
+        }
+        return count;
+    }
+
+    /**
+     * @param nowNanos current time, used to decide whether or not to move on to a new window.
+     * @param quantile a quantile between {@code 0} and {@code 1}.
+     * @return the highest value that could have been recorded into the bucket of the value at the given quantile,
+     * of the values recorded in the current and previous window, or {@code 0} if there are none.
+     */
+    long valueAtQuantile( long nowNanos, double quantile )
+    {
+        Windows windows = windows( nowNanos );
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            counts[i] = windows.count( i );
+            total += counts[i];
+        }
+        if ( total == 0 )
+        {
+            return 0;
+        }
+
+        long rank = Math.max( 1, (long) Math.ceil( Math.min( 1d, Math.max( 0d, quantile ) ) * total ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += counts[i];
+            if ( seen >= rank )
+            {
+                return highestValue( i );
+            }
+        }
+        return highestValue( BUCKETS - 1 );
+    }
+
+    private Windows windows( long nowNanos )
+    {
+        Windows windows = this.windows;
+        if ( nowNanos - windows.current.startNanos < windowNanos )
+        {
+            return windows;
+        }
+        return swapWindows( nowNanos );
+    }
+
+    private synchronized Windows swapWindows( long nowNanos )
+    {
+        Windows windows = this.windows;
+        Window current = windows.current;
+        if ( nowNanos - current.startNanos >= windowNanos )
+        {
+            // A window that ended longer than a window ago is too old to be reported as the previous window
+            Window previous = nowNanos - current.startNanos < windowNanos * 2 ? current
+                                                                                : new Window( nowNanos - windowNanos );
+            windows = new Windows( new Window( nowNanos ), previous );
+            this.windows = windows;
+        }
+        return windows;
+    }
+
+    static int bucket( long value )
+    {
+        if ( value < SUB_BUCKETS )
+        {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros( value );
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValue( int bucket )
+    {
+        if ( bucket < SUB_BUCKETS )
+        {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    private static class Windows
+    {
+        private final Window current;
+        private final Window previous;
+
+        Windows( Window current, Window previous )
+        {
+            this.current = current;
+            this.previous = previous;
+        }
+
+        long count( int bucket )
+        {
+            return current.buckets.get( bucket ) + previous.buckets.get( bucket );
+        }
+    }
+
+    private static class Window
+    {
+        private final long startNanos;
+        private final AtomicLongArray buckets = new AtomicLongArray( BUCKETS );
+
+        Window( long startNanos )
+        {
+            this.startNanos = startNanos;
+        }
+    }
+}
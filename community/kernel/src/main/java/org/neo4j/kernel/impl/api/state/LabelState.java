@@ -19,7 +19,7 @@
  */
 package org.neo4j.kernel.impl.api.state;
 
-import org.neo4j.kernel.impl.util.diffsets.DiffSets;
+import org.neo4j.kernel.impl.util.diffsets.PrimitiveLongDiffSets;
 import org.neo4j.storageengine.api.txstate.ReadableDiffSets;
 
 /**
@@ -35,7 +35,7 @@ public abstract class LabelState
 
     public static class Mutable extends LabelState
     {
-        private DiffSets<Long> nodeDiffSets;
+        private PrimitiveLongDiffSets nodeDiffSets;
         private final int labelId;
 
         private Mutable( int labelId )
@@ -54,22 +54,22 @@ public abstract class LabelState
             return ReadableDiffSets.Empty.ifNull( nodeDiffSets );
         }
 
-        public DiffSets<Long> getOrCreateNodeDiffSets()
+        public PrimitiveLongDiffSets getOrCreateNodeDiffSets()
         {
             if ( nodeDiffSets == null )
             {
-                nodeDiffSets = new DiffSets<>();
+                nodeDiffSets = new PrimitiveLongDiffSets();
             }
             return nodeDiffSets;
         }
     }
 
-    abstract static class Defaults extends StateDefaults<Integer, LabelState, Mutable>
+    abstract static class Defaults extends StateDefaults<LabelState, Mutable>
     {
         @Override
-        Mutable createValue( Integer key, TxState state )
+        Mutable createValue( long key, TxState state )
         {
-            return new Mutable( key );
+            return new Mutable( (int) key );
         }
 
         @Override
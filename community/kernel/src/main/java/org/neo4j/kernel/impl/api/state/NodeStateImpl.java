@@ -32,6 +32,7 @@ import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.kernel.api.exceptions.schema.ConstraintValidationException;
 import org.neo4j.kernel.impl.api.state.RelationshipChangesForNode.DiffStrategy;
 import org.neo4j.kernel.impl.util.diffsets.DiffSets;
+import org.neo4j.kernel.impl.util.diffsets.PrimitiveLongDiffSets;
 import org.neo4j.storageengine.api.Direction;
 import org.neo4j.storageengine.api.StorageProperty;
 import org.neo4j.storageengine.api.txstate.NodeState;
@@ -46,7 +47,7 @@ public class NodeStateImpl extends PropertyContainerStateImpl implements NodeSta
     private DiffSets<Integer> labelDiffSets;
     private RelationshipChangesForNode relationshipsAdded;
     private RelationshipChangesForNode relationshipsRemoved;
-    private Set<DiffSets<Long>> indexDiffs; // TODO: does this really fill any function?
+    private Set<PrimitiveLongDiffSets> indexDiffs; // TODO: does this really fill any function?
     private final TxState state;
 
     NodeStateImpl( long id, TxState state )
@@ -177,16 +178,16 @@ public class NodeStateImpl extends PropertyContainerStateImpl implements NodeSta
         return intSet();
     }
 
-    void addIndexDiff( DiffSets<Long> diff )
+    void addIndexDiff( PrimitiveLongDiffSets diff )
     {
         if ( indexDiffs == null )
         {
-            indexDiffs = Collections.newSetFromMap( new IdentityHashMap<DiffSets<Long>, Boolean>() );
+            indexDiffs = Collections.newSetFromMap( new IdentityHashMap<PrimitiveLongDiffSets, Boolean>() );
         }
         indexDiffs.add( diff );
     }
 
-    void removeIndexDiff( DiffSets<Long> diff )
+    void removeIndexDiff( PrimitiveLongDiffSets diff )
     {
         if ( indexDiffs != null )
         {
@@ -198,13 +199,13 @@ public class NodeStateImpl extends PropertyContainerStateImpl implements NodeSta
     {
         if ( indexDiffs != null )
         {
-            for ( DiffSets<Long> diff : indexDiffs )
+            for ( PrimitiveLongDiffSets diff : indexDiffs )
             {
-                if ( diff.getAdded().contains( nodeId ) )
+                if ( diff.isAdded( nodeId ) )
                 {
                     diff.remove( nodeId );
                 }
-                else if ( diff.getRemoved().contains( nodeId ) )
+                else if ( diff.isRemoved( nodeId ) )
                 {
                     diff.add( nodeId );
                 }
@@ -232,10 +233,10 @@ public class NodeStateImpl extends PropertyContainerStateImpl implements NodeSta
             PrimitiveLongCollections.emptyIterator();
     }
 
-    public abstract static class Defaults extends StateDefaults<Long, NodeState, NodeStateImpl>
+    public abstract static class Defaults extends StateDefaults<NodeState, NodeStateImpl>
     {
         @Override
-        final NodeStateImpl createValue( Long id, TxState state )
+        final NodeStateImpl createValue( long id, TxState state )
         {
             return new NodeStateImpl( id, state );
         }
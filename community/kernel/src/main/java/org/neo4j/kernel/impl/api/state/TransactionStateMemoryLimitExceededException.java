@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.state;
+
+import org.neo4j.kernel.api.exceptions.Status;
+
+import static java.lang.String.format;
+
+/**
+ * Thrown when a change would make the {@link TxState#estimatedHeapUsage() estimated heap usage} of the state of a
+ * transaction exceed the configured max. The transaction should be rolled back and its work split up into smaller
+ * transactions.
+ */
+public class TransactionStateMemoryLimitExceededException extends RuntimeException implements Status.HasStatus
+{
+    public TransactionStateMemoryLimitExceededException( long estimatedHeapUsage, long maxHeapUsage )
+    {
+        super( format( "The state of this transaction is estimated to use %d bytes of heap, which is more than the " +
+                "max of %d bytes. Split the work up into smaller transactions.", estimatedHeapUsage, maxHeapUsage ) );
+    }
+
+    @Override
+    public Status status()
+    {
+        return Status.General.OutOfMemoryError;
+    }
+}
@@ -30,6 +30,7 @@ import java.util.function.Consumer;
 import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.primitive.PrimitiveIntSet;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.cursor.Cursor;
 import org.neo4j.helpers.collection.Iterables;
@@ -52,7 +53,8 @@ import org.neo4j.kernel.impl.api.cursor.TxSingleRelationshipCursor;
 import org.neo4j.kernel.impl.api.store.RelationshipIterator;
 import org.neo4j.kernel.impl.util.InstanceCache;
 import org.neo4j.kernel.impl.util.diffsets.DiffSets;
-import org.neo4j.kernel.impl.util.diffsets.RelationshipDiffSets;
+import org.neo4j.kernel.impl.util.diffsets.PrimitiveLongDiffSets;
+import org.neo4j.kernel.impl.util.diffsets.PrimitiveLongRelationshipDiffSets;
 import org.neo4j.storageengine.api.Direction;
 import org.neo4j.storageengine.api.NodeItem;
 import org.neo4j.storageengine.api.PropertyItem;
@@ -66,12 +68,13 @@ import org.neo4j.storageengine.api.txstate.ReadableRelationshipDiffSets;
 import org.neo4j.storageengine.api.txstate.ReadableTransactionState;
 import org.neo4j.storageengine.api.txstate.RelationshipState;
 import org.neo4j.storageengine.api.txstate.TxStateVisitor;
+import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
+import org.neo4j.values.storable.ArrayValue;
 import org.neo4j.values.storable.TextValue;
 import org.neo4j.values.storable.Value;
 import org.neo4j.values.storable.ValueTuple;
 import org.neo4j.values.storable.Values;
 
-import static org.neo4j.collection.primitive.PrimitiveLongCollections.toPrimitiveIterator;
 import static org.neo4j.helpers.collection.Iterables.map;
 
 /**
@@ -87,47 +90,59 @@ import static org.neo4j.helpers.collection.Iterables.map;
  */
 public final class TxState implements TransactionState, RelationshipVisitor.Home
 {
-    private Map<Integer/*Label ID*/, LabelState.Mutable> labelStatesMap;
+    /**
+     * Default max estimated heap usage of the state of a single transaction, {@code 0} means no limit.
+     */
+    static final long MAX_HEAP_USAGE = FeatureToggles.getLong( TxState.class, "maxHeapUsage", 0 );
+
+    // Rough estimates of the heap used for tracking each kind of change, see estimatedHeapUsage()
+    private static final long NODE_CHANGE_BYTES = 64;
+    private static final long RELATIONSHIP_CHANGE_BYTES = 192;
+    private static final long LABEL_CHANGE_BYTES = 64;
+    private static final long PROPERTY_CHANGE_BYTES = 64;
+    private static final long INDEX_UPDATE_BYTES = 64;
+
+    private PrimitiveLongObjectMap<LabelState.Mutable> labelStatesMap; // keyed by label id
     private static final LabelState.Defaults LABEL_STATE = new LabelState.Defaults()
     {
         @Override
-        Map<Integer, LabelState.Mutable> getMap( TxState state )
+        PrimitiveLongObjectMap<LabelState.Mutable> getMap( TxState state )
         {
             return state.labelStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Integer, LabelState.Mutable> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<LabelState.Mutable> map )
         {
             state.labelStatesMap = map;
         }
     };
-    private Map<Long/*Node ID*/, NodeStateImpl> nodeStatesMap;
+    private PrimitiveLongObjectMap<NodeStateImpl> nodeStatesMap; // keyed by node id
     private static final NodeStateImpl.Defaults NODE_STATE = new NodeStateImpl.Defaults()
     {
         @Override
-        Map<Long, NodeStateImpl> getMap( TxState state )
+        PrimitiveLongObjectMap<NodeStateImpl> getMap( TxState state )
         {
             return state.nodeStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Long, NodeStateImpl> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<NodeStateImpl> map )
         {
             state.nodeStatesMap = map;
         }
     };
-    private Map<Long/*Relationship ID*/, RelationshipStateImpl> relationshipStatesMap;
+    private PrimitiveLongObjectMap<RelationshipStateImpl> relationshipStatesMap; // keyed by relationship id
     private static final RelationshipStateImpl.Defaults RELATIONSHIP_STATE = new RelationshipStateImpl.Defaults()
     {
         @Override
-        Map<Long, RelationshipStateImpl> getMap( TxState state )
+        PrimitiveLongObjectMap<RelationshipStateImpl> getMap( TxState state )
         {
             return state.relationshipStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Long, RelationshipStateImpl> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<RelationshipStateImpl> map )
         {
             state.relationshipStatesMap = map;
         }
@@ -141,13 +156,11 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     private DiffSets<IndexDescriptor> indexChanges;
     private DiffSets<ConstraintDescriptor> constraintsChanges;
 
-    private PropertyChanges propertyChangesForNodes;
-
     // Tracks added and removed nodes, not modified nodes
-    private DiffSets<Long> nodes;
+    private PrimitiveLongDiffSets nodes;
 
     // Tracks added and removed relationships, not modified relationships
-    private RelationshipDiffSets<Long> relationships;
+    private PrimitiveLongRelationshipDiffSets relationships;
 
     /**
      * These two sets are needed because create-delete in same transaction is a no-op in {@link DiffSets}
@@ -159,7 +172,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
 
     private Map<IndexBackedConstraintDescriptor, Long> createdConstraintIndexesByConstraint;
 
-    private Map<LabelSchemaDescriptor, Map<ValueTuple, DiffSets<Long>>> indexUpdates;
+    private Map<LabelSchemaDescriptor, Map<ValueTuple, PrimitiveLongDiffSets>> indexUpdates;
 
     private InstanceCache<TxSingleNodeCursor> singleNodeCursor;
     private InstanceCache<TxIteratorRelationshipCursor> iteratorRelationshipCursor;
@@ -170,8 +183,21 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     private boolean hasChanges;
     private boolean hasDataChanges;
 
+    private final long maxHeapUsage;
+    private long estimatedHeapUsage;
+
     public TxState()
     {
+        this( MAX_HEAP_USAGE );
+    }
+
+    /**
+     * @param maxHeapUsage max number of bytes that the state of this transaction is estimated to use, before changes
+     * fail with {@link TransactionStateMemoryLimitExceededException}, or {@code 0} for no limit.
+     */
+    public TxState( long maxHeapUsage )
+    {
+        this.maxHeapUsage = maxHeapUsage;
         singleNodeCursor = new InstanceCache<TxSingleNodeCursor>()
         {
             @Override
@@ -429,7 +455,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return NODE_STATE.values( this );
     }
 
-    private DiffSets<Long> getOrCreateLabelStateNodeDiffSets( int labelId )
+    private PrimitiveLongDiffSets getOrCreateLabelStateNodeDiffSets( int labelId )
     {
         return LABEL_STATE.getOrCreate( this, labelId ).getOrCreateNodeDiffSets();
     }
@@ -472,17 +498,56 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         hasChanges = true;
     }
 
-    private void dataChanged()
+    private void dataChanged( long estimatedBytes )
     {
         changed();
         hasDataChanges = true;
+        estimatedHeapUsageGrew( estimatedBytes );
+    }
+
+    private void estimatedHeapUsageGrew( long estimatedBytes )
+    {
+        estimatedHeapUsage += estimatedBytes;
+        if ( maxHeapUsage > 0 && estimatedHeapUsage > maxHeapUsage )
+        {
+            throw new TransactionStateMemoryLimitExceededException( estimatedHeapUsage, maxHeapUsage );
+        }
+    }
+
+    @Override
+    public long estimatedHeapUsage()
+    {
+        return estimatedHeapUsage;
+    }
+
+    private static long estimatedHeapUsage( Value value )
+    {
+        if ( value instanceof TextValue )
+        {
+            return 40 + 2L * ((TextValue) value).length();
+        }
+        if ( value instanceof ArrayValue )
+        {
+            return 24 + 8L * ((ArrayValue) value).length();
+        }
+        return 24;
+    }
+
+    private static long estimatedHeapUsage( ValueTuple values )
+    {
+        long bytes = 0;
+        for ( int i = 0; i < values.size(); i++ )
+        {
+            bytes += estimatedHeapUsage( values.valueAt( i ) );
+        }
+        return bytes;
     }
 
     @Override
     public void nodeDoCreate( long id )
     {
         nodes().add( id );
-        dataChanged();
+        dataChanged( NODE_CHANGE_BYTES );
     }
 
     @Override
@@ -507,7 +572,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
                 nodeState.clear();
             }
         }
-        dataChanged();
+        dataChanged( NODE_CHANGE_BYTES );
     }
 
     @Override
@@ -527,7 +592,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
 
         getOrCreateRelationshipState( id ).setMetaData( startNodeId, endNodeId, relationshipTypeId );
 
-        dataChanged();
+        dataChanged( RELATIONSHIP_CHANGE_BYTES );
     }
 
     @Override
@@ -569,7 +634,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             }
         }
 
-        dataChanged();
+        dataChanged( RELATIONSHIP_CHANGE_BYTES );
     }
 
     @Override
@@ -589,16 +654,14 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         NodeStateImpl nodeState = getOrCreateNodeState( nodeId );
         nodeState.addProperty( newPropertyKeyId, value );
-        nodePropertyChanges().addProperty( nodeId, newPropertyKeyId, value );
-        dataChanged();
+        dataChanged( PROPERTY_CHANGE_BYTES + estimatedHeapUsage( value ) );
     }
 
     @Override
     public void nodeDoChangeProperty( long nodeId, int propertyKeyId, Value replacedValue, Value newValue )
     {
         getOrCreateNodeState( nodeId ).changeProperty( propertyKeyId, newValue );
-        nodePropertyChanges().changeProperty( nodeId, propertyKeyId, replacedValue, newValue );
-        dataChanged();
+        dataChanged( PROPERTY_CHANGE_BYTES + estimatedHeapUsage( newValue ) );
     }
 
     @Override
@@ -613,7 +676,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         {
             getOrCreateRelationshipState( relationshipId ).addProperty( propertyKeyId, newValue );
         }
-        dataChanged();
+        dataChanged( PROPERTY_CHANGE_BYTES + estimatedHeapUsage( newValue ) );
     }
 
     @Override
@@ -627,29 +690,28 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         {
             getOrCreateGraphState().addProperty( propertyKeyId, newValue );
         }
-        dataChanged();
+        dataChanged( PROPERTY_CHANGE_BYTES + estimatedHeapUsage( newValue ) );
     }
 
     @Override
     public void nodeDoRemoveProperty( long nodeId, int propertyKeyId, Value removedValue )
     {
         getOrCreateNodeState( nodeId ).removeProperty( propertyKeyId, removedValue );
-        nodePropertyChanges().removeProperty( nodeId, propertyKeyId, removedValue );
-        dataChanged();
+        dataChanged( PROPERTY_CHANGE_BYTES );
     }
 
     @Override
     public void relationshipDoRemoveProperty( long relationshipId, int propertyKeyId, Value removedValue )
     {
         getOrCreateRelationshipState( relationshipId ).removeProperty( propertyKeyId, removedValue );
-        dataChanged();
+        dataChanged( PROPERTY_CHANGE_BYTES );
     }
 
     @Override
     public void graphDoRemoveProperty( int propertyKeyId, Value removedValue )
     {
         getOrCreateGraphState().removeProperty( propertyKeyId, removedValue );
-        dataChanged();
+        dataChanged( PROPERTY_CHANGE_BYTES );
     }
 
     @Override
@@ -657,7 +719,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         getOrCreateLabelStateNodeDiffSets( labelId ).add( nodeId );
         getOrCreateNodeStateLabelDiffSets( nodeId ).add( labelId );
-        dataChanged();
+        dataChanged( LABEL_CHANGE_BYTES );
     }
 
     @Override
@@ -665,7 +727,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         getOrCreateLabelStateNodeDiffSets( labelId ).remove( nodeId );
         getOrCreateNodeStateLabelDiffSets( nodeId ).remove( labelId );
-        dataChanged();
+        dataChanged( LABEL_CHANGE_BYTES );
     }
 
     @Override
@@ -778,7 +840,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     public Cursor<RelationshipItem> augmentRelationshipsGetAllCursor( Cursor<RelationshipItem> cursor )
     {
         return hasChanges && relationships != null && !relationships.isEmpty()
-               ? iteratorRelationshipCursor.get().init( cursor, toPrimitiveIterator( relationships.getAdded().iterator() ) )
+               ? iteratorRelationshipCursor.get().init( cursor, relationships.addedElements() )
                : cursor;
     }
 
@@ -839,11 +901,11 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return ReadableDiffSets.Empty.ifNull( nodes );
     }
 
-    private DiffSets<Long> nodes()
+    private PrimitiveLongDiffSets nodes()
     {
         if ( nodes == null )
         {
-            nodes = new DiffSets<>();
+            nodes = new PrimitiveLongDiffSets();
         }
         return nodes;
     }
@@ -872,11 +934,11 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return ReadableRelationshipDiffSets.Empty.ifNull( relationships );
     }
 
-    private RelationshipDiffSets<Long> relationships()
+    private PrimitiveLongRelationshipDiffSets relationships()
     {
         if ( relationships == null )
         {
-            relationships = new RelationshipDiffSets<>( this );
+            relationships = new PrimitiveLongRelationshipDiffSets( this );
         }
         return relationships;
     }
@@ -1015,7 +1077,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
                                                                         Number lower, boolean includeLower,
                                                                         Number upper, boolean includeUpper )
     {
-        TreeMap<ValueTuple, DiffSets<Long>> sortedUpdates = getSortedIndexUpdates( descriptor.schema() );
+        TreeMap<ValueTuple, PrimitiveLongDiffSets> sortedUpdates = getSortedIndexUpdates( descriptor.schema() );
         if ( sortedUpdates == null )
         {
             return null;
@@ -1050,15 +1112,15 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             selectedIncludeUpper = includeUpper;
         }
 
-        DiffSets<Long> diffs = new DiffSets<>();
+        PrimitiveLongDiffSets diffs = new PrimitiveLongDiffSets();
 
-        Collection<DiffSets<Long>> inRange =
+        Collection<PrimitiveLongDiffSets> inRange =
                 sortedUpdates.subMap( selectedLower, selectedIncludeLower,
                                       selectedUpper, selectedIncludeUpper ).values();
-        for ( DiffSets<Long> diffForSpecificValue : inRange )
+        for ( PrimitiveLongDiffSets diffForSpecificValue : inRange )
         {
-            diffs.addAll( diffForSpecificValue.getAdded().iterator() );
-            diffs.removeAll( diffForSpecificValue.getRemoved().iterator() );
+            diffs.addAll( diffForSpecificValue.addedElements() );
+            diffs.removeAll( diffForSpecificValue.removedElements() );
         }
         return diffs;
     }
@@ -1077,7 +1139,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
                                                                         String lower, boolean includeLower,
                                                                         String upper, boolean includeUpper )
     {
-        TreeMap<ValueTuple, DiffSets<Long>> sortedUpdates = getSortedIndexUpdates( descriptor.schema() );
+        TreeMap<ValueTuple, PrimitiveLongDiffSets> sortedUpdates = getSortedIndexUpdates( descriptor.schema() );
         if ( sortedUpdates == null )
         {
             return null;
@@ -1112,14 +1174,14 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             selectedIncludeUpper = includeUpper;
         }
 
-        DiffSets<Long> diffs = new DiffSets<>();
-        Collection<DiffSets<Long>> inRange =
+        PrimitiveLongDiffSets diffs = new PrimitiveLongDiffSets();
+        Collection<PrimitiveLongDiffSets> inRange =
                 sortedUpdates.subMap(   selectedLower, selectedIncludeLower,
                                         selectedUpper, selectedIncludeUpper ).values();
-        for ( DiffSets<Long> diffForSpecificValue : inRange )
+        for ( PrimitiveLongDiffSets diffForSpecificValue : inRange )
         {
-            diffs.addAll( diffForSpecificValue.getAdded().iterator() );
-            diffs.removeAll( diffForSpecificValue.getRemoved().iterator() );
+            diffs.addAll( diffForSpecificValue.addedElements() );
+            diffs.removeAll( diffForSpecificValue.removedElements() );
         }
         return diffs;
     }
@@ -1132,22 +1194,22 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
 
     private ReadableDiffSets<Long> getIndexUpdatesForRangeSeekByPrefix( IndexDescriptor descriptor, String prefix )
     {
-        TreeMap<ValueTuple, DiffSets<Long>> sortedUpdates = getSortedIndexUpdates( descriptor.schema() );
+        TreeMap<ValueTuple, PrimitiveLongDiffSets> sortedUpdates = getSortedIndexUpdates( descriptor.schema() );
         if ( sortedUpdates == null )
         {
             return null;
         }
         //TODO: get working with composite indexes
         ValueTuple floor = ValueTuple.of( Values.stringValue( prefix ) );
-        DiffSets<Long> diffs = new DiffSets<>();
-        for ( Map.Entry<ValueTuple,DiffSets<Long>> entry : sortedUpdates.tailMap( floor ).entrySet() )
+        PrimitiveLongDiffSets diffs = new PrimitiveLongDiffSets();
+        for ( Map.Entry<ValueTuple,PrimitiveLongDiffSets> entry : sortedUpdates.tailMap( floor ).entrySet() )
         {
             ValueTuple key = entry.getKey();
             if ( ((TextValue)key.getOnlyValue()).stringValue().startsWith( prefix ) )
             {
-                DiffSets<Long> diffSets = entry.getValue();
-                diffs.addAll( diffSets.getAdded().iterator() );
-                diffs.removeAll( diffSets.getRemoved().iterator() );
+                PrimitiveLongDiffSets diffSets = entry.getValue();
+                diffs.addAll( diffSets.addedElements() );
+                diffs.removeAll( diffSets.removedElements() );
             }
             else
             {
@@ -1160,21 +1222,21 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     // Ensure sorted index updates for a given index. This is needed for range query support and
     // may involve converting the existing hash map first
     //
-    private TreeMap<ValueTuple, DiffSets<Long>> getSortedIndexUpdates( LabelSchemaDescriptor descriptor )
+    private TreeMap<ValueTuple, PrimitiveLongDiffSets> getSortedIndexUpdates( LabelSchemaDescriptor descriptor )
     {
         if ( indexUpdates == null )
         {
             return null;
         }
-        Map<ValueTuple, DiffSets<Long>> updates = indexUpdates.get( descriptor );
+        Map<ValueTuple, PrimitiveLongDiffSets> updates = indexUpdates.get( descriptor );
         if ( updates == null )
         {
             return null;
         }
-        TreeMap<ValueTuple,DiffSets<Long>> sortedUpdates;
+        TreeMap<ValueTuple,PrimitiveLongDiffSets> sortedUpdates;
         if ( updates instanceof TreeMap )
         {
-            sortedUpdates = (TreeMap<ValueTuple,DiffSets<Long>>) updates;
+            sortedUpdates = (TreeMap<ValueTuple,PrimitiveLongDiffSets>) updates;
         }
         else
         {
@@ -1190,13 +1252,13 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             ValueTuple propertiesBefore, ValueTuple propertiesAfter )
     {
         NodeStateImpl nodeState = getOrCreateNodeState( nodeId );
-        Map<ValueTuple,DiffSets<Long>> updates = getIndexUpdatesByDescriptor( descriptor, true);
+        Map<ValueTuple,PrimitiveLongDiffSets> updates = getIndexUpdatesByDescriptor( descriptor, true);
         if ( propertiesBefore != null )
         {
-            DiffSets<Long> before = getIndexUpdatesForSeek( updates, propertiesBefore, true );
+            PrimitiveLongDiffSets before = getIndexUpdatesForSeek( updates, propertiesBefore, true );
             //noinspection ConstantConditions
             before.remove( nodeId );
-            if ( before.getRemoved().contains( nodeId ) )
+            if ( before.isRemoved( nodeId ) )
             {
                 nodeState.addIndexDiff( before );
             }
@@ -1207,10 +1269,10 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         }
         if ( propertiesAfter != null )
         {
-            DiffSets<Long> after = getIndexUpdatesForSeek( updates, propertiesAfter, true );
+            PrimitiveLongDiffSets after = getIndexUpdatesForSeek( updates, propertiesAfter, true );
             //noinspection ConstantConditions
             after.add( nodeId );
-            if ( after.getAdded().contains( nodeId ) )
+            if ( after.isAdded( nodeId ) )
             {
                 nodeState.addIndexDiff( after );
             }
@@ -1218,13 +1280,14 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             {
                 nodeState.removeIndexDiff( after );
             }
+            estimatedHeapUsageGrew( INDEX_UPDATE_BYTES + estimatedHeapUsage( propertiesAfter ) );
         }
     }
 
-    private DiffSets<Long> getIndexUpdatesForSeek(
+    private PrimitiveLongDiffSets getIndexUpdatesForSeek(
             LabelSchemaDescriptor schema, ValueTuple values, boolean create )
     {
-        Map<ValueTuple,DiffSets<Long>> updates = getIndexUpdatesByDescriptor( schema, create );
+        Map<ValueTuple,PrimitiveLongDiffSets> updates = getIndexUpdatesByDescriptor( schema, create );
         if ( updates != null )
         {
             return getIndexUpdatesForSeek( updates, values, create );
@@ -1232,18 +1295,18 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return null;
     }
 
-    private DiffSets<Long> getIndexUpdatesForSeek( Map<ValueTuple,DiffSets<Long>> updates,
+    private PrimitiveLongDiffSets getIndexUpdatesForSeek( Map<ValueTuple,PrimitiveLongDiffSets> updates,
             ValueTuple values, boolean create )
     {
-        DiffSets<Long> diffs = updates.get( values );
+        PrimitiveLongDiffSets diffs = updates.get( values );
         if ( diffs == null && create )
         {
-            updates.put( values, diffs = new DiffSets<>() );
+            updates.put( values, diffs = new PrimitiveLongDiffSets() );
         }
         return diffs;
     }
 
-    private Map<ValueTuple,DiffSets<Long>> getIndexUpdatesByDescriptor( LabelSchemaDescriptor schema,
+    private Map<ValueTuple,PrimitiveLongDiffSets> getIndexUpdatesByDescriptor( LabelSchemaDescriptor schema,
             boolean create )
     {
         if ( indexUpdates == null )
@@ -1254,7 +1317,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             }
             indexUpdates = new HashMap<>();
         }
-        Map<ValueTuple, DiffSets<Long>> updates = indexUpdates.get( schema );
+        Map<ValueTuple, PrimitiveLongDiffSets> updates = indexUpdates.get( schema );
         if ( updates == null )
         {
             if ( !create )
@@ -1266,22 +1329,22 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return updates;
     }
 
-    private DiffSets<Long> getIndexUpdatesForScan( LabelSchemaDescriptor schema )
+    private PrimitiveLongDiffSets getIndexUpdatesForScan( LabelSchemaDescriptor schema )
     {
         if ( indexUpdates == null )
         {
             return null;
         }
-        Map<ValueTuple, DiffSets<Long>> updates = indexUpdates.get( schema );
+        Map<ValueTuple, PrimitiveLongDiffSets> updates = indexUpdates.get( schema );
         if ( updates == null )
         {
             return null;
         }
-        DiffSets<Long> diffs = new DiffSets<>();
-        for ( DiffSets<Long> diffSet : updates.values() )
+        PrimitiveLongDiffSets diffs = new PrimitiveLongDiffSets();
+        for ( PrimitiveLongDiffSets diffSet : updates.values() )
         {
-            diffs.addAll( diffSet.getAdded().iterator() );
-            diffs.removeAll( diffSet.getRemoved().iterator() );
+            diffs.addAll( diffSet.addedElements() );
+            diffs.removeAll( diffSet.removedElements() );
         }
         return diffs;
     }
@@ -1305,12 +1368,6 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return nodeStatesMap != null && nodeStatesMap.containsKey( nodeId );
     }
 
-    private PropertyChanges nodePropertyChanges()
-    {
-        return propertyChangesForNodes == null ?
-                propertyChangesForNodes = new PropertyChanges() : propertyChangesForNodes;
-    }
-
     @Override
     public PrimitiveLongIterator augmentNodesGetAll( PrimitiveLongIterator committed )
     {
@@ -56,6 +56,7 @@ import org.neo4j.kernel.impl.locking.StatementLocksFactory;
 import org.neo4j.kernel.impl.locking.community.CommunityLockManger;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.impl.store.id.BitmapIdGeneratorFactory;
 import org.neo4j.kernel.impl.store.id.DefaultIdGeneratorFactory;
 import org.neo4j.kernel.impl.store.id.IdGeneratorFactory;
 import org.neo4j.kernel.impl.store.id.IdReuseEligibility;
@@ -108,7 +109,10 @@ public class CommunityEditionModule extends EditionModule
         idTypeConfigurationProvider = createIdTypeConfigurationProvider( config );
         eligibleForIdReuse = IdReuseEligibility.ALWAYS;
 
-        createIdComponents( platformModule, dependencies, createIdGeneratorFactory( fileSystem, idTypeConfigurationProvider ) );
+        IdGeneratorFactory editionIdGeneratorFactory = config.get( GraphDatabaseSettings.id_generator_free_id_bitmap )
+                ? new BitmapIdGeneratorFactory( fileSystem, idTypeConfigurationProvider )
+                : createIdGeneratorFactory( fileSystem, idTypeConfigurationProvider );
+        createIdComponents( platformModule, dependencies, editionIdGeneratorFactory );
         dependencies.satisfyDependency( idGeneratorFactory );
         dependencies.satisfyDependency( idController );
 
@@ -36,7 +36,10 @@ import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.configuration.ConnectorPortRegister;
 import org.neo4j.kernel.extension.KernelExtensions;
 import org.neo4j.kernel.extension.UnsatisfiedDependencyStrategies;
+import org.neo4j.kernel.impl.api.CommitStageMonitor;
 import org.neo4j.kernel.impl.api.LogRotationMonitor;
+import org.neo4j.kernel.impl.locking.LockContentionProfiler;
+import org.neo4j.kernel.impl.locking.LockTracer;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.logging.StoreLogService;
 import org.neo4j.kernel.impl.pagecache.ConfiguringPageCacheFactory;
@@ -173,11 +176,17 @@ public class PlatformModule
                 new JvmMetadataRepository() ).checkJvmCompatibilityAndIssueWarning();
 
         String desiredImplementationName = config.get( GraphDatabaseFacadeFactory.Configuration.tracer );
+        int lockContentionSampleInterval = config.get( GraphDatabaseSettings.lock_contention_sample_interval );
+        LockContentionProfiler lockContentionProfiler = dependencies.satisfyDependency( new LockContentionProfiler(
+                lockContentionSampleInterval, config.get( GraphDatabaseSettings.lock_contention_max_resources ) ) );
         tracers = dependencies.satisfyDependency( new Tracers( desiredImplementationName,
-                logging.getInternalLog( Tracers.class ), monitors, jobScheduler ) );
+                logging.getInternalLog( Tracers.class ), monitors, jobScheduler,
+                lockContentionSampleInterval > 0 ? lockContentionProfiler : LockTracer.NONE ) );
         dependencies.satisfyDependency( tracers.pageCacheTracer );
         dependencies.satisfyDependency( firstImplementor(
                 LogRotationMonitor.class, tracers.transactionTracer, LogRotationMonitor.NULL ) );
+        dependencies.satisfyDependency( firstImplementor(
+                CommitStageMonitor.class, tracers.transactionTracer, CommitStageMonitor.NULL ) );
         dependencies.satisfyDependency( firstImplementor(
                 CheckPointerMonitor.class, tracers.checkPointTracer, CheckPointerMonitor.NULL ) );
 
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.neo4j.index.internal.gbptree.BulkLoader;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Writer;
+import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+
+import static java.lang.Math.max;
+import static java.lang.Math.toIntExact;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
+
+/**
+ * {@link LabelScanWriter} for rebuilding an empty label scan store from a full store scan, where updates
+ * come in ascending node id order and only add labels. Node id ranges are gathered per label in memory, with
+ * each label's ranges naturally in ascending order, and are {@link GBPTree#bulkLoader(double) bulk loaded}
+ * label by label when closing.
+ * <p>
+ * If the gathered ranges grow beyond the given maximum, or an update comes in which can't be gathered,
+ * i.e. one removing labels or going back in node id order, then the ranges gathered so far are written to
+ * the tree and this writer falls back to applying all further updates through a {@link NativeLabelScanWriter}.
+ */
+class BulkLoadingLabelScanWriter implements LabelScanWriter
+{
+    private final GBPTree<LabelScanKey,LabelScanValue> index;
+    private final NativeLabelScanWriter fallbackWriter;
+    private final long maxRanges;
+    private final LabelScanKey key = new LabelScanKey();
+    private final LabelScanValue value = new LabelScanValue();
+
+    /**
+     * Gathered ranges, indexed by label id.
+     */
+    private LabelRanges[] labels = new LabelRanges[16];
+    private long rangeCount;
+
+    /**
+     * Set when falling back to regular writes, after which no more ranges are gathered.
+     */
+    private NativeLabelScanWriter fallback;
+
+    BulkLoadingLabelScanWriter( GBPTree<LabelScanKey,LabelScanValue> index, NativeLabelScanWriter fallbackWriter,
+            long maxRanges )
+    {
+        this.index = index;
+        this.fallbackWriter = fallbackWriter;
+        this.maxRanges = maxRanges;
+    }
+
+    @Override
+    public void write( NodeLabelUpdate update ) throws IOException
+    {
+        if ( fallback == null && !gather( update ) )
+        {
+            fallBack();
+        }
+        if ( fallback != null )
+        {
+            fallback.write( update );
+        }
+    }
+
+    /**
+     * @return {@code true} if the update was gathered, {@code false} if it couldn't be, in which case
+     * nothing has been gathered from it.
+     * @throws IllegalArgumentException if the label ids of the update aren't sorted.
+     */
+    private boolean gather( NodeLabelUpdate update )
+    {
+        long nodeId = update.getNodeId();
+        long idRange = nodeId / RANGE_SIZE;
+        long[] labelsAfter = update.getLabelsAfter();
+        if ( !isEmpty( update.getLabelsBefore() ) || rangeCount + labelsAfter.length > maxRanges )
+        {
+            return false;
+        }
+        long previousLabelId = -1;
+        for ( long labelId : labelsAfter )
+        {
+            if ( labelId == -1 )
+            {
+                break;
+            }
+            if ( labelId < previousLabelId )
+            {
+                throw new IllegalArgumentException(
+                        "The node label update contained unsorted label ids " + Arrays.toString( labelsAfter ) );
+            }
+            if ( labelId < labels.length && labels[(int) labelId] != null &&
+                    labels[(int) labelId].lastRange() > idRange )
+            {
+                return false;
+            }
+            previousLabelId = labelId;
+        }
+
+        long bit = 1L << (nodeId % RANGE_SIZE);
+        for ( long labelId : labelsAfter )
+        {
+            if ( labelId == -1 )
+            {
+                break;
+            }
+            if ( labelRanges( toIntExact( labelId ) ).add( idRange, bit ) )
+            {
+                rangeCount++;
+            }
+        }
+        return true;
+    }
+
+    private LabelRanges labelRanges( int labelId )
+    {
+        if ( labelId >= labels.length )
+        {
+            labels = Arrays.copyOf( labels, max( labelId + 1, labels.length * 2 ) );
+        }
+        if ( labels[labelId] == null )
+        {
+            labels[labelId] = new LabelRanges();
+        }
+        return labels[labelId];
+    }
+
+    private static boolean isEmpty( long[] labels )
+    {
+        return labels.length == 0 || labels[0] == -1;
+    }
+
+    /**
+     * Writes the gathered ranges, in key order, using a regular {@link Writer} and keeps that writer
+     * for all further updates.
+     */
+    private void fallBack() throws IOException
+    {
+        Writer<LabelScanKey,LabelScanValue> writer = index.writer();
+        try
+        {
+            forEachRange( writer::put );
+        }
+        catch ( Throwable e )
+        {
+            writer.close();
+            throw e;
+        }
+        fallback = fallbackWriter.initialize( writer );
+        labels = null;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if ( fallback != null )
+        {
+            fallback.close();
+            return;
+        }
+        try ( BulkLoader<LabelScanKey,LabelScanValue> bulkLoader = index.bulkLoader( 1.0 ) )
+        {
+            forEachRange( bulkLoader::add );
+        }
+        labels = null;
+    }
+
+    private void forEachRange( RangeVisitor visitor ) throws IOException
+    {
+        for ( int labelId = 0; labelId < labels.length; labelId++ )
+        {
+            LabelRanges ranges = labels[labelId];
+            if ( ranges != null )
+            {
+                for ( int i = 0; i < ranges.size; i++ )
+                {
+                    key.set( labelId, ranges.ranges[i] );
+                    value.bits = ranges.bits[i];
+                    visitor.visit( key, value );
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RangeVisitor
+    {
+        void visit( LabelScanKey key, LabelScanValue value ) throws IOException;
+    }
+
+    /**
+     * Node id ranges of one label, in ascending order, with the bits of the nodes in each range.
+     */
+    private static class LabelRanges
+    {
+        private long[] ranges = new long[8];
+        private long[] bits = new long[8];
+        private int size;
+
+        long lastRange()
+        {
+            return size == 0 ? -1 : ranges[size - 1];
+        }
+
+        /**
+         * @return {@code true} if a new range was added, {@code false} if the bit was added to the last range.
+         */
+        boolean add( long idRange, long bit )
+        {
+            if ( size > 0 && ranges[size - 1] == idRange )
+            {
+                bits[size - 1] |= bit;
+                return false;
+            }
+            if ( size == ranges.length )
+            {
+                ranges = Arrays.copyOf( ranges, size * 2 );
+                bits = Arrays.copyOf( bits, size * 2 );
+            }
+            ranges[size] = idRange;
+            bits[size] = bit;
+            size++;
+            return true;
+        }
+    }
+}
@@ -99,8 +99,9 @@ class LabelScanLayout extends Layout.Adapter<LabelScanKey,LabelScanValue>
 
     private static void put6ByteLong( PageCursor cursor, long value )
     {
-        cursor.putInt( (int) value );
+        // Most significant bytes first, so that neighbouring ranges share leading bytes in compressed leaves
         cursor.putShort( (short) (value >>> Integer.SIZE) );
+        cursor.putInt( (int) value );
     }
 
     @Override
@@ -118,8 +119,8 @@ class LabelScanLayout extends Layout.Adapter<LabelScanKey,LabelScanValue>
 
     private static long get6ByteLong( PageCursor cursor )
     {
-        long low4b = cursor.getInt() & 0xFFFFFFFFL;
         long high2b = cursor.getShort();
+        long low4b = cursor.getInt() & 0xFFFFFFFFL;
         return low4b | (high2b << Integer.SIZE);
     }
 
@@ -138,12 +139,22 @@ class LabelScanLayout extends Layout.Adapter<LabelScanKey,LabelScanValue>
     @Override
     public int majorVersion()
     {
-        return 0;
+        return 1;
     }
 
     @Override
     public int minorVersion()
     {
-        return 1;
+        return 0;
+    }
+
+    /**
+     * Keys of neighbouring ranges of the same label share all but the last bytes, which makes label scan keys
+     * compress very well.
+     */
+    @Override
+    public boolean compressLeafKeys()
+    {
+        return true;
     }
 }
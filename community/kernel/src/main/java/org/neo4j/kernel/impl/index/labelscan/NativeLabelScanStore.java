@@ -47,6 +47,7 @@ import org.neo4j.kernel.impl.index.GBPTreeFileUtil;
 import org.neo4j.kernel.impl.store.UnderlyingStorageException;
 import org.neo4j.kernel.monitoring.Monitors;
 import org.neo4j.storageengine.api.schema.LabelScanReader;
+import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
 
 import static org.neo4j.helpers.Format.duration;
 import static org.neo4j.helpers.collection.Iterators.asResourceIterator;
@@ -152,6 +153,13 @@ public class NativeLabelScanStore implements LabelScanStore
      */
     private final RecoveryCleanupWorkCollector recoveryCleanupWorkCollector;
 
+    /**
+     * Maximum number of label/node id ranges a rebuild gathers in memory for bulk loading into the empty tree,
+     * see {@link BulkLoadingLabelScanWriter}. Each range takes 16 bytes of heap.
+     */
+    private static final long REBUILD_MAX_BULK_LOAD_RANGES =
+            FeatureToggles.getLong( NativeLabelScanStore.class, "rebuildMaxBulkLoadRanges", 1 << 22 );
+
     /**
      * The single instance of {@link NativeLabelScanWriter} used for updates.
      */
@@ -426,7 +434,7 @@ public class NativeLabelScanStore implements LabelScanStore
             long numberOfNodes;
 
             // Intentionally ignore read-only flag here when rebuilding.
-            try ( LabelScanWriter writer = writer() )
+            try ( LabelScanWriter writer = rebuildWriter() )
             {
                 numberOfNodes = fullStoreChangeStream.applyTo( writer );
             }
@@ -438,6 +446,15 @@ public class NativeLabelScanStore implements LabelScanStore
         }
     }
 
+    /**
+     * Recovery may have applied updates to the tree before the rebuild, in which case it can't be bulk loaded.
+     */
+    private LabelScanWriter rebuildWriter() throws IOException
+    {
+        return isEmpty() ? new BulkLoadingLabelScanWriter( index, singleWriter, REBUILD_MAX_BULK_LOAD_RANGES )
+                         : writer();
+    }
+
     private NativeLabelScanWriter writer() throws IOException
     {
         return singleWriter.initialize( index.writer() );
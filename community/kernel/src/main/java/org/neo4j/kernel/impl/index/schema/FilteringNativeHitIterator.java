@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.kernel.api.schema.IndexQuery;
+
+/**
+ * {@link NativeHitIterator} which only includes hits whose value matches a {@link IndexQuery predicate}.
+ * Used for queries which can't be expressed as a single range in the tree, e.g. suffix or contains queries.
+ *
+ * @param <KEY> type of {@link NativeSchemaKey}.
+ * @param <VALUE> type of {@link NativeSchemaValue}.
+ */
+class FilteringNativeHitIterator<KEY extends NativeSchemaKey, VALUE extends NativeSchemaValue>
+        extends NativeHitIterator<KEY,VALUE>
+{
+    private final IndexQuery filter;
+
+    FilteringNativeHitIterator( RawCursor<Hit<KEY,VALUE>,IOException> seeker,
+            Collection<RawCursor<Hit<KEY,VALUE>,IOException>> toRemoveFromWhenExhausted, IndexQuery filter )
+    {
+        super( seeker, toRemoveFromWhenExhausted );
+        this.filter = filter;
+    }
+
+    @Override
+    boolean acceptValue( KEY key )
+    {
+        return filter.test( key.asValue() );
+    }
+}
@@ -35,7 +35,7 @@ import org.neo4j.kernel.impl.index.GBPTreeFileUtil;
 import static org.neo4j.index.internal.gbptree.GBPTree.NO_HEADER_READER;
 import static org.neo4j.index.internal.gbptree.GBPTree.NO_MONITOR;
 
-class NativeSchemaNumberIndex<KEY extends SchemaNumberKey, VALUE extends SchemaNumberValue>
+class NativeSchemaIndex<KEY extends NativeSchemaKey, VALUE extends NativeSchemaValue>
 {
     final PageCache pageCache;
     final File storeFile;
@@ -44,7 +44,7 @@ class NativeSchemaNumberIndex<KEY extends SchemaNumberKey, VALUE extends SchemaN
 
     GBPTree<KEY,VALUE> tree;
 
-    NativeSchemaNumberIndex( PageCache pageCache, FileSystemAbstraction fs, File storeFile, Layout<KEY,VALUE> layout )
+    NativeSchemaIndex( PageCache pageCache, FileSystemAbstraction fs, File storeFile, Layout<KEY,VALUE> layout )
     {
         this.pageCache = pageCache;
         this.storeFile = storeFile;
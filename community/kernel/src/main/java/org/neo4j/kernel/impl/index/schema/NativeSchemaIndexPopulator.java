@@ -47,11 +47,11 @@ import static org.neo4j.index.internal.gbptree.GBPTree.NO_HEADER_WRITER;
 /**
  * {@link IndexPopulator} backed by a {@link GBPTree}.
  *
- * @param <KEY> type of {@link SchemaNumberKey}.
- * @param <VALUE> type of {@link SchemaNumberValue}.
+ * @param <KEY> type of {@link NativeSchemaKey}.
+ * @param <VALUE> type of {@link NativeSchemaValue}.
  */
-public abstract class NativeSchemaNumberIndexPopulator<KEY extends SchemaNumberKey, VALUE extends SchemaNumberValue>
-        extends NativeSchemaNumberIndex<KEY,VALUE> implements IndexPopulator
+public abstract class NativeSchemaIndexPopulator<KEY extends NativeSchemaKey, VALUE extends NativeSchemaValue>
+        extends NativeSchemaIndex<KEY,VALUE> implements IndexPopulator
 {
     static final byte BYTE_FAILED = 0;
     static final byte BYTE_ONLINE = 1;
@@ -66,7 +66,7 @@ public abstract class NativeSchemaNumberIndexPopulator<KEY extends SchemaNumberK
     private byte[] failureBytes;
     private boolean dropped;
 
-    NativeSchemaNumberIndexPopulator( PageCache pageCache, FileSystemAbstraction fs, File storeFile, Layout<KEY,VALUE> layout )
+    NativeSchemaIndexPopulator( PageCache pageCache, FileSystemAbstraction fs, File storeFile, Layout<KEY,VALUE> layout )
     {
         super( pageCache, fs, storeFile, layout );
         this.treeKey = layout.newKey();
@@ -80,13 +80,13 @@ public abstract class NativeSchemaNumberIndexPopulator<KEY extends SchemaNumberK
         gbpTreeFileUtil.deleteFileIfPresent( storeFile );
         instantiateTree( RecoveryCleanupWorkCollector.IMMEDIATE, new NativeSchemaIndexHeaderWriter( BYTE_POPULATING ) );
         instantiateWriter();
-        workSync = new WorkSync<>( new IndexUpdateApply<>( treeKey, treeValue, singleTreeWriter, conflictDetectingValueMerger ) );
     }
 
     void instantiateWriter() throws IOException
     {
         assert singleTreeWriter == null;
         singleTreeWriter = tree.writer();
+        workSync = new WorkSync<>( new IndexUpdateApply<>( treeKey, treeValue, singleTreeWriter, conflictDetectingValueMerger ) );
     }
 
     @Override
@@ -239,7 +239,7 @@ public abstract class NativeSchemaNumberIndexPopulator<KEY extends SchemaNumberK
         singleTreeWriter = closeIfPresent( singleTreeWriter );
     }
 
-    private static class IndexUpdateApply<KEY extends SchemaNumberKey, VALUE extends SchemaNumberValue>
+    private static class IndexUpdateApply<KEY extends NativeSchemaKey, VALUE extends NativeSchemaValue>
     {
         private final KEY treeKey;
         private final VALUE treeValue;
@@ -257,11 +257,11 @@ public abstract class NativeSchemaNumberIndexPopulator<KEY extends SchemaNumberK
 
         public void process( IndexEntryUpdate<?> indexEntryUpdate ) throws Exception
         {
-            NativeSchemaNumberIndexUpdater.processUpdate( treeKey, treeValue, indexEntryUpdate, writer, conflictDetectingValueMerger );
+            NativeSchemaIndexUpdater.processUpdate( treeKey, treeValue, indexEntryUpdate, writer, conflictDetectingValueMerger );
         }
     }
 
-    private static class IndexUpdateWork<KEY extends SchemaNumberKey, VALUE extends SchemaNumberValue>
+    private static class IndexUpdateWork<KEY extends NativeSchemaKey, VALUE extends NativeSchemaValue>
             implements Work<IndexUpdateApply<KEY,VALUE>,IndexUpdateWork<KEY,VALUE>>
     {
         private final Collection<? extends IndexEntryUpdate<?>> updates;
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Layout;
+import org.neo4j.kernel.api.schema.IndexQuery;
+import org.neo4j.kernel.api.schema.IndexQuery.StringPrefixPredicate;
+import org.neo4j.kernel.api.schema.IndexQuery.StringRangePredicate;
+
+class NativeSchemaStringIndexReader<KEY extends SchemaStringKey, VALUE extends NativeSchemaValue>
+        extends NativeSchemaIndexReader<KEY,VALUE>
+{
+    NativeSchemaStringIndexReader( GBPTree<KEY,VALUE> tree, Layout<KEY,VALUE> layout )
+    {
+        super( tree, layout );
+    }
+
+    @Override
+    boolean initializeRangeForQuery( IndexQuery predicate )
+    {
+        switch ( predicate.type() )
+        {
+        case rangeString:
+            StringRangePredicate rangePredicate = (StringRangePredicate) predicate;
+            initFromForRange( rangePredicate );
+            initToForRange( rangePredicate );
+            return false;
+        case stringPrefix:
+            StringPrefixPredicate prefixPredicate = (StringPrefixPredicate) predicate;
+            treeKeyFrom.initAsLowest();
+            treeKeyFrom.writeString( prefixPredicate.prefix() );
+            treeKeyTo.initAsPrefixHigh( prefixPredicate.prefix() );
+            return false;
+        case stringSuffix:
+        case stringContains:
+            // There's no range to narrow these down to, so scan all strings and filter
+            treeKeyFrom.initAsLowest();
+            treeKeyTo.initAsHighest();
+            return true;
+        default:
+            throw new IllegalArgumentException( "IndexQuery of type " + predicate.type() + " is not supported." );
+        }
+    }
+
+    private void initToForRange( StringRangePredicate rangePredicate )
+    {
+        String to = rangePredicate.to();
+        if ( to == null )
+        {
+            treeKeyTo.initAsHighest();
+        }
+        else
+        {
+            treeKeyTo.writeString( to );
+            treeKeyTo.entityId = rangePredicate.toInclusive() ? Long.MAX_VALUE : Long.MIN_VALUE;
+            treeKeyTo.entityIdIsSpecialTieBreaker = true;
+        }
+    }
+
+    private void initFromForRange( StringRangePredicate rangePredicate )
+    {
+        String from = rangePredicate.from();
+        if ( from == null )
+        {
+            treeKeyFrom.initAsLowest();
+        }
+        else
+        {
+            treeKeyFrom.writeString( from );
+            treeKeyFrom.entityId = rangePredicate.fromInclusive() ? Long.MIN_VALUE : Long.MAX_VALUE;
+            treeKeyFrom.entityIdIsSpecialTieBreaker = true;
+        }
+    }
+}
@@ -19,7 +19,9 @@
  */
 package org.neo4j.kernel.impl.index.schema;
 
+import org.neo4j.kernel.api.schema.IndexQuery;
 import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.QueryTarget;
 import org.neo4j.values.storable.Value;
 import org.neo4j.values.storable.ValueGroup;
 
@@ -42,4 +44,11 @@ public class NativeSelector implements FusionSchemaIndexProvider.Selector
         }
         return luceneInstance;
     }
+
+    @Override
+    public QueryTarget select( IndexQuery predicate )
+    {
+        // Only number ranges can be answered by the native index, all other predicates are about strings
+        return predicate.type() == IndexQuery.IndexQueryType.rangeNumeric ? QueryTarget.NATIVE : QueryTarget.LUCENE;
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.neo4j.kernel.api.schema.IndexQuery;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.QueryTarget;
+import org.neo4j.values.storable.Value;
+
+/**
+ * Selects the native string index for strings which {@link SchemaStringKey#fits(Value) fit} in its keys.
+ * Longer strings overflow into the other index, which means that all string queries other than exact
+ * matches need to query both.
+ */
+public class NativeStringSelector implements FusionSchemaIndexProvider.Selector
+{
+    @Override
+    public <T> T select( T nativeInstance, T luceneInstance, Value... values )
+    {
+        if ( values.length > 1 )
+        {
+            // Multiple values must be handled by lucene
+            return luceneInstance;
+        }
+
+        if ( SchemaStringKey.fits( values[0] ) )
+        {
+            // It's a string short enough for the native index to handle
+            return nativeInstance;
+        }
+        return luceneInstance;
+    }
+
+    @Override
+    public QueryTarget select( IndexQuery predicate )
+    {
+        switch ( predicate.type() )
+        {
+        case rangeString:
+        case stringPrefix:
+        case stringSuffix:
+        case stringContains:
+            return QueryTarget.BOTH;
+        default:
+            return QueryTarget.LUCENE;
+        }
+    }
+}
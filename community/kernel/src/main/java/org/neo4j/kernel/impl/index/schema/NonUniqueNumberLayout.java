@@ -26,7 +26,7 @@ public class NonUniqueNumberLayout extends NumberLayout
     private static final String IDENTIFIER_NAME = "NUNI";
     static final int MAJOR_VERSION = 0;
     static final int MINOR_VERSION = 1;
-    static long IDENTIFIER = Layout.namedIdentifier( IDENTIFIER_NAME, SchemaNumberValue.SIZE );
+    static long IDENTIFIER = Layout.namedIdentifier( IDENTIFIER_NAME, NativeSchemaValue.SIZE );
 
     @Override
     public long identifier()
@@ -19,10 +19,8 @@
  */
 package org.neo4j.kernel.impl.index.schema;
 
-import org.neo4j.index.internal.gbptree.GBPTree;
 import org.neo4j.values.storable.NumberValue;
 import org.neo4j.values.storable.Value;
-import org.neo4j.values.storable.ValueWriter;
 import org.neo4j.values.storable.Values;
 
 import static java.lang.String.format;
@@ -35,7 +33,7 @@ import static java.lang.String.format;
  * Distinction between double and float exists because coersions between each other and long may differ.
  * TODO this should be figured out and potentially reduced to long, double types only.
  */
-class SchemaNumberKey extends ValueWriter.Adapter<RuntimeException>
+class SchemaNumberKey extends NativeSchemaKey
 {
     static final int SIZE =
             Byte.BYTES + /* type of value */
@@ -46,17 +44,8 @@ class SchemaNumberKey extends ValueWriter.Adapter<RuntimeException>
 
     byte type;
     long rawValueBits;
-    long entityId;
-
-    /**
-     * Marks that comparisons with this key requires also comparing entityId, this allows functionality
-     * of inclusive/exclusive bounds of range queries.
-     * This is because {@link GBPTree} only support from inclusive and to exclusive.
-     * <p>
-     * Note that {@code entityIdIsSpecialTieBreaker} is only an in memory state.
-     */
-    boolean entityIdIsSpecialTieBreaker;
 
+    @Override
     void from( long entityId, Value... values )
     {
         extractRawBitsAndType( assertValidSingleNumber( values ) );
@@ -83,11 +72,19 @@ class SchemaNumberKey extends ValueWriter.Adapter<RuntimeException>
         return (NumberValue) values[0];
     }
 
+    @Override
+    Value asValue()
+    {
+        return RawBits.asNumberValue( rawValueBits, type );
+    }
+
+    @Override
     String propertiesAsString()
     {
         return RawBits.asNumberValue( rawValueBits, type ).toString();
     }
 
+    @Override
     void initAsLowest()
     {
         writeFloatingPoint( Double.NEGATIVE_INFINITY );
@@ -95,6 +92,7 @@ class SchemaNumberKey extends ValueWriter.Adapter<RuntimeException>
         entityIdIsSpecialTieBreaker = true;
     }
 
+    @Override
     void initAsHighest()
     {
         writeFloatingPoint( Double.POSITIVE_INFINITY );
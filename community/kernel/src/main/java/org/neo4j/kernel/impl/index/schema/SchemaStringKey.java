@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.util.Arrays;
+
+import org.neo4j.values.storable.TextValue;
+import org.neo4j.values.storable.Value;
+import org.neo4j.values.storable.Values;
+
+import static java.lang.String.format;
+
+/**
+ * Includes value and entity id (to be able to handle non-unique values).
+ * A value is a string of at most {@link #MAX_LENGTH} characters, stored as its {@code char}s so that keys
+ * order the same way as {@link String#compareTo(String)}. Longer strings don't fit in a key and are instead
+ * expected to be indexed elsewhere, see {@link #fits(Value)}.
+ * <p>
+ * A key instance used as a search bound may hold strings longer than {@link #MAX_LENGTH}, it just can't be written.
+ */
+class SchemaStringKey extends NativeSchemaKey
+{
+    static final int MAX_LENGTH = 64;
+
+    static final int SIZE =
+            MAX_LENGTH * Character.BYTES + /* chars of value, padded with zeros */
+            Short.BYTES +                  /* length of value */
+            Long.BYTES;                    /* entityId */
+
+    char[] chars = new char[MAX_LENGTH];
+    int length;
+
+    /**
+     * @param value {@link Value} to check.
+     * @return whether or not the given value is a string which fits in a key.
+     */
+    static boolean fits( Value value )
+    {
+        return Values.isTextValue( value ) && ((TextValue) value).length() <= MAX_LENGTH;
+    }
+
+    @Override
+    void from( long entityId, Value... values )
+    {
+        assertValidSingleString( values ).writeTo( this );
+        this.entityId = entityId;
+        entityIdIsSpecialTieBreaker = false;
+    }
+
+    private static TextValue assertValidSingleString( Value... values )
+    {
+        if ( values.length > 1 )
+        {
+            throw new IllegalArgumentException( "Tried to create composite key with non-composite schema key layout" );
+        }
+        if ( values.length < 1 )
+        {
+            throw new IllegalArgumentException( "Tried to create key without value" );
+        }
+        if ( !Values.isTextValue( values[0] ) )
+        {
+            throw new IllegalArgumentException(
+                    "Key layout does only support strings, tried to create key from " + values[0] );
+        }
+        return (TextValue) values[0];
+    }
+
+    @Override
+    Value asValue()
+    {
+        return Values.stringValue( stringValue() );
+    }
+
+    @Override
+    String propertiesAsString()
+    {
+        return stringValue();
+    }
+
+    String stringValue()
+    {
+        return new String( chars, 0, length );
+    }
+
+    @Override
+    void initAsLowest()
+    {
+        length = 0;
+        entityId = Long.MIN_VALUE;
+        entityIdIsSpecialTieBreaker = true;
+    }
+
+    @Override
+    void initAsHighest()
+    {
+        // No string longer than MAX_LENGTH is ever stored, which makes this higher than any stored string
+        ensureCapacity( MAX_LENGTH + 1 );
+        Arrays.fill( chars, 0, MAX_LENGTH + 1, Character.MAX_VALUE );
+        length = MAX_LENGTH + 1;
+        entityId = Long.MAX_VALUE;
+        entityIdIsSpecialTieBreaker = true;
+    }
+
+    /**
+     * Initializes this key to be the lowest string higher than all strings starting with {@code prefix},
+     * i.e. an exclusive upper bound for a prefix search. If there's no such string then this key is initialized
+     * as {@link #initAsHighest() highest}.
+     *
+     * @param prefix the prefix to find the upper bound for.
+     */
+    void initAsPrefixHigh( String prefix )
+    {
+        int prefixLength = prefix.length();
+        while ( prefixLength > 0 && prefix.charAt( prefixLength - 1 ) == Character.MAX_VALUE )
+        {
+            prefixLength--;
+        }
+        if ( prefixLength == 0 )
+        {
+            initAsHighest();
+            return;
+        }
+        writeChars( prefix, prefixLength );
+        chars[prefixLength - 1]++;
+        entityId = Long.MIN_VALUE;
+        entityIdIsSpecialTieBreaker = true;
+    }
+
+    /**
+     * Compares the value of this key to that of another key.
+     * This method is expected to be called in scenarios where inconsistent reads may happen (and later retried).
+     *
+     * @param other the {@link SchemaStringKey} to compare to.
+     * @return comparison against the {@code other} {@link SchemaStringKey}.
+     */
+    int compareValueTo( SchemaStringKey other )
+    {
+        int commonLength = Math.min( length, other.length );
+        for ( int i = 0; i < commonLength; i++ )
+        {
+            int comparison = Character.compare( chars[i], other.chars[i] );
+            if ( comparison != 0 )
+            {
+                return comparison;
+            }
+        }
+        return Integer.compare( length, other.length );
+    }
+
+    void ensureCapacity( int capacity )
+    {
+        if ( chars.length < capacity )
+        {
+            chars = Arrays.copyOf( chars, capacity );
+        }
+    }
+
+    private void writeChars( String value, int length )
+    {
+        ensureCapacity( length );
+        value.getChars( 0, length, chars, 0 );
+        this.length = length;
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "value=%s,entityId=%d", stringValue(), entityId );
+    }
+
+    @Override
+    public void writeString( String value )
+    {
+        writeChars( value, value.length() );
+    }
+
+    @Override
+    public void writeString( char value )
+    {
+        chars[0] = value;
+        length = 1;
+    }
+}
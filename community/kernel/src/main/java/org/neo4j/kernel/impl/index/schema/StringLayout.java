@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.neo4j.index.internal.gbptree.Layout;
+import org.neo4j.io.pagecache.PageCursor;
+
+import static java.lang.String.format;
+
+/**
+ * {@link Layout} for strings. The characters of the string are written first and padded to a fixed size,
+ * so that sorted keys share long prefixes which makes them compress well, see {@link #compressLeafKeys()}.
+ */
+abstract class StringLayout extends Layout.Adapter<SchemaStringKey,NativeSchemaValue>
+{
+    @Override
+    public SchemaStringKey newKey()
+    {
+        return new SchemaStringKey();
+    }
+
+    @Override
+    public SchemaStringKey copyKey( SchemaStringKey key,
+            SchemaStringKey into )
+    {
+        into.ensureCapacity( key.length );
+        System.arraycopy( key.chars, 0, into.chars, 0, key.length );
+        into.length = key.length;
+        into.entityId = key.entityId;
+        into.entityIdIsSpecialTieBreaker = key.entityIdIsSpecialTieBreaker;
+        return into;
+    }
+
+    @Override
+    public NativeSchemaValue newValue()
+    {
+        return NativeSchemaValue.INSTANCE;
+    }
+
+    @Override
+    public int keySize()
+    {
+        return SchemaStringKey.SIZE;
+    }
+
+    @Override
+    public int valueSize()
+    {
+        return NativeSchemaValue.SIZE;
+    }
+
+    @Override
+    public int compare( SchemaStringKey o1, SchemaStringKey o2 )
+    {
+        int comparison = o1.compareValueTo( o2 );
+        return comparison != 0 ? comparison : Long.compare( o1.entityId, o2.entityId );
+    }
+
+    @Override
+    public boolean compressLeafKeys()
+    {
+        return true;
+    }
+
+    @Override
+    public void writeKey( PageCursor cursor, SchemaStringKey key )
+    {
+        for ( int i = 0; i < key.length; i++ )
+        {
+            cursor.putShort( (short) key.chars[i] );
+        }
+        for ( int i = key.length; i < SchemaStringKey.MAX_LENGTH; i++ )
+        {
+            cursor.putShort( (short) 0 );
+        }
+        cursor.putShort( (short) key.length );
+        cursor.putLong( key.entityId );
+    }
+
+    @Override
+    public void writeValue( PageCursor cursor, NativeSchemaValue value )
+    {
+    }
+
+    @Override
+    public void readKey( PageCursor cursor, SchemaStringKey into )
+    {
+        into.ensureCapacity( SchemaStringKey.MAX_LENGTH );
+        for ( int i = 0; i < SchemaStringKey.MAX_LENGTH; i++ )
+        {
+            into.chars[i] = (char) cursor.getShort();
+        }
+        int length = cursor.getShort() & 0xFFFF;
+        if ( length > SchemaStringKey.MAX_LENGTH )
+        {
+            // Most likely an inconsistent read, which will be retried
+            cursor.setCursorException( format( "Read unreasonable string length %d, max is %d",
+                    length, SchemaStringKey.MAX_LENGTH ) );
+            length = SchemaStringKey.MAX_LENGTH;
+        }
+        into.length = length;
+        into.entityId = cursor.getLong();
+    }
+
+    @Override
+    public void readValue( PageCursor cursor, NativeSchemaValue into )
+    {
+    }
+}
@@ -25,7 +25,6 @@ import org.neo4j.kernel.api.exceptions.index.IndexNotApplicableKernelException;
 import org.neo4j.kernel.api.schema.IndexQuery;
 import org.neo4j.kernel.api.schema.IndexQuery.ExactPredicate;
 import org.neo4j.kernel.api.schema.IndexQuery.ExistsPredicate;
-import org.neo4j.kernel.api.schema.IndexQuery.NumberRangePredicate;
 import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.Selector;
 import org.neo4j.storageengine.api.schema.IndexReader;
 import org.neo4j.storageengine.api.schema.IndexSampler;
@@ -83,20 +82,26 @@ class FusionIndexReader implements IndexReader
             return selector.select( nativeReader, luceneReader, exactPredicate.value() ).query( predicates );
         }
 
-        if ( predicates[0] instanceof NumberRangePredicate )
+        // Results from both indexes are simply concatenated. Entity ids are returned in no particular order, neither
+        // index orders them by id to begin with, so there is no order to preserve by merging them
+        if ( predicates[0] instanceof ExistsPredicate )
         {
-            return nativeReader.query( predicates[0] );
+            PrimitiveLongIterator nativeResult = nativeReader.query( predicates[0] );
+            PrimitiveLongIterator luceneResult = luceneReader.query( predicates[0] );
+            return PrimitiveLongCollections.concat( nativeResult, luceneResult );
         }
 
-        // todo: There will be no ordering of the node ids here. Is this a problem?
-        if ( predicates[0] instanceof ExistsPredicate )
+        switch ( selector.select( predicates[0] ) )
         {
+        case NATIVE:
+            return nativeReader.query( predicates[0] );
+        case BOTH:
             PrimitiveLongIterator nativeResult = nativeReader.query( predicates[0] );
             PrimitiveLongIterator luceneResult = luceneReader.query( predicates[0] );
             return PrimitiveLongCollections.concat( nativeResult, luceneResult );
+        default:
+            return luceneReader.query( predicates );
         }
-
-        return luceneReader.query( predicates );
     }
 
     @Override
@@ -115,10 +120,18 @@ class FusionIndexReader implements IndexReader
                     nativeReader.hasFullNumberPrecision( predicates ),
                     luceneReader.hasFullNumberPrecision( predicates ), value );
         }
-        if ( predicates[0] instanceof NumberRangePredicate )
+        if ( predicate instanceof ExistsPredicate )
+        {
+            return false;
+        }
+        switch ( selector.select( predicate ) )
         {
+        case NATIVE:
             return nativeReader.hasFullNumberPrecision( predicates );
+        case BOTH:
+            return nativeReader.hasFullNumberPrecision( predicates ) && luceneReader.hasFullNumberPrecision( predicates );
+        default:
+            return false;
         }
-        return false;
     }
 }
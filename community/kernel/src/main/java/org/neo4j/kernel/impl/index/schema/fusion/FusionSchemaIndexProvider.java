@@ -28,6 +28,7 @@ import org.neo4j.kernel.api.index.IndexDirectoryStructure;
 import org.neo4j.kernel.api.index.IndexPopulator;
 import org.neo4j.kernel.api.index.InternalIndexState;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.api.schema.IndexQuery;
 import org.neo4j.kernel.api.schema.index.IndexDescriptor;
 import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
 import org.neo4j.kernel.impl.storemigration.StoreMigrationParticipant;
@@ -44,6 +45,25 @@ public class FusionSchemaIndexProvider extends SchemaIndexProvider
     public interface Selector
     {
         <T> T select( T nativeInstance, T luceneInstance, Value... values );
+
+        /**
+         * Selects which of the two indexes to query for a single predicate which doesn't match one specific value,
+         * i.e. a range, prefix, suffix or contains predicate.
+         *
+         * @param predicate the query predicate.
+         * @return which index, or both, may have entries matching the predicate.
+         */
+        QueryTarget select( IndexQuery predicate );
+    }
+
+    /**
+     * Which of the two indexes that entries matching a predicate may live in.
+     */
+    public enum QueryTarget
+    {
+        NATIVE,
+        LUCENE,
+        BOTH
     }
 
     private final SchemaIndexProvider nativeProvider;
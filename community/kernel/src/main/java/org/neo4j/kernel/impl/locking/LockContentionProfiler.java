@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.neo4j.storageengine.api.lock.ResourceType;
+
+/**
+ * A {@link LockTracer} keeping track of which resources clients wait for locks on, and for how long.
+ * <p>
+ * Only lock waits are seen by a lock tracer, not lock acquisitions that didn't have to wait, so the overhead of
+ * this profiler is only added to transactions that are already waiting. On top of that only every
+ * {@code sampleInterval}:th wait, on average, is timed and recorded.
+ * <p>
+ * Wait counts, wait times and a wait time histogram are kept per {@link ResourceType}, and for the
+ * most contended resources. The number of resources kept is bounded: once twice the number of resources asked to
+ * keep is reached, the least contended ones are dropped.
+ */
+public class LockContentionProfiler implements LockTracer
+{
+    /**
+     * Upper bounds, exclusive, of the wait time histogram buckets, in milliseconds. The last bucket has no upper
+     * bound.
+     */
+    private static final long[] HISTOGRAM_BUCKET_BOUNDS_MILLIS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    private static final Comparator<ContentionSnapshot> MOST_CONTENDED_FIRST =
+            Comparator.comparingLong( ( ContentionSnapshot snapshot ) -> snapshot.totalWaitNanos ).reversed();
+
+    private final int sampleInterval;
+    private final int maxResources;
+    private final ConcurrentMap<ResourceKey,ResourceContention> resources = new ConcurrentHashMap<>();
+    private final AtomicBoolean pruning = new AtomicBoolean();
+    private final ResourceTypeContention[] resourceTypes;
+
+    /**
+     * @param sampleInterval record every {@code sampleInterval}:th lock wait, on average. {@code 1} records all waits.
+     * @param maxResources number of most contended resources to keep track of.
+     */
+    public LockContentionProfiler( int sampleInterval, int maxResources )
+    {
+        this.sampleInterval = sampleInterval;
+        this.maxResources = maxResources;
+        int maxTypeId = 0;
+        for ( ResourceTypes type : ResourceTypes.values() )
+        {
+            maxTypeId = Math.max( maxTypeId, type.typeId() );
+        }
+        this.resourceTypes = new ResourceTypeContention[maxTypeId + 1];
+        for ( int i = 0; i < resourceTypes.length; i++ )
+        {
+            resourceTypes[i] = new ResourceTypeContention();
+        }
+    }
+
+    @Override
+    public LockWaitEvent waitForLock( boolean exclusive, ResourceType resourceType, long... resourceIds )
+    {
+        if ( sampleInterval > 1 && ThreadLocalRandom.current().nextInt( sampleInterval ) != 0 )
+        {
+            return LockWaitEvent.NONE;
+        }
+        return new SampledWait( exclusive, resourceType, resourceIds, System.nanoTime() );
+    }
+
+    private void waited( boolean exclusive, ResourceType resourceType, long[] resourceIds, long nanos )
+    {
+        int bucket = histogramBucket( nanos );
+        if ( resourceType.typeId() < resourceTypes.length )
+        {
+            resourceTypes[resourceType.typeId()].waited( nanos, bucket );
+        }
+        for ( long resourceId : resourceIds )
+        {
+            ResourceKey key = new ResourceKey( resourceType, resourceId );
+            ResourceContention contention = resources.get( key );
+            if ( contention == null )
+            {
+                contention = resources.computeIfAbsent( key, ResourceContention::new );
+                if ( resources.size() > maxResources * 2 )
+                {
+                    pruneLeastContended();
+                }
+            }
+            contention.waited( exclusive, nanos, bucket );
+        }
+    }
+
+    private void pruneLeastContended()
+    {
+        if ( !pruning.compareAndSet( false, true ) )
+        {
+            // Someone else is at it already
+            return;
+        }
+        try
+        {
+            List<ContentionSnapshot> all = mostContendedFirst();
+            for ( int i = maxResources; i < all.size(); i++ )
+            {
+                resources.remove( all.get( i ).contention.key );
+            }
+        }
+        finally
+        {
+            pruning.set( false );
+        }
+    }
+
+    /**
+     * @param limit maximum number of resources to return.
+     * @return the resources that clients have spent the most time waiting for locks on, most contended first.
+     */
+    public List<ResourceContention> mostContendedResources( int limit )
+    {
+        List<ContentionSnapshot> all = mostContendedFirst();
+        List<ResourceContention> result = new ArrayList<>( Math.min( limit, all.size() ) );
+        for ( int i = 0; i < all.size() && i < limit; i++ )
+        {
+            result.add( all.get( i ).contention );
+        }
+        return result;
+    }
+
+    /**
+     * Wait times keep changing while sorting, which would break the contract of the comparator, so they are
+     * snapshotted first and the snapshots sorted instead.
+     */
+    private List<ContentionSnapshot> mostContendedFirst()
+    {
+        List<ContentionSnapshot> all = new ArrayList<>( resources.size() );
+        for ( ResourceContention contention : resources.values() )
+        {
+            all.add( new ContentionSnapshot( contention ) );
+        }
+        all.sort( MOST_CONTENDED_FIRST );
+        return all;
+    }
+
+    /** @return number of recorded lock waits on resources of the given type. */
+    public long waits( ResourceType resourceType )
+    {
+        return resourceType( resourceType ).waits.sum();
+    }
+
+    /** @return total recorded time spent waiting for locks on resources of the given type, in nanoseconds. */
+    public long waitTimeNanos( ResourceType resourceType )
+    {
+        return resourceType( resourceType ).waitNanos.sum();
+    }
+
+    /**
+     * @return number of recorded lock waits on resources of the given type in each bucket of the wait time histogram.
+     * @see #histogramBucketBoundsMillis()
+     */
+    public long[] waitTimeHistogram( ResourceType resourceType )
+    {
+        return toArray( resourceType( resourceType ).histogram );
+    }
+
+    /**
+     * @param quantile a quantile between {@code 0} and {@code 1}, e.g. {@code 0.99} for the 99th percentile.
+     * @return the wait time, in milliseconds, that the given quantile of recorded lock waits on resources of the given
+     * type stayed below, as given by the wait time histogram.
+     * @see #waitTimeMillisAtQuantile(long[], double)
+     */
+    public long waitTimeMillisAtQuantile( ResourceType resourceType, double quantile )
+    {
+        return waitTimeMillisAtQuantile( waitTimeHistogram( resourceType ), quantile );
+    }
+
+    /**
+     * Waits are only known to the precision of the histogram buckets, so this is the upper bound of the bucket that
+     * the given quantile falls into. Waits in the last bucket, which has no upper bound, are reported as its lower
+     * bound.
+     *
+     * @param histogram number of lock waits in each bucket, as given by {@link #waitTimeHistogram(ResourceType)}.
+     * @param quantile a quantile between {@code 0} and {@code 1}, e.g. {@code 0.99} for the 99th percentile.
+     * @return the wait time, in milliseconds, at the given quantile, or {@code 0} if there are no waits.
+     */
+    public static long waitTimeMillisAtQuantile( long[] histogram, double quantile )
+    {
+        long total = 0;
+        for ( long count : histogram )
+        {
+            total += count;
+        }
+        if ( total == 0 )
+        {
+            return 0;
+        }
+        long rank = Math.max( 1, (long) Math.ceil( quantile * total ) );
+        long seen = 0;
+        int bucket = 0;
+        while ( bucket < histogram.length - 1 && (seen += histogram[bucket]) < rank )
+        {
+            bucket++;
+        }
+        return HISTOGRAM_BUCKET_BOUNDS_MILLIS[Math.min( bucket, HISTOGRAM_BUCKET_BOUNDS_MILLIS.length - 1 )];
+    }
+
+    /**
+     * @return the exclusive upper bounds of the wait time histogram buckets, in milliseconds. There is one more
+     * bucket in the histogram than there are bounds, for waits longer than the last bound.
+     */
+    public static long[] histogramBucketBoundsMillis()
+    {
+        return HISTOGRAM_BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    private ResourceTypeContention resourceType( ResourceType resourceType )
+    {
+        return resourceType.typeId() < resourceTypes.length ? resourceTypes[resourceType.typeId()]
+                                                            : new ResourceTypeContention();
+    }
+
+    private static int histogramBucket( long nanos )
+    {
+        long millis = TimeUnit.NANOSECONDS.toMillis( nanos );
+        int bucket = 0;
+        while ( bucket < HISTOGRAM_BUCKET_BOUNDS_MILLIS.length && millis >= HISTOGRAM_BUCKET_BOUNDS_MILLIS[bucket] )
+        {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static long[] toArray( AtomicLongArray array )
+    {
+        long[] result = new long[array.length()];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = array.get( i );
+        }
+        return result;
+    }
+
+    private class SampledWait implements LockWaitEvent
+    {
+        private final boolean exclusive;
+        private final ResourceType resourceType;
+        private final long[] resourceIds;
+        private final long startNanos;
+
+        SampledWait( boolean exclusive, ResourceType resourceType, long[] resourceIds, long startNanos )
+        {
+            this.exclusive = exclusive;
+            this.resourceType = resourceType;
+            this.resourceIds = resourceIds;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close()
+        {
+            waited( exclusive, resourceType, resourceIds, System.nanoTime() - startNanos );
+        }
+    }
+
+    private static class ContentionSnapshot
+    {
+        private final ResourceContention contention;
+        private final long totalWaitNanos;
+
+        ContentionSnapshot( ResourceContention contention )
+        {
+            this.contention = contention;
+            this.totalWaitNanos = contention.totalWaitNanos();
+        }
+    }
+
+    private static class ResourceTypeContention
+    {
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray( HISTOGRAM_BUCKET_BOUNDS_MILLIS.length + 1 );
+
+        void waited( long nanos, int bucket )
+        {
+            waits.increment();
+            waitNanos.add( nanos );
+            histogram.incrementAndGet( bucket );
+        }
+    }
+
+    private static class ResourceKey
+    {
+        private final ResourceType resourceType;
+        private final long resourceId;
+
+        ResourceKey( ResourceType resourceType, long resourceId )
+        {
+            this.resourceType = resourceType;
+            this.resourceId = resourceId;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() )
+            {
+                return false;
+            }
+            ResourceKey that = (ResourceKey) o;
+            return resourceId == that.resourceId && resourceType.typeId() == that.resourceType.typeId();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * resourceType.typeId() + Long.hashCode( resourceId );
+        }
+    }
+
+    /**
+     * Recorded lock waits on a single resource.
+     */
+    public static class ResourceContention
+    {
+        private final ResourceKey key;
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder exclusiveWaits = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray( HISTOGRAM_BUCKET_BOUNDS_MILLIS.length + 1 );
+
+        private ResourceContention( ResourceKey key )
+        {
+            this.key = key;
+        }
+
+        void waited( boolean exclusive, long nanos, int bucket )
+        {
+            waits.increment();
+            if ( exclusive )
+            {
+                exclusiveWaits.increment();
+            }
+            waitNanos.add( nanos );
+            maxWaitNanos.accumulateAndGet( nanos, Math::max );
+            histogram.incrementAndGet( bucket );
+        }
+
+        public ResourceType resourceType()
+        {
+            return key.resourceType;
+        }
+
+        public long resourceId()
+        {
+            return key.resourceId;
+        }
+
+        /** @return number of recorded lock waits on this resource. */
+        public long waits()
+        {
+            return waits.sum();
+        }
+
+        /** @return number of recorded waits for exclusive locks on this resource. */
+        public long exclusiveWaits()
+        {
+            return exclusiveWaits.sum();
+        }
+
+        public long totalWaitNanos()
+        {
+            return waitNanos.sum();
+        }
+
+        public long maxWaitNanos()
+        {
+            return maxWaitNanos.get();
+        }
+
+        /**
+         * @return number of recorded waits in each bucket of the wait time histogram.
+         * @see LockContentionProfiler#histogramBucketBoundsMillis()
+         */
+        public long[] waitTimeHistogram()
+        {
+            return toArray( histogram );
+        }
+    }
+}
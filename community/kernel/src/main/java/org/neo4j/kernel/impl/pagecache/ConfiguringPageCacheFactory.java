@@ -19,20 +19,27 @@
  */
 package org.neo4j.kernel.impl.pagecache;
 
+import java.io.File;
+
 import org.neo4j.helpers.Service;
 import org.neo4j.io.ByteUnit;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo4j.io.pagecache.impl.muninn.EvictionPolicy;
 import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.util.OsBeanUtil;
 import org.neo4j.logging.Log;
+import org.neo4j.unsafe.impl.internal.dragons.MemorySource;
 
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.mapped_memory_page_size;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_eviction_policy;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_huge_pages;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_huge_pages_directory;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_memory;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_swapper;
 import static org.neo4j.kernel.configuration.Settings.BYTES;
@@ -85,7 +92,30 @@ public class ConfiguringPageCacheFactory
         return new MuninnPageCache(
                 swapperFactory,
                 maxPages,
-                cachePageSize, pageCacheTracer, pageCursorTracerSupplier );
+                cachePageSize, pageCacheTracer, pageCursorTracerSupplier, createEvictionPolicy( config ),
+                createMemorySource( config ) );
+    }
+
+    public EvictionPolicy createEvictionPolicy( Config config )
+    {
+        return EvictionPolicy.valueOf( config.get( pagecache_eviction_policy ) );
+    }
+
+    public MemorySource createMemorySource( Config config )
+    {
+        switch ( config.get( pagecache_huge_pages ) )
+        {
+        case "transparent":
+            return MemorySource.transparentHugePages();
+        case "hugetlbfs":
+            File directory = config.get( pagecache_huge_pages_directory );
+            return MemorySource.hugetlbfs( directory, ( bytes, cause ) -> log.warn(
+                    "Could not map " + bytes + " bytes of huge pages from " + directory + ", so regular memory will " +
+                    "be used instead. Check that " + pagecache_huge_pages_directory.name() + " is a hugetlbfs mount, " +
+                    "and that enough huge pages are reserved through the vm.nr_hugepages sysctl.", cause ) );
+        default:
+            return MemorySource.ALLOCATE;
+        }
     }
 
     public int calculateMaxPages( Config config, int cachePageSize )
@@ -188,7 +218,9 @@ public class ConfiguringPageCacheFactory
         long pageCacheMb = ByteUnit.Byte.toMebiBytes(maxPages * cachePageSize);
         String msg = "Physical mem: " + totalPhysicalMemMb + " MiB," +
                      " Heap size: " + maxVmUsageMb + " MiB," +
-                     " Page cache size: " + pageCacheMb + " MiB.";
+                     " Page cache size: " + pageCacheMb + " MiB," +
+                     " Page cache eviction policy: " + config.get( pagecache_eviction_policy ) + "," +
+                     " Page cache huge pages: " + config.get( pagecache_huge_pages ) + ".";
 
         log.info( msg );
     }
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.pagecache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.logging.Log;
+import org.neo4j.scheduler.JobScheduler;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.scheduler.JobScheduler.Groups.pageCacheIOHelper;
+
+/**
+ * The page cache warmer periodically records which pages are resident in the page cache, and, when started, loads
+ * those pages back in, in the background, so the database gets back up to speed faster after a restart.
+ * <p>
+ * The profile of each mapped file in the store directory is kept in the {@link #PROFILES_DIRECTORY} of the store, at
+ * the same relative path as the file itself, with the {@link #SUFFIX_CACHEPROF} suffix. The profiles are kept apart
+ * from the store files, so that nothing that copies, backs up or dumps the store files mistakes them for store files.
+ * The profile is a gzip compressed bitmap with one bit per file page, where a set bit means that the page was in
+ * memory when the profile was taken. The warmup reads the profiled pages back in file order, which allows the
+ * page cache to turn runs of consecutive pages into large sequential reads.
+ */
+public class PageCacheWarmer extends LifecycleAdapter
+{
+    public static final String PROFILES_DIRECTORY = "profiles";
+    public static final String SUFFIX_CACHEPROF = ".cacheprof";
+    private static final String SUFFIX_TMP = ".tmp";
+
+    private final FileSystemAbstraction fs;
+    private final PageCache pageCache;
+    private final JobScheduler scheduler;
+    private final File storeDir;
+    private final long profilingIntervalMillis;
+    private final Log log;
+    private volatile boolean stopped;
+    private JobScheduler.JobHandle warmupHandle;
+    private JobScheduler.JobHandle profileHandle;
+
+    public PageCacheWarmer( FileSystemAbstraction fs, PageCache pageCache, JobScheduler scheduler, File storeDir,
+            long profilingIntervalMillis, Log log )
+    {
+        this.fs = fs;
+        this.pageCache = pageCache;
+        this.scheduler = scheduler;
+        this.storeDir = storeDir;
+        this.profilingIntervalMillis = profilingIntervalMillis;
+        this.log = log;
+    }
+
+    @Override
+    public synchronized void start() throws Throwable
+    {
+        stopped = false;
+        warmupHandle = scheduler.schedule( pageCacheIOHelper, this::warmupAndStartProfiling );
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        stopped = true;
+        // Taking the monitor waits for any warmup or profiling that is in progress, to notice the stopped flag.
+        synchronized ( this )
+        {
+            if ( warmupHandle != null )
+            {
+                warmupHandle.cancel( false );
+                warmupHandle = null;
+            }
+            if ( profileHandle != null )
+            {
+                profileHandle.cancel( false );
+                profileHandle = null;
+            }
+        }
+    }
+
+    private synchronized void warmupAndStartProfiling()
+    {
+        if ( stopped )
+        {
+            return;
+        }
+        try
+        {
+            reheat();
+        }
+        catch ( Exception e )
+        {
+            log.warn( "Page cache warmup failed.", e );
+        }
+        // Only start profiling once the warmup is done, or the warmup could be cut short by a partial profile.
+        if ( !stopped )
+        {
+            profileHandle = scheduler.scheduleRecurring( pageCacheIOHelper, this::profileQuietly,
+                    profilingIntervalMillis, profilingIntervalMillis, MILLISECONDS );
+        }
+    }
+
+    private void profileQuietly()
+    {
+        try
+        {
+            profile();
+        }
+        catch ( Exception e )
+        {
+            log.debug( "Page cache profiling failed.", e );
+        }
+    }
+
+    /**
+     * Load the profiled pages of all currently mapped files into the page cache.
+     *
+     * @return the number of pages that were loaded.
+     * @throws IOException if the mapped files could not be listed.
+     */
+    public synchronized long reheat() throws IOException
+    {
+        long startMillis = System.currentTimeMillis();
+        long pagesLoaded = 0;
+        for ( PagedFile file : pageCache.listExistingMappings() )
+        {
+            if ( stopped )
+            {
+                log.info( "Page cache warmup was stopped. %s pages loaded.", pagesLoaded );
+                return pagesLoaded;
+            }
+            try
+            {
+                long pagesLoadedInFile = reheat( file );
+                if ( pagesLoadedInFile > 0 )
+                {
+                    log.info( "Page cache warmup loaded %s pages of %s.", pagesLoadedInFile, file.file() );
+                }
+                pagesLoaded += pagesLoadedInFile;
+            }
+            catch ( IOException | IllegalStateException e )
+            {
+                // The file may have been unmapped since we listed it, or its profile may be corrupt.
+                log.debug( "Page cache warmup of " + file.file() + " failed.", e );
+            }
+        }
+        log.info( "Page cache warmup completed. %s pages loaded. Duration: %s ms.",
+                pagesLoaded, System.currentTimeMillis() - startMillis );
+        return pagesLoaded;
+    }
+
+    private long reheat( PagedFile file ) throws IOException
+    {
+        File profileFile = profileFile( file );
+        if ( profileFile == null || !fs.fileExists( profileFile ) )
+        {
+            return 0;
+        }
+        long pagesLoaded = 0;
+        try ( InputStream input = new GZIPInputStream( new BufferedInputStream( fs.openAsInputStream( profileFile ) ) );
+              PageCursor cursor = file.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            long pageId = 0;
+            int bits;
+            while ( !stopped && (bits = input.read()) != -1 )
+            {
+                for ( int i = 0; i < Byte.SIZE; i++, pageId++ )
+                {
+                    if ( (bits & (1 << i)) != 0 )
+                    {
+                        if ( !cursor.next( pageId ) )
+                        {
+                            // The file has shrunk since the profile was taken.
+                            return pagesLoaded;
+                        }
+                        pagesLoaded++;
+                    }
+                }
+            }
+        }
+        return pagesLoaded;
+    }
+
+    /**
+     * Record which pages of the currently mapped files are in memory, replacing any previous profiles.
+     *
+     * @return the number of pages that were found to be in memory.
+     * @throws IOException if the mapped files could not be listed.
+     */
+    public synchronized long profile() throws IOException
+    {
+        long pagesInMemory = 0;
+        for ( PagedFile file : pageCache.listExistingMappings() )
+        {
+            if ( stopped )
+            {
+                break;
+            }
+            try
+            {
+                pagesInMemory += profile( file );
+            }
+            catch ( IOException | IllegalStateException e )
+            {
+                // The file may have been unmapped since we listed it. We'll get it again next time, if it comes back.
+                log.debug( "Page cache profiling of " + file.file() + " failed.", e );
+            }
+        }
+        return pagesInMemory;
+    }
+
+    private long profile( PagedFile file ) throws IOException
+    {
+        File profileFile = profileFile( file );
+        if ( profileFile == null )
+        {
+            return 0;
+        }
+        fs.mkdirs( profileFile.getParentFile() );
+        File tmpProfileFile = new File( profileFile.getParentFile(), profileFile.getName() + SUFFIX_TMP );
+        long pagesInMemory = 0;
+        try ( OutputStream output = new GZIPOutputStream(
+                new BufferedOutputStream( fs.openAsOutputStream( tmpProfileFile, false ) ) );
+              PageCursor cursor = file.io( 0, PF_SHARED_READ_LOCK | PF_NO_FAULT ) )
+        {
+            int bits = 0;
+            int i = 0;
+            while ( cursor.next() )
+            {
+                if ( stopped )
+                {
+                    break;
+                }
+                if ( cursor.getCurrentPageId() != PageCursor.UNBOUND_PAGE_ID )
+                {
+                    bits |= 1 << i;
+                    pagesInMemory++;
+                }
+                if ( ++i == Byte.SIZE )
+                {
+                    output.write( bits );
+                    bits = 0;
+                    i = 0;
+                }
+            }
+            if ( i > 0 )
+            {
+                output.write( bits );
+            }
+        }
+        if ( stopped )
+        {
+            fs.deleteFile( tmpProfileFile );
+            return pagesInMemory;
+        }
+        fs.renameFile( tmpProfileFile, profileFile, REPLACE_EXISTING );
+        return pagesInMemory;
+    }
+
+    /**
+     * @return the profile file of the given mapped file, or {@code null} if the file is not in the store directory.
+     */
+    private File profileFile( PagedFile file ) throws IOException
+    {
+        Path storePath = storeDir.getCanonicalFile().toPath();
+        Path filePath = file.file().getCanonicalFile().toPath();
+        if ( !filePath.startsWith( storePath ) )
+        {
+            return null;
+        }
+        File profilesDir = new File( storeDir, PROFILES_DIRECTORY );
+        return new File( profilesDir, storePath.relativize( filePath ).toString() + SUFFIX_CACHEPROF );
+    }
+}
@@ -24,6 +24,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import org.neo4j.concurrent.WorkSync;
@@ -88,6 +91,7 @@ import org.neo4j.kernel.impl.transaction.command.IndexBatchTransactionApplier;
 import org.neo4j.kernel.impl.transaction.command.IndexUpdatesWork;
 import org.neo4j.kernel.impl.transaction.command.LabelUpdateWork;
 import org.neo4j.kernel.impl.transaction.command.NeoStoreBatchTransactionApplier;
+import org.neo4j.kernel.impl.transaction.command.ParallelRecordApplier;
 import org.neo4j.kernel.impl.transaction.state.IntegrityValidator;
 import org.neo4j.kernel.impl.transaction.state.TransactionRecordState;
 import org.neo4j.kernel.impl.transaction.state.storeview.DynamicIndexStoreView;
@@ -116,6 +120,7 @@ import org.neo4j.storageengine.api.txstate.TxStateVisitor;
 import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
 
 import static org.neo4j.kernel.impl.locking.LockService.NO_LOCK_SERVICE;
+import static org.neo4j.storageengine.api.TransactionApplicationMode.EXTERNAL;
 import static org.neo4j.storageengine.api.TransactionApplicationMode.RECOVERY;
 import static org.neo4j.storageengine.api.TransactionApplicationMode.REVERSE_RECOVERY;
 
@@ -123,6 +128,9 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
 {
     private static final boolean takePropertyReadLocks = FeatureToggles.flag(
             RecordStorageEngine.class, "propertyReadLocks", false );
+    private static final int parallelApplyMinRecords = FeatureToggles.getInteger(
+            RecordStorageEngine.class, "parallelApplyMinRecords", 256 );
+    private static final long PARALLEL_APPLY_SHUTDOWN_TIMEOUT_SECONDS = 60;
 
     private final StoreReadLayer storeLayer;
     private final IndexingService indexingService;
@@ -153,6 +161,8 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final IdController idController;
     private final int denseNodeThreshold;
     private final int recordIdBatchSize;
+    private final ExecutorService parallelApplyExecutor;
+    private final ParallelRecordApplier parallelRecordApplier;
 
     public RecordStorageEngine(
             File storeDir,
@@ -232,6 +242,21 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
 
             denseNodeThreshold = config.get( GraphDatabaseSettings.dense_node_threshold );
             recordIdBatchSize = config.get( GraphDatabaseSettings.record_id_batch_size );
+
+            int parallelApplyWorkers = config.get( GraphDatabaseSettings.parallel_apply_workers );
+            if ( parallelApplyWorkers > 1 )
+            {
+                // The applying thread itself is one of the workers
+                parallelApplyExecutor = Executors.newFixedThreadPool( parallelApplyWorkers - 1,
+                        scheduler.threadFactory( JobScheduler.Groups.transactionApply ) );
+                parallelRecordApplier = new ParallelRecordApplier( parallelApplyExecutor, parallelApplyWorkers,
+                        parallelApplyMinRecords );
+            }
+            else
+            {
+                parallelApplyExecutor = null;
+                parallelRecordApplier = null;
+            }
         }
         catch ( Throwable failure )
         {
@@ -347,7 +372,8 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     {
         ArrayList<BatchTransactionApplier> appliers = new ArrayList<>();
         // Graph store application. The order of the decorated store appliers is irrelevant
-        appliers.add( new NeoStoreBatchTransactionApplier( mode.version(), neoStores, cacheAccess, lockService( mode ) ) );
+        appliers.add( new NeoStoreBatchTransactionApplier( mode.version(), neoStores, cacheAccess, lockService( mode ),
+                parallelRecordApplier( mode ) ) );
         if ( mode.needsHighIdTracking() )
         {
             appliers.add( new HighIdBatchTransactionApplier( neoStores ) );
@@ -378,6 +404,12 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
                 appliers.toArray( new BatchTransactionApplier[appliers.size()] ) );
     }
 
+    private ParallelRecordApplier parallelRecordApplier( TransactionApplicationMode mode )
+    {
+        // Transactions committed on this instance are already applied concurrently with each other
+        return mode == EXTERNAL || mode == RECOVERY ? parallelRecordApplier : null;
+    }
+
     private LockService lockService( TransactionApplicationMode mode )
     {
         return mode == RECOVERY || mode == REVERSE_RECOVERY ? NO_LOCK_SERVICE : lockService;
@@ -446,6 +478,16 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     @Override
     public void shutdown() throws Throwable
     {
+        if ( parallelApplyExecutor != null )
+        {
+            // Applying transactions have stopped by now, but make sure none of their records are still being written
+            parallelApplyExecutor.shutdown();
+            if ( !parallelApplyExecutor.awaitTermination( PARALLEL_APPLY_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS ) )
+            {
+                throw new IllegalStateException( "Records of applied transactions still being written after " +
+                        PARALLEL_APPLY_SHUTDOWN_TIMEOUT_SECONDS + " seconds, refusing to close the stores" );
+            }
+        }
         labelScanStore.shutdown();
         indexingService.shutdown();
         neoStores.close();
@@ -75,6 +75,8 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
     protected final String storeVersion;
     protected final RecordFormat<RECORD> recordFormat;
     private IdGenerator idGenerator;
+    /** Set while recovery keeps a {@link IdGenerator#isCrashSafe() crash safe} id generator up to date. */
+    private boolean recoveringIdGenerator;
     private boolean storeOk = true;
     private Throwable causeOfStoreNotOk;
     private final String typeDescriptor;
@@ -645,6 +647,14 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
      */
     void makeStoreOk()
     {
+        if ( recoveringIdGenerator )
+        {
+            // Recovery already told the id generator about every record it applied, only make sure that the high id
+            // isn't lower than that of the store, e.g. because of ids allocated just before a check point. It must
+            // never be lowered though, ids of the last records may have been freed by recovery and are still free
+            setHighId( Math.max( getHighId(), scanForHighId() ) );
+            recoveringIdGenerator = false;
+        }
         if ( !storeOk )
         {
             rebuildIdGenerator();
@@ -826,6 +836,20 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
         idGeneratorFactory.create( fileName, 0, false );
     }
 
+    /**
+     * Makes the state of the {@link IdGenerator} used by this store durable, if it is crash safe.
+     *
+     * @see IdGenerator#flush()
+     */
+    void flushIdGenerator()
+    {
+        IdGenerator generator = this.idGenerator;
+        if ( generator != null )
+        {
+            generator.flush();
+        }
+    }
+
     /** Closed the {@link IdGenerator} used by this store */
     void closeIdGenerator()
     {
@@ -990,10 +1014,17 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
      * out of date w/ regards to high id, it may very well blow up.
      *
      * This also marks the store as not OK. A call to {@link #makeStoreOk()} is needed once recovery is complete.
+     * <p>
+     * A {@link IdGenerator#isCrashSafe() crash safe} id generator is kept instead, and told about every record
+     * that recovery applies, see {@link #updateRecord(AbstractBaseRecord)}.
      */
     final void deleteIdGenerator()
     {
-        if ( idGenerator != null )
+        if ( idGenerator != null && idGenerator.isCrashSafe() )
+        {
+            recoveringIdGenerator = true;
+        }
+        else if ( idGenerator != null )
         {
             idGenerator.delete();
             idGenerator = null;
@@ -1078,15 +1109,22 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
                 cursor.setOffset( offset );
                 recordFormat.write( record, cursor, recordSize );
                 checkForDecodingErrors( cursor, id, NORMAL ); // We don't free ids if something weird goes wrong
-                if ( !record.inUse() )
+                if ( recoveringIdGenerator )
                 {
-                    freeId( id );
+                    recoverIds( record );
                 }
-                if ( (!record.inUse() || !record.requiresSecondaryUnit()) && record.hasSecondaryUnitId() )
+                else
                 {
-                    // If record was just now deleted, or if the record used a secondary unit, but not anymore
-                    // then free the id of that secondary unit.
-                    freeId( record.getSecondaryUnitId() );
+                    if ( !record.inUse() )
+                    {
+                        freeId( id );
+                    }
+                    if ( (!record.inUse() || !record.requiresSecondaryUnit()) && record.hasSecondaryUnitId() )
+                    {
+                        // If record was just now deleted, or if the record used a secondary unit, but not anymore
+                        // then free the id of that secondary unit.
+                        freeId( record.getSecondaryUnitId() );
+                    }
                 }
             }
         }
@@ -1096,6 +1134,16 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
         }
     }
 
+    private void recoverIds( RECORD record )
+    {
+        IdGenerator generator = this.idGenerator;
+        generator.recoverId( record.getId(), record.inUse() );
+        if ( record.hasSecondaryUnitId() )
+        {
+            generator.recoverId( record.getSecondaryUnitId(), record.inUse() && record.requiresSecondaryUnit() );
+        }
+    }
+
     @Override
     public void prepareForCommit( RECORD record )
     {
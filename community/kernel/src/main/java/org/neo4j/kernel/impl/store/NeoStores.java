@@ -241,6 +241,10 @@ public class NeoStores implements AutoCloseable
             {
                 counts.rotate( getMetaDataStore().getLastCommittedTransactionId() );
             }
+            for ( CommonAbstractStore store : instantiatedRecordStores() )
+            {
+                store.flushIdGenerator();
+            }
             pageCache.flushAndForce( limiter );
         }
         catch ( IOException e )
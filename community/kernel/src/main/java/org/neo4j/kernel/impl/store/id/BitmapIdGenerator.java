@@ -0,0 +1,571 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.impl.store.InvalidIdGeneratorException;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+import org.neo4j.kernel.impl.store.id.validation.IdValidator;
+
+import static org.neo4j.kernel.impl.store.id.IdContainer.CLEAN_GENERATOR;
+import static org.neo4j.kernel.impl.store.id.IdContainer.HEADER_SIZE;
+import static org.neo4j.kernel.impl.store.id.IdContainer.STICKY_GENERATOR;
+
+/**
+ * An {@link IdGenerator} keeping its free ids in an off-heap {@link FreeIdBitmap}, instead of in a
+ * {@link FreeIdKeeper}. Ids are allocated, freed and reused without taking any locks, so that many transactions
+ * can renew their batches of ids, see {@link RenewableBatchIdSequences}, at the same time.
+ * <p>
+ * The id file itself is kept in the same format as that of {@link IdGeneratorImpl}, written on {@link #close()}.
+ * While open, the free ids are instead persisted in a bitmap file next to the id file, on every {@link #flush()}
+ * which happens as part of every check point. After an unclean shutdown this id generator is opened from the
+ * bitmap file, which is as recent as the last check point. Recovery then brings it up to date using
+ * {@link #recoverId(long, boolean)} for every record it applies, so the id file never has to be rebuilt by
+ * scanning the store. Ids that were allocated but never used by a committed transaction before the crash
+ * are not reused, like with the fast id generator rebuild.
+ * <p>
+ * Like {@link IdGeneratorImpl}, ids freed in a session are only reused in the same session if
+ * {@code aggressiveReuse} is set.
+ */
+public class BitmapIdGenerator implements IdGenerator
+{
+    static final String BITMAP_FILE_SUFFIX = ".free";
+
+    // header format: magic(long), highId(long)
+    private static final long MAGIC = 0x4944_4249_544D_4150L; // IDBITMAP
+    private static final int BITMAP_HEADER_SIZE = Long.BYTES + Long.BYTES;
+    private static final int ID_ENTRY_SIZE = Long.BYTES;
+
+    private final FileSystemAbstraction fs;
+    private final File file;
+    private final File bitmapFile;
+    private final long max;
+    private final boolean aggressiveReuse;
+    private final AtomicLong highId = new AtomicLong();
+
+    /** Free ids that can be handed out in this session. */
+    private final FreeIdBitmap reusableIds = new FreeIdBitmap();
+
+    /** Ids freed in this session, which can only be handed out after a restart, unless reuse is aggressive. */
+    private final FreeIdBitmap freedIds = new FreeIdBitmap();
+
+    /** Guards the channels, i.e. flushing and closing. */
+    private final Object channelLock = new Object();
+    private StoreChannel channel;
+    private StoreChannel bitmapChannel;
+    private volatile boolean closed;
+
+    /**
+     * Opens the id generator of the given id file, creating it if it doesn't exist.
+     *
+     * @param file the id file.
+     * @param max the highest possible id to be returned by this id generator.
+     * @param aggressiveReuse whether or not ids freed in this session can be reused in this session.
+     * @param highId a supplier for the high id to be used if the id file had to be created.
+     * @throws InvalidIdGeneratorException if the id file wasn't properly shut down and there is no bitmap file to
+     * open this id generator from, in which case the id file will have to be rebuilt.
+     */
+    public BitmapIdGenerator( FileSystemAbstraction fs, File file, long max, boolean aggressiveReuse,
+            Supplier<Long> highId )
+    {
+        this.fs = fs;
+        this.file = file;
+        this.bitmapFile = bitmapFile( file );
+        this.max = max;
+        this.aggressiveReuse = aggressiveReuse;
+        try
+        {
+            boolean fromBitmap = false;
+            if ( !fs.fileExists( file ) )
+            {
+                IdContainer.createEmptyIdFile( fs, file, 0, false );
+                channel = fs.open( file, "rw" );
+                this.highId.set( highId.get() );
+            }
+            else
+            {
+                channel = fs.open( file, "rw" );
+                fromBitmap = readIdFile();
+            }
+
+            bitmapChannel = fs.open( bitmapFile, "rw" );
+            if ( fromBitmap )
+            {
+                readBitmapFile();
+            }
+            else
+            {
+                // Whatever is in there is stale, write the free ids we just read
+                bitmapChannel.truncate( BITMAP_HEADER_SIZE );
+            }
+            flush();
+            markIdFile( STICKY_GENERATOR );
+        }
+        catch ( IOException e )
+        {
+            closeAfterFailedOpen();
+            throw new UnderlyingStorageException( "Unable to open id file " + file, e );
+        }
+        catch ( RuntimeException e )
+        {
+            closeAfterFailedOpen();
+            throw e;
+        }
+    }
+
+    private void closeAfterFailedOpen()
+    {
+        closed = true;
+        closeChannelsQuietly();
+        reusableIds.close();
+        freedIds.close();
+    }
+
+    static File bitmapFile( File idFile )
+    {
+        return new File( idFile.getPath() + BITMAP_FILE_SUFFIX );
+    }
+
+    /**
+     * @return {@code true} if the id file wasn't properly shut down, so that the free ids have to be read from the
+     * bitmap file.
+     */
+    private boolean readIdFile() throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+        int read = channel.read( header, 0 );
+        if ( read != HEADER_SIZE )
+        {
+            throw new InvalidIdGeneratorException( "Unable to read header of " + file + ", bytes read: " + read );
+        }
+        header.flip();
+        byte status = header.get();
+        if ( status != CLEAN_GENERATOR )
+        {
+            if ( !fs.fileExists( bitmapFile ) )
+            {
+                throw new InvalidIdGeneratorException( "Id file not properly shutdown [ " + file +
+                        " ], and there's no free id bitmap to open it from, delete this id file and build a new one" );
+            }
+            return true;
+        }
+
+        long readHighId = header.getLong();
+        highId.set( readHighId );
+        ByteBuffer buffer = ByteBuffer.allocate( 1024 * ID_ENTRY_SIZE );
+        long position = HEADER_SIZE;
+        long size = channel.size();
+        while ( position < size )
+        {
+            buffer.clear();
+            channel.read( buffer, position );
+            buffer.flip();
+            while ( buffer.remaining() >= ID_ENTRY_SIZE )
+            {
+                long id = buffer.getLong();
+                if ( id >= 0 && id < readHighId && !IdValidator.isReservedId( id ) )
+                {
+                    reusableIds.free( id );
+                }
+                position += ID_ENTRY_SIZE;
+            }
+            if ( buffer.limit() < ID_ENTRY_SIZE )
+            {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void readBitmapFile() throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate( BITMAP_HEADER_SIZE );
+        int read = bitmapChannel.read( header, 0 );
+        header.flip();
+        if ( read != BITMAP_HEADER_SIZE || header.getLong() != MAGIC )
+        {
+            throw new InvalidIdGeneratorException( "Id file not properly shutdown [ " + file +
+                    " ], and its free id bitmap is damaged, delete this id file and build a new one" );
+        }
+        long readHighId = header.getLong();
+        highId.set( readHighId );
+
+        ByteBuffer buffer = ByteBuffer.allocate( FreeIdBitmap.CHUNK_BYTES );
+        long[] words = new long[FreeIdBitmap.CHUNK_WORDS];
+        long size = bitmapChannel.size();
+        for ( int chunk = 0; chunkPosition( chunk ) < size && firstIdOf( chunk, 0 ) < readHighId; chunk++ )
+        {
+            buffer.clear();
+            while ( buffer.hasRemaining() && bitmapChannel.read( buffer, chunkPosition( chunk ) + buffer.position() ) > 0 )
+            {
+                // Keep reading until the chunk is full or the file ends
+            }
+            while ( buffer.hasRemaining() )
+            {
+                buffer.put( (byte) 0 );
+            }
+            buffer.flip();
+            buffer.asLongBuffer().get( words );
+            clearIdsFrom( readHighId, chunk, words );
+            reusableIds.loadChunk( chunk, words );
+        }
+    }
+
+    /**
+     * Ids at or above the high id may have been freed after the high id was read by the last {@link #flush()}.
+     * They will be handed out as new ids anyway, so they must not also be handed out as free ids.
+     */
+    private static void clearIdsFrom( long highId, int chunk, long[] words )
+    {
+        for ( int i = 0; i < words.length; i++ )
+        {
+            long firstId = firstIdOf( chunk, i );
+            if ( firstId >= highId )
+            {
+                words[i] = 0;
+            }
+            else if ( highId - firstId < Long.SIZE )
+            {
+                words[i] &= (1L << (highId - firstId)) - 1;
+            }
+        }
+    }
+
+    private static long firstIdOf( int chunk, int wordInChunk )
+    {
+        return ((long) chunk << FreeIdBitmap.CHUNK_SHIFT) + (long) wordInChunk * Long.SIZE;
+    }
+
+    private static long chunkPosition( int chunk )
+    {
+        return BITMAP_HEADER_SIZE + (long) chunk * FreeIdBitmap.CHUNK_BYTES;
+    }
+
+    private void markIdFile( byte status ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( Byte.BYTES );
+        buffer.put( status ).flip();
+        channel.writeAll( buffer, 0 );
+        channel.force( false );
+    }
+
+    @Override
+    public long nextId()
+    {
+        assertStillOpen();
+        if ( reusableIds.freeIds() > 0 )
+        {
+            long[] reused = new long[1];
+            if ( reusableIds.claim( reused, 0, 1 ) == 1 )
+            {
+                return reused[0];
+            }
+        }
+
+        long id;
+        do
+        {
+            id = highId.getAndIncrement();
+        }
+        while ( IdValidator.isReservedId( id ) );
+        IdValidator.assertValidId( id, max );
+        return id;
+    }
+
+    @Override
+    public IdRange nextIdBatch( int size )
+    {
+        assertStillOpen();
+        long[] reused = new long[size];
+        int count = reusableIds.claim( reused, 0, size );
+        if ( count < size )
+        {
+            reused = Arrays.copyOf( reused, count );
+        }
+
+        int sizeLeftForRange = size - count;
+        long start = highId.getAndAdd( sizeLeftForRange );
+        IdValidator.assertIdWithinCapacity( start + sizeLeftForRange, max );
+        return new IdRange( reused, start, sizeLeftForRange );
+    }
+
+    @Override
+    public void setHighId( long id )
+    {
+        IdValidator.assertIdWithinCapacity( id, max );
+        highId.set( id );
+    }
+
+    @Override
+    public long getHighId()
+    {
+        return highId.get();
+    }
+
+    @Override
+    public long getHighestPossibleIdInUse()
+    {
+        return highId.get() - 1;
+    }
+
+    @Override
+    public void freeId( long id )
+    {
+        assertStillOpen();
+        if ( IdValidator.isReservedId( id ) )
+        {
+            return;
+        }
+
+        long currentHighId = highId.get();
+        if ( id < 0 || id >= currentHighId )
+        {
+            throw new IllegalArgumentException( "Illegal id[" + id + "], highId is " + currentHighId );
+        }
+        (aggressiveReuse ? reusableIds : freedIds).free( id );
+    }
+
+    @Override
+    public boolean isCrashSafe()
+    {
+        return true;
+    }
+
+    @Override
+    public void recoverId( long id, boolean inUse )
+    {
+        assertStillOpen();
+        if ( IdValidator.isReservedId( id ) )
+        {
+            return;
+        }
+
+        highId.accumulateAndGet( id + 1, Math::max );
+        if ( inUse )
+        {
+            reusableIds.use( id );
+            freedIds.use( id );
+        }
+        else
+        {
+            (aggressiveReuse ? reusableIds : freedIds).free( id );
+        }
+    }
+
+    /**
+     * Writes the changed parts of the free id bitmaps, and the high id, to the bitmap file and forces it.
+     * The high id is read first, so that the written high id is at least as high as any id allocated before
+     * this call, even though more ids may be allocated while this call is writing.
+     */
+    @Override
+    public void flush()
+    {
+        synchronized ( channelLock )
+        {
+            if ( closed )
+            {
+                return;
+            }
+            try
+            {
+                long highIdToWrite = highId.get();
+                int chunks = Math.max( reusableIds.chunks(), freedIds.chunks() );
+                long[] words = new long[FreeIdBitmap.CHUNK_WORDS];
+                ByteBuffer buffer = ByteBuffer.allocate( FreeIdBitmap.CHUNK_BYTES );
+                for ( int chunk = 0; chunk < chunks; chunk++ )
+                {
+                    // Not short-circuiting, both flags need to be cleared
+                    if ( reusableIds.clearDirty( chunk ) | freedIds.clearDirty( chunk ) )
+                    {
+                        Arrays.fill( words, 0 );
+                        reusableIds.copyChunk( chunk, words );
+                        freedIds.copyChunk( chunk, words );
+                        buffer.clear();
+                        buffer.asLongBuffer().put( words );
+                        bitmapChannel.writeAll( buffer, chunkPosition( chunk ) );
+                    }
+                }
+
+                ByteBuffer header = ByteBuffer.allocate( BITMAP_HEADER_SIZE );
+                header.putLong( MAGIC ).putLong( highIdToWrite ).flip();
+                bitmapChannel.writeAll( header, 0 );
+                bitmapChannel.force( false );
+            }
+            catch ( IOException e )
+            {
+                throw new UnderlyingStorageException( "Unable to flush free id bitmap " + bitmapFile, e );
+            }
+        }
+    }
+
+    /**
+     * Writes all free ids to the id file, in the format of {@link IdGeneratorImpl}, marks it as clean and deletes
+     * the bitmap file.
+     */
+    @Override
+    public void close()
+    {
+        synchronized ( channelLock )
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+            try
+            {
+                channel.truncate( HEADER_SIZE );
+                writeFreeIds();
+                ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+                header.put( STICKY_GENERATOR ).putLong( highId.get() ).flip();
+                channel.writeAll( header, 0 );
+                channel.force( false );
+                markIdFile( CLEAN_GENERATOR );
+                channel.close();
+                bitmapChannel.close();
+                fs.deleteFile( bitmapFile );
+            }
+            catch ( IOException e )
+            {
+                throw new UnderlyingStorageException( "Unable to close id file " + file, e );
+            }
+            finally
+            {
+                reusableIds.close();
+                freedIds.close();
+            }
+        }
+    }
+
+    private void writeFreeIds() throws IOException
+    {
+        int chunks = Math.max( reusableIds.chunks(), freedIds.chunks() );
+        long[] words = new long[FreeIdBitmap.CHUNK_WORDS];
+        ByteBuffer buffer = ByteBuffer.allocate( 1024 * ID_ENTRY_SIZE );
+        long position = HEADER_SIZE;
+        for ( int chunk = 0; chunk < chunks; chunk++ )
+        {
+            Arrays.fill( words, 0 );
+            reusableIds.copyChunk( chunk, words );
+            freedIds.copyChunk( chunk, words );
+            for ( int i = 0; i < words.length; i++ )
+            {
+                long word = words[i];
+                long firstId = firstIdOf( chunk, i );
+                while ( word != 0 )
+                {
+                    buffer.putLong( firstId + Long.numberOfTrailingZeros( word ) );
+                    word &= word - 1;
+                    if ( !buffer.hasRemaining() )
+                    {
+                        position += writeBuffer( buffer, position );
+                    }
+                }
+            }
+        }
+        writeBuffer( buffer, position );
+    }
+
+    private int writeBuffer( ByteBuffer buffer, long position ) throws IOException
+    {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        channel.writeAll( buffer, position );
+        buffer.clear();
+        return bytes;
+    }
+
+    @Override
+    public long getNumberOfIdsInUse()
+    {
+        return highId.get() - getDefragCount();
+    }
+
+    @Override
+    public long getDefragCount()
+    {
+        return reusableIds.freeIds() + freedIds.freeIds();
+    }
+
+    /**
+     * Closes this id generator without marking the id file as clean, and deletes both the id file and the
+     * bitmap file.
+     */
+    @Override
+    public void delete()
+    {
+        synchronized ( channelLock )
+        {
+            if ( !closed )
+            {
+                closed = true;
+                closeChannelsQuietly();
+                reusableIds.close();
+                freedIds.close();
+            }
+            fs.deleteFile( bitmapFile );
+            if ( !fs.deleteFile( file ) )
+            {
+                throw new UnderlyingStorageException( "Unable to delete id file " + file );
+            }
+        }
+    }
+
+    private void closeChannelsQuietly()
+    {
+        for ( StoreChannel storeChannel : new StoreChannel[]{channel, bitmapChannel} )
+        {
+            if ( storeChannel != null )
+            {
+                try
+                {
+                    storeChannel.close();
+                }
+                catch ( IOException e )
+                {
+                    // We're failing or deleting this id generator anyway
+                }
+            }
+        }
+    }
+
+    private void assertStillOpen()
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( "Closed id file " + file );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BitmapIdGenerator[file=" + file + ", max=" + max + ", highId=" + highId.get() + ", defragCount=" +
+                getDefragCount() + ", aggressiveReuse=" + aggressiveReuse + ", closed=" + closed + "]";
+    }
+}
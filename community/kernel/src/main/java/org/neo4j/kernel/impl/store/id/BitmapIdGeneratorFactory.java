@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import java.io.File;
+import java.util.function.Supplier;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.impl.store.id.configuration.IdTypeConfigurationProvider;
+
+/**
+ * Creates {@link BitmapIdGenerator crash safe id generators}, which keep their free ids in off-heap bitmaps.
+ * The grab size of id types is not used, since all free ids are kept in memory.
+ */
+public class BitmapIdGeneratorFactory extends DefaultIdGeneratorFactory
+{
+    private final FileSystemAbstraction fs;
+
+    public BitmapIdGeneratorFactory( FileSystemAbstraction fs, IdTypeConfigurationProvider idTypeConfigurationProvider )
+    {
+        super( fs, idTypeConfigurationProvider );
+        this.fs = fs;
+    }
+
+    @Override
+    protected IdGenerator instantiate( FileSystemAbstraction fs, File fileName, int grabSize, long maxValue,
+            boolean aggressiveReuse, Supplier<Long> highId )
+    {
+        return new BitmapIdGenerator( fs, fileName, maxValue, aggressiveReuse, highId );
+    }
+
+    @Override
+    public void create( File fileName, long highId, boolean throwIfFileExists )
+    {
+        super.create( fileName, highId, throwIfFileExists );
+        // A bitmap file left from a previous id file would otherwise be ignored, but there's no use keeping it
+        fs.deleteFile( BitmapIdGenerator.bitmapFile( fileName ) );
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * An off-heap bitmap of free ids, one bit per id, where a set bit means that the id is free.
+ * <p>
+ * Memory is allocated in chunks of {@link #CHUNK_IDS} ids, and only for chunks that have had ids freed in them,
+ * so a store with few deleted records only needs a few chunks, regardless of its size. Freeing, using and
+ * claiming ids are lock-free, using CAS on the words of the bitmap. Only allocating a new chunk takes a lock.
+ * <p>
+ * Every chunk has a dirty flag, which is set whenever the chunk changes and cleared by whoever persists it,
+ * see {@link #clearDirty(int)} and {@link #copyChunk(int, long[])}.
+ * <p>
+ * Every access to chunk memory counts as a user of this bitmap. {@link #close()} prevents new users and waits
+ * for the current ones before freeing the memory, so that a concurrent, lock-free, access never reads or writes
+ * memory that has been freed. It fails instead.
+ * <p>
+ * This class is thread-safe.
+ */
+class FreeIdBitmap implements AutoCloseable
+{
+    static final int CHUNK_SHIFT = 20;
+    static final int CHUNK_IDS = 1 << CHUNK_SHIFT;
+    static final int CHUNK_WORDS = CHUNK_IDS / Long.SIZE;
+    static final int CHUNK_BYTES = CHUNK_WORDS * Long.BYTES;
+
+    /** Set in {@link #users} when closed. */
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private final AtomicLong freeIds = new AtomicLong();
+
+    /** Word, counted over all chunks, to start looking for free ids from when claiming. */
+    private final AtomicLong claimCursor = new AtomicLong();
+
+    /** Number of threads currently accessing chunk memory, with {@link #CLOSED} set once closed. */
+    private final AtomicLong users = new AtomicLong();
+
+    /**
+     * Marks the given id as free.
+     *
+     * @return {@code true} if the id was marked as free, {@code false} if it already was free.
+     */
+    boolean free( long id )
+    {
+        enter();
+        try
+        {
+            Chunk chunk = chunkForWriting( chunkIndex( id ) );
+            long address = chunk.wordAddress( wordInChunk( id ) );
+            long mask = 1L << id;
+            long word;
+            do
+            {
+                word = UnsafeUtil.getLongVolatile( address );
+                if ( (word & mask) != 0 )
+                {
+                    return false;
+                }
+            }
+            while ( !UnsafeUtil.compareAndSwapLong( null, address, word, word | mask ) );
+            chunk.free.incrementAndGet();
+            chunk.dirty = true;
+            freeIds.incrementAndGet();
+            return true;
+        }
+        finally
+        {
+            exit();
+        }
+    }
+
+    /**
+     * Marks the given id as used.
+     *
+     * @return {@code true} if the id was free before this call, otherwise {@code false}.
+     */
+    boolean use( long id )
+    {
+        enter();
+        try
+        {
+            Chunk chunk = chunk( chunkIndex( id ) );
+            if ( chunk == null )
+            {
+                return false;
+            }
+            long address = chunk.wordAddress( wordInChunk( id ) );
+            long mask = 1L << id;
+            long word;
+            do
+            {
+                word = UnsafeUtil.getLongVolatile( address );
+                if ( (word & mask) == 0 )
+                {
+                    return false;
+                }
+            }
+            while ( !UnsafeUtil.compareAndSwapLong( null, address, word, word & ~mask ) );
+            chunk.free.decrementAndGet();
+            chunk.dirty = true;
+            freeIds.decrementAndGet();
+            return true;
+        }
+        finally
+        {
+            exit();
+        }
+    }
+
+    boolean isFree( long id )
+    {
+        enter();
+        try
+        {
+            Chunk chunk = chunk( chunkIndex( id ) );
+            return chunk != null &&
+                   (UnsafeUtil.getLongVolatile( chunk.wordAddress( wordInChunk( id ) ) ) & (1L << id)) != 0;
+        }
+        finally
+        {
+            exit();
+        }
+    }
+
+    /**
+     * Claims up to {@code max} free ids, marking them as used. Concurrent claims never get the same ids.
+     *
+     * @param into array to put the claimed ids in.
+     * @param offset where in {@code into} to put the first claimed id.
+     * @param max maximum number of ids to claim.
+     * @return the number of claimed ids, which is less than {@code max} if there were not enough free ids.
+     */
+    int claim( long[] into, int offset, int max )
+    {
+        enter();
+        try
+        {
+            return doClaim( into, offset, max );
+        }
+        finally
+        {
+            exit();
+        }
+    }
+
+    private int doClaim( long[] into, int offset, int max )
+    {
+        int claimed = 0;
+        Chunk[] chunks = this.chunks;
+        long totalWords = (long) chunks.length * CHUNK_WORDS;
+        if ( totalWords == 0 )
+        {
+            return 0;
+        }
+        long start = claimCursor.get() % totalWords;
+        long word = start;
+        long scanned = 0;
+        while ( claimed < max && freeIds.get() > 0 && scanned < totalWords )
+        {
+            int chunkIndex = (int) (word / CHUNK_WORDS);
+            Chunk chunk = chunks[chunkIndex];
+            if ( chunk == null || chunk.free.get() == 0 )
+            {
+                // Skip the rest of this chunk
+                long next = (chunkIndex + 1L) * CHUNK_WORDS;
+                scanned += next - word;
+                word = next == totalWords ? 0 : next;
+                continue;
+            }
+
+            int wordInChunk = (int) (word % CHUNK_WORDS);
+            int claimedInWord = claimInWord( chunk, chunkIndex, wordInChunk, into, offset + claimed, max - claimed );
+            claimed += claimedInWord;
+            if ( claimed < max )
+            {
+                scanned++;
+                word = word + 1 == totalWords ? 0 : word + 1;
+            }
+        }
+        claimCursor.set( word );
+        return claimed;
+    }
+
+    private int claimInWord( Chunk chunk, int chunkIndex, int wordInChunk, long[] into, int offset, int max )
+    {
+        long address = chunk.wordAddress( wordInChunk );
+        long word;
+        long taken;
+        do
+        {
+            word = UnsafeUtil.getLongVolatile( address );
+            if ( word == 0 )
+            {
+                return 0;
+            }
+            taken = 0;
+            long remaining = word;
+            for ( int i = 0; i < max && remaining != 0; i++ )
+            {
+                long lowest = remaining & -remaining;
+                taken |= lowest;
+                remaining &= ~lowest;
+            }
+        }
+        while ( !UnsafeUtil.compareAndSwapLong( null, address, word, word & ~taken ) );
+
+        int count = Long.bitCount( taken );
+        chunk.free.addAndGet( -count );
+        chunk.dirty = true;
+        freeIds.addAndGet( -count );
+        long firstIdInWord = ((long) chunkIndex << CHUNK_SHIFT) + (long) wordInChunk * Long.SIZE;
+        int i = 0;
+        while ( taken != 0 )
+        {
+            into[offset + i++] = firstIdInWord + Long.numberOfTrailingZeros( taken );
+            taken &= taken - 1;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of free ids in this bitmap.
+     */
+    long freeIds()
+    {
+        return freeIds.get();
+    }
+
+    /**
+     * @return number of chunks in this bitmap, including not allocated ones.
+     */
+    int chunks()
+    {
+        return chunks.length;
+    }
+
+    /**
+     * Clears the dirty flag of the given chunk. A chunk that is written out after clearing its flag, as opposed to
+     * before, can never miss any changes.
+     *
+     * @return whether or not the chunk was dirty.
+     */
+    boolean clearDirty( int chunkIndex )
+    {
+        Chunk chunk = chunk( chunkIndex );
+        if ( chunk == null || !chunk.dirty )
+        {
+            return false;
+        }
+        chunk.dirty = false;
+        return true;
+    }
+
+    /**
+     * Bitwise ORs the words of the given chunk into {@code words}, which is left as is if the chunk isn't allocated.
+     */
+    void copyChunk( int chunkIndex, long[] words )
+    {
+        enter();
+        try
+        {
+            Chunk chunk = chunk( chunkIndex );
+            if ( chunk != null )
+            {
+                for ( int i = 0; i < CHUNK_WORDS; i++ )
+                {
+                    words[i] |= UnsafeUtil.getLongVolatile( chunk.wordAddress( i ) );
+                }
+            }
+        }
+        finally
+        {
+            exit();
+        }
+    }
+
+    /**
+     * Marks the ids of a whole chunk as free, as read from {@code words}. Used when loading a persisted bitmap.
+     */
+    void loadChunk( int chunkIndex, long[] words )
+    {
+        enter();
+        try
+        {
+            doLoadChunk( chunkIndex, words );
+        }
+        finally
+        {
+            exit();
+        }
+    }
+
+    private void doLoadChunk( int chunkIndex, long[] words )
+    {
+        Chunk chunk = null;
+        for ( int i = 0; i < CHUNK_WORDS; i++ )
+        {
+            long word = words[i];
+            if ( word != 0 )
+            {
+                if ( chunk == null )
+                {
+                    chunk = chunkForWriting( chunkIndex );
+                }
+                long address = chunk.wordAddress( i );
+                long current;
+                long added;
+                do
+                {
+                    current = UnsafeUtil.getLongVolatile( address );
+                    added = word & ~current;
+                }
+                while ( !UnsafeUtil.compareAndSwapLong( null, address, current, current | word ) );
+                int count = Long.bitCount( added );
+                chunk.free.addAndGet( count );
+                freeIds.addAndGet( count );
+            }
+        }
+        if ( chunk != null )
+        {
+            chunk.dirty = true;
+        }
+    }
+
+    private Chunk chunk( int chunkIndex )
+    {
+        Chunk[] chunks = this.chunks;
+        return chunkIndex < chunks.length ? chunks[chunkIndex] : null;
+    }
+
+    private Chunk chunkForWriting( int chunkIndex )
+    {
+        Chunk chunk = chunk( chunkIndex );
+        return chunk != null ? chunk : allocateChunk( chunkIndex );
+    }
+
+    private synchronized Chunk allocateChunk( int chunkIndex )
+    {
+        Chunk[] chunks = this.chunks;
+        if ( chunkIndex >= chunks.length )
+        {
+            Chunk[] grown = new Chunk[Math.max( chunkIndex + 1, chunks.length * 2 )];
+            System.arraycopy( chunks, 0, grown, 0, chunks.length );
+            chunks = grown;
+        }
+        if ( chunks[chunkIndex] == null )
+        {
+            chunks[chunkIndex] = new Chunk();
+        }
+        this.chunks = chunks;
+        return chunks[chunkIndex];
+    }
+
+    private static int chunkIndex( long id )
+    {
+        return Math.toIntExact( id >>> CHUNK_SHIFT );
+    }
+
+    private static int wordInChunk( long id )
+    {
+        return (int) ((id & (CHUNK_IDS - 1)) >>> 6);
+    }
+
+    private void enter()
+    {
+        if ( users.incrementAndGet() < 0 )
+        {
+            users.decrementAndGet();
+            throw new IllegalStateException( "Free id bitmap is closed" );
+        }
+    }
+
+    private void exit()
+    {
+        users.decrementAndGet();
+    }
+
+    /**
+     * Frees the memory of all chunks, after waiting for threads currently accessing it. Any access after this call
+     * fails with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close()
+    {
+        long current;
+        do
+        {
+            current = users.get();
+            if ( current < 0 )
+            {
+                return;
+            }
+        }
+        while ( !users.compareAndSet( current, current | CLOSED ) );
+
+        while ( users.get() != CLOSED )
+        {
+            LockSupport.parkNanos( 10_000 );
+        }
+        Chunk[] chunks = this.chunks;
+        this.chunks = new Chunk[0];
+        for ( Chunk chunk : chunks )
+        {
+            if ( chunk != null )
+            {
+                UnsafeUtil.free( chunk.address );
+            }
+        }
+    }
+
+    private static class Chunk
+    {
+        private final long address;
+        private final AtomicInteger free = new AtomicInteger();
+        private volatile boolean dirty;
+
+        Chunk()
+        {
+            address = UnsafeUtil.allocateMemory( CHUNK_BYTES );
+            UnsafeUtil.setMemory( address, CHUNK_BYTES, (byte) 0 );
+        }
+
+        long wordAddress( int wordInChunk )
+        {
+            return address + (long) wordInChunk * Long.BYTES;
+        }
+    }
+}
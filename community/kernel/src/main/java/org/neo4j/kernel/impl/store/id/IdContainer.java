@@ -46,8 +46,8 @@ public class IdContainer
 
     // if sticky the id generator wasn't closed properly so it has to be
     // rebuilt (go through the node, relationship, property, rel type etc files)
-    private static final byte CLEAN_GENERATOR = (byte) 0;
-    private static final byte STICKY_GENERATOR = (byte) 1;
+    static final byte CLEAN_GENERATOR = (byte) 0;
+    static final byte STICKY_GENERATOR = (byte) 1;
 
     private final File file;
     private final FileSystemAbstraction fs;
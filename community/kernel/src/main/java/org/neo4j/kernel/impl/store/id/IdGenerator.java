@@ -47,6 +47,42 @@ public interface IdGenerator extends IdSequence, Closeable
      */
     void delete();
 
+    /**
+     * @return whether or not this id generator can be opened after an unclean shutdown, as of the last
+     * {@link #flush()}, and brought up to date by recovery using {@link #recoverId(long, boolean)}. Id generators
+     * that are not crash safe are instead {@link #delete() deleted} before recovery and rebuilt after it.
+     */
+    default boolean isCrashSafe()
+    {
+        return false;
+    }
+
+    /**
+     * Called by recovery for every record it applies, if this id generator {@link #isCrashSafe() is crash safe}.
+     * Unlike {@link #freeId(long)} the id is marked as free directly, since no transaction can see it yet.
+     * <p>
+     * By default only the high id is kept up to date. Ids of records that are not in use are not freed, since an id
+     * generator that isn't crash safe can't tell whether they already are, and is rebuilt after recovery anyway.
+     *
+     * @param id id of the record.
+     * @param inUse whether the record is in use or not after it was applied.
+     */
+    default void recoverId( long id, boolean inUse )
+    {
+        if ( id >= getHighId() )
+        {
+            setHighId( id + 1 );
+        }
+    }
+
+    /**
+     * Makes the state of this id generator durable, if it {@link #isCrashSafe() is crash safe}. Called as part
+     * of every check point.
+     */
+    default void flush()
+    {
+    }
+
     class Delegate implements IdGenerator
     {
         private final IdGenerator delegate;
@@ -115,5 +151,23 @@ public interface IdGenerator extends IdSequence, Closeable
         {
             delegate.delete();
         }
+
+        @Override
+        public boolean isCrashSafe()
+        {
+            return delegate.isCrashSafe();
+        }
+
+        @Override
+        public void recoverId( long id, boolean inUse )
+        {
+            delegate.recoverId( id, inUse );
+        }
+
+        @Override
+        public void flush()
+        {
+            delegate.flush();
+        }
     }
 }
@@ -48,4 +48,6 @@ public interface TransactionCounters
     long getNumberOfRolledBackReadTransactions();
 
     long getNumberOfRolledBackWriteTransactions();
+
+    long getPeakTransactionStateHeapUsage();
 }
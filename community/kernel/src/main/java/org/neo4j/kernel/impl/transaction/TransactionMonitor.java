@@ -33,4 +33,9 @@ public interface TransactionMonitor
     void transactionTerminated( boolean writeTx );
 
     void upgradeToWriteTransaction();
+
+    /**
+     * Called when a transaction which had transaction state finishes, with the estimated heap usage of that state.
+     */
+    void transactionStateHeapUsage( long estimatedBytes );
 }
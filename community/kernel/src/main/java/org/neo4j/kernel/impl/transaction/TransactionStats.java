@@ -33,6 +33,7 @@ public class TransactionStats implements TransactionMonitor, TransactionCounters
     private final AtomicLong terminatedReadTransactionCount = new AtomicLong();
     private final AtomicLong terminatedWriteTransactionCount = new AtomicLong();
     private volatile long peakTransactionCount;
+    private volatile long peakTransactionStateHeapUsage;
 
     @Override
     public void transactionStarted()
@@ -72,6 +73,12 @@ public class TransactionStats implements TransactionMonitor, TransactionCounters
         assert writeCount > 0;
     }
 
+    @Override
+    public void transactionStateHeapUsage( long estimatedBytes )
+    {
+        peakTransactionStateHeapUsage = Math.max( peakTransactionStateHeapUsage, estimatedBytes );
+    }
+
     @Override
     public long getPeakConcurrentNumberOfTransactions()
     {
@@ -156,6 +163,12 @@ public class TransactionStats implements TransactionMonitor, TransactionCounters
         return rolledBackWriteTransactionCount.get();
     }
 
+    @Override
+    public long getPeakTransactionStateHeapUsage()
+    {
+        return peakTransactionStateHeapUsage;
+    }
+
     private void incrementCounter( AtomicLong readCount, AtomicLong writeCount, boolean write )
     {
         long count = write ? writeCount.incrementAndGet() : readCount.incrementAndGet();
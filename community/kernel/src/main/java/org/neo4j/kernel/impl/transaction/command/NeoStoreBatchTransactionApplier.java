@@ -43,6 +43,7 @@ public class NeoStoreBatchTransactionApplier extends BatchTransactionApplier.Ada
     // Ideally we don't want any cache access in here, but it is how it is. At least we try to minimize use of it
     private final CacheAccessBackDoor cacheAccess;
     private final LockService lockService;
+    private final ParallelRecordApplier parallelRecordApplier;
 
     public NeoStoreBatchTransactionApplier( NeoStores store, CacheAccessBackDoor cacheAccess, LockService lockService )
     {
@@ -51,6 +52,17 @@ public class NeoStoreBatchTransactionApplier extends BatchTransactionApplier.Ada
 
     public NeoStoreBatchTransactionApplier( Version version, NeoStores store, CacheAccessBackDoor cacheAccess, LockService lockService )
     {
+        this( version, store, cacheAccess, lockService, null );
+    }
+
+    /**
+     * @param parallelRecordApplier if not {@code null} the records of each transaction are written in parallel
+     * when the transaction has been visited.
+     */
+    public NeoStoreBatchTransactionApplier( Version version, NeoStores store, CacheAccessBackDoor cacheAccess,
+            LockService lockService, ParallelRecordApplier parallelRecordApplier )
+    {
+        this.parallelRecordApplier = parallelRecordApplier;
         this.version = version;
         this.neoStores = store;
         this.cacheAccess = cacheAccess;
@@ -66,6 +78,9 @@ public class NeoStoreBatchTransactionApplier extends BatchTransactionApplier.Ada
     @Override
     public TransactionApplier startTx( CommandsToApply transaction, LockGroup lockGroup ) throws IOException
     {
-        return new NeoStoreTransactionApplier( version, neoStores, cacheAccess, lockService, transaction.transactionId(), lockGroup );
+        ParallelRecordApplier.RecordUpdates recordUpdates =
+                parallelRecordApplier != null ? parallelRecordApplier.newTransaction() : null;
+        return new NeoStoreTransactionApplier( version, neoStores, cacheAccess, lockService,
+                transaction.transactionId(), lockGroup, recordUpdates );
     }
 }
@@ -50,10 +50,25 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     private final NeoStores neoStores;
     private final CacheAccessBackDoor cacheAccess;
     private final LockService lockService;
+    private final ParallelRecordApplier.RecordUpdates recordUpdates;
 
     public NeoStoreTransactionApplier( Version version, NeoStores neoStores, CacheAccessBackDoor cacheAccess, LockService lockService,
             long transactionId, LockGroup lockGroup )
     {
+        this( version, neoStores, cacheAccess, lockService, transactionId, lockGroup, null );
+    }
+
+    /**
+     * @param recordUpdates if not {@code null} node, relationship, property and relationship group records are
+     * gathered and written in parallel by it when this applier is closed, otherwise each record is written as its
+     * command is visited. Token and schema records are always written as their commands are visited, since other
+     * appliers, like cache invalidation, read them back right after.
+     */
+    public NeoStoreTransactionApplier( Version version, NeoStores neoStores, CacheAccessBackDoor cacheAccess,
+            LockService lockService, long transactionId, LockGroup lockGroup,
+            ParallelRecordApplier.RecordUpdates recordUpdates )
+    {
+        this.recordUpdates = recordUpdates;
         this.version = version;
         this.lockGroup = lockGroup;
         this.transactionId = transactionId;
@@ -65,7 +80,18 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     @Override
     public void close() throws Exception
     {
-        lockGroup.close();
+        try
+        {
+            if ( recordUpdates != null )
+            {
+                // Written while still holding the locks of this transaction, for visibility
+                recordUpdates.apply();
+            }
+        }
+        finally
+        {
+            lockGroup.close();
+        }
     }
 
     @Override
@@ -115,21 +141,21 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
     @Override
     public boolean visitRelationshipTypeTokenCommand( Command.RelationshipTypeTokenCommand command ) throws IOException
     {
-        updateStore( neoStores.getRelationshipTypeTokenStore(), command );
+        neoStores.getRelationshipTypeTokenStore().updateRecord( version.select( command ) );
         return false;
     }
 
     @Override
     public boolean visitLabelTokenCommand( Command.LabelTokenCommand command ) throws IOException
     {
-        updateStore( neoStores.getLabelTokenStore(), command );
+        neoStores.getLabelTokenStore().updateRecord( version.select( command ) );
         return false;
     }
 
     @Override
     public boolean visitPropertyKeyTokenCommand( Command.PropertyKeyTokenCommand command ) throws IOException
     {
-        updateStore( neoStores.getPropertyKeyTokenStore(), command );
+        neoStores.getPropertyKeyTokenStore().updateRecord( version.select( command ) );
         return false;
     }
 
@@ -187,6 +213,13 @@ public class NeoStoreTransactionApplier extends TransactionApplier.Adapter
 
     private <RECORD extends AbstractBaseRecord> void updateStore( RecordStore<RECORD> store, BaseCommand<RECORD> command )
     {
-        store.updateRecord( version.select( command ) );
+        if ( recordUpdates != null )
+        {
+            recordUpdates.add( store, version.select( command ) );
+        }
+        else
+        {
+            store.updateRecord( version.select( command ) );
+        }
     }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.neo4j.helpers.Exceptions;
+import org.neo4j.kernel.impl.store.RecordStore;
+import org.neo4j.kernel.impl.store.record.AbstractBaseRecord;
+
+/**
+ * Applies the store records of a transaction using multiple threads. Records are grouped by store and
+ * ranges of consecutive record ids, where records in each group are written in the order they were added
+ * by one thread. Groups are then written concurrently, which is safe since the records of a transaction are
+ * all distinct and the page cache allows concurrent writers to the same page.
+ * <p>
+ * Visibility is left to the caller, which is expected to hold the node and relationship write locks of
+ * the transaction until {@link RecordUpdates#apply()} has returned.
+ */
+public class ParallelRecordApplier
+{
+    /**
+     * Records in ranges of this many consecutive ids are applied by the same thread, typically meaning
+     * that most pages are only written to by a single thread.
+     */
+    private static final int ID_RANGE_SHIFT = 7;
+
+    private final ExecutorService executor;
+    private final int workers;
+    private final int minRecords;
+
+    /**
+     * @param executor {@link ExecutorService} running the groups of records, apart from the first group
+     * which is always applied by the calling thread.
+     * @param workers number of groups to split records of a transaction into.
+     * @param minRecords transactions with fewer records than this are applied by the calling thread alone.
+     */
+    public ParallelRecordApplier( ExecutorService executor, int workers, int minRecords )
+    {
+        this.executor = executor;
+        this.workers = workers;
+        this.minRecords = minRecords;
+    }
+
+    /**
+     * @return new {@link RecordUpdates} gathering the records of a single transaction.
+     */
+    public RecordUpdates newTransaction()
+    {
+        return new RecordUpdates();
+    }
+
+    public class RecordUpdates
+    {
+        private final List<RecordUpdate<?>> updates = new ArrayList<>();
+
+        public <RECORD extends AbstractBaseRecord> void add( RecordStore<RECORD> store, RECORD record )
+        {
+            updates.add( new RecordUpdate<>( store, record ) );
+        }
+
+        /**
+         * Writes all added records to their stores and returns when all of them have been written, also if
+         * interrupted, in which case the interrupt flag is restored before returning.
+         *
+         * @throws Exception the actual failure of writing any of the records.
+         */
+        public void apply() throws Exception
+        {
+            if ( updates.size() < minRecords )
+            {
+                for ( RecordUpdate<?> update : updates )
+                {
+                    update.apply();
+                }
+                updates.clear();
+                return;
+            }
+
+            List<List<RecordUpdate<?>>> groups = new ArrayList<>( workers );
+            for ( int i = 0; i < workers; i++ )
+            {
+                groups.add( new ArrayList<>() );
+            }
+            for ( RecordUpdate<?> update : updates )
+            {
+                groups.get( update.group( workers ) ).add( update );
+            }
+            updates.clear();
+
+            List<Future<?>> futures = new ArrayList<>( workers - 1 );
+            for ( int i = 1; i < workers; i++ )
+            {
+                List<RecordUpdate<?>> group = groups.get( i );
+                if ( !group.isEmpty() )
+                {
+                    futures.add( executor.submit( () -> group.forEach( RecordUpdate::apply ) ) );
+                }
+            }
+            // Wait for all groups, also on failure, so that no records are written after the caller releases its locks
+            Throwable failure = null;
+            try
+            {
+                groups.get( 0 ).forEach( RecordUpdate::apply );
+            }
+            catch ( RuntimeException | Error e )
+            {
+                failure = e;
+            }
+            boolean interrupted = false;
+            for ( Future<?> future : futures )
+            {
+                while ( true )
+                {
+                    try
+                    {
+                        future.get();
+                        break;
+                    }
+                    catch ( ExecutionException e )
+                    {
+                        failure = Exceptions.chain( failure, e.getCause() );
+                        break;
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        // Keep waiting, the group may still be writing, but remember to restore the interrupt
+                        interrupted = true;
+                    }
+                }
+            }
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+            if ( failure != null )
+            {
+                throw Exceptions.launderedException( Exception.class, failure );
+            }
+        }
+    }
+
+    private static class RecordUpdate<RECORD extends AbstractBaseRecord>
+    {
+        private final RecordStore<RECORD> store;
+        private final RECORD record;
+
+        RecordUpdate( RecordStore<RECORD> store, RECORD record )
+        {
+            this.store = store;
+            this.record = record;
+        }
+
+        int group( int groups )
+        {
+            long idRange = record.getId() >>> ID_RANGE_SHIFT;
+            return (int) Math.floorMod( idRange * 31 + System.identityHashCode( store ), (long) groups );
+        }
+
+        void apply()
+        {
+            store.updateRecord( record );
+        }
+    }
+}
@@ -21,7 +21,9 @@ package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.Flushable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -59,11 +61,11 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
 
     private final AtomicReference<ThreadLink> threadLinkHead = new AtomicReference<>( ThreadLink.END );
     private final TransactionMetadataCache transactionMetadataCache;
-    private final LogFile logFile;
-    private final LogRotation logRotation;
+    final LogFile logFile;
+    final LogRotation logRotation;
     private final TransactionIdStore transactionIdStore;
     private final LogPositionMarker positionMarker = new LogPositionMarker();
-    private final DatabaseHealth databaseHealth;
+    final DatabaseHealth databaseHealth;
     private final Lock forceLock = new ReentrantLock();
 
     private FlushablePositionAwareChannel writer;
@@ -87,11 +89,38 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     {
         this.writer = logFile.getWriter();
         this.indexCommandDetector = new IndexCommandDetector();
-        this.transactionLogWriter = new TransactionLogWriter( new LogEntryWriter( writer ) );
+        this.transactionLogWriter = new TransactionLogWriter( new LogEntryWriter( writer, logFile::compressCommands ) );
     }
 
     @Override
     public long append( TransactionToApply batch, LogAppendEvent logAppendEvent ) throws IOException
+    {
+        long lastTransactionId = appendBatch( batch, logAppendEvent );
+
+        // At this point we've appended all transactions in this batch, but we can't mark any of them
+        // as committed since they haven't been forced to disk yet. So here we force, or potentially
+        // piggy-back on another force, but anyway after this call below we can be sure that all our transactions
+        // in this batch exist durably on disk.
+        if ( forceAfterAppend( logAppendEvent ) )
+        {
+            // We got lucky and were the one forcing the log. It's enough if ones of all doing concurrent committerss
+            // checks the need for log rotation.
+            boolean logRotated = logRotation.rotateLogIfNeeded( logAppendEvent );
+            logAppendEvent.setLogRotated( logRotated );
+        }
+
+        // Mark all transactions as committed
+        publishAsCommitted( batch );
+
+        return lastTransactionId;
+    }
+
+    /**
+     * Appends all transactions in the batch to the log, without forcing it.
+     *
+     * @return the transaction id of the last transaction in the batch.
+     */
+    long appendBatch( TransactionToApply batch, LogAppendEvent logAppendEvent ) throws IOException
     {
         // Assigned base tx id just to make compiler happy
         long lastTransactionId = TransactionIdStore.BASE_TX_ID;
@@ -122,23 +151,67 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
                 }
             }
         }
+        return lastTransactionId;
+    }
 
-        // At this point we've appended all transactions in this batch, but we can't mark any of them
-        // as committed since they haven't been forced to disk yet. So here we force, or potentially
-        // piggy-back on another force, but anyway after this call below we can be sure that all our transactions
-        // in this batch exist durably on disk.
-        if ( forceAfterAppend( logAppendEvent ) )
+    /**
+     * Appends batches of transactions which have already been {@link SerializedTransactions serialized}, except
+     * for their transaction ids. Transaction ids are assigned in order and set into the serialized commit entries,
+     * after which all batches are written to the log with a single gathering write, without forcing it.
+     */
+    void appendSerialized( List<? extends SerializedTransactions> batches ) throws IOException
+    {
+        // Synchronized with logFile to get absolute control over concurrent rotations happening
+        synchronized ( logFile )
         {
-            // We got lucky and were the one forcing the log. It's enough if ones of all doing concurrent committerss
-            // checks the need for log rotation.
-            boolean logRotated = logRotation.rotateLogIfNeeded( logAppendEvent );
-            logAppendEvent.setLogRotated( logRotated );
-        }
-
-        // Mark all transactions as committed
-        publishAsCommitted( batch );
+            // Assert that kernel is healthy before making any changes
+            databaseHealth.assertHealthy( IOException.class );
+            try
+            {
+                LogPosition startPosition = writer.getCurrentPosition( positionMarker ).newPosition();
+                long logVersion = startPosition.getLogVersion();
+                long batchOffset = startPosition.getByteOffset();
+                ByteBuffer[] buffers = new ByteBuffer[batches.size()];
+                for ( int b = 0; b < buffers.length; b++ )
+                {
+                    SerializedTransactions batch = batches.get( b );
+                    TransactionToApply tx = batch.batch();
+                    for ( int i = 0; i < batch.count(); i++ )
+                    {
+                        long transactionId = transactionIdStore.nextCommittingTransactionId();
+                        matchAgainstExpectedTransactionIdIfAny( transactionId, tx );
+                        batch.setTransactionId( i, transactionId );
 
-        return lastTransactionId;
+                        TransactionRepresentation transaction = tx.transactionRepresentation();
+                        LogPosition logPositionBeforeCommit = new LogPosition( logVersion,
+                                batchOffset + batch.start( i ) );
+                        LogPosition logPositionAfterCommit = new LogPosition( logVersion,
+                                batchOffset + batch.end( i ) );
+                        transactionMetadataCache.cacheTransactionMetadata( transactionId, logPositionBeforeCommit,
+                                transaction.getMasterId(), transaction.getAuthorId(), batch.checksum( i ),
+                                transaction.getTimeCommitted() );
+                        boolean hasExplicitIndexChanges = batch.hasExplicitIndexChanges( i );
+                        if ( hasExplicitIndexChanges )
+                        {
+                            explicitIndexTransactionOrdering.offer( transactionId );
+                        }
+                        tx.commitment( new TransactionCommitment( hasExplicitIndexChanges, transactionId,
+                                batch.checksum( i ), transaction.getTimeCommitted(), logPositionAfterCommit,
+                                transactionIdStore ), transactionId );
+                        tx.logPosition( logPositionAfterCommit );
+                        tx = tx.next();
+                    }
+                    buffers[b] = batch.bytes();
+                    batchOffset += batch.size();
+                }
+                writer.putAll( buffers );
+            }
+            catch ( final Throwable panic )
+            {
+                databaseHealth.panic( panic );
+                throw panic;
+            }
+        }
     }
 
     private void matchAgainstExpectedTransactionIdIfAny( long transactionId, TransactionToApply tx )
@@ -158,7 +231,7 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         }
     }
 
-    private void publishAsCommitted( TransactionToApply batch )
+    static void publishAsCommitted( TransactionToApply batch )
     {
         while ( batch != null )
         {
@@ -22,6 +22,7 @@ package org.neo4j.kernel.impl.transaction.log;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.neo4j.storageengine.api.WritableChannel;
 
@@ -60,4 +61,24 @@ public interface FlushableChannel extends WritableChannel, Closeable
 
     @Override
     FlushableChannel put( byte[] value, int length ) throws IOException;
+
+    /**
+     * Puts the remaining bytes of all the given buffers into this channel, in order, leaving each buffer
+     * at its limit. Implementations backed by a file may write them straight to it, with a single gathering write.
+     *
+     * @param buffers buffers to put the remaining bytes of.
+     * @return this channel, for fluent usage.
+     * @throws IOException if I/O error occurs.
+     */
+    default FlushableChannel putAll( ByteBuffer[] buffers ) throws IOException
+    {
+        for ( ByteBuffer buffer : buffers )
+        {
+            while ( buffer.hasRemaining() )
+            {
+                put( buffer.get() );
+            }
+        }
+        return this;
+    }
 }
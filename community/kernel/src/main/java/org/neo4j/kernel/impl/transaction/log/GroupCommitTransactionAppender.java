@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.neo4j.helpers.Exceptions;
+import org.neo4j.kernel.impl.api.TransactionToApply;
+import org.neo4j.kernel.impl.transaction.log.rotation.LogRotation;
+import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceEvents;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceWaitEvent;
+import org.neo4j.kernel.impl.transaction.tracing.SerializeTransactionEvent;
+import org.neo4j.kernel.impl.util.IdOrderingQueue;
+import org.neo4j.kernel.internal.DatabaseHealth;
+import org.neo4j.scheduler.JobScheduler;
+
+/**
+ * A {@link BatchingTransactionAppender} where committing threads don't append to the log themselves. Instead each
+ * committing thread serializes its transactions into a buffer of its own, see {@link SerializedTransactions}, queues
+ * it on a lock-free queue and parks. A dedicated log writer thread drains the queue, assigns transaction ids to
+ * the whole group and writes all buffers of the group to the log channel with a single gathering write, followed by
+ * a single flush and force of the log for the whole group. Committing threads are unparked by the writer when
+ * their group is durable. This means that committing threads never contend for the log file, that serialization
+ * of commands happens in parallel outside of the log file monitor, and that the log channel sees one large write
+ * per group, instead of one small write per transaction.
+ * <p>
+ * The writer adapts how long it waits for a group to fill up to the load. It keeps track of how many threads are
+ * currently committing and only waits for those that have not queued their transactions yet, i.e. that are still
+ * serializing them. A single committing thread is therefore never delayed, while under concurrent load the writer
+ * waits for the stragglers, but no longer than a fraction of the time the previous force took, and never longer
+ * than the configured max wait time. This keeps latency low under light load, while making the groups grow with
+ * the rate of commits under heavy load.
+ * <p>
+ * Committing threads can't be interrupted out of waiting for their group, since the writer may be appending their
+ * transactions already; they keep waiting and have their interrupt status restored afterwards. Should the writer
+ * itself fail, the database is panicked and all waiting and later committers fail with that cause.
+ * <p>
+ * The size and latency of each group is reported to the {@link Monitor}.
+ */
+public class GroupCommitTransactionAppender extends BatchingTransactionAppender
+{
+    public interface Monitor
+    {
+        /**
+         * Called by the log writer thread when a group of transactions has been appended and forced.
+         *
+         * @param batches number of committing batches of transactions in the group.
+         * @param transactions number of transactions in the group.
+         * @param latencyNanos time from when the first batch in the group was queued, until the group
+         * was durable in the log.
+         */
+        void groupCommitted( int batches, int transactions, long latencyNanos );
+    }
+
+    public static final Monitor NO_MONITOR = ( batches, transactions, latencyNanos ) ->
+    {
+    };
+
+    private final Queue<GroupCommitRequest> queue = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<GroupCommitRequest> requests;
+    // Number of threads in append which have not yet been completed by the writer
+    private final AtomicInteger committing = new AtomicInteger();
+    private final JobScheduler scheduler;
+    private final long maxWaitNanos;
+    private final Monitor monitor;
+
+    private volatile boolean stopped;
+    private volatile boolean writerExited;
+    private volatile Throwable writerFailure;
+    private volatile boolean writerParked;
+    private volatile Thread writerThread;
+
+    // Only accessed by the log writer thread
+    private final List<GroupCommitRequest> group = new ArrayList<>();
+    private final GroupLogForceEvents groupForceEvents = new GroupLogForceEvents();
+    private long previousForceNanos;
+
+    public GroupCommitTransactionAppender( LogFile logFile, LogRotation logRotation,
+            TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
+            IdOrderingQueue explicitIndexTransactionOrdering, DatabaseHealth databaseHealth, JobScheduler scheduler,
+            long maxWaitNanos, Monitor monitor )
+    {
+        super( logFile, logRotation, transactionMetadataCache, transactionIdStore, explicitIndexTransactionOrdering,
+                databaseHealth );
+        this.scheduler = scheduler;
+        this.maxWaitNanos = maxWaitNanos;
+        this.monitor = monitor;
+        this.requests = ThreadLocal.withInitial( () -> new GroupCommitRequest( logFile, Thread.currentThread() ) );
+    }
+
+    @Override
+    public void start() throws Throwable
+    {
+        super.start();
+        stopped = false;
+        writerExited = false;
+        writerFailure = null;
+        writerThread = scheduler.threadFactory( JobScheduler.Groups.transactionLogWriter ).newThread( this::writeLoop );
+        writerThread.setDaemon( true );
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        // The writer appends everything that has been queued before it exits
+        stopped = true;
+        Thread thread = writerThread;
+        LockSupport.unpark( thread );
+        thread.join();
+        super.stop();
+    }
+
+    @Override
+    public long append( TransactionToApply batch, LogAppendEvent logAppendEvent ) throws IOException
+    {
+        if ( stopped )
+        {
+            throw new IOException( "Transaction log writer has been stopped" );
+        }
+
+        GroupCommitRequest request = requests.get();
+        committing.incrementAndGet();
+        try
+        {
+            try ( SerializeTransactionEvent serialiseEvent = logAppendEvent.beginSerializeTransaction() )
+            {
+                request.serialize( batch );
+            }
+            request.queued( logAppendEvent );
+        }
+        catch ( Throwable e )
+        {
+            committing.decrementAndGet();
+            request.clear();
+            throw e;
+        }
+
+        try
+        {
+            queue.offer( request );
+            if ( writerParked )
+            {
+                LockSupport.unpark( writerThread );
+            }
+            if ( (stopped || writerExited) && queue.remove( request ) )
+            {
+                // The writer may already have exited without seeing our request
+                committing.decrementAndGet();
+                throw new IOException( "Transaction log writer has been stopped", writerFailure );
+            }
+
+            // From here on the writer owns the request, until it marks it as done and unparks us. An interrupt
+            // can't abort the wait, since the writer may be appending our transactions already, so we keep waiting
+            // and restore the interrupt status afterwards
+            boolean interrupted = false;
+            while ( !request.done )
+            {
+                LockSupport.park( this );
+                interrupted |= Thread.interrupted();
+                if ( !request.done && writerExited && queue.remove( request ) )
+                {
+                    // The writer died before it could see our request, it will never complete it
+                    committing.decrementAndGet();
+                    restoreInterrupt( interrupted );
+                    throw new IOException( "Transaction log writer has been stopped", writerFailure );
+                }
+            }
+            restoreInterrupt( interrupted );
+            if ( request.failure != null )
+            {
+                throw Exceptions.launderedException( IOException.class, request.failure );
+            }
+
+            // Mark all transactions as committed
+            publishAsCommitted( batch );
+            return request.lastTransactionId();
+        }
+        finally
+        {
+            request.clear();
+        }
+    }
+
+    private void writeLoop()
+    {
+        try
+        {
+            while ( !stopped || !queue.isEmpty() )
+            {
+                GroupCommitRequest first = queue.poll();
+                if ( first == null )
+                {
+                    parkWriter( 0 );
+                    continue;
+                }
+
+                group.add( first );
+                fillGroup();
+                writeGroup();
+            }
+        }
+        catch ( Throwable e )
+        {
+            // Committers can't make progress without the writer, so the database can't either
+            writerFailure = e;
+            databaseHealth.panic( e );
+        }
+        finally
+        {
+            // Fail whatever the writer will never get to, committers queueing after this will see that it has exited
+            writerExited = true;
+            drainQueueIntoGroup();
+            complete( new IOException( "Transaction log writer has been stopped", writerFailure ) );
+        }
+    }
+
+    private static void restoreInterrupt( boolean interrupted )
+    {
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Parks the writer until a committer queues a request, or until the given timeout passes.
+     *
+     * @param timeoutNanos nanoseconds to park at most, or {@code 0} to park until unparked.
+     */
+    private void parkWriter( long timeoutNanos )
+    {
+        writerParked = true;
+        // Check again, a committer may have queued its request before it could see that we were parked
+        if ( queue.isEmpty() && !stopped )
+        {
+            if ( timeoutNanos > 0 )
+            {
+                LockSupport.parkNanos( this, timeoutNanos );
+            }
+            else
+            {
+                LockSupport.park( this );
+            }
+        }
+        writerParked = false;
+    }
+
+    private void fillGroup()
+    {
+        drainQueueIntoGroup();
+        long waitNanos = previousForceNanos > 0 ? Math.min( maxWaitNanos, previousForceNanos / 2 ) : maxWaitNanos;
+        long deadline = System.nanoTime() + waitNanos;
+        long now;
+        // Threads that are still serializing their transactions are about to join this group, wait for them
+        while ( committing.get() > group.size() && (now = System.nanoTime()) < deadline && !stopped )
+        {
+            parkWriter( deadline - now );
+            drainQueueIntoGroup();
+        }
+    }
+
+    private void drainQueueIntoGroup()
+    {
+        GroupCommitRequest request;
+        while ( (request = queue.poll()) != null )
+        {
+            group.add( request );
+        }
+    }
+
+    private void writeGroup()
+    {
+        GroupCommitRequest first = group.get( 0 );
+        Throwable failure = null;
+        int transactions = 0;
+        long forceStart = 0;
+        try
+        {
+            appendSerialized( group );
+            for ( GroupCommitRequest request : group )
+            {
+                transactions += request.count();
+            }
+
+            forceStart = System.nanoTime();
+            if ( forceAfterAppend( groupForceEvents ) )
+            {
+                boolean logRotated = logRotation.rotateLogIfNeeded( first.logAppendEvent );
+                first.logAppendEvent.setLogRotated( logRotated );
+            }
+        }
+        catch ( Throwable e )
+        {
+            // The database has been marked as unhealthy already, all requests in this group fail
+            failure = e;
+        }
+        finally
+        {
+            long now = System.nanoTime();
+            previousForceNanos = forceStart != 0 ? now - forceStart : 0;
+            int batches = group.size();
+            long latencyNanos = now - first.queuedNanos;
+            complete( failure );
+            monitor.groupCommitted( batches, transactions, latencyNanos );
+        }
+    }
+
+    /**
+     * Marks all requests in the group as done, unparks their committing threads and clears the group.
+     * The requests must not be accessed after this, since their threads may reuse them right away.
+     */
+    private void complete( Throwable failure )
+    {
+        committing.addAndGet( -group.size() );
+        for ( GroupCommitRequest request : group )
+        {
+            Thread thread = request.thread;
+            request.failure = failure;
+            request.done = true;
+            LockSupport.unpark( thread );
+        }
+        group.clear();
+    }
+
+    /**
+     * Reports the force of a group to the {@link LogAppendEvent} of every request in the group, since every one of
+     * them waited for it. Only used by the log writer thread, and reused for every group.
+     */
+    private class GroupLogForceEvents implements LogForceEvents
+    {
+        private final List<LogForceWaitEvent> waitEvents = new ArrayList<>();
+        private final List<LogForceEvent> forceEvents = new ArrayList<>();
+
+        private final LogForceWaitEvent groupWaitEvent = () ->
+        {
+            waitEvents.forEach( LogForceWaitEvent::close );
+            waitEvents.clear();
+        };
+
+        private final LogForceEvent groupForceEvent = () ->
+        {
+            forceEvents.forEach( LogForceEvent::close );
+            forceEvents.clear();
+        };
+
+        @Override
+        public LogForceWaitEvent beginLogForceWait()
+        {
+            for ( GroupCommitRequest request : group )
+            {
+                waitEvents.add( request.logAppendEvent.beginLogForceWait() );
+            }
+            return groupWaitEvent;
+        }
+
+        @Override
+        public LogForceEvent beginLogForce()
+        {
+            for ( GroupCommitRequest request : group )
+            {
+                forceEvents.add( request.logAppendEvent.beginLogForce() );
+            }
+            return groupForceEvent;
+        }
+    }
+
+    /**
+     * Reused for all commits of one committing thread.
+     */
+    private static class GroupCommitRequest extends SerializedTransactions
+    {
+        final Thread thread;
+        LogAppendEvent logAppendEvent;
+        long queuedNanos;
+        Throwable failure;
+        volatile boolean done;
+
+        GroupCommitRequest( LogFile logFile, Thread thread )
+        {
+            super( logFile::compressCommands );
+            this.thread = thread;
+        }
+
+        void queued( LogAppendEvent logAppendEvent )
+        {
+            this.logAppendEvent = logAppendEvent;
+            this.queuedNanos = System.nanoTime();
+            this.failure = null;
+            this.done = false;
+        }
+
+        @Override
+        void clear()
+        {
+            super.clear();
+            logAppendEvent = null;
+            failure = null;
+        }
+    }
+}
@@ -20,13 +20,22 @@
 package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
 
 import org.neo4j.cursor.IOCursor;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntry;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryCommand;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryCompressedCommands;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersion;
+import org.neo4j.storageengine.api.StorageCommand;
 
 /**
  * {@link IOCursor} abstraction on top of a {@link LogEntryReader}
+ * <p>
+ * {@link LogEntryCompressedCommands Compressed command blocks} are expanded into the {@link LogEntryCommand command
+ * entries} they contain, so that compressed and uncompressed transactions look the same to users of this cursor.
  */
 public class LogEntryCursor implements IOCursor<LogEntry>
 {
@@ -34,6 +43,8 @@ public class LogEntryCursor implements IOCursor<LogEntry>
     private final ReadableClosablePositionAwareChannel channel;
     private final LogPositionMarker position = new LogPositionMarker();
     private LogEntry entry;
+    private Iterator<StorageCommand> compressedCommands = Collections.emptyIterator();
+    private LogEntryVersion compressedCommandsVersion;
 
     public LogEntryCursor( LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader,
                            ReadableClosablePositionAwareChannel channel )
@@ -51,9 +62,18 @@ public class LogEntryCursor implements IOCursor<LogEntry>
     @Override
     public boolean next() throws IOException
     {
-        entry = logEntryReader.readLogEntry( channel );
-
-        return entry != null;
+        while ( !compressedCommands.hasNext() )
+        {
+            entry = logEntryReader.readLogEntry( channel );
+            if ( !(entry instanceof LogEntryCompressedCommands) )
+            {
+                return entry != null;
+            }
+            compressedCommands = entry.<LogEntryCompressedCommands>as().getCommands().iterator();
+            compressedCommandsVersion = entry.getVersion();
+        }
+        entry = new LogEntryCommand( compressedCommandsVersion, compressedCommands.next() );
+        return true;
     }
 
     @Override
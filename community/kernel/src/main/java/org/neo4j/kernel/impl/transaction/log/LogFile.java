@@ -37,6 +37,15 @@ public interface LogFile
      */
     FlushablePositionAwareChannel getWriter();
 
+    /**
+     * @return {@code true} if the commands of transactions appended to the current log file should be written in
+     * compressed blocks, as recorded in the header of that file.
+     */
+    default boolean compressCommands()
+    {
+        return false;
+    }
+
     /**
      * Opens a {@link ReadableLogChannel reader} at the desired {@link LogPosition}, capable of reading log entries
      * from that position and onwards, through physical log versions.
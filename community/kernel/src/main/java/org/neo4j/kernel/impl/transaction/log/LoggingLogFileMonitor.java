@@ -21,6 +21,7 @@ package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.File;
 
+import org.neo4j.helpers.Format;
 import org.neo4j.kernel.impl.transaction.log.rotation.LogRotation;
 import org.neo4j.kernel.recovery.PositionToRecoverFrom;
 import org.neo4j.kernel.recovery.Recovery;
@@ -63,6 +64,26 @@ public class LoggingLogFileMonitor implements
         }
     }
 
+    @Override
+    public void recoveryProgress( long recoveredTransactions, long recoveredBytes, long totalBytes,
+            long elapsedMillis )
+    {
+        long transactionsPerSecond = elapsedMillis > 0 ? recoveredTransactions * 1000 / elapsedMillis : 0;
+        if ( totalBytes > 0 && recoveredBytes > 0 )
+        {
+            long remainingMillis = (long) ((double) (totalBytes - recoveredBytes) * elapsedMillis / recoveredBytes);
+            log.info( format( "Recovery in progress. %d%% of log recovered, %d transactions, %d tx/s, %s/s, " +
+                            "estimated time remaining %s", recoveredBytes * 100 / totalBytes, recoveredTransactions,
+                    transactionsPerSecond, Format.bytes( recoveredBytes * 1000 / Math.max( elapsedMillis, 1 ) ),
+                    Format.duration( remainingMillis ) ) );
+        }
+        else
+        {
+            log.info( format( "Recovery in progress. %d transactions, %d tx/s", recoveredTransactions,
+                    transactionsPerSecond ) );
+        }
+    }
+
     @Override
     public void startedRotating( long currentVersion )
     {
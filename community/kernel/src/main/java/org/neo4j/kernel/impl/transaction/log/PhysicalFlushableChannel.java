@@ -148,6 +148,33 @@ public class PhysicalFlushableChannel implements FlushableChannel
         return this;
     }
 
+    /**
+     * Empties the buffer of this channel into the underlying channel and then writes the given buffers
+     * straight to it, using a gathering write, instead of copying them through the buffer.
+     */
+    @Override
+    public FlushableChannel putAll( ByteBuffer[] buffers ) throws IOException
+    {
+        prepareForFlush();
+        long remaining = 0;
+        for ( ByteBuffer buffer : buffers )
+        {
+            remaining += buffer.remaining();
+        }
+        try
+        {
+            while ( remaining > 0 )
+            {
+                remaining -= channel.write( buffers );
+            }
+        }
+        catch ( ClosedChannelException e )
+        {
+            handleClosedChannelException( e );
+        }
+        return this;
+    }
+
     private ByteBuffer bufferWithGuaranteedSpace( int spaceInBytes ) throws IOException
     {
         assert spaceInBytes < buffer.capacity();
@@ -34,6 +34,7 @@ import org.neo4j.kernel.lifecycle.Lifecycle;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderReader.readLogHeader;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderWriter.writeLogHeader;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogVersions.COMPRESSED_LOG_VERSION;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogVersions.CURRENT_LOG_VERSION;
 
 /**
@@ -70,6 +71,7 @@ public class PhysicalLogFile implements LogFile, Lifecycle
     private PositionAwarePhysicalFlushableChannel writer;
     private final LogVersionRepository logVersionRepository;
     private final LogVersionBridge readerLogVersionBridge;
+    private final byte logFormatVersion;
 
     private volatile PhysicalLogVersionedStoreChannel channel;
 
@@ -77,6 +79,21 @@ public class PhysicalLogFile implements LogFile, Lifecycle
                             Supplier<Long> lastCommittedId, LogVersionRepository logVersionRepository,
                             Monitor monitor, LogHeaderCache logHeaderCache
     )
+    {
+        this( fileSystem, logFiles, rotateAtSize, lastCommittedId, logVersionRepository, monitor, logHeaderCache,
+                CURRENT_LOG_VERSION );
+    }
+
+    /**
+     * @param logFormatVersion format version to write in the header of new log files, either
+     * {@link org.neo4j.kernel.impl.transaction.log.entry.LogVersions#CURRENT_LOG_VERSION} or
+     * {@link org.neo4j.kernel.impl.transaction.log.entry.LogVersions#COMPRESSED_LOG_VERSION} to have transactions
+     * appended to those files written with compressed commands.
+     */
+    public PhysicalLogFile( FileSystemAbstraction fileSystem, PhysicalLogFiles logFiles, long rotateAtSize,
+                            Supplier<Long> lastCommittedId, LogVersionRepository logVersionRepository,
+                            Monitor monitor, LogHeaderCache logHeaderCache, byte logFormatVersion
+    )
     {
         this.fileSystem = fileSystem;
         this.rotateAtSize = rotateAtSize;
@@ -86,6 +103,7 @@ public class PhysicalLogFile implements LogFile, Lifecycle
         this.logHeaderCache = logHeaderCache;
         this.logFiles = logFiles;
         this.readerLogVersionBridge = new ReaderLogVersionBridge( fileSystem, logFiles );
+        this.logFormatVersion = logFormatVersion;
     }
 
     @Override
@@ -240,12 +258,12 @@ public class PhysicalLogFile implements LogFile, Lifecycle
         {
             // Either the header is not there in full or the file was new. Don't care
             long lastTxId = lastCommittedId.get();
-            writeLogHeader( headerBuffer, forVersion, lastTxId );
+            writeLogHeader( headerBuffer, forVersion, logFormatVersion, lastTxId );
             logHeaderCache.putHeader( forVersion, lastTxId );
             storeChannel.writeAll( headerBuffer );
             monitor.opened( toOpen, forVersion, lastTxId, true );
         }
-        byte formatVersion = header == null ? CURRENT_LOG_VERSION : header.logFormatVersion;
+        byte formatVersion = header == null ? logFormatVersion : header.logFormatVersion;
         return new PhysicalLogVersionedStoreChannel( storeChannel, forVersion, formatVersion );
     }
 
@@ -255,6 +273,16 @@ public class PhysicalLogFile implements LogFile, Lifecycle
         return writer;
     }
 
+    /**
+     * Whether or not to compress is decided by the header of the log file currently appended to, rather than
+     * by configuration, so that an existing log file is continued in the format it was created with.
+     */
+    @Override
+    public boolean compressCommands()
+    {
+        return channel.getLogFormatVersion() == COMPRESSED_LOG_VERSION;
+    }
+
     @Override
     public ReadableLogChannel getReader( LogPosition position ) throws IOException
     {
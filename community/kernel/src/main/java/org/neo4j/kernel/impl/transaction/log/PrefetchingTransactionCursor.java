@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
+
+/**
+ * Reads and decodes transactions from a {@link TransactionCursor} in a separate thread, a number of transactions
+ * ahead of the consumer of this cursor. Useful when the consumer, e.g. recovery applying transactions to the store,
+ * would otherwise wait for reading and decoding of the log between each transaction.
+ * <p>
+ * Only the reading and decoding is moved to the other thread. The transactions are still returned one at a time, in
+ * log order, so whatever the consumer does with them, like applying them to the store, stays on the calling thread
+ * and is not parallelized.
+ * <p>
+ * Failures to read from the source are thrown from {@link #next()} once all transactions read before the failure
+ * have been returned.
+ */
+public class PrefetchingTransactionCursor implements TransactionCursor
+{
+    private final TransactionCursor source;
+    private final BlockingQueue<Prefetched> prefetched;
+    private final Thread reader;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    private CommittedTransactionRepresentation current;
+    private LogPosition position;
+    private boolean exhausted;
+
+    /**
+     * @param source {@link TransactionCursor} to read transactions from, closed when this cursor is closed.
+     * @param maxPrefetched maximum number of transactions read ahead of the consumer.
+     * @param threadFactory {@link ThreadFactory} creating the reader thread.
+     */
+    public PrefetchingTransactionCursor( TransactionCursor source, int maxPrefetched, ThreadFactory threadFactory )
+    {
+        this.source = source;
+        this.prefetched = new ArrayBlockingQueue<>( maxPrefetched );
+        this.position = source.position();
+        this.reader = threadFactory.newThread( this::readAhead );
+        this.reader.start();
+    }
+
+    private void readAhead()
+    {
+        try
+        {
+            while ( !closed && source.next() )
+            {
+                offer( new Prefetched( source.get(), source.position() ) );
+            }
+        }
+        catch ( Throwable e )
+        {
+            failure = e;
+        }
+        finally
+        {
+            // The source may have moved past more than the last transaction, e.g. past a trailing check point
+            offer( new Prefetched( null, failure == null ? source.position() : null ) );
+        }
+    }
+
+    private void offer( Prefetched transaction )
+    {
+        try
+        {
+            while ( !closed )
+            {
+                if ( prefetched.offer( transaction, 100, TimeUnit.MILLISECONDS ) )
+                {
+                    return;
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException
+    {
+        if ( exhausted )
+        {
+            return false;
+        }
+
+        Prefetched next;
+        try
+        {
+            next = prefetched.take();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for transactions to be read from the log" );
+        }
+
+        if ( next.transaction == null )
+        {
+            exhausted = true;
+            current = null;
+            throwIfFailed();
+            position = next.position;
+            return false;
+        }
+        current = next.transaction;
+        position = next.position;
+        return true;
+    }
+
+    private void throwIfFailed() throws IOException
+    {
+        Throwable cause = failure;
+        if ( cause == null )
+        {
+            return;
+        }
+        if ( cause instanceof IOException )
+        {
+            throw (IOException) cause;
+        }
+        if ( cause instanceof RuntimeException )
+        {
+            throw (RuntimeException) cause;
+        }
+        if ( cause instanceof Error )
+        {
+            throw (Error) cause;
+        }
+        throw new IOException( cause );
+    }
+
+    @Override
+    public CommittedTransactionRepresentation get()
+    {
+        return current;
+    }
+
+    @Override
+    public LogPosition position()
+    {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        prefetched.clear();
+        try
+        {
+            reader.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for log reader to stop" );
+        }
+        finally
+        {
+            source.close();
+        }
+    }
+
+    private static class Prefetched
+    {
+        private final CommittedTransactionRepresentation transaction;
+        private final LogPosition position;
+
+        Prefetched( CommittedTransactionRepresentation transaction, LogPosition position )
+        {
+            this.transaction = transaction;
+            this.position = position;
+        }
+    }
+}
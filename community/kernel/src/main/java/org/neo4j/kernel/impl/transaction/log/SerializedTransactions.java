@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import org.neo4j.kernel.impl.api.TransactionToApply;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter;
+
+/**
+ * A batch of transactions serialized into a buffer of its own, by the committing thread, before it's appended to the
+ * log. Everything but the transaction ids is serialized up front. The transaction id is assigned when appending,
+ * under the log file monitor, and {@link #setTransactionId(int, long) set} into the commit entry in place, see
+ * {@link BatchingTransactionAppender#appendSerialized(java.util.List)}.
+ * <p>
+ * Instances are meant to be reused for the batches of one committing thread.
+ */
+class SerializedTransactions
+{
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private final BufferChannel channel = new BufferChannel();
+    private final LogEntryWriter entryWriter;
+    private final IndexCommandDetector indexCommandDetector = new IndexCommandDetector();
+
+    private TransactionToApply batch;
+    private int count;
+    private long lastTransactionId;
+    private int[] starts = new int[4];
+    private int[] ends = new int[4];
+    private int[] transactionIdOffsets = new int[4];
+    private boolean[] explicitIndexChanges = new boolean[4];
+    private long[] checksums = new long[4];
+
+    SerializedTransactions( BooleanSupplier compressCommands )
+    {
+        this.entryWriter = new LogEntryWriter( channel, compressCommands );
+    }
+
+    /**
+     * Serializes all transactions in the given batch, replacing what was serialized before.
+     */
+    void serialize( TransactionToApply batch ) throws IOException
+    {
+        this.batch = batch;
+        count = 0;
+        channel.clear();
+        for ( TransactionToApply tx = batch; tx != null; tx = tx.next() )
+        {
+            TransactionRepresentation transaction = tx.transactionRepresentation();
+            ensureCapacity( count + 1 );
+            starts[count] = channel.size();
+            entryWriter.writeStartEntry( transaction.getMasterId(), transaction.getAuthorId(),
+                    transaction.getTimeStarted(), transaction.getLatestCommittedTxWhenStarted(),
+                    transaction.additionalHeader() );
+            entryWriter.serialize( transaction );
+            transactionIdOffsets[count] = channel.size() + LogEntryWriter.COMMIT_ENTRY_TRANSACTION_ID_OFFSET;
+            entryWriter.writeCommitEntry( TransactionIdStore.BASE_TX_ID, transaction.getTimeCommitted() );
+            ends[count] = channel.size();
+
+            indexCommandDetector.reset();
+            transaction.accept( indexCommandDetector );
+            explicitIndexChanges[count] = indexCommandDetector.hasWrittenAnyExplicitIndexCommand();
+            checksums[count] = LogEntryStart.checksum( transaction.additionalHeader(), transaction.getMasterId(),
+                    transaction.getAuthorId() );
+            count++;
+        }
+    }
+
+    /**
+     * Forgets the serialized batch, so that its transactions can be garbage collected while this instance is idle.
+     */
+    void clear()
+    {
+        batch = null;
+        count = 0;
+        channel.clear();
+    }
+
+    private void ensureCapacity( int capacity )
+    {
+        if ( capacity > starts.length )
+        {
+            int length = starts.length * 2;
+            starts = Arrays.copyOf( starts, length );
+            ends = Arrays.copyOf( ends, length );
+            transactionIdOffsets = Arrays.copyOf( transactionIdOffsets, length );
+            explicitIndexChanges = Arrays.copyOf( explicitIndexChanges, length );
+            checksums = Arrays.copyOf( checksums, length );
+        }
+    }
+
+    TransactionToApply batch()
+    {
+        return batch;
+    }
+
+    int count()
+    {
+        return count;
+    }
+
+    /**
+     * @return number of serialized bytes, for all transactions.
+     */
+    int size()
+    {
+        return channel.size();
+    }
+
+    /**
+     * @return offset of the start entry of the transaction at the given index, relative to the start of this batch.
+     */
+    int start( int index )
+    {
+        return starts[index];
+    }
+
+    /**
+     * @return offset right after the commit entry of the transaction at the given index, relative to the start
+     * of this batch.
+     */
+    int end( int index )
+    {
+        return ends[index];
+    }
+
+    boolean hasExplicitIndexChanges( int index )
+    {
+        return explicitIndexChanges[index];
+    }
+
+    long checksum( int index )
+    {
+        return checksums[index];
+    }
+
+    void setTransactionId( int index, long transactionId )
+    {
+        channel.buffer.putLong( transactionIdOffsets[index], transactionId );
+        lastTransactionId = transactionId;
+    }
+
+    /**
+     * @return the transaction id last {@link #setTransactionId(int, long) set}, i.e. that of the last transaction
+     * in the batch once all ids have been assigned.
+     */
+    long lastTransactionId()
+    {
+        return lastTransactionId;
+    }
+
+    /**
+     * @return the serialized bytes, from the start of the first transaction to the end of the last one.
+     */
+    ByteBuffer bytes()
+    {
+        ByteBuffer bytes = channel.buffer.duplicate();
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * A growing in-memory {@link FlushableChannel}, which is never flushed anywhere.
+     */
+    private static class BufferChannel implements FlushableChannel
+    {
+        private ByteBuffer buffer = ByteBuffer.allocate( INITIAL_CAPACITY );
+
+        int size()
+        {
+            return buffer.position();
+        }
+
+        void clear()
+        {
+            if ( buffer.capacity() > MAX_RETAINED_CAPACITY )
+            {
+                // Don't hold on to the memory of an unusually large batch
+                buffer = ByteBuffer.allocate( INITIAL_CAPACITY );
+            }
+            buffer.clear();
+        }
+
+        private ByteBuffer ensureCapacity( int bytes )
+        {
+            if ( buffer.remaining() < bytes )
+            {
+                ByteBuffer grown = ByteBuffer.allocate( Math.max( buffer.capacity() * 2, buffer.position() + bytes ) );
+                buffer.flip();
+                grown.put( buffer );
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        @Override
+        public Flushable prepareForFlush()
+        {
+            return () ->
+            {
+            };
+        }
+
+        @Override
+        public FlushableChannel put( byte value )
+        {
+            ensureCapacity( Byte.BYTES ).put( value );
+            return this;
+        }
+
+        @Override
+        public FlushableChannel putShort( short value )
+        {
+            ensureCapacity( Short.BYTES ).putShort( value );
+            return this;
+        }
+
+        @Override
+        public FlushableChannel putInt( int value )
+        {
+            ensureCapacity( Integer.BYTES ).putInt( value );
+            return this;
+        }
+
+        @Override
+        public FlushableChannel putLong( long value )
+        {
+            ensureCapacity( Long.BYTES ).putLong( value );
+            return this;
+        }
+
+        @Override
+        public FlushableChannel putFloat( float value )
+        {
+            ensureCapacity( Float.BYTES ).putFloat( value );
+            return this;
+        }
+
+        @Override
+        public FlushableChannel putDouble( double value )
+        {
+            ensureCapacity( Double.BYTES ).putDouble( value );
+            return this;
+        }
+
+        @Override
+        public FlushableChannel put( byte[] value, int length )
+        {
+            ensureCapacity( length ).put( value, 0, length );
+            return this;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.checkpoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.logging.Log;
+import org.neo4j.scheduler.JobScheduler;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.neo4j.scheduler.JobScheduler.Groups.checkPointFlush;
+
+/**
+ * Trickles dirty pages to disk in between check points, so that a check point only has to flush the pages that were
+ * dirtied since they were last written here, instead of every page dirtied since the previous check point in one go.
+ * <p>
+ * The pages of all mapped files are swept in file order, one step at a time. The pace of the sweep follows the
+ * volume of transaction log written since the sweep started, relative to the volume written between the last two
+ * check points: by the time as much log has been written as in the last check point interval, the next check point
+ * is likely to be near, and the sweep should be complete. A sweep that completes before the check point is followed
+ * by another one, and a check point restarts the sweep from the beginning.
+ * <p>
+ * No step covers more than {@code 1 / MIN_STEPS_PER_SWEEP} of the pages in a sweep, so that a burst of writes does
+ * not turn into a burst of IO, and every step is subject to the same {@link IOLimiter} as check points. Pages that
+ * are locked when a step gets to them are skipped rather than waited for, and left to the check point.
+ */
+public class IncrementalCheckPointFlusher extends LifecycleAdapter
+{
+    static final int MIN_STEPS_PER_SWEEP = 20;
+
+    private final PageCache pageCache;
+    private final TransactionIdStore transactionIdStore;
+    private final CheckPointer checkPointer;
+    private final IOLimiter ioLimiter;
+    private final JobScheduler scheduler;
+    private final long intervalMillis;
+    private final long logRotationThreshold;
+    private final Log log;
+
+    private volatile boolean stopped;
+    private volatile JobScheduler.JobHandle handle;
+
+    // The state below is only accessed while holding the monitor of this flusher
+    private long lastCheckPointedTx = -1;
+    private LogPosition checkPointPosition;
+    private long expectedLogBytesPerCheckPoint;
+    private LogPosition sweepStartPosition;
+    private long sweepPages;
+    private long sweptPages;
+    private File sweepFile;
+    private long sweepFilePageId;
+
+    public IncrementalCheckPointFlusher( PageCache pageCache, TransactionIdStore transactionIdStore,
+            CheckPointer checkPointer, IOLimiter ioLimiter, JobScheduler scheduler, long intervalMillis,
+            long logRotationThreshold, Log log )
+    {
+        this.pageCache = pageCache;
+        this.transactionIdStore = transactionIdStore;
+        this.checkPointer = checkPointer;
+        this.ioLimiter = ioLimiter;
+        this.scheduler = scheduler;
+        this.intervalMillis = intervalMillis;
+        this.logRotationThreshold = logRotationThreshold;
+        this.log = log;
+        // Until we've seen a check point interval, assume that one spans a log file
+        this.expectedLogBytesPerCheckPoint = Math.max( 1, logRotationThreshold );
+    }
+
+    @Override
+    public void start() throws Throwable
+    {
+        stopped = false;
+        handle = scheduler.schedule( checkPointFlush, this::flushStepAndReschedule, intervalMillis, MILLISECONDS );
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        stopped = true;
+        if ( handle != null )
+        {
+            handle.cancel( false );
+        }
+        // Taking the monitor waits for a step that is in progress to complete
+        synchronized ( this )
+        {
+            handle = null;
+        }
+    }
+
+    private void flushStepAndReschedule()
+    {
+        try
+        {
+            flushStep();
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            // Not critical, whatever wasn't flushed here will be flushed by the next check point
+            log.warn( "Incremental check point flush failed.", e );
+        }
+        if ( !stopped )
+        {
+            handle = scheduler.schedule( checkPointFlush, this::flushStepAndReschedule, intervalMillis, MILLISECONDS );
+        }
+    }
+
+    /**
+     * Flush the next part of the current sweep, as far as the volume of transaction log written since the sweep
+     * started calls for.
+     *
+     * @return the number of file pages that were swept in this step.
+     * @throws IOException if the pages could not be flushed.
+     */
+    synchronized long flushStep() throws IOException
+    {
+        if ( stopped )
+        {
+            return 0;
+        }
+        LogPosition position = lastClosedTransactionPosition();
+        long checkPointedTx = checkPointer.lastCheckPointedTransactionId();
+        if ( checkPointPosition == null || checkPointedTx != lastCheckPointedTx )
+        {
+            if ( checkPointPosition != null )
+            {
+                // A check point happened since the last step, which tells us how much log to expect until the next
+                expectedLogBytesPerCheckPoint = Math.max( 1, logBytesBetween( checkPointPosition, position ) );
+            }
+            lastCheckPointedTx = checkPointedTx;
+            checkPointPosition = position;
+            startSweep( position );
+            return 0;
+        }
+
+        double progress = (double) logBytesBetween( sweepStartPosition, position ) / expectedLogBytesPerCheckPoint;
+        long targetPages = (long) Math.ceil( Math.min( 1d, progress ) * sweepPages );
+        long maxStepPages = Math.max( 1, sweepPages / MIN_STEPS_PER_SWEEP );
+        long stepPages = Math.min( targetPages - sweptPages, maxStepPages );
+        if ( stepPages <= 0 )
+        {
+            return 0;
+        }
+        long swept = sweep( stepPages );
+        sweptPages += swept;
+        if ( swept < stepPages )
+        {
+            // We reached the end of the last file, pages dirtied since go into the next sweep
+            startSweep( position );
+        }
+        return swept;
+    }
+
+    private void startSweep( LogPosition position ) throws IOException
+    {
+        sweepStartPosition = position;
+        sweepPages = 0;
+        sweptPages = 0;
+        sweepFile = null;
+        sweepFilePageId = 0;
+        for ( File file : mappedFiles() )
+        {
+            Optional<PagedFile> mapping = pageCache.getExistingMapping( file );
+            if ( mapping.isPresent() )
+            {
+                try ( PagedFile pagedFile = mapping.get() )
+                {
+                    sweepPages += pagedFile.getLastPageId() + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush the dirty pages among the next {@code maxPages} file pages of the sweep.
+     *
+     * @return the number of file pages swept, which is less than {@code maxPages} if the end of the last file was
+     * reached.
+     */
+    private long sweep( long maxPages ) throws IOException
+    {
+        long swept = 0;
+        for ( File file : mappedFiles() )
+        {
+            int order = sweepFile == null ? 1 : file.compareTo( sweepFile );
+            if ( order < 0 )
+            {
+                // Already swept
+                continue;
+            }
+            if ( order > 0 )
+            {
+                sweepFile = file;
+                sweepFilePageId = 0;
+            }
+            // Pin the file for the duration of the flush, so that it cannot be unmapped and closed under our feet
+            Optional<PagedFile> mapping = pageCache.getExistingMapping( file );
+            if ( mapping.isPresent() )
+            {
+                try ( PagedFile pagedFile = mapping.get() )
+                {
+                    long endFilePageId = pagedFile.getLastPageId() + 1;
+                    long stepEndFilePageId = Math.min( endFilePageId, sweepFilePageId + maxPages - swept );
+                    if ( stepEndFilePageId > sweepFilePageId )
+                    {
+                        pagedFile.flushAndForceRange( sweepFilePageId, stepEndFilePageId, ioLimiter );
+                        swept += stepEndFilePageId - sweepFilePageId;
+                        sweepFilePageId = stepEndFilePageId;
+                    }
+                }
+            }
+            // else the file has been unmapped since we listed it, move on to the next one
+            if ( swept >= maxPages || stopped )
+            {
+                return swept;
+            }
+        }
+        return swept;
+    }
+
+    /**
+     * @return the files currently mapped by the page cache, in sweep order. The files are not pinned, so each one
+     * has to be looked up with {@link PageCache#getExistingMapping(File)} before it is touched.
+     */
+    private List<File> mappedFiles() throws IOException
+    {
+        List<File> files = new ArrayList<>();
+        for ( PagedFile pagedFile : pageCache.listExistingMappings() )
+        {
+            files.add( pagedFile.file() );
+        }
+        files.sort( null );
+        return files;
+    }
+
+    private LogPosition lastClosedTransactionPosition()
+    {
+        long[] lastClosedTransaction = transactionIdStore.getLastClosedTransaction();
+        return new LogPosition( lastClosedTransaction[1], lastClosedTransaction[2] );
+    }
+
+    /**
+     * Log files are rotated when they grow beyond the rotation threshold, so the volume of log between two positions
+     * in different log files is approximated by the threshold for each log file in between.
+     */
+    private long logBytesBetween( LogPosition from, LogPosition to )
+    {
+        long versions = to.getLogVersion() - from.getLogVersion();
+        if ( versions == 0 )
+        {
+            return Math.max( 0, to.getByteOffset() - from.getByteOffset() );
+        }
+        return Math.max( 0, versions * logRotationThreshold + to.getByteOffset() - from.getByteOffset() );
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compression and decompression of data in the LZ4 block format, used for the blocks of
+ * {@link LogEntryByteCodes#COMPRESSED_COMMANDS compressed commands} in the transaction log.
+ * <p>
+ * The compressor is a plain greedy single hash table matcher, trading compression ratio for speed much like the
+ * fast mode of the reference implementation. Instances keep their hash table between calls and are therefore not
+ * thread safe, decompression is stateless.
+ */
+class LZ4Codec
+{
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_DISTANCE = 0xFFFF;
+    private static final int RUN_MASK = 0xF;
+    private static final int HASH_LOG = 12;
+
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    /**
+     * @return the largest number of bytes {@link #compress(byte[], int, byte[]) compressing} {@code length}
+     * bytes can result in.
+     */
+    static int maxCompressedLength( int length )
+    {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses the first {@code length} bytes of {@code source} into {@code target}, which must have room for at
+     * least {@link #maxCompressedLength(int)} bytes.
+     *
+     * @return number of bytes written to {@code target}.
+     */
+    int compress( byte[] source, int length, byte[] target )
+    {
+        Arrays.fill( hashTable, -1 );
+        int anchor = 0;
+        int out = 0;
+        int position = 0;
+        int matchStartLimit = length - MATCH_FIND_LIMIT;
+        int matchEndLimit = length - LAST_LITERALS;
+        while ( position < matchStartLimit )
+        {
+            int sequence = getInt( source, position );
+            int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+            int candidate = hashTable[hash];
+            hashTable[hash] = position;
+            if ( candidate < 0 || position - candidate > MAX_DISTANCE || getInt( source, candidate ) != sequence )
+            {
+                position++;
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while ( position + matchLength < matchEndLimit &&
+                    source[candidate + matchLength] == source[position + matchLength] )
+            {
+                matchLength++;
+            }
+            out = writeSequence( source, anchor, position - anchor, target, out, position - candidate, matchLength );
+            position += matchLength;
+            anchor = position;
+        }
+        return writeLastLiterals( source, anchor, length - anchor, target, out );
+    }
+
+    private static int writeSequence( byte[] source, int literalStart, int literalLength, byte[] target, int out,
+            int offset, int matchLength )
+    {
+        int token = out++;
+        out = writeLength( target, out, literalLength );
+        System.arraycopy( source, literalStart, target, out, literalLength );
+        out += literalLength;
+        target[out++] = (byte) offset;
+        target[out++] = (byte) (offset >>> 8);
+        out = writeLength( target, out, matchLength - MIN_MATCH );
+        target[token] = (byte) ((Math.min( literalLength, RUN_MASK ) << 4) |
+                                Math.min( matchLength - MIN_MATCH, RUN_MASK ));
+        return out;
+    }
+
+    private static int writeLastLiterals( byte[] source, int literalStart, int literalLength, byte[] target, int out )
+    {
+        target[out++] = (byte) (Math.min( literalLength, RUN_MASK ) << 4);
+        out = writeLength( target, out, literalLength );
+        System.arraycopy( source, literalStart, target, out, literalLength );
+        return out + literalLength;
+    }
+
+    /**
+     * Writes the bytes following the token for lengths that don't fit in the four bits of the token.
+     */
+    private static int writeLength( byte[] target, int out, int length )
+    {
+        if ( length >= RUN_MASK )
+        {
+            int remaining = length - RUN_MASK;
+            while ( remaining >= 0xFF )
+            {
+                target[out++] = (byte) 0xFF;
+                remaining -= 0xFF;
+            }
+            target[out++] = (byte) remaining;
+        }
+        return out;
+    }
+
+    /**
+     * Decompresses {@code sourceLength} bytes of LZ4 compressed data in {@code source} into the {@code length}
+     * first bytes of {@code target}.
+     *
+     * @throws IOException if the compressed data is malformed or doesn't decompress into exactly {@code length} bytes.
+     */
+    static void decompress( byte[] source, int sourceLength, byte[] target, int length ) throws IOException
+    {
+        int in = 0;
+        int out = 0;
+        while ( true )
+        {
+            checkBounds( in < sourceLength );
+            int token = source[in++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if ( literalLength == RUN_MASK )
+            {
+                int next;
+                do
+                {
+                    checkBounds( in < sourceLength );
+                    next = source[in++] & 0xFF;
+                    literalLength += next;
+                }
+                while ( next == 0xFF );
+            }
+            checkBounds( literalLength <= sourceLength - in && literalLength <= length - out );
+            System.arraycopy( source, in, target, out, literalLength );
+            in += literalLength;
+            out += literalLength;
+            if ( in == sourceLength )
+            {
+                // The last sequence has literals only
+                break;
+            }
+
+            checkBounds( in + 2 <= sourceLength );
+            int offset = (source[in++] & 0xFF) | ((source[in++] & 0xFF) << 8);
+            checkBounds( offset > 0 && offset <= out );
+            int matchLength = token & RUN_MASK;
+            if ( matchLength == RUN_MASK )
+            {
+                int next;
+                do
+                {
+                    checkBounds( in < sourceLength );
+                    next = source[in++] & 0xFF;
+                    matchLength += next;
+                }
+                while ( next == 0xFF );
+            }
+            matchLength += MIN_MATCH;
+            checkBounds( matchLength <= length - out );
+            // Matches may overlap the bytes they produce, so copy byte by byte
+            for ( int i = 0; i < matchLength; i++, out++ )
+            {
+                target[out] = target[out - offset];
+            }
+        }
+        if ( out != length )
+        {
+            throw new IOException( "Compressed block decompressed into " + out + " bytes, expected " + length );
+        }
+    }
+
+    private static void checkBounds( boolean withinBounds ) throws IOException
+    {
+        if ( !withinBounds )
+        {
+            throw new IOException( "Malformed compressed block" );
+        }
+    }
+
+    private static int getInt( byte[] bytes, int position )
+    {
+        return (bytes[position] & 0xFF) | ((bytes[position + 1] & 0xFF) << 8) |
+               ((bytes[position + 2] & 0xFF) << 16) | ((bytes[position + 3] & 0xFF) << 24);
+    }
+}
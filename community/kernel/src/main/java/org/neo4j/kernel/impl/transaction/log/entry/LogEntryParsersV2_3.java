@@ -20,7 +20,10 @@
 package org.neo4j.kernel.impl.transaction.log.entry;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
 import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
 import org.neo4j.kernel.impl.transaction.log.ReadableClosableChannel;
@@ -125,6 +128,59 @@ public enum LogEntryParsersV2_3 implements LogEntryParser<LogEntry>
                     return LogEntryByteCodes.CHECK_POINT;
                 }
 
+                @Override
+                public boolean skip()
+                {
+                    return false;
+                }
+            },
+
+    COMPRESSED_COMMANDS
+            {
+                @Override
+                public LogEntry parse( LogEntryVersion version, ReadableClosableChannel channel, LogPositionMarker marker,
+                                       CommandReaderFactory commandReader ) throws IOException
+                {
+                    int length = channel.getInt();
+                    int compressedLength = channel.getInt();
+                    // Check the lengths before allocating for them, a corrupt block could ask for any amount
+                    if ( length < 0 || length > LogEntryWriter.MAX_COMPRESSED_BLOCK_SIZE || compressedLength < 0 ||
+                         compressedLength > LZ4Codec.maxCompressedLength( length ) )
+                    {
+                        throw new IOException( "Invalid compressed block of " + compressedLength +
+                                               " bytes, decompressing into " + length + " bytes" );
+                    }
+                    byte[] compressed = new byte[compressedLength];
+                    channel.get( compressed, compressedLength );
+                    byte[] data = new byte[length];
+                    LZ4Codec.decompress( compressed, compressedLength, data, length );
+
+                    // The block contains ordinary command entries, each with its own version
+                    InMemoryClosableChannel block = new InMemoryClosableChannel( data, true );
+                    List<StorageCommand> commands = new ArrayList<>();
+                    while ( block.availableBytesToRead() > 0 )
+                    {
+                        byte commandVersion = block.get();
+                        byte type = block.get();
+                        if ( type != LogEntryByteCodes.COMMAND )
+                        {
+                            throw new IOException( "Unexpected entry type " + type + " in compressed block" );
+                        }
+                        StorageCommand command = commandReader.byVersion( commandVersion ).read( block );
+                        if ( command != null )
+                        {
+                            commands.add( command );
+                        }
+                    }
+                    return new LogEntryCompressedCommands( version, commands );
+                }
+
+                @Override
+                public byte byteCode()
+                {
+                    return LogEntryByteCodes.COMPRESSED_COMMANDS;
+                }
+
                 @Override
                 public boolean skip()
                 {
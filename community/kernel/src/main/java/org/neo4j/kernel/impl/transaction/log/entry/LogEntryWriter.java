@@ -20,33 +20,75 @@
 package org.neo4j.kernel.impl.transaction.log.entry;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.function.BooleanSupplier;
 
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.FlushableChannel;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
 import org.neo4j.storageengine.api.StorageCommand;
+import org.neo4j.storageengine.api.WritableChannel;
 
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.CHECK_POINT;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMMAND;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMPRESSED_COMMANDS;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_1P_COMMIT;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_START;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersion.CURRENT;
 
 public class LogEntryWriter
 {
+    /**
+     * Commands of a transaction are compressed in blocks of about this size, so that neither writing nor reading
+     * a large transaction needs to keep all of it in memory at once.
+     */
+    private static final int COMPRESSION_BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * Blocks larger than this are never compressed, so that readers can reject the decompressed length of a
+     * corrupt block before allocating for it. A block only grows beyond {@link #COMPRESSION_BLOCK_SIZE} by its last
+     * command, so only blocks ending in a huge command are written uncompressed.
+     */
+    static final int MAX_COMPRESSED_BLOCK_SIZE = 4 * COMPRESSION_BLOCK_SIZE;
+
+    /**
+     * Blocks smaller than this are written uncompressed, compressing them gains too little to be worth it.
+     */
+    private static final int MIN_COMPRESSION_SIZE = 128;
+
+    /**
+     * Offset of the transaction id within an entry written by {@link #writeCommitEntry(long, long)}, i.e. right after
+     * the version and type of the entry.
+     */
+    public static final int COMMIT_ENTRY_TRANSACTION_ID_OFFSET = 2;
+
     private final FlushableChannel channel;
     private final Visitor<StorageCommand,IOException> serializer;
+    private final BooleanSupplier compressCommands;
+    private CompressingCommandSerializer compressingSerializer;
 
     /**
      * Create a writer that uses {@link LogEntryVersion#CURRENT} for versioning.
      * @param channel underlying channel
      */
     public LogEntryWriter( FlushableChannel channel )
+    {
+        this( channel, () -> false );
+    }
+
+    /**
+     * Create a writer that uses {@link LogEntryVersion#CURRENT} for versioning.
+     * @param channel underlying channel
+     * @param compressCommands asked for every {@link #serialize(TransactionRepresentation) serialized transaction}
+     * whether to write its commands in LZ4 compressed blocks, see {@link LogEntryByteCodes#COMPRESSED_COMMANDS}.
+     */
+    public LogEntryWriter( FlushableChannel channel, BooleanSupplier compressCommands )
     {
         this.channel = channel;
         this.serializer = new StorageCommandSerializer( channel );
+        this.compressCommands = compressCommands;
     }
 
     private void writeLogEntryHeader( byte type ) throws IOException
@@ -70,7 +112,19 @@ public class LogEntryWriter
 
     public void serialize( TransactionRepresentation tx ) throws IOException
     {
-        tx.accept( serializer );
+        if ( compressCommands.getAsBoolean() )
+        {
+            if ( compressingSerializer == null )
+            {
+                compressingSerializer = new CompressingCommandSerializer();
+            }
+            tx.accept( compressingSerializer );
+            compressingSerializer.writeBlock();
+        }
+        else
+        {
+            tx.accept( serializer );
+        }
     }
 
     public void serialize( Collection<StorageCommand> commands ) throws IOException
@@ -88,11 +142,11 @@ public class LogEntryWriter
                 putLong( logPosition.getByteOffset() );
     }
 
-    private class StorageCommandSerializer implements Visitor<StorageCommand,IOException>
+    private static class StorageCommandSerializer implements Visitor<StorageCommand,IOException>
     {
-        private final FlushableChannel channel;
+        private final WritableChannel channel;
 
-        StorageCommandSerializer( FlushableChannel channel )
+        StorageCommandSerializer( WritableChannel channel )
         {
             this.channel = channel;
         }
@@ -100,9 +154,152 @@ public class LogEntryWriter
         @Override
         public boolean visit( StorageCommand command ) throws IOException
         {
-            writeLogEntryHeader( COMMAND );
+            channel.put( CURRENT.byteCode() ).put( COMMAND );
             command.serialize( channel );
             return false;
         }
     }
+
+    /**
+     * Serializes command entries into an in-memory block, which is written as a single
+     * {@link LogEntryByteCodes#COMPRESSED_COMMANDS} entry when full or when the transaction ends.
+     * Blocks that don't compress well are written as the plain command entries they contain.
+     */
+    private class CompressingCommandSerializer implements Visitor<StorageCommand,IOException>
+    {
+        private final BlockChannel block = new BlockChannel();
+        private final StorageCommandSerializer blockSerializer = new StorageCommandSerializer( block );
+        private final LZ4Codec codec = new LZ4Codec();
+        private byte[] compressed = new byte[0];
+
+        @Override
+        public boolean visit( StorageCommand command ) throws IOException
+        {
+            blockSerializer.visit( command );
+            if ( block.size() >= COMPRESSION_BLOCK_SIZE )
+            {
+                writeBlock();
+            }
+            return false;
+        }
+
+        void writeBlock() throws IOException
+        {
+            int length = block.size();
+            if ( length == 0 )
+            {
+                return;
+            }
+            int compressedLength = length;
+            if ( length >= MIN_COMPRESSION_SIZE && length <= MAX_COMPRESSED_BLOCK_SIZE )
+            {
+                int maxCompressedLength = LZ4Codec.maxCompressedLength( length );
+                if ( compressed.length < maxCompressedLength )
+                {
+                    compressed = new byte[maxCompressedLength];
+                }
+                compressedLength = codec.compress( block.bytes(), length, compressed );
+            }
+
+            if ( compressedLength < length )
+            {
+                writeLogEntryHeader( COMPRESSED_COMMANDS );
+                channel.putInt( length ).putInt( compressedLength ).put( compressed, compressedLength );
+            }
+            else
+            {
+                channel.put( block.bytes(), length );
+            }
+            block.clear();
+        }
+    }
+
+    /**
+     * A growing in-memory {@link WritableChannel}.
+     */
+    private static class BlockChannel implements WritableChannel
+    {
+        private ByteBuffer buffer = ByteBuffer.allocate( 8 * 1024 );
+
+        int size()
+        {
+            return buffer.position();
+        }
+
+        byte[] bytes()
+        {
+            return buffer.array();
+        }
+
+        void clear()
+        {
+            if ( buffer.capacity() > COMPRESSION_BLOCK_SIZE * 2 )
+            {
+                // Don't hold on to the memory of an unusually large command
+                buffer = ByteBuffer.allocate( COMPRESSION_BLOCK_SIZE * 2 );
+            }
+            buffer.clear();
+        }
+
+        private ByteBuffer ensureCapacity( int bytes )
+        {
+            if ( buffer.remaining() < bytes )
+            {
+                ByteBuffer grown = ByteBuffer.allocate( Math.max( buffer.capacity() * 2, buffer.position() + bytes ) );
+                buffer.flip();
+                grown.put( buffer );
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        @Override
+        public BlockChannel put( byte value )
+        {
+            ensureCapacity( Byte.BYTES ).put( value );
+            return this;
+        }
+
+        @Override
+        public BlockChannel putShort( short value )
+        {
+            ensureCapacity( Short.BYTES ).putShort( value );
+            return this;
+        }
+
+        @Override
+        public BlockChannel putInt( int value )
+        {
+            ensureCapacity( Integer.BYTES ).putInt( value );
+            return this;
+        }
+
+        @Override
+        public BlockChannel putLong( long value )
+        {
+            ensureCapacity( Long.BYTES ).putLong( value );
+            return this;
+        }
+
+        @Override
+        public BlockChannel putFloat( float value )
+        {
+            ensureCapacity( Float.BYTES ).putFloat( value );
+            return this;
+        }
+
+        @Override
+        public BlockChannel putDouble( double value )
+        {
+            ensureCapacity( Double.BYTES ).putDouble( value );
+            return this;
+        }
+
+        @Override
+        public BlockChannel put( byte[] value, int length )
+        {
+            ensureCapacity( length ).put( value, 0, length );
+            return this;
+        }
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.neo4j.kernel.impl.transaction.log.entry;
 
+import static org.neo4j.kernel.impl.transaction.log.entry.LogVersions.COMPRESSED_LOG_VERSION;
+
 public class LogHeader
 {
     public static final int LOG_HEADER_SIZE = 16;
@@ -34,6 +36,15 @@ public class LogHeader
         this.lastCommittedTxId = lastCommittedTxId;
     }
 
+    /**
+     * @return {@code true} if transactions in this log may have their commands written in
+     * {@link LogEntryByteCodes#COMPRESSED_COMMANDS compressed blocks}.
+     */
+    public boolean hasCompressedCommands()
+    {
+        return logFormatVersion == COMPRESSED_LOG_VERSION;
+    }
+
     @Override
     public boolean equals( Object o )
     {
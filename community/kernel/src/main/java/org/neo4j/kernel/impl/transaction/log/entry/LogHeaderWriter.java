@@ -29,6 +29,7 @@ import org.neo4j.kernel.impl.transaction.log.FlushableChannel;
 
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogVersions.CURRENT_FORMAT_VERSION;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogVersions.CURRENT_LOG_VERSION;
 
 public class LogHeaderWriter
 {
@@ -44,9 +45,15 @@ public class LogHeaderWriter
     }
 
     public static ByteBuffer writeLogHeader( ByteBuffer buffer, long logVersion, long previousCommittedTxId )
+    {
+        return writeLogHeader( buffer, logVersion, CURRENT_LOG_VERSION, previousCommittedTxId );
+    }
+
+    public static ByteBuffer writeLogHeader( ByteBuffer buffer, long logVersion, byte logFormatVersion,
+            long previousCommittedTxId )
     {
         buffer.clear();
-        buffer.putLong( encodeLogVersion( logVersion ) );
+        buffer.putLong( encodeLogVersion( logVersion, logFormatVersion ) );
         buffer.putLong( previousCommittedTxId );
         buffer.flip();
         return buffer;
@@ -71,6 +78,11 @@ public class LogHeaderWriter
 
     public static long encodeLogVersion( long logVersion )
     {
-        return logVersion | (((long) CURRENT_FORMAT_VERSION) << 56);
+        return encodeLogVersion( logVersion, CURRENT_FORMAT_VERSION );
+    }
+
+    public static long encodeLogVersion( long logVersion, long logFormatVersion )
+    {
+        return logVersion | ((logFormatVersion & 0xFF) << 56);
     }
 }
@@ -39,6 +39,11 @@ public class LogVersions
     // Please don't add more since they aren't really used anyway.
     public static final byte CURRENT_LOG_VERSION = 6;
 
+    // Format version of logs written with dbms.tx_log.compression.enabled, where the commands of transactions may
+    // be written in LZ4 compressed blocks, see LogEntryByteCodes#COMPRESSED_COMMANDS. Readers handle logs of
+    // either format, the header only records how a log was written.
+    public static final byte COMPRESSED_LOG_VERSION = 7;
+
     // on disk current format version
     static final short CURRENT_FORMAT_VERSION = CURRENT_LOG_VERSION & 0xFF;
 }
@@ -19,7 +19,17 @@
  */
 package org.neo4j.kernel.impl.transaction.state.storeview;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.collection.primitive.PrimitiveLongResourceIterator;
 import org.neo4j.kernel.impl.api.index.StoreScan;
 import org.neo4j.kernel.impl.locking.Lock;
@@ -28,33 +38,64 @@ import org.neo4j.kernel.impl.store.NodeStore;
 import org.neo4j.kernel.impl.store.StoreIdIterator;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.storageengine.api.schema.PopulationProgress;
+import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
 
+import static org.neo4j.helpers.NamedThreadFactory.daemon;
 import static org.neo4j.kernel.impl.store.record.RecordLoad.FORCE;
 
 /**
  * Node scanner that will perform some sort of process over set of nodes
  * from nodeStore {@link NodeStore} based on node ids supplied by underlying store aware id iterator.
+ * <p>
+ * When the scan {@link #allowParallelScan() allows it} node ids are split up into chunks of consecutive ids
+ * which are read by a number of scan workers, each with its own record. Only reading of records happens
+ * in parallel, implementations of {@link #process(NodeRecord)} must serialize calls to their visitors.
+ * Which nodes have been scanned so far is answered by {@link #isScanned(long, long)}.
+ *
  * @param <FAILURE> type of exception thrown on failure
  */
 public abstract class NodeStoreScan<FAILURE extends Exception> implements StoreScan<FAILURE>
 {
+    static final String WORKERS_NAME = "workers";
+    static final String CHUNK_SIZE_NAME = "chunk_size";
+
+    private static final String SCAN_THREAD_NAME_PREFIX = "Index Population Scan Thread";
+    private static final int WORKERS = FeatureToggles.getInteger( NodeStoreScan.class, WORKERS_NAME,
+            Runtime.getRuntime().availableProcessors() );
+    private static final int CHUNK_SIZE = FeatureToggles.getInteger( NodeStoreScan.class, CHUNK_SIZE_NAME, 10_000 );
+
     private volatile boolean continueScanning;
     private final NodeRecord record;
 
     protected final NodeStore nodeStore;
     protected final LockService locks;
     private final long totalCount;
+    private final int workers;
+    private final int chunkSize;
 
-    private long count;
+    private final AtomicLong count = new AtomicLong();
+
+    // State of a parallel scan: chunks up to and including dispatchedUpTo have been handed out to scan workers,
+    // chunks which are still being scanned are kept in chunksInProgress until completed.
+    private volatile boolean parallel;
+    private volatile long dispatchedUpTo = -1;
+    private final Set<Chunk> chunksInProgress = ConcurrentHashMap.newKeySet();
 
     public abstract void process( NodeRecord loaded ) throws FAILURE;
 
     public NodeStoreScan( NodeStore nodeStore, LockService locks, long totalCount )
+    {
+        this( nodeStore, locks, totalCount, WORKERS, CHUNK_SIZE );
+    }
+
+    NodeStoreScan( NodeStore nodeStore, LockService locks, long totalCount, int workers, int chunkSize )
     {
         this.nodeStore = nodeStore;
         this.record = nodeStore.newRecord();
         this.locks = locks;
         this.totalCount = totalCount;
+        this.workers = workers;
+        this.chunkSize = chunkSize;
     }
 
     @Override
@@ -63,19 +104,196 @@ public abstract class NodeStoreScan<FAILURE extends Exception> implements StoreS
         try ( PrimitiveLongResourceIterator nodeIds = getNodeIdIterator() )
         {
             continueScanning = true;
+            if ( workers > 1 && allowParallelScan() )
+            {
+                runInParallel( nodeIds );
+                return;
+            }
+
+            while ( continueScanning && nodeIds.hasNext() )
+            {
+                scan( nodeIds.next(), record, null );
+            }
+        }
+    }
+
+    private void runInParallel( PrimitiveLongIterator nodeIds ) throws FAILURE
+    {
+        parallel = true;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Semaphore permits = new Semaphore( workers * 2 );
+        ExecutorService executor = null;
+        try
+        {
             while ( continueScanning && nodeIds.hasNext() )
             {
-                long id = nodeIds.next();
-                try ( Lock ignored = locks.acquireNodeLock( id, LockService.LockType.READ_LOCK ) )
+                Chunk chunk = nextChunk( nodeIds );
+                chunksInProgress.add( chunk );
+                dispatchedUpTo = chunk.lastId();
+                if ( executor == null && !nodeIds.hasNext() )
                 {
-                    count++;
-                    if ( nodeStore.getRecord( id, record, FORCE ).inUse() )
+                    // Everything fits in one chunk, no need to spin up any workers
+                    scan( chunk, record );
+                    break;
+                }
+
+                if ( executor == null )
+                {
+                    executor = Executors.newFixedThreadPool( workers, daemon( SCAN_THREAD_NAME_PREFIX ) );
+                }
+                permits.acquire();
+                executor.execute( () ->
+                {
+                    try
                     {
-                        process( record );
+                        scan( chunk, nodeStore.newRecord() );
                     }
-                }
+                    catch ( Throwable t )
+                    {
+                        failure.compareAndSet( null, t );
+                        continueScanning = false;
+                    }
+                    finally
+                    {
+                        permits.release();
+                    }
+                } );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            continueScanning = false;
+            failure.compareAndSet( null, e );
+        }
+        finally
+        {
+            if ( executor != null )
+            {
+                awaitTermination( executor );
+            }
+        }
+        throwIfFailed( failure.get() );
+    }
+
+    private Chunk nextChunk( PrimitiveLongIterator nodeIds )
+    {
+        long[] ids = new long[chunkSize];
+        int size = 0;
+        while ( size < chunkSize && nodeIds.hasNext() )
+        {
+            ids[size++] = nodeIds.next();
+        }
+        return new Chunk( ids, size );
+    }
+
+    private void scan( Chunk chunk, NodeRecord record ) throws FAILURE
+    {
+        for ( int i = 0; i < chunk.size && continueScanning; i++ )
+        {
+            scan( chunk.ids[i], record, chunk );
+        }
+        if ( continueScanning )
+        {
+            chunksInProgress.remove( chunk );
+        }
+    }
+
+    private void scan( long id, NodeRecord record, Chunk chunk ) throws FAILURE
+    {
+        try ( Lock ignored = locks.acquireNodeLock( id, LockService.LockType.READ_LOCK ) )
+        {
+            count.incrementAndGet();
+            if ( nodeStore.getRecord( id, record, FORCE ).inUse() )
+            {
+                process( record );
+            }
+            if ( chunk != null )
+            {
+                // Marked while still holding the node lock so that no update for this node can sneak in between
+                chunk.scannedUpTo = id;
+            }
+        }
+    }
+
+    private static void awaitTermination( ExecutorService executor )
+    {
+        executor.shutdown();
+        boolean interrupted = false;
+        while ( !executor.isTerminated() )
+        {
+            try
+            {
+                executor.awaitTermination( 1, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void throwIfFailed( Throwable failure ) throws FAILURE
+    {
+        if ( failure == null )
+        {
+            return;
+        }
+        if ( failure instanceof RuntimeException )
+        {
+            throw (RuntimeException) failure;
+        }
+        if ( failure instanceof Error )
+        {
+            throw (Error) failure;
+        }
+        if ( failure instanceof InterruptedException )
+        {
+            throw new RuntimeException( "Interrupted while scanning nodes", failure );
+        }
+        // the only checked exception process can throw
+        throw (FAILURE) failure;
+    }
+
+    /**
+     * @return whether or not nodes may be read by multiple scan workers, visiting nodes out of id order.
+     */
+    protected boolean allowParallelScan()
+    {
+        return true;
+    }
+
+    /**
+     * Whether or not the given node has been visited by this scan, used for deciding whether or not to apply
+     * concurrent updates to nodes while scanning.
+     *
+     * @param nodeId id of node to check.
+     * @param currentlyIndexedNodeId id of the node most recently visited, as seen by the visitor.
+     * @return {@code true} if the node has been scanned, otherwise {@code false}.
+     */
+    protected boolean isScanned( long nodeId, long currentlyIndexedNodeId )
+    {
+        if ( !parallel || currentlyIndexedNodeId == Long.MAX_VALUE )
+        {
+            return nodeId <= currentlyIndexedNodeId;
+        }
+        if ( nodeId > dispatchedUpTo )
+        {
+            return false;
+        }
+        for ( Chunk chunk : chunksInProgress )
+        {
+            if ( chunk.contains( nodeId ) )
+            {
+                return nodeId <= chunk.scannedUpTo;
             }
         }
+        return true;
     }
 
     protected PrimitiveLongResourceIterator getNodeIdIterator()
@@ -94,10 +312,37 @@ public abstract class NodeStoreScan<FAILURE extends Exception> implements StoreS
     {
         if ( totalCount > 0 )
         {
-            return new PopulationProgress( count, totalCount );
+            // sum of progress of all scan workers
+            return new PopulationProgress( count.get(), totalCount );
         }
 
         // nothing to do 100% completed
         return PopulationProgress.DONE;
     }
+
+    /**
+     * Consecutive node ids, in ascending order, read by one scan worker.
+     */
+    private static class Chunk
+    {
+        private final long[] ids;
+        private final int size;
+        private volatile long scannedUpTo = -1;
+
+        Chunk( long[] ids, int size )
+        {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        long lastId()
+        {
+            return ids[size - 1];
+        }
+
+        boolean contains( long nodeId )
+        {
+            return nodeId >= ids[0] && nodeId <= lastId();
+        }
+    }
 }
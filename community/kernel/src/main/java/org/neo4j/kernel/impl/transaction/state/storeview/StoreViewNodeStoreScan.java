@@ -113,11 +113,22 @@ public class StoreViewNodeStoreScan<FAILURE extends Exception> extends NodeStore
 
             if ( hasRelevantProperty )
             {
-                propertyUpdatesVisitor.visit( updates.build() );
+                // Records may be read by multiple scan workers, but the visitor only sees one node at a time
+                synchronized ( this )
+                {
+                    propertyUpdatesVisitor.visit( updates.build() );
+                }
             }
         }
     }
 
+    @Override
+    protected boolean allowParallelScan()
+    {
+        // label updates must be visited in node id order
+        return labelUpdateVisitor == null;
+    }
+
     private Iterable<PropertyBlock> properties( final NodeRecord node )
     {
         return () -> new PropertyBlockIterator( node );
@@ -146,7 +157,7 @@ public class StoreViewNodeStoreScan<FAILURE extends Exception> extends NodeStore
     public void acceptUpdate( MultipleIndexPopulator.MultipleIndexUpdater updater, IndexEntryUpdate<?> update,
             long currentlyIndexedNodeId )
     {
-        if ( update.getEntityId() <= currentlyIndexedNodeId )
+        if ( isScanned( update.getEntityId(), currentlyIndexedNodeId ) )
         {
             updater.process( update );
         }
@@ -21,11 +21,14 @@ package org.neo4j.kernel.impl.util;
 
 import java.util.Iterator;
 import java.util.Set;
+import java.util.function.LongPredicate;
 
 import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphdb.Resource;
 
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.toPrimitiveIterator;
+
 /**
  * Applies a diffset to the given source PrimitiveLongIterator.
  * If the given source is a Resource, then so is this DiffApplyingPrimitiveLongIterator.
@@ -65,18 +68,29 @@ public class DiffApplyingPrimitiveLongIterator extends PrimitiveLongBaseIterator
     }
 
     private final PrimitiveLongIterator source;
-    private final Iterator<?> addedElementsIterator;
-    private final Set<?> addedElements;
-    private final Set<?> removedElements;
+    private final PrimitiveLongIterator addedElementsIterator;
+    private final LongPredicate addedOrRemoved;
     protected Phase phase;
 
+    @SuppressWarnings( "unchecked" )
     public DiffApplyingPrimitiveLongIterator( PrimitiveLongIterator source,
                                               Set<?> addedElements, Set<?> removedElements )
+    {
+        this( source, toPrimitiveIterator( (Iterator<Long>) addedElements.iterator() ),
+                value -> removedElements.contains( value ) || addedElements.contains( value ) );
+    }
+
+    /**
+     * @param addedElements elements to return after those of the source.
+     * @param addedOrRemoved tells whether an element of the source has been added or removed, in which case
+     * it's not returned from the source.
+     */
+    public DiffApplyingPrimitiveLongIterator( PrimitiveLongIterator source,
+                                              PrimitiveLongIterator addedElements, LongPredicate addedOrRemoved )
     {
         this.source = source;
-        this.addedElements = addedElements;
-        this.addedElementsIterator = addedElements.iterator();
-        this.removedElements = removedElements;
+        this.addedElementsIterator = addedElements;
+        this.addedOrRemoved = addedOrRemoved;
         phase = Phase.FILTERED_SOURCE;
     }
 
@@ -91,7 +105,7 @@ public class DiffApplyingPrimitiveLongIterator extends PrimitiveLongBaseIterator
         while ( source.hasNext() )
         {
             long value = source.next();
-            if ( !removedElements.contains( value ) && !addedElements.contains( value ) )
+            if ( !addedOrRemoved.test( value ) )
             {
                 return next( value );
             }
@@ -107,7 +121,7 @@ public class DiffApplyingPrimitiveLongIterator extends PrimitiveLongBaseIterator
 
     private boolean computeNextFromAddedElements()
     {
-        return addedElementsIterator.hasNext() && next((Long) addedElementsIterator.next());
+        return addedElementsIterator.hasNext() && next( addedElementsIterator.next() );
     }
 
     @Override
@@ -20,7 +20,9 @@
 package org.neo4j.kernel.impl.util;
 
 import java.util.Set;
+import java.util.function.LongPredicate;
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphdb.Resource;
 import org.neo4j.kernel.impl.api.RelationshipVisitor;
 import org.neo4j.kernel.impl.api.store.RelationshipIterator;
@@ -43,6 +45,15 @@ public class DiffApplyingRelationshipIterator extends DiffApplyingPrimitiveLongI
         this.addedHome = addedHome;
     }
 
+    public DiffApplyingRelationshipIterator( RelationshipIterator source,
+                                             PrimitiveLongIterator addedElements, LongPredicate addedOrRemoved,
+                                             RelationshipVisitor.Home addedHome )
+    {
+        super( source, addedElements, addedOrRemoved );
+        this.sourceHome = source;
+        this.addedHome = addedHome;
+    }
+
     @Override
     public <EXCEPTION extends Exception> boolean relationshipVisit( long relId,
             RelationshipVisitor<EXCEPTION> visitor ) throws EXCEPTION
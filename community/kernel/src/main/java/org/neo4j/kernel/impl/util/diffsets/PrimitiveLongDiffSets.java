@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.diffsets;
+
+import java.util.function.Predicate;
+
+import org.neo4j.collection.primitive.PrimitiveIntIterator;
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.impl.util.DiffApplyingPrimitiveIntIterator;
+import org.neo4j.kernel.impl.util.DiffApplyingPrimitiveLongIterator;
+import org.neo4j.storageengine.api.txstate.ReadableDiffSets;
+
+/**
+ * {@link DiffSets} of {@code long} ids, kept in primitive sets.
+ */
+public class PrimitiveLongDiffSets extends SuperPrimitiveLongDiffSets<PrimitiveLongIterator>
+        implements ReadableDiffSets<Long>
+{
+    @Override
+    public PrimitiveLongIterator augment( final PrimitiveLongIterator source )
+    {
+        return new DiffApplyingPrimitiveLongIterator( source, addedElements(), this::isAddedOrRemoved );
+    }
+
+    @Override
+    public PrimitiveIntIterator augment( final PrimitiveIntIterator source )
+    {
+        return new DiffApplyingPrimitiveIntIterator( source, getAdded(), getRemoved() );
+    }
+
+    @Override
+    public PrimitiveLongIterator augmentWithRemovals( final PrimitiveLongIterator source )
+    {
+        return new DiffApplyingPrimitiveLongIterator( source, PrimitiveLongCollections.emptyIterator(),
+                this::isRemoved );
+    }
+
+    @Override
+    public PrimitiveLongDiffSets filterAdded( Predicate<Long> addedFilter )
+    {
+        return copyTo( new PrimitiveLongDiffSets(), addedFilter );
+    }
+}
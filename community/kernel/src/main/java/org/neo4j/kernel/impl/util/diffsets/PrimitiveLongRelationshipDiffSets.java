@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.diffsets;
+
+import java.util.function.Predicate;
+
+import org.neo4j.collection.primitive.PrimitiveIntIterator;
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.kernel.impl.api.RelationshipVisitor;
+import org.neo4j.kernel.impl.api.RelationshipVisitor.Home;
+import org.neo4j.kernel.impl.api.store.RelationshipIterator;
+import org.neo4j.kernel.impl.util.DiffApplyingPrimitiveIntIterator;
+import org.neo4j.kernel.impl.util.DiffApplyingRelationshipIterator;
+import org.neo4j.storageengine.api.txstate.ReadableRelationshipDiffSets;
+
+/**
+ * {@link RelationshipDiffSets} of {@code long} relationship ids, kept in primitive sets.
+ */
+public class PrimitiveLongRelationshipDiffSets extends SuperPrimitiveLongDiffSets<RelationshipIterator>
+        implements ReadableRelationshipDiffSets<Long>
+{
+    private final Home txStateRelationshipHome;
+
+    public PrimitiveLongRelationshipDiffSets( RelationshipVisitor.Home txStateRelationshipHome )
+    {
+        this.txStateRelationshipHome = txStateRelationshipHome;
+    }
+
+    @Override
+    public RelationshipIterator augment( final RelationshipIterator source )
+    {
+        return new DiffApplyingRelationshipIterator( source, addedElements(), this::isAddedOrRemoved,
+                txStateRelationshipHome );
+    }
+
+    @Override
+    public PrimitiveIntIterator augment( final PrimitiveIntIterator source )
+    {
+        return new DiffApplyingPrimitiveIntIterator( source, getAdded(), getRemoved() );
+    }
+
+    @Override
+    public RelationshipIterator augmentWithRemovals( final RelationshipIterator source )
+    {
+        return new DiffApplyingRelationshipIterator( source, PrimitiveLongCollections.emptyIterator(),
+                this::isRemoved, txStateRelationshipHome );
+    }
+
+    @Override
+    public PrimitiveLongRelationshipDiffSets filterAdded( Predicate<Long> addedFilter )
+    {
+        return copyTo( new PrimitiveLongRelationshipDiffSets( txStateRelationshipHome ), addedFilter );
+    }
+}
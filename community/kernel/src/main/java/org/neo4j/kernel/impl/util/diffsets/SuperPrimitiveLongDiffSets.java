@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.diffsets;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.kernel.api.exceptions.schema.ConstraintValidationException;
+import org.neo4j.kernel.api.exceptions.schema.CreateConstraintFailureException;
+import org.neo4j.storageengine.api.txstate.DiffSetsVisitor;
+import org.neo4j.storageengine.api.txstate.SuperReadableDiffSets;
+
+import static java.lang.String.format;
+
+/**
+ * Super class of readable diffsets of {@code long} ids, like {@link SuperDiffSets}, but keeping the ids in
+ * {@link VersionedPrimitiveLongSet primitive sets} instead of sets of boxed {@link Long}, which makes a difference
+ * for the memory footprint and garbage of transactions touching lots of entities. Use of
+ * {@link PrimitiveLongIterator} can be parameterized to a specific subclass.
+ */
+abstract class SuperPrimitiveLongDiffSets<LONGITERATOR extends PrimitiveLongIterator>
+        implements SuperReadableDiffSets<Long,LONGITERATOR>
+{
+    private VersionedPrimitiveLongSet addedElements;
+    private VersionedPrimitiveLongSet removedElements;
+
+    @Override
+    public void accept( DiffSetsVisitor<Long> visitor )
+            throws ConstraintValidationException, CreateConstraintFailureException
+    {
+        PrimitiveLongIterator added = addedElements();
+        while ( added.hasNext() )
+        {
+            visitor.visitAdded( added.next() );
+        }
+        PrimitiveLongIterator removed = removedElements();
+        while ( removed.hasNext() )
+        {
+            visitor.visitRemoved( removed.next() );
+        }
+    }
+
+    public boolean add( long elem )
+    {
+        boolean wasRemoved = removedElements != null && removedElements.remove( elem );
+        // Add to the addedElements only if it was not removed from the removedElements
+        return wasRemoved || added().add( elem );
+    }
+
+    public boolean remove( long elem )
+    {
+        boolean removedFromAddedElements = addedElements != null && addedElements.remove( elem );
+        // Add to the removedElements only if it was not removed from the addedElements.
+        return removedFromAddedElements || removed().add( elem );
+    }
+
+    public void addAll( PrimitiveLongIterator elems )
+    {
+        while ( elems.hasNext() )
+        {
+            add( elems.next() );
+        }
+    }
+
+    public void removeAll( PrimitiveLongIterator elems )
+    {
+        while ( elems.hasNext() )
+        {
+            remove( elems.next() );
+        }
+    }
+
+    public boolean unRemove( long item )
+    {
+        return removedElements != null && removedElements.remove( item );
+    }
+
+    public boolean isAdded( long elem )
+    {
+        return addedElements != null && addedElements.contains( elem );
+    }
+
+    public boolean isRemoved( long elem )
+    {
+        return removedElements != null && removedElements.contains( elem );
+    }
+
+    @Override
+    public boolean isAdded( Long elem )
+    {
+        return isAdded( elem.longValue() );
+    }
+
+    @Override
+    public boolean isRemoved( Long elem )
+    {
+        return isRemoved( elem.longValue() );
+    }
+
+    /**
+     * @return the added elements, without boxing them.
+     */
+    public PrimitiveLongIterator addedElements()
+    {
+        return addedElements == null ? PrimitiveLongCollections.emptyIterator() : addedElements.iterator();
+    }
+
+    /**
+     * @return the removed elements, without boxing them.
+     */
+    public PrimitiveLongIterator removedElements()
+    {
+        return removedElements == null ? PrimitiveLongCollections.emptyIterator() : removedElements.iterator();
+    }
+
+    @Override
+    public Set<Long> getAdded()
+    {
+        return addedElements == null ? Collections.emptySet() : new ElementsView( addedElements );
+    }
+
+    @Override
+    public Set<Long> getRemoved()
+    {
+        return removedElements == null ? Collections.emptySet() : new ElementsView( removedElements );
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size( addedElements ) == 0 && size( removedElements ) == 0;
+    }
+
+    @Override
+    public Iterator<Long> apply( Iterator<Long> source )
+    {
+        Iterator<Long> result = source;
+        if ( !isEmpty() )
+        {
+            result = Iterators.filter( item -> !isRemoved( item ) && !isAdded( item ), result );
+        }
+        if ( size( addedElements ) > 0 )
+        {
+            result = Iterators.concat( result, getAdded().iterator() );
+        }
+        return result;
+    }
+
+    @Override
+    public int delta()
+    {
+        return size( addedElements ) - size( removedElements );
+    }
+
+    /**
+     * @return whether or not the given element has been added or removed, i.e. whether or not it should be
+     * filtered out of a source of elements that these changes are applied to.
+     */
+    boolean isAddedOrRemoved( long elem )
+    {
+        return isRemoved( elem ) || isAdded( elem );
+    }
+
+    <DIFFSETS extends SuperPrimitiveLongDiffSets<?>> DIFFSETS copyTo( DIFFSETS copy, Predicate<Long> addedFilter )
+    {
+        PrimitiveLongIterator added = addedElements();
+        while ( added.hasNext() )
+        {
+            long element = added.next();
+            if ( addedFilter.test( element ) )
+            {
+                copy.added().add( element );
+            }
+        }
+        PrimitiveLongIterator removed = removedElements();
+        while ( removed.hasNext() )
+        {
+            copy.removed().add( removed.next() );
+        }
+        return copy;
+    }
+
+    public void clear()
+    {
+        if ( addedElements != null )
+        {
+            addedElements.clear();
+        }
+        if ( removedElements != null )
+        {
+            removedElements.clear();
+        }
+    }
+
+    VersionedPrimitiveLongSet added()
+    {
+        if ( addedElements == null )
+        {
+            addedElements = new VersionedPrimitiveLongSet();
+        }
+        return addedElements;
+    }
+
+    VersionedPrimitiveLongSet removed()
+    {
+        if ( removedElements == null )
+        {
+            removedElements = new VersionedPrimitiveLongSet();
+        }
+        return removedElements;
+    }
+
+    private static int size( VersionedPrimitiveLongSet set )
+    {
+        return set == null ? 0 : set.size();
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        SuperPrimitiveLongDiffSets<?> diffSets = (SuperPrimitiveLongDiffSets<?>) o;
+        return getAdded().equals( diffSets.getAdded() ) && getRemoved().equals( diffSets.getRemoved() );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * getAdded().hashCode() + getRemoved().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "{+%s, -%s}", getAdded(), getRemoved() );
+    }
+
+    /**
+     * Read only view of a {@link VersionedPrimitiveLongSet}, for when a {@link Set} is asked for.
+     * Boxes elements as they are accessed.
+     */
+    private static class ElementsView extends AbstractSet<Long>
+    {
+        private final VersionedPrimitiveLongSet elements;
+
+        ElementsView( VersionedPrimitiveLongSet elements )
+        {
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean contains( Object o )
+        {
+            return o instanceof Long && elements.contains( (Long) o );
+        }
+
+        @Override
+        public Iterator<Long> iterator()
+        {
+            return PrimitiveLongCollections.toIterator( elements.iterator() );
+        }
+
+        @Override
+        public int size()
+        {
+            return elements.size();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.diffsets;
+
+import java.util.Arrays;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+
+/**
+ * A single-threaded set of primitive longs, which can be modified while iterating over it in the same way as a
+ * {@link org.neo4j.kernel.impl.util.VersionedHashMap}: elements added after an iterator was created are not returned
+ * by that iterator, while elements removed after an iterator was created are not returned by it either.
+ * <p>
+ * Elements are mapped to the sequence number of when they were added, and are also appended to a log in the order
+ * they were added. An iterator reads the log up to the length it had when the iterator was created and only returns
+ * elements which are still mapped to the sequence number of their position in the log, so an element which was
+ * removed, or removed and added again, after the iterator was created is skipped.
+ * <p>
+ * The log holds one entry per add rather than one per element, so if the same elements are removed and added again
+ * over and over, it fills up with entries that are no longer mapped to their sequence numbers. Rather than growing a
+ * full log, the entries that are still live are moved to the front of it, but only when no iterator is reading from
+ * the log, since that would reorder it under its feet. An iterator counts as reading until it has been exhausted, so
+ * an iterator that is abandoned part way through just prevents compaction for the rest of the life of the set.
+ */
+class VersionedPrimitiveLongSet
+{
+    private static final int INITIAL_LOG_SIZE = 8;
+
+    private final PrimitiveLongIntMap sequences = Primitive.longIntMap();
+    private long[] log = new long[INITIAL_LOG_SIZE];
+    private int logSize;
+    // Sequence number of the first element in the log
+    private int firstSequence;
+    // Number of iterators that have not yet been exhausted, and therefore might still be reading from the log
+    private int readers;
+
+    boolean add( long element )
+    {
+        if ( sequences.containsKey( element ) )
+        {
+            return false;
+        }
+        if ( logSize == log.length )
+        {
+            if ( readers == 0 && sequences.size() <= logSize / 2 )
+            {
+                compact();
+            }
+            else
+            {
+                log = Arrays.copyOf( log, logSize * 2 );
+            }
+        }
+        sequences.put( element, firstSequence + logSize );
+        log[logSize++] = element;
+        return true;
+    }
+
+    boolean remove( long element )
+    {
+        return sequences.remove( element ) != -1;
+    }
+
+    boolean contains( long element )
+    {
+        return sequences.containsKey( element );
+    }
+
+    int size()
+    {
+        return sequences.size();
+    }
+
+    boolean isEmpty()
+    {
+        return sequences.isEmpty();
+    }
+
+    void clear()
+    {
+        sequences.clear();
+        // Existing iterators hold on to the old log, and will see that none of its elements are mapped to their
+        // sequence numbers anymore
+        firstSequence += logSize;
+        log = new long[INITIAL_LOG_SIZE];
+        logSize = 0;
+    }
+
+    /**
+     * Move the elements that are still in the set to the front of the log, in the order they were added, and give
+     * them new sequence numbers for their new positions. Must only be called when there are no readers of the log.
+     */
+    private void compact()
+    {
+        int newFirstSequence = firstSequence + logSize;
+        int newLogSize = 0;
+        for ( int position = 0; position < logSize; position++ )
+        {
+            long element = log[position];
+            // Elements that were already moved have sequence numbers past the old range, and are not matched again
+            if ( sequences.get( element ) == firstSequence + position )
+            {
+                log[newLogSize] = element;
+                sequences.put( element, newFirstSequence + newLogSize );
+                newLogSize++;
+            }
+        }
+        firstSequence = newFirstSequence;
+        logSize = newLogSize;
+    }
+
+    PrimitiveLongIterator iterator()
+    {
+        long[] log = this.log;
+        int logSize = this.logSize;
+        int firstSequence = this.firstSequence;
+        readers++;
+        return new PrimitiveLongBaseIterator()
+        {
+            private int index;
+            private boolean exhausted;
+
+            @Override
+            protected boolean fetchNext()
+            {
+                while ( index < logSize )
+                {
+                    int position = index++;
+                    long element = log[position];
+                    if ( sequences.get( element ) == firstSequence + position )
+                    {
+                        return next( element );
+                    }
+                }
+                if ( !exhausted )
+                {
+                    exhausted = true;
+                    readers--;
+                }
+                return false;
+            }
+        };
+    }
+}
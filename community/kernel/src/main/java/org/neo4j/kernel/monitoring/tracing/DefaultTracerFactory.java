@@ -26,6 +26,7 @@ import org.neo4j.kernel.impl.transaction.log.checkpoint.DefaultCheckPointerTrace
 import org.neo4j.kernel.impl.transaction.tracing.CheckPointTracer;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionTracer;
 import org.neo4j.scheduler.JobScheduler;
+import org.neo4j.time.Clocks;
 import org.neo4j.kernel.monitoring.Monitors;
 
 /**
@@ -49,7 +50,10 @@ public class DefaultTracerFactory implements TracerFactory
     public TransactionTracer createTransactionTracer( Monitors monitors, JobScheduler jobScheduler )
     {
         DefaultTransactionTracer.Monitor monitor = monitors.newMonitor( DefaultTransactionTracer.Monitor.class );
-        return new DefaultTransactionTracer( monitor, jobScheduler );
+        DefaultTransactionTracer.CommitMonitor commitMonitor =
+                monitors.newMonitor( DefaultTransactionTracer.CommitMonitor.class );
+        return new DefaultTransactionTracer( Clocks.nanoClock(), monitor, commitMonitor,
+                () -> monitors.hasListeners( DefaultTransactionTracer.CommitMonitor.class ), jobScheduler );
     }
 
     @Override
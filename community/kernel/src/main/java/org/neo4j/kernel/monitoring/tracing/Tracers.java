@@ -23,6 +23,7 @@ import org.neo4j.helpers.Service;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.io.pagecache.tracing.cursor.DefaultPageCursorTracerSupplier;
 import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
+import org.neo4j.kernel.impl.locking.LockContentionProfiler;
 import org.neo4j.kernel.impl.locking.LockTracer;
 import org.neo4j.kernel.impl.transaction.tracing.CheckPointTracer;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionTracer;
@@ -116,6 +117,19 @@ public class Tracers
      * @param jobScheduler a scheduler for async jobs
      */
     public Tracers( String desiredImplementationName, Log msgLog, Monitors monitors, JobScheduler jobScheduler )
+    {
+        this( desiredImplementationName, msgLog, monitors, jobScheduler, LockTracer.NONE );
+    }
+
+    /**
+     * Create a Tracers subsystem with the desired implementation, like
+     * {@link #Tracers(String, Log, Monitors, JobScheduler)}, with an additional lock tracer.
+     *
+     * @param additionalLockTracer a {@link LockTracer}, e.g. a {@link LockContentionProfiler}, combined with the
+     * lock tracer of the desired implementation. Not used with the {@code null} implementation.
+     */
+    public Tracers( String desiredImplementationName, Log msgLog, Monitors monitors, JobScheduler jobScheduler,
+            LockTracer additionalLockTracer )
     {
         if ( "null".equalsIgnoreCase( desiredImplementationName ) )
         {
@@ -156,7 +170,7 @@ public class Tracers
             pageCacheTracer = foundFactory.createPageCacheTracer( monitors, jobScheduler );
             transactionTracer = foundFactory.createTransactionTracer( monitors, jobScheduler );
             checkPointTracer = foundFactory.createCheckPointTracer( monitors, jobScheduler );
-            lockTracer = foundFactory.createLockTracer( monitors, jobScheduler );
+            lockTracer = foundFactory.createLockTracer( monitors, jobScheduler ).combine( additionalLockTracer );
         }
     }
 }
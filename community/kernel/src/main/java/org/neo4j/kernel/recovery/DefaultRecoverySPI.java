@@ -30,6 +30,7 @@ import org.neo4j.kernel.impl.transaction.log.LogPosition;
 import org.neo4j.kernel.impl.transaction.log.LogTailScanner;
 import org.neo4j.kernel.impl.transaction.log.LogicalTransactionStore;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogFiles;
+import org.neo4j.kernel.impl.transaction.log.PrefetchingTransactionCursor;
 import org.neo4j.kernel.impl.transaction.log.TransactionCursor;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart;
@@ -37,16 +38,21 @@ import org.neo4j.kernel.recovery.Recovery.RecoveryApplier;
 import org.neo4j.storageengine.api.StorageEngine;
 import org.neo4j.storageengine.api.TransactionApplicationMode;
 
+import static org.neo4j.helpers.NamedThreadFactory.daemon;
 import static org.neo4j.kernel.impl.transaction.log.Commitment.NO_COMMITMENT;
 
 public class DefaultRecoverySPI implements Recovery.SPI
 {
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
     private final PositionToRecoverFrom positionToRecoverFrom;
     private final PhysicalLogFiles logFiles;
     private final FileSystemAbstraction fs;
     private final StorageEngine storageEngine;
     private final TransactionIdStore transactionIdStore;
     private final LogicalTransactionStore logicalTransactionStore;
+    private final int batchSize;
+    private final int prefetchTransactions;
 
     public DefaultRecoverySPI(
             StorageEngine storageEngine,
@@ -55,6 +61,24 @@ public class DefaultRecoverySPI implements Recovery.SPI
             TransactionIdStore transactionIdStore, LogicalTransactionStore logicalTransactionStore,
             PositionToRecoverFrom.Monitor monitor )
     {
+        this( storageEngine, logFiles, fs, logTailScanner, transactionIdStore, logicalTransactionStore, monitor,
+                DEFAULT_BATCH_SIZE, 0 );
+    }
+
+    /**
+     * @param batchSize number of transactions applied to the storage engine, and its indexes, as one batch.
+     * @param prefetchTransactions number of transactions to read and decode ahead of applying them, in a separate
+     * thread. {@code 0} means that transactions are read by the thread applying them.
+     */
+    public DefaultRecoverySPI(
+            StorageEngine storageEngine,
+            PhysicalLogFiles logFiles, FileSystemAbstraction fs,
+            LogTailScanner logTailScanner,
+            TransactionIdStore transactionIdStore, LogicalTransactionStore logicalTransactionStore,
+            PositionToRecoverFrom.Monitor monitor, int batchSize, int prefetchTransactions )
+    {
+        this.batchSize = batchSize;
+        this.prefetchTransactions = prefetchTransactions;
         this.storageEngine = storageEngine;
         this.logFiles = logFiles;
         this.fs = fs;
@@ -83,13 +107,20 @@ public class DefaultRecoverySPI implements Recovery.SPI
     @Override
     public RecoveryApplier getRecoveryApplier( TransactionApplicationMode mode ) throws Exception
     {
-        return new RecoveryVisitor( new TransactionQueue( 100, ( first, last ) -> storageEngine.apply( first, mode ) ) );
+        return new RecoveryVisitor(
+                new TransactionQueue( batchSize, ( first, last ) -> storageEngine.apply( first, mode ) ) );
     }
 
     @Override
     public TransactionCursor getTransactions( LogPosition position ) throws IOException
     {
-        return logicalTransactionStore.getTransactions( position );
+        TransactionCursor transactions = logicalTransactionStore.getTransactions( position );
+        if ( prefetchTransactions > 0 )
+        {
+            return new PrefetchingTransactionCursor( transactions, prefetchTransactions,
+                    daemon( "Recovery log reader" ) );
+        }
+        return transactions;
     }
 
     @Override
@@ -98,6 +129,28 @@ public class DefaultRecoverySPI implements Recovery.SPI
         return logicalTransactionStore.getTransactionsInReverseOrder( position );
     }
 
+    @Override
+    public LogPosition getLogEndPosition() throws IOException
+    {
+        long version = logFiles.getHighestLogVersion();
+        return new LogPosition( version, fs.getFileSize( logFiles.getLogFileForVersion( version ) ) );
+    }
+
+    @Override
+    public long logBytesBetween( LogPosition from, LogPosition to ) throws IOException
+    {
+        if ( LogPosition.UNSPECIFIED.equals( to ) )
+        {
+            return -1;
+        }
+        long bytes = to.getByteOffset() - from.getByteOffset();
+        for ( long version = from.getLogVersion(); version < to.getLogVersion(); version++ )
+        {
+            bytes += fs.getFileSize( logFiles.getLogFileForVersion( version ) );
+        }
+        return bytes;
+    }
+
     @Override
     public void allTransactionsRecovered( CommittedTransactionRepresentation lastRecoveredTransaction,
             LogPosition positionAfterLastRecoveredTransaction ) throws Exception
@@ -20,6 +20,8 @@
 package org.neo4j.kernel.recovery;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
 
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
@@ -28,6 +30,7 @@ import org.neo4j.kernel.impl.transaction.log.TransactionCursor;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 import org.neo4j.storageengine.api.TransactionApplicationMode;
+import org.neo4j.time.Clocks;
 
 import static org.neo4j.storageengine.api.TransactionApplicationMode.RECOVERY;
 import static org.neo4j.storageengine.api.TransactionApplicationMode.REVERSE_RECOVERY;
@@ -48,6 +51,19 @@ public class Recovery extends LifecycleAdapter
         { // no-op by default
         }
 
+        /**
+         * Called periodically while recovering transactions.
+         *
+         * @param recoveredTransactions number of transactions recovered so far.
+         * @param recoveredBytes number of bytes of transaction log recovered so far.
+         * @param totalBytes number of bytes of transaction log to recover in total, or {@code -1} if unknown.
+         * @param elapsedMillis milliseconds spent recovering transactions so far.
+         */
+        default void recoveryProgress( long recoveredTransactions, long recoveredBytes, long totalBytes,
+                long elapsedMillis )
+        { // no-op by default
+        }
+
         default void recoveryCompleted( int numberOfRecoveredTransactions )
         { // no-op by default
         }
@@ -75,18 +91,49 @@ public class Recovery extends LifecycleAdapter
 
         void allTransactionsRecovered( CommittedTransactionRepresentation lastRecoveredTransaction,
                 LogPosition positionAfterLastRecoveredTransaction ) throws Exception;
+
+        /**
+         * @return position of the end of the transaction log, or {@link LogPosition#UNSPECIFIED} if unknown.
+         */
+        default LogPosition getLogEndPosition() throws IOException
+        {
+            return LogPosition.UNSPECIFIED;
+        }
+
+        /**
+         * @return number of bytes of transaction log between the two positions, or {@code -1} if unknown.
+         */
+        default long logBytesBetween( LogPosition from, LogPosition to ) throws IOException
+        {
+            return -1;
+        }
     }
 
+    private static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
+
     private final SPI spi;
     private final Monitor monitor;
+    private final Clock clock;
+    private final long progressIntervalMillis;
     private int numberOfRecoveredTransactions;
 
     private boolean recoveredLog;
 
     public Recovery( SPI spi, Monitor monitor )
+    {
+        this( spi, monitor, Clocks.systemClock(), DEFAULT_PROGRESS_INTERVAL_MILLIS );
+    }
+
+    /**
+     * @param progressIntervalMillis how often to report {@link Monitor#recoveryProgress(long, long, long, long)
+     * progress} while recovering transactions.
+     */
+    public Recovery( SPI spi, Monitor monitor, Clock clock, long progressIntervalMillis )
     {
         this.spi = spi;
         this.monitor = monitor;
+        this.clock = clock;
+        this.progressIntervalMillis = progressIntervalMillis;
     }
 
     @Override
@@ -118,6 +165,9 @@ public class Recovery extends LifecycleAdapter
         // Forward with all appliers
         LogPosition recoveryToPosition;
         CommittedTransactionRepresentation lastTransaction = null;
+        long totalBytes = spi.logBytesBetween( recoveryFromPosition, spi.getLogEndPosition() );
+        long startTime = clock.millis();
+        long nextProgressReport = startTime + progressIntervalMillis;
         try ( TransactionCursor transactionsToRecover = spi.getTransactions( recoveryFromPosition );
               RecoveryApplier recoveryVisitor = spi.getRecoveryApplier( RECOVERY ); )
         {
@@ -128,6 +178,15 @@ public class Recovery extends LifecycleAdapter
                 recoveryVisitor.visit( lastTransaction );
                 monitor.transactionRecovered( txId );
                 numberOfRecoveredTransactions++;
+
+                long now = clock.millis();
+                if ( now >= nextProgressReport )
+                {
+                    long recoveredBytes = spi.logBytesBetween( recoveryFromPosition, transactionsToRecover.position() );
+                    monitor.recoveryProgress( numberOfRecoveredTransactions, recoveredBytes, totalBytes,
+                            now - startTime );
+                    nextProgressReport = now + progressIntervalMillis;
+                }
             }
             recoveryToPosition = transactionsToRecover.position();
         }
@@ -46,7 +46,7 @@ public interface IndexReader extends Resource
      * Queries the index for the given {@link IndexQuery} predicates.
      *
      * @param predicates the predicates to query for.
-     * @return the matching entity IDs.
+     * @return the matching entity IDs, in no particular order.
      */
     PrimitiveLongIterator query( IndexQuery... predicates ) throws IndexNotApplicableKernelException;
 
@@ -173,6 +173,39 @@ public interface Configuration
         return false;
     }
 
+    /**
+     * Whether or not to import into a store which may already contain data, appending nodes and relationships
+     * to it. New relationships can refer to existing nodes through a persisted id mapping, see
+     * {@link #keepIdMapping()}. The store must have been cleanly shut down and must not have uniqueness
+     * constraints. The imported data is recorded as a transaction which isn't in the transaction logs,
+     * so incremental backups and cluster members will have to copy the whole store after the import.
+     */
+    default boolean incrementalImport()
+    {
+        return false;
+    }
+
+    /**
+     * Whether or not to keep the input id --> node id mapping of this import in the store directory after the
+     * import, so that relationships of later {@link #incrementalImport() incremental imports} can refer to
+     * nodes of this import. An incremental import into a store with a kept id mapping always appends to it.
+     */
+    default boolean keepIdMapping()
+    {
+        return false;
+    }
+
+    /**
+     * Whether or not to resume an earlier import into the same store, which failed, from its last
+     * {@link ImportCheckpoint}. The same input as in the failed import must be given. Enabling this for the
+     * first attempt of an import also keeps the input ids of its nodes, so that it can be resumed after its
+     * nodes have been imported, at the cost of writing them to disk.
+     */
+    default boolean resumeImport()
+    {
+        return false;
+    }
+
     Configuration DEFAULT = new Configuration()
     {
     };
@@ -256,6 +289,24 @@ public interface Configuration
         {
             return defaults.parallelRecordReadsWhenWriting();
         }
+
+        @Override
+        public boolean incrementalImport()
+        {
+            return defaults.incrementalImport();
+        }
+
+        @Override
+        public boolean keepIdMapping()
+        {
+            return defaults.keepIdMapping();
+        }
+
+        @Override
+        public boolean resumeImport()
+        {
+            return defaults.resumeImport();
+        }
     }
 
     static Configuration withBatchSize( Configuration config, int batchSize )
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Map;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.impl.store.id.IdType;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Progress of a {@link ParallelBatchImporter} import, recorded in the store directory at the boundaries between
+ * the major phases of the import, so that an import which fails can be resumed from the last recorded
+ * {@link Progress} instead of starting over, see {@link Configuration#resumeImport()}.
+ * <p>
+ * Records written by a phase after the last checkpoint are simply written again when resuming. Therefore the
+ * high ids of the data stores are recorded at each checkpoint and restored when resuming, so that the phase
+ * assigns the same ids to the same input again. Caches which are expensive to build are either spilled to disk
+ * by the import or rebuilt from the store when resuming, see the {@link Progress} constants.
+ */
+public class ImportCheckpoint
+{
+    public static final String FILE_NAME = "import-checkpoint";
+    private static final int FORMAT_VERSION = 1;
+    private static final byte STRING_TYPE = 1;
+    private static final byte ID_TYPE = 2;
+
+    /**
+     * Stores which records are written to after a checkpoint. Token stores are not reset, tokens are
+     * looked up by name and so tokens created after a checkpoint are simply reused when resuming.
+     */
+    private static final IdType[] DATA_STORES = {IdType.NODE, IdType.NODE_LABELS, IdType.PROPERTY,
+            IdType.STRING_BLOCK, IdType.ARRAY_BLOCK, IdType.RELATIONSHIP, IdType.RELATIONSHIP_GROUP};
+
+    public enum Progress
+    {
+        /**
+         * Nothing imported yet. Resuming from here means importing everything again.
+         */
+        STARTED,
+        /**
+         * Nodes imported, id mapper prepared and duplicate nodes deleted. The contents of the id mapper are
+         * spilled to disk as a persisted id mapping and loaded when resuming.
+         */
+        NODES_IMPORTED,
+        /**
+         * Relationships imported, but not linked. The node --&gt; relationship cache is rebuilt from the
+         * relationship store when resuming, since it's cheaper to count degrees again than to spill the cache.
+         */
+        RELATIONSHIPS_IMPORTED,
+        /**
+         * Relationships linked and relationship groups defragmented. What's left is counting.
+         */
+        RELATIONSHIPS_LINKED
+    }
+
+    private final Progress progress;
+    private final long[] highIds;
+    private final RelationshipTypeDistribution relationshipTypeDistribution;
+
+    private ImportCheckpoint( Progress progress, long[] highIds,
+            RelationshipTypeDistribution relationshipTypeDistribution )
+    {
+        this.progress = progress;
+        this.highIds = highIds;
+        this.relationshipTypeDistribution = relationshipTypeDistribution;
+    }
+
+    /**
+     * @param progress {@link Progress} to compare with.
+     * @return whether or not the import had gotten at least as far as the given {@link Progress}.
+     */
+    public boolean reached( Progress progress )
+    {
+        return this.progress.compareTo( progress ) >= 0;
+    }
+
+    public Progress progress()
+    {
+        return progress;
+    }
+
+    /**
+     * @return distribution of imported relationships between types, recorded from
+     * {@link Progress#RELATIONSHIPS_IMPORTED} and onwards, otherwise {@code null}.
+     */
+    public RelationshipTypeDistribution relationshipTypeDistribution()
+    {
+        return relationshipTypeDistribution;
+    }
+
+    /**
+     * Sets the high ids of the data stores back to what they were at this checkpoint.
+     *
+     * @param neoStores stores to restore high ids in.
+     */
+    public void restoreHighIds( BatchingNeoStores neoStores )
+    {
+        for ( int i = 0; i < DATA_STORES.length; i++ )
+        {
+            neoStores.setHighId( DATA_STORES[i], highIds[i] );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[" + progress + "]";
+    }
+
+    /**
+     * @param fs {@link FileSystemAbstraction} the store lives in.
+     * @param storeDir store directory.
+     * @return whether or not there's a recorded checkpoint in the given store directory.
+     */
+    public static boolean exists( FileSystemAbstraction fs, File storeDir )
+    {
+        return fs.fileExists( new File( storeDir, FILE_NAME ) );
+    }
+
+    /**
+     * Records a checkpoint, replacing any previously recorded checkpoint. All imported data must have been
+     * flushed to the store before calling this method.
+     *
+     * @param fs {@link FileSystemAbstraction} the store lives in.
+     * @param storeDir store directory.
+     * @param progress {@link Progress} of the import.
+     * @param neoStores stores to record high ids of.
+     * @param relationshipTypeDistribution distribution of imported relationships between types, or {@code null}
+     * if relationships haven't been imported yet.
+     * @return the recorded checkpoint.
+     */
+    public static ImportCheckpoint write( FileSystemAbstraction fs, File storeDir, Progress progress, BatchingNeoStores neoStores,
+            RelationshipTypeDistribution relationshipTypeDistribution ) throws IOException
+    {
+        File file = new File( storeDir, FILE_NAME );
+        File tempFile = new File( storeDir, FILE_NAME + ".tmp" );
+        long[] highIds = new long[DATA_STORES.length];
+        for ( int i = 0; i < highIds.length; i++ )
+        {
+            highIds[i] = neoStores.getHighId( DATA_STORES[i] );
+        }
+        try ( DataOutputStream out = new DataOutputStream( fs.openAsOutputStream( tempFile, false ) ) )
+        {
+            out.writeInt( FORMAT_VERSION );
+            out.writeByte( progress.ordinal() );
+            for ( long highId : highIds )
+            {
+                out.writeLong( highId );
+            }
+            out.writeBoolean( relationshipTypeDistribution != null );
+            if ( relationshipTypeDistribution != null )
+            {
+                out.writeInt( relationshipTypeDistribution.getNumberOfRelationshipTypes() );
+                for ( Map.Entry<Object,MutableLong> type : relationshipTypeDistribution )
+                {
+                    if ( type.getKey() instanceof Number )
+                    {
+                        out.writeByte( ID_TYPE );
+                        out.writeInt( ((Number) type.getKey()).intValue() );
+                    }
+                    else
+                    {
+                        out.writeByte( STRING_TYPE );
+                        out.writeUTF( type.getKey().toString() );
+                    }
+                    out.writeLong( type.getValue().longValue() );
+                }
+            }
+        }
+        // Only ever leave a complete checkpoint behind
+        fs.renameFile( tempFile, file, ATOMIC_MOVE, REPLACE_EXISTING );
+        return new ImportCheckpoint( progress, highIds, relationshipTypeDistribution );
+    }
+
+    /**
+     * @param fs {@link FileSystemAbstraction} the store lives in.
+     * @param storeDir store directory.
+     * @return the checkpoint recorded in the given store directory.
+     * @throws IOException if there's no checkpoint or it cannot be read.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static ImportCheckpoint read( FileSystemAbstraction fs, File storeDir ) throws IOException
+    {
+        try ( DataInputStream in = new DataInputStream( fs.openAsInputStream( new File( storeDir, FILE_NAME ) ) ) )
+        {
+            int version = in.readInt();
+            if ( version != FORMAT_VERSION )
+            {
+                throw new IOException( "Unsupported import checkpoint format version " + version + " in " +
+                        storeDir + ", expected " + FORMAT_VERSION );
+            }
+            Progress progress = Progress.values()[in.readByte()];
+            long[] highIds = new long[DATA_STORES.length];
+            for ( int i = 0; i < highIds.length; i++ )
+            {
+                highIds[i] = in.readLong();
+            }
+            RelationshipTypeDistribution relationshipTypeDistribution = null;
+            if ( in.readBoolean() )
+            {
+                Map.Entry<Object,MutableLong>[] types = new Map.Entry[in.readInt()];
+                for ( int i = 0; i < types.length; i++ )
+                {
+                    Object type = in.readByte() == ID_TYPE ? (Object) in.readInt() : in.readUTF();
+                    types[i] = new AbstractMap.SimpleEntry<>( type, new MutableLong( in.readLong() ) );
+                }
+                relationshipTypeDistribution = new RelationshipTypeDistribution( types );
+            }
+            return new ImportCheckpoint( progress, highIds, relationshipTypeDistribution );
+        }
+    }
+
+    /**
+     * Removes the recorded checkpoint, if any, from the given store directory, i.e. when the import has completed.
+     *
+     * @param fs {@link FileSystemAbstraction} the store lives in.
+     * @param storeDir store directory.
+     */
+    public static void remove( FileSystemAbstraction fs, File storeDir )
+    {
+        fs.deleteFile( new File( storeDir, FILE_NAME ) );
+    }
+}
@@ -39,11 +39,14 @@ import static org.neo4j.kernel.impl.store.record.Record.NO_NEXT_PROPERTY;
 import static org.neo4j.kernel.impl.store.record.Record.NO_NEXT_RELATIONSHIP;
 
 /**
- * Creates {@link NodeRecord nodes} with labels from input.
+ * Creates {@link NodeRecord nodes} with labels from input. Input ids are also put into the {@link IdMapper} here,
+ * unless it {@link IdMapper#supportsConcurrentPut() supports concurrent puts}, in which case that is left to
+ * a {@link NodeIdMapperStep} further down.
  */
 public final class NodeEncoderStep extends ProcessorStep<Batch<InputNode,NodeRecord>>
 {
     private final IdMapper idMapper;
+    private final boolean putInputIds;
     private final IdGenerator idGenerator;
     private final NodeStore nodeStore;
     private final BatchingLabelTokenRepository labelHolder;
@@ -56,6 +59,7 @@ public final class NodeEncoderStep extends ProcessorStep<Batch<InputNode,NodeRec
     {
         super( control, "NODE", config, 1, memoryUsageStats );
         this.idMapper = idMapper;
+        this.putInputIds = !idMapper.supportsConcurrentPut();
         this.idGenerator = idGenerator;
         this.nodeStore = nodeStore;
         this.labelHolder = labelHolder;
@@ -71,7 +75,7 @@ public final class NodeEncoderStep extends ProcessorStep<Batch<InputNode,NodeRec
         {
             InputNode batchNode = input[i];
             long nodeId = idGenerator.generate( batchNode.id() );
-            if ( batchNode.id() != null )
+            if ( putInputIds && batchNode.id() != null )
             {
                 // Nodes are allowed to be anonymous, they just can't be found when creating relationships
                 // later on, that's all. Anonymous nodes have null id.
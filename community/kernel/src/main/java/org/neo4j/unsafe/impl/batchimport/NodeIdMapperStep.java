@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.staging.BatchSender;
+import org.neo4j.unsafe.impl.batchimport.staging.ProcessorStep;
+import org.neo4j.unsafe.impl.batchimport.staging.StageControl;
+
+/**
+ * Puts {@link InputNode#id() input ids} into an {@link IdMapper} which
+ * {@link IdMapper#supportsConcurrentPut() supports concurrent puts}, with the node ids assigned by
+ * {@link NodeEncoderStep}. Batches can be processed by multiple threads in parallel.
+ */
+public class NodeIdMapperStep extends ProcessorStep<Batch<InputNode,NodeRecord>>
+{
+    private final IdMapper idMapper;
+
+    public NodeIdMapperStep( StageControl control, Configuration config, IdMapper idMapper )
+    {
+        super( control, "ID MAPPER", config, 0 );
+        this.idMapper = idMapper;
+    }
+
+    @Override
+    protected void process( Batch<InputNode,NodeRecord> batch, BatchSender sender )
+    {
+        InputNode[] input = batch.input;
+        for ( int i = 0; i < input.length; i++ )
+        {
+            InputNode batchNode = input[i];
+            if ( batchNode.id() != null )
+            {
+                idMapper.put( batchNode.id(), batch.records[i].getId(), batchNode.group() );
+            }
+        }
+        sender.send( batch );
+    }
+}
@@ -53,6 +53,8 @@ import static org.neo4j.unsafe.impl.batchimport.staging.Step.ORDER_SEND_DOWNSTRE
  * <li>{@link NodeEncoderStep} creates the {@link NodeRecord node records} and assigns label ids from input data.
  * It also assigns real store node ids from {@link InputNode#id() input ids} and stores them in {@link IdMapper}
  * for use in other upcoming stages.</li>
+ * <li>{@link NodeIdMapperStep} alternatively puts the input ids into the {@link IdMapper} instead, using multiple
+ * threads, if it {@link IdMapper#supportsConcurrentPut() supports that}.</li>
  * <li>{@link LabelScanStorePopulationStep} populates the {@link LabelScanStore} with the node labels.</li>
  * <li>{@link EntityStoreUpdaterStep} forms {@link PropertyRecord property records} out of previously encoded
  * {@link PropertyBlock} and writes those as well as the {@link NodeRecord} to store.</li>
@@ -79,6 +81,10 @@ public class NodeStage extends Stage
         PropertyStore propertyStore = neoStore.getPropertyStore();
         add( new NodeEncoderStep( control(), config, idMapper, idGenerator,
                 neoStore.getLabelRepository(), nodeStore, memoryUsage ) );
+        if ( idMapper.supportsConcurrentPut() )
+        {
+            add( new NodeIdMapperStep( control(), config, idMapper ) );
+        }
         add( new PropertyEncoderStep<>( control(), config, neoStore.getPropertyKeyRepository(), propertyStore ) );
         add( new LabelScanStorePopulationStep( control(), config, labelScanStore ) );
         add( new EntityStoreUpdaterStep<>( control(), config, nodeStore, propertyStore, writeMonitor,
@@ -21,23 +21,30 @@ package org.neo4j.unsafe.impl.batchimport;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.Predicate;
 
 import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.primitive.PrimitiveIntSet;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.helpers.Exceptions;
 import org.neo4j.helpers.Format;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.api.index.IndexDirectoryStructure;
 import org.neo4j.kernel.impl.api.CountsAccessor;
+import org.neo4j.kernel.impl.api.CountsVisitor;
 import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.store.NodeStore;
 import org.neo4j.kernel.impl.store.RecordStore;
 import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.counts.CountsTracker;
 import org.neo4j.kernel.impl.store.format.RecordFormatSelector;
 import org.neo4j.kernel.impl.store.format.RecordFormats;
 import org.neo4j.kernel.impl.store.record.RelationshipRecord;
@@ -52,12 +59,14 @@ import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipCache;
 import org.neo4j.unsafe.impl.batchimport.cache.NodeType;
 import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerators;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMappers;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.PersistedIdMapping;
 import org.neo4j.unsafe.impl.batchimport.input.Collector;
 import org.neo4j.unsafe.impl.batchimport.input.Input;
 import org.neo4j.unsafe.impl.batchimport.input.InputCache;
 import org.neo4j.unsafe.impl.batchimport.input.InputNode;
-import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 import org.neo4j.unsafe.impl.batchimport.staging.DynamicProcessorAssigner;
 import org.neo4j.unsafe.impl.batchimport.staging.ExecutionMonitor;
 import org.neo4j.unsafe.impl.batchimport.staging.Stage;
@@ -71,6 +80,10 @@ import static java.lang.System.currentTimeMillis;
 
 import static org.neo4j.helpers.Format.bytes;
 import static org.neo4j.unsafe.impl.batchimport.AdditionalInitialIds.EMPTY;
+import static org.neo4j.unsafe.impl.batchimport.ImportCheckpoint.Progress.NODES_IMPORTED;
+import static org.neo4j.unsafe.impl.batchimport.ImportCheckpoint.Progress.RELATIONSHIPS_IMPORTED;
+import static org.neo4j.unsafe.impl.batchimport.ImportCheckpoint.Progress.RELATIONSHIPS_LINKED;
+import static org.neo4j.unsafe.impl.batchimport.ImportCheckpoint.Progress.STARTED;
 import static org.neo4j.unsafe.impl.batchimport.SourceOrCachedInputIterable.cachedForSure;
 import static org.neo4j.unsafe.impl.batchimport.input.InputCache.MAIN;
 import static org.neo4j.unsafe.impl.batchimport.staging.ExecutionSupervisors.superviseExecution;
@@ -137,6 +150,12 @@ public class ParallelBatchImporter implements BatchImporter
     @Override
     public void doImport( Input input ) throws IOException
     {
+        if ( config.incrementalImport() )
+        {
+            importIntoExistingStore( input );
+            return;
+        }
+
         log.info( "Import starting" );
 
         // Things that we need to close later. The reason they're not in the try-with-resource statement
@@ -155,67 +174,97 @@ public class ParallelBatchImporter implements BatchImporter
             Collector badCollector = input.badCollector();
             // Some temporary caches and indexes in the import
             IoMonitor writeMonitor = new IoMonitor( neoStore.getIoTracer() );
-            IdMapper idMapper = input.idMapper( numberArrayFactory );
-            IdGenerator idGenerator = input.idGenerator();
-            nodeRelationshipCache = new NodeRelationshipCache( numberArrayFactory, config.denseNodeThreshold() );
-            StatsProvider memoryUsageStats = new MemoryUsageStatsProvider( nodeRelationshipCache, idMapper );
-            InputIterable<InputNode> nodes = input.nodes();
-            InputIterable<InputRelationship> relationships = input.relationships();
-            InputIterable<InputNode> cachedNodes = cachedForSure( nodes, inputCache.nodes( MAIN, true ) );
-
             RelationshipStore relationshipStore = neoStore.getRelationshipStore();
+            ImportCheckpoint checkpoint = startOrResume( neoStore );
+            IdMapper idMapper = null;
+            long peakMemoryUsage = 0;
 
-            // Import nodes, properties, labels
-            Configuration nodeConfig = configWithRecordsPerPageBasedBatchSize( config, neoStore.getNodeStore() );
-            NodeStage nodeStage = new NodeStage( nodeConfig, writeMonitor,
-                    nodes, idMapper, idGenerator, neoStore, inputCache, neoStore.getLabelScanStore(),
-                    storeUpdateMonitor, memoryUsageStats );
-            neoStore.startFlushingPageCache();
-            executeStage( nodeStage );
-            neoStore.stopFlushingPageCache();
-            if ( idMapper.needsPreparation() )
+            if ( !checkpoint.reached( NODES_IMPORTED ) )
             {
-                executeStage( new IdMapperPreparationStage( config, idMapper, cachedNodes,
-                        badCollector, memoryUsageStats ) );
-                PrimitiveLongIterator duplicateNodeIds = badCollector.leftOverDuplicateNodesIds();
-                if ( duplicateNodeIds.hasNext() )
+                idMapper = input.idMapper( numberArrayFactory );
+                if ( config.keepIdMapping() || (config.resumeImport() && idMapper.holdsInputIds()) )
                 {
-                    executeStage( new DeleteDuplicateNodesStage( config, duplicateNodeIds, neoStore ) );
+                    // Also needed for resuming the import after the nodes have been imported
+                    idMapper = PersistedIdMapping.persisting( idMapper, fileSystem, storeDir );
                 }
+                IdGenerator idGenerator = input.idGenerator();
+                StatsProvider memoryUsageStats = new MemoryUsageStatsProvider( idMapper );
+                InputIterable<InputNode> nodes = input.nodes();
+                InputIterable<InputNode> cachedNodes = cachedForSure( nodes, inputCache.nodes( MAIN, true ) );
+
+                // Import nodes, properties, labels
+                Configuration nodeConfig = configWithRecordsPerPageBasedBatchSize( config, neoStore.getNodeStore() );
+                NodeStage nodeStage = new NodeStage( nodeConfig, writeMonitor,
+                        nodes, idMapper, idGenerator, neoStore, inputCache, neoStore.getLabelScanStore(),
+                        storeUpdateMonitor, memoryUsageStats );
+                neoStore.startFlushingPageCache();
+                executeStage( nodeStage );
+                neoStore.stopFlushingPageCache();
+                if ( idMapper.needsPreparation() )
+                {
+                    executeStage( new IdMapperPreparationStage( config, idMapper, cachedNodes,
+                            badCollector, memoryUsageStats ) );
+                    PrimitiveLongIterator duplicateNodeIds = badCollector.leftOverDuplicateNodesIds();
+                    if ( duplicateNodeIds.hasNext() )
+                    {
+                        executeStage( new DeleteDuplicateNodesStage( config, duplicateNodeIds, neoStore ) );
+                    }
+                }
+                checkpoint = checkpoint( neoStore, NODES_IMPORTED, null );
             }
+
             // Import relationships (unlinked), properties
             Configuration relationshipConfig =
                     configWithRecordsPerPageBasedBatchSize( config, neoStore.getNodeStore() );
-            RelationshipStage unlinkedRelationshipStage =
-                    new RelationshipStage( relationshipConfig, writeMonitor, relationships, idMapper,
-                            badCollector, inputCache, neoStore, storeUpdateMonitor );
-            neoStore.startFlushingPageCache();
-            executeStage( unlinkedRelationshipStage );
-            neoStore.stopFlushingPageCache();
-            idMapper.close();
-            idMapper = null;
-            // Link relationships together with each other, their nodes and their relationship groups
-            long availableMemory = maxMemory - totalMemoryUsageOf( nodeRelationshipCache, neoStore );
-            // This is where the nodeRelationshipCache is allocated memory.
-            // This has to happen after idMapped is released
-            nodeRelationshipCache.setHighNodeId( neoStore.getNodeStore().getHighId() );
-            NodeDegreeCountStage nodeDegreeStage = new NodeDegreeCountStage( relationshipConfig,
-                    neoStore.getRelationshipStore(), nodeRelationshipCache );
-            neoStore.startFlushingPageCache();
-            executeStage( nodeDegreeStage );
-            neoStore.stopFlushingPageCache();
+            if ( !checkpoint.reached( RELATIONSHIPS_IMPORTED ) )
+            {
+                if ( idMapper == null )
+                {
+                    idMapper = idMapperOfImportedNodes( input, numberArrayFactory, neoStore );
+                }
+                RelationshipStage unlinkedRelationshipStage =
+                        new RelationshipStage( relationshipConfig, writeMonitor, input.relationships(), idMapper,
+                                badCollector, inputCache, neoStore, storeUpdateMonitor );
+                neoStore.startFlushingPageCache();
+                executeStage( unlinkedRelationshipStage );
+                neoStore.stopFlushingPageCache();
+                idMapper.close();
+                idMapper = null;
+                checkpoint = checkpoint( neoStore, RELATIONSHIPS_IMPORTED,
+                        unlinkedRelationshipStage.getDistribution() );
+            }
+            if ( !config.keepIdMapping() && PersistedIdMapping.exists( fileSystem, storeDir ) )
+            {
+                fileSystem.deleteRecursively( new File( storeDir, PersistedIdMapping.DIRECTORY_NAME ) );
+            }
 
-            linkData( nodeRelationshipCache, neoStore, unlinkedRelationshipStage.getDistribution(),
-                    availableMemory );
+            if ( !checkpoint.reached( RELATIONSHIPS_LINKED ) )
+            {
+                // Link relationships together with each other, their nodes and their relationship groups
+                nodeRelationshipCache = new NodeRelationshipCache( numberArrayFactory, config.denseNodeThreshold() );
+                long availableMemory = maxMemory - totalMemoryUsageOf( nodeRelationshipCache, neoStore );
+                // This is where the nodeRelationshipCache is allocated memory.
+                // This has to happen after idMapped is released
+                nodeRelationshipCache.setHighNodeId( neoStore.getNodeStore().getHighId() );
+                NodeDegreeCountStage nodeDegreeStage = new NodeDegreeCountStage( relationshipConfig,
+                        neoStore.getRelationshipStore(), nodeRelationshipCache );
+                neoStore.startFlushingPageCache();
+                executeStage( nodeDegreeStage );
+                neoStore.stopFlushingPageCache();
 
-            // Release this potentially really big piece of cached data
-            long peakMemoryUsage = totalMemoryUsageOf( nodeRelationshipCache, neoStore );
-            long highNodeId = nodeRelationshipCache.getHighNodeId();
-            nodeRelationshipCache.close();
-            nodeRelationshipCache = null;
-            // Defragment relationships groups for better performance
-            new RelationshipGroupDefragmenter( config, executionMonitor, numberArrayFactory )
-                    .run( max( maxMemory, peakMemoryUsage ), neoStore, highNodeId );
+                linkData( nodeRelationshipCache, neoStore, checkpoint.relationshipTypeDistribution(),
+                        availableMemory );
+
+                // Release this potentially really big piece of cached data
+                peakMemoryUsage = totalMemoryUsageOf( nodeRelationshipCache, neoStore );
+                long highNodeId = nodeRelationshipCache.getHighNodeId();
+                nodeRelationshipCache.close();
+                nodeRelationshipCache = null;
+                // Defragment relationships groups for better performance
+                new RelationshipGroupDefragmenter( config, executionMonitor, numberArrayFactory )
+                        .run( max( maxMemory, peakMemoryUsage ), neoStore, highNodeId );
+                checkpoint = checkpoint( neoStore, RELATIONSHIPS_LINKED, checkpoint.relationshipTypeDistribution() );
+            }
 
             // Count nodes per label and labels per node
             try ( CountsAccessor.Updater countsUpdater = neoStore.getCountsStore().reset(
@@ -223,7 +272,7 @@ public class ParallelBatchImporter implements BatchImporter
             {
                 MigrationProgressMonitor progressMonitor = new SilentMigrationProgressMonitor();
                 nodeLabelsCache = new NodeLabelsCache( numberArrayFactory, neoStore.getLabelRepository().getHighId() );
-                memoryUsageStats = new MemoryUsageStatsProvider( nodeLabelsCache );
+                StatsProvider memoryUsageStats = new MemoryUsageStatsProvider( nodeLabelsCache );
                 executeStage( new NodeCountsStage( config, nodeLabelsCache, neoStore.getNodeStore(),
                         neoStore.getLabelRepository().getHighId(), countsUpdater, progressMonitor.startSection( "Nodes" ),
                         memoryUsageStats ) );
@@ -233,6 +282,7 @@ public class ParallelBatchImporter implements BatchImporter
                         neoStore.getRelationshipTypeRepository().getHighId(),
                         countsUpdater, numberArrayFactory, progressMonitor.startSection( "Relationships" ) ) );
             }
+            ImportCheckpoint.remove( fileSystem, storeDir );
 
             // We're done, do some final logging about it
             totalTimeMillis = currentTimeMillis() - startTime;
@@ -262,6 +312,266 @@ public class ParallelBatchImporter implements BatchImporter
         log.info( "Import completed successfully, took " + Format.duration( totalTimeMillis ) + ". " + storeUpdateMonitor );
     }
 
+    /**
+     * Records the first {@link ImportCheckpoint} of a new import, or reads the last one recorded by the import
+     * to resume, if {@link Configuration#resumeImport() resuming}. When resuming, the stores are set back to
+     * how they were at that checkpoint.
+     */
+    private ImportCheckpoint startOrResume( BatchingNeoStores neoStore ) throws IOException
+    {
+        if ( config.resumeImport() && ImportCheckpoint.exists( fileSystem, storeDir ) )
+        {
+            ImportCheckpoint checkpoint = ImportCheckpoint.read( fileSystem, storeDir );
+            checkpoint.restoreHighIds( neoStore );
+            log.info( "Resuming import from " + checkpoint );
+            if ( !checkpoint.reached( NODES_IMPORTED ) && PersistedIdMapping.exists( fileSystem, storeDir ) )
+            {
+                // Ids are put again as nodes are imported again
+                fileSystem.deleteRecursively( new File( storeDir, PersistedIdMapping.DIRECTORY_NAME ) );
+            }
+            return checkpoint;
+        }
+        if ( config.resumeImport() && (neoStore.getNodeStore().getHighId() > 0 ||
+                neoStore.getRelationshipStore().getHighId() > 0) )
+        {
+            throw new IllegalStateException( storeDir + " contains data, but no checkpoint to resume import from" );
+        }
+        return checkpoint( neoStore, STARTED, null );
+    }
+
+    /**
+     * Collects nodes imported now with the same input ids as existing nodes as duplicates, so that they're
+     * deleted like duplicates within the input are.
+     */
+    private static void collectDuplicatesOfExistingNodes( InputIterable<InputNode> nodes, IdMapper idMapper,
+            IdMapper existingIdMapper, Collector badCollector )
+    {
+        PrimitiveLongSet collected = Primitive.longSet();
+        try ( InputIterator<InputNode> iterator = nodes.iterator() )
+        {
+            while ( iterator.hasNext() )
+            {
+                InputNode node = iterator.next();
+                if ( node.id() == null || existingIdMapper.get( node.id(), node.group() ) == IdMapper.ID_NOT_FOUND )
+                {
+                    continue;
+                }
+                long nodeId = idMapper.get( node.id(), node.group() );
+                if ( nodeId != IdMapper.ID_NOT_FOUND && collected.add( nodeId ) )
+                {
+                    badCollector.collectDuplicateNode( node.id(), nodeId, node.group().name(), "existing store",
+                            node.sourceDescription() + ":" + node.lineNumber() );
+                }
+            }
+        }
+    }
+
+    private ImportCheckpoint checkpoint( BatchingNeoStores neoStore, ImportCheckpoint.Progress progress,
+            RelationshipTypeDistribution relationshipTypeDistribution ) throws IOException
+    {
+        neoStore.flushAndForce();
+        ImportCheckpoint checkpoint =
+                ImportCheckpoint.write( fileSystem, storeDir, progress, neoStore, relationshipTypeDistribution );
+        log.info( "Recorded import checkpoint " + progress );
+        return checkpoint;
+    }
+
+    /**
+     * @return {@link IdMapper} with the input ids of nodes imported before this import was resumed.
+     */
+    private IdMapper idMapperOfImportedNodes( Input input, NumberArrayFactory numberArrayFactory,
+            BatchingNeoStores neoStore ) throws IOException
+    {
+        if ( !PersistedIdMapping.exists( fileSystem, storeDir ) )
+        {
+            // Nothing was put, e.g. when the input ids are actual node ids
+            IdMapper idMapper = input.idMapper( numberArrayFactory );
+            if ( idMapper.holdsInputIds() )
+            {
+                idMapper.close();
+                throw new IllegalStateException( "Cannot resume import into " + storeDir + " after its nodes " +
+                        "have been imported, since the import wasn't started with resuming enabled and so " +
+                        "didn't keep the input ids of its nodes" );
+            }
+            return idMapper;
+        }
+        NodeStore nodeStore = neoStore.getNodeStore();
+        return PersistedIdMapping.load( fileSystem, storeDir, () -> input.idMapper( numberArrayFactory ),
+                numberArrayFactory, nodeStore::isInUse );
+    }
+
+    /**
+     * Imports nodes and relationships into a store which may already contain data, see
+     * {@link Configuration#incrementalImport()}. Nodes and relationships are written by the same stages as in a
+     * full import, only with ids continuing from the high ids of the store. Relationships can refer to nodes of
+     * earlier imports through the {@link PersistedIdMapping persisted id mapping}, if there is one.
+     * Instead of linking all relationships from scratch the new relationships are linked into the chains of their
+     * nodes by {@link RelationshipLinkIncrementalStage}, after which counts are updated in bulk. Schema indexes
+     * aren't updated, but left for the database to rebuild when started on the store, which is also why stores
+     * with uniqueness constraints are refused. New nodes with the same input ids as existing nodes are treated
+     * as duplicates. The imported data is recorded as a transaction which isn't in the transaction logs.
+     */
+    private void importIntoExistingStore( Input input ) throws IOException
+    {
+        log.info( "Incremental import starting" );
+
+        NodeLabelsCache nodeLabelsCache = null;
+        long startTime = currentTimeMillis();
+        CountingStoreUpdateMonitor storeUpdateMonitor = new CountingStoreUpdateMonitor();
+        long totalTimeMillis;
+        try ( BatchingNeoStores neoStore = getBatchingNeoStores();
+              InputCache inputCache = new InputCache( fileSystem, storeDir, recordFormats, config ) )
+        {
+            NumberArrayFactory numberArrayFactory =
+                    NumberArrayFactory.auto( neoStore.getPageCache(), storeDir, config.allowCacheAllocationOnHeap() );
+            Collector badCollector = input.badCollector();
+            IoMonitor writeMonitor = new IoMonitor( neoStore.getIoTracer() );
+            NodeStore nodeStore = neoStore.getNodeStore();
+            RelationshipStore relationshipStore = neoStore.getRelationshipStore();
+            long firstNodeId = nodeStore.getHighId();
+            long firstRelationshipId = relationshipStore.getHighId();
+            if ( input.idGenerator().dependsOnInput() )
+            {
+                throw new IllegalStateException( "Nodes cannot be imported with actual node ids as input ids " +
+                        "into a store which may already contain nodes" );
+            }
+            if ( neoStore.hasUniquenessConstraints() )
+            {
+                throw new IllegalStateException( "Nodes cannot be imported into a store with uniqueness " +
+                        "constraints, since the imported data cannot be validated against them. Drop the " +
+                        "constraints before the import and create them again afterwards, or do a full import" );
+            }
+
+            // New nodes get ids after the existing ones, and input ids of existing nodes are loaded, if kept
+            IdGenerator idGenerator = IdGenerators.startingFrom( firstNodeId );
+            IdMapper idMapper = IdMappers.withNodeIdOffset( input.idMapper( numberArrayFactory ), firstNodeId );
+            IdMapper existingIdMapper = null;
+            if ( PersistedIdMapping.exists( fileSystem, storeDir ) )
+            {
+                existingIdMapper = PersistedIdMapping.load( fileSystem, storeDir,
+                        () -> input.idMapper( numberArrayFactory ), numberArrayFactory, nodeStore::isInUse );
+            }
+            if ( existingIdMapper != null || config.keepIdMapping() )
+            {
+                idMapper = PersistedIdMapping.persisting( idMapper, fileSystem, storeDir );
+            }
+            StatsProvider memoryUsageStats = existingIdMapper != null
+                    ? new MemoryUsageStatsProvider( idMapper, existingIdMapper )
+                    : new MemoryUsageStatsProvider( idMapper );
+            InputIterable<InputNode> nodes = input.nodes();
+            InputIterable<InputNode> cachedNodes = cachedForSure( nodes, inputCache.nodes( MAIN, true ) );
+
+            // Import nodes, properties, labels
+            Configuration nodeConfig = configWithRecordsPerPageBasedBatchSize( config, nodeStore );
+            NodeStage nodeStage = new NodeStage( nodeConfig, writeMonitor,
+                    nodes, idMapper, idGenerator, neoStore, inputCache, neoStore.getLabelScanStore(),
+                    storeUpdateMonitor, memoryUsageStats );
+            neoStore.startFlushingPageCache();
+            executeStage( nodeStage );
+            neoStore.stopFlushingPageCache();
+            if ( idMapper.needsPreparation() )
+            {
+                executeStage( new IdMapperPreparationStage( config, idMapper, cachedNodes,
+                        badCollector, memoryUsageStats ) );
+            }
+            if ( existingIdMapper != null )
+            {
+                collectDuplicatesOfExistingNodes( cachedNodes, idMapper, existingIdMapper, badCollector );
+            }
+            PrimitiveLongIterator duplicateNodeIds = badCollector.leftOverDuplicateNodesIds();
+            if ( duplicateNodeIds.hasNext() )
+            {
+                executeStage( new DeleteDuplicateNodesStage( config, duplicateNodeIds, neoStore ) );
+            }
+
+            // Import relationships (unlinked), properties. Input ids are looked up among the existing nodes first,
+            // since new nodes with the same input ids as existing nodes have been deleted as duplicates
+            if ( existingIdMapper != null )
+            {
+                idMapper = IdMappers.withFallback( existingIdMapper, idMapper );
+            }
+            Configuration relationshipConfig = configWithRecordsPerPageBasedBatchSize( config, relationshipStore );
+            RelationshipStage unlinkedRelationshipStage =
+                    new RelationshipStage( relationshipConfig, writeMonitor, input.relationships(), idMapper,
+                            badCollector, inputCache, neoStore, storeUpdateMonitor );
+            neoStore.startFlushingPageCache();
+            executeStage( unlinkedRelationshipStage );
+            neoStore.stopFlushingPageCache();
+            idMapper.close();
+
+            // Link the new relationships into the chains of their, new or existing, nodes
+            executeStage( new RelationshipLinkIncrementalStage( relationshipConfig, neoStore, firstRelationshipId ) );
+
+            // Count nodes per label, of all nodes since the labels of existing nodes are needed for counting
+            // the new relationships too. Counts of the existing relationships are carried over.
+            // The imported data is recorded as a transaction of its own, which the counts are reset to.
+            List<long[]> existingRelationshipCounts = relationshipCounts( neoStore.getCountsStore() );
+            long importTransactionId = neoStore.commitIncrementalImportTransaction();
+            log.info( "Imported data recorded as transaction " + importTransactionId + ", which isn't in the " +
+                    "transaction logs. Incremental backups and cluster members will need to copy the whole store" );
+            try ( CountsAccessor.Updater countsUpdater = neoStore.getCountsStore().reset( importTransactionId ) )
+            {
+                for ( long[] count : existingRelationshipCounts )
+                {
+                    countsUpdater.incrementRelationshipCount( (int) count[0], (int) count[1], (int) count[2],
+                            count[3] );
+                }
+                MigrationProgressMonitor progressMonitor = new SilentMigrationProgressMonitor();
+                nodeLabelsCache = new NodeLabelsCache( numberArrayFactory, neoStore.getLabelRepository().getHighId() );
+                memoryUsageStats = new MemoryUsageStatsProvider( nodeLabelsCache );
+                executeStage( new NodeCountsStage( config, nodeLabelsCache, nodeStore,
+                        neoStore.getLabelRepository().getHighId(), countsUpdater, progressMonitor.startSection( "Nodes" ),
+                        memoryUsageStats ) );
+                executeStage( new RelationshipCountsStage( config, nodeLabelsCache, relationshipStore,
+                        firstRelationshipId, neoStore.getLabelRepository().getHighId(),
+                        neoStore.getRelationshipTypeRepository().getHighId(),
+                        countsUpdater, numberArrayFactory, progressMonitor.startSection( "Relationships" ) ) );
+            }
+
+            // Schema indexes don't contain the new nodes, have the database rebuild them when started
+            File schemaIndexDirectory = IndexDirectoryStructure.baseSchemaIndexFolder( storeDir );
+            if ( fileSystem.fileExists( schemaIndexDirectory ) )
+            {
+                fileSystem.deleteRecursively( schemaIndexDirectory );
+                log.info( "Schema indexes will be rebuilt when starting a database on " + storeDir );
+            }
+
+            totalTimeMillis = currentTimeMillis() - startTime;
+            executionMonitor.done( totalTimeMillis,
+                    format( "%n" ) +
+                    storeUpdateMonitor.toString() );
+        }
+        catch ( Throwable t )
+        {
+            log.error( "Error during incremental import", t );
+            throw Exceptions.launderedException( IOException.class, t );
+        }
+        finally
+        {
+            if ( nodeLabelsCache != null )
+            {
+                nodeLabelsCache.close();
+            }
+        }
+
+        log.info( "Incremental import completed successfully, took " + Format.duration( totalTimeMillis ) + ". " +
+                storeUpdateMonitor );
+    }
+
+    private static List<long[]> relationshipCounts( CountsTracker counts )
+    {
+        List<long[]> result = new ArrayList<>();
+        counts.accept( new CountsVisitor.Adapter()
+        {
+            @Override
+            public void visitRelationshipCount( int startLabelId, int typeId, int endLabelId, long count )
+            {
+                result.add( new long[] {startLabelId, typeId, endLabelId, count} );
+            }
+        } );
+        return result;
+    }
+
     private BatchingNeoStores getBatchingNeoStores()
     {
         if ( externalPageCache == null )
@@ -28,21 +28,44 @@ import org.neo4j.unsafe.impl.batchimport.staging.BatchFeedStep;
 import org.neo4j.unsafe.impl.batchimport.staging.ReadRecordsStep;
 import org.neo4j.unsafe.impl.batchimport.staging.Stage;
 
+import static java.lang.Math.max;
 import static org.neo4j.unsafe.impl.batchimport.RecordIdIterator.allIn;
+import static org.neo4j.unsafe.impl.batchimport.RecordIdIterator.forwards;
 
 /**
- * Reads all records from {@link RelationshipStore} and process the counts in them. Uses a {@link NodeLabelsCache}
- * previously populated by f.ex {@link NodeCountsStage}.
+ * Reads all, or a range of, records from {@link RelationshipStore} and process the counts in them.
+ * Uses a {@link NodeLabelsCache} previously populated by f.ex {@link NodeCountsStage}.
  */
 public class RelationshipCountsStage extends Stage
 {
     public RelationshipCountsStage( Configuration config, NodeLabelsCache cache, RelationshipStore relationshipStore,
             int highLabelId, int highRelationshipTypeId, CountsAccessor.Updater countsUpdater,
             NumberArrayFactory cacheFactory, MigrationProgressMonitor.Section progressMonitor )
+    {
+        this( config, cache, relationshipStore, allIn( relationshipStore, config ), highLabelId,
+                highRelationshipTypeId, countsUpdater, cacheFactory, progressMonitor );
+    }
+
+    /**
+     * Only counts the relationships in the given id range, e.g. those appended by an incremental import.
+     */
+    public RelationshipCountsStage( Configuration config, NodeLabelsCache cache, RelationshipStore relationshipStore,
+            long fromRelationshipId, int highLabelId, int highRelationshipTypeId,
+            CountsAccessor.Updater countsUpdater, NumberArrayFactory cacheFactory,
+            MigrationProgressMonitor.Section progressMonitor )
+    {
+        this( config, cache, relationshipStore,
+                forwards( max( fromRelationshipId, relationshipStore.getNumberOfReservedLowIds() ),
+                        relationshipStore.getHighId(), config ),
+                highLabelId, highRelationshipTypeId, countsUpdater, cacheFactory, progressMonitor );
+    }
+
+    private RelationshipCountsStage( Configuration config, NodeLabelsCache cache, RelationshipStore relationshipStore,
+            RecordIdIterator ids, int highLabelId, int highRelationshipTypeId, CountsAccessor.Updater countsUpdater,
+            NumberArrayFactory cacheFactory, MigrationProgressMonitor.Section progressMonitor )
     {
         super( "Relationship counts", config );
-        add( new BatchFeedStep( control(), config, allIn( relationshipStore, config ),
-                relationshipStore.getRecordSize() ) );
+        add( new BatchFeedStep( control(), config, ids, relationshipStore.getRecordSize() ) );
         add( new ReadRecordsStep<>( control(), config, false, relationshipStore, null ) );
         add( new ProcessRelationshipCountsDataStep( control(), cache, config,
                 highLabelId, highRelationshipTypeId, countsUpdater, cacheFactory, progressMonitor ) );
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.neo4j.kernel.impl.locking.NoOpClient;
+import org.neo4j.kernel.impl.store.RecordStore;
+import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.kernel.impl.transaction.state.RelationshipCreator;
+import org.neo4j.kernel.impl.transaction.state.RelationshipGroupGetter;
+import org.neo4j.storageengine.api.lock.ResourceLocker;
+import org.neo4j.unsafe.batchinsert.internal.DirectRecordAccessSet;
+import org.neo4j.unsafe.impl.batchimport.staging.BatchSender;
+import org.neo4j.unsafe.impl.batchimport.staging.ProcessorStep;
+import org.neo4j.unsafe.impl.batchimport.staging.StageControl;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
+
+/**
+ * Links relationships appended to a store by an incremental import into the relationship chains and
+ * relationship groups of their nodes, which may be existing nodes. Each relationship is prepended to the chains
+ * of its nodes the same way a transaction would, converting nodes to dense as they pass the dense node threshold,
+ * but without transaction state, locks or logging. Linking one relationship changes records of others in the
+ * same chains so this is done by a single thread, in relationship id order.
+ */
+public class RelationshipLinkIncrementalStep extends ProcessorStep<RelationshipRecord[]>
+{
+    private final RelationshipCreator relationshipCreator;
+    private final DirectRecordAccessSet recordAccess;
+    private final ResourceLocker locks = new NoOpClient();
+
+    public RelationshipLinkIncrementalStep( StageControl control, Configuration config, BatchingNeoStores neoStore )
+    {
+        super( control, "LINK", config, 1 );
+        this.recordAccess = new DirectRecordAccessSet( neoStore.getNeoStores() );
+        RecordStore<RelationshipGroupRecord> groupStore = neoStore.getNeoStores().getRelationshipGroupStore();
+        // Use the dense node threshold of the existing store, not the one configured for the import
+        this.relationshipCreator = new RelationshipCreator(
+                new RelationshipGroupGetter( groupStore ), groupStore.getStoreHeaderInt() );
+    }
+
+    @Override
+    protected void process( RelationshipRecord[] batch, BatchSender sender ) throws Throwable
+    {
+        for ( RelationshipRecord relationship : batch )
+        {
+            if ( relationship != null && relationship.inUse() )
+            {
+                long id = relationship.getId();
+                relationshipCreator.relationshipCreate( id, relationship.getType(), relationship.getFirstNode(),
+                        relationship.getSecondNode(), recordAccess, locks );
+                // The record is created anew when linked, so bring over the properties written when it was imported
+                recordAccess.getRelRecords().getOrLoad( id, null ).forChangingData()
+                        .setNextProp( relationship.getNextProp() );
+            }
+        }
+        recordAccess.commit();
+    }
+}
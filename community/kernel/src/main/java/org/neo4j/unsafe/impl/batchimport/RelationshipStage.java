@@ -75,7 +75,8 @@ public class RelationshipStage extends Stage
         RelationshipStore relationshipStore = neoStore.getRelationshipStore();
         PropertyStore propertyStore = neoStore.getPropertyStore();
         add( typer = new RelationshipTypeCheckerStep( control(), config, neoStore.getRelationshipTypeRepository() ) );
-        add( new AssignRelationshipIdBatchStep( control(), config, 0 ) );
+        // Relationships are appended after any existing ones, which there are when importing incrementally
+        add( new AssignRelationshipIdBatchStep( control(), config, relationshipStore.getHighId() ) );
         add( new RelationshipPreparationStep( control(), config, idMapper ) );
         add( new RelationshipRecordPreparationStep( control(), config,
                 neoStore.getRelationshipTypeRepository(), badCollector ) );
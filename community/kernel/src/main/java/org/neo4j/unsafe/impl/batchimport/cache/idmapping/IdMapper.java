@@ -47,6 +47,25 @@ public interface IdMapper extends MemoryStatsVisitor.Visitable
      */
     void put( Object inputId, long actualId, Group group );
 
+    /**
+     * @return whether or not {@link #put(Object, long, Group)} can be called by multiple threads concurrently.
+     * If so then input ids can also be put in any order, regardless of {@link Group}.
+     */
+    default boolean supportsConcurrentPut()
+    {
+        return false;
+    }
+
+    /**
+     * @return whether or not this mapper holds the input ids {@link #put(Object, long, Group) put} into it, as
+     * opposed to deriving node ids from input ids. If so then those input ids would have to be persisted for an
+     * import to be resumed after they have been put.
+     */
+    default boolean holdsInputIds()
+    {
+        return false;
+    }
+
     /**
      * @return whether or not a call to {@link #prepare(InputIterable, Collector, ProgressListener)} needs to commence after all calls to
      * {@link #put(Object, long, Group)} and before any call to {@link #get(Object, Group)}. I.e. whether or not all ids
@@ -19,11 +19,13 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping;
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.helpers.progress.ProgressListener;
 import org.neo4j.unsafe.impl.batchimport.InputIterable;
 import org.neo4j.unsafe.impl.batchimport.cache.MemoryStatsVisitor;
 import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.string.EncodingIdMapper;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.string.HashingIdMapper;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.string.LongEncoder;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.string.Radix;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.string.StringEncoder;
@@ -81,6 +83,199 @@ public class IdMappers
         }
     }
 
+    /**
+     * Used by {@link #withNodeIdOffset(IdMapper, long)}, see that method for more information.
+     */
+    private static class NodeIdOffsetIdMapper implements IdMapper
+    {
+        private final IdMapper delegate;
+        private final long offset;
+
+        NodeIdOffsetIdMapper( IdMapper delegate, long offset )
+        {
+            this.delegate = delegate;
+            this.offset = offset;
+        }
+
+        @Override
+        public void put( Object inputId, long actualId, Group group )
+        {
+            delegate.put( inputId, actualId - offset, group );
+        }
+
+        @Override
+        public boolean supportsConcurrentPut()
+        {
+            return delegate.supportsConcurrentPut();
+        }
+
+        @Override
+        public boolean holdsInputIds()
+        {
+            return delegate.holdsInputIds();
+        }
+
+        @Override
+        public boolean needsPreparation()
+        {
+            return delegate.needsPreparation();
+        }
+
+        @Override
+        public void prepare( InputIterable<Object> allIds, Collector collector, ProgressListener progress )
+        {
+            delegate.prepare( allIds, new NodeIdOffsetCollector( collector, offset ), progress );
+        }
+
+        @Override
+        public long get( Object inputId, Group group )
+        {
+            long id = delegate.get( inputId, group );
+            return id == ID_NOT_FOUND ? ID_NOT_FOUND : id + offset;
+        }
+
+        @Override
+        public void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
+        {
+            delegate.acceptMemoryStatsVisitor( visitor );
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName() + "[" + delegate + ",offset:" + offset + "]";
+        }
+
+        @Override
+        public void close()
+        {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Translates node ids of duplicate nodes reported by a {@link NodeIdOffsetIdMapper} back into actual node ids.
+     */
+    private static class NodeIdOffsetCollector implements Collector
+    {
+        private final Collector delegate;
+        private final long offset;
+
+        NodeIdOffsetCollector( Collector delegate, long offset )
+        {
+            this.delegate = delegate;
+            this.offset = offset;
+        }
+
+        @Override
+        public void collectBadRelationship( InputRelationship relationship, Object specificValue )
+        {
+            delegate.collectBadRelationship( relationship, specificValue );
+        }
+
+        @Override
+        public void collectDuplicateNode( Object id, long actualId, String group, String firstSource,
+                String otherSource )
+        {
+            delegate.collectDuplicateNode( id, actualId + offset, group, firstSource, otherSource );
+        }
+
+        @Override
+        public void collectExtraColumns( String source, long row, String value )
+        {
+            delegate.collectExtraColumns( source, row, value );
+        }
+
+        @Override
+        public long badEntries()
+        {
+            return delegate.badEntries();
+        }
+
+        @Override
+        public PrimitiveLongIterator leftOverDuplicateNodesIds()
+        {
+            return delegate.leftOverDuplicateNodesIds();
+        }
+
+        @Override
+        public void close()
+        {   // The importer closes the real collector
+        }
+    }
+
+    /**
+     * Used by {@link #withFallback(IdMapper, IdMapper)}, see that method for more information.
+     */
+    private static class FallbackIdMapper implements IdMapper
+    {
+        private final IdMapper primary;
+        private final IdMapper fallback;
+
+        FallbackIdMapper( IdMapper primary, IdMapper fallback )
+        {
+            this.primary = primary;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void put( Object inputId, long actualId, Group group )
+        {
+            primary.put( inputId, actualId, group );
+        }
+
+        @Override
+        public boolean supportsConcurrentPut()
+        {
+            return primary.supportsConcurrentPut();
+        }
+
+        @Override
+        public boolean holdsInputIds()
+        {
+            return primary.holdsInputIds();
+        }
+
+        @Override
+        public boolean needsPreparation()
+        {
+            return primary.needsPreparation();
+        }
+
+        @Override
+        public void prepare( InputIterable<Object> allIds, Collector collector, ProgressListener progress )
+        {
+            primary.prepare( allIds, collector, progress );
+        }
+
+        @Override
+        public long get( Object inputId, Group group )
+        {
+            long id = primary.get( inputId, group );
+            return id != ID_NOT_FOUND ? id : fallback.get( inputId, group );
+        }
+
+        @Override
+        public void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
+        {
+            primary.acceptMemoryStatsVisitor( visitor );
+            fallback.acceptMemoryStatsVisitor( visitor );
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName() + "[" + primary + ",fallback:" + fallback + "]";
+        }
+
+        @Override
+        public void close()
+        {
+            primary.close();
+            fallback.close();
+        }
+    }
+
     private IdMappers()
     {
     }
@@ -107,6 +302,19 @@ public class IdMappers
         return new EncodingIdMapper( cacheFactory, new StringEncoder(), Radix.STRING, NO_MONITOR, dynamic() );
     }
 
+    /**
+     * An {@link IdMapper} capable of mapping {@link String strings} to long ids, using a hash table which
+     * can be populated by multiple threads and doesn't need to sort its entries when preparing.
+     *
+     * @param cacheFactory {@link NumberArrayFactory} for allocating memory for the hash table used by this index.
+     * @return {@link IdMapper} for when node ids given to {@link InputNode} and {@link InputRelationship} are
+     * strings with no association with the actual ids in the database.
+     */
+    public static IdMapper hashedStrings( NumberArrayFactory cacheFactory )
+    {
+        return new HashingIdMapper( cacheFactory );
+    }
+
     /**
      * An {@link IdMapper} capable of mapping {@link Long arbitrary longs} to long ids.
      *
@@ -118,4 +326,33 @@ public class IdMappers
     {
         return new EncodingIdMapper( cacheFactory, new LongEncoder(), Radix.LONG, NO_MONITOR, dynamic() );
     }
+
+    /**
+     * An {@link IdMapper} for when node ids don't start from 0, e.g. when importing into a store which already
+     * contains nodes. {@link IdMapper#put(Object, long, Group) Put} node ids are stored relative to {@code offset}
+     * in the {@code delegate}, so that it doesn't have to hold, or sort, the id range below it. This also keeps the
+     * node ids as seen by the {@code delegate} aligned with the order of the ids given to
+     * {@link IdMapper#prepare(InputIterable, Collector, ProgressListener)}.
+     *
+     * @param delegate {@link IdMapper} to store the relative node ids in.
+     * @param offset first node id that will be put, i.e. the node id stored as {@code 0} in {@code delegate}.
+     * @return {@link IdMapper} translating between actual and relative node ids.
+     */
+    public static IdMapper withNodeIdOffset( IdMapper delegate, long offset )
+    {
+        return offset == 0 ? delegate : new NodeIdOffsetIdMapper( delegate, offset );
+    }
+
+    /**
+     * An {@link IdMapper} which puts ids in, and is prepared by, {@code primary}, but which looks up ids not found
+     * in {@code primary} in {@code fallback}. Used for letting relationships refer to nodes imported earlier.
+     *
+     * @param primary {@link IdMapper} to put ids in and look up ids in first.
+     * @param fallback already prepared {@link IdMapper} to look up ids not found in {@code primary}.
+     * @return {@link IdMapper} looking up ids in {@code primary} and then {@code fallback}.
+     */
+    public static IdMapper withFallback( IdMapper primary, IdMapper fallback )
+    {
+        return new FallbackIdMapper( primary, fallback );
+    }
 }
@@ -0,0 +1,518 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache.idmapping;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+
+import org.neo4j.helpers.progress.ProgressListener;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.unsafe.impl.batchimport.InputIterable;
+import org.neo4j.unsafe.impl.batchimport.InputIterator;
+import org.neo4j.unsafe.impl.batchimport.cache.LongArray;
+import org.neo4j.unsafe.impl.batchimport.cache.MemoryStatsVisitor;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.input.BadCollector;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+
+import static org.neo4j.unsafe.impl.batchimport.input.Collectors.silentBadCollector;
+
+/**
+ * Keeps the input id --> node id mapping of an import in files in the store directory, so that a later import
+ * into the same store can have its relationships refer to nodes imported earlier. There's one file per
+ * {@link Group id space}, where entries are appended in node id order by each import.
+ * <p>
+ * The mapping is loaded using the same kind of {@link IdMapper} as the importer would otherwise use, so the
+ * input ids of an import referring to earlier imported nodes must be of the same type as those of the earlier import.
+ * Entries of nodes not in use when loading, e.g. duplicate nodes removed during the import which put them, are
+ * skipped. Since the database may reuse ids of nodes deleted after the import, the mapping is only reliable
+ * for stores which have only been appended to since.
+ */
+public class PersistedIdMapping
+{
+    public static final String DIRECTORY_NAME = "import-id-mapping";
+    private static final String GROUP_FILE_PREFIX = "group-";
+    private static final byte LONG_ID = 1;
+    private static final byte STRING_ID = 2;
+
+    private PersistedIdMapping()
+    {
+    }
+
+    /**
+     * @param fs {@link FileSystemAbstraction} the store lives in.
+     * @param storeDir store directory.
+     * @return whether or not there's a persisted id mapping in the given store directory.
+     */
+    public static boolean exists( FileSystemAbstraction fs, File storeDir )
+    {
+        return fs.isDirectory( new File( storeDir, DIRECTORY_NAME ) );
+    }
+
+    /**
+     * Decorates an {@link IdMapper} so that all {@link IdMapper#put(Object, long, Group) put} ids are also appended
+     * to the persisted id mapping in the given store directory.
+     *
+     * @param delegate {@link IdMapper} to decorate.
+     * @param fs {@link FileSystemAbstraction} the store lives in.
+     * @param storeDir store directory.
+     * @return {@link IdMapper} persisting all put ids.
+     */
+    public static IdMapper persisting( IdMapper delegate, FileSystemAbstraction fs, File storeDir ) throws IOException
+    {
+        File directory = new File( storeDir, DIRECTORY_NAME );
+        fs.mkdirs( directory );
+        return new PersistingIdMapper( delegate, fs, directory );
+    }
+
+    /**
+     * Loads the persisted id mapping in the given store directory into an {@link IdMapper}, ready for
+     * {@link IdMapper#get(Object, Group) lookups}. Id spaces are matched by {@link Group#name() name}.
+     *
+     * @param fs {@link FileSystemAbstraction} the store lives in.
+     * @param storeDir store directory.
+     * @param mapperFactory creates the {@link IdMapper} to load the entries into, one which the input ids of the
+     * current import would be put in.
+     * @param cacheFactory {@link NumberArrayFactory} for the node ids of the loaded entries.
+     * @param nodeInUse tells whether or not a node id is in use, entries of nodes not in use are skipped.
+     * @return {@link IdMapper} holding the persisted id mapping.
+     */
+    public static IdMapper load( FileSystemAbstraction fs, File storeDir, Supplier<IdMapper> mapperFactory,
+            NumberArrayFactory cacheFactory, LongPredicate nodeInUse ) throws IOException
+    {
+        File[] groupFiles = groupFiles( fs, new File( storeDir, DIRECTORY_NAME ) );
+        IdMapper mapper = mapperFactory.get();
+        LongArray nodeIds = cacheFactory.newDynamicLongArray( 1_000_000, IdMapper.ID_NOT_FOUND );
+        Map<String,Group> groups = new HashMap<>();
+        long index = 0;
+        for ( int i = 0; i < groupFiles.length; i++ )
+        {
+            try ( GroupReader reader = new GroupReader( fs, groupFiles[i], nodeInUse ) )
+            {
+                Group group = new Group.Adapter( i, reader.groupName );
+                groups.put( group.name(), group );
+                while ( reader.next() )
+                {
+                    mapper.put( reader.inputId, index, group );
+                    nodeIds.set( index++, reader.nodeId );
+                }
+            }
+        }
+        if ( index == 0 )
+        {
+            // Nothing to look up, also the mapper cannot be prepared without any ids
+            groups.clear();
+        }
+        else
+        {
+            try ( Collector duplicates = silentBadCollector( BadCollector.UNLIMITED_TOLERANCE,
+                    BadCollector.COLLECT_ALL ) )
+            {
+                // Duplicates are tolerated here, they were dealt with by the import which put them
+                mapper.prepare( new AllIds( fs, groupFiles, nodeInUse ), duplicates, ProgressListener.NONE );
+            }
+        }
+        return new LoadedIdMapper( mapper, nodeIds, groups );
+    }
+
+    private static File[] groupFiles( FileSystemAbstraction fs, File directory )
+    {
+        File[] files = fs.listFiles( directory, ( dir, name ) -> name.startsWith( GROUP_FILE_PREFIX ) );
+        if ( files == null )
+        {
+            return new File[0];
+        }
+        Arrays.sort( files, ( a, b ) -> Integer.compare( groupFileNumber( a ), groupFileNumber( b ) ) );
+        return files;
+    }
+
+    private static int groupFileNumber( File file )
+    {
+        return Integer.parseInt( file.getName().substring( GROUP_FILE_PREFIX.length() ) );
+    }
+
+    private static class PersistingIdMapper implements IdMapper
+    {
+        private final IdMapper delegate;
+        private final FileSystemAbstraction fs;
+        private final File directory;
+        private final Map<String,File> groupFiles = new HashMap<>();
+        private int nextGroupFileNumber;
+        private String currentGroupName;
+        private DataOutputStream out;
+
+        PersistingIdMapper( IdMapper delegate, FileSystemAbstraction fs, File directory ) throws IOException
+        {
+            this.delegate = delegate;
+            this.fs = fs;
+            this.directory = directory;
+            for ( File file : groupFiles( fs, directory ) )
+            {
+                try ( DataInputStream in = new DataInputStream( fs.openAsInputStream( file ) ) )
+                {
+                    groupFiles.put( in.readUTF(), file );
+                }
+                nextGroupFileNumber = Math.max( nextGroupFileNumber, groupFileNumber( file ) + 1 );
+            }
+        }
+
+        @Override
+        public void put( Object inputId, long actualId, Group group )
+        {
+            delegate.put( inputId, actualId, group );
+            persist( inputId, actualId, group );
+        }
+
+        @Override
+        public boolean supportsConcurrentPut()
+        {
+            return delegate.supportsConcurrentPut();
+        }
+
+        @Override
+        public boolean holdsInputIds()
+        {
+            return delegate.holdsInputIds();
+        }
+
+        private synchronized void persist( Object inputId, long actualId, Group group )
+        {
+            try
+            {
+                if ( !group.name().equals( currentGroupName ) )
+                {
+                    switchToGroup( group.name() );
+                }
+                if ( inputId instanceof Number )
+                {
+                    out.writeByte( LONG_ID );
+                    out.writeLong( ((Number) inputId).longValue() );
+                }
+                else
+                {
+                    out.writeByte( STRING_ID );
+                    out.writeUTF( inputId.toString() );
+                }
+                out.writeLong( actualId );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        private void switchToGroup( String groupName ) throws IOException
+        {
+            closeCurrentGroup();
+            File file = groupFiles.get( groupName );
+            boolean newGroup = file == null;
+            if ( newGroup )
+            {
+                file = new File( directory, GROUP_FILE_PREFIX + nextGroupFileNumber++ );
+                groupFiles.put( groupName, file );
+            }
+            out = new DataOutputStream( new BufferedOutputStream( fs.openAsOutputStream( file, !newGroup ) ) );
+            if ( newGroup )
+            {
+                out.writeUTF( groupName );
+            }
+            currentGroupName = groupName;
+        }
+
+        private void closeCurrentGroup()
+        {
+            if ( out != null )
+            {
+                try
+                {
+                    out.close();
+                }
+                catch ( IOException e )
+                {
+                    throw new UncheckedIOException( e );
+                }
+                out = null;
+                currentGroupName = null;
+            }
+        }
+
+        @Override
+        public boolean needsPreparation()
+        {
+            return delegate.needsPreparation();
+        }
+
+        @Override
+        public void prepare( InputIterable<Object> allIds, Collector collector, ProgressListener progress )
+        {
+            // All ids have been put at this point
+            closeCurrentGroup();
+            delegate.prepare( allIds, collector, progress );
+        }
+
+        @Override
+        public long get( Object inputId, Group group )
+        {
+            return delegate.get( inputId, group );
+        }
+
+        @Override
+        public void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
+        {
+            delegate.acceptMemoryStatsVisitor( visitor );
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName() + "[" + delegate + "]";
+        }
+
+        @Override
+        public void close()
+        {
+            closeCurrentGroup();
+            delegate.close();
+        }
+    }
+
+    /**
+     * Looks up ids in the loaded {@link IdMapper}, where data indexes are translated to node ids and groups of the
+     * current import to those of the persisted id mapping.
+     */
+    private static class LoadedIdMapper implements IdMapper
+    {
+        private final IdMapper mapper;
+        private final LongArray nodeIds;
+        private final Map<String,Group> groups;
+
+        LoadedIdMapper( IdMapper mapper, LongArray nodeIds, Map<String,Group> groups )
+        {
+            this.mapper = mapper;
+            this.nodeIds = nodeIds;
+            this.groups = groups;
+        }
+
+        @Override
+        public void put( Object inputId, long actualId, Group group )
+        {
+            throw new UnsupportedOperationException( "Persisted id mapping is read-only" );
+        }
+
+        @Override
+        public boolean needsPreparation()
+        {
+            return false;
+        }
+
+        @Override
+        public void prepare( InputIterable<Object> allIds, Collector collector, ProgressListener progress )
+        {   // Already prepared when loaded
+        }
+
+        @Override
+        public long get( Object inputId, Group group )
+        {
+            Group persistedGroup = groups.get( group.name() );
+            if ( persistedGroup == null )
+            {
+                return ID_NOT_FOUND;
+            }
+            long index = mapper.get( inputId, persistedGroup );
+            return index == ID_NOT_FOUND ? ID_NOT_FOUND : nodeIds.get( index );
+        }
+
+        @Override
+        public void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
+        {
+            mapper.acceptMemoryStatsVisitor( visitor );
+            nodeIds.acceptMemoryStatsVisitor( visitor );
+        }
+
+        @Override
+        public String toString()
+        {
+            return getClass().getSimpleName() + "[" + mapper + "]";
+        }
+
+        @Override
+        public void close()
+        {
+            mapper.close();
+            nodeIds.close();
+        }
+    }
+
+    /**
+     * All loaded input ids, in the same order as they were put into the loaded {@link IdMapper}.
+     */
+    private static class AllIds implements InputIterable<Object>
+    {
+        private final FileSystemAbstraction fs;
+        private final File[] groupFiles;
+        private final LongPredicate nodeInUse;
+
+        AllIds( FileSystemAbstraction fs, File[] groupFiles, LongPredicate nodeInUse )
+        {
+            this.fs = fs;
+            this.groupFiles = groupFiles;
+            this.nodeInUse = nodeInUse;
+        }
+
+        @Override
+        public InputIterator<Object> iterator()
+        {
+            return new InputIterator.Adapter<Object>()
+            {
+                private int fileIndex;
+                private GroupReader reader;
+
+                @Override
+                protected Object fetchNextOrNull()
+                {
+                    try
+                    {
+                        while ( reader == null || !reader.next() )
+                        {
+                            closeReader();
+                            if ( fileIndex == groupFiles.length )
+                            {
+                                return null;
+                            }
+                            reader = new GroupReader( fs, groupFiles[fileIndex++], nodeInUse );
+                        }
+                        return reader.inputId;
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new UncheckedIOException( e );
+                    }
+                }
+
+                @Override
+                public String sourceDescription()
+                {
+                    return reader != null ? reader.file.getPath() : super.sourceDescription();
+                }
+
+                @Override
+                public void close()
+                {
+                    closeReader();
+                }
+
+                private void closeReader()
+                {
+                    if ( reader != null )
+                    {
+                        reader.close();
+                        reader = null;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean supportsMultiplePasses()
+        {
+            return true;
+        }
+    }
+
+    private static class GroupReader implements AutoCloseable
+    {
+        private final File file;
+        private final DataInputStream in;
+        private final LongPredicate nodeInUse;
+        private final String groupName;
+        private Object inputId;
+        private long nodeId;
+
+        GroupReader( FileSystemAbstraction fs, File file, LongPredicate nodeInUse ) throws IOException
+        {
+            this.file = file;
+            this.nodeInUse = nodeInUse;
+            this.in = new DataInputStream( new BufferedInputStream( fs.openAsInputStream( file ) ) );
+            this.groupName = in.readUTF();
+        }
+
+        /**
+         * Reads the next entry of a node in use into {@link #inputId} and {@link #nodeId}.
+         *
+         * @return {@code false} if there were no more entries.
+         */
+        boolean next() throws IOException
+        {
+            while ( true )
+            {
+                byte type;
+                try
+                {
+                    type = in.readByte();
+                }
+                catch ( EOFException e )
+                {
+                    return false;
+                }
+                switch ( type )
+                {
+                case LONG_ID:
+                    inputId = in.readLong();
+                    break;
+                case STRING_ID:
+                    inputId = in.readUTF();
+                    break;
+                default:
+                    throw new IOException( "Unknown id type " + type + " in " + file );
+                }
+                nodeId = in.readLong();
+                if ( nodeInUse.test( nodeId ) )
+                {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            try
+            {
+                in.close();
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+    }
+}
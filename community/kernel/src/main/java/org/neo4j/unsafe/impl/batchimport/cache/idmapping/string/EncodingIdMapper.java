@@ -244,6 +244,12 @@ public class EncodingIdMapper implements IdMapper
         }
     }
 
+    @Override
+    public boolean holdsInputIds()
+    {
+        return true;
+    }
+
     @Override
     public boolean needsPreparation()
     {
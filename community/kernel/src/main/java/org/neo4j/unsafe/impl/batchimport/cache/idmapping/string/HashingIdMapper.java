@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.neo4j.hashing.HashFunction;
+import org.neo4j.helpers.progress.ProgressListener;
+import org.neo4j.string.UTF8;
+import org.neo4j.unsafe.impl.batchimport.InputIterable;
+import org.neo4j.unsafe.impl.batchimport.cache.ByteArray;
+import org.neo4j.unsafe.impl.batchimport.cache.LongArray;
+import org.neo4j.unsafe.impl.batchimport.cache.MemoryStatsVisitor;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+
+/**
+ * Maps {@link String} input ids to node ids using a hash table. Ids are put into their final place in the table
+ * right away, so there's no sorting of all ids in {@link #prepare(InputIterable, Collector, ProgressListener)},
+ * as there is in {@link EncodingIdMapper}, and {@link #get(Object, Group)} is a hash lookup instead of a binary
+ * search.
+ * <p>
+ * The table is split into segments by the high bits of the hash of input id and group. Each segment is an
+ * open addressing, linearly probed, hash table of its own, guarded by its own lock and growing independently
+ * of the others. This is what makes it possible to {@link #put(Object, long, Group) put} ids from multiple
+ * threads, see {@link #supportsConcurrentPut()}, in any order. Memory for a segment is allocated from the given
+ * {@link NumberArrayFactory}:
+ * <ul>
+ * <li>references: offset of the entry in the segment heap, with 16 more bits of its hash in the high bits,
+ * so that most probed entries that don't match can be skipped without reading the heap</li>
+ * <li>node ids: node id of the entry in the same slot</li>
+ * <li>heap: group id, length and UTF-8 bytes of every distinct input id in the segment. Hash collisions are
+ * resolved by comparing input ids with these, so that input never has to be read again</li>
+ * </ul>
+ * Duplicate input ids within a group are detected when put. The lowest node id is kept and the others are
+ * reported to the {@link Collector} in {@link #prepare(InputIterable, Collector, ProgressListener)}, which is
+ * all there is to do there.
+ */
+public class HashingIdMapper implements IdMapper
+{
+    private static final HashFunction HASH = HashFunction.incrementalXXH64();
+    private static final long EMPTY = -1;
+    private static final int HASH_FRAGMENT_SHIFT = 48;
+    private static final long OFFSET_MASK = (1L << HASH_FRAGMENT_SHIFT) - 1;
+    private static final int ENTRY_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int DEFAULT_SEGMENT_BITS = 8;
+    private static final int DEFAULT_SEGMENT_CAPACITY = 1 << 12;
+    private static final int DEFAULT_HEAP_CHUNK_SIZE = 1 << 17; // 128kB a piece
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final Queue<Duplicate> duplicates = new ConcurrentLinkedQueue<>();
+
+    public HashingIdMapper( NumberArrayFactory cacheFactory )
+    {
+        this( cacheFactory, DEFAULT_SEGMENT_BITS, DEFAULT_SEGMENT_CAPACITY, DEFAULT_HEAP_CHUNK_SIZE );
+    }
+
+    public HashingIdMapper( NumberArrayFactory cacheFactory, int segmentBits, int initialSegmentCapacity,
+            int heapChunkSize )
+    {
+        if ( Integer.bitCount( initialSegmentCapacity ) != 1 )
+        {
+            throw new IllegalArgumentException( "Segment capacity must be a power of two, was " +
+                    initialSegmentCapacity );
+        }
+        this.segments = new Segment[1 << segmentBits];
+        this.segmentShift = Long.SIZE - segmentBits;
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            segments[i] = new Segment( cacheFactory, initialSegmentCapacity, heapChunkSize );
+        }
+    }
+
+    @Override
+    public void put( Object inputId, long actualId, Group group )
+    {
+        byte[] key = UTF8.encode( inputId.toString() );
+        long hash = hash( key, group.id() );
+        long duplicateId = segment( hash ).put( key, group.id(), hash, actualId );
+        if ( duplicateId != ID_NOT_FOUND )
+        {
+            duplicates.add( new Duplicate( inputId, duplicateId, group ) );
+        }
+    }
+
+    @Override
+    public boolean supportsConcurrentPut()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean holdsInputIds()
+    {
+        return true;
+    }
+
+    /**
+     * Only needed for reporting duplicate input ids, which are detected already when put. Ids can be looked up
+     * as soon as all of them have been put.
+     */
+    @Override
+    public boolean needsPreparation()
+    {
+        return true;
+    }
+
+    /**
+     * Reports the duplicate input ids detected when they were put. The input isn't read again, so the sources
+     * of the duplicates are described by their node ids.
+     */
+    @Override
+    public void prepare( InputIterable<Object> allIds, Collector collector, ProgressListener progress )
+    {
+        List<Duplicate> sorted = new ArrayList<>( duplicates );
+        sorted.sort( Comparator.comparingLong( duplicate -> duplicate.nodeId ) );
+        progress.started( "DEDUPLICATE" );
+        for ( Duplicate duplicate : sorted )
+        {
+            long firstId = get( duplicate.inputId, duplicate.group );
+            collector.collectDuplicateNode( duplicate.inputId, duplicate.nodeId, duplicate.group.name(),
+                    "node " + firstId, "node " + duplicate.nodeId );
+            progress.add( 1 );
+        }
+        progress.done();
+        duplicates.clear();
+    }
+
+    @Override
+    public long get( Object inputId, Group group )
+    {
+        byte[] key = UTF8.encode( inputId.toString() );
+        long hash = hash( key, group.id() );
+        return segment( hash ).get( key, group.id(), hash );
+    }
+
+    private Segment segment( long hash )
+    {
+        return segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static long hash( byte[] key, int groupId )
+    {
+        long hash = HASH.initialise( groupId );
+        int i = 0;
+        for ( ; i + Long.BYTES <= key.length; i += Long.BYTES )
+        {
+            long block = 0;
+            for ( int j = 0; j < Long.BYTES; j++ )
+            {
+                block = (block << Byte.SIZE) | (key[i + j] & 0xFF);
+            }
+            hash = HASH.update( hash, block );
+        }
+        long tail = key.length;
+        for ( ; i < key.length; i++ )
+        {
+            tail = (tail << Byte.SIZE) | (key[i] & 0xFF);
+        }
+        return HASH.finalise( HASH.update( hash, tail ) );
+    }
+
+    /**
+     * @return 16 bits of the given hash, from below the bits selecting the segment, in the high bits of a reference.
+     */
+    private static long hashFragment( long hash )
+    {
+        return (hash >>> 32) << HASH_FRAGMENT_SHIFT;
+    }
+
+    @Override
+    public void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
+    {
+        for ( Segment segment : segments )
+        {
+            segment.acceptMemoryStatsVisitor( visitor );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[segments:" + segments.length + "]";
+    }
+
+    @Override
+    public void close()
+    {
+        for ( Segment segment : segments )
+        {
+            segment.close();
+        }
+    }
+
+    /**
+     * One part of the hash table. All access to the arrays while putting is synchronized on the segment, whereas
+     * {@link #get(byte[], int, long)} is only called after all puts have been made and so isn't.
+     */
+    private static class Segment
+    {
+        private final NumberArrayFactory cacheFactory;
+        private final ByteArray heap;
+        private LongArray references;
+        private LongArray nodeIds;
+        private long mask;
+        private long size;
+        private long heapSize;
+
+        Segment( NumberArrayFactory cacheFactory, int capacity, int heapChunkSize )
+        {
+            this.cacheFactory = cacheFactory;
+            this.heap = cacheFactory.newDynamicByteArray( heapChunkSize, new byte[1] );
+            this.references = cacheFactory.newLongArray( capacity, EMPTY );
+            this.nodeIds = cacheFactory.newLongArray( capacity, ID_NOT_FOUND );
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * @return node id which turned out to be a duplicate, either the given or the one previously put for the
+         * same input id, or {@link IdMapper#ID_NOT_FOUND} if the input id wasn't in this segment already.
+         */
+        synchronized long put( byte[] key, int groupId, long hash, long nodeId )
+        {
+            long fragment = hashFragment( hash );
+            for ( long slot = hash & mask; ; slot = (slot + 1) & mask )
+            {
+                long reference = references.get( slot );
+                if ( reference == EMPTY )
+                {
+                    references.set( slot, fragment | append( key, groupId ) );
+                    nodeIds.set( slot, nodeId );
+                    if ( ++size > (mask + 1) * LOAD_FACTOR )
+                    {
+                        grow();
+                    }
+                    return ID_NOT_FOUND;
+                }
+                if ( matches( reference, fragment, key, groupId ) )
+                {
+                    long existingId = nodeIds.get( slot );
+                    if ( nodeId < existingId )
+                    {
+                        // Keep the lowest node id, so that the outcome doesn't depend on the order of puts
+                        nodeIds.set( slot, nodeId );
+                        return existingId;
+                    }
+                    return nodeId;
+                }
+            }
+        }
+
+        long get( byte[] key, int groupId, long hash )
+        {
+            long fragment = hashFragment( hash );
+            for ( long slot = hash & mask; ; slot = (slot + 1) & mask )
+            {
+                long reference = references.get( slot );
+                if ( reference == EMPTY )
+                {
+                    return ID_NOT_FOUND;
+                }
+                if ( matches( reference, fragment, key, groupId ) )
+                {
+                    return nodeIds.get( slot );
+                }
+            }
+        }
+
+        private boolean matches( long reference, long fragment, byte[] key, int groupId )
+        {
+            if ( (reference & ~OFFSET_MASK) != fragment )
+            {
+                return false;
+            }
+            long offset = reference & OFFSET_MASK;
+            if ( getInt( offset ) != groupId || getInt( offset + Integer.BYTES ) != key.length )
+            {
+                return false;
+            }
+            offset += ENTRY_HEADER_SIZE;
+            for ( int i = 0; i < key.length; i++ )
+            {
+                if ( heap.getByte( offset + i, 0 ) != key[i] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long append( byte[] key, int groupId )
+        {
+            long offset = heapSize;
+            putInt( offset, groupId );
+            putInt( offset + Integer.BYTES, key.length );
+            for ( int i = 0; i < key.length; i++ )
+            {
+                heap.setByte( offset + ENTRY_HEADER_SIZE + i, 0, key[i] );
+            }
+            heapSize += ENTRY_HEADER_SIZE + key.length;
+            return offset;
+        }
+
+        private void putInt( long offset, int value )
+        {
+            for ( int i = 0; i < Integer.BYTES; i++ )
+            {
+                heap.setByte( offset + i, 0, (byte) (value >>> (Byte.SIZE * i)) );
+            }
+        }
+
+        private int getInt( long offset )
+        {
+            int value = 0;
+            for ( int i = 0; i < Integer.BYTES; i++ )
+            {
+                value |= (heap.getByte( offset + i, 0 ) & 0xFF) << (Byte.SIZE * i);
+            }
+            return value;
+        }
+
+        /**
+         * Doubles the capacity of this segment. Hashes aren't kept, they are calculated again from the heap.
+         */
+        private void grow()
+        {
+            long capacity = (mask + 1) * 2;
+            LongArray newReferences = cacheFactory.newLongArray( capacity, EMPTY );
+            LongArray newNodeIds = cacheFactory.newLongArray( capacity, ID_NOT_FOUND );
+            long newMask = capacity - 1;
+            for ( long oldSlot = 0; oldSlot <= mask; oldSlot++ )
+            {
+                long reference = references.get( oldSlot );
+                if ( reference != EMPTY )
+                {
+                    long slot = rehash( reference & OFFSET_MASK ) & newMask;
+                    while ( newReferences.get( slot ) != EMPTY )
+                    {
+                        slot = (slot + 1) & newMask;
+                    }
+                    newReferences.set( slot, reference );
+                    newNodeIds.set( slot, nodeIds.get( oldSlot ) );
+                }
+            }
+            references.close();
+            nodeIds.close();
+            references = newReferences;
+            nodeIds = newNodeIds;
+            mask = newMask;
+        }
+
+        private long rehash( long offset )
+        {
+            int groupId = getInt( offset );
+            byte[] key = new byte[getInt( offset + Integer.BYTES )];
+            offset += ENTRY_HEADER_SIZE;
+            for ( int i = 0; i < key.length; i++ )
+            {
+                key[i] = heap.getByte( offset + i, 0 );
+            }
+            return hash( key, groupId );
+        }
+
+        synchronized void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
+        {
+            references.acceptMemoryStatsVisitor( visitor );
+            nodeIds.acceptMemoryStatsVisitor( visitor );
+            heap.acceptMemoryStatsVisitor( visitor );
+        }
+
+        void close()
+        {
+            references.close();
+            nodeIds.close();
+            heap.close();
+        }
+    }
+
+    private static class Duplicate
+    {
+        private final Object inputId;
+        private final long nodeId;
+        private final Group group;
+
+        Duplicate( Object inputId, long nodeId, Group group )
+        {
+            this.inputId = inputId;
+            this.nodeId = nodeId;
+            this.group = group;
+        }
+    }
+}
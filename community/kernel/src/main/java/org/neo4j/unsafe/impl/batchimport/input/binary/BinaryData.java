@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.binary;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.unsafe.impl.batchimport.input.InputEntity;
+import org.neo4j.unsafe.impl.batchimport.input.csv.Decorator;
+
+/**
+ * A file of binary input, written by {@link BinaryInputWriter}, and the {@link Decorator} to apply to the entities
+ * read from it.
+ */
+public class BinaryData<ENTITY extends InputEntity>
+{
+    private final File file;
+    private final Decorator<ENTITY> decorator;
+
+    public BinaryData( File file, Decorator<ENTITY> decorator )
+    {
+        this.file = file;
+        this.decorator = decorator;
+    }
+
+    /**
+     * @return {@link BinaryData} for each of the given {@code files}, all with the same {@code decorator}.
+     */
+    public static <ENTITY extends InputEntity> List<BinaryData<ENTITY>> data( Decorator<ENTITY> decorator,
+            File... files )
+    {
+        List<BinaryData<ENTITY>> data = new ArrayList<>( files.length );
+        for ( File file : files )
+        {
+            data.add( new BinaryData<>( file, decorator ) );
+        }
+        return data;
+    }
+
+    public File file()
+    {
+        return file;
+    }
+
+    public Decorator<ENTITY> decorator()
+    {
+        return decorator;
+    }
+
+    @Override
+    public String toString()
+    {
+        return file.getPath();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.binary;
+
+import java.util.Iterator;
+
+import org.neo4j.unsafe.impl.batchimport.InputIterable;
+import org.neo4j.unsafe.impl.batchimport.InputIterator;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+import org.neo4j.unsafe.impl.batchimport.input.Groups;
+import org.neo4j.unsafe.impl.batchimport.input.HeaderException;
+import org.neo4j.unsafe.impl.batchimport.input.Input;
+import org.neo4j.unsafe.impl.batchimport.input.InputEntity;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
+import org.neo4j.unsafe.impl.batchimport.input.binary.Column.Role;
+import org.neo4j.unsafe.impl.batchimport.input.csv.CsvInput;
+import org.neo4j.unsafe.impl.batchimport.input.csv.IdType;
+
+import static java.lang.String.format;
+
+/**
+ * Provides {@link Input} from files in a typed, columnar, binary format, written by {@link BinaryInputWriter}.
+ * This is an alternative to {@link CsvInput} for when data is already typed, e.g. coming from other systems,
+ * where there's no text to parse. Every file starts with a {@link Schema} of either nodes or relationships,
+ * declaring the {@link ColumnType type} and {@link Role role} of each {@link Column column}, followed by chunks of
+ * rows where the values of each column are stored together. Chunks are memory mapped and decoded from there.
+ */
+public class BinaryInput implements Input
+{
+    private final Iterable<BinaryData<InputNode>> nodeData;
+    private final Iterable<BinaryData<InputRelationship>> relationshipData;
+    private final IdType idType;
+    private final ColumnType idColumnType;
+    private final Collector badCollector;
+    private final Groups groups = new Groups();
+
+    /**
+     * @param nodeData files of nodes.
+     * @param relationshipData files of relationships.
+     * @param idType {@link IdType} of the id columns of nodes and relationships. Id columns must be of type
+     * {@link ColumnType#LONG} for {@link IdType#INTEGER} and {@link IdType#ACTUAL}, otherwise
+     * {@link ColumnType#STRING}.
+     * @param badCollector Collector getting calls about bad input data.
+     */
+    public BinaryInput( Iterable<BinaryData<InputNode>> nodeData,
+            Iterable<BinaryData<InputRelationship>> relationshipData, IdType idType, Collector badCollector )
+    {
+        this.nodeData = nodeData;
+        this.relationshipData = relationshipData;
+        this.idType = idType;
+        this.idColumnType = idType == IdType.INTEGER || idType == IdType.ACTUAL ? ColumnType.LONG : ColumnType.STRING;
+        this.badCollector = badCollector;
+    }
+
+    @Override
+    public InputIterable<InputNode> nodes()
+    {
+        return new InputIterable<InputNode>()
+        {
+            @Override
+            public InputIterator<InputNode> iterator()
+            {
+                return new NodeIterator( nodeData.iterator() );
+            }
+
+            @Override
+            public boolean supportsMultiplePasses()
+            {
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public InputIterable<InputRelationship> relationships()
+    {
+        return new InputIterable<InputRelationship>()
+        {
+            @Override
+            public InputIterator<InputRelationship> iterator()
+            {
+                return new RelationshipIterator( relationshipData.iterator() );
+            }
+
+            @Override
+            public boolean supportsMultiplePasses()
+            {
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public IdMapper idMapper( NumberArrayFactory numberArrayFactory )
+    {
+        return idType.idMapper( numberArrayFactory );
+    }
+
+    @Override
+    public IdGenerator idGenerator()
+    {
+        return idType.idGenerator();
+    }
+
+    @Override
+    public Collector badCollector()
+    {
+        return badCollector;
+    }
+
+    private void checkIdColumn( Schema schema, int index )
+    {
+        if ( index != -1 && schema.column( index ).type() != idColumnType )
+        {
+            throw new HeaderException( format( "Column %s in %s must be of type %s for id type %s",
+                    schema.column( index ), schema, idColumnType, idType ) );
+        }
+    }
+
+    private class NodeIterator extends BinaryInputIterator<InputNode>
+    {
+        private int idColumn;
+        private int labelsColumn;
+        private Group group;
+
+        NodeIterator( Iterator<BinaryData<InputNode>> data )
+        {
+            super( data, Schema.EntityType.NODES, groups );
+        }
+
+        @Override
+        protected void initialize( Schema schema, Group[] groups )
+        {
+            idColumn = schema.indexOf( Role.ID );
+            labelsColumn = schema.indexOf( Role.LABELS );
+            checkIdColumn( schema, idColumn );
+            group = idColumn != -1 ? groups[idColumn] : Group.GLOBAL;
+        }
+
+        @Override
+        protected InputNode entity( Object[] values )
+        {
+            Object id = idColumn != -1 ? values[idColumn] : null;
+            Object labels = labelsColumn != -1 ? values[labelsColumn] : null;
+            return new InputNode( sourceDescription(), lineNumber(), position(), group, id, properties( values ),
+                    null, labels( labels ), null );
+        }
+
+        private String[] labels( Object labels )
+        {
+            if ( labels == null )
+            {
+                return InputEntity.NO_LABELS;
+            }
+            return labels instanceof String ? new String[] {(String) labels} : (String[]) labels;
+        }
+    }
+
+    private class RelationshipIterator extends BinaryInputIterator<InputRelationship>
+    {
+        private int startColumn;
+        private int endColumn;
+        private int typeColumn;
+        private Group startGroup;
+        private Group endGroup;
+
+        RelationshipIterator( Iterator<BinaryData<InputRelationship>> data )
+        {
+            super( data, Schema.EntityType.RELATIONSHIPS, groups );
+        }
+
+        @Override
+        protected void initialize( Schema schema, Group[] groups )
+        {
+            startColumn = schema.indexOf( Role.START_ID );
+            endColumn = schema.indexOf( Role.END_ID );
+            typeColumn = schema.indexOf( Role.TYPE );
+            checkIdColumn( schema, startColumn );
+            checkIdColumn( schema, endColumn );
+            startGroup = groups[startColumn];
+            endGroup = groups[endColumn];
+        }
+
+        @Override
+        protected InputRelationship entity( Object[] values )
+        {
+            String type = typeColumn != -1 ? (String) values[typeColumn] : null;
+            return new InputRelationship( sourceDescription(), lineNumber(), position(), properties( values ), null,
+                    startGroup, values[startColumn], endGroup, values[endColumn], type, null );
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.neo4j.unsafe.impl.batchimport.InputIterator;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+import org.neo4j.unsafe.impl.batchimport.input.Groups;
+import org.neo4j.unsafe.impl.batchimport.input.HeaderException;
+import org.neo4j.unsafe.impl.batchimport.input.InputEntity;
+import org.neo4j.unsafe.impl.batchimport.input.InputException;
+import org.neo4j.unsafe.impl.batchimport.input.binary.Column.Role;
+import org.neo4j.unsafe.impl.batchimport.input.csv.Decorator;
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import static java.lang.Math.min;
+import static java.lang.String.format;
+
+/**
+ * Reads entities from files written by {@link BinaryInputWriter}, one file after the other. Every chunk is memory
+ * mapped and values are decoded straight from the mapped column data, one row at a time, into an array of
+ * values which subclasses make entities out of. A chunk is unmapped when moving on to the next one,
+ * and its sizes are validated before reading any of it, so that corrupt input fails with an
+ * {@link InputException} instead of reading beyond the chunk.
+ */
+abstract class BinaryInputIterator<ENTITY extends InputEntity> extends InputIterator.Adapter<ENTITY>
+{
+    private static final int CHUNK_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private final Iterator<BinaryData<ENTITY>> data;
+    private final Schema.EntityType entityType;
+    private final Groups groups;
+    private final ByteBuffer chunkHeader = ByteBuffer.allocate( CHUNK_HEADER_SIZE );
+
+    // Current file
+    private File file;
+    private FileChannel channel;
+    private long fileSize;
+    private long nextChunkPosition;
+    private Decorator<ENTITY> decorator;
+    private Schema schema;
+    private Object[] values;
+    private int[] propertyColumns;
+
+    // Current chunk
+    private MappedByteBuffer chunk;
+    private long chunkPosition;
+    private ByteBuffer[] bitmaps;
+    private ByteBuffer[] columns;
+    private int chunkRows;
+    private int chunkRow;
+    private long row;
+
+    BinaryInputIterator( Iterator<BinaryData<ENTITY>> data, Schema.EntityType entityType, Groups groups )
+    {
+        this.data = data;
+        this.entityType = entityType;
+        this.groups = groups;
+    }
+
+    /**
+     * Called before reading entities of a file with the given {@link Schema}.
+     *
+     * @param schema {@link Schema} of the file.
+     * @param groups {@link Group} of each column of the file, {@code null} for columns other than id columns.
+     */
+    protected abstract void initialize( Schema schema, Group[] groups );
+
+    /**
+     * @param values values of the current row, one per column of the {@link Schema}, {@code null} where the
+     * row has no value.
+     * @return entity of the current row.
+     */
+    protected abstract ENTITY entity( Object[] values );
+
+    @Override
+    protected ENTITY fetchNextOrNull()
+    {
+        try
+        {
+            while ( chunkRow == chunkRows )
+            {
+                if ( !nextChunk() )
+                {
+                    return null;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new InputException( "Unable to read " + file, e );
+        }
+
+        int bitmapIndex = chunkRow / Byte.SIZE;
+        int bit = 1 << (chunkRow % Byte.SIZE);
+        for ( int i = 0; i < values.length; i++ )
+        {
+            boolean hasValue = (bitmaps[i].get( bitmapIndex ) & bit) != 0;
+            try
+            {
+                values[i] = hasValue ? schema.column( i ).type().read( columns[i] ) : null;
+            }
+            catch ( InputException | BufferUnderflowException e )
+            {
+                throw new InputException( format( "Invalid value in column %d of row %d in chunk of %s at %d",
+                        i, row + 1, file, chunkPosition ), e );
+            }
+        }
+        chunkRow++;
+        row++;
+        return decorator.apply( entity( values ) );
+    }
+
+    /**
+     * @return properties of the current row, as keys and values.
+     */
+    protected Object[] properties( Object[] values )
+    {
+        int count = 0;
+        for ( int column : propertyColumns )
+        {
+            if ( values[column] != null )
+            {
+                count++;
+            }
+        }
+        if ( count == 0 )
+        {
+            return InputEntity.NO_PROPERTIES;
+        }
+        Object[] properties = new Object[count * 2];
+        int i = 0;
+        for ( int column : propertyColumns )
+        {
+            if ( values[column] != null )
+            {
+                properties[i++] = schema.column( column ).name();
+                properties[i++] = values[column];
+            }
+        }
+        return properties;
+    }
+
+    private boolean nextChunk() throws IOException
+    {
+        releaseChunk();
+        while ( channel == null || nextChunkPosition == fileSize )
+        {
+            closeFile();
+            if ( !data.hasNext() )
+            {
+                return false;
+            }
+            openFile( data.next() );
+        }
+
+        chunkHeader.clear();
+        while ( chunkHeader.hasRemaining() )
+        {
+            if ( channel.read( chunkHeader, nextChunkPosition + chunkHeader.position() ) == -1 )
+            {
+                throw new InputException( format( "Unexpected end of %s at %d", file, nextChunkPosition ) );
+            }
+        }
+        chunkHeader.flip();
+        int rows = chunkHeader.getInt();
+        long size = chunkHeader.getLong();
+        long dataPosition = nextChunkPosition + CHUNK_HEADER_SIZE;
+        chunkPosition = nextChunkPosition;
+        if ( rows < 0 )
+        {
+            throw invalidChunk( "negative number of rows " + rows );
+        }
+        if ( size < 0 || size > Integer.MAX_VALUE || dataPosition + size > fileSize )
+        {
+            throw invalidChunk( format( "size %d with %d bytes left in the file", size, fileSize - dataPosition ) );
+        }
+
+        chunk = channel.map( MapMode.READ_ONLY, dataPosition, size );
+        int bitmapLength = (rows + Byte.SIZE - 1) / Byte.SIZE;
+        for ( int i = 0; i < columns.length; i++ )
+        {
+            if ( chunk.remaining() < Integer.BYTES )
+            {
+                throw invalidChunk( format( "%d columns where %d were expected", i, columns.length ) );
+            }
+            int columnSize = chunk.getInt();
+            int columnStart = chunk.position();
+            if ( columnSize < bitmapLength || columnSize > chunk.remaining() )
+            {
+                throw invalidChunk( format( "size %d of column %d, for %d rows with %d bytes left in the chunk",
+                        columnSize, i, rows, chunk.remaining() ) );
+            }
+            bitmaps[i] = slice( chunk, columnStart, bitmapLength );
+            columns[i] = slice( chunk, columnStart + bitmapLength, columnSize - bitmapLength );
+            chunk.position( columnStart + columnSize );
+        }
+        if ( chunk.hasRemaining() )
+        {
+            throw invalidChunk( format( "%d bytes after its %d columns", chunk.remaining(), columns.length ) );
+        }
+        nextChunkPosition = dataPosition + size;
+        chunkRows = rows;
+        chunkRow = 0;
+        return true;
+    }
+
+    private InputException invalidChunk( String reason )
+    {
+        return new InputException( format( "Invalid chunk in %s at %d: %s", file, chunkPosition, reason ) );
+    }
+
+    /**
+     * Unmaps the current chunk. The column data of it, which values are decoded from, must not be read after this,
+     * but no decoded value refers to it.
+     */
+    private void releaseChunk()
+    {
+        if ( chunk != null )
+        {
+            UnsafeUtil.unmap( chunk );
+            chunk = null;
+            Arrays.fill( bitmaps, null );
+            Arrays.fill( columns, null );
+            chunkRows = chunkRow = 0;
+        }
+    }
+
+    private static ByteBuffer slice( ByteBuffer buffer, int position, int length )
+    {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position( position );
+        duplicate.limit( position + length );
+        return duplicate.slice();
+    }
+
+    private void openFile( BinaryData<ENTITY> next ) throws IOException
+    {
+        file = next.file();
+        decorator = next.decorator();
+        channel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+        fileSize = channel.size();
+        MappedByteBuffer header = channel.map( MapMode.READ_ONLY, 0, min( fileSize, Integer.MAX_VALUE ) );
+        try
+        {
+            schema = Schema.read( header, file.getPath() );
+            nextChunkPosition = header.position();
+        }
+        finally
+        {
+            UnsafeUtil.unmap( header );
+        }
+        if ( schema.entityType() != entityType )
+        {
+            throw new HeaderException( format( "Expected %s in %s, but it contains %s",
+                    entityType, file, schema.entityType() ) );
+        }
+
+        int numberOfColumns = schema.numberOfColumns();
+        Group[] columnGroups = new Group[numberOfColumns];
+        for ( int i = 0; i < numberOfColumns; i++ )
+        {
+            Column column = schema.column( i );
+            if ( column.role() == Role.ID || column.role() == Role.START_ID || column.role() == Role.END_ID )
+            {
+                columnGroups[i] = groups.getOrCreate( column.groupName() );
+            }
+        }
+        initialize( schema, columnGroups );
+        propertyColumns = new int[numberOfColumns];
+        int numberOfProperties = 0;
+        for ( int i = 0; i < numberOfColumns; i++ )
+        {
+            if ( schema.column( i ).role() == Role.PROPERTY )
+            {
+                propertyColumns[numberOfProperties++] = i;
+            }
+        }
+        propertyColumns = Arrays.copyOf( propertyColumns, numberOfProperties );
+
+        values = new Object[numberOfColumns];
+        bitmaps = new ByteBuffer[numberOfColumns];
+        columns = new ByteBuffer[numberOfColumns];
+        chunkRows = chunkRow = 0;
+        row = 0;
+    }
+
+    private void closeFile() throws IOException
+    {
+        releaseChunk();
+        if ( channel != null )
+        {
+            channel.close();
+            channel = null;
+            decorator.close();
+        }
+    }
+
+    @Override
+    public String sourceDescription()
+    {
+        return file != null ? file.getPath() : super.sourceDescription();
+    }
+
+    /**
+     * @return number of the row last read in the current file, starting at 1.
+     */
+    @Override
+    public long lineNumber()
+    {
+        return row;
+    }
+
+    /**
+     * @return position in the current file of the chunk of the row last read.
+     */
+    @Override
+    public long position()
+    {
+        return chunkPosition;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            closeFile();
+        }
+        catch ( IOException e )
+        {
+            throw new InputException( "Unable to close " + file, e );
+        }
+    }
+}
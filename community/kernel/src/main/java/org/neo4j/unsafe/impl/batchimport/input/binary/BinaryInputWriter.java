@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static java.lang.String.format;
+
+/**
+ * Writes binary input, i.e. a {@link Schema} followed by chunks of rows, for {@link BinaryInput} to read.
+ * Rows are buffered column by column until a chunk is full and then written as:
+ * <pre>
+ * int     number of rows in the chunk
+ * long    number of bytes of the columns which follow
+ * columns number of bytes of the column, bitmap of which rows have a value in the column (bit {@code row % 8}
+ *         in byte {@code row / 8}), the values of the rows which have one, encoded by their {@link ColumnType}
+ * </pre>
+ * Keeping the values of a column together, all of the same type, lets {@link BinaryInput} decode them straight
+ * from memory mapped files.
+ */
+public class BinaryInputWriter implements Closeable
+{
+    public static final int DEFAULT_ROWS_PER_CHUNK = 100_000;
+
+    private final DataOutputStream out;
+    private final Schema schema;
+    private final int rowsPerChunk;
+    private final ByteArrayOutputStream[] columnBytes;
+    private final DataOutputStream[] columnOut;
+    private final byte[][] bitmaps;
+    private int rows;
+
+    public BinaryInputWriter( OutputStream out, Schema schema ) throws IOException
+    {
+        this( out, schema, DEFAULT_ROWS_PER_CHUNK );
+    }
+
+    public BinaryInputWriter( OutputStream out, Schema schema, int rowsPerChunk ) throws IOException
+    {
+        this.out = new DataOutputStream( new BufferedOutputStream( out ) );
+        this.schema = schema;
+        this.rowsPerChunk = rowsPerChunk;
+        int columns = schema.numberOfColumns();
+        this.columnBytes = new ByteArrayOutputStream[columns];
+        this.columnOut = new DataOutputStream[columns];
+        this.bitmaps = new byte[columns][(rowsPerChunk - 1) / Byte.SIZE + 1];
+        for ( int i = 0; i < columns; i++ )
+        {
+            columnBytes[i] = new ByteArrayOutputStream();
+            columnOut[i] = new DataOutputStream( columnBytes[i] );
+        }
+        schema.write( this.out );
+    }
+
+    /**
+     * Adds a row, with one value per {@link Column} of the {@link Schema}, in the same order. A {@code null}
+     * value means that the row has no value for that column.
+     *
+     * @param values values of the row.
+     * @throws IOException on I/O error writing a full chunk.
+     */
+    public void add( Object... values ) throws IOException
+    {
+        if ( values.length != schema.numberOfColumns() )
+        {
+            throw new IllegalArgumentException( format( "Expected %d values for %s, got %s",
+                    schema.numberOfColumns(), schema, Arrays.toString( values ) ) );
+        }
+        for ( int i = 0; i < values.length; i++ )
+        {
+            if ( values[i] != null )
+            {
+                Column column = schema.column( i );
+                try
+                {
+                    column.type().write( columnOut[i], values[i] );
+                }
+                catch ( ClassCastException e )
+                {
+                    throw new IllegalArgumentException( format( "Value %s doesn't match column %s",
+                            values[i], column ), e );
+                }
+                bitmaps[i][rows / Byte.SIZE] |= 1 << (rows % Byte.SIZE);
+            }
+        }
+        if ( ++rows == rowsPerChunk )
+        {
+            writeChunk();
+        }
+    }
+
+    private void writeChunk() throws IOException
+    {
+        int bitmapLength = (rows - 1) / Byte.SIZE + 1;
+        long size = 0;
+        for ( ByteArrayOutputStream column : columnBytes )
+        {
+            size += Integer.BYTES + bitmapLength + column.size();
+        }
+        out.writeInt( rows );
+        out.writeLong( size );
+        for ( int i = 0; i < columnBytes.length; i++ )
+        {
+            out.writeInt( bitmapLength + columnBytes[i].size() );
+            out.write( bitmaps[i], 0, bitmapLength );
+            columnBytes[i].writeTo( out );
+            columnBytes[i].reset();
+            Arrays.fill( bitmaps[i], (byte) 0 );
+        }
+        rows = 0;
+    }
+
+    /**
+     * Writes the last, potentially not full, chunk and closes the underlying {@link OutputStream}.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( rows > 0 )
+        {
+            writeChunk();
+        }
+        out.close();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.binary;
+
+import java.util.Objects;
+
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+
+/**
+ * A column of binary input, as declared in the {@link Schema} of a file.
+ */
+public class Column
+{
+    /**
+     * What values of a column are used for in the entities they are read into.
+     */
+    public enum Role
+    {
+        /** Input id of nodes, {@link ColumnType#STRING} or {@link ColumnType#LONG}. */
+        ID,
+        /** Labels of nodes, {@link ColumnType#STRING} or {@link ColumnType#STRING_ARRAY}. */
+        LABELS,
+        /** Input id of the start node of relationships, {@link ColumnType#STRING} or {@link ColumnType#LONG}. */
+        START_ID,
+        /** Input id of the end node of relationships, {@link ColumnType#STRING} or {@link ColumnType#LONG}. */
+        END_ID,
+        /** Type of relationships, {@link ColumnType#STRING}. */
+        TYPE,
+        /** Property, keyed by the column name, of any {@link ColumnType}. */
+        PROPERTY,
+        /** Values which aren't imported. */
+        IGNORE
+    }
+
+    private final String name;
+    private final Role role;
+    private final ColumnType type;
+    private final String groupName;
+
+    /**
+     * @param name name of the column, the property key of {@link Role#PROPERTY} columns.
+     * @param role {@link Role} of the column.
+     * @param type {@link ColumnType} of the values in the column.
+     * @param groupName name of the {@link Group} of id columns, or {@code null} for the global group.
+     */
+    public Column( String name, Role role, ColumnType type, String groupName )
+    {
+        this.name = name;
+        this.role = role;
+        this.type = type;
+        this.groupName = groupName;
+    }
+
+    public static Column id( ColumnType type, String groupName )
+    {
+        return new Column( "id", Role.ID, type, groupName );
+    }
+
+    public static Column labels()
+    {
+        return new Column( "labels", Role.LABELS, ColumnType.STRING_ARRAY, null );
+    }
+
+    public static Column startId( ColumnType type, String groupName )
+    {
+        return new Column( "start", Role.START_ID, type, groupName );
+    }
+
+    public static Column endId( ColumnType type, String groupName )
+    {
+        return new Column( "end", Role.END_ID, type, groupName );
+    }
+
+    public static Column relationshipType()
+    {
+        return new Column( "type", Role.TYPE, ColumnType.STRING, null );
+    }
+
+    public static Column property( String key, ColumnType type )
+    {
+        return new Column( key, Role.PROPERTY, type, null );
+    }
+
+    public String name()
+    {
+        return name;
+    }
+
+    public Role role()
+    {
+        return role;
+    }
+
+    public ColumnType type()
+    {
+        return type;
+    }
+
+    public String groupName()
+    {
+        return groupName;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        Column column = (Column) o;
+        return name.equals( column.name ) && role == column.role && type == column.type &&
+                Objects.equals( groupName, column.groupName );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( name, role, type, groupName );
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + ":" + role + ":" + type + (groupName != null ? "(" + groupName + ")" : "");
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.binary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.neo4j.string.UTF8;
+import org.neo4j.unsafe.impl.batchimport.input.InputException;
+
+import static java.lang.String.format;
+
+/**
+ * Types of values in a {@link Column} of binary input. Enum ordinals are stored in the {@link Schema} of every file,
+ * so new types must be added last. Values are encoded big-endian, strings as their UTF-8 length followed
+ * by their UTF-8 bytes and arrays as their length followed by their elements.
+ */
+public enum ColumnType
+{
+    BOOLEAN
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return buffer.get() != 0;
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            out.writeBoolean( (Boolean) value );
+        }
+    },
+    BYTE
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return buffer.get();
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            out.writeByte( ((Number) value).byteValue() );
+        }
+    },
+    SHORT
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return buffer.getShort();
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            out.writeShort( ((Number) value).shortValue() );
+        }
+    },
+    CHAR
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return buffer.getChar();
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            out.writeChar( (Character) value );
+        }
+    },
+    INT
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return buffer.getInt();
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            out.writeInt( ((Number) value).intValue() );
+        }
+    },
+    LONG
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return buffer.getLong();
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            out.writeLong( ((Number) value).longValue() );
+        }
+    },
+    FLOAT
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return buffer.getFloat();
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            out.writeFloat( ((Number) value).floatValue() );
+        }
+    },
+    DOUBLE
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return buffer.getDouble();
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            out.writeDouble( ((Number) value).doubleValue() );
+        }
+    },
+    STRING
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            return readString( buffer );
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            writeString( out, value.toString() );
+        }
+    },
+    INT_ARRAY
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            int[] array = new int[readLength( buffer, Integer.BYTES )];
+            buffer.asIntBuffer().get( array );
+            buffer.position( buffer.position() + array.length * Integer.BYTES );
+            return array;
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            int[] array = (int[]) value;
+            out.writeInt( array.length );
+            for ( int item : array )
+            {
+                out.writeInt( item );
+            }
+        }
+    },
+    LONG_ARRAY
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            long[] array = new long[readLength( buffer, Long.BYTES )];
+            buffer.asLongBuffer().get( array );
+            buffer.position( buffer.position() + array.length * Long.BYTES );
+            return array;
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            long[] array = (long[]) value;
+            out.writeInt( array.length );
+            for ( long item : array )
+            {
+                out.writeLong( item );
+            }
+        }
+    },
+    DOUBLE_ARRAY
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            double[] array = new double[readLength( buffer, Double.BYTES )];
+            buffer.asDoubleBuffer().get( array );
+            buffer.position( buffer.position() + array.length * Double.BYTES );
+            return array;
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            double[] array = (double[]) value;
+            out.writeInt( array.length );
+            for ( double item : array )
+            {
+                out.writeDouble( item );
+            }
+        }
+    },
+    STRING_ARRAY
+    {
+        @Override
+        Object read( ByteBuffer buffer )
+        {
+            String[] array = new String[readLength( buffer, Integer.BYTES )];
+            for ( int i = 0; i < array.length; i++ )
+            {
+                array[i] = readString( buffer );
+            }
+            return array;
+        }
+
+        @Override
+        void write( DataOutput out, Object value ) throws IOException
+        {
+            String[] array = (String[]) value;
+            out.writeInt( array.length );
+            for ( String item : array )
+            {
+                writeString( out, item );
+            }
+        }
+    };
+
+    /**
+     * Reads a value from the current position of the {@code buffer}, leaving it positioned after the value.
+     *
+     * @throws InputException if the value has an invalid length.
+     * @throws java.nio.BufferUnderflowException if the value extends beyond the {@code buffer}.
+     */
+    abstract Object read( ByteBuffer buffer );
+
+    abstract void write( DataOutput out, Object value ) throws IOException;
+
+    /**
+     * Reads the length of a string or array, checking that there's room in the {@code buffer} for that many
+     * elements of at least the given size, so that corrupt data can't make the reader allocate huge arrays.
+     */
+    private static int readLength( ByteBuffer buffer, int minElementSize )
+    {
+        int length = buffer.getInt();
+        if ( length < 0 || (long) length * minElementSize > buffer.remaining() )
+        {
+            throw new InputException( format( "Invalid length %d of value with %d bytes left in its column",
+                    length, buffer.remaining() ) );
+        }
+        return length;
+    }
+
+    private static String readString( ByteBuffer buffer )
+    {
+        int length = readLength( buffer, Byte.BYTES );
+        String value;
+        if ( buffer.hasArray() )
+        {
+            value = UTF8.decode( buffer.array(), buffer.arrayOffset() + buffer.position(), length );
+        }
+        else
+        {
+            byte[] bytes = new byte[length];
+            buffer.duplicate().get( bytes );
+            value = UTF8.decode( bytes );
+        }
+        buffer.position( buffer.position() + length );
+        return value;
+    }
+
+    private static void writeString( DataOutput out, String value ) throws IOException
+    {
+        byte[] bytes = UTF8.encode( value );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+}
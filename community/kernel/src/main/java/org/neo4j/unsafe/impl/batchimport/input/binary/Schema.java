@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.binary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.neo4j.unsafe.impl.batchimport.input.HeaderException;
+import org.neo4j.unsafe.impl.batchimport.input.binary.Column.Role;
+
+import static java.lang.String.format;
+
+/**
+ * Describes the entities and the {@link Column columns} of a file of binary input. Written first in every file,
+ * making the files self-describing:
+ * <pre>
+ * long    magic
+ * int     format version
+ * byte    {@link EntityType} ordinal
+ * int     number of columns
+ * columns name as {@link ColumnType#STRING}, {@link Role} ordinal as byte, {@link ColumnType} ordinal as byte,
+ *         whether or not there's a group name as boolean, optionally followed by the group name
+ * </pre>
+ */
+public class Schema
+{
+    public enum EntityType
+    {
+        NODES,
+        RELATIONSHIPS
+    }
+
+    static final long MAGIC = 0x4E656F34436F6C31L; // "Neo4Col1"
+    static final int VERSION = 1;
+
+    private final EntityType entityType;
+    private final Column[] columns;
+
+    public Schema( EntityType entityType, Column... columns )
+    {
+        this.entityType = entityType;
+        this.columns = columns;
+        validate();
+    }
+
+    public static Schema nodes( Column... columns )
+    {
+        return new Schema( EntityType.NODES, columns );
+    }
+
+    public static Schema relationships( Column... columns )
+    {
+        return new Schema( EntityType.RELATIONSHIPS, columns );
+    }
+
+    public EntityType entityType()
+    {
+        return entityType;
+    }
+
+    public Column[] columns()
+    {
+        return columns.clone();
+    }
+
+    public int numberOfColumns()
+    {
+        return columns.length;
+    }
+
+    public Column column( int index )
+    {
+        return columns[index];
+    }
+
+    /**
+     * @return index of the column with the given {@link Role}, or {@code -1} if there's none.
+     * Not to be used for {@link Role#PROPERTY} or {@link Role#IGNORE}, which there can be many of.
+     */
+    public int indexOf( Role role )
+    {
+        for ( int i = 0; i < columns.length; i++ )
+        {
+            if ( columns[i].role() == role )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void validate()
+    {
+        Map<Role,Column> singles = new EnumMap<>( Role.class );
+        for ( Column column : columns )
+        {
+            Role role = column.role();
+            if ( role != Role.PROPERTY && role != Role.IGNORE && singles.put( role, column ) != null )
+            {
+                throw new HeaderException( format( "More than one %s column in %s", role, this ) );
+            }
+            switch ( role )
+            {
+            case ID:
+            case START_ID:
+            case END_ID:
+                expectType( column, ColumnType.STRING, ColumnType.LONG );
+                break;
+            case LABELS:
+                expectType( column, ColumnType.STRING, ColumnType.STRING_ARRAY );
+                break;
+            case TYPE:
+                expectType( column, ColumnType.STRING );
+                break;
+            default:
+                break;
+            }
+        }
+
+        boolean nodes = entityType == EntityType.NODES;
+        for ( Role role : nodes
+                ? new Role[] {Role.START_ID, Role.END_ID, Role.TYPE}
+                : new Role[] {Role.ID, Role.LABELS} )
+        {
+            if ( singles.containsKey( role ) )
+            {
+                throw new HeaderException( format( "Unexpected %s column in %s", role, this ) );
+            }
+        }
+        if ( !nodes && (!singles.containsKey( Role.START_ID ) || !singles.containsKey( Role.END_ID )) )
+        {
+            throw new HeaderException( format( "Missing %s or %s column in %s", Role.START_ID, Role.END_ID, this ) );
+        }
+    }
+
+    private void expectType( Column column, ColumnType... types )
+    {
+        if ( !Arrays.asList( types ).contains( column.type() ) )
+        {
+            throw new HeaderException( format( "Column %s in %s must be one of %s",
+                    column, this, Arrays.toString( types ) ) );
+        }
+    }
+
+    void write( DataOutput out ) throws IOException
+    {
+        out.writeLong( MAGIC );
+        out.writeInt( VERSION );
+        out.writeByte( entityType.ordinal() );
+        out.writeInt( columns.length );
+        for ( Column column : columns )
+        {
+            ColumnType.STRING.write( out, column.name() );
+            out.writeByte( column.role().ordinal() );
+            out.writeByte( column.type().ordinal() );
+            out.writeBoolean( column.groupName() != null );
+            if ( column.groupName() != null )
+            {
+                ColumnType.STRING.write( out, column.groupName() );
+            }
+        }
+    }
+
+    /**
+     * Reads a {@link Schema} from the current position of the {@code buffer}, leaving it positioned after it.
+     *
+     * @param buffer {@link ByteBuffer} to read from.
+     * @param source description of the source of the data, for error messages.
+     * @return the read {@link Schema}.
+     * @throws HeaderException if there's no valid {@link Schema} at the current position of the {@code buffer}.
+     */
+    static Schema read( ByteBuffer buffer, String source )
+    {
+        try
+        {
+            if ( buffer.getLong() != MAGIC )
+            {
+                throw new HeaderException( source + " isn't binary input" );
+            }
+            int version = buffer.getInt();
+            if ( version != VERSION )
+            {
+                throw new HeaderException( format( "Unsupported binary input version %d in %s", version, source ) );
+            }
+            EntityType entityType = EntityType.values()[buffer.get()];
+            Column[] columns = new Column[buffer.getInt()];
+            for ( int i = 0; i < columns.length; i++ )
+            {
+                String name = (String) ColumnType.STRING.read( buffer );
+                Role role = Role.values()[buffer.get()];
+                ColumnType type = ColumnType.values()[buffer.get()];
+                String groupName = buffer.get() != 0 ? (String) ColumnType.STRING.read( buffer ) : null;
+                columns[i] = new Column( name, role, type, groupName );
+            }
+            return new Schema( entityType, columns );
+        }
+        catch ( BufferUnderflowException | ArrayIndexOutOfBoundsException e )
+        {
+            throw new HeaderException( "Invalid binary input header in " + source );
+        }
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        Schema schema = (Schema) o;
+        return entityType == schema.entityType && Arrays.equals( columns, schema.columns );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * entityType.hashCode() + Arrays.hashCode( columns );
+    }
+
+    @Override
+    public String toString()
+    {
+        return entityType + Arrays.toString( columns );
+    }
+}
@@ -21,6 +21,7 @@ package org.neo4j.unsafe.impl.batchimport.input.csv;
 
 import org.neo4j.csv.reader.CharReadable;
 import org.neo4j.csv.reader.CharSeeker;
+import org.neo4j.csv.reader.Chunker;
 import org.neo4j.unsafe.impl.batchimport.input.InputEntity;
 
 /**
@@ -32,4 +33,14 @@ public interface Data<ENTITY extends InputEntity>
     CharReadable stream();
 
     Decorator<ENTITY> decorator();
+
+    /**
+     * @param parallelism number of threads which may read chunks from the returned {@link Chunker}.
+     * @return a {@link Chunker} splitting this data into chunks of whole rows without reading them as a
+     * {@link #stream()} first, or {@code null} if this data can only be read as a {@link #stream()}.
+     */
+    default Chunker chunker( int parallelism )
+    {
+        return null;
+    }
 }
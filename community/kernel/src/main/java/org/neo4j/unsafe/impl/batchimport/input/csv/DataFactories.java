@@ -30,8 +30,10 @@ import java.util.function.Supplier;
 
 import org.neo4j.csv.reader.CharReadable;
 import org.neo4j.csv.reader.CharSeeker;
+import org.neo4j.csv.reader.Chunker;
 import org.neo4j.csv.reader.Extractor;
 import org.neo4j.csv.reader.Extractors;
+import org.neo4j.csv.reader.FileChunker;
 import org.neo4j.csv.reader.Mark;
 import org.neo4j.function.Factory;
 import org.neo4j.helpers.collection.Iterables;
@@ -59,6 +61,8 @@ public class DataFactories
      * Creates a {@link DataFactory} where data exists in multiple files. If the first line of the first file is a header,
      * {@link #defaultFormatNodeFileHeader()} can be used to extract that.
      *
+     * The files can also be split into chunks which are read and decoded in parallel, see {@link FileChunker}.
+     *
      * @return {@link DataFactory} that returns a {@link CharSeeker} over all the supplied {@code files}.
      */
     public static <ENTITY extends InputEntity> DataFactory<ENTITY> data( final Decorator<ENTITY> decorator,
@@ -89,6 +93,21 @@ public class DataFactories
             {
                 return decorator;
             }
+
+            @Override
+            public Chunker chunker( int parallelism )
+            {
+                try
+                {
+                    return FileChunker.canChunk( charset, config, config.delimiter(), files )
+                           ? new FileChunker( charset, config, config.delimiter(), parallelism, files )
+                           : null;
+                }
+                catch ( IOException e )
+                {
+                    throw new InputException( e.getMessage(), e );
+                }
+            }
         };
     }
 
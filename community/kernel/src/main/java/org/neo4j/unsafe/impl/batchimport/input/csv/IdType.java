@@ -60,6 +60,32 @@ public enum IdType
         }
     },
 
+    /**
+     * Same as {@link #STRING}, but node ids are mapped using a hash table instead of sorting them after all nodes
+     * have been imported. Uses more memory, but the table is populated by multiple threads and there's no
+     * sorting of the ids to wait for before importing relationships.
+     */
+    HASHED_STRING( true )
+    {
+        @Override
+        public Extractor<?> extractor( Extractors extractors )
+        {
+            return extractors.string();
+        }
+
+        @Override
+        public IdMapper idMapper( NumberArrayFactory numberArrayFactory )
+        {
+            return IdMappers.hashedStrings( numberArrayFactory );
+        }
+
+        @Override
+        public IdGenerator idGenerator()
+        {
+            return IdGenerators.startingFromTheBeginning();
+        }
+    },
+
     /**
      * Used when node ids int input data are any integer identifier. It uses 8b longs for storage,
      * but as a user facing enum a better name is integer
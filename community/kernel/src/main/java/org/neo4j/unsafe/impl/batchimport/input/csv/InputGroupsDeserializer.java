@@ -21,6 +21,8 @@ package org.neo4j.unsafe.impl.batchimport.input.csv;
 
 import java.util.Iterator;
 import org.neo4j.csv.reader.CharSeeker;
+import org.neo4j.csv.reader.Chunker;
+import org.neo4j.csv.reader.ProcessingSource;
 import org.neo4j.helpers.collection.NestingIterator;
 import org.neo4j.kernel.impl.util.Validator;
 import org.neo4j.unsafe.impl.batchimport.InputIterator;
@@ -32,8 +34,8 @@ import static org.neo4j.csv.reader.CharSeekers.charSeeker;
  * as one stream of data. The first line in this data stream defines the header, a header which applies to
  * all data in its group.
  *
- * Depending on how the data is structured, see {@link Configuration#multilineFields()} data may or may not
- * be parsed and processed in parallel for higher throughput.
+ * Depending on how the data is structured, see {@link Configuration#multilineFields()}, and where it comes from,
+ * see {@link Data#chunker(int)}, data may or may not be parsed and processed in parallel for higher throughput.
  */
 class InputGroupsDeserializer<ENTITY extends InputEntity>
         extends NestingIterator<ENTITY,DataFactory<ENTITY>>
@@ -80,11 +82,12 @@ class InputGroupsDeserializer<ENTITY extends InputEntity>
 
         // Open the data stream. It's closed by the batch importer when execution is done.
         Data<ENTITY> data = dataFactory.create( config );
-        if ( config.multilineFields() )
+        Chunker chunker = data.chunker( maxProcessors );
+        if ( chunker == null && config.multilineFields() )
         {
             // Use a single-threaded reading and parsing because if we can expect multi-line fields it's
             // nearly impossible to deduce where one row ends and another starts when diving into
-            // an arbitrary position in the file.
+            // an arbitrary position in the file. Data which can provide a chunker knows how to do that though.
 
             CharSeeker dataStream = charSeeker( data.stream(), config, true );
 
@@ -109,8 +112,14 @@ class InputGroupsDeserializer<ENTITY extends InputEntity>
             // it will search backwards for the first new-line character and set the chunk end position
             // to that position, effectively un-reading those characters back. This way each chunk will have
             // complete rows of data and can be parsed individually by multiple threads.
-
-            currentInput = new ParallelInputEntityDeserializer<>( data, headerFactory, config, idType,
+            // Data which can provide its own chunker, e.g. files, is split by that instead, which also
+            // leaves reading and decoding of the chunks to the parsing threads.
+
+            if ( chunker == null )
+            {
+                chunker = new ProcessingSource( data.stream(), config.bufferSize(), maxProcessors );
+            }
+            currentInput = new ParallelInputEntityDeserializer<>( data, chunker, headerFactory, config, idType,
                     maxProcessors, previousInputProcessors, factory, validator, entityClass );
             currentInputOpen = true;
         }
@@ -28,8 +28,9 @@ import java.util.function.Supplier;
 
 import org.neo4j.csv.reader.BufferedCharSeeker;
 import org.neo4j.csv.reader.CharSeeker;
+import org.neo4j.csv.reader.Chunker;
 import org.neo4j.csv.reader.ProcessingSource;
-import org.neo4j.csv.reader.Source.Chunk;
+import org.neo4j.csv.reader.Source;
 import org.neo4j.csv.reader.SourceTraceability;
 import org.neo4j.helpers.Exceptions;
 import org.neo4j.helpers.collection.PrefetchingIterator;
@@ -44,14 +45,15 @@ import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 import org.neo4j.unsafe.impl.batchimport.input.csv.InputGroupsDeserializer.DeserializerFactory;
 import org.neo4j.unsafe.impl.batchimport.staging.TicketedProcessing;
 
-import static org.neo4j.csv.reader.Source.singleChunk;
 import static org.neo4j.kernel.impl.util.Validators.emptyValidator;
 import static org.neo4j.unsafe.impl.batchimport.input.InputEntityDecorators.noDecorator;
 
 /**
- * Deserializes CSV into {@link InputNode} and {@link InputRelationship} and does so by reading characters
- * in a dedicated thread while letting one or more threads parse the data. This can only safely be used if
- * {@link Configuration#multilineFields()} is {@code false}. Initially only one parsing thread is assigned,
+ * Deserializes CSV into {@link InputNode} and {@link InputRelationship} and does so by splitting the data into
+ * chunks of whole rows in a dedicated thread while letting one or more threads parse the data. By default the
+ * chunks are read from {@link Data#stream()} by a {@link ProcessingSource}, which can only safely be used if
+ * {@link Configuration#multilineFields()} is {@code false}. A {@link Chunker} which knows better, like one from
+ * {@link Data#chunker(int)}, can be given instead. Initially only one parsing thread is assigned,
  * more can be assigned at any point in time using {@link #processors(int)}.
  *
  * This class accepts {@link DeserializerFactory}, which normally instantiates {@link InputEntityDeserializer}
@@ -61,28 +63,36 @@ import static org.neo4j.unsafe.impl.batchimport.input.InputEntityDecorators.noDe
  */
 public class ParallelInputEntityDeserializer<ENTITY extends InputEntity> extends InputIterator.Adapter<ENTITY>
 {
-    private final ProcessingSource source;
+    private final Chunker source;
     private final TicketedProcessing<CharSeeker,Header,ENTITY[]> processing;
     private final ContinuableArrayCursor<ENTITY> cursor;
     private SourceTraceability last = SourceTraceability.EMPTY;
     private Decorator<ENTITY> decorator;
 
-    @SuppressWarnings( "unchecked" )
     public ParallelInputEntityDeserializer( Data<ENTITY> data, Header.Factory headerFactory, Configuration config,
             IdType idType, int maxProcessors, int initialProcessors, DeserializerFactory<ENTITY> factory,
             Validator<ENTITY> validator, Class<ENTITY> entityClass )
     {
         // Reader of chunks, characters aligning to nearest newline
-        source = new ProcessingSource( data.stream(), config.bufferSize(), maxProcessors );
+        this( data, new ProcessingSource( data.stream(), config.bufferSize(), maxProcessors ), headerFactory, config,
+                idType, maxProcessors, initialProcessors, factory, validator, entityClass );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public ParallelInputEntityDeserializer( Data<ENTITY> data, Chunker source, Header.Factory headerFactory,
+            Configuration config, IdType idType, int maxProcessors, int initialProcessors,
+            DeserializerFactory<ENTITY> factory, Validator<ENTITY> validator, Class<ENTITY> entityClass )
+    {
+        this.source = source;
         try
         {
             // Read first chunk explicitly here since it contains the header
-            Chunk firstChunk = source.nextChunk();
-            if ( firstChunk.length() == 0 )
+            Source firstChunk = source.next();
+            if ( firstChunk == null )
             {
                 throw new InputException( "No header defined" );
             }
-            CharSeeker firstSeeker = new BufferedCharSeeker( singleChunk( firstChunk ), config );
+            CharSeeker firstSeeker = new BufferedCharSeeker( firstChunk, config );
             Header dataHeader = headerFactory.create( firstSeeker, config, idType );
 
             // Initialize the processing logic for parsing the data in the first chunk, as well as in all other chunks
@@ -227,7 +237,7 @@ public class ParallelInputEntityDeserializer<ENTITY extends InputEntity> extends
         };
     }
 
-    private static Iterator<CharSeeker> seekers( CharSeeker firstSeeker, ProcessingSource source, Configuration config )
+    private static Iterator<CharSeeker> seekers( CharSeeker firstSeeker, Chunker source, Configuration config )
     {
         return new PrefetchingIterator<CharSeeker>()
         {
@@ -244,11 +254,12 @@ public class ParallelInputEntityDeserializer<ENTITY extends InputEntity> extends
                     return firstSeeker;
                 }
 
-                // Continue read the next chunk from the source file(s)
+                // Continue read the next chunk from the source file(s). The seeker gets the characters of the chunk
+                // on its first seek, i.e. in the processor thread, in case the chunker leaves decoding to it
                 try
                 {
-                    Chunk chunk = source.nextChunk();
-                    return chunk.length() > 0 ? new BufferedCharSeeker( singleChunk( chunk ), config ) : null;
+                    Source chunk = source.next();
+                    return chunk != null ? new BufferedCharSeeker( chunk, config ) : null;
                 }
                 catch ( IOException e )
                 {
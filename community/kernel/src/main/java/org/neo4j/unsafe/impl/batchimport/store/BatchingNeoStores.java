@@ -22,6 +22,7 @@ package org.neo4j.unsafe.impl.batchimport.store;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.OpenOption;
+import java.util.Iterator;
 
 import org.neo4j.index.internal.gbptree.RecoveryCleanupWorkCollector;
 import org.neo4j.io.fs.FileSystemAbstraction;
@@ -37,15 +38,20 @@ import org.neo4j.kernel.impl.api.scan.FullStoreChangeStream;
 import org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStore;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.pagecache.ConfiguringPageCacheFactory;
+import org.neo4j.kernel.impl.recovery.RecoveryRequiredChecker;
+import org.neo4j.kernel.impl.store.MetaDataStore;
 import org.neo4j.kernel.impl.store.NeoStores;
 import org.neo4j.kernel.impl.store.NodeStore;
 import org.neo4j.kernel.impl.store.PropertyStore;
 import org.neo4j.kernel.impl.store.RecordStore;
 import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.SchemaStorage;
 import org.neo4j.kernel.impl.store.StoreFactory;
 import org.neo4j.kernel.impl.store.UnderlyingStorageException;
 import org.neo4j.kernel.impl.store.counts.CountsTracker;
 import org.neo4j.kernel.impl.store.format.RecordFormats;
+import org.neo4j.kernel.impl.store.id.IdType;
+import org.neo4j.kernel.impl.store.record.ConstraintRule;
 import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
 import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.kernel.monitoring.Monitors;
@@ -66,6 +72,7 @@ import static org.neo4j.helpers.collection.MapUtil.stringMap;
 import static org.neo4j.kernel.impl.store.MetaDataStore.DEFAULT_NAME;
 import static org.neo4j.kernel.impl.store.StoreType.RELATIONSHIP_GROUP;
 import static org.neo4j.kernel.impl.transaction.log.TransactionIdStore.BASE_TX_COMMIT_TIMESTAMP;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
 
 /**
  * Creator and accessor of {@link NeoStores} with some logic to provide very batch friendly services to the
@@ -87,6 +94,7 @@ public class BatchingNeoStores implements AutoCloseable, MemoryStatsVisitor.Visi
     private final LabelScanStore labelScanStore;
     private final IoTracer ioTracer;
     private final RecordFormats recordFormats;
+    private final BatchingIdGeneratorFactory idGeneratorFactory;
 
     // Some stores are considered temporary during the import and will be reordered/restructured
     // into the main store. These temporary stores will live here
@@ -107,25 +115,19 @@ public class BatchingNeoStores implements AutoCloseable, MemoryStatsVisitor.Visi
         this.pageCache = pageCache;
         this.ioTracer = ioTracer;
         this.externalPageCache = externalPageCache;
-        this.neoStores = newStoreFactory( DEFAULT_NAME ).openAllNeoStores( true );
-        if ( alreadyContainsData( neoStores ) )
+        boolean incremental = importConfiguration.incrementalImport();
+        if ( incremental && recoveryRequired( fileSystem, pageCache, storeDir ) )
+        {
+            throw closePageCacheOnFailure( new IllegalStateException( storeDir + " needs recovery, " +
+                    "start and cleanly shut down a database on it before importing into it" ) );
+        }
+        this.idGeneratorFactory = new BatchingIdGeneratorFactory( fileSystem );
+        this.neoStores = newStoreFactory( DEFAULT_NAME, idGeneratorFactory ).openAllNeoStores( true );
+        if ( !incremental && !importConfiguration.resumeImport() && alreadyContainsData( neoStores ) )
         {
             neoStores.close();
-            IllegalStateException ise =
-                    new IllegalStateException( storeDir + " already contains data, cannot do import here" );
-            if ( !externalPageCache )
-            {
-                try
-                {
-                    pageCache.close();
-                }
-                catch ( Exception e )
-                {
-                    // Oddly enough we can't close the page cache, how to communicate this? Here we add as suppressed
-                    ise.addSuppressed( e );
-                }
-            }
-            throw ise;
+            throw closePageCacheOnFailure(
+                    new IllegalStateException( storeDir + " already contains data, cannot do import here" ) );
         }
         try
         {
@@ -135,10 +137,13 @@ public class BatchingNeoStores implements AutoCloseable, MemoryStatsVisitor.Visi
         {
             throw new UnderlyingStorageException( e );
         }
-        neoStores.getMetaDataStore().setLastCommittedAndClosedTransactionId(
-                initialIds.lastCommittedTransactionId(), initialIds.lastCommittedTransactionChecksum(),
-                BASE_TX_COMMIT_TIMESTAMP, initialIds.lastCommittedTransactionLogByteOffset(),
-                initialIds.lastCommittedTransactionLogVersion() );
+        if ( !incremental )
+        {
+            neoStores.getMetaDataStore().setLastCommittedAndClosedTransactionId(
+                    initialIds.lastCommittedTransactionId(), initialIds.lastCommittedTransactionChecksum(),
+                    BASE_TX_COMMIT_TIMESTAMP, initialIds.lastCommittedTransactionLogByteOffset(),
+                    initialIds.lastCommittedTransactionLogVersion() );
+        }
         this.propertyKeyRepository = new BatchingPropertyKeyTokenRepository(
                 neoStores.getPropertyKeyTokenStore() );
         this.labelRepository = new BatchingLabelTokenRepository(
@@ -147,8 +152,8 @@ public class BatchingNeoStores implements AutoCloseable, MemoryStatsVisitor.Visi
                 neoStores.getRelationshipTypeTokenStore() );
 
         // Instantiate the temporary stores
-        temporaryNeoStores = newStoreFactory(
-                "temp." + DEFAULT_NAME, DELETE_ON_CLOSE ).openNeoStores( true, RELATIONSHIP_GROUP );
+        temporaryNeoStores = newStoreFactory( "temp." + DEFAULT_NAME, new BatchingIdGeneratorFactory( fileSystem ),
+                DELETE_ON_CLOSE ).openNeoStores( true, RELATIONSHIP_GROUP );
 
         // Initialize kernel extensions
         life.start();
@@ -195,15 +200,45 @@ public class BatchingNeoStores implements AutoCloseable, MemoryStatsVisitor.Visi
                 log.getLog( BatchingNeoStores.class ) ).getOrCreatePageCache();
     }
 
+    private static boolean recoveryRequired( FileSystemAbstraction fileSystem, PageCache pageCache, File storeDir )
+    {
+        try
+        {
+            return new RecoveryRequiredChecker( fileSystem, pageCache ).isRecoveryRequiredAt( storeDir );
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    private IllegalStateException closePageCacheOnFailure( IllegalStateException ise )
+    {
+        if ( !externalPageCache )
+        {
+            try
+            {
+                pageCache.close();
+            }
+            catch ( Exception e )
+            {
+                // Oddly enough we can't close the page cache, how to communicate this? Here we add as suppressed
+                ise.addSuppressed( e );
+            }
+        }
+        return ise;
+    }
+
     private boolean alreadyContainsData( NeoStores neoStores )
     {
         return neoStores.getNodeStore().getHighId() > 0 || neoStores.getRelationshipStore().getHighId() > 0;
     }
 
-        private StoreFactory newStoreFactory( String name, OpenOption... openOptions )
+        private StoreFactory newStoreFactory( String name, BatchingIdGeneratorFactory idGeneratorFactory,
+            OpenOption... openOptions )
     {
         return new StoreFactory( storeDir, name, neo4jConfig,
-                new BatchingIdGeneratorFactory( fileSystem ), pageCache, fileSystem, recordFormats, logProvider,
+                idGeneratorFactory, pageCache, fileSystem, recordFormats, logProvider,
                 openOptions );
     }
 
@@ -215,6 +250,27 @@ public class BatchingNeoStores implements AutoCloseable, MemoryStatsVisitor.Visi
         return temporaryNeoStores.getRelationshipGroupStore();
     }
 
+    /**
+     * @param idType {@link IdType} of the store.
+     * @return high id of the store with ids of the given type.
+     */
+    public long getHighId( IdType idType )
+    {
+        return idGeneratorFactory.get( idType ).getHighId();
+    }
+
+    /**
+     * Sets the high id of the store with ids of the given type. Unlike {@link org.neo4j.kernel.impl.store.CommonAbstractStore#setHighId(long)} this
+     * can also lower the high id, so that records from that id and onwards are written again.
+     *
+     * @param idType {@link IdType} of the store.
+     * @param highId the new high id.
+     */
+    public void setHighId( IdType idType, long highId )
+    {
+        idGeneratorFactory.get( idType ).setHighId( highId );
+    }
+
     public IoTracer getIoTracer()
     {
         return ioTracer;
@@ -288,11 +344,58 @@ public class BatchingNeoStores implements AutoCloseable, MemoryStatsVisitor.Visi
         }
     }
 
+    /**
+     * Writes tokens created so far to their stores and flushes all imported data to disk, e.g. before
+     * recording an {@link org.neo4j.unsafe.impl.batchimport.ImportCheckpoint}.
+     */
+    public void flushAndForce() throws IOException
+    {
+        propertyKeyRepository.flush();
+        labelRepository.flush();
+        relationshipTypeRepository.flush();
+        labelScanStore.force( IOLimiter.unlimited() );
+        pageCache.flushAndForce();
+    }
+
     public long getLastCommittedTransactionId()
     {
         return neoStores.getMetaDataStore().getLastCommittedTransactionId();
     }
 
+    /**
+     * Records data imported into an existing store as one transaction, committed first thing in a new log version.
+     * The transaction isn't in any log, so anything catching up from the logs, like incremental backups and cluster
+     * members, will have to copy the whole store instead.
+     *
+     * @return id of the transaction the imported data was recorded as.
+     */
+    public long commitIncrementalImportTransaction()
+    {
+        MetaDataStore metaDataStore = neoStores.getMetaDataStore();
+        long transactionId = metaDataStore.getLastCommittedTransactionId() + 1;
+        long logVersion = metaDataStore.incrementAndGetVersion();
+        metaDataStore.setLastCommittedAndClosedTransactionId( transactionId, 0, System.currentTimeMillis(),
+                LOG_HEADER_SIZE, logVersion );
+        return transactionId;
+    }
+
+    /**
+     * @return whether or not the store has constraints enforcing uniqueness of property values.
+     */
+    public boolean hasUniquenessConstraints()
+    {
+        Iterator<ConstraintRule> constraints =
+                new SchemaStorage( neoStores.getSchemaStore() ).constraintsGetAllIgnoreMalformed();
+        while ( constraints.hasNext() )
+        {
+            if ( constraints.next().getConstraintDescriptor().enforcesUniqueness() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public LabelScanStore getLabelScanStore()
     {
         return labelScanStore;
@@ -50,12 +50,22 @@ public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN
 {
     private final Map<String,Integer> tokens = new HashMap<>();
     private final TokenStore<RECORD, TOKEN> store;
+    private int persistedHighId;
     private int highId;
 
     public BatchingTokenRepository( TokenStore<RECORD,TOKEN> store )
     {
         this.store = store;
-        this.highId = (int)store.getHighId();
+        this.persistedHighId = (int)store.getHighId();
+        this.highId = persistedHighId;
+        if ( persistedHighId > 0 )
+        {
+            // Importing into a store which already has tokens, those names must map to their existing ids
+            for ( TOKEN token : store.getTokens( Integer.MAX_VALUE ) )
+            {
+                tokens.put( token.name(), token.id() );
+            }
+        }
     }
 
     /**
@@ -164,6 +174,15 @@ public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN
      * Closes this repository and writes all created tokens to the underlying store.
      */
     public void close()
+    {
+        flush();
+    }
+
+    /**
+     * Writes tokens created since last flush to the underlying store. Must not be called concurrently with
+     * tokens being created.
+     */
+    public void flush()
     {
         // Batch-friendly record access
         BatchingRecordAccess<RECORD, Void> recordAccess = new BatchingRecordAccess<RECORD, Void>()
@@ -192,6 +211,7 @@ public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN
             highestId = max( highestId, record.getIntId() );
         }
         store.setHighestPossibleIdInUse( highestId );
+        persistedHighId = highId;
     }
 
     private Iterable<Map.Entry<Integer,String>> sortCreatedTokensById()
@@ -199,7 +219,10 @@ public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN
         Map<Integer,String> sorted = new TreeMap<>();
         for ( Map.Entry<String,Integer> entry : tokens.entrySet() )
         {
-            sorted.put( entry.getValue(), entry.getKey() );
+            if ( entry.getValue() >= persistedHighId )
+            {
+                sorted.put( entry.getValue(), entry.getKey() );
+            }
         }
         return sorted.entrySet();
     }
@@ -21,6 +21,7 @@ package org.neo4j.kernel;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 
 import java.io.File;
@@ -64,14 +65,18 @@ import org.neo4j.storageengine.api.StorageEngine;
 import org.neo4j.storageengine.api.TransactionApplicationMode;
 import org.neo4j.test.rule.TestDirectory;
 import org.neo4j.test.rule.fs.DefaultFileSystemRule;
+import org.neo4j.time.Clocks;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.neo4j.kernel.impl.transaction.log.TransactionIdStore.BASE_TX_COMMIT_TIMESTAMP;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogHeaderWriter.writeLogHeader;
@@ -330,6 +335,73 @@ public class RecoveryTest
         assertEquals( marker.getByteOffset(), file.length() );
     }
 
+    @Test
+    public void shouldTruncateLogAfterLastCompleteTransactionWhenPrefetchingTransactions() throws Exception
+    {
+        // GIVEN
+        final PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fileSystemRule.get() );
+        File file = logFiles.getLogFileForVersion( logVersion );
+        final LogPositionMarker marker = new LogPositionMarker();
+
+        writeSomeData( file, pair ->
+        {
+            LogEntryWriter writer = pair.first();
+            Consumer<LogPositionMarker> consumer = pair.other();
+
+            // committed transactions
+            for ( long i = 0; i < 5; i++ )
+            {
+                writer.writeStartEntry( 0, 1, 2L, 3L, new byte[0] );
+                writer.writeCommitEntry( 4L + i, 5L );
+            }
+
+            // incomplete tx
+            consumer.accept( marker ); // <-- marker has the last good position
+            writer.writeStartEntry( 0, 1, 5L, 4L, new byte[0] );
+
+            return true;
+        } );
+
+        // WHEN
+        Recovery.Monitor monitor = mock( Recovery.Monitor.class );
+        boolean recoveryRequired = recover( logFiles, 2, monitor );
+
+        // THEN
+        assertTrue( recoveryRequired );
+        assertEquals( marker.getByteOffset(), file.length() );
+        verify( monitor ).recoveryCompleted( 5 );
+    }
+
+    @Test
+    public void shouldReportRecoveryProgress() throws Exception
+    {
+        // GIVEN
+        final PhysicalLogFiles logFiles = new PhysicalLogFiles( directory.directory(), "log", fileSystemRule.get() );
+        File file = logFiles.getLogFileForVersion( logVersion );
+
+        writeSomeData( file, pair ->
+        {
+            LogEntryWriter writer = pair.first();
+            writer.writeStartEntry( 0, 1, 2L, 3L, new byte[0] );
+            writer.writeCommitEntry( 4L, 5L );
+            writer.writeStartEntry( 0, 1, 2L, 3L, new byte[0] );
+            writer.writeCommitEntry( 5L, 5L );
+            return true;
+        } );
+
+        // WHEN
+        Recovery.Monitor monitor = mock( Recovery.Monitor.class );
+        recover( logFiles, 0, monitor );
+
+        // THEN
+        ArgumentCaptor<Long> recoveredBytes = ArgumentCaptor.forClass( Long.class );
+        ArgumentCaptor<Long> totalBytes = ArgumentCaptor.forClass( Long.class );
+        verify( monitor ).recoveryProgress( eq( 1L ), anyLong(), anyLong(), anyLong() );
+        verify( monitor ).recoveryProgress( eq( 2L ), recoveredBytes.capture(), totalBytes.capture(), anyLong() );
+        assertTrue( recoveredBytes.getValue() > 0 );
+        assertTrue( recoveredBytes.getValue() <= totalBytes.getValue() );
+    }
+
     @Test
     public void shouldTellTransactionIdStoreAfterSuccessfullRecovery() throws Exception
     {
@@ -371,9 +443,13 @@ public class RecoveryTest
     }
 
     private boolean recover( PhysicalLogFiles logFiles )
+    {
+        return recover( logFiles, 0, mock( Recovery.Monitor.class ) );
+    }
+
+    private boolean recover( PhysicalLogFiles logFiles, int prefetchTransactions, Recovery.Monitor monitor )
     {
         LifeSupport life = new LifeSupport();
-        Recovery.Monitor monitor = mock( Recovery.Monitor.class );
         final AtomicBoolean recoveryRequired = new AtomicBoolean();
         try
         {
@@ -389,14 +465,14 @@ public class RecoveryTest
             LogicalTransactionStore txStore = new PhysicalLogicalTransactionStore( logFile, metadataCache, reader );
 
             life.add( new Recovery( new DefaultRecoverySPI( storageEngine, logFiles, fileSystemRule.get(),
-                    tailScanner, transactionIdStore, txStore, NO_MONITOR )
+                    tailScanner, transactionIdStore, txStore, NO_MONITOR, 10, prefetchTransactions )
             {
                 @Override
                 public void startRecovery()
                 {
                     recoveryRequired.set( true );
                 }
-            }, monitor ) );
+            }, monitor, Clocks.systemClock(), 0 ) );
 
             life.start();
         }
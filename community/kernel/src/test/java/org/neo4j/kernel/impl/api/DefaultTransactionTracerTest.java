@@ -24,26 +24,39 @@ import org.junit.Test;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
+import org.neo4j.kernel.impl.api.DefaultTransactionTracer.CommitMonitor;
 import org.neo4j.kernel.impl.api.DefaultTransactionTracer.Monitor;
 import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceWaitEvent;
 import org.neo4j.kernel.impl.transaction.tracing.LogRotateEvent;
+import org.neo4j.kernel.impl.transaction.tracing.StoreApplyEvent;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionEvent;
 import org.neo4j.test.OnDemandJobScheduler;
 import org.neo4j.time.Clocks;
 import org.neo4j.time.FakeClock;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.neo4j.kernel.impl.api.CommitStage.CLOSE;
+import static org.neo4j.kernel.impl.api.CommitStage.LOG_APPEND;
+import static org.neo4j.kernel.impl.api.CommitStage.LOG_FORCE;
+import static org.neo4j.kernel.impl.api.CommitStage.PREPARE;
+import static org.neo4j.kernel.impl.api.CommitStage.STORE_APPLY;
 
 public class DefaultTransactionTracerTest
 {
     private final FakeClock clock = Clocks.fakeClock();
     private final OnDemandJobScheduler jobScheduler = new OnDemandJobScheduler();
     private final Monitor monitor = mock( Monitor.class );
+    private final CommitMonitor commitMonitor = mock( CommitMonitor.class );
 
     @Test
     public void shouldComputeStartEndAndTotalTimeForLogRotation() throws Throwable
@@ -76,6 +89,121 @@ public class DefaultTransactionTracerTest
         verifyZeroInteractions( monitor );
     }
 
+    @Test
+    public void shouldTimeCommitStages() throws Throwable
+    {
+        DefaultTransactionTracer tracer = new DefaultTransactionTracer( clock, monitor, commitMonitor, () -> true,
+                jobScheduler );
+
+        commit( tracer, 42, 1, 2, 3, 4, 5 );
+
+        assertEquals( 1, tracer.numberOfTimedCommits() );
+        assertEquals( millis( 1 ), tracer.commitStageLatencyNanos( PREPARE, 0.5 ), millis( 1 ) / 16 );
+        assertEquals( millis( 2 ), tracer.commitStageLatencyNanos( LOG_APPEND, 0.5 ), millis( 2 ) / 16 );
+        assertEquals( millis( 3 ), tracer.commitStageLatencyNanos( LOG_FORCE, 0.5 ), millis( 3 ) / 16 );
+        assertEquals( millis( 4 ), tracer.commitStageLatencyNanos( STORE_APPLY, 0.5 ), millis( 4 ) / 16 );
+        assertEquals( millis( 5 ), tracer.commitStageLatencyNanos( CLOSE, 0.5 ), millis( 5 ) / 16 );
+        verify( commitMonitor ).transactionCommitted( 42, millis( 1 ), millis( 2 ), millis( 3 ), millis( 4 ),
+                millis( 5 ) );
+    }
+
+    @Test
+    public void shouldNotNotifyCommitMonitorWhenNotMonitored() throws Throwable
+    {
+        DefaultTransactionTracer tracer = new DefaultTransactionTracer( clock, monitor, commitMonitor, () -> false,
+                jobScheduler );
+
+        commit( tracer, 42, 1, 2, 3, 4, 5 );
+
+        assertEquals( 1, tracer.numberOfTimedCommits() );
+        verifyZeroInteractions( commitMonitor );
+    }
+
+    @Test
+    public void shouldNotTimeCommitsThatNeverAppendedToTheLog() throws Throwable
+    {
+        DefaultTransactionTracer tracer = new DefaultTransactionTracer( clock, monitor, commitMonitor, () -> true,
+                jobScheduler );
+
+        try ( TransactionEvent txEvent = tracer.beginTransaction();
+              CommitEvent commitEvent = txEvent.beginCommitEvent() )
+        {
+            clock.forward( 10, TimeUnit.MILLISECONDS );
+        }
+
+        assertEquals( 0, tracer.numberOfTimedCommits() );
+        assertEquals( 0, tracer.commitStageLatencyNanos( PREPARE, 0.99 ) );
+        verify( commitMonitor, never() ).transactionCommitted( anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong() );
+    }
+
+    @Test
+    public void shouldOnlyReportCommitStageLatenciesOfRecentCommits() throws Throwable
+    {
+        DefaultTransactionTracer tracer = new DefaultTransactionTracer( clock, monitor, commitMonitor, () -> false,
+                jobScheduler );
+        commit( tracer, 42, 100, 100, 100, 100, 100 );
+
+        clock.forward( DefaultTransactionTracer.COMMIT_STAGE_LATENCY_WINDOW_NANOS * 2, TimeUnit.NANOSECONDS );
+        commit( tracer, 43, 1, 2, 3, 4, 5 );
+
+        assertEquals( 1, tracer.numberOfTimedCommits() );
+        assertEquals( millis( 1 ), tracer.commitStageLatencyNanos( PREPARE, 0.99 ), millis( 1 ) / 16 );
+    }
+
+    @Test
+    public void shouldReuseCommitEventOfThreadUnlessNestedInsideAnotherCommit() throws Throwable
+    {
+        DefaultTransactionTracer tracer = new DefaultTransactionTracer( clock, monitor, commitMonitor, () -> false,
+                jobScheduler );
+
+        CommitEvent firstEvent;
+        try ( TransactionEvent txEvent = tracer.beginTransaction();
+              CommitEvent commitEvent = txEvent.beginCommitEvent() )
+        {
+            firstEvent = commitEvent;
+        }
+        try ( TransactionEvent txEvent = tracer.beginTransaction();
+              CommitEvent commitEvent = txEvent.beginCommitEvent() )
+        {
+            assertSame( firstEvent, commitEvent );
+            try ( TransactionEvent nestedTxEvent = tracer.beginTransaction();
+                  CommitEvent nestedCommitEvent = nestedTxEvent.beginCommitEvent() )
+            {
+                assertNotSame( commitEvent, nestedCommitEvent );
+            }
+        }
+    }
+
+    private void commit( DefaultTransactionTracer tracer, long txId, long prepareMillis, long appendMillis,
+            long forceMillis, long applyMillis, long closeMillis )
+    {
+        try ( TransactionEvent txEvent = tracer.beginTransaction();
+              CommitEvent commitEvent = txEvent.beginCommitEvent() )
+        {
+            clock.forward( prepareMillis, TimeUnit.MILLISECONDS );
+            try ( LogAppendEvent logAppendEvent = commitEvent.beginLogAppend() )
+            {
+                clock.forward( appendMillis, TimeUnit.MILLISECONDS );
+                try ( LogForceWaitEvent forceWaitEvent = logAppendEvent.beginLogForceWait() )
+                {
+                    clock.forward( forceMillis, TimeUnit.MILLISECONDS );
+                }
+            }
+            try ( StoreApplyEvent storeApplyEvent = commitEvent.beginStoreApply() )
+            {
+                clock.forward( applyMillis, TimeUnit.MILLISECONDS );
+            }
+            clock.forward( closeMillis, TimeUnit.MILLISECONDS );
+            commitEvent.setTransactionId( txId );
+        }
+    }
+
+    private static long millis( long millis )
+    {
+        return TimeUnit.MILLISECONDS.toNanos( millis );
+    }
+
     private void triggerEvent( DefaultTransactionTracer tracer, int eventDuration )
     {
         try ( TransactionEvent txEvent = tracer.beginTransaction() )
@@ -412,6 +412,11 @@ public class KernelTransactionTerminationTest
         {
         }
 
+        @Override
+        public void transactionStateHeapUsage( long estimatedBytes )
+        {
+        }
+
         void reset()
         {
             committed = false;
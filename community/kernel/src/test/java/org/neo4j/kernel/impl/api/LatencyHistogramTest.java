@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest
+{
+    private static final long WINDOW = 1_000;
+
+    private final LatencyHistogram histogram = new LatencyHistogram( WINDOW, 0 );
+
+    @Test
+    public void shouldReportZeroWhenNothingRecorded() throws Exception
+    {
+        assertEquals( 0, histogram.count( 0 ) );
+        assertEquals( 0, histogram.valueAtQuantile( 0, 0.5 ) );
+        assertEquals( 0, histogram.valueAtQuantile( 0, 0.999 ) );
+    }
+
+    @Test
+    public void shouldReportSmallValuesExactly() throws Exception
+    {
+        for ( int i = 1; i <= 10; i++ )
+        {
+            histogram.record( 0, i );
+        }
+
+        assertEquals( 10, histogram.count( 0 ) );
+        assertEquals( 5, histogram.valueAtQuantile( 0, 0.5 ) );
+        assertEquals( 10, histogram.valueAtQuantile( 0, 0.99 ) );
+        assertEquals( 1, histogram.valueAtQuantile( 0, 0 ) );
+    }
+
+    @Test
+    public void shouldReportQuantilesOfLargeValuesWithinBucketPrecision() throws Exception
+    {
+        for ( long value = 1_000; value <= 100_000_000; value += 1_000 )
+        {
+            histogram.record( 0, value );
+        }
+
+        assertWithinPrecision( 50_000_000, histogram.valueAtQuantile( 0, 0.5 ) );
+        assertWithinPrecision( 99_000_000, histogram.valueAtQuantile( 0, 0.99 ) );
+        assertWithinPrecision( 99_900_000, histogram.valueAtQuantile( 0, 0.999 ) );
+    }
+
+    @Test
+    public void shouldMapEveryValueIntoBucketCoveringIt() throws Exception
+    {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for ( long value : values )
+        {
+            int bucket = LatencyHistogram.bucket( value );
+            assertTrue( value + " above its bucket", value <= LatencyHistogram.highestValue( bucket ) );
+            assertTrue( value + " below its bucket", bucket == 0 || value > LatencyHistogram.highestValue( bucket - 1 ) );
+        }
+    }
+
+    @Test
+    public void shouldTreatNegativeValuesAsZero() throws Exception
+    {
+        histogram.record( 0, -5 );
+
+        assertEquals( 1, histogram.count( 0 ) );
+        assertEquals( 0, histogram.valueAtQuantile( 0, 1 ) );
+    }
+
+    @Test
+    public void shouldKeepValuesOfPreviousWindow() throws Exception
+    {
+        histogram.record( 0, 10 );
+        histogram.record( WINDOW, 5 );
+
+        assertEquals( 2, histogram.count( WINDOW * 2 - 1 ) );
+        assertEquals( 10, histogram.valueAtQuantile( WINDOW * 2 - 1, 1 ) );
+    }
+
+    @Test
+    public void shouldForgetValuesOlderThanPreviousWindow() throws Exception
+    {
+        histogram.record( 0, 10 );
+        histogram.record( WINDOW, 5 );
+
+        assertEquals( 1, histogram.count( WINDOW * 2 ) );
+        assertEquals( 5, histogram.valueAtQuantile( WINDOW * 2, 1 ) );
+        assertEquals( 0, histogram.count( WINDOW * 4 ) );
+        assertEquals( 0, histogram.valueAtQuantile( WINDOW * 4, 1 ) );
+    }
+
+    private static void assertWithinPrecision( long expected, long actual )
+    {
+        assertTrue( "Expected " + actual + " to be close to " + expected,
+                actual >= expected && actual <= expected + expected / 16 );
+    }
+}
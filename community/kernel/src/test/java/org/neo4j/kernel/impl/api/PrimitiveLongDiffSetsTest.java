@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.impl.util.diffsets.PrimitiveLongDiffSets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.iterator;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.toIterator;
+import static org.neo4j.helpers.collection.Iterators.asSet;
+
+public class PrimitiveLongDiffSetsTest
+{
+    @Test
+    public void shouldAugmentSourceWithAddedAndWithoutRemovedElements() throws Exception
+    {
+        // GIVEN
+        PrimitiveLongDiffSets diffSets = new PrimitiveLongDiffSets();
+        diffSets.add( 4L );
+        diffSets.add( 5L );
+        diffSets.remove( 2L );
+
+        // WHEN
+        PrimitiveLongIterator augmented = diffSets.augment( iterator( 1L, 2L, 3L ) );
+
+        // THEN
+        assertEquals( asSet( 1L, 3L, 4L, 5L ), asSet( toIterator( augmented ) ) );
+    }
+
+    @Test
+    public void shouldCancelOutAddAndRemoveOfSameElement() throws Exception
+    {
+        // GIVEN
+        PrimitiveLongDiffSets diffSets = new PrimitiveLongDiffSets();
+
+        // WHEN
+        diffSets.add( 1L );
+        diffSets.remove( 1L );
+        diffSets.remove( 2L );
+        diffSets.add( 2L );
+
+        // THEN
+        assertTrue( diffSets.isEmpty() );
+        assertFalse( diffSets.isAdded( 1L ) );
+        assertFalse( diffSets.isRemoved( 2L ) );
+    }
+
+    @Test
+    public void shouldNotSeeElementsAddedAfterIteratorWasCreated() throws Exception
+    {
+        // GIVEN
+        PrimitiveLongDiffSets diffSets = new PrimitiveLongDiffSets();
+        diffSets.add( 1L );
+        diffSets.add( 2L );
+        PrimitiveLongIterator added = diffSets.addedElements();
+
+        // WHEN
+        assertEquals( 1L, added.next() );
+        diffSets.add( 3L );
+
+        // THEN
+        assertEquals( 2L, added.next() );
+        assertFalse( added.hasNext() );
+    }
+
+    @Test
+    public void shouldNotSeeElementsRemovedAfterIteratorWasCreated() throws Exception
+    {
+        // GIVEN
+        PrimitiveLongDiffSets diffSets = new PrimitiveLongDiffSets();
+        diffSets.add( 1L );
+        diffSets.add( 2L );
+        diffSets.add( 3L );
+        PrimitiveLongIterator added = diffSets.addedElements();
+
+        // WHEN
+        assertEquals( 1L, added.next() );
+        diffSets.remove( 2L );
+        diffSets.add( 2L );
+
+        // THEN
+        assertEquals( 3L, added.next() );
+        assertFalse( added.hasNext() );
+        assertEquals( asSet( 1L, 2L, 3L ), asSet( toIterator( diffSets.addedElements() ) ) );
+    }
+
+    @Test
+    public void shouldExposeAddedAndRemovedElementsAsSets() throws Exception
+    {
+        // GIVEN
+        PrimitiveLongDiffSets diffSets = new PrimitiveLongDiffSets();
+        diffSets.add( 1L );
+        diffSets.add( 2L );
+        diffSets.remove( 3L );
+
+        // WHEN
+        Set<Long> added = diffSets.getAdded();
+        Set<Long> removed = diffSets.getRemoved();
+
+        // THEN
+        assertEquals( asSet( 1L, 2L ), added );
+        assertEquals( asSet( 3L ), removed );
+        assertEquals( 1, diffSets.delta() );
+    }
+}
@@ -1398,6 +1398,45 @@ public class TxStateTest
         } );
     }
 
+    @Test
+    public void shouldGrowEstimatedHeapUsageWithChanges() throws Exception
+    {
+        // GIVEN
+        long initialUsage = state.estimatedHeapUsage();
+
+        // WHEN
+        state.nodeDoCreate( 0 );
+        long afterNode = state.estimatedHeapUsage();
+        state.nodeDoAddProperty( 0, 1, Values.stringValue( "a fairly long string value" ) );
+        long afterProperty = state.estimatedHeapUsage();
+
+        // THEN
+        assertTrue( afterNode > initialUsage );
+        assertTrue( afterProperty > afterNode );
+    }
+
+    @Test
+    public void shouldFailChangeWhichExceedsMaxHeapUsage() throws Exception
+    {
+        // GIVEN
+        TxState state = new TxState( 1_000 );
+
+        // WHEN
+        try
+        {
+            for ( int i = 0; i < 1_000; i++ )
+            {
+                state.nodeDoCreate( i );
+            }
+            fail( "Should have failed" );
+        }
+        catch ( TransactionStateMemoryLimitExceededException e )
+        {
+            // THEN good
+            assertTrue( state.estimatedHeapUsage() > 1_000 );
+        }
+    }
+
     @Test
     public void shouldObserveCorrectAugmentedNodeRelationshipsState() throws Exception
     {
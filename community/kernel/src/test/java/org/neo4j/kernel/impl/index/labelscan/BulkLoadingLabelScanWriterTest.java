@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.RandomRule;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.DefaultFileSystemRule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.EMPTY_LONG_ARRAY;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.asArray;
+import static org.neo4j.index.internal.gbptree.GBPTree.NO_HEADER_READER;
+import static org.neo4j.index.internal.gbptree.GBPTree.NO_HEADER_WRITER;
+import static org.neo4j.index.internal.gbptree.GBPTree.NO_MONITOR;
+import static org.neo4j.index.internal.gbptree.RecoveryCleanupWorkCollector.IMMEDIATE;
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreIT.flipRandom;
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreIT.getLabels;
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreIT.nodesWithLabel;
+
+public class BulkLoadingLabelScanWriterTest
+{
+    private static final int LABEL_COUNT = 5;
+    private static final int NODE_COUNT = 10_000;
+
+    private final DefaultFileSystemRule fs = new DefaultFileSystemRule();
+    private final TestDirectory directory = TestDirectory.testDirectory();
+    private final PageCacheRule pageCacheRule = new PageCacheRule();
+    private final RandomRule random = new RandomRule();
+
+    @Rule
+    public final RuleChain rules = RuleChain.outerRule( fs ).around( directory ).around( pageCacheRule )
+            .around( random );
+
+    @Test
+    public void shouldBulkLoadGatheredRanges() throws Exception
+    {
+        try ( GBPTree<LabelScanKey,LabelScanValue> index = index() )
+        {
+            // GIVEN
+            long[] expected = new long[NODE_COUNT];
+
+            // WHEN
+            try ( BulkLoadingLabelScanWriter writer =
+                          new BulkLoadingLabelScanWriter( index, new NativeLabelScanWriter( 100 ), Long.MAX_VALUE ) )
+            {
+                for ( int nodeId = 0; nodeId < NODE_COUNT; nodeId++ )
+                {
+                    writer.write( randomAddition( expected, nodeId ) );
+                }
+            }
+
+            // THEN
+            assertLabels( index, expected );
+        }
+    }
+
+    @Test
+    public void shouldFallBackToRegularWritesWhenGatheringTooManyRanges() throws Exception
+    {
+        try ( GBPTree<LabelScanKey,LabelScanValue> index = index() )
+        {
+            // GIVEN
+            long[] expected = new long[NODE_COUNT];
+
+            // WHEN
+            try ( BulkLoadingLabelScanWriter writer =
+                          new BulkLoadingLabelScanWriter( index, new NativeLabelScanWriter( 100 ), 50 ) )
+            {
+                for ( int nodeId = 0; nodeId < NODE_COUNT; nodeId++ )
+                {
+                    writer.write( randomAddition( expected, nodeId ) );
+                }
+            }
+
+            // THEN
+            assertLabels( index, expected );
+        }
+    }
+
+    @Test
+    public void shouldFallBackToRegularWritesOnUpdateGoingBackInNodeIdOrder() throws Exception
+    {
+        try ( GBPTree<LabelScanKey,LabelScanValue> index = index() )
+        {
+            // GIVEN
+            long[] expected = new long[NODE_COUNT];
+            try ( BulkLoadingLabelScanWriter writer =
+                          new BulkLoadingLabelScanWriter( index, new NativeLabelScanWriter( 100 ), Long.MAX_VALUE ) )
+            {
+                for ( int nodeId = NODE_COUNT / 2; nodeId < NODE_COUNT; nodeId++ )
+                {
+                    writer.write( randomAddition( expected, nodeId ) );
+                }
+
+                // WHEN
+                for ( int nodeId = 0; nodeId < NODE_COUNT / 2; nodeId++ )
+                {
+                    writer.write( randomAddition( expected, nodeId ) );
+                }
+            }
+
+            // THEN
+            assertLabels( index, expected );
+        }
+    }
+
+    @Test
+    public void shouldNotAcceptUnsortedLabels() throws Exception
+    {
+        try ( GBPTree<LabelScanKey,LabelScanValue> index = index();
+              BulkLoadingLabelScanWriter writer =
+                      new BulkLoadingLabelScanWriter( index, new NativeLabelScanWriter( 100 ), Long.MAX_VALUE ) )
+        {
+            // WHEN
+            writer.write( NodeLabelUpdate.labelChanges( 0, EMPTY_LONG_ARRAY, new long[] {2, 1} ) );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // THEN
+            assertTrue( e.getMessage().contains( "unsorted" ) );
+        }
+    }
+
+    private GBPTree<LabelScanKey,LabelScanValue> index() throws IOException
+    {
+        File file = directory.file( "index" );
+        return new GBPTree<>( pageCacheRule.getPageCache( fs.get() ), file, new LabelScanLayout(), 0, NO_MONITOR,
+                NO_HEADER_READER, NO_HEADER_WRITER, IMMEDIATE );
+    }
+
+    private NodeLabelUpdate randomAddition( long[] expected, int nodeId )
+    {
+        long labels = 0;
+        int labelCount = random.nextInt( LABEL_COUNT );
+        for ( int i = 0; i < labelCount; i++ )
+        {
+            labels = flipRandom( labels, LABEL_COUNT, random.random() );
+        }
+        expected[nodeId] = labels;
+        return NodeLabelUpdate.labelChanges( nodeId, EMPTY_LONG_ARRAY, getLabels( labels ) );
+    }
+
+    private static void assertLabels( GBPTree<LabelScanKey,LabelScanValue> index, long[] expected )
+            throws IOException
+    {
+        for ( int i = 0; i < LABEL_COUNT; i++ )
+        {
+            try ( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> cursor =
+                          index.seek( new LabelScanKey( i, 0 ), new LabelScanKey( i, Long.MAX_VALUE ) ) )
+            {
+                long[] actualNodeIds = asArray( new LabelScanValueIterator( cursor, new ArrayList<>() ) );
+                assertArrayEquals( "For label " + i, nodesWithLabel( expected, i ), actualNodeIds );
+            }
+        }
+    }
+}
@@ -31,7 +31,7 @@ import static org.junit.Assert.assertTrue;
 
 public class ConflictDetectingValueMergerTest
 {
-    private final ConflictDetectingValueMerger<SchemaNumberKey,SchemaNumberValue> detector = new ConflictDetectingValueMerger<>();
+    private final ConflictDetectingValueMerger<SchemaNumberKey,NativeSchemaValue> detector = new ConflictDetectingValueMerger<>();
 
     @Test
     public void shouldReportConflictOnSameValueAndDifferentEntityIds() throws Exception
@@ -42,11 +42,11 @@ public class ConflictDetectingValueMergerTest
         long entityId2 = 20;
 
         // when
-        SchemaNumberValue merged = detector.merge(
+        NativeSchemaValue merged = detector.merge(
                 key( entityId1, value ),
                 key( entityId2, value ),
-                SchemaNumberValue.INSTANCE,
-                SchemaNumberValue.INSTANCE );
+                NativeSchemaValue.INSTANCE,
+                NativeSchemaValue.INSTANCE );
 
         // then
         assertNull( merged );
@@ -63,11 +63,11 @@ public class ConflictDetectingValueMergerTest
         long entityId = 10;
 
         // when
-        SchemaNumberValue merged = detector.merge(
+        NativeSchemaValue merged = detector.merge(
                 key( entityId, value ),
                 key( entityId, value ),
-                SchemaNumberValue.INSTANCE,
-                SchemaNumberValue.INSTANCE );
+                NativeSchemaValue.INSTANCE,
+                NativeSchemaValue.INSTANCE );
 
         // then
         assertNull( merged );
@@ -37,7 +37,7 @@ import org.neo4j.test.rule.RandomRule;
 import org.neo4j.values.storable.Value;
 import org.neo4j.values.storable.Values;
 
-abstract class LayoutTestUtil<KEY extends SchemaNumberKey, VALUE extends SchemaNumberValue>
+abstract class LayoutTestUtil<KEY extends SchemaNumberKey, VALUE extends NativeSchemaValue>
 {
     private final IndexDescriptor indexDescriptor;
 
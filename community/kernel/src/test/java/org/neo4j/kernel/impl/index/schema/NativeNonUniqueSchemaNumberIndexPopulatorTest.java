@@ -39,13 +39,13 @@ import static org.neo4j.helpers.ArrayUtil.array;
 import static org.neo4j.kernel.impl.index.schema.LayoutTestUtil.countUniqueValues;
 
 public class NativeNonUniqueSchemaNumberIndexPopulatorTest
-        extends NativeSchemaNumberIndexPopulatorTest<SchemaNumberKey,SchemaNumberValue>
+        extends NativeSchemaNumberIndexPopulatorTest<SchemaNumberKey,NativeSchemaValue>
 {
     @Override
-    NativeSchemaNumberIndexPopulator<SchemaNumberKey,SchemaNumberValue> createPopulator( PageCache pageCache, FileSystemAbstraction fs,
-            File indexFile, Layout<SchemaNumberKey,SchemaNumberValue> layout, IndexSamplingConfig samplingConfig )
+    NativeSchemaIndexPopulator<SchemaNumberKey,NativeSchemaValue> createPopulator( PageCache pageCache, FileSystemAbstraction fs,
+            File indexFile, Layout<SchemaNumberKey,NativeSchemaValue> layout, IndexSamplingConfig samplingConfig )
     {
-        return new NativeNonUniqueSchemaNumberIndexPopulator<>( pageCache, fs, indexFile, layout, samplingConfig );
+        return new NativeNonUniqueSchemaIndexPopulator<>( pageCache, fs, indexFile, layout, samplingConfig );
     }
 
     @Test
@@ -113,7 +113,7 @@ public class NativeNonUniqueSchemaNumberIndexPopulatorTest
     }
 
     @Override
-    protected LayoutTestUtil<SchemaNumberKey,SchemaNumberValue> createLayoutTestUtil()
+    protected LayoutTestUtil<SchemaNumberKey,NativeSchemaValue> createLayoutTestUtil()
     {
         return new NonUniqueLayoutTestUtil();
     }
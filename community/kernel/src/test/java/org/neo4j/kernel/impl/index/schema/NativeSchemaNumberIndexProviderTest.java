@@ -103,7 +103,7 @@ public class NativeSchemaNumberIndexProviderTest
         IndexPopulator populator = provider.getPopulator( indexId, descriptorUnique(), samplingConfig() );
 
         // then
-        assertTrue( "Expected populator to be unique populator", populator instanceof NativeUniqueSchemaNumberIndexPopulator );
+        assertTrue( "Expected populator to be unique populator", populator instanceof NativeUniqueSchemaIndexPopulator );
     }
 
     @Test
@@ -116,7 +116,7 @@ public class NativeSchemaNumberIndexProviderTest
         IndexPopulator populator = provider.getPopulator( indexId, descriptor(), samplingConfig() );
 
         // then
-        assertTrue( "Expected populator to be non-unique populator", populator instanceof NativeNonUniqueSchemaNumberIndexPopulator );
+        assertTrue( "Expected populator to be non-unique populator", populator instanceof NativeNonUniqueSchemaIndexPopulator );
     }
 
     /* getOnlineAccessor */
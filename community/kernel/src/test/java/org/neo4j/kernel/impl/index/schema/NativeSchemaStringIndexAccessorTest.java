@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexEntryUpdate;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.schema.IndexQuery;
+import org.neo4j.kernel.api.schema.index.IndexDescriptor;
+import org.neo4j.kernel.api.schema.index.IndexDescriptorFactory;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.test.Randoms;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.RandomRule;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.DefaultFileSystemRule;
+import org.neo4j.test.rule.fs.FileSystemRule;
+import org.neo4j.values.storable.Values;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.rules.RuleChain.outerRule;
+import static org.neo4j.index.internal.gbptree.RecoveryCleanupWorkCollector.IMMEDIATE;
+import static org.neo4j.kernel.impl.api.index.IndexUpdateMode.ONLINE;
+import static org.neo4j.test.rule.PageCacheRule.config;
+
+/**
+ * Tests for
+ * <ul>
+ * <li>{@link NativeSchemaStringIndexAccessor}</li>
+ * <li>{@link NativeSchemaStringIndexReader}</li>
+ * <li>{@link SchemaStringKey} and {@link StringLayout}</li>
+ * </ul>
+ */
+public class NativeSchemaStringIndexAccessorTest
+{
+    private static final IndexDescriptor NON_UNIQUE = IndexDescriptorFactory.forLabel( 42, 666 );
+    private static final IndexDescriptor UNIQUE = IndexDescriptorFactory.uniqueForLabel( 42, 666 );
+
+    private final FileSystemRule fs = new DefaultFileSystemRule();
+    private final TestDirectory directory = TestDirectory.testDirectory( getClass(), fs.get() );
+    private final PageCacheRule pageCacheRule = new PageCacheRule( config().withAccessChecks( true ) );
+    private final RandomRule random = new RandomRule();
+    @Rule
+    public final RuleChain rules = outerRule( fs ).around( directory ).around( pageCacheRule ).around( random );
+
+    private File indexFile;
+    private PageCache pageCache;
+    private NativeSchemaStringIndexAccessor<SchemaStringKey,NativeSchemaValue> accessor;
+
+    @Before
+    public void setup()
+    {
+        indexFile = directory.file( "index" );
+        pageCache = pageCacheRule.getPageCache( fs );
+    }
+
+    @After
+    public void closeAccessor() throws IOException
+    {
+        if ( accessor != null )
+        {
+            accessor.close();
+        }
+    }
+
+    @Test
+    public void shouldReturnMatchingEntriesForExactPredicate() throws Exception
+    {
+        // given
+        openAccessor( new NonUniqueStringLayout() );
+        processAll( add( 0, "apa" ), add( 1, "apan" ), add( 2, "apa" ), add( 3, "" ), add( 4, "bepa" ) );
+
+        // when
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            // then
+            assertHits( reader.query( IndexQuery.exact( 0, "apa" ) ), 0, 2 );
+            assertHits( reader.query( IndexQuery.exact( 0, "" ) ), 3 );
+            assertHits( reader.query( IndexQuery.exact( 0, "ap" ) ) );
+            assertEquals( 1, reader.countIndexedNodes( 2, Values.of( "apa" ) ) );
+            assertEquals( 0, reader.countIndexedNodes( 1, Values.of( "apa" ) ) );
+        }
+    }
+
+    @Test
+    public void shouldReturnMatchingEntriesForPrefixPredicate() throws Exception
+    {
+        // given
+        openAccessor( new NonUniqueStringLayout() );
+        processAll( add( 0, "a" ), add( 1, "ab" ), add( 2, "abc" ), add( 3, "abd" ), add( 4, "ac" ),
+                add( 5, "ab\uFFFF" ), add( 6, "b" ) );
+
+        // when
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            // then
+            assertHits( reader.query( IndexQuery.stringPrefix( 0, "ab" ) ), 1, 2, 3, 5 );
+            assertHits( reader.query( IndexQuery.stringPrefix( 0, "ab\uFFFF" ) ), 5 );
+            assertHits( reader.query( IndexQuery.stringPrefix( 0, "" ) ), 0, 1, 2, 3, 4, 5, 6 );
+            assertHits( reader.query( IndexQuery.stringPrefix( 0, "abcd" ) ) );
+        }
+    }
+
+    @Test
+    public void shouldReturnMatchingEntriesForRangePredicate() throws Exception
+    {
+        // given
+        openAccessor( new NonUniqueStringLayout() );
+        processAll( add( 0, "a" ), add( 1, "b" ), add( 2, "c" ), add( 3, "d" ) );
+
+        // when
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            // then
+            assertHits( reader.query( IndexQuery.range( 0, "b", true, "d", false ) ), 1, 2 );
+            assertHits( reader.query( IndexQuery.range( 0, "b", false, "d", true ) ), 2, 3 );
+            assertHits( reader.query( IndexQuery.range( 0, "b", true, "d", true ) ), 1, 2, 3 );
+            assertHits( reader.query( IndexQuery.range( 0, (String) null, true, "b", true ) ), 0, 1 );
+            assertHits( reader.query( IndexQuery.range( 0, "c", true, null, true ) ), 2, 3 );
+            assertHits( reader.query( IndexQuery.range( 0, "d", false, "a", false ) ) );
+        }
+    }
+
+    @Test
+    public void shouldReturnMatchingEntriesForSuffixAndContainsPredicates() throws Exception
+    {
+        // given
+        openAccessor( new NonUniqueStringLayout() );
+        processAll( add( 0, "apa" ), add( 1, "bepa" ), add( 2, "cepan" ), add( 3, "pa" ) );
+
+        // when
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            // then
+            assertHits( reader.query( IndexQuery.stringSuffix( 0, "pa" ) ), 0, 1, 3 );
+            assertHits( reader.query( IndexQuery.stringContains( 0, "ep" ) ), 1, 2 );
+        }
+    }
+
+    @Test
+    public void shouldIndexChangeAndRemove() throws Exception
+    {
+        // given
+        openAccessor( new NonUniqueStringLayout() );
+        processAll( add( 0, "first" ), add( 1, "second" ) );
+
+        // when
+        processAll( IndexEntryUpdate.change( 0, NON_UNIQUE, Values.of( "first" ), Values.of( "third" ) ),
+                IndexEntryUpdate.remove( 1, NON_UNIQUE, Values.of( "second" ) ) );
+
+        // then
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            assertHits( reader.query( IndexQuery.exists( 0 ) ), 0 );
+            assertHits( reader.query( IndexQuery.exact( 0, "third" ) ), 0 );
+            assertHits( reader.query( IndexQuery.exact( 0, "first" ) ) );
+        }
+    }
+
+    @Test
+    public void shouldDetectConflictInUniqueIndex() throws Exception
+    {
+        // given
+        openAccessor( new UniqueStringLayout() );
+        processAll( IndexEntryUpdate.add( 2, UNIQUE, Values.of( "other" ) ),
+                IndexEntryUpdate.add( 0, UNIQUE, Values.of( "value" ) ) );
+
+        // when
+        try
+        {
+            processAll( IndexEntryUpdate.add( 1, UNIQUE, Values.of( "value" ) ) );
+            fail( "Should have failed" );
+        }
+        catch ( IndexEntryConflictException e )
+        {
+            // then
+            assertEquals( 0, e.getExistingNodeId() );
+            assertEquals( 1, e.getAddedNodeId() );
+        }
+    }
+
+    @Test
+    public void shouldKeepOrderOfRandomStringsAcrossSplits() throws Exception
+    {
+        // given
+        openAccessor( new NonUniqueStringLayout() );
+        int count = 5_000;
+        String[] values = new String[count];
+        try ( IndexUpdater updater = accessor.newUpdater( ONLINE ) )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                values[i] = random.string( 0, SchemaStringKey.MAX_LENGTH, Randoms.CSA_LETTERS_AND_DIGITS );
+                updater.process( add( i, values[i] ) );
+            }
+        }
+
+        // when
+        String[] sorted = values.clone();
+        Arrays.sort( sorted );
+        String from = sorted[count / 4];
+        String to = sorted[count * 3 / 4];
+        long expectedCount = Arrays.stream( values )
+                .filter( value -> value.compareTo( from ) >= 0 && value.compareTo( to ) < 0 )
+                .count();
+
+        // then
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            PrimitiveLongIterator result = reader.query( IndexQuery.range( 0, from, true, to, false ) );
+            assertEquals( expectedCount, PrimitiveLongCollections.count( result ) );
+            assertEquals( count, PrimitiveLongCollections.count( reader.query( IndexQuery.exists( 0 ) ) ) );
+        }
+    }
+
+    @Test
+    public void shouldOnlyFitStringsUpToMaxLength() throws Exception
+    {
+        char[] chars = new char[SchemaStringKey.MAX_LENGTH];
+        Arrays.fill( chars, 'a' );
+        String longest = String.valueOf( chars );
+
+        assertTrue( SchemaStringKey.fits( Values.of( longest ) ) );
+        assertTrue( SchemaStringKey.fits( Values.of( 'a' ) ) );
+        assertFalse( SchemaStringKey.fits( Values.of( longest + "a" ) ) );
+        assertFalse( SchemaStringKey.fits( Values.of( 1 ) ) );
+    }
+
+    private void openAccessor( StringLayout layout ) throws IOException
+    {
+        accessor = new NativeSchemaStringIndexAccessor<>( pageCache, fs, indexFile, layout, IMMEDIATE );
+    }
+
+    private static IndexEntryUpdate<IndexDescriptor> add( long nodeId, String value )
+    {
+        return IndexEntryUpdate.add( nodeId, NON_UNIQUE, Values.of( value ) );
+    }
+
+    @SafeVarargs
+    private final void processAll( IndexEntryUpdate<IndexDescriptor>... updates )
+            throws IOException, IndexEntryConflictException
+    {
+        try ( IndexUpdater updater = accessor.newUpdater( ONLINE ) )
+        {
+            for ( IndexEntryUpdate<IndexDescriptor> update : updates )
+            {
+                updater.process( update );
+            }
+        }
+    }
+
+    private static void assertHits( PrimitiveLongIterator result, long... expectedNodeIds )
+    {
+        long[] actual = PrimitiveLongCollections.asArray( result );
+        Arrays.sort( actual );
+        assertArrayEquals( expectedNodeIds, actual );
+    }
+}
@@ -40,18 +40,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-public class NativeUniqueSchemaNumberIndexPopulatorTest extends NativeSchemaNumberIndexPopulatorTest<SchemaNumberKey,SchemaNumberValue>
+public class NativeUniqueSchemaNumberIndexPopulatorTest extends NativeSchemaNumberIndexPopulatorTest<SchemaNumberKey,NativeSchemaValue>
 {
     @Override
-    NativeSchemaNumberIndexPopulator<SchemaNumberKey,SchemaNumberValue> createPopulator(
+    NativeSchemaIndexPopulator<SchemaNumberKey,NativeSchemaValue> createPopulator(
             PageCache pageCache, FileSystemAbstraction fs, File indexFile,
-            Layout<SchemaNumberKey,SchemaNumberValue> layout, IndexSamplingConfig samplingConfig )
+            Layout<SchemaNumberKey,NativeSchemaValue> layout, IndexSamplingConfig samplingConfig )
     {
-        return new NativeUniqueSchemaNumberIndexPopulator<>( pageCache, fs, indexFile, layout );
+        return new NativeUniqueSchemaIndexPopulator<>( pageCache, fs, indexFile, layout );
     }
 
     @Override
-    protected LayoutTestUtil<SchemaNumberKey,SchemaNumberValue> createLayoutTestUtil()
+    protected LayoutTestUtil<SchemaNumberKey,NativeSchemaValue> createLayoutTestUtil()
     {
         return new UniqueLayoutTestUtil();
     }
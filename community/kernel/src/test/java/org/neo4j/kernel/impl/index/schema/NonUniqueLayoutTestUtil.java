@@ -24,7 +24,7 @@ import org.neo4j.kernel.api.index.IndexEntryUpdate;
 import org.neo4j.kernel.api.schema.index.IndexDescriptor;
 import org.neo4j.kernel.api.schema.index.IndexDescriptorFactory;
 
-class NonUniqueLayoutTestUtil extends LayoutTestUtil<SchemaNumberKey,SchemaNumberValue>
+class NonUniqueLayoutTestUtil extends LayoutTestUtil<SchemaNumberKey,NativeSchemaValue>
 {
     NonUniqueLayoutTestUtil()
     {
@@ -32,7 +32,7 @@ class NonUniqueLayoutTestUtil extends LayoutTestUtil<SchemaNumberKey,SchemaNumbe
     }
 
     @Override
-    Layout<SchemaNumberKey,SchemaNumberValue> createLayout()
+    Layout<SchemaNumberKey,NativeSchemaValue> createLayout()
     {
         return new NonUniqueNumberLayout();
     }
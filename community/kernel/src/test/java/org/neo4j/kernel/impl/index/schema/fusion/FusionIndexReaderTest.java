@@ -22,6 +22,8 @@ package org.neo4j.kernel.impl.index.schema.fusion;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.primitive.PrimitiveLongCollections;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
@@ -34,9 +36,11 @@ import org.neo4j.kernel.api.schema.IndexQuery.StringPrefixPredicate;
 import org.neo4j.kernel.api.schema.IndexQuery.StringRangePredicate;
 import org.neo4j.kernel.api.schema.IndexQuery.StringSuffixPredicate;
 import org.neo4j.kernel.impl.index.schema.NativeSelector;
+import org.neo4j.kernel.impl.index.schema.NativeStringSelector;
 import org.neo4j.storageengine.api.schema.IndexReader;
 import org.neo4j.values.storable.Value;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -214,6 +218,45 @@ public class FusionIndexReaderTest
         }
     }
 
+    @Test
+    public void mustCombineResultFromBothForStringPredicatesWithStringSelector() throws Exception
+    {
+        // given
+        fusionIndexReader = new FusionIndexReader( nativeReader, luceneReader, new NativeStringSelector() );
+        IndexQuery[] predicates = {
+                IndexQuery.range( PROP_KEY, "abc", true, "def", false ),
+                IndexQuery.stringPrefix( PROP_KEY, "abc" ),
+                IndexQuery.stringSuffix( PROP_KEY, "abc" ),
+                IndexQuery.stringContains( PROP_KEY, "abc" )};
+        for ( IndexQuery predicate : predicates )
+        {
+            when( nativeReader.query( predicate ) ).thenReturn( Primitive.iterator( 0L, 2L ) );
+            when( luceneReader.query( predicate ) ).thenReturn( Primitive.iterator( 1L ) );
+
+            // when
+            PrimitiveLongIterator result = fusionIndexReader.query( predicate );
+
+            // then
+            PrimitiveLongSet resultSet = PrimitiveLongCollections.asSet( result );
+            assertEquals( "Result of " + predicate, 3, resultSet.size() );
+            verify( nativeReader, times( 1 ) ).query( predicate );
+            verify( luceneReader, times( 1 ) ).query( predicate );
+        }
+    }
+
+    @Test
+    public void mustSelectCorrectReaderForExactPredicateWithStringSelector() throws Exception
+    {
+        // given
+        fusionIndexReader = new FusionIndexReader( nativeReader, luceneReader, new NativeStringSelector() );
+        char[] tooLong = new char[1000];
+        Arrays.fill( tooLong, 'a' );
+
+        // then
+        verifyQueryWithCorrectReader( nativeReader, luceneReader, IndexQuery.exact( PROP_KEY, "short" ) );
+        verifyQueryWithCorrectReader( luceneReader, nativeReader, IndexQuery.exact( PROP_KEY, String.valueOf( tooLong ) ) );
+    }
+
     private void verifyQueryWithCorrectReader( IndexReader expectedReader, IndexReader unexpectedReader, IndexQuery... indexQuery )
             throws IndexNotApplicableKernelException
     {
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import org.neo4j.kernel.impl.locking.LockContentionProfiler.ResourceContention;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LockContentionProfilerTest
+{
+    @Test
+    public void shouldRecordWaitsPerResourceAndResourceType() throws Exception
+    {
+        // given
+        LockContentionProfiler profiler = new LockContentionProfiler( 1, 10 );
+
+        // when
+        profiler.waitForLock( true, ResourceTypes.NODE, 1, 2 ).close();
+        profiler.waitForLock( false, ResourceTypes.NODE, 1 ).close();
+        profiler.waitForLock( false, ResourceTypes.LABEL, 1 ).close();
+
+        // then
+        assertEquals( 2, profiler.waits( ResourceTypes.NODE ) );
+        assertEquals( 1, profiler.waits( ResourceTypes.LABEL ) );
+        assertEquals( 0, profiler.waits( ResourceTypes.RELATIONSHIP ) );
+        assertEquals( 2, sum( profiler.waitTimeHistogram( ResourceTypes.NODE ) ) );
+
+        List<ResourceContention> resources = profiler.mostContendedResources( 10 );
+        assertEquals( 3, resources.size() );
+        ResourceContention node1 = find( resources, ResourceTypes.NODE, 1 );
+        assertEquals( 2, node1.waits() );
+        assertEquals( 1, node1.exclusiveWaits() );
+        assertEquals( 2, sum( node1.waitTimeHistogram() ) );
+        assertEquals( 1, find( resources, ResourceTypes.NODE, 2 ).waits() );
+        assertEquals( 1, find( resources, ResourceTypes.LABEL, 1 ).waits() );
+    }
+
+    @Test
+    public void shouldListMostContendedResourcesFirst() throws Exception
+    {
+        // given
+        LockContentionProfiler profiler = new LockContentionProfiler( 1, 10 );
+        profiler.waitForLock( true, ResourceTypes.NODE, 1 ).close();
+        try ( LockWaitEvent event = profiler.waitForLock( true, ResourceTypes.NODE, 2 ) )
+        {
+            Thread.sleep( 10 );
+        }
+
+        // when
+        List<ResourceContention> resources = profiler.mostContendedResources( 1 );
+
+        // then
+        assertEquals( 1, resources.size() );
+        assertEquals( 2, resources.get( 0 ).resourceId() );
+        assertTrue( resources.get( 0 ).maxWaitNanos() >= 10_000_000 );
+    }
+
+    @Test
+    public void shouldKeepBoundedNumberOfResources() throws Exception
+    {
+        // given
+        LockContentionProfiler profiler = new LockContentionProfiler( 1, 10 );
+
+        // when
+        for ( int i = 0; i < 100; i++ )
+        {
+            profiler.waitForLock( true, ResourceTypes.NODE, i ).close();
+        }
+
+        // then
+        assertTrue( profiler.mostContendedResources( 1000 ).size() <= 20 );
+        assertEquals( 100, profiler.waits( ResourceTypes.NODE ) );
+    }
+
+    @Test
+    public void shouldOnlyRecordSampledWaits() throws Exception
+    {
+        // given
+        LockContentionProfiler profiler = new LockContentionProfiler( 10, 10 );
+
+        // when
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            profiler.waitForLock( true, ResourceTypes.NODE, 1 ).close();
+        }
+
+        // then
+        long waits = profiler.waits( ResourceTypes.NODE );
+        assertTrue( "Unexpected number of sampled waits " + waits, waits > 500 && waits < 2_000 );
+    }
+
+    @Test
+    public void shouldGetWaitTimeAtQuantileFromHistogram() throws Exception
+    {
+        // given buckets <1, <2, <4, <8, ..., >=1024 ms
+        long[] histogram = new long[LockContentionProfiler.histogramBucketBoundsMillis().length + 1];
+        histogram[0] = 90;
+        histogram[3] = 9;
+        histogram[histogram.length - 1] = 1;
+
+        // then
+        assertEquals( 1, LockContentionProfiler.waitTimeMillisAtQuantile( histogram, 0.5 ) );
+        assertEquals( 1, LockContentionProfiler.waitTimeMillisAtQuantile( histogram, 0.9 ) );
+        assertEquals( 8, LockContentionProfiler.waitTimeMillisAtQuantile( histogram, 0.95 ) );
+        assertEquals( 8, LockContentionProfiler.waitTimeMillisAtQuantile( histogram, 0.99 ) );
+        assertEquals( 1024, LockContentionProfiler.waitTimeMillisAtQuantile( histogram, 1.0 ) );
+        assertEquals( 0, LockContentionProfiler.waitTimeMillisAtQuantile( new long[histogram.length], 0.99 ) );
+    }
+
+    @Test
+    public void shouldGetWaitTimeAtQuantilePerResourceType() throws Exception
+    {
+        // given
+        LockContentionProfiler profiler = new LockContentionProfiler( 1, 10 );
+        profiler.waitForLock( true, ResourceTypes.NODE, 1 ).close();
+        try ( LockWaitEvent event = profiler.waitForLock( true, ResourceTypes.LABEL, 1 ) )
+        {
+            Thread.sleep( 10 );
+        }
+
+        // then
+        assertEquals( 0, profiler.waitTimeMillisAtQuantile( ResourceTypes.RELATIONSHIP, 0.5 ) );
+        assertTrue( profiler.waitTimeMillisAtQuantile( ResourceTypes.NODE, 0.5 ) <= 8 );
+        assertTrue( profiler.waitTimeMillisAtQuantile( ResourceTypes.LABEL, 0.5 ) > 10 );
+    }
+
+    private static ResourceContention find( List<ResourceContention> resources, ResourceTypes type, long id )
+    {
+        return resources.stream()
+                .filter( contention -> contention.resourceType() == type && contention.resourceId() == id )
+                .findFirst().orElseThrow( AssertionError::new );
+    }
+
+    private static long sum( long[] counts )
+    {
+        long sum = 0;
+        for ( long count : counts )
+        {
+            sum += count;
+        }
+        return sum;
+    }
+}
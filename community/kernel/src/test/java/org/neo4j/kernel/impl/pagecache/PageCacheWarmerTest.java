@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.pagecache;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.logging.NullLog;
+import org.neo4j.scheduler.JobScheduler;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.hamcrest.Matchers.hasItems;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+public class PageCacheWarmerTest
+{
+    private static final int PAGE_COUNT = 100;
+
+    private final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+    private final TestDirectory directory = TestDirectory.testDirectory( fsRule.get() );
+    private final PageCacheRule pageCacheRule = new PageCacheRule();
+
+    @Rule
+    public final RuleChain ruleChain = RuleChain.outerRule( fsRule ).around( directory ).around( pageCacheRule );
+
+    private FileSystemAbstraction fs;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        fs = fsRule.get();
+        file = directory.file( "a" );
+        PageCache pageCache = pageCacheRule.getPageCache( fs );
+        try ( PagedFile pf = pageCache.map( file, pageCache.pageSize(), CREATE );
+              PageCursor writer = pf.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( int i = 0; i < PAGE_COUNT; i++ )
+            {
+                assertTrue( writer.next() );
+                writer.putInt( i );
+            }
+        }
+    }
+
+    @Test
+    public void mustReheatProfiledPagesIntoNewPageCache() throws Exception
+    {
+        long[] hotPages = {3, 7, 8, 50, 99};
+        PageCache pageCache = pageCacheRule.getPageCache( fs );
+        try ( PagedFile pf = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            try ( PageCursor reader = pf.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                for ( long pageId : hotPages )
+                {
+                    assertTrue( reader.next( pageId ) );
+                }
+            }
+            assertEquals( hotPages.length, warmer( pageCache ).profile() );
+        }
+        File profilesDir = new File( directory.directory(), PageCacheWarmer.PROFILES_DIRECTORY );
+        assertTrue( fs.fileExists( new File( profilesDir, file.getName() + PageCacheWarmer.SUFFIX_CACHEPROF ) ) );
+        // The profile must not be written next to the store file, or it would be mistaken for a store file.
+        assertFalse( fs.fileExists( new File( file.getPath() + PageCacheWarmer.SUFFIX_CACHEPROF ) ) );
+
+        pageCache = pageCacheRule.getPageCache( fs );
+        try ( PagedFile pf = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            assertTrue( residentPages( pf ).isEmpty() );
+            assertEquals( hotPages.length, warmer( pageCache ).reheat() );
+            assertThat( residentPages( pf ), hasItems( 3L, 7L, 8L, 50L, 99L ) );
+        }
+    }
+
+    @Test
+    public void reheatMustIgnoreFilesWithoutProfile() throws Exception
+    {
+        PageCache pageCache = pageCacheRule.getPageCache( fs );
+        try ( PagedFile pf = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            assertEquals( 0, warmer( pageCache ).reheat() );
+            assertTrue( residentPages( pf ).isEmpty() );
+        }
+    }
+
+    @Test
+    public void reheatMustIgnoreProfiledPagesBeyondEndOfFile() throws Exception
+    {
+        PageCache pageCache = pageCacheRule.getPageCache( fs );
+        try ( PagedFile pf = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            try ( PageCursor reader = pf.io( PAGE_COUNT - 1, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( reader.next() );
+            }
+            warmer( pageCache ).profile();
+        }
+
+        fs.truncate( file, (PAGE_COUNT / 2) * pageCache.pageSize() );
+        pageCache = pageCacheRule.getPageCache( fs );
+        try ( PagedFile pf = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            assertEquals( 0, warmer( pageCache ).reheat() );
+            assertFalse( residentPages( pf ).contains( PAGE_COUNT - 1L ) );
+        }
+    }
+
+    private PageCacheWarmer warmer( PageCache pageCache )
+    {
+        return new PageCacheWarmer( fs, pageCache, mock( JobScheduler.class ), directory.directory(), 1000,
+                NullLog.getInstance() );
+    }
+
+    private static List<Long> residentPages( PagedFile pf ) throws IOException
+    {
+        List<Long> pages = new ArrayList<>();
+        try ( PageCursor cursor = pf.io( 0, PF_SHARED_READ_LOCK | PF_NO_FAULT ) )
+        {
+            while ( cursor.next() )
+            {
+                if ( cursor.getCurrentPageId() != PageCursor.UNBOUND_PAGE_ID )
+                {
+                    pages.add( cursor.getCurrentPageId() );
+                }
+            }
+        }
+        return pages;
+    }
+}
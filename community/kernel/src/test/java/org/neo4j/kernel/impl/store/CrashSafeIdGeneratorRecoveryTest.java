@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.store.id.BitmapIdGeneratorFactory;
+import org.neo4j.kernel.impl.store.id.configuration.CommunityIdTypeConfigurationProvider;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.logging.NullLogProvider;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CrashSafeIdGeneratorRecoveryTest
+{
+    private final EphemeralFileSystemRule fileSystemRule = new EphemeralFileSystemRule();
+    private final PageCacheRule pageCacheRule = new PageCacheRule();
+
+    @Rule
+    public final RuleChain ruleChain = RuleChain.outerRule( fileSystemRule ).around( pageCacheRule );
+
+    private final File storeDir = new File( "graph.db" ).getAbsoluteFile();
+
+    @Test
+    public void shouldNotHandOutIdsOfLastRecordsDeletedByRecoveryTwice() throws Exception
+    {
+        // GIVEN a check pointed store with ten nodes, which crashes
+        EphemeralFileSystemAbstraction fs = fileSystemRule.get();
+        fs.mkdirs( storeDir );
+        EphemeralFileSystemAbstraction crashed;
+        try ( NeoStores stores = openStores( fs ) )
+        {
+            NodeStore nodeStore = stores.getNodeStore();
+            for ( int i = 0; i < 10; i++ )
+            {
+                nodeStore.updateRecord( node( nodeStore.nextId(), true ) );
+            }
+            stores.flush( IOLimiter.unlimited() );
+            crashed = fs.snapshot();
+        }
+        // WHEN recovering a transaction which deleted the last two of them
+        try ( NeoStores stores = openStores( crashed ) )
+        {
+            NodeStore nodeStore = stores.getNodeStore();
+            assertTrue( nodeStore.getStoreOk() );
+            stores.deleteIdGenerators();
+            nodeStore.updateRecord( node( 8, false ) );
+            nodeStore.updateRecord( node( 9, false ) );
+            stores.makeStoreOk();
+
+            // THEN the high id is kept, since the deleted ids are free
+            assertEquals( 10, nodeStore.getHighId() );
+            assertEquals( 10, nodeStore.nextId() );
+        }
+
+        // and after a restart the deleted ids are reused, but only once
+        try ( NeoStores stores = openStores( crashed ) )
+        {
+            NodeStore nodeStore = stores.getNodeStore();
+            Set<Long> ids = new HashSet<>();
+            for ( int i = 0; i < 4; i++ )
+            {
+                assertTrue( ids.add( nodeStore.nextId() ) );
+            }
+            assertEquals( new HashSet<>( asList( 8L, 9L, 11L, 12L ) ), ids );
+        }
+        finally
+        {
+            crashed.close();
+        }
+    }
+
+    private NeoStores openStores( EphemeralFileSystemAbstraction fs )
+    {
+        StoreFactory storeFactory = new StoreFactory( storeDir, Config.defaults(),
+                new BitmapIdGeneratorFactory( fs, new CommunityIdTypeConfigurationProvider() ),
+                pageCacheRule.getPageCache( fs ), fs, NullLogProvider.getInstance() );
+        return storeFactory.openAllNeoStores( true );
+    }
+
+    private static NodeRecord node( long id, boolean inUse )
+    {
+        NodeRecord node = new NodeRecord( id );
+        node.setInUse( inUse );
+        return node;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.impl.store.InvalidIdGeneratorException;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BitmapIdGeneratorTest
+{
+    @Rule
+    public final EphemeralFileSystemRule fsr = new EphemeralFileSystemRule();
+    private final File file = new File( "ids" );
+
+    @Test
+    public void shouldReuseFreedIdsAggressively() throws Exception
+    {
+        // given
+        BitmapIdGenerator generator = new BitmapIdGenerator( fsr.get(), file, 1_000, true, () -> 0L );
+        for ( int i = 0; i < 10; i++ )
+        {
+            generator.nextId();
+        }
+
+        // when
+        generator.freeId( 3 );
+        generator.freeId( 7 );
+
+        // then
+        IdRange batch = generator.nextIdBatch( 4 );
+        long[] reused = batch.getDefragIds();
+        Arrays.sort( reused );
+        assertArrayEquals( new long[]{3, 7}, reused );
+        assertEquals( 10, batch.getRangeStart() );
+        assertEquals( 2, batch.getRangeLength() );
+        assertEquals( 12, generator.getHighId() );
+        generator.close();
+    }
+
+    @Test
+    public void shouldOnlyReuseIdsFreedInPreviousSessionUnlessAggressive() throws Exception
+    {
+        // given
+        BitmapIdGenerator generator = new BitmapIdGenerator( fsr.get(), file, 1_000, false, () -> 0L );
+        generator.nextIdBatch( 10 );
+        generator.freeId( 5 );
+
+        // then
+        assertEquals( 10, generator.nextId() );
+        assertEquals( 1, generator.getDefragCount() );
+        generator.close();
+
+        // and when
+        generator = new BitmapIdGenerator( fsr.get(), file, 1_000, false, () -> 0L );
+
+        // then
+        assertEquals( 11, generator.getHighId() );
+        assertEquals( 5, generator.nextId() );
+        generator.close();
+    }
+
+    @Test
+    public void shouldWriteIdFileReadableByIdGeneratorImpl() throws Exception
+    {
+        // given
+        BitmapIdGenerator generator = new BitmapIdGenerator( fsr.get(), file, 1_000, true, () -> 0L );
+        generator.nextIdBatch( 10 );
+        generator.freeId( 2 );
+        generator.freeId( 4 );
+
+        // when
+        generator.close();
+
+        // then
+        assertFalse( fsr.get().fileExists( BitmapIdGenerator.bitmapFile( file ) ) );
+        IdGeneratorImpl legacy = new IdGeneratorImpl( fsr.get(), file, 10, 1_000, true, () -> 0L );
+        assertEquals( 10, legacy.getHighId() );
+        assertEquals( 2, legacy.getDefragCount() );
+        legacy.close();
+
+        // and when
+        generator = new BitmapIdGenerator( fsr.get(), file, 1_000, true, () -> 0L );
+
+        // then
+        assertEquals( 10, generator.getHighId() );
+        assertEquals( 2, generator.getDefragCount() );
+        generator.close();
+    }
+
+    @Test
+    public void shouldOpenFromLastFlushAfterCrash() throws Exception
+    {
+        // given
+        BitmapIdGenerator generator = new BitmapIdGenerator( fsr.get(), file, 1_000, true, () -> 0L );
+        generator.nextIdBatch( 10 );
+        generator.freeId( 3 );
+        generator.flush();
+        IdRange batch = generator.nextIdBatch( 5 );
+        assertArrayEquals( new long[]{3}, batch.getDefragIds() );
+        generator.freeId( 11 );
+
+        // when
+        EphemeralFileSystemAbstraction crashed = fsr.get().snapshot();
+        generator.close();
+        BitmapIdGenerator recovered = new BitmapIdGenerator( crashed, file, 1_000, true, () -> 0L );
+
+        // then
+        assertEquals( 10, recovered.getHighId() );
+        assertEquals( 1, recovered.getDefragCount() );
+
+        // and when recovery tells it about the records written after the flush
+        recovered.recoverId( 3, true );
+        recovered.recoverId( 10, true );
+        recovered.recoverId( 11, false );
+        recovered.recoverId( 12, true );
+
+        // then
+        assertEquals( 13, recovered.getHighId() );
+        assertEquals( 1, recovered.getDefragCount() );
+        assertEquals( 11, recovered.nextId() );
+        recovered.close();
+        crashed.close();
+    }
+
+    @Test
+    public void shouldNotLoadFreeIdsAtOrAboveFlushedHighId() throws Exception
+    {
+        // given
+        BitmapIdGenerator generator = new BitmapIdGenerator( fsr.get(), file, 1_000, true, () -> 0L );
+        generator.nextIdBatch( 10 );
+        generator.freeId( 4 );
+        generator.freeId( 9 );
+        generator.flush();
+        EphemeralFileSystemAbstraction crashed = fsr.get().snapshot();
+        generator.close();
+
+        // when the flushed high id is lower than a free id, as when the id was allocated and freed while flushing
+        try ( StoreChannel channel = crashed.open( BitmapIdGenerator.bitmapFile( file ), "rw" ) )
+        {
+            ByteBuffer highId = ByteBuffer.allocate( Long.BYTES );
+            highId.putLong( 9 ).flip();
+            channel.writeAll( highId, Long.BYTES );
+        }
+        BitmapIdGenerator recovered = new BitmapIdGenerator( crashed, file, 1_000, true, () -> 0L );
+
+        // then that id is only handed out as a new id
+        assertEquals( 9, recovered.getHighId() );
+        assertEquals( 1, recovered.getDefragCount() );
+        assertEquals( 4, recovered.nextId() );
+        assertEquals( 9, recovered.nextId() );
+        assertEquals( 10, recovered.nextId() );
+        recovered.close();
+        crashed.close();
+    }
+
+    @Test
+    public void shouldRequireRebuildIfCrashedWithoutBitmap() throws Exception
+    {
+        // given
+        BitmapIdGenerator generator = new BitmapIdGenerator( fsr.get(), file, 1_000, true, () -> 0L );
+        generator.nextIdBatch( 10 );
+        EphemeralFileSystemAbstraction crashed = fsr.get().snapshot();
+        generator.close();
+        crashed.deleteFile( BitmapIdGenerator.bitmapFile( file ) );
+
+        // when
+        try
+        {
+            new BitmapIdGenerator( crashed, file, 1_000, true, () -> 0L );
+            fail( "Should have failed" );
+        }
+        catch ( InvalidIdGeneratorException e )
+        {
+            // then good
+            assertTrue( e.getMessage().contains( file.getPath() ) );
+        }
+        finally
+        {
+            crashed.close();
+        }
+    }
+}
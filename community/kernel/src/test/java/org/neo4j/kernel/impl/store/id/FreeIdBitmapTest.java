@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FreeIdBitmapTest
+{
+    private final FreeIdBitmap bitmap = new FreeIdBitmap();
+
+    @After
+    public void close()
+    {
+        bitmap.close();
+    }
+
+    @Test
+    public void shouldFreeAndUseIds() throws Exception
+    {
+        // when
+        assertTrue( bitmap.free( 5 ) );
+        assertTrue( bitmap.free( 3L * FreeIdBitmap.CHUNK_IDS + 7 ) );
+        assertFalse( bitmap.free( 5 ) );
+
+        // then
+        assertEquals( 2, bitmap.freeIds() );
+        assertTrue( bitmap.isFree( 5 ) );
+        assertFalse( bitmap.isFree( 6 ) );
+        assertTrue( bitmap.use( 5 ) );
+        assertFalse( bitmap.use( 5 ) );
+        assertFalse( bitmap.isFree( 5 ) );
+        assertEquals( 1, bitmap.freeIds() );
+    }
+
+    @Test
+    public void shouldClaimFreeIds() throws Exception
+    {
+        // given
+        long[] freed = {1, 2, 63, 64, 200, FreeIdBitmap.CHUNK_IDS + 10L};
+        for ( long id : freed )
+        {
+            bitmap.free( id );
+        }
+
+        // when
+        long[] claimed = new long[10];
+        int count = bitmap.claim( claimed, 0, 4 );
+        count += bitmap.claim( claimed, count, 10 );
+
+        // then
+        assertEquals( freed.length, count );
+        long[] actual = Arrays.copyOf( claimed, count );
+        Arrays.sort( actual );
+        assertArrayEquals( freed, actual );
+        assertEquals( 0, bitmap.freeIds() );
+        assertEquals( 0, bitmap.claim( claimed, 0, 10 ) );
+    }
+
+    @Test
+    public void shouldTrackDirtyChunks() throws Exception
+    {
+        // given
+        bitmap.free( FreeIdBitmap.CHUNK_IDS + 1L );
+
+        // then
+        assertFalse( bitmap.clearDirty( 0 ) );
+        assertTrue( bitmap.clearDirty( 1 ) );
+        assertFalse( bitmap.clearDirty( 1 ) );
+
+        // and when
+        long[] words = new long[FreeIdBitmap.CHUNK_WORDS];
+        bitmap.copyChunk( 1, words );
+        FreeIdBitmap loaded = new FreeIdBitmap();
+        try
+        {
+            loaded.loadChunk( 1, words );
+
+            // then
+            assertEquals( 1, loaded.freeIds() );
+            assertTrue( loaded.isFree( FreeIdBitmap.CHUNK_IDS + 1L ) );
+        }
+        finally
+        {
+            loaded.close();
+        }
+    }
+
+    @Test
+    public void shouldNeverClaimSameIdConcurrently() throws Exception
+    {
+        // given
+        int ids = 100_000;
+        for ( long id = 0; id < ids; id++ )
+        {
+            bitmap.free( id );
+        }
+
+        // when
+        int threads = 4;
+        Set<Long> claimed = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            Future<?>[] futures = new Future[threads];
+            for ( int i = 0; i < threads; i++ )
+            {
+                futures[i] = executor.submit( () ->
+                {
+                    long[] batch = new long[20];
+                    int count;
+                    while ( (count = bitmap.claim( batch, 0, batch.length )) > 0 )
+                    {
+                        for ( int j = 0; j < count; j++ )
+                        {
+                            assertTrue( claimed.add( batch[j] ) );
+                        }
+                    }
+                } );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get( 1, TimeUnit.MINUTES );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // then
+        assertEquals( ids, claimed.size() );
+        assertEquals( new HashSet<>( claimed ).size(), ids );
+        assertEquals( 0, bitmap.freeIds() );
+    }
+
+    @Test
+    public void shouldFailAccessAfterClose() throws Exception
+    {
+        // given
+        bitmap.free( 5 );
+
+        // when
+        bitmap.close();
+
+        // then
+        try
+        {
+            bitmap.isFree( 5 );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // good
+        }
+    }
+
+    @Test
+    public void shouldWaitForConcurrentAccessBeforeFreeingMemory() throws Exception
+    {
+        // given
+        int threads = 4;
+        AtomicBoolean end = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            Future<?>[] futures = new Future[threads];
+            for ( int i = 0; i < threads; i++ )
+            {
+                long firstId = (long) i * FreeIdBitmap.CHUNK_IDS;
+                futures[i] = executor.submit( () ->
+                {
+                    long[] batch = new long[10];
+                    try
+                    {
+                        for ( long id = firstId; !end.get(); id++ )
+                        {
+                            bitmap.free( id );
+                            bitmap.claim( batch, 0, batch.length );
+                        }
+                    }
+                    catch ( IllegalStateException e )
+                    {
+                        // closed, which is expected
+                    }
+                } );
+            }
+
+            // when
+            Thread.sleep( 100 );
+            bitmap.close();
+            end.set( true );
+
+            // then none of the threads accessed freed memory, which would have crashed the JVM
+            for ( Future<?> future : futures )
+            {
+                future.get( 1, TimeUnit.MINUTES );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
@@ -26,6 +26,8 @@ import org.mockito.Matchers;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 import org.neo4j.concurrent.WorkSync;
@@ -206,6 +208,37 @@ public class NeoStoreTransactionApplierTest
         verify( dynamicLabelStore, times( 1 ) ).setHighestPossibleIdInUse( three.getId() );
     }
 
+    @Test
+    public void shouldApplyNodeCommandToTheStoreWithParallelRecordApplier() throws Exception
+    {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final BatchTransactionApplier applier = new NeoStoreBatchTransactionApplier( Command.Version.AFTER,
+                    neoStores, cacheAccess, lockService, new ParallelRecordApplier( executor, 2, 0 ) );
+            final NodeRecord before = new NodeRecord( 11 );
+            before.setLabelField( 42, asList( one, two ) );
+            final NodeRecord after = new NodeRecord( 12 );
+            after.setInUse( true );
+            after.setLabelField( 42, asList( one, two, three ) );
+            final Command.NodeCommand command = new Command.NodeCommand( before, after );
+
+            // when
+            boolean result = apply( applier, command::handle, transactionToApply );
+
+            // then
+            assertFalse( result );
+
+            verify( lockService, times( 1 ) ).acquireNodeLock( command.getKey(), LockService.LockType.WRITE_LOCK );
+            verify( nodeStore, times( 1 ) ).updateRecord( after );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void shouldInvalidateTheCacheWhenTheNodeBecomesDense() throws Exception
     {
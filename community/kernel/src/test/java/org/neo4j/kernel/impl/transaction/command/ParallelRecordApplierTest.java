@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo4j.kernel.impl.api.BatchTransactionApplierFacade;
+import org.neo4j.kernel.impl.api.TransactionToApply;
+import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo4j.kernel.impl.core.RelationshipTypeToken;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.storageengine.api.Token;
+import org.neo4j.test.rule.NeoStoresRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.neo4j.kernel.impl.locking.LockService.NO_LOCK_SERVICE;
+import static org.neo4j.kernel.impl.transaction.command.Command.Version.AFTER;
+
+public class ParallelRecordApplierTest
+{
+    @Rule
+    public final NeoStoresRule neoStoresRule = new NeoStoresRule( getClass() );
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( 3 );
+    private final NodeStore nodeStore = mock( NodeStore.class );
+
+    @After
+    public void shutDownExecutor()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldApplyAllRecordsInOrderOfEachIdRange() throws Exception
+    {
+        // GIVEN
+        List<NodeRecord> applied = recordApplied();
+        ParallelRecordApplier.RecordUpdates updates = new ParallelRecordApplier( executor, 4, 0 ).newTransaction();
+        for ( long id = 0; id < 1_000; id++ )
+        {
+            updates.add( nodeStore, new NodeRecord( id ) );
+        }
+
+        // WHEN
+        updates.apply();
+
+        // THEN
+        assertEquals( 1_000, applied.size() );
+        long[] highestSeenInRange = new long[1_000];
+        for ( NodeRecord record : applied )
+        {
+            int range = (int) (record.getId() >>> 7);
+            assertTrue( record.getId() >= highestSeenInRange[range] );
+            highestSeenInRange[range] = record.getId();
+        }
+    }
+
+    @Test
+    public void shouldApplySmallTransactionInCallingThread() throws Exception
+    {
+        // GIVEN
+        AtomicBoolean otherThread = new AtomicBoolean();
+        Thread callingThread = Thread.currentThread();
+        doAnswer( invocation ->
+        {
+            otherThread.compareAndSet( false, Thread.currentThread() != callingThread );
+            return null;
+        } ).when( nodeStore ).updateRecord( any( NodeRecord.class ) );
+        ParallelRecordApplier.RecordUpdates updates = new ParallelRecordApplier( executor, 4, 1_000 ).newTransaction();
+        for ( long id = 0; id < 10_000; id += 1_000 )
+        {
+            updates.add( nodeStore, new NodeRecord( id ) );
+        }
+
+        // WHEN
+        updates.apply();
+
+        // THEN
+        assertFalse( otherThread.get() );
+    }
+
+    @Test
+    public void shouldPropagateFailureToWriteRecord() throws Exception
+    {
+        // GIVEN
+        RuntimeException failure = new RuntimeException( "Failed to write record" );
+        doAnswer( invocation ->
+        {
+            if ( invocation.getArgumentAt( 0, NodeRecord.class ).getId() == 500 )
+            {
+                throw failure;
+            }
+            return null;
+        } ).when( nodeStore ).updateRecord( any( NodeRecord.class ) );
+        ParallelRecordApplier.RecordUpdates updates = new ParallelRecordApplier( executor, 4, 0 ).newTransaction();
+        for ( long id = 0; id < 1_000; id++ )
+        {
+            updates.add( nodeStore, new NodeRecord( id ) );
+        }
+
+        // WHEN
+        try
+        {
+            updates.apply();
+            fail( "Should have failed" );
+        }
+        catch ( Exception e )
+        {
+            // THEN
+            assertSame( failure, e );
+        }
+    }
+
+    @Test
+    public void shouldWriteTokensBeforeCacheInvalidationReadsThem() throws Exception
+    {
+        // GIVEN
+        NeoStores neoStores = neoStoresRule.builder().build();
+        CacheAccessBackDoor cacheAccess = mock( CacheAccessBackDoor.class );
+        BatchTransactionApplierFacade applier = new BatchTransactionApplierFacade(
+                new NeoStoreBatchTransactionApplier( AFTER, neoStores, cacheAccess, NO_LOCK_SERVICE,
+                        new ParallelRecordApplier( executor, 2, 0 ) ),
+                new CacheInvalidationBatchTransactionApplier( neoStores, cacheAccess ) );
+
+        // WHEN
+        CommandHandlerContract.apply( applier, new TransactionToApply( Commands.transactionRepresentation(
+                Commands.createLabelToken( 0, 0 ),
+                Commands.createPropertyKeyToken( 0, 0 ),
+                Commands.createRelationshipTypeToken( 0, 0 ),
+                Commands.createNode( 0 ) ) ) );
+
+        // THEN
+        verify( cacheAccess ).addLabelToken( any( Token.class ) );
+        verify( cacheAccess ).addPropertyKeyToken( any( Token.class ) );
+        verify( cacheAccess ).addRelationshipTypeToken( any( RelationshipTypeToken.class ) );
+        assertTrue( neoStores.getNodeStore().isInUse( 0 ) );
+    }
+
+    private List<NodeRecord> recordApplied()
+    {
+        List<NodeRecord> applied = new CopyOnWriteArrayList<>();
+        doAnswer( invocation ->
+        {
+            applied.add( invocation.getArgumentAt( 0, NodeRecord.class ) );
+            return null;
+        } ).when( nodeStore ).updateRecord( any( NodeRecord.class ) );
+        return applied;
+    }
+}
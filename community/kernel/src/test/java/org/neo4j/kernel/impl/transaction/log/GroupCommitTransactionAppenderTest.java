@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.io.ByteUnit;
+import org.neo4j.kernel.impl.api.TransactionToApply;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.command.Command.NodeCommand;
+import org.neo4j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
+import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceEvent;
+import org.neo4j.kernel.impl.transaction.tracing.LogForceWaitEvent;
+import org.neo4j.kernel.impl.util.Neo4jJobScheduler;
+import org.neo4j.kernel.internal.DatabaseHealth;
+import org.neo4j.kernel.lifecycle.LifeRule;
+import org.neo4j.scheduler.JobScheduler;
+import org.neo4j.storageengine.api.StorageCommand;
+import org.neo4j.test.Race;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.neo4j.kernel.impl.transaction.log.TransactionIdStore.BASE_TX_ID;
+import static org.neo4j.kernel.impl.transaction.log.rotation.LogRotation.NO_ROTATION;
+import static org.neo4j.kernel.impl.util.IdOrderingQueue.BYPASS;
+
+public class GroupCommitTransactionAppenderTest
+{
+    @Rule
+    public final LifeRule life = new LifeRule( true );
+
+    private final InMemoryVersionableReadableClosablePositionAwareChannel channel =
+            new InMemoryVersionableReadableClosablePositionAwareChannel( (int) ByteUnit.mebiBytes( 1 ) );
+    private final DatabaseHealth databaseHealth = mock( DatabaseHealth.class );
+    private final LogFile logFile = mock( LogFile.class );
+    private final TransactionIdStore transactionIdStore = mock( TransactionIdStore.class );
+    private final TransactionMetadataCache positionCache = new TransactionMetadataCache( 10 );
+    private final AtomicLong nextTxId = new AtomicLong( BASE_TX_ID );
+
+    @Test
+    public void shouldAppendAndPublishConcurrentTransactions() throws Throwable
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenAnswer( invocation -> nextTxId.incrementAndGet() );
+        RecordingMonitor monitor = new RecordingMonitor();
+        TransactionAppender appender = life.add( newAppender( monitor ) );
+        int threads = 8;
+        int transactionsPerThread = 50;
+
+        // WHEN
+        Race race = new Race();
+        race.addContestants( threads, Race.throwing( () ->
+        {
+            for ( int i = 0; i < transactionsPerThread; i++ )
+            {
+                appender.append( new TransactionToApply( transaction() ), LogAppendEvent.NULL );
+            }
+        } ) );
+        race.go();
+
+        // THEN
+        int expectedTransactions = threads * transactionsPerThread;
+        assertEquals( expectedTransactions, monitor.batches.get() );
+        assertEquals( expectedTransactions, monitor.transactions.get() );
+        assertTrue( monitor.groups.get() <= expectedTransactions );
+        assertEquals( expectedTransactions, countTransactionsInLog() );
+        verify( transactionIdStore, times( expectedTransactions ) ).transactionCommitted( anyLong(), anyLong(), anyLong() );
+    }
+
+    @Test
+    public void shouldAppendWholeBatchInSameGroup() throws Throwable
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenAnswer( invocation -> nextTxId.incrementAndGet() );
+        RecordingMonitor monitor = new RecordingMonitor();
+        TransactionAppender appender = life.add( newAppender( monitor ) );
+        TransactionToApply batch = new TransactionToApply( transaction() );
+        batch.next( new TransactionToApply( transaction() ) );
+        batch.next().next( new TransactionToApply( transaction() ) );
+
+        // WHEN
+        long lastTxId = appender.append( batch, LogAppendEvent.NULL );
+
+        // THEN
+        assertEquals( BASE_TX_ID + 3, lastTxId );
+        assertEquals( 1, monitor.groups.get() );
+        assertEquals( 1, monitor.batches.get() );
+        assertEquals( 3, monitor.transactions.get() );
+        assertEquals( 3, countTransactionsInLog() );
+    }
+
+    @Test
+    public void shouldReportForceToEveryCommitterInGroup() throws Throwable
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenAnswer( invocation -> nextTxId.incrementAndGet() );
+        TransactionAppender appender = life.add( newAppender( GroupCommitTransactionAppender.NO_MONITOR ) );
+        int threads = 8;
+        int transactionsPerThread = 20;
+
+        // WHEN
+        Race race = new Race();
+        race.addContestants( threads, Race.throwing( () ->
+        {
+            for ( int i = 0; i < transactionsPerThread; i++ )
+            {
+                ForceCountingLogAppendEvent logAppendEvent = new ForceCountingLogAppendEvent();
+                appender.append( new TransactionToApply( transaction() ), logAppendEvent );
+
+                // THEN
+                assertEquals( 1, logAppendEvent.forceWaits );
+                assertEquals( 1, logAppendEvent.forces );
+            }
+        } ) );
+        race.go();
+    }
+
+    @Test
+    public void shouldAssignTransactionIdsInLogOrder() throws Throwable
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenAnswer( invocation -> nextTxId.incrementAndGet() );
+        TransactionAppender appender = life.add( newAppender( GroupCommitTransactionAppender.NO_MONITOR ) );
+        int threads = 4;
+
+        // WHEN
+        Race race = new Race();
+        race.addContestants( threads, Race.throwing( () ->
+        {
+            TransactionToApply batch = new TransactionToApply( transaction() );
+            batch.next( new TransactionToApply( transaction() ) );
+            appender.append( batch, LogAppendEvent.NULL );
+        } ) );
+        race.go();
+
+        // THEN
+        long expectedTxId = BASE_TX_ID;
+        try ( PhysicalTransactionCursor<ReadableLogChannel> cursor =
+                      new PhysicalTransactionCursor<>( channel, new VersionAwareLogEntryReader<>() ) )
+        {
+            int startPosition = channel.readerPosition();
+            while ( cursor.next() )
+            {
+                CommittedTransactionRepresentation tx = cursor.get();
+                long txId = tx.getCommitEntry().getTxId();
+                assertEquals( ++expectedTxId, txId );
+                TransactionMetadataCache.TransactionMetadata metadata = positionCache.getTransactionMetadata( txId );
+                assertEquals( startPosition, metadata.getStartPosition().getByteOffset() );
+                assertEquals( tx.getStartEntry().checksum(), metadata.getChecksum() );
+                startPosition = channel.readerPosition();
+            }
+        }
+        assertEquals( BASE_TX_ID + threads * 2, expectedTxId );
+    }
+
+    @Test
+    public void shouldFailCommittersAndPanicOnFailedForce() throws Throwable
+    {
+        // GIVEN
+        FlushablePositionAwareChannel channel = spy( new InMemoryClosableChannel() );
+        IOException failure = new IOException( "Forces a failure" );
+        Flushable flushable = mock( Flushable.class );
+        doAnswer( invocation ->
+        {
+            invocation.callRealMethod();
+            return flushable;
+        } ).when( channel ).prepareForFlush();
+        doThrow( failure ).when( flushable ).flush();
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenAnswer( invocation -> nextTxId.incrementAndGet() );
+        TransactionAppender appender = life.add( newAppender( GroupCommitTransactionAppender.NO_MONITOR ) );
+
+        // WHEN
+        try
+        {
+            appender.append( new TransactionToApply( transaction() ), LogAppendEvent.NULL );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // THEN
+            assertSame( failure, e );
+            verify( databaseHealth ).panic( failure );
+        }
+    }
+
+    @Test
+    public void shouldPanicAndFailLaterCommittersWhenWriterFails() throws Throwable
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenAnswer( invocation -> nextTxId.incrementAndGet() );
+        RuntimeException failure = new RuntimeException( "Writer dies" );
+        TransactionAppender appender = life.add( newAppender( ( batches, transactions, latencyNanos ) ->
+        {
+            throw failure;
+        } ) );
+        appender.append( new TransactionToApply( transaction() ), LogAppendEvent.NULL );
+
+        // WHEN
+        try
+        {
+            appender.append( new TransactionToApply( transaction() ), LogAppendEvent.NULL );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // THEN
+            assertSame( failure, e.getCause() );
+            verify( databaseHealth ).panic( failure );
+        }
+    }
+
+    @Test
+    public void shouldKeepWaitingForWriterAndRestoreInterruptStatus() throws Throwable
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenAnswer( invocation -> nextTxId.incrementAndGet() );
+        TransactionAppender appender = life.add( newAppender( GroupCommitTransactionAppender.NO_MONITOR ) );
+
+        // WHEN
+        Thread.currentThread().interrupt();
+        long txId = appender.append( new TransactionToApply( transaction() ), LogAppendEvent.NULL );
+
+        // THEN
+        assertTrue( Thread.interrupted() );
+        assertEquals( BASE_TX_ID + 1, txId );
+        assertEquals( 1, countTransactionsInLog() );
+    }
+
+    @Test
+    public void shouldNotAcceptTransactionsWhenStopped() throws Throwable
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        GroupCommitTransactionAppender appender = life.add( newAppender( GroupCommitTransactionAppender.NO_MONITOR ) );
+        life.shutdown();
+
+        // WHEN
+        try
+        {
+            appender.append( new TransactionToApply( transaction() ), LogAppendEvent.NULL );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // THEN good
+        }
+    }
+
+    private GroupCommitTransactionAppender newAppender( GroupCommitTransactionAppender.Monitor monitor )
+    {
+        JobScheduler scheduler = life.add( new Neo4jJobScheduler() );
+        return new GroupCommitTransactionAppender( logFile, NO_ROTATION, positionCache, transactionIdStore,
+                BYPASS, databaseHealth, scheduler, MILLISECONDS.toNanos( 1 ), monitor );
+    }
+
+    private int countTransactionsInLog() throws IOException
+    {
+        int count = 0;
+        try ( PhysicalTransactionCursor<ReadableLogChannel> cursor =
+                      new PhysicalTransactionCursor<>( channel, new VersionAwareLogEntryReader<>() ) )
+        {
+            while ( cursor.next() )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static TransactionRepresentation transaction()
+    {
+        Collection<StorageCommand> commands = new ArrayList<>();
+        NodeRecord before = new NodeRecord( 0 );
+        NodeRecord after = new NodeRecord( 0 );
+        after.setInUse( true );
+        commands.add( new NodeCommand( before, after ) );
+        PhysicalTransactionRepresentation tx = new PhysicalTransactionRepresentation( commands );
+        tx.setHeader( new byte[0], 0, 0, 0, 0, 0, -1 );
+        return tx;
+    }
+
+    private static class ForceCountingLogAppendEvent extends LogAppendEvent.Empty
+    {
+        int forceWaits;
+        int forces;
+
+        @Override
+        public LogForceWaitEvent beginLogForceWait()
+        {
+            return () -> forceWaits++;
+        }
+
+        @Override
+        public LogForceEvent beginLogForce()
+        {
+            return () -> forces++;
+        }
+    }
+
+    private static class RecordingMonitor implements GroupCommitTransactionAppender.Monitor
+    {
+        final AtomicInteger groups = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicInteger transactions = new AtomicInteger();
+
+        @Override
+        public void groupCommitted( int batches, int transactions, long latencyNanos )
+        {
+            this.groups.incrementAndGet();
+            this.batches.addAndGet( batches );
+            this.transactions.addAndGet( transactions );
+        }
+    }
+}
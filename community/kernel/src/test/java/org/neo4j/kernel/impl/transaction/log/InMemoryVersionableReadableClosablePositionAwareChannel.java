@@ -32,6 +32,13 @@ public class InMemoryVersionableReadableClosablePositionAwareChannel extends InM
         this( 0, CURRENT_LOG_VERSION );
     }
 
+    public InMemoryVersionableReadableClosablePositionAwareChannel( int bufferSize )
+    {
+        super( bufferSize );
+        this.version = 0;
+        this.formatVersion = CURRENT_LOG_VERSION;
+    }
+
     public InMemoryVersionableReadableClosablePositionAwareChannel( long version, byte formatVersion )
     {
         this.version = version;
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.neo4j.helpers.NamedThreadFactory.daemon;
+import static org.neo4j.helpers.collection.Iterators.array;
+import static org.neo4j.kernel.impl.transaction.log.GivenTransactionCursor.exhaust;
+import static org.neo4j.kernel.impl.transaction.log.GivenTransactionCursor.given;
+
+public class PrefetchingTransactionCursorTest
+{
+    @Test
+    public void shouldReturnAllTransactionsFromSourceInOrder() throws Exception
+    {
+        // GIVEN
+        CommittedTransactionRepresentation tx1 = mock( CommittedTransactionRepresentation.class );
+        CommittedTransactionRepresentation tx2 = mock( CommittedTransactionRepresentation.class );
+        CommittedTransactionRepresentation tx3 = mock( CommittedTransactionRepresentation.class );
+        TransactionCursor source = given( tx1, tx2, tx3 );
+
+        // WHEN
+        CommittedTransactionRepresentation[] transactions;
+        try ( TransactionCursor cursor = new PrefetchingTransactionCursor( source, 1, daemon( "reader" ) ) )
+        {
+            transactions = exhaust( cursor );
+        }
+
+        // THEN
+        assertArrayEquals( array( tx1, tx2, tx3 ), transactions );
+    }
+
+    @Test
+    public void shouldReturnPositionsOfSource() throws Exception
+    {
+        // GIVEN
+        LogPosition start = new LogPosition( 0, 16 );
+        LogPosition afterFirst = new LogPosition( 0, 100 );
+        LogPosition afterCheckPoint = new LogPosition( 0, 150 );
+        TransactionCursor source = mock( TransactionCursor.class );
+        when( source.next() ).thenReturn( true, false );
+        when( source.get() ).thenReturn( mock( CommittedTransactionRepresentation.class ) );
+        when( source.position() ).thenReturn( start, afterFirst, afterCheckPoint );
+
+        // WHEN
+        try ( TransactionCursor cursor = new PrefetchingTransactionCursor( source, 10, daemon( "reader" ) ) )
+        {
+            // THEN
+            assertEquals( start, cursor.position() );
+            assertTrue( cursor.next() );
+            assertEquals( afterFirst, cursor.position() );
+            assertFalse( cursor.next() );
+            assertEquals( afterCheckPoint, cursor.position() );
+        }
+        verify( source ).close();
+    }
+
+    @Test
+    public void shouldThrowFailureFromSourceAfterPrefetchedTransactions() throws Exception
+    {
+        // GIVEN
+        IOException failure = new IOException( "Failed to read log" );
+        CommittedTransactionRepresentation tx = mock( CommittedTransactionRepresentation.class );
+        TransactionCursor source = mock( TransactionCursor.class );
+        when( source.next() ).thenReturn( true ).thenThrow( failure );
+        when( source.get() ).thenReturn( tx );
+
+        try ( TransactionCursor cursor = new PrefetchingTransactionCursor( source, 10, daemon( "reader" ) ) )
+        {
+            assertTrue( cursor.next() );
+            assertSame( tx, cursor.get() );
+
+            // WHEN
+            cursor.next();
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // THEN
+            assertSame( failure, e );
+        }
+    }
+
+    @Test
+    public void shouldStopReaderWhenClosedBeforeExhausted() throws Exception
+    {
+        // GIVEN
+        TransactionCursor source = mock( TransactionCursor.class );
+        when( source.next() ).thenReturn( true );
+        when( source.get() ).thenReturn( mock( CommittedTransactionRepresentation.class ) );
+        TransactionCursor cursor = new PrefetchingTransactionCursor( source, 2, daemon( "reader" ) );
+        assertTrue( cursor.next() );
+
+        // WHEN
+        cursor.close();
+
+        // THEN
+        verify( source ).close();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.checkpoint;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
+import org.neo4j.logging.NullLog;
+import org.neo4j.scheduler.JobScheduler;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+public class IncrementalCheckPointFlusherTest
+{
+    private static final int PAGE_COUNT = 100;
+    private static final long LOG_ROTATION_THRESHOLD = 1000;
+
+    private final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+    private final TestDirectory directory = TestDirectory.testDirectory( fsRule.get() );
+    private final PageCacheRule pageCacheRule = new PageCacheRule();
+
+    @Rule
+    public final RuleChain ruleChain = RuleChain.outerRule( fsRule ).around( directory ).around( pageCacheRule );
+
+    private final TransactionIdStore transactionIdStore = mock( TransactionIdStore.class );
+    private final CheckPointer checkPointer = mock( CheckPointer.class );
+    private FileSystemAbstraction fs;
+    private File file;
+    private PageCache pageCache;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        fs = fsRule.get();
+        file = directory.file( "a" );
+        pageCache = pageCacheRule.getPageCache( fs );
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize(), CREATE ) )
+        {
+            writePages( pagedFile, 0 );
+        }
+        logPosition( 0, 0 );
+        when( checkPointer.lastCheckPointedTransactionId() ).thenReturn( 1L );
+    }
+
+    @Test
+    public void shouldFlushPagesInProportionToTransactionLogWritten() throws Exception
+    {
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            IncrementalCheckPointFlusher flusher = flusher();
+            assertEquals( 0, flusher.flushStep() );
+            writePages( pagedFile, 1 );
+
+            // when half a check point interval worth of log has been written
+            logPosition( 0, LOG_ROTATION_THRESHOLD / 2 );
+            long swept = 0;
+            for ( int i = 0; i < IncrementalCheckPointFlusher.MIN_STEPS_PER_SWEEP; i++ )
+            {
+                swept += flusher.flushStep();
+            }
+
+            // then half of the pages have been flushed, and no more
+            assertEquals( PAGE_COUNT / 2, swept );
+            for ( int i = 0; i < PAGE_COUNT; i++ )
+            {
+                assertEquals( "Page " + i, i < PAGE_COUNT / 2 ? 1 : 0, pageContentOnDisk( i ) );
+            }
+        }
+    }
+
+    @Test
+    public void shouldLimitEachStepToFractionOfTheSweep() throws Exception
+    {
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            IncrementalCheckPointFlusher flusher = flusher();
+            flusher.flushStep();
+            writePages( pagedFile, 1 );
+
+            // when a lot more log than expected has been written
+            logPosition( 10, 0 );
+
+            // then
+            assertEquals( PAGE_COUNT / IncrementalCheckPointFlusher.MIN_STEPS_PER_SWEEP, flusher.flushStep() );
+        }
+    }
+
+    @Test
+    public void shouldNotFlushAnythingWhenNoTransactionLogHasBeenWritten() throws Exception
+    {
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            IncrementalCheckPointFlusher flusher = flusher();
+            flusher.flushStep();
+            writePages( pagedFile, 1 );
+
+            // then
+            assertEquals( 0, flusher.flushStep() );
+            assertEquals( 0, pageContentOnDisk( 0 ) );
+        }
+    }
+
+    @Test
+    public void shouldRestartSweepAndLearnIntervalWhenCheckPointHappens() throws Exception
+    {
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            IncrementalCheckPointFlusher flusher = flusher();
+            flusher.flushStep();
+
+            // given a check point after a tenth of a log file
+            logPosition( 0, LOG_ROTATION_THRESHOLD / 10 );
+            when( checkPointer.lastCheckPointedTransactionId() ).thenReturn( 2L );
+            assertEquals( 0, flusher.flushStep() );
+            writePages( pagedFile, 1 );
+
+            // when another tenth of a log file has been written
+            logPosition( 0, 2 * LOG_ROTATION_THRESHOLD / 10 );
+            long swept = 0;
+            for ( int i = 0; i < IncrementalCheckPointFlusher.MIN_STEPS_PER_SWEEP; i++ )
+            {
+                swept += flusher.flushStep();
+            }
+
+            // then, that being a full check point interval, all pages have been flushed from the first one
+            assertTrue( "Swept " + swept, swept >= PAGE_COUNT );
+            for ( int i = 0; i < PAGE_COUNT; i++ )
+            {
+                assertEquals( "Page " + i, 1, pageContentOnDisk( i ) );
+            }
+        }
+    }
+
+    private IncrementalCheckPointFlusher flusher()
+    {
+        return new IncrementalCheckPointFlusher( pageCache, transactionIdStore, checkPointer, IOLimiter.unlimited(),
+                mock( JobScheduler.class ), 1000, LOG_ROTATION_THRESHOLD, NullLog.getInstance() );
+    }
+
+    private void logPosition( long logVersion, long byteOffset )
+    {
+        when( transactionIdStore.getLastClosedTransaction() ).thenReturn( new long[]{1, logVersion, byteOffset} );
+    }
+
+    private static void writePages( PagedFile pagedFile, int value ) throws IOException
+    {
+        try ( PageCursor writer = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( int i = 0; i < PAGE_COUNT; i++ )
+            {
+                assertTrue( writer.next( i ) );
+                writer.putInt( value );
+            }
+        }
+    }
+
+    private int pageContentOnDisk( long pageId ) throws IOException
+    {
+        try ( StoreChannel channel = fs.open( file, "r" ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( Integer.BYTES );
+            channel.read( buffer, pageId * pageCache.pageSize() );
+            buffer.flip();
+            return buffer.getInt();
+        }
+    }
+}
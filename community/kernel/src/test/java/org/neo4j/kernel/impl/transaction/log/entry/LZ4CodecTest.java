@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LZ4CodecTest
+{
+    private final LZ4Codec codec = new LZ4Codec();
+    private final Random random = new Random();
+
+    @Test
+    public void shouldRoundTripEmptyData() throws Exception
+    {
+        assertRoundTrip( new byte[0] );
+    }
+
+    @Test
+    public void shouldRoundTripRandomData() throws Exception
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            byte[] data = new byte[random.nextInt( 10_000 )];
+            random.nextBytes( data );
+            assertRoundTrip( data );
+        }
+    }
+
+    @Test
+    public void shouldCompressRepetitiveData() throws Exception
+    {
+        // given
+        byte[] data = new byte[100_000];
+        for ( int i = 0; i < data.length; i++ )
+        {
+            data[i] = (byte) (i % 7 == 0 ? random.nextInt( 4 ) : i % 13);
+        }
+
+        // when
+        int compressedLength = assertRoundTrip( data );
+
+        // then
+        assertTrue( "Compressed into " + compressedLength + " bytes", compressedLength < data.length / 2 );
+    }
+
+    @Test
+    public void shouldRoundTripLongRunsOfSameByte() throws Exception
+    {
+        byte[] data = new byte[70_000];
+        Arrays.fill( data, 0, 20_000, (byte) 1 );
+        for ( int i = 20_000; i < 20_100; i++ )
+        {
+            data[i] = (byte) random.nextInt();
+        }
+        Arrays.fill( data, 20_100, data.length, (byte) 2 );
+        assertRoundTrip( data );
+    }
+
+    @Test
+    public void shouldFailOnTruncatedData() throws Exception
+    {
+        // given
+        byte[] data = new byte[1000];
+        Arrays.fill( data, (byte) 5 );
+        byte[] compressed = new byte[LZ4Codec.maxCompressedLength( data.length )];
+        int compressedLength = codec.compress( data, data.length, compressed );
+
+        try
+        {
+            // when
+            LZ4Codec.decompress( compressed, compressedLength - 1, new byte[data.length], data.length );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // then good
+        }
+    }
+
+    @Test
+    public void shouldFailOnWrongDecompressedLength() throws Exception
+    {
+        // given
+        byte[] data = new byte[1000];
+        random.nextBytes( data );
+        byte[] compressed = new byte[LZ4Codec.maxCompressedLength( data.length )];
+        int compressedLength = codec.compress( data, data.length, compressed );
+
+        try
+        {
+            // when
+            LZ4Codec.decompress( compressed, compressedLength, new byte[data.length + 1], data.length + 1 );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // then good
+        }
+    }
+
+    private int assertRoundTrip( byte[] data ) throws IOException
+    {
+        byte[] compressed = new byte[LZ4Codec.maxCompressedLength( data.length )];
+        int compressedLength = codec.compress( data, data.length, compressed );
+        byte[] decompressed = new byte[data.length];
+        LZ4Codec.decompress( compressed, compressedLength, decompressed, data.length );
+        assertArrayEquals( data, decompressed );
+        return compressedLength;
+    }
+}
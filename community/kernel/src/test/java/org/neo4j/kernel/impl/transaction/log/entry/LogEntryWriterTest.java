@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.command.Command;
+import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
+import org.neo4j.kernel.impl.transaction.log.LogEntryCursor;
+import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.ReadableClosablePositionAwareChannel;
+import org.neo4j.storageengine.api.StorageCommand;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LogEntryWriterTest
+{
+    private final LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader = new VersionAwareLogEntryReader<>();
+
+    @Test
+    public void shouldWriteCommandsInCompressedBlocks() throws Exception
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 10_000_000 );
+        List<StorageCommand> commands = nodeCommands( 50_000 );
+
+        // when
+        new LogEntryWriter( channel, () -> true ).serialize( transaction( commands ) );
+
+        // then
+        int compressedSize = channel.writerPosition();
+        List<LogEntry> entries = readEntries( channel );
+        assertTrue( entries.size() > 1 );
+        for ( LogEntry entry : entries )
+        {
+            assertEquals( LogEntryByteCodes.COMPRESSED_COMMANDS, entry.getType() );
+        }
+        assertEquals( commands, commandsIn( entries ) );
+
+        InMemoryClosableChannel uncompressed = new InMemoryClosableChannel( 10_000_000 );
+        new LogEntryWriter( uncompressed ).serialize( transaction( commands ) );
+        assertTrue( compressedSize < uncompressed.writerPosition() / 2 );
+    }
+
+    @Test
+    public void shouldWriteSmallTransactionsUncompressed() throws Exception
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        List<StorageCommand> commands = nodeCommands( 1 );
+
+        // when
+        new LogEntryWriter( channel, () -> true ).serialize( transaction( commands ) );
+
+        // then
+        List<LogEntry> entries = readEntries( channel );
+        assertEquals( 1, entries.size() );
+        assertEquals( LogEntryByteCodes.COMMAND, entries.get( 0 ).getType() );
+        assertEquals( commands, commandsIn( entries ) );
+    }
+
+    @Test
+    public void shouldExpandCompressedBlocksInLogEntryCursor() throws Exception
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 1_000_000 );
+        List<StorageCommand> commands = nodeCommands( 1_000 );
+        LogEntryWriter writer = new LogEntryWriter( channel, () -> true );
+        writer.writeStartEntry( 1, 2, 3, 4, new byte[0] );
+        writer.serialize( transaction( commands ) );
+        writer.writeCommitEntry( 5, 6 );
+
+        // when
+        List<StorageCommand> read = new ArrayList<>();
+        LogEntryCursor cursor = new LogEntryCursor( logEntryReader, channel );
+        assertTrue( cursor.next() );
+        assertTrue( cursor.get() instanceof LogEntryStart );
+        while ( cursor.next() && cursor.get() instanceof LogEntryCommand )
+        {
+            read.add( cursor.get().<LogEntryCommand>as().getXaCommand() );
+        }
+
+        // then
+        assertTrue( cursor.get() instanceof LogEntryCommit );
+        assertFalse( cursor.next() );
+        assertEquals( commands, read );
+    }
+
+    @Test
+    public void shouldWriteBlocksLargerThanMaxCompressedBlockSizeUncompressed() throws Exception
+    {
+        // given a single command larger than a compressed block may be
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 10_000_000 );
+        DynamicRecord labels = new DynamicRecord( 5 );
+        labels.setInUse( true );
+        labels.setData( new byte[LogEntryWriter.MAX_COMPRESSED_BLOCK_SIZE] );
+        NodeRecord after = new NodeRecord( 1, false, 2, 3 );
+        after.setInUse( true );
+        after.setLabelField( 4, singletonList( labels ) );
+        List<StorageCommand> commands = singletonList( new Command.NodeCommand( new NodeRecord( 1 ), after ) );
+
+        // when
+        new LogEntryWriter( channel, () -> true ).serialize( transaction( commands ) );
+
+        // then
+        List<LogEntry> entries = readEntries( channel );
+        assertEquals( 1, entries.size() );
+        assertEquals( LogEntryByteCodes.COMMAND, entries.get( 0 ).getType() );
+    }
+
+    @Test
+    public void shouldRejectCompressedBlockLargerThanMaxCompressedBlockSize() throws Exception
+    {
+        // given
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        channel.put( LogEntryVersion.CURRENT.byteCode() ).put( LogEntryByteCodes.COMPRESSED_COMMANDS );
+        channel.putInt( LogEntryWriter.MAX_COMPRESSED_BLOCK_SIZE + 1 ).putInt( 10 );
+
+        // when
+        try
+        {
+            logEntryReader.readLogEntry( channel );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // then good
+        }
+    }
+
+    private List<LogEntry> readEntries( InMemoryClosableChannel channel ) throws IOException
+    {
+        List<LogEntry> entries = new ArrayList<>();
+        LogEntry entry;
+        while ( (entry = logEntryReader.readLogEntry( channel )) != null )
+        {
+            entries.add( entry );
+        }
+        return entries;
+    }
+
+    private static List<StorageCommand> commandsIn( List<LogEntry> entries )
+    {
+        List<StorageCommand> commands = new ArrayList<>();
+        for ( LogEntry entry : entries )
+        {
+            if ( entry instanceof LogEntryCompressedCommands )
+            {
+                commands.addAll( entry.<LogEntryCompressedCommands>as().getCommands() );
+            }
+            else
+            {
+                commands.add( entry.<LogEntryCommand>as().getXaCommand() );
+            }
+        }
+        return commands;
+    }
+
+    private static List<StorageCommand> nodeCommands( int count )
+    {
+        List<StorageCommand> commands = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            NodeRecord before = new NodeRecord( i );
+            NodeRecord after = new NodeRecord( i, false, i * 2, i * 3 );
+            after.setInUse( true );
+            commands.add( new Command.NodeCommand( before, after ) );
+        }
+        return commands;
+    }
+
+    private static PhysicalTransactionRepresentation transaction( List<StorageCommand> commands )
+    {
+        PhysicalTransactionRepresentation transaction = new PhysicalTransactionRepresentation( commands );
+        transaction.setHeader( new byte[0], 1, 2, 3, 4, 5, 6 );
+        return transaction;
+    }
+}
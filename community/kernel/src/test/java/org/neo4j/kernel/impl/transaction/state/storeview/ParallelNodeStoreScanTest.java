@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.state.storeview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.neo4j.kernel.api.index.IndexEntryUpdate;
+import org.neo4j.kernel.impl.api.index.MultipleIndexPopulator;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.RecordLoad;
+import org.neo4j.storageengine.api.schema.PopulationProgress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParallelNodeStoreScanTest
+{
+    private static final int NODE_COUNT = 1_000;
+
+    private final LockService locks = mock( LockService.class, RETURNS_MOCKS );
+    private final NodeStore nodeStore = mock( NodeStore.class );
+
+    @Before
+    public void setUp()
+    {
+        when( nodeStore.getHighId() ).thenReturn( (long) NODE_COUNT );
+        when( nodeStore.newRecord() ).thenAnswer( invocation -> new NodeRecord( -1 ) );
+        when( nodeStore.getRecord( anyLong(), any( NodeRecord.class ), any( RecordLoad.class ) ) ).thenAnswer(
+                invocation ->
+                {
+                    NodeRecord record = invocation.getArgumentAt( 1, NodeRecord.class );
+                    record.setId( invocation.getArgumentAt( 0, Long.class ) );
+                    record.setInUse( true );
+                    return record;
+                } );
+    }
+
+    @Test
+    public void shouldVisitAllNodesUsingMultipleWorkers() throws Exception
+    {
+        // GIVEN
+        Set<Long> visited = ConcurrentHashMap.newKeySet();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        NodeStoreScan<IOException> scan = new TestScan( 4, 10 )
+        {
+            @Override
+            public void process( NodeRecord loaded )
+            {
+                assertTrue( visited.add( loaded.getId() ) );
+                threads.add( Thread.currentThread() );
+            }
+        };
+
+        // WHEN
+        scan.run();
+
+        // THEN
+        assertEquals( NODE_COUNT, visited.size() );
+        assertFalse( threads.contains( Thread.currentThread() ) );
+        PopulationProgress progress = scan.getProgress();
+        assertEquals( NODE_COUNT, progress.getCompleted() );
+        assertEquals( NODE_COUNT, progress.getTotal() );
+    }
+
+    @Test
+    public void shouldConsiderNodesScannedOnlyWhenTheirChunkHasReachedThem() throws Exception
+    {
+        // GIVEN
+        NodeStoreScan<IOException> scan = new TestScan( 4, 10 )
+        {
+            @Override
+            public void process( NodeRecord loaded )
+            {
+                long id = loaded.getId();
+                if ( id % 10 == 5 )
+                {
+                    assertTrue( isScanned( id - 1, id ) );
+                    assertFalse( isScanned( id, id ) );
+                    assertFalse( isScanned( id + 1, id ) );
+                    assertFalse( isScanned( NODE_COUNT + 1, id ) );
+                }
+            }
+        };
+
+        // WHEN
+        scan.run();
+
+        // THEN
+        for ( long id = 0; id < NODE_COUNT; id++ )
+        {
+            assertTrue( scan.isScanned( id, 0 ) );
+        }
+    }
+
+    @Test
+    public void shouldScanSingleChunkInCallingThread() throws Exception
+    {
+        // GIVEN
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        NodeStoreScan<IOException> scan = new TestScan( 4, NODE_COUNT )
+        {
+            @Override
+            public void process( NodeRecord loaded )
+            {
+                threads.add( Thread.currentThread() );
+            }
+        };
+
+        // WHEN
+        scan.run();
+
+        // THEN
+        assertEquals( 1, threads.size() );
+        assertTrue( threads.contains( Thread.currentThread() ) );
+    }
+
+    @Test
+    public void shouldPropagateFailureFromScanWorker() throws Exception
+    {
+        // GIVEN
+        IOException failure = new IOException( "Failed to process node" );
+        NodeStoreScan<IOException> scan = new TestScan( 4, 10 )
+        {
+            @Override
+            public void process( NodeRecord loaded ) throws IOException
+            {
+                if ( loaded.getId() == NODE_COUNT / 2 )
+                {
+                    throw failure;
+                }
+            }
+        };
+
+        // WHEN
+        try
+        {
+            scan.run();
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // THEN
+            assertSame( failure, e );
+        }
+    }
+
+    private abstract class TestScan extends NodeStoreScan<IOException>
+    {
+        TestScan( int workers, int chunkSize )
+        {
+            super( ParallelNodeStoreScanTest.this.nodeStore, ParallelNodeStoreScanTest.this.locks, NODE_COUNT, workers,
+                    chunkSize );
+        }
+
+        @Override
+        public void acceptUpdate( MultipleIndexPopulator.MultipleIndexUpdater updater, IndexEntryUpdate<?> update,
+                long currentlyIndexedNodeId )
+        {
+            // no-op
+        }
+    }
+}
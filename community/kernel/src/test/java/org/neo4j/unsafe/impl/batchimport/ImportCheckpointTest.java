@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.logging.NullLogService;
+import org.neo4j.kernel.impl.store.format.standard.Standard;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.unsafe.impl.batchimport.AdditionalInitialIds.EMPTY;
+import static org.neo4j.unsafe.impl.batchimport.Configuration.DEFAULT;
+import static org.neo4j.unsafe.impl.batchimport.ImportCheckpoint.Progress.NODES_IMPORTED;
+import static org.neo4j.unsafe.impl.batchimport.ImportCheckpoint.Progress.RELATIONSHIPS_IMPORTED;
+import static org.neo4j.unsafe.impl.batchimport.ImportCheckpoint.Progress.RELATIONSHIPS_LINKED;
+import static org.neo4j.unsafe.impl.batchimport.ImportCheckpoint.Progress.STARTED;
+
+public class ImportCheckpointTest
+{
+    private final EphemeralFileSystemAbstraction fs = new EphemeralFileSystemAbstraction();
+    private final File storeDir = new File( "dir" ).getAbsoluteFile();
+
+    @After
+    public void closeFileSystem() throws Exception
+    {
+        fs.close();
+    }
+
+    @Test
+    public void shouldRestoreHighIdsOfDataStoresAtCheckpoint() throws Exception
+    {
+        try ( BatchingNeoStores stores = batchingNeoStores() )
+        {
+            // GIVEN
+            stores.getNodeStore().setHighId( 10 );
+            stores.getRelationshipStore().setHighId( 20 );
+            ImportCheckpoint.write( fs, storeDir, NODES_IMPORTED, stores, null );
+            stores.getNodeStore().setHighId( 15 );
+            stores.getRelationshipStore().setHighId( 25 );
+
+            // WHEN
+            ImportCheckpoint checkpoint = ImportCheckpoint.read( fs, storeDir );
+            checkpoint.restoreHighIds( stores );
+
+            // THEN
+            assertTrue( checkpoint.reached( STARTED ) );
+            assertTrue( checkpoint.reached( NODES_IMPORTED ) );
+            assertFalse( checkpoint.reached( RELATIONSHIPS_IMPORTED ) );
+            assertEquals( 10, stores.getNodeStore().getHighId() );
+            assertEquals( 20, stores.getRelationshipStore().getHighId() );
+            assertNull( checkpoint.relationshipTypeDistribution() );
+        }
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void shouldRecordRelationshipTypeDistribution() throws Exception
+    {
+        try ( BatchingNeoStores stores = batchingNeoStores() )
+        {
+            // GIVEN
+            RelationshipTypeDistribution distribution = new RelationshipTypeDistribution( new Map.Entry[] {
+                    new AbstractMap.SimpleEntry<>( "KNOWS", new MutableLong( 100 ) ),
+                    new AbstractMap.SimpleEntry<>( 3, new MutableLong( 10 ) )} );
+
+            // WHEN
+            ImportCheckpoint.write( fs, storeDir, RELATIONSHIPS_IMPORTED, stores, distribution );
+            ImportCheckpoint.write( fs, storeDir, RELATIONSHIPS_LINKED, stores, distribution );
+            ImportCheckpoint checkpoint = ImportCheckpoint.read( fs, storeDir );
+
+            // THEN
+            assertEquals( RELATIONSHIPS_LINKED, checkpoint.progress() );
+            assertEquals( 2, checkpoint.relationshipTypeDistribution().getNumberOfRelationshipTypes() );
+            Iterator<Map.Entry<Object,MutableLong>> types = checkpoint.relationshipTypeDistribution().iterator();
+            Map.Entry<Object,MutableLong> type = types.next();
+            assertEquals( "KNOWS", type.getKey() );
+            assertEquals( 100, type.getValue().longValue() );
+            type = types.next();
+            assertEquals( 3, type.getKey() );
+            assertEquals( 10, type.getValue().longValue() );
+        }
+    }
+
+    @Test
+    public void shouldRemoveCheckpoint() throws Exception
+    {
+        try ( BatchingNeoStores stores = batchingNeoStores() )
+        {
+            // GIVEN
+            assertFalse( ImportCheckpoint.exists( fs, storeDir ) );
+            ImportCheckpoint.write( fs, storeDir, STARTED, stores, null );
+            assertTrue( ImportCheckpoint.exists( fs, storeDir ) );
+
+            // WHEN
+            ImportCheckpoint.remove( fs, storeDir );
+
+            // THEN
+            assertFalse( ImportCheckpoint.exists( fs, storeDir ) );
+        }
+    }
+
+    private BatchingNeoStores batchingNeoStores()
+    {
+        return BatchingNeoStores.batchingNeoStores( fs, storeDir, Standard.LATEST_RECORD_FORMATS, DEFAULT,
+                NullLogService.getInstance(), EMPTY, Config.defaults() );
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.kernel.api.labelscan.LabelScanStore;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.string.HashingIdMapper;
+import org.neo4j.unsafe.impl.batchimport.input.InputCache;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.staging.ExecutionMonitor;
+import org.neo4j.unsafe.impl.batchimport.staging.StageExecution;
+import org.neo4j.unsafe.impl.batchimport.staging.Step;
+import org.neo4j.unsafe.impl.batchimport.stats.StatsProvider;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
+import org.neo4j.unsafe.impl.batchimport.store.io.IoMonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerators.startingFromTheBeginning;
+import static org.neo4j.unsafe.impl.batchimport.input.Group.GLOBAL;
+import static org.neo4j.unsafe.impl.batchimport.input.InputEntity.NO_LABELS;
+import static org.neo4j.unsafe.impl.batchimport.input.InputEntity.NO_PROPERTIES;
+import static org.neo4j.unsafe.impl.batchimport.input.SimpleInputIteratorWrapper.wrap;
+import static org.neo4j.unsafe.impl.batchimport.staging.ExecutionSupervisors.superviseExecution;
+
+public class NodeStageTest
+{
+    private static final int NODE_COUNT = 10_000;
+
+    private final Configuration config = new Configuration()
+    {
+        @Override
+        public int batchSize()
+        {
+            return 100;
+        }
+
+        @Override
+        public int maxNumberOfProcessors()
+        {
+            return 4;
+        }
+    };
+
+    @Test
+    public void shouldPutInputIdsUsingMultipleProcessorsIfIdMapperSupportsConcurrentPut() throws Exception
+    {
+        // GIVEN
+        IdMapper idMapper = new HashingIdMapper( NumberArrayFactory.HEAP );
+        NodeStage stage = new NodeStage( config, mock( IoMonitor.class ), nodes(), idMapper,
+                startingFromTheBeginning(), mock( BatchingNeoStores.class, RETURNS_DEEP_STUBS ),
+                mock( InputCache.class ), mock( LabelScanStore.class, RETURNS_DEEP_STUBS ),
+                mock( EntityStoreUpdaterStep.Monitor.class ), mock( StatsProvider.class ) );
+        AtomicInteger idMapperProcessors = new AtomicInteger();
+
+        // WHEN
+        superviseExecution( new ExecutionMonitor.Adapter( 10, TimeUnit.MILLISECONDS )
+        {
+            @Override
+            public void start( StageExecution execution )
+            {
+                for ( Step<?> step : execution.steps() )
+                {
+                    if ( step instanceof NodeIdMapperStep )
+                    {
+                        idMapperProcessors.set( step.processors( 2 ) );
+                    }
+                }
+            }
+
+            @Override
+            public void check( StageExecution execution )
+            {   // Nothing to check
+            }
+        }, config, stage );
+
+        // THEN
+        assertTrue( "Expected more than one processor, was " + idMapperProcessors.get(),
+                idMapperProcessors.get() > 1 );
+        for ( int i = 0; i < NODE_COUNT; i++ )
+        {
+            assertEquals( i, idMapper.get( "node" + i, GLOBAL ) );
+        }
+    }
+
+    private static InputIterable<InputNode> nodes()
+    {
+        List<InputNode> nodes = new ArrayList<>();
+        for ( int i = 0; i < NODE_COUNT; i++ )
+        {
+            nodes.add( new InputNode( "source", i, i, "node" + i, NO_PROPERTIES, null, NO_LABELS, null ) );
+        }
+        return wrap( "source", nodes );
+    }
+}
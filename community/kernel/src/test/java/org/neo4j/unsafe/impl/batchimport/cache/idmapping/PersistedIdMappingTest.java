@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache.idmapping;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.helpers.progress.ProgressListener.NONE;
+import static org.neo4j.unsafe.impl.batchimport.input.Collectors.silentBadCollector;
+
+public class PersistedIdMappingTest
+{
+    private final EphemeralFileSystemAbstraction fs = new EphemeralFileSystemAbstraction();
+    private final File storeDir = new File( "store" );
+
+    @After
+    public void closeFileSystem() throws Exception
+    {
+        fs.close();
+    }
+
+    @Test
+    public void shouldLoadPersistedIdsMappedToNodeIdsOfEarlierImport() throws Exception
+    {
+        // GIVEN
+        Group persons = new Group.Adapter( 0, "Persons" );
+        Group companies = new Group.Adapter( 1, "Companies" );
+        assertFalse( PersistedIdMapping.exists( fs, storeDir ) );
+        IdMapper mapper = PersistedIdMapping.persisting(
+                IdMappers.withNodeIdOffset( IdMappers.longs( NumberArrayFactory.HEAP ), 100 ), fs, storeDir );
+        mapper.put( 10L, 100, persons );
+        mapper.put( 11L, 101, persons );
+        mapper.put( 10L, 102, companies );
+        mapper.prepare( null, silentBadCollector( 0 ), NONE );
+        mapper.close();
+
+        // WHEN
+        assertTrue( PersistedIdMapping.exists( fs, storeDir ) );
+        IdMapper loaded = PersistedIdMapping.load( fs, storeDir, () -> IdMappers.longs( NumberArrayFactory.HEAP ),
+                NumberArrayFactory.HEAP, nodeId -> nodeId != 101 );
+
+        // THEN
+        assertEquals( 100, loaded.get( 10L, new Group.Adapter( 5, "Persons" ) ) );
+        assertEquals( 102, loaded.get( 10L, new Group.Adapter( 0, "Companies" ) ) );
+        assertEquals( IdMapper.ID_NOT_FOUND, loaded.get( 11L, persons ) );
+        assertEquals( IdMapper.ID_NOT_FOUND, loaded.get( 12L, persons ) );
+        assertEquals( IdMapper.ID_NOT_FOUND, loaded.get( 10L, new Group.Adapter( 2, "Products" ) ) );
+        loaded.close();
+    }
+
+    @Test
+    public void shouldLookUpInFallbackOnlyIdsNotFoundInPrimary() throws Exception
+    {
+        // GIVEN
+        IdMapper primary = IdMappers.withNodeIdOffset( IdMappers.longs( NumberArrayFactory.HEAP ), 50 );
+        IdMapper fallback = IdMappers.withNodeIdOffset( IdMappers.longs( NumberArrayFactory.HEAP ), 10 );
+        primary.put( 1L, 50, Group.GLOBAL );
+        fallback.put( 1L, 10, Group.GLOBAL );
+        fallback.put( 2L, 11, Group.GLOBAL );
+        primary.prepare( null, silentBadCollector( 0 ), NONE );
+        fallback.prepare( null, silentBadCollector( 0 ), NONE );
+
+        // WHEN
+        IdMapper mapper = IdMappers.withFallback( primary, fallback );
+
+        // THEN
+        assertEquals( 50, mapper.get( 1L, Group.GLOBAL ) );
+        assertEquals( 11, mapper.get( 2L, Group.GLOBAL ) );
+        assertEquals( IdMapper.ID_NOT_FOUND, mapper.get( 3L, Group.GLOBAL ) );
+        mapper.close();
+    }
+}
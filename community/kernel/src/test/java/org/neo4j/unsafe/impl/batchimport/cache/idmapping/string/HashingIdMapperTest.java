@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.input.BadCollector;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.neo4j.helpers.progress.ProgressListener.NONE;
+import static org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper.ID_NOT_FOUND;
+import static org.neo4j.unsafe.impl.batchimport.input.Collectors.silentBadCollector;
+import static org.neo4j.unsafe.impl.batchimport.input.Group.GLOBAL;
+
+public class HashingIdMapperTest
+{
+    @Test
+    public void shouldGetPutIdsAfterGrowingSegments() throws Exception
+    {
+        // GIVEN
+        IdMapper mapper = new HashingIdMapper( NumberArrayFactory.OFF_HEAP, 2, 4, 64 );
+        int count = 10_000;
+
+        // WHEN
+        for ( int i = 0; i < count; i++ )
+        {
+            mapper.put( "id-" + i, i, GLOBAL );
+        }
+        mapper.prepare( null, silentBadCollector( 0 ), NONE );
+
+        // THEN
+        for ( int i = 0; i < count; i++ )
+        {
+            assertEquals( i, mapper.get( "id-" + i, GLOBAL ) );
+        }
+        assertEquals( ID_NOT_FOUND, mapper.get( "id-" + count, GLOBAL ) );
+        mapper.close();
+    }
+
+    @Test
+    public void shouldKeepSameInputIdsInDifferentGroupsApart() throws Exception
+    {
+        // GIVEN
+        Group persons = new Group.Adapter( 1, "Persons" );
+        Group companies = new Group.Adapter( 2, "Companies" );
+        IdMapper mapper = new HashingIdMapper( NumberArrayFactory.HEAP, 1, 2, 16 );
+
+        // WHEN
+        mapper.put( "neo", 0, persons );
+        mapper.put( "neo", 1, companies );
+        mapper.put( "", 2, persons );
+        Collector collector = silentBadCollector( 0 );
+        mapper.prepare( null, collector, NONE );
+
+        // THEN
+        assertEquals( 0, mapper.get( "neo", persons ) );
+        assertEquals( 1, mapper.get( "neo", companies ) );
+        assertEquals( 2, mapper.get( "", persons ) );
+        assertEquals( ID_NOT_FOUND, mapper.get( "", companies ) );
+        assertEquals( 0, collector.badEntries() );
+        mapper.close();
+    }
+
+    @Test
+    public void shouldReportAllButTheLowestNodeIdOfDuplicateInputIds() throws Exception
+    {
+        // GIVEN
+        IdMapper mapper = new HashingIdMapper( NumberArrayFactory.HEAP );
+        mapper.put( "a", 5, GLOBAL );
+        mapper.put( "b", 6, GLOBAL );
+        mapper.put( "a", 3, GLOBAL );
+        mapper.put( "a", 7, GLOBAL );
+
+        // WHEN
+        Collector collector = silentBadCollector( BadCollector.UNLIMITED_TOLERANCE, BadCollector.COLLECT_ALL );
+        mapper.prepare( null, collector, NONE );
+
+        // THEN
+        assertEquals( 3, mapper.get( "a", GLOBAL ) );
+        assertEquals( 6, mapper.get( "b", GLOBAL ) );
+        PrimitiveLongIterator duplicates = collector.leftOverDuplicateNodesIds();
+        assertEquals( 5, duplicates.next() );
+        assertEquals( 7, duplicates.next() );
+        assertFalse( duplicates.hasNext() );
+        mapper.close();
+    }
+
+    @Test
+    public void shouldGetIdsPutConcurrently() throws Exception
+    {
+        // GIVEN
+        IdMapper mapper = new HashingIdMapper( NumberArrayFactory.OFF_HEAP, 3, 8, 128 );
+        int threads = 4;
+        int idsPerThread = 20_000;
+        List<Thread> putters = new ArrayList<>();
+        for ( int t = 0; t < threads; t++ )
+        {
+            int first = t * idsPerThread;
+            putters.add( new Thread( () ->
+            {
+                for ( int i = first; i < first + idsPerThread; i++ )
+                {
+                    mapper.put( String.valueOf( i ), i, GLOBAL );
+                }
+            } ) );
+        }
+
+        // WHEN
+        for ( Thread putter : putters )
+        {
+            putter.start();
+        }
+        for ( Thread putter : putters )
+        {
+            putter.join();
+        }
+        Collector collector = silentBadCollector( 0 );
+        mapper.prepare( null, collector, NONE );
+
+        // THEN
+        for ( int i = 0; i < threads * idsPerThread; i++ )
+        {
+            assertEquals( i, mapper.get( String.valueOf( i ), GLOBAL ) );
+        }
+        assertEquals( 0, collector.badEntries() );
+        mapper.close();
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.binary;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.unsafe.impl.batchimport.InputIterator;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+import org.neo4j.unsafe.impl.batchimport.input.HeaderException;
+import org.neo4j.unsafe.impl.batchimport.input.Input;
+import org.neo4j.unsafe.impl.batchimport.input.InputException;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
+import org.neo4j.unsafe.impl.batchimport.input.csv.IdType;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.unsafe.impl.batchimport.input.Collectors.silentBadCollector;
+import static org.neo4j.unsafe.impl.batchimport.input.InputEntityDecorators.NO_NODE_DECORATOR;
+import static org.neo4j.unsafe.impl.batchimport.input.InputEntityDecorators.additiveLabels;
+import static org.neo4j.unsafe.impl.batchimport.input.InputEntityDecorators.defaultRelationshipType;
+
+public class BinaryInputTest
+{
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory();
+
+    @Test
+    public void shouldReadNodesWrittenInMultipleChunks() throws Exception
+    {
+        // GIVEN
+        File file = write( "nodes", Schema.nodes( Column.id( ColumnType.STRING, "Persons" ), Column.labels(),
+                Column.property( "name", ColumnType.STRING ), Column.property( "scores", ColumnType.LONG_ARRAY ) ),
+                new Object[] {"p0", new String[] {"Person"}, "Alice", new long[] {1, 2}},
+                new Object[] {"p1", null, "Bob", null},
+                new Object[] {"p2", new String[] {"Person", "Admin"}, null, new long[0]} );
+        Input input = new BinaryInput( BinaryData.data( additiveLabels( new String[] {"User"} ), file ),
+                emptyList(), IdType.STRING, silentBadCollector( 0 ) );
+
+        // WHEN
+        try ( InputIterator<InputNode> nodes = input.nodes().iterator() )
+        {
+            // THEN
+            InputNode node = nodes.next();
+            assertEquals( "p0", node.id() );
+            assertEquals( "Persons", node.group().name() );
+            assertArrayEquals( new String[] {"Person", "User"}, node.labels() );
+            assertEquals( "Alice", node.properties()[1] );
+            assertArrayEquals( new long[] {1, 2}, (long[]) node.properties()[3] );
+            assertEquals( file.getPath(), nodes.sourceDescription() );
+            assertEquals( 1, nodes.lineNumber() );
+
+            node = nodes.next();
+            assertEquals( "p1", node.id() );
+            assertArrayEquals( new String[] {"User"}, node.labels() );
+            assertArrayEquals( new Object[] {"name", "Bob"}, node.properties() );
+
+            node = nodes.next();
+            assertEquals( "p2", node.id() );
+            assertArrayEquals( new String[] {"Person", "Admin", "User"}, node.labels() );
+            assertEquals( "scores", node.properties()[0] );
+            assertEquals( 3, nodes.lineNumber() );
+            assertFalse( nodes.hasNext() );
+        }
+    }
+
+    @Test
+    public void shouldReadRelationshipsFromMultipleFiles() throws Exception
+    {
+        // GIVEN
+        Schema schema = Schema.relationships( Column.startId( ColumnType.LONG, null ),
+                Column.endId( ColumnType.LONG, null ), Column.relationshipType(),
+                Column.property( "weight", ColumnType.DOUBLE ) );
+        File first = write( "first", schema, new Object[] {0L, 1L, "KNOWS", 0.5d} );
+        File second = write( "second", schema, new Object[] {1L, 2L, null, null} );
+        Input input = new BinaryInput( emptyList(),
+                BinaryData.data( defaultRelationshipType( "LIKES" ), first, second ),
+                IdType.ACTUAL, silentBadCollector( 0 ) );
+
+        // WHEN
+        try ( InputIterator<InputRelationship> relationships = input.relationships().iterator() )
+        {
+            // THEN
+            InputRelationship relationship = relationships.next();
+            assertEquals( 0L, relationship.startNode() );
+            assertEquals( 1L, relationship.endNode() );
+            assertEquals( Group.GLOBAL, relationship.startNodeGroup() );
+            assertEquals( "KNOWS", relationship.type() );
+            assertArrayEquals( new Object[] {"weight", 0.5d}, relationship.properties() );
+
+            relationship = relationships.next();
+            assertEquals( 1L, relationship.startNode() );
+            assertEquals( 2L, relationship.endNode() );
+            assertEquals( "LIKES", relationship.type() );
+            assertEquals( 0, relationship.properties().length );
+            assertEquals( second.getPath(), relationships.sourceDescription() );
+            assertFalse( relationships.hasNext() );
+        }
+    }
+
+    @Test
+    public void shouldReadAllColumnTypes() throws Exception
+    {
+        // GIVEN
+        ColumnType[] types = ColumnType.values();
+        Column[] columns = new Column[types.length];
+        for ( int i = 0; i < types.length; i++ )
+        {
+            columns[i] = Column.property( types[i].name(), types[i] );
+        }
+        Object[] values = {true, (byte) 1, (short) 2, 'c', 3, 4L, 5.5f, 6.5d, "seven", new int[] {8},
+                new long[] {9}, new double[] {10.5}, new String[] {"eleven", "twelve"}};
+        File file = write( "types", Schema.nodes( columns ), values );
+        Input input = new BinaryInput( BinaryData.data( NO_NODE_DECORATOR, file ), emptyList(), IdType.STRING,
+                silentBadCollector( 0 ) );
+
+        // WHEN
+        try ( InputIterator<InputNode> nodes = input.nodes().iterator() )
+        {
+            InputNode node = nodes.next();
+
+            // THEN
+            assertNull( node.id() );
+            Object[] properties = node.properties();
+            for ( int i = 0; i < 9; i++ )
+            {
+                assertEquals( types[i].name(), properties[i * 2] );
+                assertEquals( values[i], properties[i * 2 + 1] );
+            }
+            assertArrayEquals( new int[] {8}, (int[]) properties[19] );
+            assertArrayEquals( new long[] {9}, (long[]) properties[21] );
+            assertArrayEquals( new double[] {10.5}, (double[]) properties[23], 0d );
+            assertArrayEquals( new String[] {"eleven", "twelve"}, (String[]) properties[25] );
+        }
+    }
+
+    @Test
+    public void shouldNotReadRelationshipsAsNodes() throws Exception
+    {
+        // GIVEN
+        File file = write( "relationships", Schema.relationships( Column.startId( ColumnType.STRING, null ),
+                Column.endId( ColumnType.STRING, null ) ), new Object[] {"a", "b"} );
+        Input input = new BinaryInput( BinaryData.data( NO_NODE_DECORATOR, file ), emptyList(), IdType.STRING,
+                silentBadCollector( 0 ) );
+
+        // WHEN
+        try ( InputIterator<InputNode> nodes = input.nodes().iterator() )
+        {
+            nodes.next();
+            fail( "Should have failed" );
+        }
+        catch ( HeaderException e )
+        {
+            // THEN good
+        }
+    }
+
+    @Test
+    public void shouldNotAcceptIdColumnNotMatchingIdType() throws Exception
+    {
+        // GIVEN
+        File file = write( "nodes", Schema.nodes( Column.id( ColumnType.LONG, null ) ), new Object[] {1L} );
+        Input input = new BinaryInput( BinaryData.data( NO_NODE_DECORATOR, file ), emptyList(), IdType.STRING,
+                silentBadCollector( 0 ) );
+
+        // WHEN
+        try ( InputIterator<InputNode> nodes = input.nodes().iterator() )
+        {
+            nodes.next();
+            fail( "Should have failed" );
+        }
+        catch ( HeaderException e )
+        {
+            // THEN good
+        }
+    }
+
+    @Test
+    public void shouldFailOnColumnLargerThanItsChunk() throws Exception
+    {
+        // GIVEN a single row, single column chunk ending with column size, bitmap, array length and element
+        File file = write( "nodes", Schema.nodes( Column.property( "scores", ColumnType.LONG_ARRAY ) ),
+                new Object[] {new long[] {1}} );
+        overwriteInt( file, file.length() - Long.BYTES - Integer.BYTES - Byte.BYTES - Integer.BYTES, 1_000 );
+
+        // WHEN/THEN
+        assertFailsReading( file, "Invalid chunk in " + file );
+    }
+
+    @Test
+    public void shouldFailOnArrayLongerThanItsColumn() throws Exception
+    {
+        // GIVEN a single row, single column chunk ending with array length and element
+        File file = write( "nodes", Schema.nodes( Column.property( "scores", ColumnType.LONG_ARRAY ) ),
+                new Object[] {new long[] {1}} );
+        overwriteInt( file, file.length() - Long.BYTES - Integer.BYTES, Integer.MAX_VALUE );
+
+        // WHEN/THEN
+        assertFailsReading( file, "Invalid value in column 0 of row 1 in chunk of " + file );
+    }
+
+    private void assertFailsReading( File file, String expectedMessage ) throws Exception
+    {
+        Input input = new BinaryInput( BinaryData.data( NO_NODE_DECORATOR, file ), emptyList(), IdType.STRING,
+                silentBadCollector( 0 ) );
+        try ( InputIterator<InputNode> nodes = input.nodes().iterator() )
+        {
+            nodes.next();
+            fail( "Should have failed" );
+        }
+        catch ( InputException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().startsWith( expectedMessage ) );
+        }
+    }
+
+    private static void overwriteInt( File file, long position, int value ) throws IOException
+    {
+        try ( RandomAccessFile channel = new RandomAccessFile( file, "rw" ) )
+        {
+            channel.seek( position );
+            channel.writeInt( value );
+        }
+    }
+
+    private File write( String name, Schema schema, Object[]... rows ) throws IOException
+    {
+        File file = directory.file( name );
+        try ( BinaryInputWriter writer = new BinaryInputWriter( new FileOutputStream( file ), schema, 2 ) )
+        {
+            for ( Object[] row : rows )
+            {
+                writer.add( row );
+            }
+        }
+        return file;
+    }
+}
@@ -26,8 +26,12 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Set;
 
@@ -50,6 +54,7 @@ import org.neo4j.unsafe.impl.batchimport.input.InputNode;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 
 import static java.lang.Runtime.getRuntime;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertArrayEquals;
@@ -75,6 +80,7 @@ import static org.neo4j.unsafe.impl.batchimport.input.InputEntityDecorators.defa
 import static org.neo4j.unsafe.impl.batchimport.input.csv.Configuration.COMMAS;
 import static org.neo4j.unsafe.impl.batchimport.input.csv.DataFactories.defaultFormatNodeFileHeader;
 import static org.neo4j.unsafe.impl.batchimport.input.csv.DataFactories.defaultFormatRelationshipFileHeader;
+import static org.neo4j.unsafe.impl.batchimport.input.csv.DataFactories.nodeData;
 import static org.neo4j.unsafe.impl.batchimport.input.csv.DataFactories.relationshipData;
 
 @RunWith( Parameterized.class )
@@ -872,6 +878,44 @@ public class CsvInputTest
         }
     }
 
+    @Test
+    public void shouldReadFileSplitIntoManyChunks() throws Exception
+    {
+        // GIVEN a file which is many times bigger than the buffer size
+        File file = directory.file( "nodes.csv" );
+        String separator = allowMultilineFields ? "\n" : " ";
+        int nodeCount = 1_000;
+        try ( Writer writer = new OutputStreamWriter( new FileOutputStream( file ), UTF_8 ) )
+        {
+            writer.write( ":ID,name\n" );
+            for ( int i = 0; i < nodeCount; i++ )
+            {
+                writer.write( i + ",\"name" + separator + i + "\"\n" );
+            }
+        }
+        Configuration config = new Configuration.Overridden( config( COMMAS ) )
+        {
+            @Override
+            public int bufferSize()
+            {
+                return 1_000;
+            }
+        };
+        Input input = new CsvInput( nodeData( DataFactories.data( InputEntityDecorators.NO_NODE_DECORATOR, UTF_8,
+                file ) ), defaultFormatNodeFileHeader(), null, null, IdType.INTEGER, config, silentBadCollector( 0 ),
+                4, true );
+
+        // WHEN/THEN
+        try ( InputIterator<InputNode> nodes = input.nodes().iterator() )
+        {
+            for ( int i = 0; i < nodeCount; i++ )
+            {
+                assertNode( nodes.next(), (long) i, properties( "name", "name" + separator + i ), labels() );
+            }
+            assertFalse( nodes.hasNext() );
+        }
+    }
+
     private Configuration customConfig( final char delimiter, final char arrayDelimiter, final char quote )
     {
         return config( new Configuration.Default()
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.consistency.ConsistencyCheckService;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.helpers.collection.Iterables;
+import org.neo4j.helpers.progress.ProgressMonitorFactory;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.impl.muninn.StandalonePageCacheFactory;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.api.index.IndexDirectoryStructure;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.impl.logging.NullLogService;
+import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
+import org.neo4j.kernel.impl.store.MetaDataStore;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.format.standard.Standard;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.logging.NullLogProvider;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.test.rule.fs.DefaultFileSystemRule;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
+import org.neo4j.unsafe.impl.batchimport.input.Inputs;
+import org.neo4j.unsafe.impl.batchimport.staging.ExecutionMonitors;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.kernel.api.ReadOperations.ANY_LABEL;
+import static org.neo4j.kernel.impl.store.MetaDataStore.Position.LAST_TRANSACTION_ID;
+import static org.neo4j.kernel.impl.store.MetaDataStore.Position.LOG_VERSION;
+import static org.neo4j.kernel.impl.store.record.RecordLoad.NORMAL;
+import static org.neo4j.unsafe.impl.batchimport.AdditionalInitialIds.EMPTY;
+import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO_WITHOUT_PAGECACHE;
+import static org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerators.startingFromTheBeginning;
+import static org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMappers.strings;
+import static org.neo4j.unsafe.impl.batchimport.input.Collectors.silentBadCollector;
+import static org.neo4j.unsafe.impl.batchimport.input.InputEntity.NO_PROPERTIES;
+import static org.neo4j.unsafe.impl.batchimport.input.SimpleInputIteratorWrapper.wrap;
+
+/**
+ * Imports into a store, then imports into it again with {@link Configuration#incrementalImport()}, starting a
+ * database on it in between, like a user would.
+ */
+public class IncrementalImportTest
+{
+    private static final int DENSE_NODE_THRESHOLD = 10;
+    private static final Label PERSON = Label.label( "Person" );
+    private static final Label CUSTOMER = Label.label( "Customer" );
+    private static final RelationshipType KNOWS = RelationshipType.withName( "KNOWS" );
+    private static final RelationshipType LIKES = RelationshipType.withName( "LIKES" );
+    private static final RelationshipType BOUGHT = RelationshipType.withName( "BOUGHT" );
+    private static final RelationshipType FOLLOWS = RelationshipType.withName( "FOLLOWS" );
+
+    private final TestDirectory directory = TestDirectory.testDirectory();
+    private final DefaultFileSystemRule fileSystemRule = new DefaultFileSystemRule();
+
+    @Rule
+    public final RuleChain ruleChain = RuleChain.outerRule( directory ).around( fileSystemRule );
+
+    private final List<InputNode> nodes = new ArrayList<>();
+    private final List<InputRelationship> relationships = new ArrayList<>();
+
+    @Test
+    public void shouldAppendToExistingStoreAndKeepItConsistent() throws Exception
+    {
+        // GIVEN a store with 20 persons, where p0 is dense and the others not
+        File storeDir = directory.graphDbDir();
+        for ( int i = 0; i < 20; i++ )
+        {
+            node( "p" + i, PERSON );
+        }
+        for ( int i = 1; i <= 15; i++ )
+        {
+            relationship( "p0", KNOWS, "p" + i );
+        }
+        relationship( "p1", KNOWS, "p2" );
+        relationship( "p1", KNOWS, "p3" );
+        for ( int i = 4; i <= 8; i++ )
+        {
+            relationship( "p2", LIKES, "p" + i );
+        }
+        importData( storeDir, false );
+        createIndex( storeDir );
+        long lastTransactionId = metaDataRecord( storeDir, LAST_TRANSACTION_ID );
+        long logVersion = metaDataRecord( storeDir, LOG_VERSION );
+
+        // WHEN importing 10 customers with relationships to new and existing nodes
+        for ( int i = 0; i < 10; i++ )
+        {
+            node( "c" + i, PERSON, CUSTOMER );
+        }
+        for ( int i = 0; i < 5; i++ )
+        {
+            // p2 had 7 relationships, gets 12 and so becomes dense
+            relationship( "c" + i, BOUGHT, "p2" );
+        }
+        // into the chain of sparse p5
+        relationship( "c0", KNOWS, "p5" );
+        for ( int i = 0; i < 10; i++ )
+        {
+            // into the KNOWS group of dense p0
+            relationship( "c" + i, KNOWS, "p0" );
+        }
+        // a new group of dense p0
+        relationship( "c0", BOUGHT, "p0" );
+        // between new nodes, of a new type
+        relationship( "c0", FOLLOWS, "c1" );
+        importData( storeDir, true );
+
+        // THEN the import is recorded as a transaction in a new log version
+        assertEquals( lastTransactionId + 1, metaDataRecord( storeDir, LAST_TRANSACTION_ID ) );
+        assertEquals( logVersion + 1, metaDataRecord( storeDir, LOG_VERSION ) );
+        // and schema indexes are left for the database to rebuild
+        assertFalse( fileSystemRule.get().fileExists( IndexDirectoryStructure.baseSchemaIndexFolder( storeDir ) ) );
+
+        GraphDatabaseAPI db = startDatabase( storeDir );
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.schema().awaitIndexesOnline( 1, TimeUnit.MINUTES );
+
+            // the rebuilt index contains the new nodes
+            Node c3 = db.findNode( PERSON, "id", "c3" );
+            assertNotNull( c3 );
+            assertTrue( c3.hasLabel( CUSTOMER ) );
+
+            // new relationships are linked into the chains of existing nodes
+            Node p0 = db.findNode( PERSON, "id", "p0" );
+            Node p2 = db.findNode( PERSON, "id", "p2" );
+            Node p5 = db.findNode( PERSON, "id", "p5" );
+            assertEquals( 26, p0.getDegree() );
+            assertEquals( 10, p0.getDegree( KNOWS, Direction.INCOMING ) );
+            assertEquals( 1, p0.getDegree( BOUGHT ) );
+            assertEquals( 12, p2.getDegree() );
+            assertEquals( 5, p2.getDegree( BOUGHT, Direction.INCOMING ) );
+            assertEquals( 5, p2.getDegree( LIKES, Direction.OUTGOING ) );
+            assertEquals( 3, p5.getDegree() );
+            assertEquals( 1, db.findNode( PERSON, "id", "c1" ).getDegree( FOLLOWS ) );
+
+            // and nodes passing the dense node threshold are converted to dense
+            assertTrue( isDense( db, p2 ) );
+            assertFalse( isDense( db, p5 ) );
+
+            // the counts store has counts of both imports
+            try ( Statement statement = db.getDependencyResolver()
+                    .resolveDependency( ThreadToStatementContextBridge.class ).get() )
+            {
+                ReadOperations read = statement.readOperations();
+                assertEquals( 30, read.countsForNode( ANY_LABEL ) );
+                assertEquals( 30, read.countsForNode( read.labelGetForName( PERSON.name() ) ) );
+                assertEquals( 10, read.countsForNode( read.labelGetForName( CUSTOMER.name() ) ) );
+                assertEquals( 40, read.countsForRelationship( ANY_LABEL, ReadOperations.ANY_RELATIONSHIP_TYPE,
+                        ANY_LABEL ) );
+                assertEquals( 28, read.countsForRelationship( ANY_LABEL,
+                        read.relationshipTypeGetForName( KNOWS.name() ), ANY_LABEL ) );
+                assertEquals( 6, read.countsForRelationship( read.labelGetForName( CUSTOMER.name() ),
+                        read.relationshipTypeGetForName( BOUGHT.name() ), ANY_LABEL ) );
+            }
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        assertConsistent( storeDir );
+    }
+
+    @Test
+    public void shouldRefuseToImportIntoStoreWithUniquenessConstraints() throws Exception
+    {
+        // GIVEN
+        File storeDir = directory.graphDbDir();
+        node( "p0", PERSON );
+        importData( storeDir, false );
+        GraphDatabaseService db = startDatabase( storeDir );
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.schema().constraintFor( PERSON ).assertPropertyIsUnique( "id" ).create();
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+
+        // WHEN
+        node( "p1", PERSON );
+        try
+        {
+            importData( storeDir, true );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // THEN
+            assertThat( e.getMessage(), containsString( "uniqueness constraints" ) );
+        }
+        db = startDatabase( storeDir );
+        try ( Transaction tx = db.beginTx() )
+        {
+            assertEquals( 1, Iterables.count( db.getAllNodes() ) );
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private void node( String id, Label... labels )
+    {
+        String[] labelNames = new String[labels.length];
+        for ( int i = 0; i < labels.length; i++ )
+        {
+            labelNames[i] = labels[i].name();
+        }
+        nodes.add( new InputNode( "nodes", nodes.size(), nodes.size(), id, new Object[]{"id", id}, null,
+                labelNames, null ) );
+    }
+
+    private void relationship( String startNode, RelationshipType type, String endNode )
+    {
+        relationships.add( new InputRelationship( "relationships", relationships.size(), relationships.size(),
+                NO_PROPERTIES, null, startNode, endNode, type.name(), null ) );
+    }
+
+    /**
+     * Imports the nodes and relationships added since the last import.
+     */
+    private void importData( File storeDir, boolean incremental ) throws IOException
+    {
+        Configuration config = new Configuration()
+        {
+            @Override
+            public int denseNodeThreshold()
+            {
+                return DENSE_NODE_THRESHOLD;
+            }
+
+            @Override
+            public boolean incrementalImport()
+            {
+                return incremental;
+            }
+
+            @Override
+            public boolean keepIdMapping()
+            {
+                return true;
+            }
+        };
+        BatchImporter importer = new ParallelBatchImporter( storeDir, fileSystemRule.get(), null, config,
+                NullLogService.getInstance(), ExecutionMonitors.invisible(), EMPTY, Config.defaults(),
+                Standard.LATEST_RECORD_FORMATS );
+        try
+        {
+            importer.doImport( Inputs.input( wrap( "nodes", new ArrayList<>( nodes ) ),
+                    wrap( "relationships", new ArrayList<>( relationships ) ), strings( AUTO_WITHOUT_PAGECACHE ),
+                    startingFromTheBeginning(), silentBadCollector( 0 ) ) );
+        }
+        finally
+        {
+            nodes.clear();
+            relationships.clear();
+        }
+    }
+
+    private void createIndex( File storeDir )
+    {
+        GraphDatabaseService db = startDatabase( storeDir );
+        try
+        {
+            try ( Transaction tx = db.beginTx() )
+            {
+                db.schema().indexFor( PERSON ).on( "id" ).create();
+                tx.success();
+            }
+            try ( Transaction tx = db.beginTx() )
+            {
+                db.schema().awaitIndexesOnline( 1, TimeUnit.MINUTES );
+                tx.success();
+            }
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private static GraphDatabaseAPI startDatabase( File storeDir )
+    {
+        return (GraphDatabaseAPI) new TestGraphDatabaseFactory().newEmbeddedDatabaseBuilder( storeDir )
+                .setConfig( "dbms.backup.enabled", "false" )
+                .newGraphDatabase();
+    }
+
+    private long metaDataRecord( File storeDir, MetaDataStore.Position position ) throws IOException
+    {
+        try ( PageCache pageCache = StandalonePageCacheFactory.createPageCache( fileSystemRule.get() ) )
+        {
+            return MetaDataStore.getRecord( pageCache, new File( storeDir, MetaDataStore.DEFAULT_NAME ), position );
+        }
+    }
+
+    private static boolean isDense( GraphDatabaseAPI db, Node node )
+    {
+        NodeStore nodeStore = db.getDependencyResolver().resolveDependency( RecordStorageEngine.class )
+                .testAccessNeoStores().getNodeStore();
+        return nodeStore.getRecord( node.getId(), nodeStore.newRecord(), NORMAL ).isDense();
+    }
+
+    private static void assertConsistent( File storeDir ) throws Exception
+    {
+        ConsistencyCheckService.Result result = new ConsistencyCheckService().runFullConsistencyCheck( storeDir,
+                Config.defaults( GraphDatabaseSettings.pagecache_memory, "8m" ), ProgressMonitorFactory.NONE,
+                NullLogProvider.getInstance(), false );
+        assertTrue( "Database contains inconsistencies, there should be a report in " + storeDir,
+                result.isSuccessful() );
+    }
+}
@@ -23,7 +23,8 @@ package org.neo4j.unsafe.impl.internal.dragons;
  * The memory manager is simple: it only allocates memory, until it itself is finalizable and frees it all in one go.
  *
  * The memory is allocated in large segments, called "grabs", and the memory returned by the memory manager is page
- * aligned, and plays well with transparent huge pages and other operating system optimisations.
+ * aligned, and plays well with transparent huge pages and other operating system optimisations. Where the memory comes
+ * from, and whether or not it is backed by huge pages, is decided by the {@link MemorySource}.
  *
  * The memory manager assumes that the memory claimed from it is evenly divisible in units of pages.
  */
@@ -39,6 +40,8 @@ public final class MemoryManager
      */
     private long memoryReserve;
     private final long alignment;
+    private final MemorySource memorySource;
+    private final long grabSize;
 
     private Grab grabs;
 
@@ -50,6 +53,19 @@ public final class MemoryManager
      * @param alignment The byte multiple that the allocated pointers have to be aligned at.
      */
     public MemoryManager( long expectedMaxMemory, long alignment )
+    {
+        this( expectedMaxMemory, alignment, MemorySource.ALLOCATE );
+    }
+
+    /**
+     * Create a new MemoryManager that will allocate the given amount of memory from the given memory source, to
+     * pointers that are aligned to the given alignment size.
+     * @param expectedMaxMemory The maximum amount of memory that this memory manager is expected to allocate. The
+     * actual amount of memory used can end up greater than this value, if some of it gets wasted on alignment padding.
+     * @param alignment The byte multiple that the allocated pointers have to be aligned at.
+     * @param memorySource The source of the native memory, which decides if it should be backed by huge pages.
+     */
+    public MemoryManager( long expectedMaxMemory, long alignment, MemorySource memorySource )
     {
         if ( alignment == 0 )
         {
@@ -57,6 +73,8 @@ public final class MemoryManager
         }
         this.memoryReserve = expectedMaxMemory;
         this.alignment = alignment;
+        this.memorySource = memorySource;
+        this.grabSize = memorySource.grabSize( GRAB_SIZE );
     }
 
     public synchronized long sumUsedMemory()
@@ -78,15 +96,15 @@ public final class MemoryManager
      */
     public synchronized long allocateAligned( long bytes )
     {
-        if ( bytes > GRAB_SIZE )
+        if ( bytes > grabSize )
         {
             // This is a huge allocation. Put it in its own grab and keep any existing grab at the head.
             Grab nextGrab = grabs == null ? null : grabs.next;
-            Grab allocationGrab = new Grab( nextGrab, bytes, alignment );
+            Grab allocationGrab = new Grab( nextGrab, bytes, alignment, memorySource );
             if ( !allocationGrab.canAllocate( bytes ) )
             {
                 allocationGrab.free();
-                allocationGrab = new Grab( nextGrab, bytes + alignment, alignment );
+                allocationGrab = new Grab( nextGrab, bytes + alignment, alignment, memorySource );
             }
             long allocation = allocationGrab.allocate( bytes );
             grabs = grabs == null ? allocationGrab : grabs.setNext( allocationGrab );
@@ -96,11 +114,11 @@ public final class MemoryManager
 
         if ( grabs == null || !grabs.canAllocate( bytes ) )
         {
-            long desiredGrabSize = Math.min( GRAB_SIZE, memoryReserve );
+            long desiredGrabSize = Math.min( grabSize, memoryReserve );
             if ( desiredGrabSize < bytes )
             {
                 desiredGrabSize = bytes;
-                Grab grab = new Grab( grabs, desiredGrabSize, alignment );
+                Grab grab = new Grab( grabs, desiredGrabSize, alignment, memorySource );
                 if ( grab.canAllocate( bytes ) )
                 {
                     memoryReserve -= desiredGrabSize;
@@ -111,7 +129,7 @@ public final class MemoryManager
                 desiredGrabSize = bytes + alignment;
             }
             memoryReserve -= desiredGrabSize;
-            grabs = new Grab( grabs, desiredGrabSize, alignment );
+            grabs = new Grab( grabs, desiredGrabSize, alignment, memorySource );
         }
         return grabs.allocate( bytes );
     }
@@ -135,24 +153,28 @@ public final class MemoryManager
         private final long address;
         private final long limit;
         private final long alignMask;
+        private final MemorySource memorySource;
         private long nextAlignedPointer;
 
-        Grab( Grab next, long size, long alignment )
+        Grab( Grab next, long size, long alignment, MemorySource memorySource )
         {
             this.next = next;
-            this.address = UnsafeUtil.allocateMemory( size );
+            this.address = memorySource.allocate( size );
             this.limit = address + size;
             this.alignMask = alignment - 1;
+            this.memorySource = memorySource;
 
             nextAlignedPointer = nextAligned( address );
         }
 
-        Grab( Grab next, long address, long limit, long alignMask, long nextAlignedPointer )
+        Grab( Grab next, long address, long limit, long alignMask, MemorySource memorySource,
+                long nextAlignedPointer )
         {
             this.next = next;
             this.address = address;
             this.limit = limit;
             this.alignMask = alignMask;
+            this.memorySource = memorySource;
             this.nextAlignedPointer = nextAlignedPointer;
         }
 
@@ -174,7 +196,7 @@ public final class MemoryManager
 
         void free()
         {
-            UnsafeUtil.free( address );
+            memorySource.free( address );
         }
 
         boolean canAllocate( long bytes )
@@ -184,7 +206,7 @@ public final class MemoryManager
 
         Grab setNext( Grab grab )
         {
-            return new Grab( grab, address, limit, alignMask, nextAlignedPointer );
+            return new Grab( grab, address, limit, alignMask, memorySource, nextAlignedPointer );
         }
 
         @Override
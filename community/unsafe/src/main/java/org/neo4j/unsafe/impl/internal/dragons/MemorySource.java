@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.internal.dragons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The memory source decides where the native memory of a {@link MemoryManager} comes from, and how large the grabs
+ * that the memory manager carves its allocations out of should be.
+ * <p>
+ * Large page caches suffer a lot of TLB misses when their memory is backed by regular 4 KiB pages. The
+ * {@link #transparentHugePages() transparent huge pages} and {@link #hugetlbfs(File) hugetlbfs} sources make it
+ * possible, or in the latter case explicit, for the operating system to back the memory with huge pages instead.
+ */
+public abstract class MemorySource
+{
+    /**
+     * Gets told when a memory source cannot give out the kind of memory it was configured for, and falls back to
+     * regular memory instead.
+     */
+    public interface Monitor
+    {
+        /**
+         * @param bytes the size of the allocation that is now backed by regular memory.
+         * @param cause the reason huge pages could not be used.
+         */
+        void hugePagesUnavailable( long bytes, Exception cause );
+    }
+
+    public static final Monitor NO_OP_MONITOR = ( bytes, cause ) ->
+    {
+    };
+
+    /**
+     * The assumed size of huge pages. This is 2 MiB on most x86-64 and ARM64 systems.
+     */
+    static final long HUGE_PAGE_SIZE = FeatureToggles.getLong( MemorySource.class, "HUGE_PAGE_SIZE", 2 * 1024 * 1024 );
+
+    /**
+     * The amount of memory, in bytes, to grab at a time when the memory is backed by huge pages. We grab much more
+     * than usual, to use only a few huge page aligned regions, and to keep the number of memory mappings down.
+     */
+    static final long HUGE_GRAB_SIZE = FeatureToggles.getLong( MemorySource.class, "HUGE_GRAB_SIZE", 64 * 1024 * 1024 );
+
+    /**
+     * Memory is allocated with {@link UnsafeUtil#allocateMemory(long)}, and is backed by whatever the operating system
+     * decides. This is the default.
+     */
+    public static final MemorySource ALLOCATE = new Allocate();
+
+    /**
+     * Memory is allocated with {@link UnsafeUtil#allocateMemory(long)}, in large regions that are aligned to, and
+     * evenly divisible by, the huge page size. This allows the operating system to back the memory with transparent
+     * huge pages, if it is configured to use them for all anonymous memory, i.e. when
+     * {@code /sys/kernel/mm/transparent_hugepage/enabled} is set to {@code always}.
+     */
+    public static MemorySource transparentHugePages()
+    {
+        return new TransparentHugePages();
+    }
+
+    /**
+     * Memory is allocated by mapping files in the given directory, which should be a mounted hugetlbfs file system,
+     * such as {@code /dev/hugepages}. The kernel must have huge pages reserved for this, through the
+     * {@code vm.nr_hugepages} sysctl. If the huge pages run out, or the files cannot be mapped for some other reason,
+     * the memory will be allocated with {@link UnsafeUtil#allocateMemory(long)} instead.
+     * <p>
+     * The files are deleted as soon as they are mapped, so they will not be left behind if the process dies.
+     *
+     * @param directory the directory in a hugetlbfs mount to map files from.
+     */
+    public static MemorySource hugetlbfs( File directory )
+    {
+        return hugetlbfs( directory, NO_OP_MONITOR );
+    }
+
+    /**
+     * Like {@link #hugetlbfs(File)}, but tells the given monitor whenever an allocation falls back to regular memory.
+     *
+     * @param directory the directory in a hugetlbfs mount to map files from.
+     * @param monitor the monitor to tell about fallbacks to regular memory.
+     */
+    public static MemorySource hugetlbfs( File directory, Monitor monitor )
+    {
+        return new Hugetlbfs( directory, monitor );
+    }
+
+    /**
+     * @param defaultGrabSize the size of the grabs that the memory manager would otherwise use.
+     * @return the number of bytes the memory manager should grab from this source at a time.
+     */
+    abstract long grabSize( long defaultGrabSize );
+
+    /**
+     * Allocate a region of native memory of the given size.
+     *
+     * @param bytes the size of the region, as returned by {@link #grabSize(long)}, or larger for huge allocations.
+     * @return the address of the region.
+     */
+    abstract long allocate( long bytes );
+
+    /**
+     * Free the memory region at the given address, as returned by {@link #allocate(long)}.
+     */
+    abstract void free( long address );
+
+    static long roundUpToHugePages( long bytes )
+    {
+        return ((bytes + HUGE_PAGE_SIZE - 1) / HUGE_PAGE_SIZE) * HUGE_PAGE_SIZE;
+    }
+
+    private static final class Allocate extends MemorySource
+    {
+        @Override
+        long grabSize( long defaultGrabSize )
+        {
+            return defaultGrabSize;
+        }
+
+        @Override
+        long allocate( long bytes )
+        {
+            return UnsafeUtil.allocateMemory( bytes );
+        }
+
+        @Override
+        void free( long address )
+        {
+            UnsafeUtil.free( address );
+        }
+
+        @Override
+        public String toString()
+        {
+            return "MemorySource[allocate]";
+        }
+    }
+
+    private static final class TransparentHugePages extends MemorySource
+    {
+        // Maps the huge page aligned addresses we hand out, to the pointers we got from allocateMemory.
+        private final Map<Long,Long> allocations = new HashMap<>();
+
+        @Override
+        long grabSize( long defaultGrabSize )
+        {
+            return roundUpToHugePages( Math.max( defaultGrabSize, HUGE_GRAB_SIZE ) );
+        }
+
+        @Override
+        synchronized long allocate( long bytes )
+        {
+            long size = roundUpToHugePages( bytes );
+            long pointer = UnsafeUtil.allocateMemory( size + HUGE_PAGE_SIZE );
+            long address = UnsafeUtil.alignedMemory( pointer, (int) HUGE_PAGE_SIZE );
+            allocations.put( address, pointer );
+            return address;
+        }
+
+        @Override
+        synchronized void free( long address )
+        {
+            Long pointer = allocations.remove( address );
+            if ( pointer != null )
+            {
+                UnsafeUtil.free( pointer );
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return "MemorySource[transparent huge pages]";
+        }
+    }
+
+    private static final class Hugetlbfs extends MemorySource
+    {
+        private final File directory;
+        private final Monitor monitor;
+        // Maps the addresses we hand out, to the buffers that keep the mappings alive.
+        private final Map<Long,ByteBuffer> mappings = new HashMap<>();
+
+        Hugetlbfs( File directory, Monitor monitor )
+        {
+            this.directory = directory;
+            this.monitor = monitor;
+        }
+
+        @Override
+        long grabSize( long defaultGrabSize )
+        {
+            return roundUpToHugePages( Math.max( defaultGrabSize, HUGE_GRAB_SIZE ) );
+        }
+
+        @Override
+        synchronized long allocate( long bytes )
+        {
+            long size = roundUpToHugePages( bytes );
+            if ( size > Integer.MAX_VALUE )
+            {
+                monitor.hugePagesUnavailable( bytes, new IllegalArgumentException(
+                        "Cannot map " + size + " bytes at once, which is more than " + Integer.MAX_VALUE ) );
+                return UnsafeUtil.allocateMemory( bytes );
+            }
+            try
+            {
+                ByteBuffer buffer = map( size );
+                long address = UnsafeUtil.getDirectByteBufferAddress( buffer );
+                mappings.put( address, buffer );
+                return address;
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                // Out of huge pages, or the directory is not usable. Fall back to regular memory.
+                monitor.hugePagesUnavailable( bytes, e );
+                return UnsafeUtil.allocateMemory( bytes );
+            }
+        }
+
+        private ByteBuffer map( long size ) throws IOException
+        {
+            File file = File.createTempFile( "neo4j-memory", ".map", directory );
+            try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+                  FileChannel channel = raf.getChannel() )
+            {
+                return channel.map( FileChannel.MapMode.READ_WRITE, 0, size );
+            }
+            finally
+            {
+                // The mapping keeps the memory alive, and the file would just be left behind if we crashed.
+                file.delete();
+            }
+        }
+
+        @Override
+        synchronized void free( long address )
+        {
+            ByteBuffer buffer = mappings.remove( address );
+            if ( buffer != null )
+            {
+                UnsafeUtil.releaseDirectByteBuffer( buffer );
+            }
+            else
+            {
+                UnsafeUtil.free( address );
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return "MemorySource[hugetlbfs at " + directory + "]";
+        }
+    }
+}
@@ -23,11 +23,14 @@ import sun.misc.Unsafe;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.security.AccessController;
 import java.security.PrivilegedExceptionAction;
 import java.util.Arrays;
@@ -64,6 +67,7 @@ public final class UnsafeUtil
 
     private static final Unsafe unsafe;
     private static final MethodHandle sharedStringConstructor;
+    private static final MethodHandle bufferCleaner;
     private static final String allowUnalignedMemoryAccessProperty =
             "org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil.allowUnalignedMemoryAccess";
 
@@ -86,6 +90,7 @@ public final class UnsafeUtil
 
         MethodHandles.Lookup lookup = MethodHandles.lookup();
         sharedStringConstructor = getSharedStringConstructorMethodHandle( lookup );
+        bufferCleaner = getBufferCleanerMethodHandle( lookup );
 
         Class<?> dbbClass = null;
         Constructor<?> ctor = null;
@@ -214,6 +219,37 @@ public final class UnsafeUtil
         }
     }
 
+    /**
+     * @return a method handle that takes a direct ByteBuffer, and releases its memory or mapping right away, or
+     * {@code null} if this JVM offers no way of doing so.
+     */
+    private static MethodHandle getBufferCleanerMethodHandle( MethodHandles.Lookup lookup )
+    {
+        try
+        {
+            // Java 9 and later hide the cleaner of the buffer, but let Unsafe invoke it for us.
+            MethodType type = MethodType.methodType( Void.TYPE, ByteBuffer.class );
+            return lookup.findVirtual( Unsafe.class, "invokeCleaner", type ).bindTo( unsafe );
+        }
+        catch ( Exception e )
+        {
+            try
+            {
+                // Java 8, where we get the cleaner from the buffer, and then clean it.
+                Method cleanerMethod = Class.forName( "sun.nio.ch.DirectBuffer" ).getMethod( "cleaner" );
+                Method cleanMethod = Class.forName( "sun.misc.Cleaner" ).getMethod( "clean" );
+                MethodHandle cleaner = lookup.unreflect( cleanerMethod );
+                MethodHandle clean = lookup.unreflect( cleanMethod );
+                return MethodHandles.filterReturnValue( cleaner, clean ).asType(
+                        MethodType.methodType( Void.TYPE, ByteBuffer.class ) );
+            }
+            catch ( Exception e1 )
+            {
+                return null;
+            }
+        }
+    }
+
     private static MethodHandle getSharedStringConstructorMethodHandle(
             MethodHandles.Lookup lookup )
     {
@@ -936,6 +972,65 @@ public final class UnsafeUtil
         unsafe.putLong( dbb, directByteBufferAddressOffset, addr );
     }
 
+    /**
+     * Get the native address of the memory behind the given direct ByteBuffer, such as a memory mapped file.
+     * <p>
+     * The memory of the buffer is considered allocated by the native access checks, from this point on, and until it
+     * is released with {@link #releaseDirectByteBuffer(ByteBuffer)}.
+     */
+    public static long getDirectByteBufferAddress( ByteBuffer buffer )
+    {
+        if ( !buffer.isDirect() )
+        {
+            throw new IllegalArgumentException( "Not a direct buffer: " + buffer );
+        }
+        long address = unsafe.getLong( buffer, directByteBufferAddressOffset );
+        addAllocatedPointer( address, buffer.capacity() );
+        return address;
+    }
+
+    /**
+     * Release the native memory, or memory mapping, of the given direct ByteBuffer right away, rather than waiting
+     * for the buffer to be garbage collected. The buffer, and any address obtained from it, must not be used after
+     * this.
+     *
+     * @throws IllegalStateException if the buffer cannot be released, either because this JVM offers no way of
+     * releasing buffers early, or because the buffer has no memory of its own, e.g. because it is a slice.
+     */
+    public static void releaseDirectByteBuffer( ByteBuffer buffer )
+    {
+        checkFree( unsafe.getLong( buffer, directByteBufferAddressOffset ) );
+        clean( buffer );
+    }
+
+    /**
+     * Unmap the given memory mapped buffer right away, rather than waiting for it to be garbage collected. The
+     * buffer, and any buffer sliced or duplicated from it, must not be used after this.
+     *
+     * @throws IllegalStateException if the buffer cannot be unmapped, see {@link #releaseDirectByteBuffer(ByteBuffer)}.
+     */
+    public static void unmap( MappedByteBuffer buffer )
+    {
+        clean( buffer );
+    }
+
+    private static void clean( ByteBuffer buffer )
+    {
+        if ( bufferCleaner == null )
+        {
+            throw new IllegalStateException( "This JVM offers no way of releasing direct buffers early, so " + buffer +
+                                             " cannot be released until it is garbage collected." );
+        }
+        try
+        {
+            bufferCleaner.invokeExact( buffer );
+        }
+        catch ( Throwable e )
+        {
+            throw new IllegalStateException( "Could not release " + buffer, e );
+        }
+    }
+
     /**
      * Change if native access checking is enabled by setting it to the given new setting, and returning the old
      * setting.
@@ -19,14 +19,25 @@
  */
 package org.neo4j.unsafe.impl.internal.dragons;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 
 public class MemoryManagerTest
 {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void allocatedPointerMustNotBeNull() throws Exception
     {
@@ -71,4 +82,44 @@ public class MemoryManagerTest
         assertThat( largeBlock, is( not( 0L ) ) );
         assertThat( page2, is( not( 0L ) ) );
     }
+
+    @Test
+    public void transparentHugePagesMustBeAlignedToHugePageSize() throws Exception
+    {
+        MemoryManager mman = new MemoryManager( 16 * 4096, 8, MemorySource.transparentHugePages() );
+        long address = mman.allocateAligned( 8192 );
+        assertThat( address % MemorySource.HUGE_PAGE_SIZE, is( 0L ) );
+        UnsafeUtil.putLong( address, 42 );
+        assertThat( UnsafeUtil.getLong( address ), is( 42L ) );
+    }
+
+    @Test
+    public void hugetlbfsMemoryMustBeUsableAndNotLeaveFilesBehind() throws Exception
+    {
+        // A regular directory works just as well for mapping files, it just won't give us huge pages.
+        File directory = temporaryFolder.newFolder();
+        MemoryManager mman = new MemoryManager( 16 * 4096, UnsafeUtil.pageSize(), MemorySource.hugetlbfs( directory ) );
+        long page1 = mman.allocateAligned( 8192 );
+        long page2 = mman.allocateAligned( 8192 );
+        assertThat( page1 % UnsafeUtil.pageSize(), is( 0L ) );
+        UnsafeUtil.putLong( page1, 1 );
+        UnsafeUtil.putLong( page2, 2 );
+        assertThat( UnsafeUtil.getLong( page1 ), is( 1L ) );
+        assertThat( UnsafeUtil.getLong( page2 ), is( 2L ) );
+        assertThat( directory.listFiles(), emptyArray() );
+    }
+
+    @Test
+    public void hugetlbfsMustFallBackToRegularMemoryIfFilesCannotBeMapped() throws Exception
+    {
+        File directory = new File( temporaryFolder.getRoot(), "does-not-exist" );
+        AtomicReference<Exception> fallbackCause = new AtomicReference<>();
+        MemorySource.Monitor monitor = ( bytes, cause ) -> fallbackCause.set( cause );
+        MemoryManager mman = new MemoryManager( 16 * 4096, 8, MemorySource.hugetlbfs( directory, monitor ) );
+        long address = mman.allocateAligned( 8192 );
+        assertThat( address, is( not( 0L ) ) );
+        UnsafeUtil.putLong( address, 42 );
+        assertThat( UnsafeUtil.getLong( address ), is( 42L ) );
+        assertThat( fallbackCause.get(), instanceOf( IOException.class ) );
+    }
 }
@@ -525,6 +525,32 @@ public class UnsafeUtilTest
         }
     }
 
+    @Test
+    public void mustReleaseDirectByteBufferRightAway() throws Exception
+    {
+        // GIVEN
+        ByteBuffer buffer = ByteBuffer.allocateDirect( 8192 );
+        UnsafeUtil.getDirectByteBufferAddress( buffer );
+
+        // WHEN
+        UnsafeUtil.releaseDirectByteBuffer( buffer );
+
+        // THEN no exception was thrown, and the memory has been released
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void mustFailLoudlyWhenDirectByteBufferCannotBeReleased() throws Exception
+    {
+        // GIVEN a slice, which has no memory of its own to release
+        ByteBuffer buffer = ByteBuffer.allocateDirect( 8192 );
+        buffer.position( 4096 );
+        ByteBuffer slice = buffer.slice();
+        UnsafeUtil.getDirectByteBufferAddress( slice );
+
+        // WHEN
+        UnsafeUtil.releaseDirectByteBuffer( slice );
+    }
+
     @Test
     public void shouldAlignMemoryTo4ByteBoundary() throws Exception
     {
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,6 +51,9 @@ import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.api.KernelTransactions;
 import org.neo4j.kernel.impl.core.NodeManager;
 import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.impl.locking.ActiveLock;
+import org.neo4j.kernel.impl.locking.LockContentionProfiler;
+import org.neo4j.kernel.impl.locking.LockContentionProfiler.ResourceContention;
 import org.neo4j.kernel.impl.proc.Procedures;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.Context;
@@ -329,6 +333,70 @@ public class EnterpriseBuiltInDbmsProcedures
         }
     }
 
+    @Description( "List the resources that transactions have waited the longest for locks on, as sampled by the " +
+            "lock contention profiler, together with the transactions currently holding locks on them." )
+    @Procedure( name = "dbms.listLockContention", mode = DBMS )
+    public Stream<LockContentionResult> listLockContention( @Name( value = "limit", defaultValue = "10" ) long limit )
+            throws InvalidArgumentsException
+    {
+        securityContext.assertCredentialsNotExpired();
+        List<ResourceContention> contended = resolver.resolveDependency( LockContentionProfiler.class )
+                .mostContendedResources( (int) Math.min( limit, Integer.MAX_VALUE ) );
+        if ( contended.isEmpty() )
+        {
+            return Stream.empty();
+        }
+
+        Map<Pair<Integer,Long>,List<Map<String,Object>>> holders = new HashMap<>();
+        for ( ResourceContention contention : contended )
+        {
+            holders.put( Pair.of( contention.resourceType().typeId(), contention.resourceId() ), new ArrayList<>() );
+        }
+        for ( KernelTransactionHandle tx : getKernelTransactions().activeTransactions() )
+        {
+            String username = tx.securityContext().subject().username();
+            if ( !isAdminOrSelf( username ) )
+            {
+                continue;
+            }
+            List<String> queryIds = null;
+            for ( ActiveLock lock : tx.activeLocks().collect( toList() ) )
+            {
+                List<Map<String,Object>> lockHolders =
+                        holders.get( Pair.of( lock.resourceType().typeId(), lock.resourceId() ) );
+                if ( lockHolders != null )
+                {
+                    if ( queryIds == null )
+                    {
+                        queryIds = queryIds( tx );
+                    }
+                    lockHolders.add( lockHolder( username, lock, queryIds ) );
+                }
+            }
+        }
+        return contended.stream().map( contention -> new LockContentionResult( contention,
+                holders.get( Pair.of( contention.resourceType().typeId(), contention.resourceId() ) ) ) );
+    }
+
+    private static List<String> queryIds( KernelTransactionHandle tx ) throws InvalidArgumentsException
+    {
+        List<String> queryIds = new ArrayList<>();
+        for ( ExecutingQuery query : tx.executingQueries().collect( toList() ) )
+        {
+            queryIds.add( ofInternalId( query.internalQueryId() ).toString() );
+        }
+        return queryIds;
+    }
+
+    private static Map<String,Object> lockHolder( String username, ActiveLock lock, List<String> queryIds )
+    {
+        Map<String,Object> holder = new HashMap<>();
+        holder.put( "username", username );
+        holder.put( "mode", lock.mode() );
+        holder.put( "queryIds", queryIds );
+        return holder;
+    }
+
     @Description( "Kill all transactions executing the query with the given query id." )
     @Procedure( name = "dbms.killQuery", mode = DBMS )
     public Stream<QueryTerminationResult> killQuery( @Name( "id" ) String idText ) throws InvalidArgumentsException, IOException
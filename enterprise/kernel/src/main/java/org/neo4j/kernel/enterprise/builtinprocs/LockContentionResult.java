@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.enterprise.builtinprocs;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.impl.locking.LockContentionProfiler;
+import org.neo4j.kernel.impl.locking.LockContentionProfiler.ResourceContention;
+
+public class LockContentionResult
+{
+    public final String resourceType;
+    public final long resourceId;
+    public final long waits;
+    public final long exclusiveWaits;
+    public final long totalWaitTimeMillis;
+    public final long maxWaitTimeMillis;
+    public final Map<String,Object> waitTimeHistogram;
+    public final List<Map<String,Object>> holders;
+
+    public LockContentionResult( ResourceContention contention, List<Map<String,Object>> holders )
+    {
+        this.resourceType = contention.resourceType().name();
+        this.resourceId = contention.resourceId();
+        this.waits = contention.waits();
+        this.exclusiveWaits = contention.exclusiveWaits();
+        this.totalWaitTimeMillis = TimeUnit.NANOSECONDS.toMillis( contention.totalWaitNanos() );
+        this.maxWaitTimeMillis = TimeUnit.NANOSECONDS.toMillis( contention.maxWaitNanos() );
+        this.waitTimeHistogram = histogram( contention.waitTimeHistogram() );
+        this.holders = holders;
+    }
+
+    private static Map<String,Object> histogram( long[] counts )
+    {
+        long[] bounds = LockContentionProfiler.histogramBucketBoundsMillis();
+        Map<String,Object> histogram = new LinkedHashMap<>();
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            String bucket = i < bounds.length ? "<" + bounds[i] + "ms" : ">=" + bounds[bounds.length - 1] + "ms";
+            histogram.put( bucket, counts[i] );
+        }
+        return histogram;
+    }
+}
@@ -27,8 +27,11 @@ import org.neo4j.configuration.LoadableConfig;
 import org.neo4j.graphdb.config.Setting;
 import org.neo4j.kernel.impl.store.id.IdType;
 
+import static org.neo4j.kernel.configuration.Settings.INTEGER;
 import static org.neo4j.kernel.configuration.Settings.STRING;
+import static org.neo4j.kernel.configuration.Settings.buildSetting;
 import static org.neo4j.kernel.configuration.Settings.list;
+import static org.neo4j.kernel.configuration.Settings.min;
 import static org.neo4j.kernel.configuration.Settings.optionsIgnoreCase;
 import static org.neo4j.kernel.configuration.Settings.setting;
 import static org.neo4j.kernel.impl.store.id.IdType.NODE;
@@ -50,4 +53,12 @@ public class EnterpriseEditionSettings implements LoadableConfig
     @Internal
     public static final Setting<String> security_module = setting( "unsupported.dbms.security.module", STRING,
             ENTERPRISE_SECURITY_MODULE_ID );
+
+    @Description( "Number of reader stripes per lock of the 'striped' lock manager, rounded up to a power of two. " +
+                  "More stripes let more concurrent readers of the same resource stay out of each others way, " +
+                  "at the cost of 64 bytes of memory per stripe and locked resource." )
+    @Internal
+    public static final Setting<Integer> striped_lock_manager_stripes =
+            buildSetting( "unsupported.dbms.lock_manager.striped.stripes", INTEGER, "8" ).constraint( min( 1 ) )
+                    .build();
 }
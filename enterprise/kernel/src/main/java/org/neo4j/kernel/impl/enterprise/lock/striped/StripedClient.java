@@ -0,0 +1,989 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.striped;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import org.neo4j.collection.pool.Pool;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.DeadlockDetectedException;
+import org.neo4j.kernel.impl.locking.ActiveLock;
+import org.neo4j.kernel.impl.locking.LockAcquisitionTimeoutException;
+import org.neo4j.kernel.impl.locking.LockClientStateHolder;
+import org.neo4j.kernel.impl.locking.LockClientStoppedException;
+import org.neo4j.kernel.impl.locking.LockTracer;
+import org.neo4j.kernel.impl.locking.LockWaitEvent;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.storageengine.api.lock.AcquireLockTimeoutException;
+import org.neo4j.storageengine.api.lock.ResourceType;
+import org.neo4j.storageengine.api.lock.WaitStrategy;
+
+import static org.neo4j.kernel.impl.enterprise.lock.striped.StripedLock.FREE;
+import static org.neo4j.kernel.impl.enterprise.lock.striped.StripedLock.RETIRED;
+
+// Please note. Except separate test cases for particular classes related to community locking
+// see also LockingCompatibilityTestSuite test suite
+
+/**
+ * Client of a {@link StripedLockManager}. Like the Forseti client it tracks which locks it holds, and how many times,
+ * so that it only touches the global locks the first time it grabs and the last time it releases a lock.
+ * <p/>
+ * A client holding a lock shared always counts itself once in its stripe of the {@link StripedLock}, also when it
+ * holds the same lock exclusively.
+ * <p/>
+ * <h2>Deadlock detection</h2>
+ * <p/>
+ * Since shared holders of a lock are only counted, not known, the waits-for graph is traversed by asking clients.
+ * A client waiting for a lock is blocked by its writer, if someone else has claimed it, or, if the client itself has
+ * claimed it and waits for the readers to drain, by every client that holds it shared. Only clients that are
+ * waiting themselves are considered, since anyone else will eventually release their locks. Clients don't change
+ * their local lock counts while they wait, so they can be read by other clients then, as long as the reader makes
+ * sure the owner was waiting for the same thing, the same {@link WaitingFor} instance, before and after.
+ * <p/>
+ * Once a waiting client finds itself in a cycle, the client with the highest id in the cycle aborts.
+ */
+public class StripedClient implements Locks.Client
+{
+    /** Number of times to apply the wait strategy for a lock before looking for deadlocks. */
+    private static final int DEADLOCK_DETECTION_THRESHOLD = 10;
+
+    /** Id for this client */
+    private final int clientId;
+
+    /** Value of the writer field in locks this client holds exclusively. */
+    private final int writerId;
+
+    /** Reader stripe this client counts itself in. */
+    private final int stripe;
+
+    /** resourceType -> lock map. These are the global lock maps, shared across all clients. */
+    private final ConcurrentMap<Long,StripedLock>[] lockMaps;
+
+    /** resourceType -> wait strategy */
+    private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
+
+    /** Handle to return client to pool when closed. */
+    private final Pool<StripedClient> clientPool;
+
+    private final int stripes;
+    private final StripedLockContention contention;
+
+    /** Look up a client by id */
+    private final IntFunction<StripedClient> clientById;
+
+    /** All clients of the lock manager, to look for shared holders among when detecting deadlocks. */
+    private final Iterable<StripedClient> clients;
+
+    /**
+     * Array[ resourceType -> Map( resourceId -> num locks ) ]
+     * Only ever accessed by the thread using this client, see {@link #sharedLocksHeld} for what other clients see.
+     */
+    private final PrimitiveLongIntMap[] sharedLockCounts;
+
+    /** @see #sharedLockCounts */
+    private final PrimitiveLongIntMap[] exclusiveLockCounts;
+
+    /**
+     * Array[ resourceType -> Set( resourceId ) ] of the locks held shared, i.e. the keys of {@link #sharedLockCounts}.
+     * Kept in a concurrent set since other clients look at it when detecting deadlocks, while our lock count maps
+     * are only safe to read by the thread using this client. Only changed when a lock is acquired or released in
+     * the lock map, not when a lock held already is re-entered.
+     */
+    private final Set<Long>[] sharedLocksHeld;
+
+    /**
+     * Time within which any particular lock should be acquired.
+     *
+     * @see GraphDatabaseSettings#lock_acquisition_timeout
+     */
+    private final long lockAcquisitionTimeoutMillis;
+    private final Clock clock;
+
+    private final LockClientStateHolder stateHolder = new LockClientStateHolder();
+
+    private volatile boolean hasLocks;
+
+    /** What this client is currently waiting for, or {@code null}. A new instance for every lock waited for. */
+    private volatile WaitingFor waitingFor;
+
+    @SuppressWarnings( "unchecked" )
+    StripedClient( int id, ConcurrentMap<Long,StripedLock>[] lockMaps,
+            WaitStrategy<AcquireLockTimeoutException>[] waitStrategies, Pool<StripedClient> clientPool,
+            int stripes, StripedLockContention contention, IntFunction<StripedClient> clientById,
+            Iterable<StripedClient> clients, long lockAcquisitionTimeoutMillis, Clock clock )
+    {
+        this.clientId = id;
+        this.writerId = id + 1;
+        this.stripe = id;
+        this.lockMaps = lockMaps;
+        this.waitStrategies = waitStrategies;
+        this.clientPool = clientPool;
+        this.stripes = stripes;
+        this.contention = contention;
+        this.clientById = clientById;
+        this.clients = clients;
+        this.sharedLockCounts = new PrimitiveLongIntMap[lockMaps.length];
+        this.exclusiveLockCounts = new PrimitiveLongIntMap[lockMaps.length];
+        this.sharedLocksHeld = new Set[lockMaps.length];
+        this.lockAcquisitionTimeoutMillis = lockAcquisitionTimeoutMillis;
+        this.clock = clock;
+
+        for ( int i = 0; i < sharedLockCounts.length; i++ )
+        {
+            sharedLockCounts[i] = Primitive.longIntMap();
+            exclusiveLockCounts[i] = Primitive.longIntMap();
+            sharedLocksHeld[i] = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    /**
+     * Reset current client state. Make it ready for next bunch of operations.
+     * Should be used before factory release client to public usage.
+     */
+    public void reset()
+    {
+        stateHolder.reset();
+    }
+
+    @Override
+    public void acquireShared( LockTracer tracer, ResourceType resourceType, long... resourceIds )
+            throws AcquireLockTimeoutException
+    {
+        hasLocks = true;
+        stateHolder.incrementActiveClients( this );
+
+        try
+        {
+            ConcurrentMap<Long,StripedLock> lockMap = lockMaps[resourceType.typeId()];
+            PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
+
+            for ( long resourceId : resourceIds )
+            {
+                int heldCount = heldShareLocks.get( resourceId );
+                if ( heldCount != -1 )
+                {
+                    // We already have a lock on this, just increment our local reference counter.
+                    heldShareLocks.put( resourceId, Math.incrementExact( heldCount ) );
+                    continue;
+                }
+
+                // Also when we hold this lock exclusively, we count ourselves as a reader of it.
+                LockWaitEvent waitEvent = null;
+                long waitStartNanos = 0;
+                int tries = 0;
+                long waitStartMillis = clock.millis();
+                try
+                {
+                    while ( true )
+                    {
+                        assertValid( waitStartMillis, resourceType, resourceId );
+
+                        StripedLock lock = lockMap.get( resourceId );
+                        if ( lock == null )
+                        {
+                            if ( lockMap.putIfAbsent( resourceId, new StripedLock( stripes, FREE, stripe ) ) == null )
+                            {
+                                break;
+                            }
+                            continue;
+                        }
+
+                        int writer = lock.tryAcquireShared( stripe, writerId );
+                        if ( writer == FREE )
+                        {
+                            break;
+                        }
+                        if ( writer == RETIRED )
+                        {
+                            // Someone is removing this lock from the map, look it up again
+                            Thread.yield();
+                            continue;
+                        }
+
+                        if ( waitEvent == null )
+                        {
+                            waitEvent = tracer.waitForLock( false, resourceType, resourceId );
+                            waitStartNanos = System.nanoTime();
+                        }
+                        waitFor( lock, resourceType, resourceId, tries++ );
+                    }
+                }
+                finally
+                {
+                    waitingFor = null;
+                    if ( waitEvent != null )
+                    {
+                        waitEvent.close();
+                        contention.waited( resourceType, false, System.nanoTime() - waitStartNanos );
+                    }
+                }
+
+                // Make a local note about the fact that we now hold this lock
+                heldShareLocks.put( resourceId, 1 );
+                sharedLocksHeld[resourceType.typeId()].add( resourceId );
+            }
+        }
+        finally
+        {
+            stateHolder.decrementActiveClients();
+        }
+    }
+
+    @Override
+    public void acquireExclusive( LockTracer tracer, ResourceType resourceType, long... resourceIds )
+            throws AcquireLockTimeoutException
+    {
+        hasLocks = true;
+        stateHolder.incrementActiveClients( this );
+
+        try
+        {
+            ConcurrentMap<Long,StripedLock> lockMap = lockMaps[resourceType.typeId()];
+            PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
+
+            for ( long resourceId : resourceIds )
+            {
+                int heldCount = heldLocks.get( resourceId );
+                if ( heldCount != -1 )
+                {
+                    // We already have a lock on this, just increment our local reference counter.
+                    heldLocks.put( resourceId, Math.incrementExact( heldCount ) );
+                    continue;
+                }
+
+                long ownReaders = sharedLockCounts[resourceType.typeId()].containsKey( resourceId ) ? 1 : 0;
+                LockWaitEvent waitEvent = null;
+                long waitStartNanos = 0;
+                int tries = 0;
+                long waitStartMillis = clock.millis();
+                try
+                {
+                    while ( true )
+                    {
+                        assertValid( waitStartMillis, resourceType, resourceId );
+
+                        StripedLock lock = lockMap.get( resourceId );
+                        if ( lock == null )
+                        {
+                            if ( lockMap.putIfAbsent( resourceId, new StripedLock( stripes, writerId, -1 ) ) == null )
+                            {
+                                break;
+                            }
+                            continue;
+                        }
+
+                        int writer = lock.tryClaimWriter( writerId );
+                        if ( writer == FREE )
+                        {
+                            // New readers are now kept out, wait for the existing ones to leave
+                            if ( lock.readers() != ownReaders )
+                            {
+                                if ( waitEvent == null )
+                                {
+                                    waitEvent = tracer.waitForLock( true, resourceType, resourceId );
+                                    waitStartNanos = System.nanoTime();
+                                }
+                                awaitReaders( lock, ownReaders, resourceType, resourceId, tries, waitStartMillis );
+                            }
+                            break;
+                        }
+                        if ( writer == RETIRED )
+                        {
+                            // Someone is removing this lock from the map, look it up again
+                            Thread.yield();
+                            continue;
+                        }
+
+                        if ( waitEvent == null )
+                        {
+                            waitEvent = tracer.waitForLock( true, resourceType, resourceId );
+                            waitStartNanos = System.nanoTime();
+                        }
+                        waitFor( lock, resourceType, resourceId, tries++ );
+                    }
+                }
+                finally
+                {
+                    waitingFor = null;
+                    if ( waitEvent != null )
+                    {
+                        waitEvent.close();
+                        contention.waited( resourceType, true, System.nanoTime() - waitStartNanos );
+                    }
+                }
+
+                heldLocks.put( resourceId, 1 );
+            }
+        }
+        finally
+        {
+            stateHolder.decrementActiveClients();
+        }
+    }
+
+    /**
+     * Wait for the readers of a lock, which we have claimed the writer field of, to leave. If we fail to do so
+     * the writer field is released again.
+     */
+    private void awaitReaders( StripedLock lock, long ownReaders, ResourceType resourceType, long resourceId,
+            int tries, long waitStartMillis )
+    {
+        try
+        {
+            do
+            {
+                assertValid( waitStartMillis, resourceType, resourceId );
+                waitFor( lock, resourceType, resourceId, tries++ );
+            }
+            while ( lock.readers() != ownReaders );
+        }
+        catch ( Throwable e )
+        {
+            lock.releaseWriter();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean tryExclusiveLock( ResourceType resourceType, long resourceId )
+    {
+        hasLocks = true;
+        stateHolder.incrementActiveClients( this );
+
+        try
+        {
+            ConcurrentMap<Long,StripedLock> lockMap = lockMaps[resourceType.typeId()];
+            PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
+
+            int heldCount = heldLocks.get( resourceId );
+            if ( heldCount != -1 )
+            {
+                // We already have a lock on this, just increment our local reference counter.
+                heldLocks.put( resourceId, Math.incrementExact( heldCount ) );
+                return true;
+            }
+
+            long ownReaders = sharedLockCounts[resourceType.typeId()].containsKey( resourceId ) ? 1 : 0;
+            while ( true )
+            {
+                assertNotStopped();
+
+                StripedLock lock = lockMap.get( resourceId );
+                if ( lock == null )
+                {
+                    if ( lockMap.putIfAbsent( resourceId, new StripedLock( stripes, writerId, -1 ) ) == null )
+                    {
+                        break;
+                    }
+                    continue;
+                }
+
+                // Note that there is a "safe" race here where someone may be retiring this lock. In this case,
+                // we allow retrying, even though this is a try-lock call.
+                int writer = lock.tryClaimWriter( writerId );
+                if ( writer == RETIRED )
+                {
+                    continue;
+                }
+                if ( writer != FREE )
+                {
+                    return false;
+                }
+                if ( lock.readers() != ownReaders )
+                {
+                    lock.releaseWriter();
+                    return false;
+                }
+                break;
+            }
+
+            heldLocks.put( resourceId, 1 );
+            return true;
+        }
+        finally
+        {
+            stateHolder.decrementActiveClients();
+        }
+    }
+
+    @Override
+    public boolean trySharedLock( ResourceType resourceType, long resourceId )
+    {
+        hasLocks = true;
+        stateHolder.incrementActiveClients( this );
+
+        try
+        {
+            ConcurrentMap<Long,StripedLock> lockMap = lockMaps[resourceType.typeId()];
+            PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
+
+            int heldCount = heldShareLocks.get( resourceId );
+            if ( heldCount != -1 )
+            {
+                // We already have a lock on this, just increment our local reference counter.
+                heldShareLocks.put( resourceId, Math.incrementExact( heldCount ) );
+                return true;
+            }
+
+            while ( true )
+            {
+                assertNotStopped();
+
+                StripedLock lock = lockMap.get( resourceId );
+                if ( lock == null )
+                {
+                    if ( lockMap.putIfAbsent( resourceId, new StripedLock( stripes, FREE, stripe ) ) == null )
+                    {
+                        break;
+                    }
+                    continue;
+                }
+
+                int writer = lock.tryAcquireShared( stripe, writerId );
+                if ( writer == FREE )
+                {
+                    break;
+                }
+                if ( writer != RETIRED )
+                {
+                    return false;
+                }
+            }
+            heldShareLocks.put( resourceId, 1 );
+            sharedLocksHeld[resourceType.typeId()].add( resourceId );
+            return true;
+        }
+        finally
+        {
+            stateHolder.decrementActiveClients();
+        }
+    }
+
+    @Override
+    public boolean reEnterShared( ResourceType resourceType, long resourceId )
+    {
+        stateHolder.incrementActiveClients( this );
+        try
+        {
+            PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
+
+            int heldCount = heldShareLocks.get( resourceId );
+            if ( heldCount != -1 )
+            {
+                // We already have a lock on this, just increment our local reference counter.
+                heldShareLocks.put( resourceId, Math.incrementExact( heldCount ) );
+                return true;
+            }
+
+            // We didn't hold a lock already, so we cannot re-enter. Also not if we hold it exclusively, since we
+            // count ourselves as a reader of every lock we hold shared.
+            return false;
+        }
+        finally
+        {
+            stateHolder.decrementActiveClients();
+        }
+    }
+
+    @Override
+    public boolean reEnterExclusive( ResourceType resourceType, long resourceId )
+    {
+        stateHolder.incrementActiveClients( this );
+        try
+        {
+            PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
+
+            int heldCount = heldLocks.get( resourceId );
+            if ( heldCount != -1 )
+            {
+                // We already have a lock on this, just increment our local reference counter.
+                heldLocks.put( resourceId, Math.incrementExact( heldCount ) );
+                return true;
+            }
+
+            // We didn't hold a lock already, so we cannot re-enter.
+            return false;
+        }
+        finally
+        {
+            stateHolder.decrementActiveClients();
+        }
+    }
+
+    @Override
+    public void releaseShared( ResourceType resourceType, long... resourceIds )
+    {
+        stateHolder.incrementActiveClients( this );
+
+        try
+        {
+            PrimitiveLongIntMap sharedLocks = sharedLockCounts[resourceType.typeId()];
+            PrimitiveLongIntMap exclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
+            ConcurrentMap<Long,StripedLock> lockMap = lockMaps[resourceType.typeId()];
+            for ( long resourceId : resourceIds )
+            {
+                if ( releaseLocalLock( resourceType, resourceId, sharedLocks ) )
+                {
+                    continue;
+                }
+                sharedLocksHeld[resourceType.typeId()].remove( resourceId );
+                releaseGlobalShared( lockMap, resourceId, exclusiveLocks.containsKey( resourceId ) );
+            }
+        }
+        finally
+        {
+            stateHolder.decrementActiveClients();
+        }
+    }
+
+    @Override
+    public void releaseExclusive( ResourceType resourceType, long... resourceIds )
+    {
+        stateHolder.incrementActiveClients( this );
+
+        try
+        {
+            PrimitiveLongIntMap exclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
+            PrimitiveLongIntMap sharedLocks = sharedLockCounts[resourceType.typeId()];
+            ConcurrentMap<Long,StripedLock> lockMap = lockMaps[resourceType.typeId()];
+            for ( long resourceId : resourceIds )
+            {
+                if ( releaseLocalLock( resourceType, resourceId, exclusiveLocks ) )
+                {
+                    continue;
+                }
+                // If we still hold it shared we're already counted as a reader, so that is all the down-grade
+                // there is to it.
+                releaseGlobalExclusive( lockMap, resourceId, sharedLocks.containsKey( resourceId ) );
+            }
+        }
+        finally
+        {
+            stateHolder.decrementActiveClients();
+        }
+    }
+
+    private void releaseAllClientLocks()
+    {
+        for ( int i = 0; i < exclusiveLockCounts.length; i++ )
+        {
+            ConcurrentMap<Long,StripedLock> lockMap = lockMaps[i];
+            PrimitiveLongIntMap exclusiveLocks = exclusiveLockCounts[i];
+            PrimitiveLongIntMap sharedLocks = sharedLockCounts[i];
+
+            // Shared locks first, since we may hold both kinds on the same resource and may then retire the
+            // lock when releasing it exclusively
+            int sharedSize = sharedLocks.size();
+            if ( sharedSize > 0 )
+            {
+                sharedLocksHeld[i].clear();
+            }
+            sharedLocks.visitKeys( resourceId ->
+            {
+                releaseGlobalShared( lockMap, resourceId, exclusiveLocks.containsKey( resourceId ) );
+                return false;
+            } );
+            int exclusiveSize = exclusiveLocks.size();
+            exclusiveLocks.visitKeys( resourceId ->
+            {
+                releaseGlobalExclusive( lockMap, resourceId, false );
+                return false;
+            } );
+
+            // If the maps are small, its fast and nice to GC to clear them. However, if they are large, it is
+            // faster to simply allocate new ones, and safer, since it guards against clients getting giant maps
+            if ( sharedSize <= 32 )
+            {
+                if ( sharedSize > 0 )
+                {
+                    sharedLocks.clear();
+                }
+            }
+            else
+            {
+                sharedLockCounts[i] = Primitive.longIntMap();
+            }
+            if ( exclusiveSize <= 32 )
+            {
+                if ( exclusiveSize > 0 )
+                {
+                    exclusiveLocks.clear();
+                }
+            }
+            else
+            {
+                exclusiveLockCounts[i] = Primitive.longIntMap();
+            }
+        }
+    }
+
+    /** Release a lock held shared from the global map, retiring the lock if no one holds it anymore. */
+    private void releaseGlobalShared( ConcurrentMap<Long,StripedLock> lockMap, long resourceId,
+            boolean holdsExclusive )
+    {
+        StripedLock lock = lockMap.get( resourceId );
+        lock.releaseShared( stripe );
+        if ( !holdsExclusive && lock.tryRetire( FREE ) )
+        {
+            lockMap.remove( resourceId, lock );
+        }
+    }
+
+    /** Release a lock held exclusively from the global map, retiring the lock if no one holds it anymore. */
+    private void releaseGlobalExclusive( ConcurrentMap<Long,StripedLock> lockMap, long resourceId,
+            boolean holdsShared )
+    {
+        StripedLock lock = lockMap.get( resourceId );
+        if ( holdsShared )
+        {
+            lock.releaseWriter();
+        }
+        else if ( lock.tryRetire( writerId ) )
+        {
+            lockMap.remove( resourceId, lock );
+        }
+    }
+
+    /** Release a lock locally, and return true if we still hold more references to that lock. */
+    private boolean releaseLocalLock( ResourceType type, long resourceId, PrimitiveLongIntMap localLocks )
+    {
+        int lockCount = localLocks.remove( resourceId );
+        if ( lockCount == -1 )
+        {
+            throw new IllegalStateException( this + " cannot release lock that it does not hold: " +
+                                             type + "[" + resourceId + "]." );
+        }
+
+        if ( lockCount > 1 )
+        {
+            localLocks.put( resourceId, lockCount - 1 );
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void stop()
+    {
+        // marking client as closed
+        stateHolder.stopClient();
+        // waiting for all operations to be completed
+        while ( stateHolder.hasActiveClients() )
+        {
+            try
+            {
+                Thread.sleep( 10 );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        stop();
+        if ( hasLocks )
+        {
+            releaseAllClientLocks();
+            hasLocks = false;
+        }
+        clientPool.release( this );
+    }
+
+    @Override
+    public int getLockSessionId()
+    {
+        return clientId;
+    }
+
+    @Override
+    public Stream<? extends ActiveLock> activeLocks()
+    {
+        List<ActiveLock> locks = new ArrayList<>();
+        collectActiveLocks( exclusiveLockCounts, locks, ActiveLock.Factory.EXCLUSIVE_LOCK );
+        collectActiveLocks( sharedLockCounts, locks, ActiveLock.Factory.SHARED_LOCK );
+        return locks.stream();
+    }
+
+    @Override
+    public long activeLockCount()
+    {
+        return countLocks( exclusiveLockCounts ) + countLocks( sharedLockCounts );
+    }
+
+    private static void collectActiveLocks( PrimitiveLongIntMap[] counts, List<ActiveLock> locks,
+            ActiveLock.Factory activeLock )
+    {
+        for ( int typeId = 0; typeId < counts.length; typeId++ )
+        {
+            PrimitiveLongIntMap lockCounts = counts[typeId];
+            if ( lockCounts != null )
+            {
+                ResourceType resourceType = ResourceTypes.fromId( typeId );
+                lockCounts.visitEntries( ( resourceId, count ) ->
+                {
+                    locks.add( activeLock.create( resourceType, resourceId ) );
+                    return false;
+                } );
+            }
+        }
+    }
+
+    private long countLocks( PrimitiveLongIntMap[] lockCounts )
+    {
+        long count = 0;
+        for ( PrimitiveLongIntMap lockCount : lockCounts )
+        {
+            if ( lockCount != null )
+            {
+                count += lockCount.size();
+            }
+        }
+        return count;
+    }
+
+    public int id()
+    {
+        return clientId;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        return clientId == ((StripedClient) o).clientId;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return clientId;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "StripedClient[%d]", clientId );
+    }
+
+    private void waitFor( StripedLock lock, ResourceType type, long resourceId, int tries )
+    {
+        WaitingFor current = waitingFor;
+        if ( current == null || current.lock != lock )
+        {
+            waitingFor = current = new WaitingFor( lock, type, resourceId );
+        }
+        applyWaitStrategy( type, tries );
+
+        if ( tries >= DEADLOCK_DETECTION_THRESHOLD && shouldAbortDeadlock( current ) )
+        {
+            // Take a deep breath and check again, to not abort because of a cycle that was just resolving itself
+            LockSupport.parkNanos( TimeUnit.MILLISECONDS.toNanos( 1 ) );
+            List<StripedClient> cycle = findCycle( current );
+            if ( cycle != null && isHighestId( cycle ) )
+            {
+                contention.deadlockDetected( type );
+                throw new DeadlockDetectedException( this + " can't acquire " + lock + " on " + type + "(" +
+                        resourceId + "), because it is part of a wait cycle: " + cycle );
+            }
+        }
+    }
+
+    private boolean shouldAbortDeadlock( WaitingFor current )
+    {
+        List<StripedClient> cycle = findCycle( current );
+        return cycle != null && isHighestId( cycle );
+    }
+
+    private boolean isHighestId( List<StripedClient> cycle )
+    {
+        for ( StripedClient client : cycle )
+        {
+            if ( client.clientId > clientId )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Breadth first search for a path of waiting clients blocking one another, starting with the clients blocking
+     * us and ending with a client blocked by us.
+     *
+     * @return the clients in the cycle, starting with us, or {@code null} if we don't seem to be in a cycle.
+     */
+    private List<StripedClient> findCycle( WaitingFor ourWait )
+    {
+        Map<StripedClient,StripedClient> blockedBy = new HashMap<>();
+        Deque<StripedClient> queue = new ArrayDeque<>();
+        List<StripedClient> blockers = new ArrayList<>();
+        blockingClients( this, ourWait, blockers );
+        for ( StripedClient blocker : blockers )
+        {
+            blockedBy.put( blocker, this );
+            queue.add( blocker );
+        }
+
+        while ( !queue.isEmpty() )
+        {
+            StripedClient client = queue.poll();
+            WaitingFor wait = client.waitingFor;
+            if ( wait == null )
+            {
+                continue;
+            }
+            blockers.clear();
+            blockingClients( client, wait, blockers );
+            if ( client.waitingFor != wait )
+            {
+                // It stopped waiting while we looked, so it isn't blocked
+                continue;
+            }
+            for ( StripedClient blocker : blockers )
+            {
+                if ( blocker == this )
+                {
+                    List<StripedClient> cycle = new ArrayList<>();
+                    for ( StripedClient c = client; c != this; c = blockedBy.get( c ) )
+                    {
+                        cycle.add( c );
+                    }
+                    cycle.add( this );
+                    return cycle;
+                }
+                if ( !blockedBy.containsKey( blocker ) )
+                {
+                    blockedBy.put( blocker, client );
+                    queue.add( blocker );
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collect the waiting clients, or us, that block the given client from getting what it waits for.
+     */
+    private void blockingClients( StripedClient waiter, WaitingFor wait, List<StripedClient> into )
+    {
+        int writer = wait.lock.writer();
+        if ( writer > 0 && writer != waiter.writerId )
+        {
+            StripedClient holder = clientById.apply( writer - 1 );
+            if ( holder != null && (holder == this || holder.waitingFor != null) )
+            {
+                into.add( holder );
+            }
+        }
+        else if ( writer == waiter.writerId )
+        {
+            // The waiter waits for the readers to drain
+            for ( StripedClient client : clients )
+            {
+                if ( client != waiter && client.holdsSharedWhileWaiting( wait.type, wait.resourceId ) )
+                {
+                    into.add( client );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether or not this client is waiting, and holds the given lock shared while doing so.
+     */
+    private boolean holdsSharedWhileWaiting( ResourceType type, long resourceId )
+    {
+        WaitingFor wait = waitingFor;
+        return wait != null && sharedLocksHeld[type.typeId()].contains( resourceId ) && waitingFor == wait;
+    }
+
+    private void applyWaitStrategy( ResourceType resourceType, int tries )
+    {
+        WaitStrategy<AcquireLockTimeoutException> waitStrategy = waitStrategies[resourceType.typeId()];
+        waitStrategy.apply( tries );
+    }
+
+    private void assertValid( long waitStartMillis, ResourceType resourceType, long resourceId )
+    {
+        assertNotStopped();
+        assertNotExpired( waitStartMillis, resourceType, resourceId );
+    }
+
+    private void assertNotStopped()
+    {
+        if ( stateHolder.isStopped() )
+        {
+            throw new LockClientStoppedException( this );
+        }
+    }
+
+    private void assertNotExpired( long waitStartMillis, ResourceType resourceType, long resourceId )
+    {
+        if ( lockAcquisitionTimeoutMillis > 0 )
+        {
+            if ( (lockAcquisitionTimeoutMillis + waitStartMillis) < clock.millis() )
+            {
+                throw new LockAcquisitionTimeoutException( resourceType, resourceId, lockAcquisitionTimeoutMillis );
+            }
+        }
+    }
+
+    /** What a client is waiting for. Immutable, a new instance is published whenever a client starts waiting. */
+    private static class WaitingFor
+    {
+        private final StripedLock lock;
+        private final ResourceType type;
+        private final long resourceId;
+
+        WaitingFor( StripedLock lock, ResourceType type, long resourceId )
+        {
+            this.lock = lock;
+            this.type = type;
+            this.resourceId = resourceId;
+        }
+    }
+}
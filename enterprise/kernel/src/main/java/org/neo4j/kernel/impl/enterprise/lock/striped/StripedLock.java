@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.striped;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock on a single resource, in the style of a big-reader lock. Shared holders are counted in one of a number of
+ * reader stripes, each on its own cache line, so that clients taking shared locks on the same resource don't
+ * compete for the same cache line. The stripe a client counts itself in is given by its id.
+ * <p/>
+ * Exclusive holders instead claim the {@link #writer} field, after which they wait for the reader stripes to drain.
+ * Shared lockers increment their stripe first and check the writer field after, backing off if there is a writer.
+ * Since both sides write before they read, one of them is guaranteed to see the other.
+ * <p/>
+ * The reader stripes take {@code 64 * (stripes + 1)} bytes, so they are only allocated once the lock is first
+ * acquired shared. A lock that is only ever held exclusively never allocates them.
+ * <p/>
+ * A lock that is not held by anyone can be retired, which marks it {@link #RETIRED} and removes it from the lock map.
+ * Clients that find a retired lock simply look up, or create, the lock for the resource again.
+ */
+class StripedLock
+{
+    /** Value of {@link #writer} when there is no exclusive holder. */
+    static final int FREE = 0;
+
+    /** Value of {@link #writer} for a lock that has been, or is about to be, removed from the lock map. */
+    static final int RETIRED = -1;
+
+    /** Number of longs between two stripes, keeping each stripe on a cache line of its own. */
+    private static final int STRIPE_SPACING = 8;
+
+    private static final AtomicIntegerFieldUpdater<StripedLock> WRITER =
+            AtomicIntegerFieldUpdater.newUpdater( StripedLock.class, "writer" );
+    private static final AtomicReferenceFieldUpdater<StripedLock,AtomicLongArray> READERS =
+            AtomicReferenceFieldUpdater.newUpdater( StripedLock.class, AtomicLongArray.class, "readers" );
+
+    /**
+     * Reader counts, one per stripe, or {@code null} until the lock is first acquired shared. The first cache line is
+     * left empty to stay clear of the array header.
+     */
+    private volatile AtomicLongArray readers;
+    private final int stripeMask;
+
+    /** {@link #FREE}, {@link #RETIRED} or the {@link StripedClient#writerId() writer id} of the exclusive holder. */
+    private volatile int writer;
+
+    /**
+     * @param stripes number of reader stripes, must be a power of two.
+     * @param writer writer id of the client creating this lock exclusively, or {@link #FREE}.
+     * @param reader stripe of the client creating this lock shared, or {@code -1}.
+     */
+    StripedLock( int stripes, int writer, int reader )
+    {
+        this.stripeMask = stripes - 1;
+        this.writer = writer;
+        if ( reader != -1 )
+        {
+            AtomicLongArray stripedReaders = newReaders();
+            stripedReaders.lazySet( index( reader ), 1 );
+            this.readers = stripedReaders;
+        }
+    }
+
+    private AtomicLongArray newReaders()
+    {
+        return new AtomicLongArray( (stripeMask + 2) * STRIPE_SPACING );
+    }
+
+    /**
+     * @return the reader stripes, allocating them if this is the first time this lock is acquired shared.
+     */
+    private AtomicLongArray stripedReaders()
+    {
+        AtomicLongArray current = readers;
+        if ( current == null )
+        {
+            AtomicLongArray created = newReaders();
+            current = READERS.compareAndSet( this, null, created ) ? created : readers;
+        }
+        return current;
+    }
+
+    /**
+     * Fast path of acquiring a shared lock: count ourselves as a reader and check that there is no writer.
+     *
+     * @return {@link #FREE} if the shared lock was acquired, otherwise the current value of {@link #writer}, which
+     * the caller will have to wait for, or look up the lock again in case it was {@link #RETIRED}.
+     */
+    int tryAcquireShared( int stripe, int writerId )
+    {
+        AtomicLongArray stripedReaders = stripedReaders();
+        stripedReaders.incrementAndGet( index( stripe ) );
+        int current = writer;
+        if ( current == FREE || current == writerId )
+        {
+            return FREE;
+        }
+        stripedReaders.decrementAndGet( index( stripe ) );
+        return current;
+    }
+
+    void releaseShared( int stripe )
+    {
+        readers.decrementAndGet( index( stripe ) );
+    }
+
+    /**
+     * Claims the writer field, blocking new shared lockers. The exclusive lock is held once
+     * {@link #readers()} has drained to the number of shared locks held by the writer itself.
+     *
+     * @return {@link #FREE} if the writer field was claimed, otherwise the current value of {@link #writer}.
+     */
+    int tryClaimWriter( int writerId )
+    {
+        if ( WRITER.compareAndSet( this, FREE, writerId ) )
+        {
+            return FREE;
+        }
+        return writer;
+    }
+
+    void releaseWriter()
+    {
+        writer = FREE;
+    }
+
+    /**
+     * Tries to retire this lock, which is only possible if no one holds it. The lock is either free or held
+     * exclusively by the client asking.
+     *
+     * @param expectedWriter {@link #FREE}, or the writer id of the client asking if it holds this lock exclusively.
+     * @return {@code true} if this lock was retired and should be removed from the lock map. If {@code false} the
+     * lock is left free.
+     */
+    boolean tryRetire( int expectedWriter )
+    {
+        if ( expectedWriter == FREE && hasReaders() )
+        {
+            // Most likely someone is still reading, no need to touch the writer field
+            return false;
+        }
+        if ( !WRITER.compareAndSet( this, expectedWriter, RETIRED ) )
+        {
+            return false;
+        }
+        if ( hasReaders() )
+        {
+            // A reader got in before we retired this lock
+            writer = FREE;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean hasReaders()
+    {
+        AtomicLongArray stripedReaders = readers;
+        if ( stripedReaders == null )
+        {
+            return false;
+        }
+        for ( int i = 0; i <= stripeMask; i++ )
+        {
+            if ( stripedReaders.get( index( i ) ) != 0 )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return total number of shared holders, across all stripes. This is a racy sum, only ever exact while
+     * {@link #writer} is claimed.
+     */
+    long readers()
+    {
+        AtomicLongArray stripedReaders = readers;
+        if ( stripedReaders == null )
+        {
+            return 0;
+        }
+        long sum = 0;
+        for ( int i = 0; i <= stripeMask; i++ )
+        {
+            sum += stripedReaders.get( index( i ) );
+        }
+        return sum;
+    }
+
+    int writer()
+    {
+        return writer;
+    }
+
+    private int index( int stripe )
+    {
+        return ((stripe & stripeMask) + 1) * STRIPE_SPACING;
+    }
+
+    @Override
+    public String toString()
+    {
+        int currentWriter = writer;
+        return "StripedLock{" +
+               "objectId=" + System.identityHashCode( this ) +
+               ", writer=" + (currentWriter > 0 ? String.valueOf( currentWriter - 1 ) : "none") +
+               ", readers=" + readers() +
+               '}';
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.striped;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.neo4j.storageengine.api.lock.ResourceType;
+
+/**
+ * Lock contention counters of a {@link StripedLockManager}, per {@link ResourceType}. Only lock acquisitions
+ * that had to wait are counted, so the fast paths of acquiring locks are not slowed down by keeping these.
+ */
+public class StripedLockContention
+{
+    private final LongAdder[] contendedShared;
+    private final LongAdder[] contendedExclusive;
+    private final LongAdder[] waitNanos;
+    private final LongAdder[] deadlocks;
+
+    StripedLockContention( int maxResourceTypeId )
+    {
+        contendedShared = adders( maxResourceTypeId );
+        contendedExclusive = adders( maxResourceTypeId );
+        waitNanos = adders( maxResourceTypeId );
+        deadlocks = adders( maxResourceTypeId );
+    }
+
+    private static LongAdder[] adders( int size )
+    {
+        LongAdder[] adders = new LongAdder[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    void waited( ResourceType resourceType, boolean exclusive, long nanos )
+    {
+        (exclusive ? contendedExclusive : contendedShared)[resourceType.typeId()].increment();
+        waitNanos[resourceType.typeId()].add( nanos );
+    }
+
+    void deadlockDetected( ResourceType resourceType )
+    {
+        deadlocks[resourceType.typeId()].increment();
+    }
+
+    /** @return number of shared lock acquisitions on the given resource type that had to wait. */
+    public long contendedSharedAcquisitions( ResourceType resourceType )
+    {
+        return contendedShared[resourceType.typeId()].sum();
+    }
+
+    /** @return number of exclusive lock acquisitions on the given resource type that had to wait. */
+    public long contendedExclusiveAcquisitions( ResourceType resourceType )
+    {
+        return contendedExclusive[resourceType.typeId()].sum();
+    }
+
+    /** @return total time spent waiting for locks on the given resource type, in nanoseconds. */
+    public long waitTimeNanos( ResourceType resourceType )
+    {
+        return waitNanos[resourceType.typeId()].sum();
+    }
+
+    /** @return number of lock acquisitions on the given resource type aborted because of a deadlock. */
+    public long deadlocks( ResourceType resourceType )
+    {
+        return deadlocks[resourceType.typeId()].sum();
+    }
+}
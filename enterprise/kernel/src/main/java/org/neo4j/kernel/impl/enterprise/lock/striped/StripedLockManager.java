@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.striped;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.collection.pool.LinkedQueuePool;
+import org.neo4j.collection.pool.Pool;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.enterprise.configuration.EnterpriseEditionSettings;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.storageengine.api.lock.AcquireLockTimeoutException;
+import org.neo4j.storageengine.api.lock.ResourceType;
+import org.neo4j.storageengine.api.lock.WaitStrategy;
+
+/**
+ * A lock manager for read heavy workloads, where many clients take shared locks on the same few resources, e.g.
+ * the same dense nodes. Where Forseti has every shared locker CAS the same reference count of a shared lock, this
+ * lock manager counts shared holders in per client stripes of a {@link StripedLock}, each on its own cache line.
+ * Acquiring a shared lock on a resource that is not locked exclusively therefore does not write to any cache line
+ * that clients in other stripes write to. Only exclusive lockers claim the single writer field of a lock, and then
+ * wait for the readers to drain.
+ * <p/>
+ * The price is paid in memory, each lock that has been held shared takes {@code 64 * (stripes + 1)} bytes, and in
+ * that it is not known which clients hold a lock shared. Clients only track their own locks, so deadlock detection,
+ * which is only ever done by clients that have been waiting for a while, asks waiting clients if they hold the lock
+ * being waited for. See {@link StripedClient}.
+ * <p/>
+ * Lock acquisitions that have to wait are counted per {@link ResourceType}, see {@link #contention()}. These counts
+ * are published by the metrics extension when this lock manager is in use.
+ */
+public class StripedLockManager implements Locks
+{
+    /** Pointers to lock maps, one array per resource type. */
+    private final ConcurrentMap<Long,StripedLock>[] lockMaps;
+
+    /** Reverse lookup resource types by id, used for introspection */
+    private final ResourceType[] resourceTypes;
+
+    private final StripedLockContention contention;
+
+    /** Pool striped clients. */
+    private final Pool<StripedClient> clientPool;
+
+    private volatile boolean closed;
+
+    @SuppressWarnings( "unchecked" )
+    public StripedLockManager( Config config, Clock clock, ResourceType... resourceTypes )
+    {
+        int maxResourceId = findMaxResourceId( resourceTypes );
+        this.lockMaps = new ConcurrentMap[maxResourceId];
+        this.resourceTypes = new ResourceType[maxResourceId];
+        this.contention = new StripedLockContention( maxResourceId );
+
+        /* Wait strategies per resource type */
+        WaitStrategy<AcquireLockTimeoutException>[] waitStrategies = new WaitStrategy[maxResourceId];
+
+        for ( ResourceType type : resourceTypes )
+        {
+            this.lockMaps[type.typeId()] = new ConcurrentHashMap<>( 16, 0.6f, 512 );
+            waitStrategies[type.typeId()] = type.waitStrategy();
+            this.resourceTypes[type.typeId()] = type;
+        }
+        int stripes = Integer.highestOneBit(
+                config.get( EnterpriseEditionSettings.striped_lock_manager_stripes ) * 2 - 1 );
+        clientPool = new StripedClientPool( config, clock, lockMaps, waitStrategies, stripes, contention );
+    }
+
+    @Override
+    public Client newClient()
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( this + " already closed" );
+        }
+
+        StripedClient client = clientPool.acquire();
+        client.reset();
+        return client;
+    }
+
+    /**
+     * @return counters of lock acquisitions that had to wait, per {@link ResourceType}.
+     */
+    public StripedLockContention contention()
+    {
+        return contention;
+    }
+
+    @Override
+    public void accept( Visitor out )
+    {
+        for ( int i = 0; i < lockMaps.length; i++ )
+        {
+            if ( lockMaps[i] != null )
+            {
+                ResourceType type = resourceTypes[i];
+                for ( Map.Entry<Long,StripedLock> entry : lockMaps[i].entrySet() )
+                {
+                    StripedLock lock = entry.getValue();
+                    out.visit( type, entry.getKey(), lock.toString(), 0, System.identityHashCode( lock ) );
+                }
+            }
+        }
+    }
+
+    private int findMaxResourceId( ResourceType[] resourceTypes )
+    {
+        int max = 0;
+        for ( ResourceType resourceType : resourceTypes )
+        {
+            max = Math.max( resourceType.typeId(), max );
+        }
+        return max + 1;
+    }
+
+    @Override
+    public void close()
+    {
+        this.closed = true;
+    }
+
+    private static class StripedClientPool extends LinkedQueuePool<StripedClient>
+    {
+        /** Client id counter **/
+        private final AtomicInteger clientIds = new AtomicInteger( 0 );
+
+        /** Re-use ids, they decide which reader stripe clients count themselves in, so keep them low. */
+        private final Queue<Integer> unusedIds = new ConcurrentLinkedQueue<>();
+        private final ConcurrentMap<Integer,StripedClient> clientsById = new ConcurrentHashMap<>();
+        private final Config config;
+        private final Clock clock;
+        private final ConcurrentMap<Long,StripedLock>[] lockMaps;
+        private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
+        private final int stripes;
+        private final StripedLockContention contention;
+
+        StripedClientPool( Config config, Clock clock, ConcurrentMap<Long,StripedLock>[] lockMaps,
+                WaitStrategy<AcquireLockTimeoutException>[] waitStrategies, int stripes,
+                StripedLockContention contention )
+        {
+            super( 128, null );
+            this.config = config;
+            this.clock = clock;
+            this.lockMaps = lockMaps;
+            this.waitStrategies = waitStrategies;
+            this.stripes = stripes;
+            this.contention = contention;
+        }
+
+        @Override
+        protected StripedClient create()
+        {
+            Integer id = unusedIds.poll();
+            if ( id == null )
+            {
+                id = clientIds.getAndIncrement();
+            }
+            long lockAcquisitionTimeoutMillis = config.get( GraphDatabaseSettings.lock_acquisition_timeout ).toMillis();
+            StripedClient client = new StripedClient( id, lockMaps, waitStrategies, this, stripes, contention,
+                    clientsById::get, clientsById.values(), lockAcquisitionTimeoutMillis, clock );
+            clientsById.put( id, client );
+            return client;
+        }
+
+        @Override
+        protected void dispose( StripedClient resource )
+        {
+            super.dispose( resource );
+            clientsById.remove( resource.id() );
+            if ( resource.id() < 1024 )
+            {
+                // Re-use all ids < 1024
+                unusedIds.offer( resource.id() );
+            }
+        }
+    }
+}
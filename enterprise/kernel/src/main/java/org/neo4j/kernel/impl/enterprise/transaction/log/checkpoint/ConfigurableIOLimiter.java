@@ -113,6 +113,12 @@ public class ConfigurableIOLimiter implements IOLimiter
         return then + (ioSum << TIME_BITS);
     }
 
+    @Override
+    public boolean isLimited()
+    {
+        return disabledCount == 0;
+    }
+
     @Override
     public void disableLimit()
     {
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.enterprise.builtinprocs;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import org.neo4j.function.ThrowingFunction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.enterprise.lock.forseti.ForsetiClient;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.test.rule.DatabaseRule;
+import org.neo4j.test.rule.ImpermanentEnterpriseDatabaseRule;
+import org.neo4j.test.rule.concurrent.ThreadingRule;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.test.rule.concurrent.ThreadingRule.waitingWhileIn;
+
+public class ListLockContentionProcedureTest
+{
+    private final DatabaseRule db = new ImpermanentEnterpriseDatabaseRule();
+    private final ThreadingRule threads = new ThreadingRule();
+
+    @Rule
+    public final RuleChain chain = RuleChain.outerRule( db ).around( threads );
+
+    @Test
+    public void shouldListNothingWithoutContention() throws Exception
+    {
+        // when
+        try ( Result result = db.execute( "CALL dbms.listLockContention()" ) )
+        {
+            // then
+            assertFalse( result.hasNext() );
+        }
+    }
+
+    @Test
+    public void shouldListContendedResourceWithWaitsAndCurrentHolder() throws Exception
+    {
+        // given
+        Node node = createNode();
+        CountDownLatch firstLocked = new CountDownLatch( 1 );
+        CountDownLatch releaseFirst = new CountDownLatch( 1 );
+        CountDownLatch secondLocked = new CountDownLatch( 1 );
+        CountDownLatch releaseSecond = new CountDownLatch( 1 );
+        Future<Void> first = threads.execute( lock( node, firstLocked, releaseFirst ), null );
+        firstLocked.await();
+        Future<Void> second = threads.executeAndAwait( lock( node, secondLocked, releaseSecond ), null,
+                waitingWhileIn( ForsetiClient.class, "acquireExclusive" ), 60, SECONDS );
+        releaseFirst.countDown();
+        first.get();
+        secondLocked.await();
+
+        try
+        {
+            // when
+            try ( Result result = db.execute( "CALL dbms.listLockContention()" ) )
+            {
+                // then
+                assertTrue( result.hasNext() );
+                Map<String,Object> row = result.next();
+                assertFalse( result.hasNext() );
+                assertEquals( ResourceTypes.NODE.name(), row.get( "resourceType" ) );
+                assertEquals( node.getId(), row.get( "resourceId" ) );
+                assertEquals( 1L, row.get( "waits" ) );
+                assertEquals( 1L, row.get( "exclusiveWaits" ) );
+                assertEquals( 1L, ((Map<?,?>) row.get( "waitTimeHistogram" )).values().stream()
+                        .mapToLong( count -> (Long) count ).sum() );
+                List<?> holders = (List<?>) row.get( "holders" );
+                assertEquals( 1, holders.size() );
+                assertEquals( "EXCLUSIVE", ((Map<?,?>) holders.get( 0 )).get( "mode" ) );
+            }
+        }
+        finally
+        {
+            releaseSecond.countDown();
+            second.get();
+        }
+    }
+
+    @Test
+    public void shouldLimitNumberOfListedResources() throws Exception
+    {
+        // given
+        Node first = createNode();
+        Node second = createNode();
+        contend( first );
+        contend( second );
+
+        // when
+        try ( Result result = db.execute( "CALL dbms.listLockContention(1)" ) )
+        {
+            // then
+            assertTrue( result.hasNext() );
+            result.next();
+            assertFalse( result.hasNext() );
+        }
+    }
+
+    private void contend( Node node ) throws Exception
+    {
+        CountDownLatch locked = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        Future<Void> holder = threads.execute( lock( node, locked, release ), null );
+        locked.await();
+        Future<Void> waiter = threads.executeAndAwait( lock( node, new CountDownLatch( 1 ), new CountDownLatch( 0 ) ),
+                null, waitingWhileIn( ForsetiClient.class, "acquireExclusive" ), 60, SECONDS );
+        release.countDown();
+        holder.get();
+        waiter.get();
+    }
+
+    private Node createNode()
+    {
+        try ( Transaction tx = db.beginTx() )
+        {
+            Node node = db.createNode();
+            tx.success();
+            return node;
+        }
+    }
+
+    private ThrowingFunction<Void,Void,InterruptedException> lock( Node node, CountDownLatch locked,
+            CountDownLatch release )
+    {
+        return ignored ->
+        {
+            try ( Transaction tx = db.beginTx() )
+            {
+                tx.acquireWriteLock( node );
+                locked.countDown();
+                release.await();
+            }
+            return null;
+        };
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.striped;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.DeadlockDetectedException;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.locking.LockTracer;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.test.OtherThreadExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.LABEL;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.NODE;
+
+public class StripedLockManagerTest
+{
+    private final StripedLockManager locks =
+            new StripedLockManager( Config.defaults(), Clock.systemUTC(), ResourceTypes.values() );
+
+    @Test
+    public void shouldRemoveLocksNoLongerHeld() throws Exception
+    {
+        // Given
+        try ( Locks.Client clientA = locks.newClient();
+              Locks.Client clientB = locks.newClient() )
+        {
+            clientA.acquireShared( LockTracer.NONE, NODE, 1L );
+            clientB.acquireShared( LockTracer.NONE, NODE, 1L );
+            clientB.acquireExclusive( LockTracer.NONE, NODE, 2L );
+
+            // When
+            clientA.releaseShared( NODE, 1L );
+            clientB.releaseExclusive( NODE, 2L );
+            assertEquals( 1, countLocks() );
+            clientB.releaseShared( NODE, 1L );
+
+            // Then
+            assertEquals( 0, countLocks() );
+        }
+    }
+
+    @Test
+    public void shouldDowngradeExclusiveLockToSharedLock() throws Exception
+    {
+        try ( Locks.Client clientA = locks.newClient();
+              Locks.Client clientB = locks.newClient() )
+        {
+            // Given
+            clientA.acquireExclusive( LockTracer.NONE, NODE, 1L );
+            clientA.acquireShared( LockTracer.NONE, NODE, 1L );
+            assertFalse( clientB.trySharedLock( NODE, 1L ) );
+
+            // When
+            clientA.releaseExclusive( NODE, 1L );
+
+            // Then
+            assertTrue( clientB.trySharedLock( NODE, 1L ) );
+            assertFalse( clientB.tryExclusiveLock( NODE, 1L ) );
+        }
+        assertEquals( 0, countLocks() );
+    }
+
+    @Test
+    public void shouldCountContendedAcquisitionsPerResourceType() throws Exception
+    {
+        try ( Locks.Client clientA = locks.newClient();
+              Locks.Client clientB = locks.newClient();
+              OtherThreadExecutor<Void> other = new OtherThreadExecutor<>( "other", null ) )
+        {
+            // Given
+            clientA.acquireExclusive( LockTracer.NONE, LABEL, 1L );
+            Future<Object> shared = other.executeDontWait( state ->
+            {
+                clientB.acquireShared( LockTracer.NONE, LABEL, 1L );
+                return null;
+            } );
+            other.waitUntilWaiting( details -> details.isAt( StripedClient.class, "applyWaitStrategy" ) );
+
+            // When
+            clientA.releaseExclusive( LABEL, 1L );
+            shared.get( 10, TimeUnit.SECONDS );
+
+            // Then
+            StripedLockContention contention = locks.contention();
+            assertEquals( 1, contention.contendedSharedAcquisitions( LABEL ) );
+            assertEquals( 0, contention.contendedExclusiveAcquisitions( LABEL ) );
+            assertTrue( contention.waitTimeNanos( LABEL ) > 0 );
+            assertEquals( 0, contention.contendedSharedAcquisitions( NODE ) );
+        }
+    }
+
+    @Test
+    public void shouldDetectDeadlockWhenUpgradingSharedLocks() throws Exception
+    {
+        try ( Locks.Client clientA = locks.newClient();
+              Locks.Client clientB = locks.newClient();
+              OtherThreadExecutor<Void> other = new OtherThreadExecutor<>( "other", null ) )
+        {
+            // Given
+            clientA.acquireShared( LockTracer.NONE, NODE, 1L );
+            clientB.acquireShared( LockTracer.NONE, NODE, 1L );
+            Future<Object> upgradeA = other.executeDontWait( state ->
+            {
+                clientA.acquireExclusive( LockTracer.NONE, NODE, 1L );
+                return null;
+            } );
+            other.waitUntilWaiting( details -> details.isAt( StripedClient.class, "applyWaitStrategy" ) );
+
+            // When
+            try
+            {
+                clientB.acquireExclusive( LockTracer.NONE, NODE, 1L );
+                fail( "Should have detected deadlock" );
+            }
+            catch ( DeadlockDetectedException e )
+            {
+                // Then the client with the highest id in the wait cycle gives up, letting the other one through
+                clientB.releaseShared( NODE, 1L );
+                upgradeA.get( 10, TimeUnit.SECONDS );
+            }
+
+            // Then
+            assertEquals( 1, locks.contention().deadlocks( NODE ) );
+        }
+    }
+
+    private int countLocks()
+    {
+        int[] count = new int[1];
+        locks.accept( ( resourceType, resourceId, description, estimatedWaitTime, lockIdentityHashCode ) ->
+                count[0]++ );
+        return count[0];
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.striped;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.kernel.impl.enterprise.lock.striped.StripedLock.FREE;
+import static org.neo4j.kernel.impl.enterprise.lock.striped.StripedLock.RETIRED;
+
+public class StripedLockTest
+{
+    @Test
+    public void shouldCountReadersAcrossStripes() throws Exception
+    {
+        // Given
+        StripedLock lock = new StripedLock( 4, FREE, 0 );
+
+        // When
+        assertEquals( FREE, lock.tryAcquireShared( 1, 2 ) );
+        assertEquals( FREE, lock.tryAcquireShared( 5, 6 ) );
+
+        // Then
+        assertEquals( 3, lock.readers() );
+    }
+
+    @Test
+    public void shouldKeepReadersOutWhileWriterIsClaimed() throws Exception
+    {
+        // Given
+        StripedLock lock = new StripedLock( 4, FREE, 0 );
+
+        // When
+        assertEquals( FREE, lock.tryClaimWriter( 2 ) );
+
+        // Then
+        assertEquals( 2, lock.tryAcquireShared( 3, 4 ) );
+        assertEquals( 1, lock.readers() );
+        assertEquals( 2, lock.tryClaimWriter( 4 ) );
+    }
+
+    @Test
+    public void shouldLetWriterAcquireSharedToo() throws Exception
+    {
+        // Given
+        StripedLock lock = new StripedLock( 4, 2, -1 );
+
+        // When
+        assertEquals( FREE, lock.tryAcquireShared( 1, 2 ) );
+
+        // Then
+        assertEquals( 1, lock.readers() );
+    }
+
+    @Test
+    public void shouldNotRetireLockWithReaders() throws Exception
+    {
+        // Given
+        StripedLock lock = new StripedLock( 4, FREE, 0 );
+        assertEquals( FREE, lock.tryAcquireShared( 1, 2 ) );
+        lock.releaseShared( 0 );
+
+        // When
+        assertFalse( lock.tryRetire( FREE ) );
+
+        // Then
+        assertEquals( FREE, lock.writer() );
+        lock.releaseShared( 1 );
+        assertTrue( lock.tryRetire( FREE ) );
+        assertEquals( RETIRED, lock.tryAcquireShared( 0, 1 ) );
+        assertEquals( RETIRED, lock.tryClaimWriter( 1 ) );
+        assertEquals( 0, lock.readers() );
+    }
+
+    @Test
+    public void shouldRetireLockReleasedByWriter() throws Exception
+    {
+        // Given
+        StripedLock lock = new StripedLock( 4, 3, -1 );
+
+        // When
+        assertTrue( lock.tryRetire( 3 ) );
+
+        // Then
+        assertEquals( RETIRED, lock.writer() );
+    }
+}
@@ -34,7 +34,9 @@ import org.neo4j.kernel.configuration.Config;
 
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.neo4j.helpers.collection.MapUtil.stringMap;
 
 public class ConfigurableIOLimiterTest
@@ -123,6 +125,26 @@ public class ConfigurableIOLimiterTest
         assertThat( pauseNanosCounter.get(), greaterThan( TimeUnit.SECONDS.toNanos( 9 ) ) );
     }
 
+    @Test
+    public void mustReportWhetherOrNotIOIsCurrentlyLimited() throws Exception
+    {
+        createIOLimiter( -1 );
+        assertFalse( limiter.isLimited() );
+
+        createIOLimiter( 100 );
+        assertTrue( limiter.isLimited() );
+        limiter.disableLimit();
+        try
+        {
+            assertFalse( limiter.isLimited() );
+        }
+        finally
+        {
+            limiter.enableLimit();
+        }
+        assertTrue( limiter.isLimited() );
+    }
+
     private long repeatedlyCallMaybeLimitIO( IOLimiter ioLimiter, long stamp, int iosPerIteration ) throws IOException
     {
         for ( int i = 0; i < 100; i++ )
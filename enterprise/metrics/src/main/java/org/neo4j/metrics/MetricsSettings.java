@@ -90,6 +90,11 @@ public class MetricsSettings implements LoadableConfig
     public static Setting<Boolean> neoLogRotationEnabled = buildSetting(
             "metrics.neo4j.logrotation.enabled", BOOLEAN ).inherits( neoEnabled ).build();
 
+    @Description( "Enable reporting metrics about lock contention; how often and for how long transactions wait for " +
+                  "locks, per resource type, as sampled by the lock contention profiler." )
+    public static Setting<Boolean> neoLocksEnabled = buildSetting(
+            "metrics.neo4j.locks.enabled", BOOLEAN ).inherits( neoEnabled ).build();
+
     @Description( "Enable reporting metrics about HA cluster info." )
     public static Setting<Boolean> neoClusterEnabled = buildSetting(
             "metrics.neo4j.cluster.enabled", BOOLEAN ).inherits( neoEnabled ).build();
@@ -27,8 +27,12 @@ import org.neo4j.causalclustering.core.consensus.CoreMetaData;
 import org.neo4j.io.pagecache.monitoring.PageCacheCounters;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.ha.cluster.member.ClusterMembers;
+import org.neo4j.kernel.impl.api.CommitStageMonitor;
 import org.neo4j.kernel.impl.api.LogRotationMonitor;
+import org.neo4j.kernel.impl.enterprise.lock.striped.StripedLockManager;
 import org.neo4j.kernel.impl.factory.OperationalMode;
+import org.neo4j.kernel.impl.locking.LockContentionProfiler;
+import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.spi.KernelContext;
 import org.neo4j.kernel.impl.store.stats.StoreEntityCounters;
@@ -48,8 +52,11 @@ import org.neo4j.metrics.source.db.BoltMetrics;
 import org.neo4j.metrics.source.db.CheckPointingMetrics;
 import org.neo4j.metrics.source.db.CypherMetrics;
 import org.neo4j.metrics.source.db.EntityCountMetrics;
+import org.neo4j.metrics.source.db.GroupCommitMetrics;
+import org.neo4j.metrics.source.db.LockContentionMetrics;
 import org.neo4j.metrics.source.db.LogRotationMetrics;
 import org.neo4j.metrics.source.db.PageCacheMetrics;
+import org.neo4j.metrics.source.db.StripedLockMetrics;
 import org.neo4j.metrics.source.db.TransactionMetrics;
 import org.neo4j.metrics.source.jvm.GCMetrics;
 import org.neo4j.metrics.source.jvm.MemoryBuffersMetrics;
@@ -79,6 +86,8 @@ public class Neo4jMetricsBuilder
 
         LogRotationMonitor logRotationMonitor();
 
+        CommitStageMonitor commitStageMonitor();
+
         StoreEntityCounters entityCountStats();
 
         Supplier<ClusterMembers> clusterMembers();
@@ -86,6 +95,10 @@ public class Neo4jMetricsBuilder
         Supplier<CoreMetaData> raft();
 
         Supplier<TransactionIdStore> transactionIdStore();
+
+        LockContentionProfiler lockContentionProfiler();
+
+        Locks lockManager();
     }
 
     public Neo4jMetricsBuilder( MetricRegistry registry, EventReporter reporter, Config config, LogService logService,
@@ -106,7 +119,8 @@ public class Neo4jMetricsBuilder
         if ( config.get( MetricsSettings.neoTxEnabled ) )
         {
             life.add( new TransactionMetrics( registry, dependencies.transactionIdStore(),
-                    dependencies.transactionCounters() ) );
+                    dependencies.transactionCounters(), dependencies.commitStageMonitor() ) );
+            life.add( new GroupCommitMetrics( registry, dependencies.monitors() ) );
             result = true;
         }
 
@@ -130,6 +144,17 @@ public class Neo4jMetricsBuilder
             result = true;
         }
 
+        if ( config.get( MetricsSettings.neoLocksEnabled ) )
+        {
+            life.add( new LockContentionMetrics( registry, dependencies.lockContentionProfiler() ) );
+            Locks lockManager = dependencies.lockManager();
+            if ( lockManager instanceof StripedLockManager )
+            {
+                life.add( new StripedLockMetrics( registry, ((StripedLockManager) lockManager).contention() ) );
+            }
+            result = true;
+        }
+
         if ( config.get( MetricsSettings.neoCountsEnabled ) )
         {
             life.add( new EntityCountMetrics( registry, dependencies.entityCountStats() ) );
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.metrics.source.db;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.kernel.impl.annotations.Documented;
+import org.neo4j.kernel.impl.transaction.log.GroupCommitTransactionAppender;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.kernel.monitoring.Monitors;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+@Documented( ".Database Group Commit Metrics" )
+public class GroupCommitMetrics extends LifecycleAdapter
+{
+    private static final String GROUP_COMMIT_PREFIX = "neo4j.transaction.group_commit";
+
+    @Documented( "The total number of groups of transactions appended and forced to the transaction log, " +
+                 "only reported when group commit is enabled" )
+    public static final String GROUPS = name( GROUP_COMMIT_PREFIX, "groups" );
+    @Documented( "The total number of transactions appended to the transaction log in groups" )
+    public static final String TRANSACTIONS = name( GROUP_COMMIT_PREFIX, "transactions" );
+
+    @Documented( "The median number of transactions per group. Group percentiles cover roughly the groups " +
+                 "committed in the last five minutes" )
+    public static final String GROUP_SIZE_P50 = name( GROUP_COMMIT_PREFIX, "size", "p50" );
+    @Documented( "The 99th percentile of the number of transactions per group" )
+    public static final String GROUP_SIZE_P99 = name( GROUP_COMMIT_PREFIX, "size", "p99" );
+    @Documented( "The median time from when the first transaction of a group was queued, until the group was " +
+                 "durable in the transaction log, in microseconds" )
+    public static final String GROUP_LATENCY_P50 = name( GROUP_COMMIT_PREFIX, "latency", "p50" );
+    @Documented( "The 99th percentile of the time from when the first transaction of a group was queued, until " +
+                 "the group was durable in the transaction log, in microseconds" )
+    public static final String GROUP_LATENCY_P99 = name( GROUP_COMMIT_PREFIX, "latency", "p99" );
+
+    private final MetricRegistry registry;
+    private final Monitors monitors;
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong transactions = new AtomicLong();
+    private final Histogram groupSizes = new Histogram( new ExponentiallyDecayingReservoir() );
+    private final Histogram groupLatencies = new Histogram( new ExponentiallyDecayingReservoir() );
+    private final GroupCommitTransactionAppender.Monitor listener;
+
+    public GroupCommitMetrics( MetricRegistry registry, Monitors monitors )
+    {
+        this.registry = registry;
+        this.monitors = monitors;
+        this.listener = ( batches, transactions, latencyNanos ) ->
+        {
+            this.groups.incrementAndGet();
+            this.transactions.addAndGet( transactions );
+            groupSizes.update( transactions );
+            groupLatencies.update( TimeUnit.NANOSECONDS.toMicros( latencyNanos ) );
+        };
+    }
+
+    @Override
+    public void start()
+    {
+        monitors.addMonitorListener( listener );
+
+        registry.register( GROUPS, (Gauge<Long>) groups::get );
+        registry.register( TRANSACTIONS, (Gauge<Long>) transactions::get );
+        registry.register( GROUP_SIZE_P50, (Gauge<Double>) () -> groupSizes.getSnapshot().getMedian() );
+        registry.register( GROUP_SIZE_P99, (Gauge<Double>) () -> groupSizes.getSnapshot().get99thPercentile() );
+        registry.register( GROUP_LATENCY_P50, (Gauge<Double>) () -> groupLatencies.getSnapshot().getMedian() );
+        registry.register( GROUP_LATENCY_P99,
+                (Gauge<Double>) () -> groupLatencies.getSnapshot().get99thPercentile() );
+    }
+
+    @Override
+    public void stop()
+    {
+        monitors.removeMonitorListener( listener );
+
+        registry.remove( GROUPS );
+        registry.remove( TRANSACTIONS );
+        registry.remove( GROUP_SIZE_P50 );
+        registry.remove( GROUP_SIZE_P99 );
+        registry.remove( GROUP_LATENCY_P50 );
+        registry.remove( GROUP_LATENCY_P99 );
+    }
+}
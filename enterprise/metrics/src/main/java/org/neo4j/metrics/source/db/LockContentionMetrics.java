@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.metrics.source.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.impl.annotations.Documented;
+import org.neo4j.kernel.impl.locking.LockContentionProfiler;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+@Documented( ".Database Lock Contention Metrics" )
+public class LockContentionMetrics extends LifecycleAdapter
+{
+    private static final String LOCKS_PREFIX = "neo4j.locks";
+
+    @Documented( "The total number of sampled lock waits. Also reported per resource type, e.g. " +
+                 "neo4j.locks.node.waits" )
+    public static final String LOCK_WAITS = name( LOCKS_PREFIX, "waits" );
+    @Documented( "The total sampled time spent waiting for locks, in milliseconds. Also reported per resource type, " +
+                 "e.g. neo4j.locks.node.wait_time" )
+    public static final String LOCK_WAIT_TIME = name( LOCKS_PREFIX, "wait_time" );
+    @Documented( "The median sampled lock wait time, in milliseconds, to the precision of the wait time histogram " +
+                 "of the lock contention profiler. Also reported per resource type, " +
+                 "e.g. neo4j.locks.node.wait_time.p50" )
+    public static final String LOCK_WAIT_TIME_P50 = name( LOCK_WAIT_TIME, "p50" );
+    @Documented( "The 99th percentile of the sampled lock wait time, in milliseconds. Also reported per resource " +
+                 "type, e.g. neo4j.locks.node.wait_time.p99" )
+    public static final String LOCK_WAIT_TIME_P99 = name( LOCK_WAIT_TIME, "p99" );
+
+    private static final String[] WAIT_TIME_QUANTILE_NAMES = {"p50", "p99"};
+    private static final double[] WAIT_TIME_QUANTILES = {0.5, 0.99};
+
+    private final MetricRegistry registry;
+    private final LockContentionProfiler profiler;
+
+    public LockContentionMetrics( MetricRegistry registry, LockContentionProfiler profiler )
+    {
+        this.registry = registry;
+        this.profiler = profiler;
+    }
+
+    @Override
+    public void start()
+    {
+        registry.register( LOCK_WAITS, (Gauge<Long>) () ->
+        {
+            long waits = 0;
+            for ( ResourceTypes type : ResourceTypes.values() )
+            {
+                waits += profiler.waits( type );
+            }
+            return waits;
+        } );
+        registry.register( LOCK_WAIT_TIME, (Gauge<Long>) () ->
+        {
+            long nanos = 0;
+            for ( ResourceTypes type : ResourceTypes.values() )
+            {
+                nanos += profiler.waitTimeNanos( type );
+            }
+            return TimeUnit.NANOSECONDS.toMillis( nanos );
+        } );
+        for ( int i = 0; i < WAIT_TIME_QUANTILES.length; i++ )
+        {
+            double quantile = WAIT_TIME_QUANTILES[i];
+            registry.register( name( LOCK_WAIT_TIME, WAIT_TIME_QUANTILE_NAMES[i] ), (Gauge<Long>) () ->
+                    LockContentionProfiler.waitTimeMillisAtQuantile( totalWaitTimeHistogram(), quantile ) );
+        }
+        for ( ResourceTypes type : ResourceTypes.values() )
+        {
+            registry.register( waitsName( type ), (Gauge<Long>) () -> profiler.waits( type ) );
+            registry.register( waitTimeName( type ),
+                    (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis( profiler.waitTimeNanos( type ) ) );
+            for ( int i = 0; i < WAIT_TIME_QUANTILES.length; i++ )
+            {
+                double quantile = WAIT_TIME_QUANTILES[i];
+                registry.register( name( waitTimeName( type ), WAIT_TIME_QUANTILE_NAMES[i] ),
+                        (Gauge<Long>) () -> profiler.waitTimeMillisAtQuantile( type, quantile ) );
+            }
+        }
+    }
+
+    private long[] totalWaitTimeHistogram()
+    {
+        long[] total = null;
+        for ( ResourceTypes type : ResourceTypes.values() )
+        {
+            long[] histogram = profiler.waitTimeHistogram( type );
+            if ( total == null )
+            {
+                total = histogram;
+            }
+            else
+            {
+                for ( int i = 0; i < total.length; i++ )
+                {
+                    total[i] += histogram[i];
+                }
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void stop()
+    {
+        registry.remove( LOCK_WAITS );
+        registry.remove( LOCK_WAIT_TIME );
+        for ( String quantileName : WAIT_TIME_QUANTILE_NAMES )
+        {
+            registry.remove( name( LOCK_WAIT_TIME, quantileName ) );
+        }
+        for ( ResourceTypes type : ResourceTypes.values() )
+        {
+            registry.remove( waitsName( type ) );
+            registry.remove( waitTimeName( type ) );
+            for ( String quantileName : WAIT_TIME_QUANTILE_NAMES )
+            {
+                registry.remove( name( waitTimeName( type ), quantileName ) );
+            }
+        }
+    }
+
+    static String waitsName( ResourceTypes type )
+    {
+        return name( LOCKS_PREFIX, type.name().toLowerCase(), "waits" );
+    }
+
+    static String waitTimeName( ResourceTypes type )
+    {
+        return name( LOCKS_PREFIX, type.name().toLowerCase(), "wait_time" );
+    }
+}
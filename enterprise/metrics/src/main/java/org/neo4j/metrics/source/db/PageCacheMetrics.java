@@ -37,6 +37,12 @@ public class PageCacheMetrics extends LifecycleAdapter
     public static final String PC_EVICTION_EXCEPTIONS = name( PAGE_CACHE_PREFIX, "eviction_exceptions" );
     @Documented( "The total number of flushes executed by the page cache" )
     public static final String PC_FLUSHES = name( PAGE_CACHE_PREFIX, "flushes" );
+    @Documented( "The average number of bytes written per flush, by the page cache" )
+    public static final String PC_AVERAGE_FLUSH_SIZE = name( PAGE_CACHE_PREFIX, "average_flush_size" );
+    @Documented( "The total number of pages promoted to the protected segment by the page cache eviction policy" )
+    public static final String PC_PROMOTIONS = name( PAGE_CACHE_PREFIX, "promotions" );
+    @Documented( "The total number of pages demoted from the protected segment by the page cache eviction policy" )
+    public static final String PC_DEMOTIONS = name( PAGE_CACHE_PREFIX, "demotions" );
     @Documented( "The total number of page unpins executed by the page cache" )
     public static final String PC_UNPINS = name( PAGE_CACHE_PREFIX, "unpins" );
     @Documented( "The total number of page pins executed by the page cache" )
@@ -68,6 +74,9 @@ public class PageCacheMetrics extends LifecycleAdapter
         registry.register( PC_UNPINS, (Gauge<Long>) pageCacheCounters::unpins );
         registry.register( PC_HITS, (Gauge<Long>) pageCacheCounters::hits );
         registry.register( PC_FLUSHES, (Gauge<Long>) pageCacheCounters::flushes );
+        registry.register( PC_AVERAGE_FLUSH_SIZE, (Gauge<Double>) pageCacheCounters::averageFlushSize );
+        registry.register( PC_PROMOTIONS, (Gauge<Long>) pageCacheCounters::promotions );
+        registry.register( PC_DEMOTIONS, (Gauge<Long>) pageCacheCounters::demotions );
         registry.register( PC_EVICTION_EXCEPTIONS, (Gauge<Long>) pageCacheCounters::evictionExceptions );
         registry.register( PC_HIT_RATIO, (Gauge<Double>) pageCacheCounters::hitRatio );
     }
@@ -81,6 +90,9 @@ public class PageCacheMetrics extends LifecycleAdapter
         registry.remove( PC_UNPINS );
         registry.remove( PC_HITS );
         registry.remove( PC_FLUSHES );
+        registry.remove( PC_AVERAGE_FLUSH_SIZE );
+        registry.remove( PC_PROMOTIONS );
+        registry.remove( PC_DEMOTIONS );
         registry.remove( PC_EVICTION_EXCEPTIONS );
         registry.remove( PC_HIT_RATIO );
     }
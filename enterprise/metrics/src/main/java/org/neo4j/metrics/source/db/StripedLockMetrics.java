@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.metrics.source.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.impl.annotations.Documented;
+import org.neo4j.kernel.impl.enterprise.lock.striped.StripedLockContention;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+@Documented( ".Database Striped Lock Manager Metrics" )
+public class StripedLockMetrics extends LifecycleAdapter
+{
+    private static final String STRIPED_LOCKS_PREFIX = "neo4j.locks.striped";
+
+    @Documented( "The number of shared lock acquisitions that had to wait, per resource type, " +
+                 "e.g. neo4j.locks.striped.node.contended_shared. Only reported when the striped lock manager " +
+                 "is in use" )
+    public static final String CONTENDED_SHARED = name( STRIPED_LOCKS_PREFIX, "<type>", "contended_shared" );
+    @Documented( "The number of exclusive lock acquisitions that had to wait, per resource type, " +
+                 "e.g. neo4j.locks.striped.node.contended_exclusive" )
+    public static final String CONTENDED_EXCLUSIVE = name( STRIPED_LOCKS_PREFIX, "<type>", "contended_exclusive" );
+    @Documented( "The total time spent waiting for locks, in milliseconds, per resource type, " +
+                 "e.g. neo4j.locks.striped.node.wait_time" )
+    public static final String WAIT_TIME = name( STRIPED_LOCKS_PREFIX, "<type>", "wait_time" );
+    @Documented( "The number of lock acquisitions aborted because of a deadlock, per resource type, " +
+                 "e.g. neo4j.locks.striped.node.deadlocks" )
+    public static final String DEADLOCKS = name( STRIPED_LOCKS_PREFIX, "<type>", "deadlocks" );
+
+    private static final String[] METRIC_NAMES = {"contended_shared", "contended_exclusive", "wait_time", "deadlocks"};
+
+    private final MetricRegistry registry;
+    private final StripedLockContention contention;
+
+    public StripedLockMetrics( MetricRegistry registry, StripedLockContention contention )
+    {
+        this.registry = registry;
+        this.contention = contention;
+    }
+
+    @Override
+    public void start()
+    {
+        for ( ResourceTypes type : ResourceTypes.values() )
+        {
+            registry.register( metricName( type, "contended_shared" ),
+                    (Gauge<Long>) () -> contention.contendedSharedAcquisitions( type ) );
+            registry.register( metricName( type, "contended_exclusive" ),
+                    (Gauge<Long>) () -> contention.contendedExclusiveAcquisitions( type ) );
+            registry.register( metricName( type, "wait_time" ),
+                    (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis( contention.waitTimeNanos( type ) ) );
+            registry.register( metricName( type, "deadlocks" ), (Gauge<Long>) () -> contention.deadlocks( type ) );
+        }
+    }
+
+    @Override
+    public void stop()
+    {
+        for ( ResourceTypes type : ResourceTypes.values() )
+        {
+            for ( String metric : METRIC_NAMES )
+            {
+                registry.remove( metricName( type, metric ) );
+            }
+        }
+    }
+
+    static String metricName( ResourceTypes type, String metric )
+    {
+        return name( STRIPED_LOCKS_PREFIX, type.name().toLowerCase(), metric );
+    }
+}
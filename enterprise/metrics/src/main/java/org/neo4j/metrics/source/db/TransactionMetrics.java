@@ -22,9 +22,12 @@ package org.neo4j.metrics.source.db;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import org.neo4j.kernel.impl.annotations.Documented;
+import org.neo4j.kernel.impl.api.CommitStage;
+import org.neo4j.kernel.impl.api.CommitStageMonitor;
 import org.neo4j.kernel.impl.transaction.TransactionCounters;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
@@ -40,6 +43,9 @@ public class TransactionMetrics extends LifecycleAdapter
     public static final String TX_STARTED = name( TRANSACTION_PREFIX, "started" );
     @Documented( "The highest peak of concurrent transactions ever seen on this machine" )
     public static final String TX_PEAK_CONCURRENT = name( TRANSACTION_PREFIX, "peak_concurrent" );
+    @Documented( "The highest estimated heap usage, in bytes, of the state of a single transaction ever seen on " +
+                 "this machine" )
+    public static final String TX_PEAK_STATE_HEAP_USAGE = name( TRANSACTION_PREFIX, "peak_state_heap_usage" );
 
     @Documented( "The number of currently active transactions" )
     public static final String TX_ACTIVE = name( TRANSACTION_PREFIX, "active" );
@@ -74,16 +80,41 @@ public class TransactionMetrics extends LifecycleAdapter
     @Documented( "The ID of the last closed transaction" )
     public static final String LAST_CLOSED_TX_ID = name( TRANSACTION_PREFIX, "last_closed_tx_id" );
 
+    private static final String COMMIT_PREFIX = name( TRANSACTION_PREFIX, "commit" );
+
+    @Documented( "The median time spent in each stage of committing write transactions, in microseconds. " +
+                 "Reported per stage, i.e. prepare, log_append, log_force, store_apply and close, " +
+                 "e.g. neo4j.transaction.commit.log_force.p50. Commit stage percentiles cover the transactions " +
+                 "committed in the last one to two minutes" )
+    public static final String COMMIT_STAGE_P50 = name( COMMIT_PREFIX, "<stage>", "p50" );
+    @Documented( "The 99th percentile of the time spent in each stage of committing write transactions, " +
+                 "in microseconds, e.g. neo4j.transaction.commit.log_force.p99" )
+    public static final String COMMIT_STAGE_P99 = name( COMMIT_PREFIX, "<stage>", "p99" );
+    @Documented( "The 99.9th percentile of the time spent in each stage of committing write transactions, " +
+                 "in microseconds, e.g. neo4j.transaction.commit.log_force.p999" )
+    public static final String COMMIT_STAGE_P999 = name( COMMIT_PREFIX, "<stage>", "p999" );
+
+    private static final String[] COMMIT_STAGE_QUANTILE_NAMES = {"p50", "p99", "p999"};
+    private static final double[] COMMIT_STAGE_QUANTILES = {0.5, 0.99, 0.999};
+
     private final MetricRegistry registry;
     private final TransactionCounters transactionCounters;
     private final Supplier<TransactionIdStore> transactionIdStore;
+    private final CommitStageMonitor commitStageMonitor;
 
     public TransactionMetrics( MetricRegistry registry,
             Supplier<TransactionIdStore> transactionIdStore, TransactionCounters transactionCounters )
+    {
+        this( registry, transactionIdStore, transactionCounters, CommitStageMonitor.NULL );
+    }
+
+    public TransactionMetrics( MetricRegistry registry, Supplier<TransactionIdStore> transactionIdStore,
+            TransactionCounters transactionCounters, CommitStageMonitor commitStageMonitor )
     {
         this.registry = registry;
         this.transactionIdStore = transactionIdStore;
         this.transactionCounters = transactionCounters;
+        this.commitStageMonitor = commitStageMonitor;
     }
 
     @Override
@@ -92,6 +123,8 @@ public class TransactionMetrics extends LifecycleAdapter
         registry.register( TX_STARTED, (Gauge<Long>) transactionCounters::getNumberOfStartedTransactions );
         registry.register( TX_PEAK_CONCURRENT,
                 (Gauge<Long>) transactionCounters::getPeakConcurrentNumberOfTransactions );
+        registry.register( TX_PEAK_STATE_HEAP_USAGE,
+                (Gauge<Long>) transactionCounters::getPeakTransactionStateHeapUsage );
 
         registry.register( TX_ACTIVE, (Gauge<Long>) transactionCounters::getNumberOfActiveTransactions );
         registry.register( READ_TX_ACTIVE, (Gauge<Long>) transactionCounters::getNumberOfActiveReadTransactions );
@@ -118,6 +151,17 @@ public class TransactionMetrics extends LifecycleAdapter
                 transactionIdStore.get().getLastCommittedTransactionId() );
         registry.register( LAST_CLOSED_TX_ID, (Gauge<Long>) () ->
                 transactionIdStore.get().getLastClosedTransactionId() );
+
+        for ( CommitStage stage : CommitStage.values() )
+        {
+            for ( int i = 0; i < COMMIT_STAGE_QUANTILES.length; i++ )
+            {
+                double quantile = COMMIT_STAGE_QUANTILES[i];
+                registry.register( commitStageName( stage, COMMIT_STAGE_QUANTILE_NAMES[i] ), (Gauge<Long>) () ->
+                        TimeUnit.NANOSECONDS.toMicros(
+                                commitStageMonitor.commitStageLatencyNanos( stage, quantile ) ) );
+            }
+        }
     }
 
     @Override
@@ -125,6 +169,7 @@ public class TransactionMetrics extends LifecycleAdapter
     {
         registry.remove( TX_STARTED );
         registry.remove( TX_PEAK_CONCURRENT );
+        registry.remove( TX_PEAK_STATE_HEAP_USAGE );
 
         registry.remove( TX_ACTIVE );
         registry.remove( READ_TX_ACTIVE );
@@ -144,5 +189,18 @@ public class TransactionMetrics extends LifecycleAdapter
 
         registry.remove( LAST_COMMITTED_TX_ID );
         registry.remove( LAST_CLOSED_TX_ID );
+
+        for ( CommitStage stage : CommitStage.values() )
+        {
+            for ( String quantileName : COMMIT_STAGE_QUANTILE_NAMES )
+            {
+                registry.remove( commitStageName( stage, quantileName ) );
+            }
+        }
+    }
+
+    static String commitStageName( CommitStage stage, String quantileName )
+    {
+        return name( COMMIT_PREFIX, stage.name().toLowerCase(), quantileName );
     }
 }
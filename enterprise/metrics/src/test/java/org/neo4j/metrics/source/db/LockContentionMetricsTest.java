@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.metrics.source.db;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import org.neo4j.kernel.impl.locking.LockContentionProfiler;
+import org.neo4j.kernel.impl.locking.LockWaitEvent;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LockContentionMetricsTest
+{
+    private final MetricRegistry registry = new MetricRegistry();
+    private final LockContentionProfiler profiler = new LockContentionProfiler( 1, 10 );
+    private final LockContentionMetrics metrics = new LockContentionMetrics( registry, profiler );
+
+    @Test
+    public void shouldReportWaitsAndWaitTimesInTotalAndPerResourceType() throws Exception
+    {
+        // given
+        metrics.start();
+
+        // when
+        profiler.waitForLock( true, ResourceTypes.NODE, 1 ).close();
+        profiler.waitForLock( false, ResourceTypes.NODE, 2 ).close();
+        try ( LockWaitEvent event = profiler.waitForLock( true, ResourceTypes.LABEL, 1 ) )
+        {
+            Thread.sleep( 10 );
+        }
+
+        // then
+        assertEquals( 3L, gauge( LockContentionMetrics.LOCK_WAITS ) );
+        assertEquals( 2L, gauge( LockContentionMetrics.waitsName( ResourceTypes.NODE ) ) );
+        assertEquals( 1L, gauge( LockContentionMetrics.waitsName( ResourceTypes.LABEL ) ) );
+        assertEquals( 0L, gauge( LockContentionMetrics.waitsName( ResourceTypes.RELATIONSHIP ) ) );
+        assertTrue( (Long) gauge( LockContentionMetrics.LOCK_WAIT_TIME ) >= 10 );
+        assertTrue( (Long) gauge( LockContentionMetrics.waitTimeName( ResourceTypes.LABEL ) ) >= 10 );
+    }
+
+    @Test
+    public void shouldReportWaitTimePercentilesInTotalAndPerResourceType() throws Exception
+    {
+        // given
+        metrics.start();
+
+        // when
+        profiler.waitForLock( true, ResourceTypes.NODE, 1 ).close();
+        try ( LockWaitEvent event = profiler.waitForLock( true, ResourceTypes.LABEL, 1 ) )
+        {
+            Thread.sleep( 10 );
+        }
+
+        // then
+        long labelP50 = (Long) gauge( name( LockContentionMetrics.waitTimeName( ResourceTypes.LABEL ), "p50" ) );
+        assertTrue( "Unexpected label wait time p50 " + labelP50, labelP50 > 10 );
+        assertEquals( 0L, gauge( name( LockContentionMetrics.waitTimeName( ResourceTypes.RELATIONSHIP ), "p99" ) ) );
+        long totalP50 = (Long) gauge( LockContentionMetrics.LOCK_WAIT_TIME_P50 );
+        long totalP99 = (Long) gauge( LockContentionMetrics.LOCK_WAIT_TIME_P99 );
+        assertTrue( "Unexpected wait time p50 " + totalP50 + " and p99 " + totalP99, totalP50 <= totalP99 );
+        assertEquals( labelP50, totalP99 );
+    }
+
+    @Test
+    public void shouldRemoveAllMetricsOnStop() throws Exception
+    {
+        // given
+        metrics.start();
+        assertFalse( registry.getGauges().isEmpty() );
+
+        // when
+        metrics.stop();
+
+        // then
+        assertTrue( registry.getGauges().isEmpty() );
+    }
+
+    private Object gauge( String name )
+    {
+        return registry.getGauges().get( name ).getValue();
+    }
+}
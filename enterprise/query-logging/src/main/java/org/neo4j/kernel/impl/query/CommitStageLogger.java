@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.query;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+import org.neo4j.kernel.impl.api.DefaultTransactionTracer;
+import org.neo4j.logging.Log;
+
+/**
+ * Logs the time spent in each commit stage of write transactions that take longer than the query log threshold to
+ * commit, next to the queries in the query log.
+ */
+class CommitStageLogger implements DefaultTransactionTracer.CommitMonitor
+{
+    private final Log log;
+    private final BooleanSupplier queryLogEnabled;
+    private final LongSupplier thresholdMillis;
+
+    CommitStageLogger( Log log, BooleanSupplier queryLogEnabled, LongSupplier thresholdMillis )
+    {
+        this.log = log;
+        this.queryLogEnabled = queryLogEnabled;
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    @Override
+    public void transactionCommitted( long transactionId, long prepareNanos, long logAppendNanos, long logForceNanos,
+            long storeApplyNanos, long closeNanos )
+    {
+        if ( !queryLogEnabled.getAsBoolean() )
+        {
+            return;
+        }
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(
+                prepareNanos + logAppendNanos + logForceNanos + storeApplyNanos + closeNanos );
+        if ( totalMillis >= thresholdMillis.getAsLong() )
+        {
+            log.info( "%d ms: commit of transaction %d - prepare: %d us, log append: %d us, log force: %d us, " +
+                      "store apply: %d us, close: %d us", totalMillis, transactionId, micros( prepareNanos ),
+                    micros( logAppendNanos ), micros( logForceNanos ), micros( storeApplyNanos ),
+                    micros( closeNanos ) );
+        }
+    }
+
+    private static long micros( long nanos )
+    {
+        return TimeUnit.NANOSECONDS.toMicros( nanos );
+    }
+}
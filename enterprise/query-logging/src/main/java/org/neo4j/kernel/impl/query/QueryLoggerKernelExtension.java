@@ -114,6 +114,10 @@ public class QueryLoggerKernelExtension extends KernelExtensionFactory<QueryLogg
 
                 QueryLogger logger = new QueryLogger( log, queryLogEnabled, thresholdMillis, flags );
                 monitoring.addMonitorListener( logger );
+                if ( config.get( GraphDatabaseSettings.log_queries_commit_stage_logging_enabled ) )
+                {
+                    monitoring.addMonitorListener( new CommitStageLogger( log, queryLogEnabled, thresholdMillis ) );
+                }
             }
 
             @Override
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.query;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.logging.AssertableLogProvider;
+
+import static org.neo4j.logging.AssertableLogProvider.inLog;
+
+public class CommitStageLoggerTest
+{
+    private final AssertableLogProvider logProvider = new AssertableLogProvider();
+    private boolean queryLogEnabled = true;
+
+    @Test
+    public void shouldLogCommitStagesOfCommitSlowerThanThreshold() throws Exception
+    {
+        // when
+        commitStageLogger().transactionCommitted( 42, micros( 1_500 ), micros( 250 ), micros( 8_000 ), micros( 900 ),
+                micros( 50 ) );
+
+        // then
+        logProvider.assertExactly( inLog( getClass() ).info(
+                "%d ms: commit of transaction %d - prepare: %d us, log append: %d us, log force: %d us, " +
+                "store apply: %d us, close: %d us", 10L, 42L, 1_500L, 250L, 8_000L, 900L, 50L ) );
+    }
+
+    @Test
+    public void shouldRespectThreshold() throws Exception
+    {
+        // when
+        commitStageLogger().transactionCommitted( 42, micros( 1_500 ), micros( 250 ), micros( 6_000 ), micros( 900 ),
+                micros( 50 ) );
+
+        // then
+        logProvider.assertNoLoggingOccurred();
+    }
+
+    @Test
+    public void shouldNotLogWhenQueryLogDisabled() throws Exception
+    {
+        // given
+        queryLogEnabled = false;
+
+        // when
+        commitStageLogger().transactionCommitted( 42, micros( 1_500 ), micros( 250 ), micros( 8_000 ), micros( 900 ),
+                micros( 50 ) );
+
+        // then
+        logProvider.assertNoLoggingOccurred();
+    }
+
+    private CommitStageLogger commitStageLogger()
+    {
+        return new CommitStageLogger( logProvider.getLog( getClass() ), () -> queryLogEnabled, () -> 10 );
+    }
+
+    private static long micros( long micros )
+    {
+        return TimeUnit.MICROSECONDS.toNanos( micros );
+    }
+}
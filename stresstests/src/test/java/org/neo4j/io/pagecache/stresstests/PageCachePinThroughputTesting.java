@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2002-2017 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.stresstests;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo4j.graphdb.config.Configuration;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.FileUtils;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PageSwapperFactory;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo4j.io.pagecache.impl.muninn.EvictionPolicy;
+import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+import org.neo4j.io.pagecache.tracing.cursor.PageCursorTracerSupplier;
+import org.neo4j.unsafe.impl.internal.dragons.MemorySource;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.System.getProperty;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.neo4j.helper.StressTestingHelper.ensureExistsAndEmpty;
+import static org.neo4j.helper.StressTestingHelper.fromEnv;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * Measures the throughput of pinning and unpinning random pages in a page cache that holds the whole file, with the
+ * page cache memory allocated from each of the {@link MemorySource memory sources}. Large page caches are needed to
+ * see the difference that huge pages make to the number of TLB misses.
+ * <p>
+ * Like a JMH benchmark, each memory source gets a number of warmup iterations, whose results are discarded, followed
+ * by a number of measured iterations.
+ * <p>
+ * Notice the class name: this is _not_ going to be run as part of the main build.
+ */
+public class PageCachePinThroughputTesting
+{
+    private static final int CACHE_PAGE_SIZE = 8192;
+    private static final long HIGHEST_TRACKABLE_SCORE = 1_000_000_000_000L;
+
+    @Test
+    public void measurePinUnpinThroughputWithAndWithoutHugePages() throws Exception
+    {
+        int numberOfPages = parseInt( fromEnv( "PAGE_CACHE_PIN_NUMBER_OF_PAGES", "131072" ) );
+        int numberOfThreads = parseInt( fromEnv( "PAGE_CACHE_PIN_NUMBER_OF_THREADS", "8" ) );
+        int warmupIterations = parseInt( fromEnv( "PAGE_CACHE_PIN_WARMUP_ITERATIONS", "3" ) );
+        int measurementIterations = parseInt( fromEnv( "PAGE_CACHE_PIN_MEASUREMENT_ITERATIONS", "5" ) );
+        int iterationSeconds = parseInt( fromEnv( "PAGE_CACHE_PIN_ITERATION_SECONDS", "5" ) );
+        File hugetlbfsDirectory = new File( fromEnv( "PAGE_CACHE_PIN_HUGETLBFS_DIRECTORY", "/dev/hugepages" ) );
+        File baseDir = new File( fromEnv( "PAGE_CACHE_PIN_WORKING_DIRECTORY", getProperty( "java.io.tmpdir" ) ) );
+
+        File workingDirectory = ensureExistsAndEmpty( new File( baseDir, "pin-throughput" ) );
+        List<MemorySource> memorySources = new ArrayList<>();
+        memorySources.add( MemorySource.ALLOCATE );
+        memorySources.add( MemorySource.transparentHugePages() );
+        if ( hugetlbfsDirectory.isDirectory() )
+        {
+            memorySources.add( MemorySource.hugetlbfs( hugetlbfsDirectory ) );
+        }
+
+        Map<MemorySource,Histogram> scores = new LinkedHashMap<>();
+        try ( FileSystemAbstraction fs = new DefaultFileSystemAbstraction() )
+        {
+            for ( MemorySource memorySource : memorySources )
+            {
+                PageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+                swapperFactory.open( fs, Configuration.EMPTY );
+                try ( PageCache pageCache = new MuninnPageCache( swapperFactory, numberOfPages + 1000,
+                        CACHE_PAGE_SIZE, PageCacheTracer.NULL, PageCursorTracerSupplier.NULL, EvictionPolicy.CLOCK,
+                        memorySource );
+                      PagedFile pagedFile = pageCache.map( new File( workingDirectory, "pages" ), CACHE_PAGE_SIZE,
+                              CREATE ) )
+                {
+                    fill( pagedFile, numberOfPages );
+                    for ( int i = 0; i < warmupIterations; i++ )
+                    {
+                        measure( pagedFile, numberOfPages, numberOfThreads, iterationSeconds );
+                    }
+                    Histogram histogram = new Histogram( HIGHEST_TRACKABLE_SCORE, 3 );
+                    for ( int i = 0; i < measurementIterations; i++ )
+                    {
+                        histogram.recordValue( measure( pagedFile, numberOfPages, numberOfThreads, iterationSeconds ) );
+                    }
+                    scores.put( memorySource, histogram );
+                }
+            }
+        }
+        printStats( System.out, scores );
+
+        // let's cleanup disk space when everything went well
+        FileUtils.deleteRecursively( workingDirectory );
+    }
+
+    private static void fill( PagedFile pagedFile, int numberOfPages ) throws Exception
+    {
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( int i = 0; i < numberOfPages; i++ )
+            {
+                cursor.next();
+                cursor.putLong( i );
+            }
+        }
+    }
+
+    /**
+     * @return the number of pin and unpin pairs per second.
+     */
+    private static long measure( PagedFile pagedFile, int numberOfPages, int numberOfThreads, int seconds )
+            throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( numberOfThreads );
+        AtomicBoolean stop = new AtomicBoolean();
+        try
+        {
+            List<Future<Long>> futures = new ArrayList<>();
+            for ( int i = 0; i < numberOfThreads; i++ )
+            {
+                futures.add( executor.submit( () ->
+                {
+                    ThreadLocalRandom rng = ThreadLocalRandom.current();
+                    long pins = 0;
+                    long sum = 0;
+                    try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+                    {
+                        while ( !stop.get() )
+                        {
+                            cursor.next( rng.nextInt( numberOfPages ) );
+                            do
+                            {
+                                sum += cursor.getLong();
+                            }
+                            while ( cursor.shouldRetry() );
+                            pins++;
+                        }
+                    }
+                    // Make sure the JIT cannot tell that the reads are pointless.
+                    return sum == 42 ? pins + 1 : pins;
+                } ) );
+            }
+            long startNanos = System.nanoTime();
+            Thread.sleep( TimeUnit.SECONDS.toMillis( seconds ) );
+            stop.set( true );
+            long pins = 0;
+            for ( Future<Long> future : futures )
+            {
+                pins += future.get();
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+            return (long) (pins / (elapsedNanos / 1_000_000_000.0));
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination( 1, TimeUnit.MINUTES );
+        }
+    }
+
+    private static void printStats( PrintStream out, Map<MemorySource,Histogram> scores )
+    {
+        for ( Map.Entry<MemorySource,Histogram> entry : scores.entrySet() )
+        {
+            Histogram histogram = entry.getValue();
+            out.println( entry.getKey() + " pin and unpin pairs per second, over " + histogram.getTotalCount() +
+                         " iterations:" );
+            out.printf( "Mean: %.0f, standard deviation: %.0f%n", histogram.getMean(), histogram.getStdDeviation() );
+            histogram.outputPercentileDistribution( out, 1.0 );
+            out.println();
+        }
+    }
+}
@@ -159,6 +159,11 @@ public class TimerTransactionTracer implements TransactionTracer, CheckPointTrac
         {
             return StoreApplyEvent.NULL;
         }
+
+        @Override
+        public void setTransactionId( long transactionId )
+        {
+        }
     };
 
     private static final TransactionEvent TRANSACTION_EVENT = new TransactionEvent()